@@ -22,12 +22,17 @@ package nl.lxtreme.ols.api;
 
 
 import java.io.*;
+import java.util.*;
 
 import nl.lxtreme.ols.api.devices.*;
 
 
 /**
  * Denotes a service for acquiring data from a device.
+ * <p>
+ * Multiple devices can acquire data simultaneously, each device is allowed to
+ * have at most one acquisition in progress.
+ * </p>
  */
 public interface DataAcquisitionService
 {
@@ -50,11 +55,22 @@ public interface DataAcquisitionService
    * Returns whether or not this device controller is acquiring data.
    * 
    * @return <code>true</code> if this device controller is currently acquiring
-   *         data (or waiting to start capturing due to a trigger),
-   *         <code>false</code> otherwise.
+   *         data (or waiting to start capturing due to a trigger) for any
+   *         device, <code>false</code> otherwise.
    */
   public boolean isAcquiring();
 
+  /**
+   * Returns whether or not the given device is acquiring data.
+   * 
+   * @param aDevice
+   *          the device to test, cannot be <code>null</code>.
+   * @return <code>true</code> if the given device is currently acquiring data
+   *         (or waiting to start capturing due to a trigger),
+   *         <code>false</code> otherwise.
+   */
+  public boolean isAcquiring( Device aDevice );
+
   /**
    * Acquires data from the given device.
    * 
@@ -64,7 +80,70 @@ public interface DataAcquisitionService
    * @throws IOException
    *           in case of I/O problems during the acquisition of data;
    * @throws IllegalArgumentException
-   *           in case the given device was <code>null</code>.
+   *           in case the given device was <code>null</code>;
+   * @throws IllegalStateException
+   *           in case the given device is already acquiring data.
    */
   void acquireData( Device aDevice ) throws IOException;
+
+  /**
+   * Acquires data from the given devices simultaneously.
+   * <p>
+   * Each device reports its own progress and status to the registered
+   * {@link nl.lxtreme.ols.api.acquisition.DeviceAcquisitionListener}s. Once
+   * all devices have completed their acquisition, their results are merged
+   * into a single (wide) acquisition result, which is passed to all registered
+   * acquisition data listeners.
+   * </p>
+   * 
+   * @param aDevices
+   *          the devices from which data should be acquired, cannot be
+   *          <code>null</code> or empty;
+   * @param aAlignOnTrigger
+   *          <code>true</code> to align the results of all devices on their
+   *          trigger position, <code>false</code> to align them on their first
+   *          sample.
+   * @throws IOException
+   *           in case of I/O problems during the acquisition of data;
+   * @throws IllegalArgumentException
+   *           in case the given devices were <code>null</code> or empty;
+   * @throws IllegalStateException
+   *           in case one of the given devices is already acquiring data.
+   * @see nl.lxtreme.ols.api.data.AcquisitionResultMerger
+   */
+  void acquireData( List<Device> aDevices, boolean aAlignOnTrigger ) throws IOException;
+
+  /**
+   * Acquires data from the given device continuously, until the acquisition is
+   * cancelled.
+   * <p>
+   * The device is re-armed directly after each capture, and each capture is
+   * appended to a bounded buffer of transitions. Captures are appended
+   * back-to-back; the time between two captures is not represented. The oldest
+   * transitions are evicted when the retained data spans more than the given
+   * duration, or when more than the given number of transitions are retained.
+   * Each appended capture is reported to all registered
+   * {@link nl.lxtreme.ols.api.acquisition.ContinuousAcquisitionDataListener}s.
+   * Once cancelled, all retained data is reported as a regular acquisition
+   * result.
+   * </p>
+   * 
+   * @param aDevice
+   *          the device from which data should be acquired, cannot be
+   *          <code>null</code>;
+   * @param aMaxDuration
+   *          the maximum duration (in seconds) of data to retain, or a value
+   *          <= 0.0 to retain data regardless of its duration;
+   * @param aMaxTransitions
+   *          the maximum number of transitions to retain, > 0. Each transition
+   *          takes 12 bytes of memory.
+   * @throws IOException
+   *           in case of I/O problems during the acquisition of data;
+   * @throws IllegalArgumentException
+   *           in case the given device was <code>null</code>, or the maximum
+   *           number of transitions was not positive;
+   * @throws IllegalStateException
+   *           in case the given device is already acquiring data.
+   */
+  void acquireDataContinuously( Device aDevice, double aMaxDuration, int aMaxTransitions ) throws IOException;
 }
@@ -34,9 +34,18 @@ public interface Ols
   /** The maximum number of cursors that can be set. */
   public static final int MAX_CURSORS = 10;
 
-  /** The maximum number of channels. */
+  /** The maximum number of channels in a single (32-bit) sample value. */
   public static final int MAX_CHANNELS = 32;
 
+  /**
+   * The number of channels per sample plane; wide captures store each group
+   * of this many channels in a separate plane.
+   */
+  public static final int CHANNELS_PER_PLANE = MAX_CHANNELS;
+
+  /** The maximum number of channels of wide captures. */
+  public static final int MAX_WIDE_CHANNELS = 64;
+
   /** The number of channels per block. */
   public static final int CHANNELS_PER_BLOCK = 8;
 
@@ -0,0 +1,52 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.acquisition;
+
+
+/**
+ * Provides an {@link AcquisitionDataListener} that is also interested in the
+ * intermediary results of a continuous acquisition.
+ * <p>
+ * During a continuous acquisition, the device is re-armed directly after each
+ * capture, and each capture is appended to a bounded buffer. Instead of
+ * {@link #acquisitionComplete(AcquisitionResult)}, which is only called once
+ * the continuous acquisition is stopped, this listener is called each time new
+ * data is appended.
+ * </p>
+ */
+public interface ContinuousAcquisitionDataListener extends AcquisitionDataListener
+{
+  // METHODS
+
+  /**
+   * Called each time a capture is appended to the data of a continuous
+   * acquisition.
+   * 
+   * @param aData
+   *          all data currently retained for the continuous acquisition, never
+   *          <code>null</code>. Its samples are only copied out of the
+   *          retained data upon first use;
+   * @param aAppendedFrom
+   *          the timestamp (in the time base of the given data) from which the
+   *          newly appended capture starts, >= 0.
+   */
+  void acquisitionDataAppended( AcquisitionResult aData, long aAppendedFrom );
+}
@@ -0,0 +1,83 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.acquisition;
+
+
+import nl.lxtreme.ols.api.devices.*;
+
+
+/**
+ * Denotes a listener that wants to get informed about the acquisitions of
+ * individual devices.
+ * <p>
+ * In contrast to {@link AcquisitionStatusListener},
+ * {@link AcquisitionProgressListener} and {@link AcquisitionDataListener},
+ * which are informed about the acquisition as a whole, this listener is
+ * informed about each device separately. This is useful when multiple devices
+ * are acquiring data simultaneously.
+ * </p>
+ */
+public interface DeviceAcquisitionListener
+{
+  // METHODS
+
+  /**
+   * Called upon completion of the capture process of the given device.
+   * 
+   * @param aDevice
+   *          the device that completed its acquisition, never
+   *          <code>null</code>;
+   * @param aData
+   *          the captured data, never <code>null</code>.
+   */
+  void acquisitionComplete( Device aDevice, AcquisitionResult aData );
+
+  /**
+   * Called when the acquisition of the given device ended, providing
+   * information about how it ended.
+   * 
+   * @param aDevice
+   *          the device whose acquisition ended, never <code>null</code>;
+   * @param aStatus
+   *          the status of the ended acquisition, never <code>null</code>.
+   */
+  void acquisitionEnded( Device aDevice, AcquisitionResultStatus aStatus );
+
+  /**
+   * Called to periodically report the progress of the acquisition of the given
+   * device.
+   * 
+   * @param aDevice
+   *          the device whose acquisition is in progress, never
+   *          <code>null</code>;
+   * @param aPercentage
+   *          a percentage, >= 0 && <= 100.
+   */
+  void acquisitionInProgress( Device aDevice, int aPercentage );
+
+  /**
+   * Called when the acquisition of the given device is just started.
+   * 
+   * @param aDevice
+   *          the device whose acquisition started, never <code>null</code>.
+   */
+  void acquisitionStarted( Device aDevice );
+}
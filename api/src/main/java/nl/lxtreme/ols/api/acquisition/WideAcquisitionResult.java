@@ -0,0 +1,71 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.acquisition;
+
+
+/**
+ * Denotes an acquisition result with more than
+ * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels.
+ * <p>
+ * The sample values of a wide result are split into <em>planes</em> of
+ * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels each, which all
+ * share the same time stamps. Plane <tt>n</tt> contains the channels
+ * <tt>n * 32</tt> up to and including <tt>(n * 32) + 31</tt>. The values of
+ * plane 0 are also returned by {@link #getValues()}, and the enabled channels
+ * of plane 0 by {@link #getEnabledChannels()}, so code that is not aware of
+ * wide results keeps working on the first 32 channels.
+ * </p>
+ */
+public interface WideAcquisitionResult extends AcquisitionResult
+{
+  // METHODS
+
+  /**
+   * Returns a bitmask of all enabled channels in the sample data.
+   * 
+   * @return a bitmask of enabled channels, for example, 0xFFFFFFFFFFL for the
+   *         first 40 channels.
+   */
+  public abstract long getEnabledChannelMask();
+
+  /**
+   * Returns the number of sample planes.
+   * 
+   * @return a plane count, >= 1.
+   */
+  public abstract int getPlaneCount();
+
+  /**
+   * Returns the sample values of a single plane.
+   * <p>
+   * NOTE: the length of this array <b>must</b> be equal to the length of the
+   * array returned by {@link #getTimestamps()}!
+   * </p>
+   * 
+   * @param aPlane
+   *          the plane to return the values for, >= 0 &&
+   *          &lt; {@link #getPlaneCount()}.
+   * @return the sample values of the given plane, as array of integers.
+   * @see #getTimestamps()
+   */
+  public abstract int[] getValues( final int aPlane );
+
+}
@@ -0,0 +1,300 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Merges the results of multiple (simultaneous) acquisitions into a single,
+ * wide, acquisition result.
+ * <p>
+ * The channels of each added result are placed after the channels of the
+ * previously added results. All results are brought to a common timebase,
+ * which uses the highest sample rate of all results. Optionally, the results
+ * are aligned on their trigger positions, and each result can be given an
+ * additional time offset to correct for, for example, differences in trigger
+ * latency between devices.
+ * </p>
+ * <p>
+ * Only results with timing data can be merged, and the total number of
+ * channels cannot exceed {@link Ols#MAX_WIDE_CHANNELS}. In case the merged
+ * result has more than {@link Ols#CHANNELS_PER_PLANE} channels, a
+ * {@link WideCapturedData} is returned.
+ * </p>
+ */
+public final class AcquisitionResultMerger
+{
+  // VARIABLES
+
+  private final boolean alignOnTrigger;
+  private final List<AcquisitionResult> results;
+  private final List<Double> offsets;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new AcquisitionResultMerger instance.
+   * 
+   * @param aAlignOnTrigger
+   *          <code>true</code> to align all results (that have trigger data) on
+   *          their trigger position, <code>false</code> to align all results
+   *          on their first sample.
+   */
+  public AcquisitionResultMerger( final boolean aAlignOnTrigger )
+  {
+    this.alignOnTrigger = aAlignOnTrigger;
+    this.results = new ArrayList<AcquisitionResult>();
+    this.offsets = new ArrayList<Double>();
+  }
+
+  // METHODS
+
+  /**
+   * Adds a given acquisition result to merge.
+   * 
+   * @param aResult
+   *          the acquisition result to add, cannot be <code>null</code>.
+   * @return this merger, never <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given result was <code>null</code> or has no timing
+   *           data.
+   */
+  public AcquisitionResultMerger add( final AcquisitionResult aResult )
+  {
+    return add( aResult, 0.0 );
+  }
+
+  /**
+   * Adds a given acquisition result to merge, shifted in time by the given
+   * offset.
+   * 
+   * @param aResult
+   *          the acquisition result to add, cannot be <code>null</code>;
+   * @param aTimeOffset
+   *          the time (in seconds) to shift the given result with on the
+   *          common timebase. Use a positive value to delay the result, or a
+   *          negative value to advance it.
+   * @return this merger, never <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given result was <code>null</code> or has no timing
+   *           data.
+   */
+  public AcquisitionResultMerger add( final AcquisitionResult aResult, final double aTimeOffset )
+  {
+    if ( aResult == null )
+    {
+      throw new IllegalArgumentException( "Result cannot be null!" );
+    }
+    if ( !aResult.hasTimingData() || ( aResult.getSampleRate() <= 0 ) )
+    {
+      throw new IllegalArgumentException( "Only results with timing data can be merged!" );
+    }
+
+    this.results.add( aResult );
+    this.offsets.add( Double.valueOf( aTimeOffset ) );
+    return this;
+  }
+
+  /**
+   * Merges all added acquisition results into a single acquisition result.
+   * 
+   * @return the merged acquisition result, never <code>null</code>.
+   * @throws IllegalStateException
+   *           in case no results were added, or in case the merged result
+   *           would contain more than {@link Ols#MAX_WIDE_CHANNELS} channels.
+   */
+  public AcquisitionResult merge() throws IllegalStateException
+  {
+    final int count = this.results.size();
+    if ( count == 0 )
+    {
+      throw new IllegalStateException( "No results to merge!" );
+    }
+
+    int channels = 0;
+    int rate = 0;
+    for ( AcquisitionResult result : this.results )
+    {
+      channels += result.getChannels();
+      rate = Math.max( rate, result.getSampleRate() );
+    }
+    if ( channels > Ols.MAX_WIDE_CHANNELS )
+    {
+      throw new IllegalStateException( "Cannot merge more than " + Ols.MAX_WIDE_CHANNELS + " channels!" );
+    }
+
+    // Determine the position of each result on the common timebase...
+    final long[] shifts = new long[count];
+    long maxTrigger = Long.MIN_VALUE;
+    boolean triggerFound = false;
+    for ( int i = 0; i < count; i++ )
+    {
+      final AcquisitionResult result = this.results.get( i );
+      shifts[i] = Math.round( this.offsets.get( i ).doubleValue() * rate );
+      if ( this.alignOnTrigger && result.hasTriggerData() )
+      {
+        maxTrigger = Math.max( maxTrigger, scale( result.getTriggerPosition(), result, rate ) );
+        triggerFound = true;
+      }
+    }
+    if ( triggerFound )
+    {
+      for ( int i = 0; i < count; i++ )
+      {
+        final AcquisitionResult result = this.results.get( i );
+        if ( result.hasTriggerData() )
+        {
+          shifts[i] += maxTrigger - scale( result.getTriggerPosition(), result, rate );
+        }
+      }
+    }
+
+    // Make sure no result starts before the common start...
+    long minStart = Long.MAX_VALUE;
+    for ( int i = 0; i < count; i++ )
+    {
+      final long[] timestamps = this.results.get( i ).getTimestamps();
+      final long start = ( timestamps.length > 0 ) ? scale( timestamps[0], this.results.get( i ), rate ) : 0L;
+      minStart = Math.min( minStart, start + shifts[i] );
+    }
+    for ( int i = 0; i < count; i++ )
+    {
+      shifts[i] -= minStart;
+    }
+
+    return mergeTransitions( channels, rate, shifts, triggerFound ? ( maxTrigger - minStart ) : Ols.NOT_AVAILABLE );
+  }
+
+  /**
+   * Scales the given timestamp of the given result to the given sample rate.
+   * 
+   * @param aTimestamp
+   *          the timestamp to scale;
+   * @param aResult
+   *          the result the timestamp belongs to;
+   * @param aRate
+   *          the sample rate to scale to.
+   * @return the scaled timestamp.
+   */
+  private static long scale( final long aTimestamp, final AcquisitionResult aResult, final int aRate )
+  {
+    final int rate = aResult.getSampleRate();
+    if ( rate == aRate )
+    {
+      return aTimestamp;
+    }
+    return Math.round( ( ( double )aTimestamp * aRate ) / rate );
+  }
+
+  /**
+   * Merges the transitions of all results into a single acquisition result.
+   * 
+   * @param aChannels
+   *          the total number of channels;
+   * @param aRate
+   *          the common sample rate;
+   * @param aShifts
+   *          the shift of each result on the common timebase;
+   * @param aTriggerPosition
+   *          the trigger position on the common timebase.
+   * @return the merged result, never <code>null</code>.
+   */
+  private AcquisitionResult mergeTransitions( final int aChannels, final int aRate, final long[] aShifts,
+      final long aTriggerPosition )
+  {
+    final int count = this.results.size();
+    final int[] channelOffsets = new int[count];
+    final int[] indices = new int[count];
+
+    long enabledChannels = 0L;
+    long absoluteLength = 0L;
+    int totalSamples = 0;
+    for ( int i = 0, offset = 0; i < count; i++ )
+    {
+      final AcquisitionResult result = this.results.get( i );
+      channelOffsets[i] = offset;
+      enabledChannels |= ( ChannelAccessor.getEnabledChannelMask( result ) << offset );
+      absoluteLength = Math.max( absoluteLength, scale( result.getAbsoluteLength(), result, aRate ) + aShifts[i] );
+      totalSamples += result.getTimestamps().length;
+      offset += result.getChannels();
+    }
+
+    final long[] values = new long[totalSamples];
+    final long[] timestamps = new long[totalSamples];
+    int size = 0;
+    long value = 0L;
+
+    // k-way merge of all transitions, ordered by their (common) timestamp...
+    while ( true )
+    {
+      long next = Long.MAX_VALUE;
+      for ( int i = 0; i < count; i++ )
+      {
+        final long[] ts = this.results.get( i ).getTimestamps();
+        if ( indices[i] < ts.length )
+        {
+          next = Math.min( next, scale( ts[indices[i]], this.results.get( i ), aRate ) + aShifts[i] );
+        }
+      }
+      if ( next == Long.MAX_VALUE )
+      {
+        break;
+      }
+
+      for ( int i = 0; i < count; i++ )
+      {
+        final AcquisitionResult result = this.results.get( i );
+        final long[] ts = result.getTimestamps();
+        final long mask = ( result.getChannels() >= 64 ) ? -1L : ( ( 1L << result.getChannels() ) - 1L );
+
+        while ( ( indices[i] < ts.length ) && ( ( scale( ts[indices[i]], result, aRate ) + aShifts[i] ) == next ) )
+        {
+          final long v = ChannelAccessor.getWideValue( result, indices[i] );
+          value = ( value & ~( mask << channelOffsets[i] ) ) | ( ( v & mask ) << channelOffsets[i] );
+          indices[i]++;
+        }
+      }
+
+      values[size] = value;
+      timestamps[size] = next;
+      size++;
+    }
+
+    if ( aChannels > Ols.CHANNELS_PER_PLANE )
+    {
+      return new WideCapturedData( Arrays.copyOf( values, size ), Arrays.copyOf( timestamps, size ),
+          aTriggerPosition, aRate, aChannels, enabledChannels, absoluteLength );
+    }
+
+    final int[] narrowValues = new int[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      narrowValues[i] = ( int )values[i];
+    }
+    return new CapturedData( narrowValues, Arrays.copyOf( timestamps, size ), aTriggerPosition, aRate, aChannels,
+        ( int )enabledChannels, absoluteLength );
+  }
+}
@@ -29,6 +29,8 @@ import nl.lxtreme.ols.api.acquisition.*;
 /**
  * Provides a base data set implementation.
  * 
+ * @see ColumnarDataSet
+ * 
  * @param <DATA>
  *          the actual data entity of this base data set.
  */
@@ -80,7 +82,7 @@ public class BaseDataSet<DATA extends BaseData<DATA>>
    * 
    * @return the data, never <code>null</code>.
    */
-  public final List<DATA> getData()
+  public List<DATA> getData()
   {
     return this.data;
   }
@@ -142,7 +144,7 @@ public class BaseDataSet<DATA extends BaseData<DATA>>
    * @return <code>true</code> if this data set is empty, <code>false</code>
    *         otherwise.
    */
-  public final boolean isEmpty()
+  public boolean isEmpty()
   {
     return this.data.isEmpty();
   }
@@ -153,7 +155,7 @@ public class BaseDataSet<DATA extends BaseData<DATA>>
    * @param aData
    *          the data to add, cannot be <code>null</code>.
    */
-  protected final void addData( final DATA aData )
+  protected void addData( final DATA aData )
   {
     this.data.add( aData );
   }
@@ -163,7 +165,7 @@ public class BaseDataSet<DATA extends BaseData<DATA>>
    * 
    * @return a data set size, >= 0.
    */
-  protected final int size()
+  protected int size()
   {
     return this.data.size();
   }
@@ -57,7 +57,8 @@ public interface Channel extends Comparable<Channel>
   /**
    * Returns the index of this channel.
    * 
-   * @return a channel index, >= 0 && < {@value #MAX_CHANNELS}.
+   * @return a channel index, >= 0 && <
+   *         {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS}.
    */
   int getIndex();
 
@@ -71,8 +72,13 @@ public interface Channel extends Comparable<Channel>
 
   /**
    * Returns the bit-mask to use for this channel.
+   * <p>
+   * For channels beyond the first
+   * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE}, this mask applies to
+   * the sample plane the channel is stored in, see {@link ChannelAccessor}.
+   * </p>
    * 
-   * @return a bit-mask (= always a power of two), >= 1.
+   * @return a bit-mask (= always a power of two).
    */
   int getMask();
 
@@ -0,0 +1,314 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides access to the samples of a single channel of an acquisition
+ * result, regardless of whether it is a "normal" result of at most
+ * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels, or a
+ * {@link WideAcquisitionResult}.
+ * <p>
+ * Decoders that test the bits of a channel directly on the array returned by
+ * {@link AcquisitionResult#getValues()} can only see the first
+ * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels; they should use
+ * {@link #getValues()} and {@link #getMask()} of this accessor instead to
+ * support all channels.
+ * </p>
+ */
+public final class ChannelAccessor
+{
+  // VARIABLES
+
+  private final int index;
+  private final int mask;
+  private final int[] values;
+  private final long[] timestamps;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ChannelAccessor instance.
+   * 
+   * @param aResult
+   *          the acquisition result to access, cannot be <code>null</code>;
+   * @param aChannelIdx
+   *          the index of the channel to access, >= 0 && &lt;
+   *          {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS}.
+   * @throws IllegalArgumentException
+   *           in case the given result was <code>null</code> or the given
+   *           channel index is not available in the given result.
+   */
+  public ChannelAccessor( final AcquisitionResult aResult, final int aChannelIdx )
+  {
+    if ( aResult == null )
+    {
+      throw new IllegalArgumentException( "Result cannot be null!" );
+    }
+    if ( ( aChannelIdx < 0 ) || ( getPlane( aChannelIdx ) >= getPlaneCount( aResult ) ) )
+    {
+      throw new IllegalArgumentException( "Invalid channel index: " + aChannelIdx + "!" );
+    }
+
+    this.index = aChannelIdx;
+    this.mask = getMask( aChannelIdx );
+    this.values = getValues( aResult, getPlane( aChannelIdx ) );
+    this.timestamps = aResult.getTimestamps();
+  }
+
+  // METHODS
+
+  /**
+   * Creates a new acquisition result with the same sample rate and channels as
+   * the given result, but with the given 64-bit sample values.
+   * 
+   * @param aResult
+   *          the acquisition result to take the sample rate and channels
+   *          from, cannot be <code>null</code>;
+   * @param aValues
+   *          the 64-bit sample values, one bit per channel;
+   * @param aTimestamps
+   *          the timestamps of the given values;
+   * @param aTriggerPosition
+   *          position of trigger as time value;
+   * @param aAbsLen
+   *          absolute number of samples.
+   * @return a {@link WideCapturedData} in case the given result has more than
+   *         {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels, a
+   *         {@link CapturedData} otherwise.
+   */
+  public static AcquisitionResult createResult( final AcquisitionResult aResult, final long[] aValues,
+      final long[] aTimestamps, final long aTriggerPosition, final long aAbsLen )
+  {
+    final int channels = aResult.getChannels();
+    if ( channels > Ols.CHANNELS_PER_PLANE )
+    {
+      return new WideCapturedData( aValues, aTimestamps, aTriggerPosition, aResult.getSampleRate(), channels,
+          getEnabledChannelMask( aResult ), aAbsLen );
+    }
+
+    final int[] values = new int[aValues.length];
+    for ( int i = 0; i < values.length; i++ )
+    {
+      values[i] = ( int )aValues[i];
+    }
+    return new CapturedData( values, aTimestamps, aTriggerPosition, aResult.getSampleRate(), channels,
+        aResult.getEnabledChannels(), aAbsLen );
+  }
+
+  /**
+   * Returns the 64-bit mask of all enabled channels of the given result.
+   * 
+   * @param aResult
+   *          the acquisition result to get the enabled channels for, cannot be
+   *          <code>null</code>.
+   * @return a bitmask of enabled channels.
+   */
+  public static long getEnabledChannelMask( final AcquisitionResult aResult )
+  {
+    if ( aResult instanceof WideAcquisitionResult )
+    {
+      return ( ( WideAcquisitionResult )aResult ).getEnabledChannelMask();
+    }
+    return aResult.getEnabledChannels() & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the bit mask of the channel with the given index within its plane.
+   * 
+   * @param aChannelIdx
+   *          the channel index, >= 0.
+   * @return a bit-mask (= always a power of two).
+   */
+  public static int getMask( final int aChannelIdx )
+  {
+    return 1 << ( aChannelIdx % Ols.CHANNELS_PER_PLANE );
+  }
+
+  /**
+   * Returns the plane in which the channel with the given index is stored.
+   * 
+   * @param aChannelIdx
+   *          the channel index, >= 0.
+   * @return a plane index, >= 0.
+   */
+  public static int getPlane( final int aChannelIdx )
+  {
+    return aChannelIdx / Ols.CHANNELS_PER_PLANE;
+  }
+
+  /**
+   * Returns the number of sample planes of the given result.
+   * 
+   * @param aResult
+   *          the acquisition result to get the plane count for, cannot be
+   *          <code>null</code>.
+   * @return a plane count, >= 1.
+   */
+  public static int getPlaneCount( final AcquisitionResult aResult )
+  {
+    if ( aResult instanceof WideAcquisitionResult )
+    {
+      return ( ( WideAcquisitionResult )aResult ).getPlaneCount();
+    }
+    return 1;
+  }
+
+  /**
+   * Returns the sample values of the given plane of the given result.
+   * 
+   * @param aResult
+   *          the acquisition result to get the values for, cannot be
+   *          <code>null</code>;
+   * @param aPlane
+   *          the plane to get the values for, >= 0 && &lt;
+   *          {@link #getPlaneCount(AcquisitionResult)}.
+   * @return the sample values of the given plane, never <code>null</code>.
+   */
+  public static int[] getValues( final AcquisitionResult aResult, final int aPlane )
+  {
+    if ( aResult instanceof WideAcquisitionResult )
+    {
+      return ( ( WideAcquisitionResult )aResult ).getValues( aPlane );
+    }
+    if ( aPlane != 0 )
+    {
+      throw new IllegalArgumentException( "Invalid plane: " + aPlane + "!" );
+    }
+    return aResult.getValues();
+  }
+
+  /**
+   * Returns all channels of the given result at the given sample index as a
+   * single 64-bit value.
+   * 
+   * @param aResult
+   *          the acquisition result to get the value for, cannot be
+   *          <code>null</code>;
+   * @param aSampleIdx
+   *          the sample index, >= 0.
+   * @return the 64-bit sample value.
+   */
+  public static long getWideValue( final AcquisitionResult aResult, final int aSampleIdx )
+  {
+    long result = aResult.getValues()[aSampleIdx] & 0xFFFFFFFFL;
+    if ( aResult instanceof WideAcquisitionResult )
+    {
+      final WideAcquisitionResult wideResult = ( WideAcquisitionResult )aResult;
+      for ( int p = 1; p < wideResult.getPlaneCount(); p++ )
+      {
+        result |= ( wideResult.getValues( p )[aSampleIdx] & 0xFFFFFFFFL ) << ( p * Ols.CHANNELS_PER_PLANE );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the bit mask of the channel with the given index within the values
+   * returned by {@link #getWideValue(AcquisitionResult, int)}.
+   * 
+   * @param aChannelIdx
+   *          the channel index, >= 0 && &lt;
+   *          {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS}.
+   * @return a 64-bit mask (= always a power of two).
+   */
+  public static long getWideMask( final int aChannelIdx )
+  {
+    return 1L << aChannelIdx;
+  }
+
+  /**
+   * Returns all channels of the given result as 64-bit values.
+   * 
+   * @param aResult
+   *          the acquisition result to get the values for, cannot be
+   *          <code>null</code>.
+   * @return the 64-bit sample values, never <code>null</code>.
+   * @see #getWideValue(AcquisitionResult, int)
+   */
+  public static long[] getWideValues( final AcquisitionResult aResult )
+  {
+    final long[] result = new long[aResult.getTimestamps().length];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      result[i] = getWideValue( aResult, i );
+    }
+    return result;
+  }
+
+  /**
+   * Returns the index of the accessed channel.
+   * 
+   * @return a channel index, >= 0.
+   */
+  public int getIndex()
+  {
+    return this.index;
+  }
+
+  /**
+   * Returns the bit mask of the accessed channel in the values returned by
+   * {@link #getValues()}.
+   * 
+   * @return a bit-mask (= always a power of two).
+   */
+  public int getMask()
+  {
+    return this.mask;
+  }
+
+  /**
+   * Returns the timestamps of all samples.
+   * 
+   * @return the timestamps, never <code>null</code>.
+   */
+  public long[] getTimestamps()
+  {
+    return this.timestamps;
+  }
+
+  /**
+   * Returns the sample values of the plane containing the accessed channel.
+   * 
+   * @return the sample values, never <code>null</code>.
+   */
+  public int[] getValues()
+  {
+    return this.values;
+  }
+
+  /**
+   * Returns whether the accessed channel is high at the given sample index.
+   * 
+   * @param aSampleIdx
+   *          the sample index, >= 0.
+   * @return <code>true</code> if the channel is high, <code>false</code> if it
+   *         is low.
+   */
+  public boolean isHigh( final int aSampleIdx )
+  {
+    return ( this.values[aSampleIdx] & this.mask ) != 0;
+  }
+}
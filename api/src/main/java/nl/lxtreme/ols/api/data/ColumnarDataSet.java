@@ -0,0 +1,538 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides a base data set implementation that stores its data in columns of
+ * primitive values instead of individual data objects.
+ * <p>
+ * Each decoded row is kept as a set of integers (index, channel, start & end
+ * sample index, type and value), an optional data name and an optional event
+ * name. Both names are interned in a name table shared by all rows. The list
+ * returned by {@link #getData()} is a read-only view that creates its data
+ * objects on demand, by means of {@link #createData(int)}. Data objects added
+ * through {@link #addData(BaseData)} are decomposed into a row by means of
+ * {@link #storeData(int, BaseData)}.
+ * </p>
+ * 
+ * @param <DATA>
+ *          the actual data entity of this data set.
+ */
+public abstract class ColumnarDataSet<DATA extends BaseData<DATA>> extends BaseDataSet<DATA>
+{
+  // CONSTANTS
+
+  /** Denotes that a row has no name. */
+  private static final int NO_NAME = -1;
+
+  private static final int INITIAL_CAPACITY = 256;
+
+  // VARIABLES
+
+  private final List<String> names;
+  private final Map<String, Integer> nameIds;
+  private final List<DATA> view;
+
+  private int[] indices;
+  private int[] channels;
+  private int[] startIndices;
+  private int[] endIndices;
+  private int[] types;
+  private int[] values;
+  private int[] dataNameIds;
+  private int[] eventIds;
+  private int rowCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ColumnarDataSet.
+   * 
+   * @param aStartOfDecodeIdx
+   *          the sample index denoting the start of this data set;
+   * @param aEndOfDecodeIdx
+   *          the sample index denoting the end of this data set;
+   * @param aData
+   *          the actual acquisition results used in this data set.
+   */
+  protected ColumnarDataSet( final int aStartOfDecodeIdx, final int aEndOfDecodeIdx, final AcquisitionResult aData )
+  {
+    super( aStartOfDecodeIdx, aEndOfDecodeIdx, aData );
+
+    this.names = new ArrayList<String>();
+    this.nameIds = new HashMap<String, Integer>();
+    this.view = new DataView();
+
+    this.indices = new int[INITIAL_CAPACITY];
+    this.channels = new int[INITIAL_CAPACITY];
+    this.startIndices = new int[INITIAL_CAPACITY];
+    this.endIndices = new int[INITIAL_CAPACITY];
+    this.types = new int[INITIAL_CAPACITY];
+    this.values = new int[INITIAL_CAPACITY];
+    this.dataNameIds = new int[INITIAL_CAPACITY];
+    this.eventIds = new int[INITIAL_CAPACITY];
+    this.rowCount = 0;
+  }
+
+  // METHODS
+
+  /**
+   * Returns a read-only view on the (decoded) data in this data set. The
+   * returned data objects are created on demand and not retained.
+   * 
+   * @return the data, never <code>null</code>.
+   */
+  @Override
+  public List<DATA> getData()
+  {
+    return this.view;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isEmpty()
+  {
+    return this.rowCount == 0;
+  }
+
+  /**
+   * Adds the given data object to this data set as a new row. The common fields
+   * and index of the data object are stored directly, its data set specific
+   * fields are stored by {@link #storeData(int, BaseData)}.
+   * 
+   * @param aData
+   *          the data to add, cannot be <code>null</code>.
+   */
+  @Override
+  protected final void addData( final DATA aData )
+  {
+    final int row = addRow( aData.getChannelIdx(), aData.getStartSampleIndex(), aData.getEndSampleIndex(), 0, 0,
+        null, aData.getEventName() );
+    this.indices[row] = aData.getIndex();
+
+    storeData( row, aData );
+  }
+
+  /**
+   * Adds a new row of data to this data set.
+   * 
+   * @param aChannelIdx
+   *          the channel index of the data;
+   * @param aStartSampleIdx
+   *          the start sample index of the data;
+   * @param aEndSampleIdx
+   *          the end sample index of the data;
+   * @param aType
+   *          the (data set specific) type of the data;
+   * @param aValue
+   *          the (data set specific) value of the data;
+   * @param aEventName
+   *          the event name of the data, can be <code>null</code>.
+   * @return the index of the added row, >= 0.
+   */
+  protected final int addRow( final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx,
+      final int aType, final int aValue, final String aEventName )
+  {
+    return addRow( aChannelIdx, aStartSampleIdx, aEndSampleIdx, aType, aValue, null, aEventName );
+  }
+
+  /**
+   * Adds a new row of named data to this data set.
+   * 
+   * @param aChannelIdx
+   *          the channel index of the data;
+   * @param aStartSampleIdx
+   *          the start sample index of the data;
+   * @param aEndSampleIdx
+   *          the end sample index of the data;
+   * @param aType
+   *          the (data set specific) type of the data;
+   * @param aValue
+   *          the (data set specific) value of the data;
+   * @param aDataName
+   *          the (data set specific) name of the data, can be
+   *          <code>null</code>;
+   * @param aEventName
+   *          the event name of the data, can be <code>null</code>.
+   * @return the index of the added row, >= 0.
+   */
+  protected final int addRow( final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx,
+      final int aType, final int aValue, final String aDataName, final String aEventName )
+  {
+    final int row = this.rowCount;
+    if ( row == this.indices.length )
+    {
+      grow( row + ( row >> 1 ) + 1 );
+    }
+
+    this.indices[row] = row;
+    this.channels[row] = aChannelIdx;
+    this.startIndices[row] = aStartSampleIdx;
+    this.endIndices[row] = aEndSampleIdx;
+    this.types[row] = aType;
+    this.values[row] = aValue;
+    this.dataNameIds[row] = intern( aDataName );
+    this.eventIds[row] = intern( aEventName );
+
+    this.rowCount++;
+    return row;
+  }
+
+  /**
+   * Compares two rows for sorting this data set. By default, rows are sorted
+   * by their index, which is the same order as {@link BaseData} uses.
+   * 
+   * @param aRow1
+   *          the first row to compare;
+   * @param aRow2
+   *          the second row to compare.
+   * @return a negative value, zero, or a positive value if the first row is
+   *         less than, equal to, or greater than the second row.
+   */
+  protected int compareRows( final int aRow1, final int aRow2 )
+  {
+    return this.indices[aRow1] - this.indices[aRow2];
+  }
+
+  /**
+   * Copies all rows of the given data set that start within the given range
+   * of sample indices to this data set.
+   * 
+   * @param aSource
+   *          the data set to copy the rows from, cannot be <code>null</code>;
+   * @param aFromSampleIdx
+   *          the first sample index of the range (inclusive);
+   * @param aToSampleIdx
+   *          the last sample index of the range (exclusive).
+   * @return the number of copied rows, >= 0.
+   */
+  protected final int copyRows( final ColumnarDataSet<DATA> aSource, final int aFromSampleIdx,
+      final int aToSampleIdx )
+  {
+    int count = 0;
+    for ( int row = 0; row < aSource.rowCount; row++ )
+    {
+      if ( ( aSource.startIndices[row] >= aFromSampleIdx ) && ( aSource.startIndices[row] < aToSampleIdx ) )
+      {
+        addRow( aSource.channels[row], aSource.startIndices[row], aSource.endIndices[row], aSource.types[row],
+            aSource.values[row], aSource.getDataName( row ), aSource.getEventName( row ) );
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Creates a data object for the given row.
+   * 
+   * @param aRow
+   *          the row to create a data object for, >= 0 && < {@link #size()}.
+   * @return a new data object, never <code>null</code>.
+   */
+  protected abstract DATA createData( int aRow );
+
+  /**
+   * @return the channel index of the given row.
+   */
+  protected final int getChannelIdx( final int aRow )
+  {
+    return this.channels[aRow];
+  }
+
+  /**
+   * @return the data name of the given row, can be <code>null</code>.
+   */
+  protected final String getDataName( final int aRow )
+  {
+    return getName( this.dataNameIds[aRow] );
+  }
+
+  /**
+   * @return the end sample index of the given row.
+   */
+  protected final int getEndSampleIndex( final int aRow )
+  {
+    return this.endIndices[aRow];
+  }
+
+  /**
+   * @return the event name of the given row, can be <code>null</code>.
+   */
+  protected final String getEventName( final int aRow )
+  {
+    return getName( this.eventIds[aRow] );
+  }
+
+  /**
+   * @return the index of the given row, as it was when the row was added.
+   */
+  protected final int getIndex( final int aRow )
+  {
+    return this.indices[aRow];
+  }
+
+  /**
+   * @return the start sample index of the given row.
+   */
+  protected final int getStartSampleIndex( final int aRow )
+  {
+    return this.startIndices[aRow];
+  }
+
+  /**
+   * @return the type of the given row.
+   */
+  protected final int getType( final int aRow )
+  {
+    return this.types[aRow];
+  }
+
+  /**
+   * @return the value of the given row.
+   */
+  protected final int getValue( final int aRow )
+  {
+    return this.values[aRow];
+  }
+
+  /**
+   * Sets the data name of the given row.
+   * 
+   * @param aRow
+   *          the row to set the data name for;
+   * @param aDataName
+   *          the data name to set, can be <code>null</code>.
+   */
+  protected final void setDataName( final int aRow, final String aDataName )
+  {
+    this.dataNameIds[aRow] = intern( aDataName );
+  }
+
+  /**
+   * Sets the type of the given row.
+   * 
+   * @param aRow
+   *          the row to set the type for;
+   * @param aType
+   *          the (data set specific) type to set.
+   */
+  protected final void setType( final int aRow, final int aType )
+  {
+    this.types[aRow] = aType;
+  }
+
+  /**
+   * Sets the value of the given row.
+   * 
+   * @param aRow
+   *          the row to set the value for;
+   * @param aValue
+   *          the (data set specific) value to set.
+   */
+  protected final void setValue( final int aRow, final int aValue )
+  {
+    this.values[aRow] = aValue;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected int size()
+  {
+    return this.rowCount;
+  }
+
+  /**
+   * Sorts the rows according to {@link #compareRows(int, int)}. The sort is
+   * stable, like {@link Collections#sort(List)}.
+   */
+  @Override
+  protected void sort()
+  {
+    final int count = this.rowCount;
+    if ( count < 2 )
+    {
+      return;
+    }
+
+    int[] order = new int[count];
+    for ( int i = 0; i < count; i++ )
+    {
+      order[i] = i;
+    }
+    int[] scratch = new int[count];
+
+    // Bottom-up merge sort on the row order...
+    for ( int width = 1; width < count; width <<= 1 )
+    {
+      for ( int lo = 0; lo < count; lo += ( width << 1 ) )
+      {
+        final int mid = Math.min( lo + width, count );
+        final int hi = Math.min( lo + ( width << 1 ), count );
+
+        int i = lo, j = mid, k = lo;
+        while ( ( i < mid ) && ( j < hi ) )
+        {
+          scratch[k++] = ( compareRows( order[j], order[i] ) < 0 ) ? order[j++] : order[i++];
+        }
+        while ( i < mid )
+        {
+          scratch[k++] = order[i++];
+        }
+        while ( j < hi )
+        {
+          scratch[k++] = order[j++];
+        }
+      }
+
+      final int[] tmp = order;
+      order = scratch;
+      scratch = tmp;
+    }
+
+    this.indices = permute( this.indices, order );
+    this.channels = permute( this.channels, order );
+    this.startIndices = permute( this.startIndices, order );
+    this.endIndices = permute( this.endIndices, order );
+    this.types = permute( this.types, order );
+    this.values = permute( this.values, order );
+    this.dataNameIds = permute( this.dataNameIds, order );
+    this.eventIds = permute( this.eventIds, order );
+  }
+
+  /**
+   * Stores the data set specific fields of the given data object in the given
+   * row, by means of {@link #setType(int, int)}, {@link #setValue(int, int)}
+   * and/or {@link #setDataName(int, String)}.
+   * 
+   * @param aRow
+   *          the row to store the fields in;
+   * @param aData
+   *          the data object to store the fields of, cannot be
+   *          <code>null</code>.
+   */
+  protected abstract void storeData( int aRow, DATA aData );
+
+  /**
+   * Returns the name for the given name identifier.
+   * 
+   * @param aNameId
+   *          the name identifier, as returned by {@link #intern(String)}.
+   * @return the name, or <code>null</code> if the given identifier was
+   *         {@link #NO_NAME}.
+   */
+  private String getName( final int aNameId )
+  {
+    return ( aNameId == NO_NAME ) ? null : this.names.get( aNameId );
+  }
+
+  /**
+   * Grows all columns to the given capacity.
+   */
+  private void grow( final int aCapacity )
+  {
+    this.indices = Arrays.copyOf( this.indices, aCapacity );
+    this.channels = Arrays.copyOf( this.channels, aCapacity );
+    this.startIndices = Arrays.copyOf( this.startIndices, aCapacity );
+    this.endIndices = Arrays.copyOf( this.endIndices, aCapacity );
+    this.types = Arrays.copyOf( this.types, aCapacity );
+    this.values = Arrays.copyOf( this.values, aCapacity );
+    this.dataNameIds = Arrays.copyOf( this.dataNameIds, aCapacity );
+    this.eventIds = Arrays.copyOf( this.eventIds, aCapacity );
+  }
+
+  /**
+   * Interns the given name in the name table of this data set.
+   * 
+   * @param aName
+   *          the name to intern, can be <code>null</code>.
+   * @return the identifier of the name, or {@link #NO_NAME} if the given name
+   *         was <code>null</code>.
+   */
+  private int intern( final String aName )
+  {
+    if ( aName == null )
+    {
+      return NO_NAME;
+    }
+
+    Integer id = this.nameIds.get( aName );
+    if ( id == null )
+    {
+      id = Integer.valueOf( this.names.size() );
+      this.names.add( aName );
+      this.nameIds.put( aName, id );
+    }
+    return id.intValue();
+  }
+
+  /**
+   * Creates a copy of the given column with its rows in the given order.
+   */
+  private int[] permute( final int[] aColumn, final int[] aOrder )
+  {
+    final int[] result = new int[aColumn.length];
+    for ( int i = 0; i < aOrder.length; i++ )
+    {
+      result[i] = aColumn[aOrder[i]];
+    }
+    return result;
+  }
+
+  // INNER TYPES
+
+  /**
+   * Provides a lazy, read-only list view on the rows of this data set.
+   */
+  final class DataView extends AbstractList<DATA> implements RandomAccess
+  {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DATA get( final int aIndex )
+    {
+      if ( ( aIndex < 0 ) || ( aIndex >= ColumnarDataSet.this.rowCount ) )
+      {
+        throw new IndexOutOfBoundsException( "Invalid row: " + aIndex );
+      }
+      return createData( aIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+      return ColumnarDataSet.this.rowCount;
+    }
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides access to the samples of a set of channels of an acquisition
+ * result, as a single array of sample values in which each channel has its
+ * own bit.
+ * <p>
+ * If all channels are stored in the same sample plane, the values of that
+ * plane are used as-is and each channel keeps its mask from
+ * {@link ChannelAccessor#getMask(int)}. Otherwise, the channels are gathered
+ * into a new array of values in which the <tt>n</tt>-th given channel is bit
+ * <tt>n</tt>. Decoders should therefore always obtain their masks through
+ * {@link #getMask(int)}.
+ * </p>
+ */
+public final class MultiChannelAccessor
+{
+  // VARIABLES
+
+  private final int[] channelIdxs;
+  private final int[] masks;
+  private final int[] values;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new MultiChannelAccessor instance.
+   * 
+   * @param aResult
+   *          the acquisition result to access, cannot be <code>null</code>;
+   * @param aChannelIdxs
+   *          the indices of the channels to access, at most
+   *          {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE}. Negative
+   *          indices denote unused (optional) channels and are ignored.
+   * @throws IllegalArgumentException
+   *           in case the given result was <code>null</code>, too many
+   *           channels were given, or one of the given channel indices is not
+   *           available in the given result.
+   */
+  public MultiChannelAccessor( final AcquisitionResult aResult, final int... aChannelIdxs )
+  {
+    if ( aResult == null )
+    {
+      throw new IllegalArgumentException( "Result cannot be null!" );
+    }
+    if ( aChannelIdxs.length > Ols.CHANNELS_PER_PLANE )
+    {
+      throw new IllegalArgumentException( "Too many channels: " + aChannelIdxs.length + "!" );
+    }
+
+    final int planeCount = ChannelAccessor.getPlaneCount( aResult );
+
+    int plane = -1;
+    boolean samePlane = true;
+    for ( int channelIdx : aChannelIdxs )
+    {
+      if ( channelIdx < 0 )
+      {
+        continue;
+      }
+
+      final int channelPlane = ChannelAccessor.getPlane( channelIdx );
+      if ( channelPlane >= planeCount )
+      {
+        throw new IllegalArgumentException( "Invalid channel index: " + channelIdx + "!" );
+      }
+      if ( plane < 0 )
+      {
+        plane = channelPlane;
+      }
+      else if ( plane != channelPlane )
+      {
+        samePlane = false;
+      }
+    }
+
+    this.channelIdxs = aChannelIdxs.clone();
+    this.masks = new int[aChannelIdxs.length];
+
+    if ( samePlane )
+    {
+      for ( int i = 0; i < this.channelIdxs.length; i++ )
+      {
+        this.masks[i] = ( this.channelIdxs[i] < 0 ) ? 0 : ChannelAccessor.getMask( this.channelIdxs[i] );
+      }
+      this.values = ChannelAccessor.getValues( aResult, Math.max( 0, plane ) );
+    }
+    else
+    {
+      for ( int i = 0; i < this.channelIdxs.length; i++ )
+      {
+        this.masks[i] = ( this.channelIdxs[i] < 0 ) ? 0 : ( 1 << i );
+      }
+      this.values = gather( aResult, this.channelIdxs, this.masks );
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Returns the bit mask of the given channel in the values returned by
+   * {@link #getValues()}.
+   * 
+   * @param aChannelIdx
+   *          the index of the channel to return the mask for, should be one
+   *          of the channels given at construction time.
+   * @return a bit-mask (= always a power of two), or 0 if the given channel
+   *         index is negative.
+   * @throws IllegalArgumentException
+   *           in case the given channel is not accessed by this accessor.
+   */
+  public int getMask( final int aChannelIdx )
+  {
+    if ( aChannelIdx < 0 )
+    {
+      return 0;
+    }
+    for ( int i = 0; i < this.channelIdxs.length; i++ )
+    {
+      if ( this.channelIdxs[i] == aChannelIdx )
+      {
+        return this.masks[i];
+      }
+    }
+    throw new IllegalArgumentException( "Channel " + aChannelIdx + " is not accessed!" );
+  }
+
+  /**
+   * Returns the sample values containing all accessed channels.
+   * 
+   * @return the sample values, never <code>null</code>.
+   */
+  public int[] getValues()
+  {
+    return this.values;
+  }
+
+  /**
+   * Gathers the given channels of the given result into a new array of sample
+   * values.
+   */
+  private static int[] gather( final AcquisitionResult aResult, final int[] aChannelIdxs, final int[] aMasks )
+  {
+    final int[] result = new int[aResult.getTimestamps().length];
+
+    for ( int i = 0; i < aChannelIdxs.length; i++ )
+    {
+      if ( aChannelIdxs[i] < 0 )
+      {
+        continue;
+      }
+
+      final int[] planeValues = ChannelAccessor.getValues( aResult, ChannelAccessor.getPlane( aChannelIdxs[i] ) );
+      final int planeMask = ChannelAccessor.getMask( aChannelIdxs[i] );
+      final int mask = aMasks[i];
+
+      for ( int s = 0; s < result.length; s++ )
+      {
+        if ( ( planeValues[s] & planeMask ) != 0 )
+        {
+          result[s] |= mask;
+        }
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,385 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+
+/**
+ * Provides the data of a single acquisition with more than
+ * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels.
+ * <p>
+ * The sample values are stored per plane of
+ * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels, so a wide
+ * result only costs more memory than a {@link CapturedData} for the planes it
+ * actually uses. Like {@link CapturedData}, only the transitions are stored: a
+ * sample is retained when the value of <em>any</em> plane changes.
+ * </p>
+ */
+public class WideCapturedData implements WideAcquisitionResult
+{
+  // VARIABLES
+
+  /** captured values, per plane */
+  private final int[][] planes;
+
+  /** timestamp values in samples count from start */
+  private final long[] timestamps;
+
+  /** position of trigger as time value */
+  private final long triggerPosition;
+
+  /** sampling rate in Hz */
+  private final int rate;
+
+  /** number of channels (1-64) */
+  private final int channels;
+
+  /** bit map of enabled channels */
+  private final long enabledChannels;
+
+  /** absolute sample length */
+  private final long absoluteLength;
+
+  // CONSTRUCTORS
+
+  /**
+   * Constructs WideCapturedData based on the given compressed sampling data.
+   * 
+   * @param aValues
+   *          64bit values, one bit per channel;
+   * @param aTimestamps
+   *          timstamps in number of samples since sample start;
+   * @param aTriggerPosition
+   *          position of trigger as time value;
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>);
+   * @param aChannels
+   *          number of used channels, >= 1 && <=
+   *          {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS};
+   * @param aEnabledChannels
+   *          bit mask identifying used channels;
+   * @param aAbsLen
+   *          absolute number of samples.
+   */
+  public WideCapturedData( final long[] aValues, final long[] aTimestamps, final long aTriggerPosition,
+      final int aRate, final int aChannels, final long aEnabledChannels, final long aAbsLen )
+  {
+    this( toPlanes( aValues, aChannels ), aTimestamps, aTriggerPosition, aRate, aChannels, aEnabledChannels, aAbsLen );
+  }
+
+  /**
+   * Constructs WideCapturedData based on the given compressed sampling data.
+   * 
+   * @param aPlanes
+   *          the sample values per plane, each plane should have the same
+   *          length as the given timestamps;
+   * @param aTimestamps
+   *          timstamps in number of samples since sample start;
+   * @param aTriggerPosition
+   *          position of trigger as time value;
+   * @param aRate
+   *          sampling rate (may be set to <code>NOT_AVAILABLE</code>);
+   * @param aChannels
+   *          number of used channels, >= 1 && <=
+   *          {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS};
+   * @param aEnabledChannels
+   *          bit mask identifying used channels;
+   * @param aAbsLen
+   *          absolute number of samples.
+   */
+  public WideCapturedData( final int[][] aPlanes, final long[] aTimestamps, final long aTriggerPosition,
+      final int aRate, final int aChannels, final long aEnabledChannels, final long aAbsLen )
+  {
+    if ( ( aChannels < 1 ) || ( aChannels > Ols.MAX_WIDE_CHANNELS ) )
+    {
+      throw new IllegalArgumentException( "Invalid channel count: " + aChannels + "! Should be between 1 and "
+          + Ols.MAX_WIDE_CHANNELS );
+    }
+    final int planeCount = getPlaneCount( aChannels );
+    if ( aPlanes.length != planeCount )
+    {
+      throw new IllegalArgumentException( "Invalid plane count! Should be " + planeCount + " for " + aChannels
+          + " channels!" );
+    }
+    for ( int[] plane : aPlanes )
+    {
+      if ( plane.length != aTimestamps.length )
+      {
+        throw new IllegalArgumentException( "Values and timestamps size mismatch!" );
+      }
+    }
+
+    // Ensure we've got an absolute length available...
+    long absLength;
+    if ( aTimestamps.length == 0 )
+    {
+      absLength = Math.max( 0L, aAbsLen );
+    }
+    else if ( aAbsLen < 0L )
+    {
+      absLength = aTimestamps[aTimestamps.length - 1];
+    }
+    else
+    {
+      absLength = Math.max( aAbsLen, aTimestamps[aTimestamps.length - 1] );
+    }
+
+    this.planes = new int[planeCount][];
+
+    final int size = aTimestamps.length;
+    if ( size > 0 )
+    {
+      // 1: calculate the number of unique transitions...
+      int count = 1;
+      long lastTimestamp = aTimestamps[0];
+      for ( int i = 1; i < size; i++ )
+      {
+        if ( isTransition( aPlanes, i ) )
+        {
+          count++;
+          lastTimestamp = aTimestamps[i];
+        }
+      }
+
+      // Issue #167: make sure the absolute length is *always* present...
+      boolean addExtraSample = ( lastTimestamp != absLength ) || count < 2;
+      if ( addExtraSample )
+      {
+        count++;
+      }
+
+      // 2: copy *only* the unique transitions...
+      this.timestamps = new long[count];
+      for ( int p = 0; p < planeCount; p++ )
+      {
+        this.planes[p] = new int[count];
+        this.planes[p][0] = aPlanes[p][0];
+      }
+      this.timestamps[0] = aTimestamps[0];
+
+      for ( int i = 1, j = 1; i < size; i++ )
+      {
+        if ( isTransition( aPlanes, i ) )
+        {
+          for ( int p = 0; p < planeCount; p++ )
+          {
+            this.planes[p][j] = aPlanes[p][i];
+          }
+          this.timestamps[j] = aTimestamps[i];
+          j++;
+        }
+      }
+
+      // Issue #167: make sure the absolute length is *always* present...
+      if ( addExtraSample )
+      {
+        for ( int p = 0; p < planeCount; p++ )
+        {
+          this.planes[p][count - 1] = aPlanes[p][size - 1];
+        }
+        this.timestamps[count - 1] = absLength;
+      }
+    }
+    else
+    {
+      for ( int p = 0; p < planeCount; p++ )
+      {
+        this.planes[p] = new int[0];
+      }
+      this.timestamps = new long[0];
+    }
+
+    this.triggerPosition = aTriggerPosition;
+    this.rate = aRate;
+    this.channels = aChannels;
+    this.enabledChannels = aEnabledChannels;
+    this.absoluteLength = absLength;
+  }
+
+  // METHODS
+
+  /**
+   * Returns the number of planes needed for the given number of channels.
+   * 
+   * @param aChannels
+   *          the number of channels, >= 0.
+   * @return a plane count, >= 1.
+   */
+  static int getPlaneCount( final int aChannels )
+  {
+    return Math.max( 1, ( aChannels + Ols.CHANNELS_PER_PLANE - 1 ) / Ols.CHANNELS_PER_PLANE );
+  }
+
+  /**
+   * Returns whether any of the given planes has a different value at the
+   * given index than at the index before it.
+   */
+  private static boolean isTransition( final int[][] aPlanes, final int aIndex )
+  {
+    for ( int[] plane : aPlanes )
+    {
+      if ( plane[aIndex] != plane[aIndex - 1] )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Splits the given 64-bit sample values into planes.
+   */
+  private static int[][] toPlanes( final long[] aValues, final int aChannels )
+  {
+    final int planeCount = getPlaneCount( aChannels );
+    final int[][] result = new int[planeCount][aValues.length];
+    for ( int p = 0; p < planeCount; p++ )
+    {
+      final int shift = p * Ols.CHANNELS_PER_PLANE;
+      final int[] plane = result[p];
+      for ( int i = 0; i < aValues.length; i++ )
+      {
+        plane[i] = ( int )( aValues[i] >>> shift );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final long getAbsoluteLength()
+  {
+    return this.absoluteLength;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getChannels()
+  {
+    return this.channels;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final long getEnabledChannelMask()
+  {
+    return this.enabledChannels;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getEnabledChannels()
+  {
+    return ( int )this.enabledChannels;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getPlaneCount()
+  {
+    return this.planes.length;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getSampleIndex( final long aAbs )
+  {
+    return CapturedData.binarySearch( this.timestamps, 0, this.timestamps.length, Long.valueOf( aAbs ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int getSampleRate()
+  {
+    return this.rate;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final long[] getTimestamps()
+  {
+    return this.timestamps;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final long getTriggerPosition()
+  {
+    return this.triggerPosition;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int[] getValues()
+  {
+    return this.planes[0];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final int[] getValues( final int aPlane )
+  {
+    return this.planes[aPlane];
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final boolean hasTimingData()
+  {
+    return ( this.rate != Ols.NOT_AVAILABLE );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public final boolean hasTriggerData()
+  {
+    return ( this.triggerPosition != Ols.NOT_AVAILABLE );
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.project;
+
+
+/**
+ * Denotes how much effort is spent on compressing a project file.
+ */
+public enum CompressionLevel
+{
+  /** No compression at all, fastest to write, but largest files. */
+  STORED( 0 ), //
+  /** Fast compression, reasonably sized files. */
+  FAST( 1 ), //
+  /** The default compression, a balance between speed and size. */
+  DEFAULT( -1 ), //
+  /** Best compression, slowest to write, but smallest files. */
+  BEST( 9 );
+
+  // VARIABLES
+
+  private final int level;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new CompressionLevel instance.
+   */
+  private CompressionLevel( final int aLevel )
+  {
+    this.level = aLevel;
+  }
+
+  // METHODS
+
+  /**
+   * Returns the compression level for the given name, falling back to
+   * {@link #DEFAULT} for unknown names.
+   * 
+   * @param aName
+   *          the name of the compression level, can be <code>null</code>.
+   * @return a compression level, never <code>null</code>.
+   */
+  public static CompressionLevel parse( final String aName )
+  {
+    if ( aName != null )
+    {
+      for ( CompressionLevel value : values() )
+      {
+        if ( value.name().equalsIgnoreCase( aName.trim() ) )
+        {
+          return value;
+        }
+      }
+    }
+    return DEFAULT;
+  }
+
+  /**
+   * Returns the level as used by {@link java.util.zip.Deflater}.
+   * 
+   * @return a deflate level, either -1 (default) or 0..9.
+   */
+  public int getLevel()
+  {
+    return this.level;
+  }
+}
@@ -37,6 +37,18 @@ public interface Project
 {
   // METHODS
 
+  /**
+   * Replaces the captured data of this project with a grown version of it, as
+   * produced by a continuous acquisition. When the channel layout of the given
+   * data matches the current data, the current channels and cursors are kept
+   * as-is; otherwise this method behaves like
+   * {@link #setCapturedData(AcquisitionResult)}.
+   * 
+   * @param aData
+   *          the captured data, cannot be <code>null</code>.
+   */
+  void appendCapturedData( final AcquisitionResult aData );
+
   /**
    * Returns the current data set for this project.
    * 
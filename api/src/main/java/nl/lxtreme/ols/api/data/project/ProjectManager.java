@@ -24,6 +24,8 @@ package nl.lxtreme.ols.api.data.project;
 import java.beans.*;
 import java.io.*;
 
+import nl.lxtreme.ols.api.task.*;
+
 
 /**
  * Provides a way of loading and storing projects.
@@ -46,6 +48,22 @@ public interface ProjectManager
    */
   public Project createNewProject();
 
+  /**
+   * Takes an immutable snapshot of the current project, including its captured
+   * data, channel labels, annotations, cursors and settings.
+   * <p>
+   * This method should be called on the thread that changes the project,
+   * normally the EDT, after which the snapshot can be saved on a background
+   * thread without being affected by any further changes.
+   * </p>
+   * 
+   * @return a snapshot of the current project, never <code>null</code>.
+   * @see #saveProject(ProjectSnapshot, OutputStream, CompressionLevel,
+   *      TaskProgressListener)
+   * @see #saveProjectJournal(ProjectSnapshot, File)
+   */
+  public ProjectSnapshot createProjectSnapshot();
+
   /**
    * Creates a temporary project, useful for loading data files.
    * 
@@ -55,6 +73,21 @@ public interface ProjectManager
   @Deprecated
   public Project createTemporaryProject();
 
+  /**
+   * Deletes the journal of the given project file, if any.
+   * <p>
+   * This method should be called after the current project is saved in full
+   * to the given project file, as such a save includes all changes recorded in
+   * its journal.
+   * </p>
+   * 
+   * @param aProjectFile
+   *          the project file to delete the journal for, cannot be
+   *          <code>null</code>.
+   * @see #saveProjectJournal(File)
+   */
+  public void deleteProjectJournal( final File aProjectFile );
+
   /**
    * Returns the current project.
    * 
@@ -64,6 +97,16 @@ public interface ProjectManager
 
   /**
    * Loads a project from the given input stream.
+   * <p>
+   * The loaded project becomes the current project as soon as its metadata,
+   * channel labels and settings are read, <em>before</em> its capture data is
+   * read. While the capture data is read, the data read so far is periodically
+   * set on the project, causing the usual property change events. Hence,
+   * callers should invoke this method on a background thread. Loading can be
+   * cancelled by interrupting the calling thread, in which case an
+   * {@link InterruptedIOException} is thrown and the project is left with the
+   * data read so far.
+   * </p>
    * 
    * @param aInput
    *          the input to read the project from, cannot be <code>null</code>.
@@ -72,6 +115,24 @@ public interface ProjectManager
    */
   public void loadProject( final InputStream aInput ) throws IOException;
 
+  /**
+   * Replays the journal of the given project file, if any, onto the current
+   * project.
+   * <p>
+   * This method should be called after the current project is loaded from the
+   * given project file. Journals that do not belong to the current version of
+   * the given project file are ignored.
+   * </p>
+   * 
+   * @param aProjectFile
+   *          the project file to replay the journal of, cannot be
+   *          <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the journal is corrupt.
+   * @see #saveProjectJournal(File)
+   */
+  public void loadProjectJournal( final File aProjectFile ) throws IOException;
+
   /**
    * Removes the given listener from the list of property change listeners.
    * 
@@ -89,4 +150,92 @@ public interface ProjectManager
    *           in case of I/O problems during writing of the project.
    */
   public void saveProject( final OutputStream aOutput ) throws IOException;
+
+  /**
+   * Stores a project to the given output stream, using the given compression
+   * level and reporting its progress to the given listener.
+   * <p>
+   * The save can be cancelled by interrupting the calling thread, in which
+   * case an {@link InterruptedIOException} is thrown and the project is left
+   * marked as changed.
+   * </p>
+   * 
+   * @param aOutput
+   *          the output to write the project to, cannot be <code>null</code>;
+   * @param aLevel
+   *          the compression level to use, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems during writing of the project.
+   */
+  public void saveProject( final OutputStream aOutput, final CompressionLevel aLevel,
+      final TaskProgressListener aProgressListener ) throws IOException;
+
+  /**
+   * Stores the given snapshot of a project to the given output stream, using
+   * the given compression level and reporting its progress to the given
+   * listener.
+   * <p>
+   * The project is marked as no longer changed, unless it is changed since the
+   * snapshot was taken. The save can be cancelled by interrupting the calling
+   * thread, in which case an {@link InterruptedIOException} is thrown and the
+   * project is left marked as changed.
+   * </p>
+   * 
+   * @param aSnapshot
+   *          the snapshot to store, as taken by
+   *          {@link #createProjectSnapshot()}, cannot be <code>null</code>;
+   * @param aOutput
+   *          the output to write the project to, cannot be <code>null</code>;
+   * @param aLevel
+   *          the compression level to use, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems during writing of the project.
+   */
+  public void saveProject( final ProjectSnapshot aSnapshot, final OutputStream aOutput,
+      final CompressionLevel aLevel, final TaskProgressListener aProgressListener ) throws IOException;
+
+  /**
+   * Saves the changes made to the current project since it was loaded from, or
+   * saved to, the given project file by appending them to the journal of that
+   * file, leaving the project file itself untouched.
+   * <p>
+   * Only changes to the name, cursors, channel labels, channel annotations and
+   * settings of a project are journalled. In case its captured data is
+   * changed, or in case the journal has grown too large, the project must be
+   * saved in full instead.
+   * </p>
+   * 
+   * @param aProjectFile
+   *          the project file to append the journal of, cannot be
+   *          <code>null</code>.
+   * @return <code>true</code> if the changes are saved in the journal,
+   *         <code>false</code> if the project is to be saved in full.
+   * @throws IOException
+   *           in case of I/O problems during writing of the journal.
+   * @see #deleteProjectJournal(File)
+   */
+  public boolean saveProjectJournal( final File aProjectFile ) throws IOException;
+
+  /**
+   * Saves the changes made to a project between the moment it was loaded from,
+   * or saved to, the given project file and the moment the given snapshot was
+   * taken, by appending them to the journal of that file.
+   * 
+   * @param aSnapshot
+   *          the snapshot to journal, as taken by
+   *          {@link #createProjectSnapshot()}, cannot be <code>null</code>;
+   * @param aProjectFile
+   *          the project file to append the journal of, cannot be
+   *          <code>null</code>.
+   * @return <code>true</code> if the changes are saved in the journal,
+   *         <code>false</code> if the project is to be saved in full.
+   * @throws IOException
+   *           in case of I/O problems during writing of the journal.
+   * @see #saveProjectJournal(File)
+   */
+  public boolean saveProjectJournal( final ProjectSnapshot aSnapshot, final File aProjectFile ) throws IOException;
 }
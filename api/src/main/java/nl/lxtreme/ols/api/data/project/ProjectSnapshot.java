@@ -0,0 +1,40 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General License for more details.
+ *
+ * You should have received a copy of the GNU General License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data.project;
+
+
+/**
+ * Denotes an immutable snapshot of a project, as taken by
+ * {@link ProjectManager#createProjectSnapshot()}. A snapshot can be saved while
+ * its project is still being changed, for example, by saving it on a
+ * background thread.
+ */
+public interface ProjectSnapshot
+{
+  // METHODS
+
+  /**
+   * Returns the project this snapshot is taken of.
+   * 
+   * @return the project, never <code>null</code>.
+   */
+  Project getProject();
+}
@@ -0,0 +1,47 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.devices;
+
+
+import nl.lxtreme.ols.api.*;
+
+
+/**
+ * Denotes a device that can be set up without presenting an UI, for example,
+ * when running in batch mode.
+ */
+public interface ConfigurableDevice extends Device
+{
+  // METHODS
+
+  /**
+   * Sets up this device from the given settings, without any user interaction.
+   * The names and values of the settings are device specific.
+   * 
+   * @param aSettings
+   *          the settings to set up this device with, cannot be
+   *          <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given settings were <code>null</code> or did not
+   *           form a valid setup for this device.
+   */
+  public void setupCapture( UserSettings aSettings ) throws IllegalArgumentException;
+}
@@ -42,6 +42,12 @@ public interface Tool<RESULT_TYPE>
 
   /**
    * Factory method for creating a new {@link ToolTask} instance.
+   * <p>
+   * Tool tasks that implement {@link nl.lxtreme.ols.api.Configurable} can be
+   * configured without presenting an UI, by means of their
+   * <code>readPreferences</code> method. They accept the same settings as the
+   * tool's dialog.
+   * </p>
    * 
    * @param aContext
    *          the tool context to use within the tool taks, cannot be
@@ -38,6 +38,14 @@ public interface ToolContext
 
   /**
    * Returns the number of channels in the sample data.
+   * <p>
+   * For wide captures, this can be more than
+   * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE}; tools should therefore
+   * not access the channels directly on the values returned by
+   * {@link AcquisitionResult#getValues()}, but use a
+   * {@link nl.lxtreme.ols.api.data.ChannelAccessor} or
+   * {@link nl.lxtreme.ols.api.data.MultiChannelAccessor} instead.
+   * </p>
    * 
    * @return the channel count, >= 0.
    */
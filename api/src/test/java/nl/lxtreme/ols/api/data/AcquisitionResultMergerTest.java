@@ -0,0 +1,119 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link AcquisitionResultMerger}.
+ */
+public class AcquisitionResultMergerTest
+{
+  // METHODS
+
+  /**
+   * Tests that merging results with a different sample rate and trigger
+   * position yields a single result on a common timebase.
+   */
+  @Test
+  public void testMergeAlignedOnTriggerOk() throws Exception
+  {
+    AcquisitionResult result1 = new CapturedData( new int[] { 0x01, 0x02, 0x03 }, new long[] { 0, 10, 20 }, 10,
+        1000000, 8, 0xFF, 30 );
+    AcquisitionResult result2 = new CapturedData( new int[] { 0x00, 0x05, 0x0A }, new long[] { 0, 30, 40 }, 30,
+        2000000, 4, 0x0F, 60 );
+
+    AcquisitionResult merged = new AcquisitionResultMerger( true ).add( result1 ).add( result2 ).merge();
+
+    assertEquals( 12, merged.getChannels() );
+    assertEquals( 0xFFF, merged.getEnabledChannels() );
+    assertEquals( 2000000, merged.getSampleRate() );
+    assertEquals( 30, merged.getTriggerPosition() );
+    assertEquals( 70, merged.getAbsoluteLength() );
+    assertArrayEquals( new long[] { 0, 10, 30, 40, 50, 70 }, merged.getTimestamps() );
+    assertArrayEquals( new int[] { 0x000, 0x001, 0x502, 0xA02, 0xA03, 0xA03 }, merged.getValues() );
+  }
+
+  /**
+   * Tests that merging results without trigger alignment places the channels
+   * of each result next to each other.
+   */
+  @Test
+  public void testMergeWithTimeOffsetOk() throws Exception
+  {
+    AcquisitionResult result1 = new CapturedData( new int[] { 0x01, 0x00 }, new long[] { 0, 10 }, -1L, 1000000, 1,
+        0x01, 20 );
+    AcquisitionResult result2 = new CapturedData( new int[] { 0x01, 0x00 }, new long[] { 0, 10 }, -1L, 1000000, 1,
+        0x01, 20 );
+
+    AcquisitionResult merged = new AcquisitionResultMerger( false ).add( result1 ).add( result2, 5.0e-6 ).merge();
+
+    assertEquals( 2, merged.getChannels() );
+    assertArrayEquals( new long[] { 0, 5, 10, 15, 25 }, merged.getTimestamps() );
+    assertArrayEquals( new int[] { 0x1, 0x3, 0x2, 0x0, 0x0 }, merged.getValues() );
+  }
+
+  /**
+   * Tests that merging more than 64 channels is not possible.
+   */
+  @Test( expected = IllegalStateException.class )
+  public void testMergeTooManyChannelsFail() throws Exception
+  {
+    AcquisitionResult result = new CapturedData( new int[] { 0x01, 0x00 }, new long[] { 0, 10 }, -1L, 1000000, 32,
+        0xFFFFFFFF, 20 );
+
+    new AcquisitionResultMerger( false ).add( result ).add( result ).add( result ).merge();
+  }
+
+  /**
+   * Tests that merging more than 32 channels yields a wide result, with the
+   * channels beyond the first 32 in the second plane.
+   */
+  @Test
+  public void testMergeWideResultOk() throws Exception
+  {
+    AcquisitionResult result1 = new CapturedData( new int[] { 0x80000001, 0x00 }, new long[] { 0, 10 }, -1L,
+        1000000, 32, 0xFFFFFFFF, 20 );
+    AcquisitionResult result2 = new CapturedData( new int[] { 0x00, 0x81 }, new long[] { 0, 15 }, -1L, 1000000, 8,
+        0xFF, 20 );
+
+    AcquisitionResult merged = new AcquisitionResultMerger( false ).add( result1 ).add( result2 ).merge();
+
+    assertTrue( merged instanceof WideAcquisitionResult );
+    assertEquals( 40, merged.getChannels() );
+    assertEquals( 0xFFFFFFFFFFL, ChannelAccessor.getEnabledChannelMask( merged ) );
+    assertEquals( 2, ChannelAccessor.getPlaneCount( merged ) );
+    assertArrayEquals( new long[] { 0, 10, 15, 20 }, merged.getTimestamps() );
+    assertArrayEquals( new int[] { 0x80000001, 0x00, 0x00, 0x00 }, merged.getValues() );
+    assertArrayEquals( new int[] { 0x00, 0x00, 0x81, 0x81 }, ChannelAccessor.getValues( merged, 1 ) );
+
+    ChannelAccessor accessor = new ChannelAccessor( merged, 39 );
+    assertEquals( 0x80, accessor.getMask() );
+    assertFalse( accessor.isHigh( 1 ) );
+    assertTrue( accessor.isHigh( 2 ) );
+  }
+}
@@ -0,0 +1,281 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ColumnarDataSet}.
+ */
+public class ColumnarDataSetTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a data entity with a name and value.
+   */
+  static final class TestData extends BaseData<TestData>
+  {
+    // VARIABLES
+
+    final int type;
+    final int value;
+    final String dataName;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new TestData instance.
+     */
+    TestData( final int aIdx, final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx,
+        final int aType, final int aValue, final String aDataName, final String aEventName )
+    {
+      super( aIdx, aChannelIdx, aStartSampleIdx, aEndSampleIdx, aEventName );
+      this.type = aType;
+      this.value = aValue;
+      this.dataName = aDataName;
+    }
+  }
+
+  /**
+   * Provides a columnar data set for {@link TestData}.
+   */
+  static final class TestDataSet extends ColumnarDataSet<TestData>
+  {
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new TestDataSet instance.
+     */
+    TestDataSet()
+    {
+      super( 0, 1, new CapturedData( new int[] { 0, 1 }, new long[] { 0, 1 }, -1L, 1000000, 8, 0xFF, 2 ) );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected TestData createData( final int aRow )
+    {
+      return new TestData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ),
+          getEndSampleIndex( aRow ), getType( aRow ), getValue( aRow ), getDataName( aRow ), getEventName( aRow ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void storeData( final int aRow, final TestData aData )
+    {
+      setType( aRow, aData.type );
+      setValue( aRow, aData.value );
+      setDataName( aRow, aData.dataName );
+    }
+  }
+
+  // VARIABLES
+
+  private TestDataSet dataSet;
+
+  // METHODS
+
+  /**
+   * Creates an empty data set.
+   */
+  @Before
+  public void setUp()
+  {
+    this.dataSet = new TestDataSet();
+  }
+
+  /**
+   * Tests that added data objects can be read back from the columns.
+   */
+  @Test
+  public void testAddDataReadBack()
+  {
+    this.dataSet.addData( new TestData( 7, 2, 10, 20, 3, 0x55, "MOSI", null ) );
+    this.dataSet.addData( new TestData( 8, 1, 30, 30, 0, 0, null, "START" ) );
+
+    assertEquals( 2, this.dataSet.size() );
+
+    assertEquals( 7, this.dataSet.getIndex( 0 ) );
+    assertEquals( 2, this.dataSet.getChannelIdx( 0 ) );
+    assertEquals( 10, this.dataSet.getStartSampleIndex( 0 ) );
+    assertEquals( 20, this.dataSet.getEndSampleIndex( 0 ) );
+    assertEquals( 3, this.dataSet.getType( 0 ) );
+    assertEquals( 0x55, this.dataSet.getValue( 0 ) );
+    assertEquals( "MOSI", this.dataSet.getDataName( 0 ) );
+    assertNull( this.dataSet.getEventName( 0 ) );
+
+    assertEquals( 8, this.dataSet.getIndex( 1 ) );
+    assertNull( this.dataSet.getDataName( 1 ) );
+    assertEquals( "START", this.dataSet.getEventName( 1 ) );
+
+    final TestData data = this.dataSet.getData().get( 0 );
+    assertEquals( 7, data.getIndex() );
+    assertEquals( 0x55, data.value );
+    assertEquals( "MOSI", data.dataName );
+    assertTrue( this.dataSet.getData().get( 1 ).isEvent() );
+  }
+
+  /**
+   * Tests that rows added directly can be read back from the columns and the
+   * data view.
+   */
+  @Test
+  public void testAddRowReadBack()
+  {
+    final int row = this.dataSet.addRow( 4, 100, 110, 1, 0xA5, "MISO", null );
+
+    assertEquals( 0, row );
+    assertFalse( this.dataSet.isEmpty() );
+    assertEquals( 0, this.dataSet.getIndex( row ) );
+    assertEquals( 4, this.dataSet.getChannelIdx( row ) );
+    assertEquals( 100, this.dataSet.getStartSampleIndex( row ) );
+    assertEquals( 110, this.dataSet.getEndSampleIndex( row ) );
+    assertEquals( 1, this.dataSet.getType( row ) );
+    assertEquals( 0xA5, this.dataSet.getValue( row ) );
+    assertEquals( "MISO", this.dataSet.getDataName( row ) );
+    assertNull( this.dataSet.getEventName( row ) );
+
+    final List<TestData> data = this.dataSet.getData();
+    assertEquals( 1, data.size() );
+    assertEquals( 100, data.get( 0 ).getStartSampleIndex() );
+    assertEquals( "MISO", data.get( 0 ).dataName );
+  }
+
+  /**
+   * Tests that copying rows only copies the rows within the given range,
+   * including their names.
+   */
+  @Test
+  public void testCopyRows()
+  {
+    this.dataSet.addRow( 0, 10, 11, 0, 1, "A", null );
+    this.dataSet.addRow( 0, 20, 21, 0, 2, null, "B" );
+    this.dataSet.addRow( 0, 30, 31, 0, 3, "C", null );
+
+    final TestDataSet copy = new TestDataSet();
+    assertEquals( 2, copy.copyRows( this.dataSet, 20, 31 ) );
+
+    assertEquals( 2, copy.size() );
+    assertEquals( 0, copy.getIndex( 0 ) );
+    assertEquals( 2, copy.getValue( 0 ) );
+    assertEquals( "B", copy.getEventName( 0 ) );
+    assertEquals( 1, copy.getIndex( 1 ) );
+    assertEquals( "C", copy.getDataName( 1 ) );
+  }
+
+  /**
+   * Tests that the data view checks its bounds.
+   */
+  @Test( expected = IndexOutOfBoundsException.class )
+  public void testDataViewBounds()
+  {
+    this.dataSet.addRow( 0, 10, 11, 0, 1, null );
+
+    this.dataSet.getData().get( 1 );
+  }
+
+  /**
+   * Tests that the columns grow beyond their initial capacity without losing
+   * any rows.
+   */
+  @Test
+  public void testGrowth()
+  {
+    final int count = 10000;
+    for ( int i = 0; i < count; i++ )
+    {
+      this.dataSet.addRow( i % 8, 2 * i, ( 2 * i ) + 1, i % 3, i, ( ( i % 2 ) == 0 ) ? "EVEN" : null,
+          ( ( i % 5 ) == 0 ) ? "FIVE" : null );
+    }
+
+    assertEquals( count, this.dataSet.size() );
+    assertEquals( count, this.dataSet.getData().size() );
+    for ( int i = 0; i < count; i++ )
+    {
+      assertEquals( i, this.dataSet.getIndex( i ) );
+      assertEquals( i % 8, this.dataSet.getChannelIdx( i ) );
+      assertEquals( 2 * i, this.dataSet.getStartSampleIndex( i ) );
+      assertEquals( ( 2 * i ) + 1, this.dataSet.getEndSampleIndex( i ) );
+      assertEquals( i % 3, this.dataSet.getType( i ) );
+      assertEquals( i, this.dataSet.getValue( i ) );
+      assertEquals( ( ( i % 2 ) == 0 ) ? "EVEN" : null, this.dataSet.getDataName( i ) );
+      assertEquals( ( ( i % 5 ) == 0 ) ? "FIVE" : null, this.dataSet.getEventName( i ) );
+    }
+  }
+
+  /**
+   * Tests that equal names are interned to a single instance, shared by the
+   * data and event names.
+   */
+  @Test
+  public void testNameInterning()
+  {
+    this.dataSet.addRow( 0, 0, 0, 0, 0, new String( "NAME" ), null );
+    this.dataSet.addRow( 0, 1, 1, 0, 0, new String( "NAME" ), null );
+    this.dataSet.addRow( 0, 2, 2, 0, 0, null, new String( "NAME" ) );
+    this.dataSet.addData( new TestData( 3, 0, 3, 3, 0, 0, new String( "NAME" ), new String( "OTHER" ) ) );
+
+    final String name = this.dataSet.getDataName( 0 );
+    assertEquals( "NAME", name );
+    assertSame( name, this.dataSet.getDataName( 1 ) );
+    assertSame( name, this.dataSet.getEventName( 2 ) );
+    assertSame( name, this.dataSet.getDataName( 3 ) );
+    assertEquals( "OTHER", this.dataSet.getEventName( 3 ) );
+    assertNull( this.dataSet.getDataName( 2 ) );
+    assertNull( this.dataSet.getEventName( 0 ) );
+  }
+
+  /**
+   * Tests that sorting is stable and keeps all columns of a row together.
+   */
+  @Test
+  public void testSortIsStable()
+  {
+    this.dataSet.addData( new TestData( 2, 0, 20, 21, 0, 200, "X", null ) );
+    this.dataSet.addData( new TestData( 1, 0, 10, 11, 0, 100, "Y", null ) );
+    this.dataSet.addData( new TestData( 2, 0, 30, 31, 0, 300, null, "Z" ) );
+    this.dataSet.addData( new TestData( 0, 0, 0, 1, 0, 0, null, null ) );
+
+    this.dataSet.sort();
+
+    assertEquals( 0, this.dataSet.getValue( 0 ) );
+    assertEquals( 100, this.dataSet.getValue( 1 ) );
+    assertEquals( "Y", this.dataSet.getDataName( 1 ) );
+    assertEquals( 200, this.dataSet.getValue( 2 ) );
+    assertEquals( 20, this.dataSet.getStartSampleIndex( 2 ) );
+    assertEquals( "X", this.dataSet.getDataName( 2 ) );
+    assertEquals( 300, this.dataSet.getValue( 3 ) );
+    assertEquals( "Z", this.dataSet.getEventName( 3 ) );
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link MultiChannelAccessor}.
+ */
+public class MultiChannelAccessorTest
+{
+  // METHODS
+
+  /**
+   * Tests that channels in different planes are gathered into new values, in
+   * which the n-th channel is bit n.
+   */
+  @Test
+  public void testGatherChannelsOfDifferentPlanesOk() throws Exception
+  {
+    final long[] values = { 0L, 1L << 3, 1L << 40, ( 1L << 3 ) | ( 1L << 40 ) | ( 1L << 41 ) };
+    final AcquisitionResult data = new WideCapturedData( values, new long[] { 0L, 1L, 2L, 3L }, 0L, 1000, 64, -1L,
+        3L );
+
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, 40, 3 );
+
+    assertEquals( 1, channels.getMask( 40 ) );
+    assertEquals( 2, channels.getMask( 3 ) );
+    assertArrayEquals( new int[] { 0, 2, 1, 3 }, channels.getValues() );
+  }
+
+  /**
+   * Tests that asking for the mask of a channel that is not accessed fails.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testGetMaskOfUnknownChannelFail() throws Exception
+  {
+    new MultiChannelAccessor( createNarrowData(), 1, 2 ).getMask( 3 );
+  }
+
+  /**
+   * Tests that negative channel indices are ignored and yield an empty mask.
+   */
+  @Test
+  public void testIgnoreNegativeChannelOk() throws Exception
+  {
+    final MultiChannelAccessor channels = new MultiChannelAccessor( createNarrowData(), 1, -1 );
+
+    assertEquals( 2, channels.getMask( 1 ) );
+    assertEquals( 0, channels.getMask( -1 ) );
+  }
+
+  /**
+   * Tests that accessing a channel that is not in the result fails.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testInvalidChannelFail() throws Exception
+  {
+    new MultiChannelAccessor( createNarrowData(), 1, 40 );
+  }
+
+  /**
+   * Tests that a null result is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testNullResultFail() throws Exception
+  {
+    new MultiChannelAccessor( null, 1 );
+  }
+
+  /**
+   * Tests that channels in the same plane use the values of that plane as-is.
+   */
+  @Test
+  public void testSamePlaneUsesPlaneValuesOk() throws Exception
+  {
+    final long[] values = { 0L, 1L << 33, 1L << 40 };
+    final AcquisitionResult data = new WideCapturedData( values, new long[] { 0L, 1L, 2L }, 0L, 1000, 64, -1L, 2L );
+
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, 33, 40 );
+
+    assertSame( ChannelAccessor.getValues( data, 1 ), channels.getValues() );
+    assertEquals( 1 << 1, channels.getMask( 33 ) );
+    assertEquals( 1 << 8, channels.getMask( 40 ) );
+  }
+
+  /**
+   * Tests that more channels than fit in a single plane are rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testTooManyChannelsFail() throws Exception
+  {
+    new MultiChannelAccessor( createNarrowData(), new int[33] );
+  }
+
+  /**
+   * Creates a capture of eight channels.
+   */
+  private static AcquisitionResult createNarrowData()
+  {
+    return new CapturedData( new int[] { 0x00, 0x02, 0x06 }, new long[] { 0L, 1L, 2L }, 0L, 1000, 8, 0xFF, 2L );
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.api.data;
+
+
+import static org.junit.Assert.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link WideCapturedData}.
+ */
+public class WideCapturedDataTest
+{
+  // METHODS
+
+  /**
+   * Tests that a capture without any samples yields empty planes.
+   */
+  @Test
+  public void testCreateEmptyOk() throws Exception
+  {
+    final WideCapturedData data = new WideCapturedData( new long[0], new long[0], Ols.NOT_AVAILABLE, 1000, 64, -1L,
+        0L );
+
+    assertEquals( 2, data.getPlaneCount() );
+    assertEquals( 0, data.getValues( 0 ).length );
+    assertEquals( 0, data.getValues( 1 ).length );
+    assertEquals( 0, data.getTimestamps().length );
+    assertFalse( data.hasTriggerData() );
+  }
+
+  /**
+   * Tests that an invalid channel count is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testCreateWithTooManyChannelsFail() throws Exception
+  {
+    new WideCapturedData( new long[] { 0L }, new long[] { 0L }, 0L, 1000, Ols.MAX_WIDE_CHANNELS + 1, -1L, 1L );
+  }
+
+  /**
+   * Tests that a plane count that does not match the channel count is
+   * rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testCreateWithWrongPlaneCountFail() throws Exception
+  {
+    new WideCapturedData( new int[][] { { 0 } }, new long[] { 0L }, 0L, 1000, 40, -1L, 1L );
+  }
+
+  /**
+   * Tests that planes with a different length than the timestamps are
+   * rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testCreateWithWrongPlaneSizeFail() throws Exception
+  {
+    new WideCapturedData( new int[][] { { 0, 1 }, { 0 } }, new long[] { 0L, 1L }, 0L, 1000, 40, -1L, 2L );
+  }
+
+  /**
+   * Tests that 64-bit values are split into two planes of 32 channels.
+   */
+  @Test
+  public void testSplitIntoPlanesOk() throws Exception
+  {
+    final long[] values = { 0x0000000100000001L, 0x8000000000000002L, 0x00000000FFFFFFFFL };
+    final WideCapturedData data = new WideCapturedData( values, new long[] { 0L, 10L, 20L }, 10L, 1000, 64,
+        0xFFFFFFFFFFL, 20L );
+
+    assertEquals( 64, data.getChannels() );
+    assertEquals( 2, data.getPlaneCount() );
+    assertEquals( 0xFFFFFFFFFFL, data.getEnabledChannelMask() );
+    assertEquals( 0xFFFFFFFF, data.getEnabledChannels() );
+    assertEquals( 10L, data.getTriggerPosition() );
+    assertEquals( 20L, data.getAbsoluteLength() );
+    assertArrayEquals( new long[] { 0L, 10L, 20L }, data.getTimestamps() );
+    assertArrayEquals( new int[] { 0x00000001, 0x00000002, 0xFFFFFFFF }, data.getValues() );
+    assertArrayEquals( data.getValues(), data.getValues( 0 ) );
+    assertArrayEquals( new int[] { 0x00000001, 0x80000000, 0x00000000 }, data.getValues( 1 ) );
+
+    for ( int i = 0; i < values.length; i++ )
+    {
+      assertEquals( values[i], ChannelAccessor.getWideValue( data, i ) );
+    }
+  }
+
+  /**
+   * Tests that equal consecutive samples are only stored once, even if only
+   * the second plane changes, and that the absolute length is always
+   * present as last sample.
+   */
+  @Test
+  public void testCompressEqualSamplesOk() throws Exception
+  {
+    final int[][] planes = { { 1, 1, 1, 2 }, { 0, 0, 4, 4 } };
+    final AcquisitionResult data = new WideCapturedData( planes, new long[] { 0L, 1L, 2L, 3L }, 0L, 1000, 40,
+        -1L, 10L );
+
+    assertArrayEquals( new long[] { 0L, 2L, 3L, 10L }, data.getTimestamps() );
+    assertArrayEquals( new int[] { 1, 1, 2, 2 }, ChannelAccessor.getValues( data, 0 ) );
+    assertArrayEquals( new int[] { 0, 4, 4, 4 }, ChannelAccessor.getValues( data, 1 ) );
+    assertEquals( 10L, data.getAbsoluteLength() );
+    assertEquals( 1, data.getSampleIndex( 2L ) );
+  }
+}
@@ -0,0 +1,447 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.data.annotation.*;
+
+
+/**
+ * Provides a compact binary encoding of the annotations of channels.
+ * <p>
+ * The annotations of a single channel are encoded as a self-contained block,
+ * consisting of a table of all distinct annotation texts, followed by the
+ * annotations themselves. Each annotation is encoded as the difference between
+ * its start timestamp and that of the previous annotation, its length and the
+ * index of its text in the table, all as variable-length integers. For typical
+ * decoder output, this takes only a few bytes per annotation.
+ * </p>
+ * <p>
+ * Blocks are decoded lazily, allowing the annotations of a project to be
+ * loaded without creating a single annotation until they are actually used.
+ * </p>
+ */
+public final class AnnotationCodec
+{
+  // INNER TYPES
+
+  /**
+   * Provides a data annotation as decoded from a block.
+   */
+  static final class StoredAnnotation implements DataAnnotation<String>
+  {
+    // VARIABLES
+
+    private final int channelIdx;
+    private final long startTimestamp;
+    private final long endTimestamp;
+    private final String text;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new StoredAnnotation instance.
+     */
+    StoredAnnotation( final int aChannelIdx, final long aStartTimestamp, final long aEndTimestamp, final String aText )
+    {
+      this.channelIdx = aChannelIdx;
+      this.startTimestamp = aStartTimestamp;
+      this.endTimestamp = aEndTimestamp;
+      this.text = aText;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int compareTo( final Annotation<String> aOther )
+    {
+      int result = ( this.channelIdx - aOther.getChannel() );
+      if ( ( result == 0 ) && ( aOther instanceof DataAnnotation ) )
+      {
+        final DataAnnotation<?> dataAnnotation = ( DataAnnotation<?> )aOther;
+
+        result = compare( this.startTimestamp, dataAnnotation.getStartTimestamp() );
+        if ( result == 0 )
+        {
+          result = compare( this.endTimestamp, dataAnnotation.getEndTimestamp() );
+        }
+      }
+      if ( result == 0 )
+      {
+        result = this.text.compareTo( String.valueOf( aOther.getAnnotation() ) );
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getAnnotation()
+    {
+      return this.text;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannel()
+    {
+      return this.channelIdx;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEndTimestamp()
+    {
+      return this.endTimestamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getStartTimestamp()
+    {
+      return this.startTimestamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+      return this.text;
+    }
+
+    /**
+     * Compares two longs, like {@link Long#compareTo(Long)}.
+     */
+    private static int compare( final long aValue1, final long aValue2 )
+    {
+      return ( aValue1 < aValue2 ) ? -1 : ( ( aValue1 == aValue2 ) ? 0 : 1 );
+    }
+  }
+
+  // CONSTANTS
+
+  /** Magic number identifying a set of encoded blocks, "OLSA". */
+  private static final int MAGIC = 0x4f4c5341;
+  private static final int VERSION = 1;
+
+  private static final String CHARSET = "UTF-8";
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new AnnotationCodec instance, never used.
+   */
+  private AnnotationCodec()
+  {
+    // NO-op
+  }
+
+  // METHODS
+
+  /**
+   * Decodes a single block of annotations.
+   * 
+   * @param aChannelIdx
+   *          the index of the channel the annotations belong to;
+   * @param aBlock
+   *          the block to decode, cannot be <code>null</code>.
+   * @return the decoded annotations, never <code>null</code>.
+   * @throws IOException
+   *           in case the given block is corrupt.
+   */
+  public static List<Annotation<?>> decode( final int aChannelIdx, final byte[] aBlock ) throws IOException
+  {
+    final int[] pos = { 0 };
+
+    try
+    {
+      final String[] texts = new String[readSize( aBlock, pos )];
+      for ( int i = 0; i < texts.length; i++ )
+      {
+        final int length = readSize( aBlock, pos );
+        texts[i] = new String( aBlock, pos[0], length, CHARSET );
+        pos[0] += length;
+      }
+
+      final int count = readSize( aBlock, pos );
+      final List<Annotation<?>> result = new ArrayList<Annotation<?>>( count );
+
+      long startTimestamp = 0L;
+      for ( int i = 0; i < count; i++ )
+      {
+        startTimestamp += zigZagDecode( readVarLong( aBlock, pos ) );
+        final long endTimestamp = startTimestamp + zigZagDecode( readVarLong( aBlock, pos ) );
+        final String text = texts[readCount( aBlock, pos )];
+
+        result.add( new StoredAnnotation( aChannelIdx, startTimestamp, endTimestamp, text ) );
+      }
+      return result;
+    }
+    catch ( IndexOutOfBoundsException exception )
+    {
+      throw new IOException( "Corrupt annotations encountered!", exception );
+    }
+  }
+
+  /**
+   * Encodes the given annotations as a single block.
+   * <p>
+   * Only data annotations are encoded, as those are the only ones that are
+   * kept by channels.
+   * </p>
+   * 
+   * @param aAnnotations
+   *          the annotations to encode, cannot be <code>null</code>.
+   * @return the encoded block, or <code>null</code> if there are no data
+   *         annotations to encode.
+   */
+  public static byte[] encode( final Collection<Annotation<?>> aAnnotations )
+  {
+    final Map<String, Integer> textIndices = new LinkedHashMap<String, Integer>();
+    final ByteArrayOutputStream annotations = new ByteArrayOutputStream();
+
+    int count = 0;
+    long lastStartTimestamp = 0L;
+    for ( Annotation<?> annotation : aAnnotations )
+    {
+      if ( !( annotation instanceof DataAnnotation<?> ) )
+      {
+        continue;
+      }
+
+      final DataAnnotation<?> dataAnnotation = ( DataAnnotation<?> )annotation;
+      final long startTimestamp = dataAnnotation.getStartTimestamp();
+      final String text = String.valueOf( dataAnnotation.getAnnotation() );
+
+      Integer textIdx = textIndices.get( text );
+      if ( textIdx == null )
+      {
+        textIdx = Integer.valueOf( textIndices.size() );
+        textIndices.put( text, textIdx );
+      }
+
+      writeVarLong( annotations, zigZagEncode( startTimestamp - lastStartTimestamp ) );
+      writeVarLong( annotations, zigZagEncode( dataAnnotation.getEndTimestamp() - startTimestamp ) );
+      writeVarLong( annotations, textIdx.intValue() );
+
+      lastStartTimestamp = startTimestamp;
+      count++;
+    }
+
+    if ( count == 0 )
+    {
+      return null;
+    }
+
+    final ByteArrayOutputStream result = new ByteArrayOutputStream( annotations.size() + 16 * textIndices.size() );
+    writeVarLong( result, textIndices.size() );
+    for ( String text : textIndices.keySet() )
+    {
+      final byte[] bytes = getBytes( text );
+      writeVarLong( result, bytes.length );
+      result.write( bytes, 0, bytes.length );
+    }
+    writeVarLong( result, count );
+    result.write( annotations.toByteArray(), 0, annotations.size() );
+
+    return result.toByteArray();
+  }
+
+  /**
+   * Reads a set of blocks, as written by {@link #write(Map, OutputStream)}, from
+   * the given input stream.
+   * <p>
+   * The blocks themselves are not decoded.
+   * </p>
+   * 
+   * @param aInput
+   *          the input stream to read from, cannot be <code>null</code>.
+   * @return the blocks, per channel index, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or in case the input is corrupt.
+   */
+  public static Map<Integer, byte[]> read( final InputStream aInput ) throws IOException
+  {
+    final DataInputStream in = new DataInputStream( aInput );
+    if ( ( in.readInt() != MAGIC ) || ( in.readUnsignedByte() != VERSION ) )
+    {
+      throw new IOException( "Unsupported annotations encountered!" );
+    }
+
+    final Map<Integer, byte[]> result = new HashMap<Integer, byte[]>();
+
+    final int count = in.readInt();
+    for ( int i = 0; i < count; i++ )
+    {
+      final int channelIdx = in.readInt();
+      final int length = in.readInt();
+      if ( length < 0 )
+      {
+        throw new IOException( "Corrupt annotations encountered!" );
+      }
+
+      final byte[] block = new byte[length];
+      in.readFully( block );
+
+      result.put( Integer.valueOf( channelIdx ), block );
+    }
+    return result;
+  }
+
+  /**
+   * Writes the given set of blocks to the given output stream.
+   * 
+   * @param aBlocks
+   *          the blocks to write, per channel index, cannot be
+   *          <code>null</code>;
+   * @param aOutput
+   *          the output stream to write to, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public static void write( final Map<Integer, byte[]> aBlocks, final OutputStream aOutput ) throws IOException
+  {
+    final DataOutputStream out = new DataOutputStream( aOutput );
+    out.writeInt( MAGIC );
+    out.writeByte( VERSION );
+    out.writeInt( aBlocks.size() );
+    for ( Map.Entry<Integer, byte[]> entry : aBlocks.entrySet() )
+    {
+      final byte[] block = entry.getValue();
+
+      out.writeInt( entry.getKey().intValue() );
+      out.writeInt( block.length );
+      out.write( block );
+    }
+    out.flush();
+  }
+
+  /**
+   * Returns the UTF-8 representation of the given text.
+   */
+  private static byte[] getBytes( final String aText )
+  {
+    try
+    {
+      return aText.getBytes( CHARSET );
+    }
+    catch ( UnsupportedEncodingException exception )
+    {
+      // UTF-8 is always supported...
+      throw new RuntimeException( exception );
+    }
+  }
+
+  /**
+   * Reads a variable-length integer that is used as count or index.
+   */
+  private static int readCount( final byte[] aBlock, final int[] aPos ) throws IOException
+  {
+    final long value = readVarLong( aBlock, aPos );
+    if ( ( value < 0L ) || ( value > Integer.MAX_VALUE ) )
+    {
+      throw new IOException( "Corrupt annotations encountered!" );
+    }
+    return ( int )value;
+  }
+
+  /**
+   * Reads a variable-length integer that is used as the size of something
+   * that follows in the given block. As each item takes at least one byte, a
+   * size larger than the number of remaining bytes denotes a corrupt block;
+   * this is checked before anything is allocated for it.
+   */
+  private static int readSize( final byte[] aBlock, final int[] aPos ) throws IOException
+  {
+    final int value = readCount( aBlock, aPos );
+    if ( value > ( aBlock.length - aPos[0] ) )
+    {
+      throw new IOException( "Corrupt annotations encountered!" );
+    }
+    return value;
+  }
+
+  /**
+   * Reads a variable-length integer, 7 bits per byte, least significant bits
+   * first.
+   */
+  private static long readVarLong( final byte[] aBlock, final int[] aPos ) throws IOException
+  {
+    long result = 0L;
+    for ( int shift = 0; shift < 64; shift += 7 )
+    {
+      final int b = aBlock[aPos[0]++];
+      result |= ( long )( b & 0x7f ) << shift;
+      if ( ( b & 0x80 ) == 0 )
+      {
+        return result;
+      }
+    }
+    throw new IOException( "Corrupt annotations encountered!" );
+  }
+
+  /**
+   * Writes a variable-length integer, 7 bits per byte, least significant bits
+   * first.
+   */
+  private static void writeVarLong( final ByteArrayOutputStream aOutput, final long aValue )
+  {
+    long value = aValue;
+    while ( ( value & ~0x7fL ) != 0L )
+    {
+      aOutput.write( ( int )( ( value & 0x7f ) | 0x80 ) );
+      value >>>= 7;
+    }
+    aOutput.write( ( int )value );
+  }
+
+  /**
+   * Maps an unsigned value back onto a signed value.
+   */
+  private static long zigZagDecode( final long aValue )
+  {
+    return ( aValue >>> 1 ) ^ -( aValue & 1 );
+  }
+
+  /**
+   * Maps a signed value onto an unsigned value, keeping small negative values
+   * small.
+   */
+  private static long zigZagEncode( final long aValue )
+  {
+    return ( aValue << 1 ) ^ ( aValue >> 63 );
+  }
+}
@@ -22,9 +22,11 @@ package nl.lxtreme.ols.client.project.impl;
 
 
 import java.beans.*;
+import java.io.*;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.logging.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.data.*;
@@ -33,12 +35,18 @@ import nl.lxtreme.ols.api.data.annotation.*;
 
 /**
  * Denotes a channel with a label and a color.
+ * <p>
+ * Annotations read from a project are kept in their encoded form until they are
+ * first asked for, which typically is when the channel is first painted.
+ * </p>
  */
 public final class ChannelImpl implements Channel
 {
   // CONSTANTS
 
-  private static final int MAX_CHANNELS = Ols.MAX_CHANNELS;
+  private static final int MAX_CHANNELS = Ols.MAX_WIDE_CHANNELS;
+
+  private static final Logger LOG = Logger.getLogger( ChannelImpl.class.getName() );
 
   // VARIABLES
 
@@ -51,6 +59,10 @@ public final class ChannelImpl implements Channel
   private final List<Annotation<?>> annotations;
   private final PropertyChangeSupport propertyChangeSupport;
 
+  /** The encoded annotations that are not yet decoded. */
+  private volatile byte[] encodedAnnotations;
+  private volatile int annotationsModCount;
+
   // CONSTRUCTORS
 
   /**
@@ -79,7 +91,17 @@ public final class ChannelImpl implements Channel
     this.annotations = new CopyOnWriteArrayList<Annotation<?>>();
     if ( aRetainAnnotation )
     {
-      this.annotations.addAll( aChannel.getAnnotations() );
+      final byte[] encoded = ( aChannel instanceof ChannelImpl ) ? ( ( ChannelImpl )aChannel ).encodedAnnotations
+          : null;
+      if ( encoded != null )
+      {
+        // No need to decode them just yet...
+        this.encodedAnnotations = encoded;
+      }
+      else
+      {
+        this.annotations.addAll( aChannel.getAnnotations() );
+      }
     }
   }
 
@@ -99,7 +121,7 @@ public final class ChannelImpl implements Channel
     this.propertyChangeSupport = new PropertyChangeSupport( this );
 
     this.index = aChannelIdx;
-    this.mask = ( int )( 1L << aChannelIdx );
+    this.mask = ChannelAccessor.getMask( aChannelIdx );
     this.label = null;
     this.enabled = true;
 
@@ -116,7 +138,13 @@ public final class ChannelImpl implements Channel
   {
     if ( aAnnotation instanceof DataAnnotation )
     {
-      this.annotations.add( aAnnotation );
+      synchronized ( this.annotations )
+      {
+        decodeAnnotations();
+
+        this.annotations.add( aAnnotation );
+        this.annotationsModCount++;
+      }
     }
     else
     {
@@ -141,7 +169,12 @@ public final class ChannelImpl implements Channel
   @Override
   public void clearAnnotations()
   {
-    this.annotations.clear();
+    synchronized ( this.annotations )
+    {
+      this.encodedAnnotations = null;
+      this.annotations.clear();
+      this.annotationsModCount++;
+    }
   }
 
   /**
@@ -183,6 +216,8 @@ public final class ChannelImpl implements Channel
   @Override
   public Collection<Annotation<?>> getAnnotations()
   {
+    decodeAnnotations();
+
     return Collections.unmodifiableCollection( this.annotations );
   }
 
@@ -288,6 +323,90 @@ public final class ChannelImpl implements Channel
     return this.index + ": " + getLabel();
   }
 
+  /**
+   * Returns the annotations of this channel in their encoded form.
+   * <p>
+   * Annotations that are not decoded yet are returned as-is.
+   * </p>
+   * 
+   * @return the encoded annotations, or <code>null</code> if this channel has
+   *         no annotations.
+   * @see AnnotationCodec#encode(Collection)
+   */
+  final byte[] getEncodedAnnotations()
+  {
+    synchronized ( this.annotations )
+    {
+      final byte[] encoded = this.encodedAnnotations;
+      if ( encoded != null )
+      {
+        return encoded;
+      }
+      return AnnotationCodec.encode( this.annotations );
+    }
+  }
+
+  /**
+   * Returns the number of times the annotations of this channel are changed.
+   * 
+   * @return a modification count.
+   */
+  final int getAnnotationsModCount()
+  {
+    return this.annotationsModCount;
+  }
+
+  /**
+   * Replaces the annotations of this channel with the given encoded
+   * annotations, which are decoded when they are first asked for.
+   * 
+   * @param aEncoded
+   *          the encoded annotations, can be <code>null</code> to clear all
+   *          annotations.
+   * @see AnnotationCodec#decode(int, byte[])
+   */
+  final void setEncodedAnnotations( final byte[] aEncoded )
+  {
+    synchronized ( this.annotations )
+    {
+      this.annotations.clear();
+      this.encodedAnnotations = aEncoded;
+      this.annotationsModCount++;
+    }
+  }
+
+  /**
+   * Decodes the encoded annotations of this channel, if any.
+   */
+  private void decodeAnnotations()
+  {
+    if ( this.encodedAnnotations == null )
+    {
+      return;
+    }
+
+    synchronized ( this.annotations )
+    {
+      final byte[] encoded = this.encodedAnnotations;
+      if ( encoded != null )
+      {
+        try
+        {
+          // Add them all at once, as each addition copies the entire list...
+          this.annotations.addAll( AnnotationCodec.decode( this.index, encoded ) );
+        }
+        catch ( IOException exception )
+        {
+          LOG.log( Level.WARNING, "Failed to decode annotations of channel " + this.index + "!", exception );
+        }
+        finally
+        {
+          this.encodedAnnotations = null;
+        }
+      }
+    }
+  }
+
   /**
    * Crafts a default channel name for use when a channel has no label set.
    * 
@@ -37,7 +37,7 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
   // VARIABLES
 
   private final PropertyChangeSupport propertyChangeSupport;
-  private final AcquisitionResult capturedData;
+  private volatile AcquisitionResult capturedData;
   private final Cursor[] cursors;
 
   private final Channel[] channels;
@@ -59,7 +59,7 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
 
     this.capturedData = aCapturedData;
     this.cursorsEnabled = aOld.isCursorsEnabled();
-    this.channels = createChannels( aCapturedData.getChannels(), aCapturedData.getEnabledChannels(),
+    this.channels = createChannels( aCapturedData.getChannels(), ChannelAccessor.getEnabledChannelMask( aCapturedData ),
         aRetainAnnotations, aOld.getChannels() );
     this.cursors = createCursors( Ols.MAX_CURSORS, aOld.getCursors() );
   }
@@ -73,7 +73,7 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
 
     this.capturedData = null;
     this.cursors = createCursors( Ols.MAX_CURSORS );
-    this.channels = createChannels( Ols.MAX_CHANNELS, 0xFFFFFFFF, false /* aRetainAnnotations */);
+    this.channels = createChannels( Ols.MAX_CHANNELS, 0xFFFFFFFFL, false /* aRetainAnnotations */);
     this.cursorsEnabled = true;
   }
 
@@ -182,6 +182,31 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
     this.propertyChangeSupport.firePropertyChange( PROPERTY_CURSORS_ENABLED, old, aEnabled );
   }
 
+  /**
+   * Replaces the annotations of the channels with the given encoded
+   * annotations, which are decoded when they are first asked for.
+   * 
+   * @param aAnnotations
+   *          the encoded annotations, per channel index, can be
+   *          <code>null</code>.
+   * @see ChannelImpl#setEncodedAnnotations(byte[])
+   */
+  final void mergeChannelAnnotations( final Map<Integer, byte[]> aAnnotations )
+  {
+    if ( aAnnotations == null )
+    {
+      return;
+    }
+
+    for ( Channel channel : this.channels )
+    {
+      if ( channel instanceof ChannelImpl )
+      {
+        ( ( ChannelImpl )channel ).setEncodedAnnotations( aAnnotations.get( Integer.valueOf( channel.getIndex() ) ) );
+      }
+    }
+  }
+
   /**
    * Trims the channels to the same number as the captured data, using the
    * channel information of the given data set as template.
@@ -209,6 +234,19 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
     }
   }
 
+  /**
+   * Replaces the captured data of this data set, keeping its channels and
+   * cursors. The channel layout of the given data is assumed to be equal to
+   * that of the current data.
+   * 
+   * @param aCapturedData
+   *          the captured data to set, cannot be <code>null</code>.
+   */
+  final void setCapturedData( final AcquisitionResult aCapturedData )
+  {
+    this.capturedData = aCapturedData;
+  }
+
   /**
    * Creates an array of a given number of channels.
    * 
@@ -216,15 +254,15 @@ public class DataSetImpl implements PropertyChangeListener, DataSet, ProjectProp
    *          the number of channels to create, >= 0.
    * @return an array with channels, never <code>null</code>.
    */
-  private Channel[] createChannels( final int aCount, final int aMask, final boolean aRetainAnnotations,
+  private Channel[] createChannels( final int aCount, final long aMask, final boolean aRetainAnnotations,
       final Channel... aInitialValues )
   {
     final int chCount = ( this.capturedData == null ) ? aCount : this.capturedData.getChannels();
 
     Channel[] result = new Channel[aCount];
-    for ( int i = 0, j = 0; ( j < aCount ) && ( i < Ols.MAX_CHANNELS ); i++ )
+    for ( int i = 0, j = 0; ( j < aCount ) && ( i < Ols.MAX_WIDE_CHANNELS ); i++ )
     {
-      final int mask = ( 1 << i );
+      final long mask = ( 1L << i );
       // Issue #99: demultiplex the channels to the right group...
       if ( ( aMask & mask ) == 0 )
       {
@@ -28,17 +28,45 @@ import java.util.*;
 import java.util.logging.*;
 import java.util.regex.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
  * Helper class that is capable of reading & writing OLS data files.
+ * <p>
+ * Captures with more than 32 channels are written with 64-bit sample values;
+ * the sample values of all other captures are written as 32-bit values, as
+ * before.
+ * </p>
  */
 public final class OlsDataHelper
 {
+  // INNER TYPES
+
+  /**
+   * Provides a callback for the data that is read so far.
+   */
+  static interface PartialDataListener
+  {
+    /**
+     * Called periodically while reading data.
+     * 
+     * @param aDataSet
+     *          the data set with all data read so far, never <code>null</code>.
+     */
+    void partialDataRead( DataSetImpl aDataSet );
+  }
+
   // CONSTANTS
 
+  /** The number of samples after which we check whether to publish data. */
+  private static final int PARTIAL_CHECK_INTERVAL = 4096;
+  /** The minimal time (in ms) between two publications of partial data. */
+  private static final long PARTIAL_PUBLISH_INTERVAL = 500L;
+
   private static final Logger LOG = Logger.getLogger( OlsDataHelper.class.getName() );
 
   /** The regular expression used to parse an (OLS-datafile) instruction. */
@@ -58,18 +86,40 @@ public final class OlsDataHelper
    * @throws IOException
    *           in case of I/O problems.
    */
-  @SuppressWarnings( "boxing" )
   public static DataSetImpl read( final Reader aReader ) throws IOException
+  {
+    return read( aReader, null );
+  }
+
+  /**
+   * Reads the data from a given reader, periodically publishing the data read
+   * so far to the given listener.
+   * <p>
+   * Reading can be cancelled by interrupting the calling thread, in which case
+   * an {@link InterruptedIOException} is thrown.
+   * </p>
+   * 
+   * @param aReader
+   *          the reader to read the data from, cannot be <code>null</code>;
+   * @param aListener
+   *          the listener to publish the partially read data to, can be
+   *          <code>null</code>.
+   * @return the data set with all data read, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  @SuppressWarnings( "boxing" )
+  static DataSetImpl read( final Reader aReader, final PartialDataListener aListener ) throws IOException
   {
     int size = -1;
-    Integer rate = null, channels = null, enabledChannels = null;
+    Integer rate = null, channels = null;
+    Long enabledChannels = null;
     long triggerPos = -1L;
     long absLen = -1L;
 
     // assume 'new' file format is in use, don't support uncompressed ones...
     boolean compressed = true;
 
-    AcquisitionResult capturedData = null;
     DataSetImpl tempDataSet = new DataSetImpl();
 
     final BufferedReader br = new BufferedReader( aReader );
@@ -78,7 +128,13 @@ public final class OlsDataHelper
       LOG.info( "Parsing OLS captured data from stream..." );
     }
 
-    final List<String[]> dataValues = new ArrayList<String[]>();
+    int count = 0;
+    int[] values = new int[0];
+    int[] wideValues = null;
+    long[] timestamps = new long[0];
+
+    int publishedCount = 0;
+    long publishedTime = System.currentTimeMillis();
 
     String line;
     while ( ( line = br.readLine() ) != null )
@@ -89,8 +145,64 @@ public final class OlsDataHelper
 
       if ( dataMatcher.matches() )
       {
-        final String[] dataPair = new String[] { dataMatcher.group( 1 ), dataMatcher.group( 2 ) };
-        dataValues.add( dataPair );
+        if ( count == timestamps.length )
+        {
+          // Use the announced size (if any) to avoid excessive copying...
+          final int newLength = Math.max( ( count < size ) ? size : 0, Math.max( 1024, 2 * count ) );
+          values = Arrays.copyOf( values, newLength );
+          timestamps = Arrays.copyOf( timestamps, newLength );
+          if ( wideValues != null )
+          {
+            wideValues = Arrays.copyOf( wideValues, newLength );
+          }
+        }
+
+        try
+        {
+          final String value = dataMatcher.group( 1 );
+          final int split = Math.max( 0, value.length() - 8 );
+
+          values[count] = ( int )Long.parseLong( value.substring( split ), 16 );
+          if ( split > 0 )
+          {
+            if ( wideValues == null )
+            {
+              wideValues = new int[values.length];
+            }
+            wideValues[count] = ( int )Long.parseLong( value.substring( 0, split ), 16 );
+          }
+          timestamps[count] = Long.parseLong( dataMatcher.group( 2 ), 10 ) & Long.MAX_VALUE;
+        }
+        catch ( final NumberFormatException exception )
+        {
+          throw new IOException( "Invalid data encountered.", exception );
+        }
+        count++;
+
+        if ( ( count % PARTIAL_CHECK_INTERVAL ) == 0 )
+        {
+          if ( Thread.currentThread().isInterrupted() )
+          {
+            throw new InterruptedIOException( "Reading data interrupted!" );
+          }
+
+          // Publish the data read so far, but only if a substantial amount of
+          // new data is read, to bound the amount of copying...
+          final long now = System.currentTimeMillis();
+          if ( ( aListener != null ) && compressed && ( rate != null ) && isValidChannelCount( channels )
+              && ( ( now - publishedTime ) >= PARTIAL_PUBLISH_INTERVAL ) && ( count >= ( publishedCount * 5L ) / 4 ) )
+          {
+            final long lastTimestamp = timestamps[count - 1];
+            final AcquisitionResult partialData = createCapturedData( values, wideValues, timestamps, count,
+                ( triggerPos <= lastTimestamp ) ? triggerPos : -1L, rate, channels, enabledChannels,
+                lastTimestamp + 1L );
+
+            aListener.partialDataRead( new DataSetImpl( partialData, tempDataSet, false /* aRetainAnnotations */) );
+
+            publishedCount = count;
+            publishedTime = now;
+          }
+        }
       }
       else if ( instructionMatcher.matches() )
       {
@@ -116,7 +228,7 @@ public final class OlsDataHelper
         }
         else if ( "EnabledChannels".equals( instrKey ) )
         {
-          enabledChannels = safeParseInt( instrValue );
+          enabledChannels = Long.valueOf( safeParseLong( instrValue ) );
         }
         else if ( "CursorEnabled".equals( instrKey ) )
         {
@@ -160,7 +272,7 @@ public final class OlsDataHelper
 
     // Perform some sanity checks, make it not possible to import invalid
     // data...
-    if ( dataValues.isEmpty() )
+    if ( count == 0 )
     {
       throw new IOException( "Data file does not contain any sample data!" );
     }
@@ -172,9 +284,9 @@ public final class OlsDataHelper
     // take the length of the data values as size indicator...
     if ( size < 0 )
     {
-      size = dataValues.size();
+      size = count;
     }
-    if ( size != dataValues.size() )
+    if ( size != count )
     {
       throw new IOException( "Data file is corrupt?! Data size does not match sample count!" );
     }
@@ -182,37 +294,14 @@ public final class OlsDataHelper
     {
       throw new IOException( "Data file is corrupt?! Sample rate is not provided!" );
     }
-    if ( ( channels == null ) || ( channels <= 0 ) || ( channels > 32 ) )
+    if ( !isValidChannelCount( channels ) )
     {
       throw new IOException( "Data file is corrupt?! Channel count is not provided!" );
     }
-    // Make sure the enabled channels are defined; if not defined, all channels
-    // are enabled...
-    if ( enabledChannels == null )
-    {
-      enabledChannels = -1; // = 0xffffffff
-    }
-
-    int[] values = new int[size];
-    long[] timestamps = new long[size];
-
-    try
-    {
-      for ( int i = 0; i < size; i++ )
-      {
-        final String[] dataPair = dataValues.get( i );
-
-        values[i] = ( int )Long.parseLong( dataPair[0], 16 );
-        timestamps[i] = Long.parseLong( dataPair[1], 10 ) & Long.MAX_VALUE;
-      }
-    }
-    catch ( final NumberFormatException exception )
-    {
-      throw new IOException( "Invalid data encountered.", exception );
-    }
 
     // Finally set the captured data, and notify all event listeners...
-    capturedData = new CapturedData( values, timestamps, triggerPos, rate, channels, enabledChannels, absLen );
+    final AcquisitionResult capturedData = createCapturedData( values, wideValues, timestamps, count, triggerPos,
+        rate, channels, enabledChannels, absLen );
 
     return new DataSetImpl( capturedData, tempDataSet, false /* aRetainAnnotations */);
   }
@@ -229,6 +318,29 @@ public final class OlsDataHelper
    *           in case of I/O problems.
    */
   public static void write( final DataSet aDataSet, final Writer aWriter ) throws IOException
+  {
+    write( aDataSet, aWriter, null );
+  }
+
+  /**
+   * Writes the data to the given writer, reporting the progress to the given
+   * listener.
+   * <p>
+   * Writing can be cancelled by interrupting the calling thread, in which case
+   * an {@link InterruptedIOException} is thrown.
+   * </p>
+   * 
+   * @param aDataSet
+   *          the data set to write, cannot be <code>null</code>;
+   * @param aWriter
+   *          the writer to write the data to, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public static void write( final DataSet aDataSet, final Writer aWriter, final TaskProgressListener aProgressListener )
+      throws IOException
   {
     final BufferedWriter bw = new BufferedWriter( aWriter );
 
@@ -241,6 +353,7 @@ public final class OlsDataHelper
     {
       final int[] values = capturedData.getValues();
       final long[] timestamps = capturedData.getTimestamps();
+      final boolean wide = capturedData.getChannels() > Ols.CHANNELS_PER_PLANE;
 
       bw.write( ";Size: " );
       bw.write( Integer.toString( values.length ) );
@@ -255,7 +368,14 @@ public final class OlsDataHelper
       bw.newLine();
 
       bw.write( ";EnabledChannels: " );
-      bw.write( Integer.toString( capturedData.getEnabledChannels() ) );
+      if ( wide )
+      {
+        bw.write( Long.toString( ChannelAccessor.getEnabledChannelMask( capturedData ) ) );
+      }
+      else
+      {
+        bw.write( Integer.toString( capturedData.getEnabledChannels() ) );
+      }
       bw.newLine();
 
       if ( capturedData.hasTriggerData() )
@@ -286,9 +406,25 @@ public final class OlsDataHelper
           bw.newLine();
         }
       }
+      // Report the progress (and check for cancellation) once per percent...
+      final int step = Math.max( 1, values.length / 100 );
+
+      final int[] wideValues = wide ? ChannelAccessor.getValues( capturedData, 1 ) : null;
       for ( int i = 0; i < values.length; i++ )
       {
-        bw.write( formatSample( values[i], timestamps[i] ) );
+        if ( ( i % step ) == 0 )
+        {
+          reportProgress( aProgressListener, i, values.length );
+        }
+
+        if ( wide )
+        {
+          bw.write( formatWideSample( wideValues[i], values[i], timestamps[i] ) );
+        }
+        else
+        {
+          bw.write( formatSample( values[i], timestamps[i] ) );
+        }
         bw.newLine();
       }
     }
@@ -298,6 +434,64 @@ public final class OlsDataHelper
     }
   }
 
+  /**
+   * Creates the captured data for the first given number of samples.
+   */
+  private static AcquisitionResult createCapturedData( final int[] aValues, final int[] aWideValues,
+      final long[] aTimestamps, final int aCount, final long aTriggerPos, final int aRate, final int aChannels,
+      final Long aEnabledChannels, final long aAbsLen )
+  {
+    // Make sure the enabled channels are defined; if not defined, all channels
+    // are enabled...
+    final long enabledChannels = ( aEnabledChannels == null ) ? -1L /* = 0xffffffffffffffff */: aEnabledChannels
+        .longValue();
+
+    // Partial data is copied, as the arrays are still being filled...
+    final int[] values = ( aCount == aValues.length ) ? aValues : Arrays.copyOf( aValues, aCount );
+    final long[] timestamps = ( aCount == aTimestamps.length ) ? aTimestamps : Arrays.copyOf( aTimestamps, aCount );
+
+    if ( aChannels > Ols.CHANNELS_PER_PLANE )
+    {
+      int[] wideValues = aWideValues;
+      if ( wideValues == null )
+      {
+        wideValues = new int[aCount];
+      }
+      else if ( aCount != wideValues.length )
+      {
+        wideValues = Arrays.copyOf( wideValues, aCount );
+      }
+      return new WideCapturedData( new int[][] { values, wideValues }, timestamps, aTriggerPos, aRate, aChannels,
+          enabledChannels, aAbsLen );
+    }
+    return new CapturedData( values, timestamps, aTriggerPos, aRate, aChannels, ( int )enabledChannels, aAbsLen );
+  }
+
+  /**
+   * Returns whether the given channel count is valid.
+   */
+  private static boolean isValidChannelCount( final Integer aChannels )
+  {
+    return ( aChannels != null ) && ( aChannels.intValue() > 0 ) && ( aChannels.intValue() <= Ols.MAX_WIDE_CHANNELS );
+  }
+
+  /**
+   * Reports the progress of writing the given number of samples, and bails
+   * out if the calling thread is interrupted.
+   */
+  private static void reportProgress( final TaskProgressListener aListener, final int aIndex, final int aCount )
+      throws InterruptedIOException
+  {
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedIOException( "Writing data interrupted!" );
+    }
+    if ( aListener != null )
+    {
+      aListener.setProgress( ( int )( ( aIndex * 100L ) / aCount ) );
+    }
+  }
+
   /**
    * Formats the given value and timestamp into a single sample string.
    * 
@@ -315,4 +509,22 @@ public final class OlsDataHelper
     // can be negative (it is a relative timestamp!)...
     return String.format( "%08x@%d", aValue, ( aTimestamp & Long.MAX_VALUE ) );
   }
+
+  /**
+   * Formats the given 64-bit value and timestamp into a single sample string.
+   * 
+   * @param aHighValue
+   *          the upper 32 bits of the sample value to format;
+   * @param aLowValue
+   *          the lower 32 bits of the sample value to format;
+   * @param aTimestamp
+   *          the timestamp to format.
+   * @return the sample string, in the form of
+   *         &lt;value<sub>16</sub>&gt;@&lt;timestamp<sub>10</sub>&gt;.
+   */
+  @SuppressWarnings( "boxing" )
+  static String formatWideSample( final int aHighValue, final int aLowValue, final long aTimestamp )
+  {
+    return String.format( "%08x%08x@%d", aHighValue, aLowValue, ( aTimestamp & Long.MAX_VALUE ) );
+  }
 }
@@ -30,6 +30,7 @@ import javax.swing.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
 
 
@@ -47,9 +48,10 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   private final PropertyChangeSupport propertyChangeSupport;
   private final Map<String, UserSettings> settings;
 
-  private DataSetImpl dataSet;
+  private volatile DataSetImpl dataSet;
   private String name;
   private boolean changed;
+  private int changeCount;
   private Date lastModified;
   private String sourceVersion;
   private File filename;
@@ -82,6 +84,28 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     this.propertyChangeSupport.addPropertyChangeListener( aListener );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void appendCapturedData( final AcquisitionResult aCapturedData )
+  {
+    final DataSetImpl current = this.dataSet;
+    if ( !isSameLayout( current.getCapturedData(), aCapturedData ) )
+    {
+      // Channel layout changed, so the data set must be rebuilt...
+      setCapturedData( aCapturedData );
+      return;
+    }
+
+    current.setCapturedData( aCapturedData );
+
+    this.propertyChangeSupport.firePropertyChange( PROPERTY_CAPTURED_DATA_APPENDED, null, current );
+
+    // Mark this project as modified...
+    setChanged( true );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -148,7 +172,10 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   @Override
   public boolean isChanged()
   {
-    return this.changed;
+    synchronized ( this )
+    {
+      return this.changed;
+    }
   }
 
   /**
@@ -207,8 +234,16 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
   @Override
   public void setChanged( final boolean aChanged )
   {
-    final boolean old = this.changed;
-    this.changed = aChanged;
+    final boolean old;
+    synchronized ( this )
+    {
+      old = this.changed;
+      this.changed = aChanged;
+      if ( aChanged )
+      {
+        this.changeCount++;
+      }
+    }
 
     this.propertyChangeSupport.firePropertyChange( PROPERTY_CHANGED, old, aChanged );
   }
@@ -323,6 +358,47 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     OlsDataHelper.write( this.dataSet, aWriter );
   }
 
+  /**
+   * Marks this project as no longer changed, but only if it is not changed
+   * since the given change count was obtained. This allows a background save
+   * to leave changes made during that save marked as changed.
+   * 
+   * @param aChangeCount
+   *          the change count, as returned by {@link #getChangeCount()} at the
+   *          start of the save.
+   * @return <code>true</code> if this project is marked as unchanged,
+   *         <code>false</code> if it is changed in the meantime.
+   */
+  final boolean clearChanged( final int aChangeCount )
+  {
+    final boolean old;
+    synchronized ( this )
+    {
+      if ( this.changeCount != aChangeCount )
+      {
+        return false;
+      }
+      old = this.changed;
+      this.changed = false;
+    }
+
+    this.propertyChangeSupport.firePropertyChange( PROPERTY_CHANGED, old, false );
+    return true;
+  }
+
+  /**
+   * Returns the number of times this project is marked as changed.
+   * 
+   * @return a change count, which only is to be compared for equality.
+   */
+  final int getChangeCount()
+  {
+    synchronized ( this )
+    {
+      return this.changeCount;
+    }
+  }
+
   /**
    * Returns the current set of property change listeners.
    * 
@@ -333,6 +409,38 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     return this.propertyChangeSupport.getPropertyChangeListeners();
   }
 
+  /**
+   * Replaces the data set, but only if it is not replaced by someone else in
+   * the meantime. This allows a project being loaded in the background to
+   * leave newer captured data (e.g., from an acquisition) alone.
+   * 
+   * @param aExpected
+   *          the data set that is expected to be the current one;
+   * @param aDataSet
+   *          the data set to set, cannot be <code>null</code>.
+   * @return <code>true</code> if the data set is replaced, <code>false</code>
+   *         if the current data set is not the expected one.
+   */
+  final boolean replaceDataSet( final DataSetImpl aExpected, final DataSetImpl aDataSet )
+  {
+    if ( aDataSet == null )
+    {
+      throw new IllegalArgumentException();
+    }
+
+    synchronized ( this )
+    {
+      if ( this.dataSet != aExpected )
+      {
+        return false;
+      }
+      this.dataSet = aDataSet;
+    }
+
+    dataSetReplaced( aExpected, aDataSet );
+    return true;
+  }
+
   /**
    * Sets the data set in a single shot.
    * 
@@ -345,17 +453,55 @@ public final class ProjectImpl implements Project, ProjectProperties, PropertyCh
     {
       throw new IllegalArgumentException();
     }
-    if ( this.dataSet != null )
+
+    final DataSetImpl old;
+    synchronized ( this )
     {
-      this.dataSet.removePropertyChangeListener( this );
+      old = this.dataSet;
+      this.dataSet = aDataSet;
     }
 
-    final DataSetImpl old = this.dataSet;
+    dataSetReplaced( old, aDataSet );
+  }
 
-    this.dataSet = aDataSet;
+  /**
+   * Moves our listener from the old to the new data set and notifies all
+   * listeners about the replaced data set.
+   * 
+   * @param aOld
+   *          the old data set, can be <code>null</code>;
+   * @param aNew
+   *          the new data set, cannot be <code>null</code>.
+   */
+  private void dataSetReplaced( final DataSetImpl aOld, final DataSetImpl aNew )
+  {
+    if ( aOld != null )
+    {
+      aOld.removePropertyChangeListener( this );
+    }
+    aNew.addPropertyChangeListener( this );
 
-    this.dataSet.addPropertyChangeListener( this );
+    this.propertyChangeSupport.firePropertyChange( PROPERTY_CAPTURED_DATA, aOld, aNew );
+  }
 
-    this.propertyChangeSupport.firePropertyChange( PROPERTY_CAPTURED_DATA, old, this.dataSet );
+  /**
+   * Returns whether the given captured data have the same channel layout, and
+   * can be shown in the same view.
+   * 
+   * @param aOld
+   *          the current captured data, can be <code>null</code>;
+   * @param aNew
+   *          the new captured data, can be <code>null</code>.
+   * @return <code>true</code> if the channel layout is the same,
+   *         <code>false</code> otherwise.
+   */
+  private boolean isSameLayout( final AcquisitionResult aOld, final AcquisitionResult aNew )
+  {
+    if ( ( aOld == null ) || ( aNew == null ) )
+    {
+      return false;
+    }
+    return ( aOld.getChannels() == aNew.getChannels() ) && ( aOld.hasTimingData() == aNew.hasTimingData() )
+        && ( ChannelAccessor.getEnabledChannelMask( aOld ) == ChannelAccessor.getEnabledChannelMask( aNew ) );
   }
 }
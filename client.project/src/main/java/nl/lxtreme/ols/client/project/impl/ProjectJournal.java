@@ -0,0 +1,700 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides an append-only journal of the changes made to a project since it was
+ * last saved in full.
+ * <p>
+ * The journal is kept in a file next to its project file, and consists of
+ * batches of records, each of which is enclosed by a begin and a commit
+ * record. A batch that is not committed, for example, because the client crashed while
+ * writing it, is ignored when the journal is replayed. As the journal is bound
+ * to the length and last modification time of its project file, a journal
+ * that is left behind after its project file is rewritten is never replayed.
+ * </p>
+ */
+public final class ProjectJournal
+{
+  // INNER TYPES
+
+  /**
+   * Provides a snapshot of those parts of a project that are journalled.
+   */
+  static final class Snapshot
+  {
+    // VARIABLES
+
+    private final Project project;
+    private final DataSet dataSet;
+    private final String name;
+    private final boolean cursorsEnabled;
+    private final Long[] cursors;
+    private final Map<Integer, String> channelLabels;
+    private final Map<Integer, Integer> channelAnnotations;
+    private final Map<String, Map<String, String>> settings;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Snapshot instance.
+     * 
+     * @param aProject
+     *          the project to take a snapshot of, cannot be <code>null</code>.
+     */
+    Snapshot( final Project aProject )
+    {
+      final DataSet dataSet = aProject.getDataSet();
+
+      this.project = aProject;
+      this.dataSet = dataSet;
+      this.name = aProject.getName();
+      this.cursorsEnabled = dataSet.isCursorsEnabled();
+
+      final Cursor[] projectCursors = dataSet.getCursors();
+      this.cursors = new Long[projectCursors.length];
+      for ( int i = 0; i < projectCursors.length; i++ )
+      {
+        final Cursor cursor = projectCursors[i];
+        this.cursors[i] = cursor.isDefined() ? Long.valueOf( cursor.getTimestamp() ) : null;
+      }
+
+      this.channelLabels = new TreeMap<Integer, String>();
+      this.channelAnnotations = new TreeMap<Integer, Integer>();
+      for ( Channel channel : dataSet.getChannels() )
+      {
+        if ( channel != null )
+        {
+          final Integer index = Integer.valueOf( channel.getIndex() );
+          // Use the same convention as the channel labels in the project...
+          this.channelLabels.put( index, channel.hasName() ? channel.getLabel() : "" );
+          if ( channel instanceof ChannelImpl )
+          {
+            // Only track whether the annotations changed, not the (possibly
+            // many) annotations themselves...
+            final int modCount = ( ( ChannelImpl )channel ).getAnnotationsModCount();
+            this.channelAnnotations.put( index, Integer.valueOf( modCount ) );
+          }
+        }
+      }
+
+      this.settings = new TreeMap<String, Map<String, String>>();
+      aProject.visit( new ProjectVisitor()
+      {
+        @Override
+        public void visit( final UserSettings aSettings )
+        {
+          final Map<String, String> values = new TreeMap<String, String>();
+          for ( Map.Entry<String, Object> entry : aSettings )
+          {
+            values.put( entry.getKey(), String.valueOf( entry.getValue() ) );
+          }
+          Snapshot.this.settings.put( aSettings.getName(), values );
+        }
+      } );
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether the changes made to a project since this snapshot up to
+     * the given snapshot can be journalled, which is only the case if it is
+     * the same project with the same data set, and thus the same captured
+     * data.
+     * 
+     * @param aState
+     *          the later snapshot to test, cannot be <code>null</code>.
+     * @return <code>true</code> if the changes made to the project can be
+     *         journalled, <code>false</code> if the project is to be saved in
+     *         full.
+     */
+    boolean isJournallable( final Snapshot aState )
+    {
+      return ( this.project == aState.project ) && ( this.dataSet == aState.dataSet );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( ProjectJournal.class.getName() );
+
+  private static final String JOURNAL_SUFFIX = ".journal";
+  private static final String CHARSET = "UTF-8";
+
+  private static final String RECORD_HEADER = "OLS-journal";
+  private static final String RECORD_BEGIN = "begin";
+  private static final String RECORD_NAME = "name";
+  private static final String RECORD_CURSORS_ENABLED = "cursorsEnabled";
+  private static final String RECORD_CURSOR = "cursor";
+  private static final String RECORD_CHANNEL_LABEL = "channelLabel";
+  private static final String RECORD_CHANNEL_ANNOTATIONS = "channelAnnotations";
+  private static final String RECORD_SETTING = "setting";
+  private static final String RECORD_SETTING_REMOVED = "settingRemoved";
+  private static final String RECORD_COMMIT = "commit";
+
+  private static final String VERSION = "1";
+
+  // VARIABLES
+
+  private final File projectFile;
+  private final File file;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ProjectJournal instance.
+   * 
+   * @param aProjectFile
+   *          the project file to create the journal for, cannot be
+   *          <code>null</code>.
+   */
+  public ProjectJournal( final File aProjectFile )
+  {
+    if ( aProjectFile == null )
+    {
+      throw new IllegalArgumentException( "Project file cannot be null!" );
+    }
+
+    this.projectFile = aProjectFile;
+    this.file = new File( aProjectFile.getPath().concat( JOURNAL_SUFFIX ) );
+  }
+
+  // METHODS
+
+  /**
+   * Appends the differences between the two given snapshots as a single batch
+   * to this journal.
+   * <p>
+   * In case this journal does not exist yet, or belongs to another version of
+   * its project file, it is started anew. The batch is synchronised to disk
+   * before this method returns.
+   * </p>
+   * 
+   * @param aBase
+   *          the snapshot of the project as it is saved so far, cannot be
+   *          <code>null</code>;
+   * @param aCurrent
+   *          the snapshot of the project as it is to be saved, cannot be
+   *          <code>null</code>.
+   * @return the number of records appended, >= 0.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public int append( final Snapshot aBase, final Snapshot aCurrent ) throws IOException
+  {
+    final List<String[]> records = diff( aBase, aCurrent );
+    if ( records.isEmpty() )
+    {
+      return 0;
+    }
+
+    final boolean bound = isBoundToProjectFile();
+
+    final FileOutputStream fos = new FileOutputStream( this.file, bound /* append */);
+    try
+    {
+      final Writer writer = new BufferedWriter( new OutputStreamWriter( fos, CHARSET ) );
+      if ( bound )
+      {
+        // Terminate a record that might be left incomplete by a crash...
+        writer.write( '\n' );
+      }
+      else
+      {
+        writeRecord( writer, RECORD_HEADER, VERSION, Long.toString( this.projectFile.length() ),
+            Long.toString( this.projectFile.lastModified() ) );
+      }
+      writeRecord( writer, RECORD_BEGIN );
+      for ( String[] record : records )
+      {
+        writeRecord( writer, record );
+      }
+      writeRecord( writer, RECORD_COMMIT, Long.toString( System.currentTimeMillis() ) );
+      writer.flush();
+
+      // Make sure the batch survives a crash of the client...
+      fos.getFD().sync();
+    }
+    finally
+    {
+      HostUtils.closeResource( fos );
+    }
+
+    return records.size();
+  }
+
+  /**
+   * Deletes this journal, if it exists.
+   * 
+   * @return <code>true</code> if this journal no longer exists,
+   *         <code>false</code> if it could not be deleted.
+   */
+  public boolean delete()
+  {
+    if ( !this.file.exists() || this.file.delete() )
+    {
+      return true;
+    }
+
+    LOG.log( Level.WARNING, "Failed to delete project journal {0}!", this.file );
+    return false;
+  }
+
+  /**
+   * Returns the file of this journal.
+   * 
+   * @return the journal file, never <code>null</code>.
+   */
+  public File getFile()
+  {
+    return this.file;
+  }
+
+  /**
+   * Returns the size of this journal.
+   * 
+   * @return the size of this journal (in bytes), or 0 if it does not exist.
+   */
+  public long length()
+  {
+    return this.file.length();
+  }
+
+  /**
+   * Replays all committed batches of this journal onto the given project.
+   * <p>
+   * In case this journal does not exist, or belongs to another version of its
+   * project file, this method does nothing.
+   * </p>
+   * 
+   * @param aProject
+   *          the project to replay this journal onto, cannot be
+   *          <code>null</code>.
+   * @return the number of replayed batches, >= 0.
+   * @throws IOException
+   *           in case of I/O problems, or in case this journal is corrupt.
+   */
+  public int replay( final ProjectImpl aProject ) throws IOException
+  {
+    if ( !isBoundToProjectFile() )
+    {
+      if ( this.file.exists() )
+      {
+        LOG.log( Level.INFO, "Ignoring outdated project journal {0}...", this.file );
+      }
+      return 0;
+    }
+
+    final BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( this.file ),
+        CHARSET ) );
+
+    int batches = 0;
+    try
+    {
+      // Skip the header...
+      reader.readLine();
+
+      final List<String[]> batch = new ArrayList<String[]>();
+
+      String line;
+      int lineNo = 1;
+      while ( ( line = reader.readLine() ) != null )
+      {
+        lineNo++;
+        if ( "".equals( line ) )
+        {
+          continue;
+        }
+
+        final String[] record = parseRecord( line );
+        if ( RECORD_BEGIN.equals( record[0] ) )
+        {
+          if ( !batch.isEmpty() )
+          {
+            LOG.log( Level.WARNING, "Ignoring uncommitted changes in project journal {0}...", this.file );
+          }
+          batch.clear();
+        }
+        else if ( RECORD_COMMIT.equals( record[0] ) )
+        {
+          try
+          {
+            apply( aProject, batch );
+          }
+          catch ( RuntimeException exception )
+          {
+            throw new IOException( "Corrupt project journal at line " + lineNo + "!", exception );
+          }
+
+          batch.clear();
+          batches++;
+        }
+        else
+        {
+          batch.add( record );
+        }
+      }
+
+      if ( !batch.isEmpty() )
+      {
+        LOG.log( Level.WARNING, "Ignoring uncommitted changes in project journal {0}...", this.file );
+      }
+    }
+    finally
+    {
+      HostUtils.closeResource( reader );
+    }
+
+    return batches;
+  }
+
+  /**
+   * Applies the given records onto the given project.
+   */
+  private static void apply( final ProjectImpl aProject, final List<String[]> aRecords )
+  {
+    final DataSetImpl dataSet = aProject.getDataSet();
+
+    for ( String[] record : aRecords )
+    {
+      final String type = record[0];
+      if ( RECORD_NAME.equals( type ) )
+      {
+        aProject.setName( record.length > 1 ? record[1] : null );
+      }
+      else if ( RECORD_CURSORS_ENABLED.equals( type ) )
+      {
+        dataSet.setCursorsEnabled( Boolean.parseBoolean( record[1] ) );
+      }
+      else if ( RECORD_CURSOR.equals( type ) )
+      {
+        final Cursor cursor = dataSet.getCursor( Integer.parseInt( record[1] ) );
+        if ( record.length > 2 )
+        {
+          cursor.setTimestamp( Long.parseLong( record[2] ) );
+        }
+        else
+        {
+          cursor.clear();
+        }
+      }
+      else if ( RECORD_CHANNEL_LABEL.equals( type ) )
+      {
+        final int index = Integer.parseInt( record[1] );
+        for ( Channel channel : dataSet.getChannels() )
+        {
+          if ( ( channel != null ) && ( channel.getIndex() == index ) )
+          {
+            channel.setLabel( record[2] );
+          }
+        }
+      }
+      else if ( RECORD_CHANNEL_ANNOTATIONS.equals( type ) )
+      {
+        final int index = Integer.parseInt( record[1] );
+        final byte[] encoded = ( record.length > 2 ) ? parseHex( record[2] ) : null;
+        for ( Channel channel : dataSet.getChannels() )
+        {
+          if ( ( channel instanceof ChannelImpl ) && ( channel.getIndex() == index ) )
+          {
+            // Decoded when they are first asked for...
+            ( ( ChannelImpl )channel ).setEncodedAnnotations( encoded );
+          }
+        }
+      }
+      else if ( RECORD_SETTING.equals( type ) )
+      {
+        aProject.getSettings( record[1] ).put( record[2], record[3] );
+      }
+      else if ( RECORD_SETTING_REMOVED.equals( type ) )
+      {
+        final UserSettings settings = aProject.getSettings( record[1] );
+        if ( settings instanceof UserSettingsImpl )
+        {
+          ( ( UserSettingsImpl )settings ).delete( record[2] );
+        }
+      }
+      else
+      {
+        // Written by a newer client; ignore it like unknown project entries...
+        LOG.log( Level.FINE, "Ignoring unknown journal record: {0}", type );
+      }
+    }
+  }
+
+  /**
+   * Returns the records describing the differences between the two given
+   * snapshots.
+   */
+  private static List<String[]> diff( final Snapshot aBase, final Snapshot aCurrent )
+  {
+    final List<String[]> result = new ArrayList<String[]>();
+
+    if ( !equals( aBase.name, aCurrent.name ) )
+    {
+      result.add( ( aCurrent.name == null ) ? new String[] { RECORD_NAME } : new String[] { RECORD_NAME,
+          aCurrent.name } );
+    }
+
+    if ( aBase.cursorsEnabled != aCurrent.cursorsEnabled )
+    {
+      result.add( new String[] { RECORD_CURSORS_ENABLED, Boolean.toString( aCurrent.cursorsEnabled ) } );
+    }
+
+    for ( int i = 0; i < aCurrent.cursors.length; i++ )
+    {
+      final Long timestamp = aCurrent.cursors[i];
+      if ( !equals( ( i < aBase.cursors.length ) ? aBase.cursors[i] : null, timestamp ) )
+      {
+        final String index = Integer.toString( i );
+        result.add( ( timestamp == null ) ? new String[] { RECORD_CURSOR, index } : new String[] { RECORD_CURSOR,
+            index, timestamp.toString() } );
+      }
+    }
+
+    for ( Map.Entry<Integer, String> entry : aCurrent.channelLabels.entrySet() )
+    {
+      if ( !equals( aBase.channelLabels.get( entry.getKey() ), entry.getValue() ) )
+      {
+        result.add( new String[] { RECORD_CHANNEL_LABEL, entry.getKey().toString(), entry.getValue() } );
+      }
+    }
+
+    for ( Map.Entry<Integer, Integer> entry : aCurrent.channelAnnotations.entrySet() )
+    {
+      if ( !equals( aBase.channelAnnotations.get( entry.getKey() ), entry.getValue() ) )
+      {
+        final String index = entry.getKey().toString();
+        final byte[] encoded = getEncodedAnnotations( aCurrent.dataSet, entry.getKey().intValue() );
+        // Record the entire batch of annotations of the channel...
+        result.add( ( encoded == null ) ? new String[] { RECORD_CHANNEL_ANNOTATIONS, index } : new String[] {
+            RECORD_CHANNEL_ANNOTATIONS, index, toHex( encoded ) } );
+      }
+    }
+
+    for ( Map.Entry<String, Map<String, String>> entry : aCurrent.settings.entrySet() )
+    {
+      final String name = entry.getKey();
+      final Map<String, String> values = entry.getValue();
+
+      Map<String, String> baseValues = aBase.settings.get( name );
+      if ( baseValues == null )
+      {
+        baseValues = Collections.emptyMap();
+      }
+
+      for ( Map.Entry<String, String> value : values.entrySet() )
+      {
+        if ( !equals( baseValues.get( value.getKey() ), value.getValue() ) )
+        {
+          result.add( new String[] { RECORD_SETTING, name, value.getKey(), value.getValue() } );
+        }
+      }
+      for ( String key : baseValues.keySet() )
+      {
+        if ( !values.containsKey( key ) )
+        {
+          result.add( new String[] { RECORD_SETTING_REMOVED, name, key } );
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Null-safe equality test of two objects.
+   */
+  private static boolean equals( final Object aObject1, final Object aObject2 )
+  {
+    return ( aObject1 == null ) ? ( aObject2 == null ) : aObject1.equals( aObject2 );
+  }
+
+  /**
+   * Returns the encoded annotations of the channel with the given index.
+   */
+  private static byte[] getEncodedAnnotations( final DataSet aDataSet, final int aIndex )
+  {
+    for ( Channel channel : aDataSet.getChannels() )
+    {
+      if ( ( channel instanceof ChannelImpl ) && ( channel.getIndex() == aIndex ) )
+      {
+        return ( ( ChannelImpl )channel ).getEncodedAnnotations();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Parses the given hexadecimal representation of a byte array.
+   */
+  private static byte[] parseHex( final String aValue )
+  {
+    if ( ( aValue.length() % 2 ) != 0 )
+    {
+      throw new IllegalArgumentException( "Invalid hexadecimal value!" );
+    }
+
+    final byte[] result = new byte[aValue.length() / 2];
+    for ( int i = 0; i < result.length; i++ )
+    {
+      final int hi = Character.digit( aValue.charAt( 2 * i ), 16 );
+      final int lo = Character.digit( aValue.charAt( 2 * i + 1 ), 16 );
+      if ( ( hi < 0 ) || ( lo < 0 ) )
+      {
+        throw new IllegalArgumentException( "Invalid hexadecimal value!" );
+      }
+      result[i] = ( byte )( ( hi << 4 ) | lo );
+    }
+    return result;
+  }
+
+  /**
+   * Parses a single record, with tab-separated and escaped fields.
+   */
+  private static String[] parseRecord( final String aLine )
+  {
+    final List<String> fields = new ArrayList<String>();
+    final StringBuilder field = new StringBuilder();
+
+    for ( int i = 0; i < aLine.length(); i++ )
+    {
+      char c = aLine.charAt( i );
+      if ( c == '\t' )
+      {
+        fields.add( field.toString() );
+        field.setLength( 0 );
+      }
+      else if ( ( c == '\\' ) && ( ( i + 1 ) < aLine.length() ) )
+      {
+        c = aLine.charAt( ++i );
+        field.append( ( c == 't' ) ? '\t' : ( c == 'n' ) ? '\n' : ( c == 'r' ) ? '\r' : c );
+      }
+      else
+      {
+        field.append( c );
+      }
+    }
+    fields.add( field.toString() );
+
+    return fields.toArray( new String[fields.size()] );
+  }
+
+  /**
+   * Returns the hexadecimal representation of the given byte array.
+   */
+  private static String toHex( final byte[] aValue )
+  {
+    final char[] digits = "0123456789abcdef".toCharArray();
+
+    final char[] result = new char[2 * aValue.length];
+    for ( int i = 0; i < aValue.length; i++ )
+    {
+      result[2 * i] = digits[( aValue[i] >> 4 ) & 0x0f];
+      result[2 * i + 1] = digits[aValue[i] & 0x0f];
+    }
+    return new String( result );
+  }
+
+  /**
+   * Writes a single record, with tab-separated and escaped fields.
+   */
+  private static void writeRecord( final Writer aWriter, final String... aFields ) throws IOException
+  {
+    for ( int i = 0; i < aFields.length; i++ )
+    {
+      if ( i > 0 )
+      {
+        aWriter.write( '\t' );
+      }
+
+      final String value = aFields[i];
+      for ( int j = 0; j < value.length(); j++ )
+      {
+        final char c = value.charAt( j );
+        if ( c == '\t' )
+        {
+          aWriter.write( "\\t" );
+        }
+        else if ( c == '\n' )
+        {
+          aWriter.write( "\\n" );
+        }
+        else if ( c == '\r' )
+        {
+          aWriter.write( "\\r" );
+        }
+        else if ( c == '\\' )
+        {
+          aWriter.write( "\\\\" );
+        }
+        else
+        {
+          aWriter.write( c );
+        }
+      }
+    }
+    aWriter.write( '\n' );
+  }
+
+  /**
+   * Returns whether this journal exists and belongs to the current version of
+   * its project file.
+   */
+  private boolean isBoundToProjectFile() throws IOException
+  {
+    if ( !this.file.isFile() )
+    {
+      return false;
+    }
+
+    final BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( this.file ),
+        CHARSET ) );
+    try
+    {
+      final String line = reader.readLine();
+      if ( line == null )
+      {
+        return false;
+      }
+
+      final String[] header = parseRecord( line );
+      return ( header.length == 4 ) && RECORD_HEADER.equals( header[0] ) && VERSION.equals( header[1] )
+          && Long.toString( this.projectFile.length() ).equals( header[2] )
+          && Long.toString( this.projectFile.lastModified() ).equals( header[3] );
+    }
+    finally
+    {
+      HostUtils.closeResource( reader );
+    }
+  }
+}
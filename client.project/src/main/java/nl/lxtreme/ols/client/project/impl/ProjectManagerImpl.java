@@ -29,12 +29,21 @@ import java.util.zip.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.client.project.impl.OlsDataHelper.PartialDataListener;
+import nl.lxtreme.ols.client.project.impl.ProjectJournal.Snapshot;
 import nl.lxtreme.ols.util.*;
 
 
 /**
  * Provides a simple implementation of a project manager, which writes an entire
  * project as (compressed) ZIP-file.
+ * <p>
+ * The captured data, which makes up the bulk of a project, is compressed in
+ * parallel blocks using all available processors. Changes that do not involve
+ * the captured data can be appended to a journal next to the project file
+ * instead, which is folded into the project file by the next full save.
+ * </p>
  */
 public class ProjectManagerImpl implements PropertyChangeListener, ProjectManager, ProjectProperties
 {
@@ -42,9 +51,18 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
 
   private static final String FILENAME_PROJECT_METADATA = "ols.project";
   private static final String FILENAME_CHANNEL_LABELS = "channel.labels";
+  private static final String FILENAME_CHANNEL_ANNOTATIONS = "channel.annotations";
   private static final String FILENAME_PROJECT_SETTINGS = "settings/";
   private static final String FILENAME_CAPTURE_RESULTS = "data.ols";
 
+  /** The size (in bytes) beyond which a journal is folded into a full save. */
+  private static final long JOURNAL_COMPACTION_SIZE = 256 * 1024L;
+  /**
+   * The fraction of the project file size beyond which a journal is folded into
+   * a full save, as annotation batches can make a journal grow fast.
+   */
+  private static final int JOURNAL_COMPACTION_RATIO = 4;
+
   // VARIABLES
 
   private volatile HostProperties hostProperties;
@@ -52,6 +70,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   private final PropertyChangeSupport propertyChangeSupport;
 
   private ProjectImpl project;
+  /** The state of the project as last loaded or saved. */
+  private volatile Snapshot savedState;
 
   // CONSTRUCTORS
 
@@ -84,6 +104,15 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     return this.project;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#createProjectSnapshot()
+   */
+  @Override
+  public ProjectSnapshot createProjectSnapshot()
+  {
+    return new ProjectSnapshotImpl( this.project );
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.ProjectManager#createTemporaryProject()
    */
@@ -92,6 +121,15 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     return new ProjectImpl();
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#deleteProjectJournal(java.io.File)
+   */
+  @Override
+  public void deleteProjectJournal( final File aProjectFile )
+  {
+    new ProjectJournal( aProjectFile ).delete();
+  }
+
   /**
    * @see nl.lxtreme.ols.api.data.project.ProjectManager#getCurrentProject()
    */
@@ -120,6 +158,8 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     copyPropertyChangeListeners( this.project, newProject );
 
     List<String> labels = null;
+    Map<Integer, byte[]> annotations = null;
+    boolean published = false;
 
     try
     {
@@ -138,9 +178,20 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
           labels = loadChannelLabels( zipIS );
           entriesSeen = true;
         }
+        else if ( FILENAME_CHANNEL_ANNOTATIONS.equals( name ) )
+        {
+          annotations = AnnotationCodec.read( zipIS );
+          entriesSeen = true;
+        }
         else if ( FILENAME_CAPTURE_RESULTS.equals( name ) )
         {
-          loadCapturedResults( newProject, zipIS );
+          // Make the project available before reading its (possibly large)
+          // capture data, which is published as it is read...
+          final DataSetImpl initialDataSet = newProject.getDataSet();
+          publishProject( newProject, labels );
+          published = true;
+
+          loadCapturedResults( newProject, initialDataSet, labels, annotations, zipIS );
           entriesSeen = true;
         }
         else if ( name.startsWith( FILENAME_PROJECT_SETTINGS ) )
@@ -162,12 +213,19 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
       // set; this is not the nicest way of doing this, but we otherwise have to
       // break our project file-format, which is not done at the moment...
       newProject.getDataSet().mergeChannelLabels( labels );
+      // The annotations are only decoded when they are used...
+      newProject.getDataSet().mergeChannelAnnotations( annotations );
 
       // Mark the project as no longer changed...
       newProject.setChanged( false );
 
-      // Overwrite the main project...
-      setProject( newProject );
+      if ( !published )
+      {
+        // Overwrite the main project...
+        setProject( newProject );
+      }
+
+      this.savedState = new Snapshot( newProject );
     }
     finally
     {
@@ -175,6 +233,22 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#loadProjectJournal(java.io.File)
+   */
+  @Override
+  public void loadProjectJournal( final File aProjectFile ) throws IOException
+  {
+    final ProjectImpl currentProject = this.project;
+
+    new ProjectJournal( aProjectFile ).replay( currentProject );
+
+    // The journalled changes are already saved...
+    currentProject.setChanged( false );
+
+    this.savedState = new Snapshot( currentProject );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -198,29 +272,72 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
    */
   @Override
   public void saveProject( final OutputStream aOutput ) throws IOException
+  {
+    saveProject( aOutput, CompressionLevel.DEFAULT, null );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#saveProject(java.io.OutputStream,
+   *      nl.lxtreme.ols.api.data.project.CompressionLevel,
+   *      nl.lxtreme.ols.api.task.TaskProgressListener)
+   */
+  @Override
+  public void saveProject( final OutputStream aOutput, final CompressionLevel aLevel,
+      final TaskProgressListener aProgressListener ) throws IOException
+  {
+    saveProject( createProjectSnapshot(), aOutput, aLevel, aProgressListener );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#saveProject(nl.lxtreme.ols.api.data.project.ProjectSnapshot,
+   *      java.io.OutputStream, nl.lxtreme.ols.api.data.project.CompressionLevel,
+   *      nl.lxtreme.ols.api.task.TaskProgressListener)
+   */
+  @Override
+  public void saveProject( final ProjectSnapshot aSnapshot, final OutputStream aOutput,
+      final CompressionLevel aLevel, final TaskProgressListener aProgressListener ) throws IOException
   {
     if ( aOutput == null )
     {
       throw new IllegalArgumentException( "Output stream cannot be null!" );
     }
+    if ( aLevel == null )
+    {
+      throw new IllegalArgumentException( "Compression level cannot be null!" );
+    }
+
+    // Changes made after the snapshot are to be saved by the next save...
+    final ProjectSnapshotImpl snapshot = getSnapshot( aSnapshot );
 
     final BufferedOutputStream os = new BufferedOutputStream( aOutput );
-    final ZipOutputStream zipOS = new ZipOutputStream( os );
+    final ZipWriter zipOS = new ZipWriter( os, aLevel.getLevel(), Runtime.getRuntime().availableProcessors() );
 
     zipOS.setComment( this.hostProperties.getFullName().concat( " project file" ) );
 
     try
     {
-      storeProjectMetadata( this.project, zipOS );
+      storeProjectMetadata( snapshot.name, zipOS );
       // Store the channel labels...
-      storeChannelLabels( this.project.getDataSet(), zipOS );
+      storeChannelLabels( snapshot.channelLabels, zipOS );
       // Store the settings...
-      storeProjectSettings( this.project, zipOS );
+      storeProjectSettings( snapshot.settings, zipOS );
+      // Store the channel annotations...
+      storeChannelAnnotations( snapshot.channelAnnotations, zipOS );
       // Store the last capture results...
-      storeCapturedResults( this.project, zipOS );
+      storeCapturedResults( snapshot.dataSet, zipOS, aProgressListener );
 
-      // Mark the project as no longer changed...
-      this.project.setChanged( false );
+      zipOS.finish();
+
+      if ( aProgressListener != null )
+      {
+        aProgressListener.setProgress( 100 );
+      }
+
+      // Mark the project as no longer changed, unless it is changed since the
+      // snapshot was taken, in which case those changes still need to be saved...
+      snapshot.project.clearChanged( snapshot.changeCount );
+
+      this.savedState = snapshot.state;
     }
     finally
     {
@@ -229,6 +346,48 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#saveProjectJournal(java.io.File)
+   */
+  @Override
+  public boolean saveProjectJournal( final File aProjectFile ) throws IOException
+  {
+    return saveProjectJournal( createProjectSnapshot(), aProjectFile );
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.data.project.ProjectManager#saveProjectJournal(nl.lxtreme.ols.api.data.project.ProjectSnapshot,
+   *      java.io.File)
+   */
+  @Override
+  public boolean saveProjectJournal( final ProjectSnapshot aSnapshot, final File aProjectFile ) throws IOException
+  {
+    final ProjectJournal journal = new ProjectJournal( aProjectFile );
+
+    final ProjectSnapshotImpl snapshot = getSnapshot( aSnapshot );
+    final Snapshot lastState = this.savedState;
+    if ( ( lastState == null ) || !lastState.isJournallable( snapshot.state ) || !aProjectFile.isFile() )
+    {
+      // The captured data is changed, which is only saved in full...
+      return false;
+    }
+    final long compactionSize = Math.max( JOURNAL_COMPACTION_SIZE, aProjectFile.length() / JOURNAL_COMPACTION_RATIO );
+    if ( journal.length() > compactionSize )
+    {
+      // Fold the journal into a full save, keeping its replay cheap...
+      return false;
+    }
+
+    journal.append( lastState, snapshot.state );
+
+    // Mark the project as no longer changed, unless it is changed since the
+    // snapshot was taken...
+    snapshot.project.clearChanged( snapshot.changeCount );
+
+    this.savedState = snapshot.state;
+    return true;
+  }
+
   /**
    * Sets hostProperties to the given value.
    * 
@@ -242,17 +401,63 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
 
   /**
    * Reads the capture results from the given ZIP-input stream.
+   * <p>
+   * While reading, the data read so far is periodically set on the given
+   * project, allowing the start of a large capture to be shown while the rest
+   * is still being read.
+   * </p>
    * 
    * @param aProject
    *          the project to read the capture results for;
+   * @param aInitialDataSet
+   *          the data set of the project before its capture results are read,
+   *          used to detect whether its data set is replaced in the meantime;
+   * @param aLabels
+   *          the channel labels to apply to the capture results, can be
+   *          <code>null</code>;
+   * @param aAnnotations
+   *          the encoded channel annotations to apply to the capture results,
+   *          can be <code>null</code>;
    * @param aZipIS
    *          the ZIP input stream to read the capture results from.
+   * @throws InterruptedIOException
+   *           in case the captured data of the project is replaced (e.g., by
+   *           an acquisition) while reading the capture results;
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void loadCapturedResults( final Project aProject, final ZipInputStream aZipIS ) throws IOException
+  protected void loadCapturedResults( final ProjectImpl aProject, final DataSetImpl aInitialDataSet,
+      final List<String> aLabels, final Map<Integer, byte[]> aAnnotations, final ZipInputStream aZipIS )
+      throws IOException
   {
-    aProject.readData( new InputStreamReader( aZipIS ) );
+    // The data set we've published last, used to detect whether someone else
+    // has replaced it while we're still reading...
+    final DataSetImpl[] published = { aInitialDataSet };
+
+    final DataSetImpl dataSet = OlsDataHelper.read( new InputStreamReader( aZipIS ), new PartialDataListener()
+    {
+      @Override
+      public void partialDataRead( final DataSetImpl aDataSet )
+      {
+        aDataSet.mergeChannelLabels( aLabels );
+        aDataSet.mergeChannelAnnotations( aAnnotations );
+        if ( ( published[0] != null ) && aProject.replaceDataSet( published[0], aDataSet ) )
+        {
+          published[0] = aDataSet;
+        }
+        else
+        {
+          published[0] = null;
+        }
+      }
+    } );
+
+    dataSet.mergeChannelLabels( aLabels );
+    dataSet.mergeChannelAnnotations( aAnnotations );
+    if ( ( published[0] == null ) || !aProject.replaceDataSet( published[0], dataSet ) )
+    {
+      throw new InterruptedIOException( "Captured data replaced while loading project!" );
+    }
   }
 
   /**
@@ -274,7 +479,7 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
 
     String label = null;
     int idx = 0;
-    while ( ( ( label = reader.readLine() ) != null ) && ( idx < Ols.MAX_CHANNELS ) )
+    while ( ( ( label = reader.readLine() ) != null ) && ( idx < Ols.MAX_WIDE_CHANNELS ) )
     {
       result.add( label );
     }
@@ -345,60 +550,82 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   /**
    * Stores the captured results to the given ZIP-output stream.
    * <p>
-   * If the given project does not have capture results, this method does
-   * nothing.
+   * If there is no data set, this method does nothing.
    * </p>
    * 
-   * @param aProject
-   *          the project to write the capture results for;
+   * @param aDataSet
+   *          the data set to write the capture results for, can be
+   *          <code>null</code>;
    * @param aZipOS
-   *          the ZIP output stream to write the capture results to.
+   *          the ZIP output stream to write the capture results to;
+   * @param aProgressListener
+   *          the listener to report the progress to, can be <code>null</code>.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeCapturedResults( final Project aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeCapturedResults( final DataSet aDataSet, final ZipWriter aZipOS,
+      final TaskProgressListener aProgressListener ) throws IOException
   {
-    final DataSet dataSet = aProject.getDataSet();
-    if ( dataSet.getCapturedData() == null )
+    if ( ( aDataSet == null ) || ( aDataSet.getCapturedData() == null ) )
     {
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CAPTURE_RESULTS );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_CAPTURE_RESULTS, true /* aParallel */);
 
-    aProject.writeData( new OutputStreamWriter( aZipOS ) );
+    OlsDataHelper.write( aDataSet, new OutputStreamWriter( aZipOS ), aProgressListener );
   }
 
   /**
-   * Stores the channel labels to the given ZIP-output stream.
+   * Stores the channel annotations to the given ZIP-output stream.
    * <p>
-   * If the given project does not have channel labels, this method does
-   * nothing.
+   * If none of the channels has annotations, this method does nothing.
+   * Annotations that are not decoded since they were loaded are stored as-is.
    * </p>
    * 
-   * @param aDataSet
-   *          the project to write the channel labels for;
+   * @param aAnnotations
+   *          the encoded annotations to write, per channel index;
    * @param aZipOS
-   *          the ZIP output stream to write the channel labels to.
+   *          the ZIP output stream to write the channel annotations to.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeChannelLabels( final DataSet aDataSet, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeChannelAnnotations( final Map<Integer, byte[]> aAnnotations, final ZipWriter aZipOS )
+      throws IOException
   {
-    final Channel[] channels = aDataSet.getChannels();
+    if ( aAnnotations.isEmpty() )
+    {
+      return;
+    }
+
+    aZipOS.putNextEntry( FILENAME_CHANNEL_ANNOTATIONS );
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_CHANNEL_LABELS );
-    aZipOS.putNextEntry( zipEntry );
+    AnnotationCodec.write( aAnnotations, aZipOS );
+  }
+
+  /**
+   * Stores the channel labels to the given ZIP-output stream.
+   * 
+   * @param aLabels
+   *          the channel labels to write, one per channel, using an empty
+   *          string for channels without a name;
+   * @param aZipOS
+   *          the ZIP output stream to write the channel labels to.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  protected void storeChannelLabels( final List<String> aLabels, final ZipWriter aZipOS ) throws IOException
+  {
+    aZipOS.putNextEntry( FILENAME_CHANNEL_LABELS );
 
     // Write the channel labels
     PrintStream out = new PrintStream( aZipOS );
 
     try
     {
-      for ( Channel channel : channels )
+      for ( String label : aLabels )
       {
-        out.println( ( channel != null ) && channel.hasName() ? channel.getLabel() : "" );
+        out.println( label );
       }
     }
     finally
@@ -411,34 +638,32 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   /**
    * Stores the project metadata to the given ZIP-output stream.
    * <p>
-   * In case the given project does not have a project name, this method does
-   * nothing.
+   * In case there is no project name, this method does nothing.
    * </p>
    * 
-   * @param aProject
-   *          the project to write the metadata for;
+   * @param aName
+   *          the name of the project to write the metadata for, can be
+   *          <code>null</code>;
    * @param aZipOS
    *          the ZIP output stream to write the metadata to.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeProjectMetadata( final Project aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeProjectMetadata( final String aName, final ZipWriter aZipOS ) throws IOException
   {
-    final String name = aProject.getName();
-    if ( ( name == null ) || name.trim().isEmpty() )
+    if ( ( aName == null ) || aName.trim().isEmpty() )
     {
       return;
     }
 
-    final ZipEntry zipEntry = new ZipEntry( FILENAME_PROJECT_METADATA );
-    aZipOS.putNextEntry( zipEntry );
+    aZipOS.putNextEntry( FILENAME_PROJECT_METADATA );
 
     // Write the project metadata...
     PrintStream out = new PrintStream( aZipOS );
 
     try
     {
-      out.println( name );
+      out.println( aName );
       out.println( this.hostProperties.getVersion() );
       out.println( System.currentTimeMillis() );
     }
@@ -452,42 +677,30 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
   /**
    * Stores the project settings to the given ZIP-output stream.
    * <p>
-   * In case the given project does not have project settings, this method does
-   * nothing.
+   * In case there are no project settings, this method does nothing.
    * </p>
    * 
-   * @param aProject
-   *          the project to write the settings for;
+   * @param aSettings
+   *          the project settings to write, per name of the settings;
    * @param aZipOS
    *          the ZIP output stream to write the settings to.
    * @throws IOException
    *           in case of I/O problems.
    */
-  protected void storeProjectSettings( final ProjectImpl aProject, final ZipOutputStream aZipOS ) throws IOException
+  protected void storeProjectSettings( final Map<String, Properties> aSettings, final ZipWriter aZipOS )
+      throws IOException
   {
     try
     {
-      aProject.visit( new ProjectVisitor()
+      for ( Map.Entry<String, Properties> entry : aSettings.entrySet() )
       {
-        @Override
-        public void visit( final UserSettings aSettings ) throws IOException
-        {
-          final String zipEntryName = FILENAME_PROJECT_SETTINGS.concat( aSettings.getName() );
+        final String zipEntryName = FILENAME_PROJECT_SETTINGS.concat( entry.getKey() );
 
-          final ZipEntry zipEntry = new ZipEntry( zipEntryName );
-          aZipOS.putNextEntry( zipEntry );
+        aZipOS.putNextEntry( zipEntryName );
 
-          // Convert to a properties object...
-          final Properties props = new Properties();
-          for ( Map.Entry<String, Object> userSetting : aSettings )
-          {
-            props.put( userSetting.getKey(), userSetting.getValue() );
-          }
-
-          // Write the project settings
-          props.store( aZipOS, aSettings.getName().concat( " settings" ) );
-        }
-      } );
+        // Write the project settings
+        entry.getValue().store( aZipOS, entry.getKey().concat( " settings" ) );
+      }
     }
     finally
     {
@@ -514,6 +727,41 @@ public class ProjectManagerImpl implements PropertyChangeListener, ProjectManage
     }
   }
 
+  /**
+   * Returns the given snapshot as taken by this project manager.
+   * 
+   * @param aSnapshot
+   *          the snapshot to return, cannot be <code>null</code>.
+   * @return the given snapshot, never <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given snapshot is not taken by this project manager.
+   */
+  private ProjectSnapshotImpl getSnapshot( final ProjectSnapshot aSnapshot )
+  {
+    if ( !( aSnapshot instanceof ProjectSnapshotImpl ) )
+    {
+      throw new IllegalArgumentException( "Invalid project snapshot!" );
+    }
+    return ( ProjectSnapshotImpl )aSnapshot;
+  }
+
+  /**
+   * Makes the given (partially loaded) project the current project.
+   * 
+   * @param aProject
+   *          the project to publish;
+   * @param aLabels
+   *          the channel labels read so far, can be <code>null</code>.
+   */
+  private void publishProject( final ProjectImpl aProject, final List<String> aLabels )
+  {
+    aProject.getDataSet().mergeChannelLabels( aLabels );
+    // Nothing is changed yet, we're still loading...
+    aProject.setChanged( false );
+
+    setProject( aProject );
+  }
+
   /**
    * Sets the current project to the given project.
    * 
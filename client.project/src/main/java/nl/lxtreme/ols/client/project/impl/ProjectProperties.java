@@ -49,4 +49,6 @@ public interface ProjectProperties
   public static final String PROPERTY_SETTINGS = "settings";
   /** The captured data of the project. */
   public static final String PROPERTY_CAPTURED_DATA = "capturedData";
+  /** New samples are appended to the captured data of the project. */
+  public static final String PROPERTY_CAPTURED_DATA_APPENDED = "capturedDataAppended";
 }
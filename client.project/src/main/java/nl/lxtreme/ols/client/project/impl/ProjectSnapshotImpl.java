@@ -0,0 +1,123 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.client.project.impl.ProjectJournal.Snapshot;
+
+
+/**
+ * Provides an immutable snapshot of everything that is saved of a project.
+ * <p>
+ * All mutable state of the project is copied when the snapshot is taken; the
+ * captured data itself is immutable and therefore shared. Annotations are
+ * copied in their encoded form, which is cheap for annotations that are not
+ * decoded since they were loaded.
+ * </p>
+ */
+final class ProjectSnapshotImpl implements ProjectSnapshot
+{
+  // VARIABLES
+
+  final ProjectImpl project;
+  /** The change count of the project at the time this snapshot was taken. */
+  final int changeCount;
+  /** The journalled state of the project. */
+  final Snapshot state;
+
+  final String name;
+  /** A detached copy of the data set, or <code>null</code> if no data is captured. */
+  final DataSet dataSet;
+  final List<String> channelLabels;
+  final Map<Integer, byte[]> channelAnnotations;
+  final Map<String, Properties> settings;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ProjectSnapshotImpl instance.
+   * 
+   * @param aProject
+   *          the project to take a snapshot of, cannot be <code>null</code>.
+   */
+  ProjectSnapshotImpl( final ProjectImpl aProject )
+  {
+    final DataSet projectDataSet = aProject.getDataSet();
+    final AcquisitionResult capturedData = projectDataSet.getCapturedData();
+
+    this.project = aProject;
+    this.changeCount = aProject.getChangeCount();
+    this.state = new Snapshot( aProject );
+
+    this.name = aProject.getName();
+    this.dataSet = ( capturedData == null ) ? null : new DataSetImpl( capturedData, projectDataSet, false );
+
+    this.channelLabels = new ArrayList<String>();
+    this.channelAnnotations = new TreeMap<Integer, byte[]>();
+    for ( Channel channel : projectDataSet.getChannels() )
+    {
+      this.channelLabels.add( ( channel != null ) && channel.hasName() ? channel.getLabel() : "" );
+
+      if ( channel != null )
+      {
+        final byte[] encoded = ( channel instanceof ChannelImpl ) ? ( ( ChannelImpl )channel )
+            .getEncodedAnnotations() : AnnotationCodec.encode( channel.getAnnotations() );
+        if ( encoded != null )
+        {
+          this.channelAnnotations.put( Integer.valueOf( channel.getIndex() ), encoded );
+        }
+      }
+    }
+
+    this.settings = new LinkedHashMap<String, Properties>();
+    aProject.visit( new ProjectVisitor()
+    {
+      @Override
+      public void visit( final UserSettings aSettings )
+      {
+        // Convert to a properties object...
+        final Properties props = new Properties();
+        for ( Map.Entry<String, Object> userSetting : aSettings )
+        {
+          props.put( userSetting.getKey(), userSetting.getValue() );
+        }
+        ProjectSnapshotImpl.this.settings.put( aSettings.getName(), props );
+      }
+    } );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Project getProject()
+  {
+    return this.project;
+  }
+}
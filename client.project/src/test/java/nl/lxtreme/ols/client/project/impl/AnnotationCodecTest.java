@@ -0,0 +1,153 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.client.project.impl.AnnotationCodec.StoredAnnotation;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link AnnotationCodec}.
+ */
+public class AnnotationCodecTest
+{
+  // METHODS
+
+  /**
+   * Test method for {@link AnnotationCodec#decode(int, byte[])}.
+   */
+  @Test( expected = IOException.class )
+  public void testDecodeCorruptBlockFail() throws IOException
+  {
+    final byte[] block = AnnotationCodec.encode( createAnnotations( 100 ) );
+
+    AnnotationCodec.decode( 1, Arrays.copyOf( block, block.length / 2 ) );
+  }
+
+  /**
+   * Tests that a block declaring a huge number of annotations is rejected as
+   * corrupt before anything is allocated for them.
+   */
+  @Test( expected = IOException.class )
+  public void testDecodeHugeAnnotationCountFail() throws IOException
+  {
+    // no texts, followed by a count of Integer.MAX_VALUE...
+    final byte[] block = { 0x00, ( byte )0xff, ( byte )0xff, ( byte )0xff, ( byte )0xff, 0x07 };
+
+    AnnotationCodec.decode( 1, block );
+  }
+
+  /**
+   * Tests that a block declaring a huge number of texts is rejected as corrupt
+   * before anything is allocated for them.
+   */
+  @Test( expected = IOException.class )
+  public void testDecodeHugeTextCountFail() throws IOException
+  {
+    final byte[] block = { ( byte )0xfe, ( byte )0xff, ( byte )0xff, ( byte )0xff, 0x07, 0x00 };
+
+    AnnotationCodec.decode( 1, block );
+  }
+
+  /**
+   * Test method for {@link AnnotationCodec#encode(Collection)} and
+   * {@link AnnotationCodec#decode(int, byte[])}.
+   */
+  @Test
+  public void testEncodeAndDecodeOk() throws IOException
+  {
+    final List<Annotation<?>> annotations = createAnnotations( 10000 );
+    // Out of order, and with a non-ASCII text...
+    annotations.add( new StoredAnnotation( 1, 5L, 3000000000L, "\u00b5s" ) );
+
+    final byte[] block = AnnotationCodec.encode( annotations );
+    // Only a few bytes per annotation...
+    assertTrue( block.length < ( 6 * annotations.size() ) );
+
+    final List<Annotation<?>> decoded = AnnotationCodec.decode( 1, block );
+    assertEquals( annotations.size(), decoded.size() );
+
+    for ( int i = 0; i < annotations.size(); i++ )
+    {
+      final DataAnnotation<?> expected = ( DataAnnotation<?> )annotations.get( i );
+      final DataAnnotation<?> actual = ( DataAnnotation<?> )decoded.get( i );
+
+      assertEquals( 1, actual.getChannel() );
+      assertEquals( expected.getStartTimestamp(), actual.getStartTimestamp() );
+      assertEquals( expected.getEndTimestamp(), actual.getEndTimestamp() );
+      assertEquals( expected.getAnnotation(), actual.getAnnotation() );
+    }
+
+    // Equal texts should share a single string...
+    assertSame( decoded.get( 0 ).getAnnotation(), decoded.get( 16 ).getAnnotation() );
+  }
+
+  /**
+   * Test method for {@link AnnotationCodec#encode(Collection)}.
+   */
+  @Test
+  public void testEncodeWithoutAnnotationsOk()
+  {
+    assertNull( AnnotationCodec.encode( new ArrayList<Annotation<?>>() ) );
+  }
+
+  /**
+   * Test method for {@link AnnotationCodec#write(Map, OutputStream)} and
+   * {@link AnnotationCodec#read(InputStream)}.
+   */
+  @Test
+  public void testWriteAndReadOk() throws IOException
+  {
+    final Map<Integer, byte[]> blocks = new HashMap<Integer, byte[]>();
+    blocks.put( Integer.valueOf( 0 ), AnnotationCodec.encode( createAnnotations( 10 ) ) );
+    blocks.put( Integer.valueOf( 7 ), AnnotationCodec.encode( createAnnotations( 20 ) ) );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    AnnotationCodec.write( blocks, baos );
+
+    final Map<Integer, byte[]> read = AnnotationCodec.read( new ByteArrayInputStream( baos.toByteArray() ) );
+    assertEquals( blocks.keySet(), read.keySet() );
+    assertArrayEquals( blocks.get( Integer.valueOf( 0 ) ), read.get( Integer.valueOf( 0 ) ) );
+    assertArrayEquals( blocks.get( Integer.valueOf( 7 ) ), read.get( Integer.valueOf( 7 ) ) );
+  }
+
+  /**
+   * Creates the given number of annotations, like a decoder would.
+   */
+  private List<Annotation<?>> createAnnotations( final int aCount )
+  {
+    final List<Annotation<?>> result = new ArrayList<Annotation<?>>();
+    for ( int i = 0; i < aCount; i++ )
+    {
+      final long start = 100L * i;
+      result.add( new StoredAnnotation( 1, start, start + 80L, String.format( "0x%02x", Integer.valueOf( i % 16 ) ) ) );
+    }
+    return result;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.project.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link OlsDataHelper}.
+ */
+public class OlsDataHelperTest
+{
+  // METHODS
+
+  /**
+   * Tests that a capture of at most 32 channels is read back as-is.
+   */
+  @Test
+  public void testReadWriteNarrowDataOk() throws IOException
+  {
+    final AcquisitionResult data = new CapturedData( new int[] { 0x00, 0x81, 0xFF }, new long[] { 0L, 5L, 7L },
+        5L, 1000000, 8, 0xFF, 10L );
+
+    final AcquisitionResult result = writeAndRead( data );
+
+    assertFalse( result instanceof WideAcquisitionResult );
+    assertEquals( 8, result.getChannels() );
+    assertEquals( 0xFF, result.getEnabledChannels() );
+    assertEquals( 1000000, result.getSampleRate() );
+    assertEquals( 5L, result.getTriggerPosition() );
+    assertEquals( 10L, result.getAbsoluteLength() );
+    assertArrayEquals( data.getTimestamps(), result.getTimestamps() );
+    assertArrayEquals( data.getValues(), result.getValues() );
+  }
+
+  /**
+   * Tests that a capture of more than 32 channels is read back with all its
+   * channels.
+   */
+  @Test
+  public void testReadWriteWideDataOk() throws IOException
+  {
+    final long[] values = { 0L, 0x0000008000000001L, 0xFFFFFFFFFFFFFFFFL, 0x8000000000000000L };
+    final AcquisitionResult data = new WideCapturedData( values, new long[] { 0L, 3L, 8L, 9L }, 3L, 200000000, 64,
+        0xFFFFFFFFFFFFFFFFL, 12L );
+
+    final AcquisitionResult result = writeAndRead( data );
+
+    assertTrue( result instanceof WideAcquisitionResult );
+    assertEquals( 64, result.getChannels() );
+    assertEquals( 0xFFFFFFFFFFFFFFFFL, ChannelAccessor.getEnabledChannelMask( result ) );
+    assertEquals( 200000000, result.getSampleRate() );
+    assertEquals( 3L, result.getTriggerPosition() );
+    assertEquals( 12L, result.getAbsoluteLength() );
+    assertArrayEquals( data.getTimestamps(), result.getTimestamps() );
+    assertArrayEquals( ChannelAccessor.getWideValues( data ), ChannelAccessor.getWideValues( result ) );
+  }
+
+  /**
+   * Tests that a capture of 40 channels keeps its channel count and enabled
+   * channels.
+   */
+  @Test
+  public void testReadWriteWideDataWithPartialPlaneOk() throws IOException
+  {
+    final long[] values = { 0x0000000000000001L, 0x000000FF00000000L, 0x0000001000000010L };
+    final AcquisitionResult data = new WideCapturedData( values, new long[] { 0L, 1L, 2L }, 0L, 1000, 40,
+        0x000000FFFFFFFFFFL, 2L );
+
+    final AcquisitionResult result = writeAndRead( data );
+
+    assertEquals( 40, result.getChannels() );
+    assertEquals( 0x000000FFFFFFFFFFL, ChannelAccessor.getEnabledChannelMask( result ) );
+    assertEquals( 2, ChannelAccessor.getPlaneCount( result ) );
+    assertArrayEquals( ChannelAccessor.getWideValues( data ), ChannelAccessor.getWideValues( result ) );
+  }
+
+  /**
+   * Writes the given capture with the {@link OlsDataHelper} and reads it back.
+   */
+  private static AcquisitionResult writeAndRead( final AcquisitionResult aData ) throws IOException
+  {
+    final DataSetImpl dataSet = new DataSetImpl( aData, new DataSetImpl(), false /* aRetainAnnotations */);
+
+    final StringWriter writer = new StringWriter();
+    OlsDataHelper.write( dataSet, writer );
+
+    return OlsDataHelper.read( new StringReader( writer.toString() ) ).getCapturedData();
+  }
+}
@@ -29,6 +29,7 @@ import java.util.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.test.*;
 import nl.lxtreme.ols.test.data.*;
 
@@ -55,6 +56,46 @@ public class ProjectImplTest
     this.project = new ProjectImpl();
   }
 
+  /**
+   * Test method for {@link ProjectImpl#appendCapturedData(AcquisitionResult)}.
+   */
+  @Test
+  public void testAppendCapturedDataKeepsDataSet()
+  {
+    this.project.setCapturedData( new CapturedData( new int[] { 1, 2 }, new long[] { 0L, 5L }, Ols.NOT_AVAILABLE,
+        100, 8, 0xFF, 10L ) );
+    final DataSetImpl dataSet = this.project.getDataSet();
+    dataSet.getChannel( 0 ).setLabel( "clk" );
+
+    final AcquisitionResult appended = new CapturedData( new int[] { 1, 2, 3 }, new long[] { 0L, 5L, 12L },
+        Ols.NOT_AVAILABLE, 100, 8, 0xFF, 20L );
+    this.project.appendCapturedData( appended );
+
+    assertSame( dataSet, this.project.getDataSet() );
+    assertSame( appended, dataSet.getCapturedData() );
+    assertEquals( "clk", dataSet.getChannel( 0 ).getLabel() );
+    assertTrue( this.project.isChanged() );
+  }
+
+  /**
+   * Test method for {@link ProjectImpl#appendCapturedData(AcquisitionResult)}.
+   */
+  @Test
+  public void testAppendCapturedDataWithOtherLayoutReplacesDataSet()
+  {
+    this.project.setCapturedData( new CapturedData( new int[] { 1, 2 }, new long[] { 0L, 5L }, Ols.NOT_AVAILABLE,
+        100, 8, 0xFF, 10L ) );
+    final DataSetImpl dataSet = this.project.getDataSet();
+
+    final AcquisitionResult appended = new CapturedData( new int[] { 1, 2, 3 }, new long[] { 0L, 5L, 12L },
+        Ols.NOT_AVAILABLE, 100, 4, 0x0F, 20L );
+    this.project.appendCapturedData( appended );
+
+    assertNotSame( dataSet, this.project.getDataSet() );
+    assertSame( appended, this.project.getDataSet().getCapturedData() );
+    assertEquals( 4, this.project.getDataSet().getChannels().length );
+  }
+
   /**
    * Test method for {@link ProjectImpl#getSettings(java.lang.String)}.
    */
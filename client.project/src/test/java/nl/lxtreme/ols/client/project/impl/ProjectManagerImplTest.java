@@ -24,12 +24,17 @@ package nl.lxtreme.ols.client.project.impl;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
+import java.beans.*;
 import java.io.*;
+import java.util.*;
+import java.util.zip.*;
 
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.test.data.*;
 import nl.lxtreme.ols.util.*;
 
@@ -84,6 +89,209 @@ public class ProjectManagerImplTest
     assertNotSame( "No new instance of a project created?!", currentProject, tempProject );
   }
 
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectPublishesProjectBeforeCaptureDataOk() throws IOException
+  {
+    final AcquisitionResult mockedCapturedData = DataTestUtils.getMockedCapturedData();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( "testProject" );
+    project.getDataSet().getChannel( 0 ).setLabel( "labelA" );
+    project.setCapturedData( mockedCapturedData );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.projectManager.createNewProject();
+
+    final Project[] published = new Project[1];
+    final boolean[] dataPresent = new boolean[1];
+    this.projectManager.addPropertyChangeListener( new PropertyChangeListener()
+    {
+      @Override
+      public void propertyChange( final PropertyChangeEvent aEvent )
+      {
+        if ( "project".equals( aEvent.getPropertyName() ) )
+        {
+          published[0] = ( Project )aEvent.getNewValue();
+          dataPresent[0] = published[0].getDataSet().getCapturedData() != null;
+        }
+      }
+    } );
+
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    assertNotNull( published[0] );
+    assertFalse( dataPresent[0] );
+    assertEquals( "testProject", published[0].getName() );
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    assertSame( published[0], loadedProject );
+    assertFalse( loadedProject.isChanged() );
+    assertEquals( "labelA", loadedProject.getDataSet().getChannel( 0 ).getLabel() );
+    DataTestUtils.assertEquals( mockedCapturedData, loadedProject.getDataSet().getCapturedData() );
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
+   */
+  @Test
+  public void testLoadProjectDoesNotOverwriteNewerCaptureDataOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.projectManager.createNewProject();
+
+    final AcquisitionResult newerData = new CapturedData( new int[] { 1, 2 }, new long[] { 0L, 1L }, -1L, 100, 2, 0x03,
+        2L );
+    this.projectManager.addPropertyChangeListener( new PropertyChangeListener()
+    {
+      @Override
+      public void propertyChange( final PropertyChangeEvent aEvent )
+      {
+        if ( "project".equals( aEvent.getPropertyName() ) )
+        {
+          // Mimics an acquisition that completes while the project is loading...
+          ( ( Project )aEvent.getNewValue() ).setCapturedData( newerData );
+        }
+      }
+    } );
+
+    try
+    {
+      this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+      fail( "Expected InterruptedIOException!" );
+    }
+    catch ( InterruptedIOException exception )
+    {
+      // Ok; expected...
+    }
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    assertTrue( loadedProject.isChanged() );
+    DataTestUtils.assertEquals( newerData, loadedProject.getDataSet().getCapturedData() );
+  }
+
+  /**
+   * Test method for {@link ProjectManagerImpl#saveProjectJournal(File)} and
+   * {@link ProjectManagerImpl#loadProjectJournal(File)}.
+   */
+  @Test
+  public void testLoadProjectJournalOk() throws IOException
+  {
+    final File file = createSavedProject();
+
+    final long length = file.length();
+    final long lastModified = file.lastModified();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( "renamed\tproject" );
+    project.getDataSet().getCursor( 2 ).setTimestamp( 2L );
+    project.getDataSet().getChannel( 1 ).setLabel( "labelB" );
+    project.getSettings( "test" ).put( "key", "value\nwith newline" );
+
+    assertTrue( this.projectManager.saveProjectJournal( file ) );
+    assertFalse( project.isChanged() );
+
+    project.getDataSet().getCursor( 2 ).setTimestamp( 3L );
+
+    assertTrue( this.projectManager.saveProjectJournal( file ) );
+
+    // The project file itself should remain untouched...
+    assertEquals( length, file.length() );
+    assertEquals( lastModified, file.lastModified() );
+
+    final Project loadedProject = loadProject( file );
+    assertFalse( loadedProject.isChanged() );
+    assertEquals( "renamed\tproject", loadedProject.getName() );
+    assertEquals( 3L, loadedProject.getDataSet().getCursor( 2 ).getTimestamp() );
+    assertEquals( "labelA", loadedProject.getDataSet().getChannel( 0 ).getLabel() );
+    assertEquals( "labelB", loadedProject.getDataSet().getChannel( 1 ).getLabel() );
+    assertEquals( "value\nwith newline", loadedProject.getSettings( "test" ).get( "key", null ) );
+
+    // Changed capture data can only be saved in full...
+    loadedProject.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    assertFalse( this.projectManager.saveProjectJournal( file ) );
+
+    this.projectManager.deleteProjectJournal( file );
+    assertFalse( new ProjectJournal( file ).getFile().exists() );
+  }
+
+  /**
+   * Test method for {@link ProjectManagerImpl#saveProjectJournal(File)} and
+   * {@link ProjectManagerImpl#loadProjectJournal(File)}.
+   */
+  @Test
+  public void testLoadProjectJournalWithAnnotationsOk() throws IOException
+  {
+    final File file = createSavedProject();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.getDataSet().getChannel( 1 ).addAnnotation( new AnnotationCodec.StoredAnnotation( 1, 1L, 2L, "ann" ) );
+
+    assertTrue( this.projectManager.saveProjectJournal( file ) );
+
+    Project loadedProject = loadProject( file );
+    Collection<Annotation<?>> annotations = loadedProject.getDataSet().getChannel( 1 ).getAnnotations();
+    assertEquals( 1, annotations.size() );
+    assertEquals( "ann", annotations.iterator().next().getAnnotation() );
+
+    loadedProject.getDataSet().getChannel( 1 ).clearAnnotations();
+
+    assertTrue( this.projectManager.saveProjectJournal( file ) );
+
+    loadedProject = loadProject( file );
+    assertTrue( loadedProject.getDataSet().getChannel( 1 ).getAnnotations().isEmpty() );
+  }
+
+  /**
+   * Test method for {@link ProjectManagerImpl#loadProjectJournal(File)}.
+   */
+  @Test
+  public void testLoadProjectJournalIgnoresUncommittedChangesOk() throws IOException
+  {
+    final File file = createSavedProject();
+    final File journalFile = new ProjectJournal( file ).getFile();
+
+    final Project project = this.projectManager.getCurrentProject();
+    project.getDataSet().getCursor( 1 ).setTimestamp( 3L );
+
+    assertTrue( this.projectManager.saveProjectJournal( file ) );
+
+    // Simulate a crash while writing the next batch...
+    final Writer writer = new OutputStreamWriter( new FileOutputStream( journalFile, true /* append */), "UTF-8" );
+    writer.write( "begin\nname\tcrashed\ncursor\t1\t1" );
+    writer.close();
+
+    Project loadedProject = loadProject( file );
+    assertEquals( "testProject", loadedProject.getName() );
+    assertEquals( 3L, loadedProject.getDataSet().getCursor( 1 ).getTimestamp() );
+
+    loadedProject.getDataSet().getCursor( 1 ).setTimestamp( 4L );
+
+    assertTrue( this.projectManager.saveProjectJournal( file ) );
+
+    loadedProject = loadProject( file );
+    assertEquals( "testProject", loadedProject.getName() );
+    assertEquals( 4L, loadedProject.getDataSet().getCursor( 1 ).getTimestamp() );
+
+    // A full save makes the journal outdated...
+    loadedProject.getDataSet().getCursor( 1 ).setTimestamp( 2L );
+    this.projectManager.saveProject( new FileOutputStream( file ) );
+    file.setLastModified( file.lastModified() + 2000L );
+
+    assertEquals( 2L, loadProject( file ).getDataSet().getCursor( 1 ).getTimestamp() );
+  }
+
   /**
    * Test method for
    * {@link SimpleProjectManager#loadProject(java.io.InputStream)}.
@@ -141,6 +349,41 @@ public class ProjectManagerImplTest
         .getCapturedData() );
   }
 
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
+   */
+  @Test
+  public void testSaveProjectStoresChannelAnnotationsOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    project.getDataSet().getChannel( 2 ).addAnnotation( new AnnotationCodec.StoredAnnotation( 2, 1L, 3L, "first" ) );
+    project.getDataSet().getChannel( 2 ).addAnnotation( new AnnotationCodec.StoredAnnotation( 2, 3L, 4L, "second" ) );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( baos );
+
+    this.projectManager.createNewProject();
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    final ChannelImpl channel = ( ChannelImpl )this.projectManager.getCurrentProject().getDataSet().getChannel( 2 );
+    final byte[] encoded = channel.getEncodedAnnotations();
+    assertNotNull( encoded );
+
+    // Saving the project again should not need to decode the annotations...
+    this.projectManager.saveProject( new ByteArrayOutputStream( 1024 ) );
+    assertSame( encoded, channel.getEncodedAnnotations() );
+
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>( channel.getAnnotations() );
+    assertEquals( 2, annotations.size() );
+    assertEquals( "first", annotations.get( 0 ).getAnnotation() );
+    assertEquals( 3L, ( ( DataAnnotation<?> )annotations.get( 1 ) ).getStartTimestamp() );
+    assertEquals( 4L, ( ( DataAnnotation<?> )annotations.get( 1 ) ).getEndTimestamp() );
+
+    assertTrue( this.projectManager.getCurrentProject().getDataSet().getChannel( 1 ).getAnnotations().isEmpty() );
+  }
+
   /**
    * Test method for
    * {@link SimpleProjectManager#saveProject(java.io.OutputStream)}.
@@ -227,4 +470,197 @@ public class ProjectManagerImplTest
     assertNotSame( settings, this.projectManager.getCurrentProject().getSettings( settingsName ) );
     assertEquals( "value", this.projectManager.getCurrentProject().getSettings( settingsName ).get( "key", "default" ) );
   }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(OutputStream, CompressionLevel, TaskProgressListener)}
+   * .
+   */
+  @Test
+  public void testSaveLargeProjectWithAllCompressionLevelsOk() throws IOException
+  {
+    // Large enough to span several compression blocks...
+    final int size = 250000;
+    final Random rnd = new Random( 1234L );
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = rnd.nextInt( 16 );
+      timestamps[i] = 3L * i;
+    }
+    final AcquisitionResult capturedData = new CapturedData( values, timestamps, -1L, 1000000, 8, 0xFF,
+        3L * size );
+
+    for ( CompressionLevel level : CompressionLevel.values() )
+    {
+      this.projectManager.getCurrentProject().setCapturedData( capturedData );
+
+      final int[] progress = { -1 };
+      final File file = File.createTempFile( "ols", ".zip" );
+      file.deleteOnExit();
+
+      this.projectManager.saveProject( new FileOutputStream( file ), level, new TaskProgressListener()
+      {
+        @Override
+        public void setProgress( final int aPercentage )
+        {
+          assertTrue( aPercentage >= progress[0] );
+          progress[0] = aPercentage;
+        }
+      } );
+
+      assertEquals( 100, progress[0] );
+
+      // The central directory should be valid as well...
+      final ZipFile zipFile = new ZipFile( file );
+      try
+      {
+        assertNotNull( zipFile.getEntry( "data.ols" ) );
+        assertEquals( "OLS project file", zipFile.getComment() );
+      }
+      finally
+      {
+        zipFile.close();
+      }
+
+      // Make sure everything is gone...
+      this.projectManager.createNewProject();
+
+      this.projectManager.loadProject( new FileInputStream( file ) );
+
+      DataTestUtils.assertEquals( capturedData, this.projectManager.getCurrentProject().getDataSet()
+          .getCapturedData() );
+
+      file.delete();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(OutputStream, CompressionLevel, TaskProgressListener)}
+   * .
+   */
+  @Test
+  public void testSaveProjectInterruptedFail() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    project.setChanged( true );
+
+    Thread.currentThread().interrupt();
+    try
+    {
+      this.projectManager.saveProject( new ByteArrayOutputStream(), CompressionLevel.FAST, null );
+      fail( "Expected InterruptedIOException!" );
+    }
+    catch ( InterruptedIOException exception )
+    {
+      // Ok; expected...
+      assertTrue( project.isChanged() );
+    }
+    finally
+    {
+      Thread.interrupted();
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link SimpleProjectManager#saveProject(OutputStream, CompressionLevel, TaskProgressListener)}
+   * .
+   */
+  @Test
+  public void testSaveProjectKeepsChangesMadeWhileSavingOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+
+    this.projectManager.saveProject( new ByteArrayOutputStream(), CompressionLevel.FAST, new TaskProgressListener()
+    {
+      @Override
+      public void setProgress( final int aPercentage )
+      {
+        // Mimics an edit made on the EDT while saving in the background...
+        project.setName( "changedWhileSaving" );
+      }
+    } );
+
+    assertTrue( project.isChanged() );
+
+    this.projectManager.saveProject( new ByteArrayOutputStream(), CompressionLevel.FAST, null );
+
+    assertFalse( project.isChanged() );
+  }
+
+  /**
+   * Test method for
+   * {@link ProjectManagerImpl#saveProject(ProjectSnapshot, OutputStream, CompressionLevel, TaskProgressListener)}
+   * .
+   */
+  @Test
+  public void testSaveProjectSnapshotIgnoresLaterChangesOk() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( "snapshot" );
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    project.getDataSet().getChannel( 0 ).setLabel( "labelA" );
+    project.getDataSet().getChannel( 1 ).addAnnotation( new AnnotationCodec.StoredAnnotation( 1, 1L, 2L, "ann" ) );
+    project.getDataSet().getCursor( 1 ).setTimestamp( 2L );
+    project.getSettings( "test" ).put( "key", "value" );
+
+    final ProjectSnapshot snapshot = this.projectManager.createProjectSnapshot();
+    assertSame( project, snapshot.getProject() );
+
+    // Mimics edits made on the EDT while the snapshot is saved...
+    project.setName( "changed" );
+    project.getDataSet().getChannel( 0 ).setLabel( "changedLabel" );
+    project.getDataSet().getChannel( 1 ).clearAnnotations();
+    project.getDataSet().getCursor( 1 ).setTimestamp( 3L );
+    project.getSettings( "test" ).put( "key", "changedValue" );
+
+    final ByteArrayOutputStream baos = new ByteArrayOutputStream( 1024 );
+    this.projectManager.saveProject( snapshot, baos, CompressionLevel.FAST, null );
+
+    assertTrue( project.isChanged() );
+
+    this.projectManager.createNewProject();
+    this.projectManager.loadProject( new ByteArrayInputStream( baos.toByteArray() ) );
+
+    final Project loadedProject = this.projectManager.getCurrentProject();
+    assertEquals( "snapshot", loadedProject.getName() );
+    assertEquals( "labelA", loadedProject.getDataSet().getChannel( 0 ).getLabel() );
+    assertEquals( 1, loadedProject.getDataSet().getChannel( 1 ).getAnnotations().size() );
+    assertEquals( 2L, loadedProject.getDataSet().getCursor( 1 ).getTimestamp() );
+    assertEquals( "value", loadedProject.getSettings( "test" ).get( "key", null ) );
+  }
+
+  /**
+   * Saves a project with some captured data to a temporary file.
+   */
+  private File createSavedProject() throws IOException
+  {
+    final Project project = this.projectManager.getCurrentProject();
+    project.setName( "testProject" );
+    project.setCapturedData( DataTestUtils.getMockedCapturedData() );
+    project.getDataSet().getChannel( 0 ).setLabel( "labelA" );
+
+    final File file = File.createTempFile( "ols", ".olp" );
+    file.deleteOnExit();
+    new ProjectJournal( file ).getFile().deleteOnExit();
+
+    this.projectManager.saveProject( new FileOutputStream( file ) );
+    return file;
+  }
+
+  /**
+   * Loads the project from the given file, including its journal.
+   */
+  private Project loadProject( final File aFile ) throws IOException
+  {
+    this.projectManager.createNewProject();
+    this.projectManager.loadProject( new FileInputStream( aFile ) );
+    this.projectManager.loadProjectJournal( aFile );
+    return this.projectManager.getCurrentProject();
+  }
 }
@@ -30,10 +30,12 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.ui.*;
 import nl.lxtreme.ols.client.osgi.*;
 import nl.lxtreme.ols.util.*;
+import nl.lxtreme.ols.util.osgi.*;
 
 import org.apache.felix.dm.*;
 import org.osgi.framework.*;
@@ -68,7 +70,7 @@ public class Activator extends DependencyActivatorBase
      */
     public DeviceBundleAdapter()
     {
-      super( Device.class, OLS_DEVICE_CLASS_KEY );
+      super( Device.class, BundleHeaders.OLS_DEVICE_CLASS_KEY );
     }
   }
 
@@ -79,7 +81,16 @@ public class Activator extends DependencyActivatorBase
      */
     public ExporterBundleAdapter()
     {
-      super( Exporter.class, OLS_EXPORTER_CLASS_KEY );
+      super( Exporter.class, BundleHeaders.OLS_EXPORTER_CLASS_KEY );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Exporter createStub( final Dictionary<?, ?> aHeaders )
+    {
+      return LazyExporter.create( this, aHeaders );
     }
   }
 
@@ -91,30 +102,21 @@ public class Activator extends DependencyActivatorBase
      */
     public ToolBundleAdapter()
     {
-      super( Tool.class, OLS_TOOL_CLASS_KEY );
+      super( Tool.class, BundleHeaders.OLS_TOOL_CLASS_KEY );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Tool createStub( final Dictionary<?, ?> aHeaders )
+    {
+      return LazyTool.create( this, aHeaders );
     }
   }
 
   // CONSTANTS
 
-  private static final String OLS_TOOL_MAGIC_KEY = "OLS-Tool";
-  private static final String OLS_TOOL_MAGIC_VALUE = "1.0";
-  private static final String OLS_TOOL_CLASS_KEY = "OLS-ToolClass";
-  private static final String TOOL_BUNDLE_FILTER = String.format( "(&(%s=%s)(%s=*))", OLS_TOOL_MAGIC_KEY,
-      OLS_TOOL_MAGIC_VALUE, OLS_TOOL_CLASS_KEY );
-
-  private static final String OLS_DEVICE_MAGIC_KEY = "OLS-Device";
-  private static final String OLS_DEVICE_MAGIC_VALUE = "1.0";
-  private static final String OLS_DEVICE_CLASS_KEY = "OLS-DeviceClass";
-  private static final String DEVICE_BUNDLE_FILTER = String.format( "(&(%s=%s)(%s=*))", OLS_DEVICE_MAGIC_KEY,
-      OLS_DEVICE_MAGIC_VALUE, OLS_DEVICE_CLASS_KEY );
-
-  private static final String OLS_EXPORTER_MAGIC_KEY = "OLS-Exporter";
-  private static final String OLS_EXPORTER_MAGIC_VALUE = "1.0";
-  private static final String OLS_EXPORTER_CLASS_KEY = "OLS-ExporterClass";
-  private static final String EXPORTER_BUNDLE_FILTER = String.format( "(&(%s=%s)(%s=*))", OLS_EXPORTER_MAGIC_KEY,
-      OLS_EXPORTER_MAGIC_VALUE, OLS_EXPORTER_CLASS_KEY );
-
   private static final String OLS_COMPONENT_PROVIDER_MAGIC_KEY = "OLS-ComponentProvider";
   private static final String OLS_COMPONENT_PROVIDER_MAGIC_VALUE = "Menu";
   private static final String OLS_COMPONENT_PROVIDER_CLASS_KEY = "OLS-ComponentProviderClass";
@@ -160,13 +162,20 @@ public class Activator extends DependencyActivatorBase
     aManager.add( createBundleAdapterService( Bundle.ACTIVE, CP_BUNDLE_FILTER, true /* propagate */) //
         .setImplementation( ComponentProviderBundleAdapter.class ) );
 
-    aManager.add( createBundleAdapterService( Bundle.ACTIVE, TOOL_BUNDLE_FILTER, true /* propagate */) //
+    // Tool and exporter bundles can be lazily activated, in which case they
+    // remain in the starting state until they are first used...
+    final int lazyStateMask = Bundle.STARTING | Bundle.ACTIVE;
+
+    aManager.add( createBundleAdapterService( lazyStateMask, BundleHeaders.TOOL_BUNDLE_FILTER,
+        true /* propagate */) //
         .setImplementation( ToolBundleAdapter.class ) );
 
-    aManager.add( createBundleAdapterService( Bundle.ACTIVE, DEVICE_BUNDLE_FILTER, true /* propagate */) //
+    aManager.add( createBundleAdapterService( Bundle.ACTIVE, BundleHeaders.DEVICE_BUNDLE_FILTER,
+        true /* propagate */) //
         .setImplementation( DeviceBundleAdapter.class ) );
 
-    aManager.add( createBundleAdapterService( Bundle.ACTIVE, EXPORTER_BUNDLE_FILTER, true /* propagate */) //
+    aManager.add( createBundleAdapterService( lazyStateMask, BundleHeaders.EXPORTER_BUNDLE_FILTER,
+        true /* propagate */) //
         .setImplementation( ExporterBundleAdapter.class ) );
 
     Properties props = new Properties();
@@ -227,6 +236,9 @@ public class Activator extends DependencyActivatorBase
         .add( createServiceDependency() //
             .setService( UIColorSchemeManager.class ) //
             .setRequired( true ) ) //
+        .add( createServiceDependency() //
+            .setService( TaskExecutionService.class ) //
+            .setRequired( true ) ) //
         .add( createServiceDependency() //
             .setService( ComponentProvider.class, "(OLS-ComponentProvider=Menu)" ) //
             .setCallbacks( "addMenu", "removeMenu" ) //
@@ -27,6 +27,7 @@ import java.io.*;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.logging.*;
 
 import javax.swing.*;
@@ -40,6 +41,7 @@ import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.ui.*;
 import nl.lxtreme.ols.api.util.*;
@@ -47,6 +49,7 @@ import nl.lxtreme.ols.client.action.*;
 import nl.lxtreme.ols.client.actionmanager.*;
 import nl.lxtreme.ols.client.osgi.*;
 import nl.lxtreme.ols.client.signaldisplay.*;
+import nl.lxtreme.ols.client.signaldisplay.laf.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.component.*;
@@ -61,7 +64,7 @@ import org.osgi.service.cm.*;
  * Denotes a front-end controller for the client.
  */
 public final class ClientController implements ActionProvider, AcquisitionProgressListener, AcquisitionStatusListener,
-AcquisitionDataListener, AnnotationListener, PlatformCallback
+ContinuousAcquisitionDataListener, AnnotationListener, PlatformCallback
 {
   // INNER TYPES
 
@@ -249,6 +252,110 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Provides an input stream that reports the progress of reading a file, and
+   * bails out when the reading thread is interrupted.
+   */
+  final class ProgressInputStream extends FilterInputStream
+  {
+    // VARIABLES
+
+    private final long length;
+    private long position;
+    private int percentage;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ProgressInputStream instance.
+     */
+    ProgressInputStream( final InputStream aInput, final long aLength )
+    {
+      super( aInput );
+      this.length = Math.max( 1L, aLength );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean markSupported()
+    {
+      return false;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException
+    {
+      checkInterrupted();
+      final int result = super.read();
+      if ( result >= 0 )
+      {
+        advance( 1L );
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+    {
+      checkInterrupted();
+      final int result = super.read( aBuffer, aOffset, aLength );
+      if ( result > 0 )
+      {
+        advance( result );
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long skip( final long aCount ) throws IOException
+    {
+      checkInterrupted();
+      final long result = super.skip( aCount );
+      advance( result );
+      return result;
+    }
+
+    /**
+     * Advances the position, and reports the progress if it is changed.
+     */
+    private void advance( final long aCount )
+    {
+      this.position += aCount;
+
+      final int newPercentage = ( int )Math.min( 100L, ( this.position * 100L ) / this.length );
+      if ( newPercentage != this.percentage )
+      {
+        this.percentage = newPercentage;
+        ClientController.this.progressAccumulatingRunnable.add( Integer.valueOf( newPercentage ) );
+      }
+    }
+
+    /**
+     * Throws an {@link InterruptedIOException} if the current thread is
+     * interrupted.
+     */
+    private void checkInterrupted() throws InterruptedIOException
+    {
+      if ( Thread.currentThread().isInterrupted() )
+      {
+        throw new InterruptedIOException( "Reading interrupted!" );
+      }
+    }
+  }
+
   /**
    * A runnable implementation that accumulates several calls to avoid an
    * avalanche of events on the EDT.
@@ -267,10 +374,162 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Provides a task that saves the current project in the background, and
+   * reports its progress and outcome to the UI.
+   */
+  final class SaveProjectTask implements Task<File>, TaskProgressListener
+  {
+    // VARIABLES
+
+    private final Project project;
+    private final String name;
+    private final File file;
+    private final CompressionLevel level;
+    private final File oldFilename;
+    private final String oldName;
+    private final AtomicBoolean started;
+
+    private volatile ProjectSnapshot snapshot;
+    private volatile Future<File> future;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new SaveProjectTask instance.
+     */
+    SaveProjectTask( final Project aProject, final String aName, final File aFile, final CompressionLevel aLevel )
+    {
+      this.project = aProject;
+      this.name = aName;
+      this.file = aFile;
+      this.level = aLevel;
+      this.oldFilename = aProject.getFilename();
+      this.oldName = aProject.getName();
+      this.started = new AtomicBoolean( false );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File call() throws IOException
+    {
+      if ( !this.started.compareAndSet( false, true ) )
+      {
+        // Already cancelled...
+        return null;
+      }
+
+      try
+      {
+        final ProjectManager projectManager = ClientController.this.projectManager;
+        // Changes to a project that is saved to its own file are journalled,
+        // unless they can only be saved in full...
+        if ( !this.file.equals( this.oldFilename ) || !projectManager.saveProjectJournal( this.snapshot, this.file ) )
+        {
+          writeProjectFile( projectManager, this.snapshot, this.file, this.level, this );
+          // The project file now contains all journalled changes...
+          projectManager.deleteProjectJournal( this.file );
+        }
+
+        setStatusOnEDT( "Project {0} saved ...", this.name );
+
+        return this.file;
+      }
+      catch ( final IOException exception )
+      {
+        // Make sure to handle IO-interrupted exceptions properly!
+        if ( HostUtils.handleInterruptedException( exception ) )
+        {
+          cancelled();
+        }
+        else
+        {
+          LOG.log( Level.WARNING, "Saving OLS project failed!", exception );
+
+          restoreProject();
+          setStatusOnEDT( "Saving project {0} failed ...", this.name );
+
+          showErrorOnEDT( "Saving the project data failed!", exception );
+        }
+        throw exception;
+      }
+      finally
+      {
+        saveProjectEnded();
+      }
+    }
+
+    /**
+     * Cancels this task, interrupting it if it is already running.
+     */
+    void cancel()
+    {
+      if ( this.future.cancel( true /* mayInterruptIfRunning */) && this.started.compareAndSet( false, true ) )
+      {
+        // The task never started, so it cannot clean up after itself...
+        cancelled();
+        saveProjectEnded();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setProgress( final int aPercentage )
+    {
+      ClientController.this.progressAccumulatingRunnable.add( Integer.valueOf( aPercentage ) );
+    }
+
+    /**
+     * Submits this task to the given task execution service. Should be called
+     * on the EDT, as it takes the snapshot of the project that is saved, which
+     * is not affected by any edits made while saving it.
+     */
+    void start( final TaskExecutionService aExecutionService )
+    {
+      this.project.setFilename( this.file );
+      this.project.setName( this.name );
+
+      this.snapshot = ClientController.this.projectManager.createProjectSnapshot();
+
+      setStatusOnEDT( "Saving project {0} ...", this.name );
+
+      this.future = aExecutionService.execute( this );
+    }
+
+    /**
+     * Called when this task is cancelled.
+     */
+    private void cancelled()
+    {
+      restoreProject();
+      setStatusOnEDT( "Saving project {0} cancelled ...", this.name );
+    }
+
+    /**
+     * Restores the project's name and filename, as it is not saved.
+     */
+    private void restoreProject()
+    {
+      this.project.setFilename( this.oldFilename );
+      this.project.setName( this.oldName );
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( ClientController.class.getName() );
 
+  /** The maximum number of transitions retained during continuous captures. */
+  private static final int CONTINUOUS_MAX_TRANSITIONS = 1 << 20;
+  /** The maximum duration (in seconds) retained during continuous captures. */
+  private static final double CONTINUOUS_MAX_DURATION = 0.0;
+
   // VARIABLES
 
   private final BundleContext bundleContext;
@@ -289,8 +548,12 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
   private volatile MainFrame mainFrame;
   private volatile HostProperties hostProperties;
   private volatile UIColorSchemeManager colorSchemeManager;
+  private volatile TaskExecutionService taskExecutionService;
 
   private volatile long acquisitionStartTime;
+  private volatile SaveProjectTask saveProjectTask;
+  private volatile Future<Project> loadProjectFuture;
+  private volatile Task<Project> loadProjectTask;
 
   // CONSTRUCTORS
 
@@ -353,6 +616,36 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquisitionDataAppended( final AcquisitionResult aData, final long aAppendedFrom )
+  {
+    try
+    {
+      getCurrentProject().appendCapturedData( aData );
+
+      // Let the view follow the most recently appended data...
+      SwingComponentUtils.invokeOnEDT( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          getSignalDiagramController().scrollToTimestamp( aData.getAbsoluteLength() );
+        }
+      } );
+    }
+    catch ( Exception exception )
+    {
+      exception.printStackTrace();
+    }
+    finally
+    {
+      updateActionsOnEDT();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -418,7 +711,9 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
   /**
    * Adds a given exporter to this controller.
    * <p>
-   * This method is called by the dependency manager.
+   * This method is called by the dependency manager. The given exporter can be
+   * a {@link LazyExporter} stub, whose real exporter (and bundle) is only
+   * activated upon its first export.
    * </p>
    *
    * @param aExporter
@@ -468,7 +763,9 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
   /**
    * Adds a given tool to this controller.
    * <p>
-   * This method is called by the dependency manager.
+   * This method is called by the dependency manager. The given tool can be a
+   * {@link LazyTool} stub, whose real tool (and bundle) is only activated upon
+   * its first invocation.
    * </p>
    *
    * @param aTool
@@ -518,6 +815,18 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Cancels the project save that is running in the background, if any.
+   */
+  public void cancelSaveProject()
+  {
+    final SaveProjectTask task = this.saveProjectTask;
+    if ( task != null )
+    {
+      task.cancel();
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -534,6 +843,9 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     {
       if ( device.setupCapture( aParent ) )
       {
+        // The acquired data replaces whatever is still being loaded...
+        cancelLoadProject();
+
         setStatusOnEDT( "Capture from {0} started at {1,date,medium} {1,time,medium} ...", device.getName(), new Date() );
 
         acquisitionService.acquireData( device );
@@ -570,6 +882,8 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     {
       channel.clearAnnotations();
     }
+    // Annotations are stored in the project...
+    getCurrentProject().setChanged( true );
 
     repaintMainFrame();
   }
@@ -582,6 +896,8 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
   {
     final Channel channel = getChannel( aChannelIdx );
     channel.clearAnnotations();
+    // Annotations are stored in the project...
+    getCurrentProject().setChanged( true );
 
     repaintMainFrame();
   }
@@ -591,6 +907,8 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
    */
   public void createNewProject()
   {
+    cancelLoadProject();
+
     this.projectManager.createNewProject();
 
     if ( this.mainFrame != null )
@@ -945,6 +1263,12 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
     else
     {
+      if ( !ToolCategory.OTHER.equals( tool.getCategory() ) )
+      {
+        // Tools should not analyse (or annotate) partially loaded data...
+        cancelLoadProject();
+      }
+
       final ToolContext context = createToolContext();
       tool.invoke( aParent, context );
     }
@@ -971,6 +1295,28 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     return isDeviceSelected() && getDevice().isSetup();
   }
 
+  /**
+   * Returns whether or not a project is being loaded in the background.
+   *
+   * @return <code>true</code> if the project is being loaded,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isLoadingProject()
+  {
+    return this.loadProjectTask != null;
+  }
+
+  /**
+   * Returns whether or not a project save is running in the background.
+   *
+   * @return <code>true</code> if the project is being saved,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isSavingProject()
+  {
+    return this.saveProjectTask != null;
+  }
+
   /**
    * Returns whether or not the current project is changed.
    *
@@ -995,6 +1341,8 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
   {
     final Channel channel = getChannel( aAnnotation.getChannel() );
     channel.addAnnotation( aAnnotation );
+    // Annotations are stored in the project; only the first one fires an event...
+    getCurrentProject().setChanged( true );
 
     // Accumulate repaint events to avoid an avalanche of events on the EDT...
     this.repaintAccumulatingRunnable.add( ( Void )null );
@@ -1027,34 +1375,75 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
 
   /**
    * Opens a given file as OLS-project file.
+   * <p>
+   * The project is loaded in the background; failures while loading are
+   * reported by this controller itself.
+   * </p>
    *
    * @param aFile
    *          the file to open, cannot be <code>null</code>.
    * @throws IOException
-   *           in case opening/reading from the given file failed.
+   *           in case opening the given file failed.
    */
   public void openProjectFile( final File aFile ) throws IOException
   {
-    FileInputStream fis = null;
+    cancelLoadProject();
 
-    try
+    final InputStream input = new ProgressInputStream( new FileInputStream( aFile ), aFile.length() );
+
+    setStatusOnEDT( "Loading project {0} ...", aFile.getName() );
+
+    // The project becomes visible as soon as its metadata is read, while its
+    // capture data is loaded in the background...
+    final Task<Project> task = new Task<Project>()
     {
-      fis = new FileInputStream( aFile );
+      @Override
+      public Project call() throws IOException
+      {
+        try
+        {
+          ClientController.this.projectManager.loadProject( input );
+          ClientController.this.projectManager.loadProjectJournal( aFile );
 
-      this.projectManager.loadProject( fis );
+          final Project project = getCurrentProject();
+          project.setFilename( aFile );
 
-      final Project project = getCurrentProject();
-      project.setFilename( aFile );
+          setStatusOnEDT( "Project {0} loaded ...", project.getName() );
 
-      setStatusOnEDT( "Project {0} loaded ...", project.getName() );
-    }
-    finally
-    {
-      HostUtils.closeResource( fis );
-      updateActionsOnEDT();
-    }
+          return project;
+        }
+        catch ( final IOException exception )
+        {
+          // Make sure to handle IO-interrupted exceptions properly!
+          if ( HostUtils.handleInterruptedException( exception ) )
+          {
+            setStatusOnEDT( "Loading project {0} cancelled ...", aFile.getName() );
+          }
+          else
+          {
+            LOG.log( Level.WARNING, "Loading OLS project failed!", exception );
+
+            setStatusOnEDT( "Loading project {0} failed ...", aFile.getName() );
+            showErrorOnEDT( "Loading the project data failed!", exception );
+          }
+          throw exception;
+        }
+        finally
+        {
+          HostUtils.closeResource( input );
+
+          loadProjectEnded( this );
+        }
+      }
+    };
+
+    this.loadProjectTask = task;
+    this.loadProjectFuture = this.taskExecutionService.execute( task );
+
+    updateActionsOnEDT();
   }
 
+
   /**
    * Removes a given device from this controller.
    * <p>
@@ -1175,6 +1564,45 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Starts a continuous acquisition with the current device and with its
+   * current settings. The acquisition runs until it is cancelled.
+   */
+  public void captureDataContinuously()
+  {
+    final DataAcquisitionService acquisitionService = getDataAcquisitionService();
+    final Device devCtrl = getDevice();
+
+    if ( ( devCtrl == null ) || ( acquisitionService == null ) )
+    {
+      return;
+    }
+
+    // The acquired data replaces whatever is still being loaded...
+    cancelLoadProject();
+
+    try
+    {
+      setStatusOnEDT( "Continuous capture from {0} started at {1,date,medium} {1,time,medium} ...", devCtrl.getName(),
+          new Date() );
+
+      acquisitionService.acquireDataContinuously( devCtrl, CONTINUOUS_MAX_DURATION, CONTINUOUS_MAX_TRANSITIONS );
+    }
+    catch ( final IOException exception )
+    {
+      setStatusOnEDT( "I/O problem: " + exception.getMessage() );
+
+      exception.printStackTrace();
+
+      // Make sure to handle IO-interrupted exceptions properly!
+      HostUtils.handleInterruptedException( exception );
+    }
+    finally
+    {
+      updateActionsOnEDT();
+    }
+  }
+
   /**
    * Restarts a new acquisition with the current device and with its current
    * settings.
@@ -1189,6 +1617,9 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
       return;
     }
 
+    // The acquired data replaces whatever is still being loaded...
+    cancelLoadProject();
+
     try
     {
       setStatusOnEDT( "Capture from {0} started at {1,date,medium} {1,time,medium} ...", devCtrl.getName(), new Date() );
@@ -1237,32 +1668,41 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
   /**
    * Stores the current acquisition data to the given file, in the OLS-project
    * file format.
+   * <p>
+   * The project is saved in the background, using the compression level from
+   * the preferences. It is written to a temporary file first, which replaces
+   * the given file only after it is completely written, so a failed or
+   * cancelled save never corrupts an existing project file.
+   * </p>
+   * <p>
+   * When a project is saved to the file it was loaded from (or last saved to),
+   * changes that do not involve its captured data are only appended to the
+   * journal of that file, which is much cheaper for large captures.
+   * </p>
    *
    * @param aName
    *          the name of the project to store, cannot be <code>null</code>;
    * @param aFile
    *          the file to write the data to, cannot be <code>null</code>.
-   * @throws IOException
-   *           in case of errors during opening/writing to the file.
+   * @see #cancelSaveProject()
    */
-  public void saveProjectFile( final String aName, final File aFile ) throws IOException
+  public void saveProjectFile( final String aName, final File aFile )
   {
-    FileOutputStream out = null;
-    try
+    if ( isSavingProject() )
     {
-      final Project project = getCurrentProject();
-      project.setFilename( aFile );
-      project.setName( aName );
+      setStatusOnEDT( "Project is already being saved ..." );
+      return;
+    }
 
-      out = new FileOutputStream( aFile );
-      this.projectManager.saveProject( out );
+    final CompressionLevel level = CompressionLevel.parse( UIManager
+        .getString( UIManagerKeys.PROJECT_COMPRESSION_LEVEL ) );
 
-      setStatusOnEDT( "Project {0} saved ...", aName );
-    }
-    finally
-    {
-      HostUtils.closeResource( out );
-    }
+    final SaveProjectTask task = new SaveProjectTask( getCurrentProject(), aName, aFile, level );
+    this.saveProjectTask = task;
+
+    task.start( this.taskExecutionService );
+
+    updateActionsOnEDT();
   }
 
   /**
@@ -1590,6 +2030,38 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     }
   }
 
+  /**
+   * Called when a project load has ended, either normally, by failure or by
+   * cancellation.
+   *
+   * @param aTask
+   *          the task that has loaded the project, cannot be <code>null</code>.
+   */
+  final void loadProjectEnded( final Task<Project> aTask )
+  {
+    // Leave a newer load alone...
+    if ( this.loadProjectTask == aTask )
+    {
+      this.loadProjectTask = null;
+      this.loadProjectFuture = null;
+    }
+
+    this.progressAccumulatingRunnable.add( Integer.valueOf( 0 ) );
+    updateActionsOnEDT();
+  }
+
+  /**
+   * Called when a project save has ended, either normally, by failure or by
+   * cancellation.
+   */
+  final void saveProjectEnded()
+  {
+    this.saveProjectTask = null;
+
+    this.progressAccumulatingRunnable.add( Integer.valueOf( 0 ) );
+    updateActionsOnEDT();
+  }
+
   /**
    * Updates the actions on the EventDispatchThread (EDT).
    */
@@ -1611,6 +2083,7 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         getAction( CaptureAction.ID ).setEnabled( deviceControllerSet );
         getAction( CancelCaptureAction.ID ).setEnabled( deviceCapturing );
         getAction( RepeatCaptureAction.ID ).setEnabled( deviceSetup );
+        getAction( ContinuousCaptureAction.ID ).setEnabled( deviceSetup );
 
         final boolean projectChanged = isProjectChanged();
         final boolean projectSavedBefore = !isAnonymousProject();
@@ -1619,9 +2092,17 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         final boolean cursorsEnabled = areCursorsEnabled();
         final boolean enableCursors = dataAvailable && cursorsEnabled;
 
-        getAction( SaveProjectAction.ID ).setEnabled( projectChanged );
-        getAction( SaveProjectAsAction.ID ).setEnabled( projectSavedBefore && projectChanged );
-        getAction( SaveDataFileAction.ID ).setEnabled( dataAvailable );
+        final boolean savingProject = isSavingProject();
+        // Actions that change (or store) the captured data are to wait until
+        // the project is completely loaded...
+        final boolean loadingProject = isLoadingProject();
+        final boolean dataComplete = dataAvailable && !loadingProject;
+
+        getAction( SaveProjectAction.ID ).setEnabled( projectChanged && !savingProject && !loadingProject );
+        getAction( SaveProjectAsAction.ID ).setEnabled( projectSavedBefore && projectChanged && !savingProject
+            && !loadingProject );
+        getAction( CancelSaveProjectAction.ID ).setEnabled( savingProject );
+        getAction( SaveDataFileAction.ID ).setEnabled( dataComplete );
 
         getAction( GotoTriggerAction.ID ).setEnabled( dataAvailable && hasTriggerData );
 
@@ -1649,7 +2130,7 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         getAction( GotoLastCursorAction.ID ).setEnabled( enableCursors && anyCursorSet );
 
         getAction( DeleteAllCursorsAction.ID ).setEnabled( enableCursors && anyCursorSet );
-        getAction( RemoveAnnotationsAction.ID ).setEnabled( dataAvailable );
+        getAction( RemoveAnnotationsAction.ID ).setEnabled( dataComplete );
 
         getAction( SetMeasurementModeAction.ID ).setEnabled( timingDataPresent && dataAvailable );
         getAction( ShowManagerViewAction.ID ).setEnabled( dataAvailable );
@@ -1660,7 +2141,7 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         {
           if ( !ToolCategory.OTHER.equals( ( ( RunToolAction )toolAction ).getCategory() ) )
           {
-            toolAction.setEnabled( dataAvailable );
+            toolAction.setEnabled( dataComplete );
           }
         }
 
@@ -1668,7 +2149,7 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
         final IManagedAction[] exportActions = getActionsByType( ExportAction.class );
         for ( final IManagedAction exportAction : exportActions )
         {
-          exportAction.setEnabled( dataAvailable );
+          exportAction.setEnabled( dataComplete );
         }
 
         getAction( ZoomAllAction.ID ).setEnabled( timingDataPresent );
@@ -1781,6 +2262,22 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
     return cursor.isDefined();
   }
 
+  /**
+   * Cancels the loading of a project, if any.
+   */
+  private void cancelLoadProject()
+  {
+    final Future<Project> future = this.loadProjectFuture;
+    if ( future != null )
+    {
+      future.cancel( true /* mayInterruptIfRunning */);
+      this.loadProjectFuture = null;
+    }
+    this.loadProjectTask = null;
+
+    updateActionsOnEDT();
+  }
+
   /**
    * Creates the tool context denoting the range of samples that should be
    * analysed by a tool.
@@ -1971,4 +2468,80 @@ AcquisitionDataListener, AnnotationListener, PlatformCallback
       }
     }
   }
+  /**
+   * Shows an error dialog for the given exception on the EDT.
+   */
+  private void showErrorOnEDT( final String aMessage, final Exception aException )
+  {
+    SwingComponentUtils.invokeOnEDT( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        JErrorDialog.showDialog( getMainFrame(), aMessage, aException );
+      }
+    } );
+  }
+
+
+  /**
+   * Replaces the given target file with the given source file.
+   */
+  private static void replaceFile( final File aSource, final File aTarget ) throws IOException
+  {
+    if ( aSource.renameTo( aTarget ) )
+    {
+      return;
+    }
+
+    // Some platforms (e.g., Windows) refuse to rename onto an existing file, so
+    // move the existing file out of the way first...
+    final File backup = new File( aTarget.getPath().concat( ".bak" ) );
+    if ( backup.exists() && !backup.delete() )
+    {
+      throw new IOException( "Failed to delete " + backup + "!" );
+    }
+    if ( !aTarget.renameTo( backup ) )
+    {
+      throw new IOException( "Failed to replace " + aTarget + "!" );
+    }
+    if ( !aSource.renameTo( aTarget ) )
+    {
+      backup.renameTo( aTarget );
+      throw new IOException( "Failed to replace " + aTarget + "!" );
+    }
+    backup.delete();
+  }
+
+  /**
+   * Writes the given snapshot of a project to a temporary file, which replaces
+   * the given file once it is completely written.
+   */
+  private static void writeProjectFile( final ProjectManager aProjectManager, final ProjectSnapshot aSnapshot,
+      final File aFile, final CompressionLevel aLevel, final TaskProgressListener aProgressListener )
+      throws IOException
+  {
+    final File file = aFile.getAbsoluteFile();
+    final File tempFile = File.createTempFile( ".ols", ".tmp", file.getParentFile() );
+
+    boolean replaced = false;
+    FileOutputStream out = null;
+    try
+    {
+      out = new FileOutputStream( tempFile );
+      aProjectManager.saveProject( aSnapshot, out, aLevel, aProgressListener );
+      out.close();
+
+      replaceFile( tempFile, file );
+      replaced = true;
+    }
+    finally
+    {
+      HostUtils.closeResource( out );
+      if ( !replaced )
+      {
+        tempFile.delete();
+      }
+    }
+  }
 }
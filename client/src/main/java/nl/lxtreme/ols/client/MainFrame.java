@@ -883,6 +883,27 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
         }
       } );
     }
+    else if ( "capturedDataAppended".equals( propertyName ) )
+    {
+      final DataSet dataSet = ( DataSet )aEvent.getNewValue();
+
+      SwingComponentUtils.invokeOnEDT( new Runnable()
+      {
+        @Override
+        public void run()
+        {
+          if ( MainFrame.this.viewController.getViewComponent() == null )
+          {
+            updateViewData( dataSet );
+          }
+          else
+          {
+            // Only the length of the data is changed, keep the current view...
+            MainFrame.this.viewController.appendDataModel( dataSet );
+          }
+        }
+      } );
+    }
 
     this.controller.updateActionsOnEDT();
   }
@@ -1018,6 +1039,7 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
     fileMenu.add( this.controller.getAction( OpenProjectAction.ID ) );
     fileMenu.add( this.controller.getAction( SaveProjectAction.ID ) );
     fileMenu.add( this.controller.getAction( SaveProjectAsAction.ID ) );
+    fileMenu.add( this.controller.getAction( CancelSaveProjectAction.ID ) );
     fileMenu.addSeparator();
     fileMenu.add( this.controller.getAction( OpenDataFileAction.ID ) );
     fileMenu.add( this.controller.getAction( SaveDataFileAction.ID ) );
@@ -1047,6 +1069,7 @@ public final class MainFrame extends JFrame implements Closeable, PropertyChange
 
     captureMenu.add( this.controller.getAction( CaptureAction.ID ) );
     captureMenu.add( this.controller.getAction( RepeatCaptureAction.ID ) );
+    captureMenu.add( this.controller.getAction( ContinuousCaptureAction.ID ) );
     captureMenu.add( this.controller.getAction( CancelCaptureAction.ID ) );
     captureMenu.addSeparator();
     captureMenu.add( this.deviceMenu );
@@ -33,6 +33,7 @@ import javax.swing.*;
 
 import org.osgi.service.cm.*;
 
+import nl.lxtreme.ols.api.data.project.*;
 import nl.lxtreme.ols.client.osgi.*;
 import nl.lxtreme.ols.client.signaldisplay.model.SignalDiagramModel.SignalAlignment;
 import nl.lxtreme.ols.util.*;
@@ -152,6 +153,11 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
   private final JComboBox annotationAlignment;
   private final JComboBox signalAlignment;
   private final JComboBox colorScheme;
+  private final JComboBox projectCompression;
+  private final JCheckBox csvCursorRange;
+  private final JTextField csvChannels;
+  private final JSpinner csvBusWidth;
+  private final JSpinner imagePixelsPerSample;
 
   private volatile boolean dialogResult;
   private volatile ConfigurationAdmin configAdmin;
@@ -208,6 +214,21 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
 
     this.colorScheme = new JComboBox( new ColorSchemeModel() );
     this.colorScheme.setToolTipText( "What color scheme is to be used. Will be applied immediately." );
+
+    this.projectCompression = new JComboBox( CompressionLevel.values() );
+    this.projectCompression.setToolTipText( "How well project files are compressed; better compression makes saving slower. Will be applied immediately." );
+
+    this.csvCursorRange = new JCheckBox();
+    this.csvCursorRange.setToolTipText( "Whether or not only the samples between the first and last cursor are exported. Will be applied immediately." );
+
+    this.csvChannels = new JTextField( 10 );
+    this.csvChannels.setToolTipText( "The channels to export, for example \"0-7,12\", or \"all\" for all channels. Will be applied immediately." );
+
+    this.csvBusWidth = new JSpinner( new SpinnerNumberModel( 0, 0, 64, 1 ) );
+    this.csvBusWidth.setToolTipText( "The number of channels to export as a single hexadecimal bus column, or 0 to export each channel in its own column. Will be applied immediately." );
+
+    this.imagePixelsPerSample = new JSpinner( new SpinnerNumberModel( 0.0, 0.0, 100.0, 0.5 ) );
+    this.imagePixelsPerSample.setToolTipText( "The horizontal scale to render the complete capture with, or 0 to export the visible part of the diagram. Will be applied immediately." );
     // @formatter:on
 
     buildDialog();
@@ -285,6 +306,15 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
     this.signalAlignment.setSelectedItem( getSignalAlignment( properties.get( SIGNALVIEW_SIGNAL_ALIGNMENT ) ) );
     this.annotationAlignment.setSelectedItem( getSignalAlignment( properties.get( SIGNALVIEW_ANNOTATION_ALIGNMENT ) ) );
     this.colorScheme.setSelectedItem( String.valueOf( properties.get( COLOR_SCHEME ) ) );
+    this.projectCompression.setSelectedItem( CompressionLevel.parse( String.valueOf( properties
+        .get( PROJECT_COMPRESSION_LEVEL ) ) ) );
+
+    this.csvCursorRange.setSelected( getBoolean( properties.get( EXPORT_CSV_CURSOR_RANGE ) ) );
+    this.csvChannels.setText( getString( properties.get( EXPORT_CSV_CHANNELS ), "all" ) );
+    this.csvBusWidth.setValue( Integer.valueOf( getInt( properties.get( EXPORT_CSV_BUS_WIDTH ), 0 ) ) );
+
+    this.imagePixelsPerSample.setValue( Double.valueOf( getDouble( properties.get( EXPORT_IMAGE_PIXELS_PER_SAMPLE ),
+        0.0 ) ) );
   }
 
   /**
@@ -345,6 +375,14 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
 
     properties.put( SIGNALVIEW_SIGNAL_ALIGNMENT, String.valueOf( this.signalAlignment.getSelectedItem() ) );
     properties.put( SIGNALVIEW_ANNOTATION_ALIGNMENT, String.valueOf( this.annotationAlignment.getSelectedItem() ) );
+    properties.put( PROJECT_COMPRESSION_LEVEL, String.valueOf( this.projectCompression.getSelectedItem() ) );
+
+    properties.put( EXPORT_CSV_CURSOR_RANGE, Boolean.toString( this.csvCursorRange.isSelected() ) );
+    // An empty value is not applied at all, hence the explicit "all"...
+    properties.put( EXPORT_CSV_CHANNELS, getString( this.csvChannels.getText(), "all" ) );
+    properties.put( EXPORT_CSV_BUS_WIDTH, String.valueOf( this.csvBusWidth.getValue() ) );
+
+    properties.put( EXPORT_IMAGE_PIXELS_PER_SAMPLE, String.valueOf( this.imagePixelsPerSample.getValue() ) );
 
     String colorScheme = ( String )this.colorScheme.getSelectedItem();
     if ( colorScheme != null )
@@ -425,6 +463,27 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
     pane.add( createRightAlignedLabel( "Default scheme" ) );
     pane.add( this.colorScheme );
 
+    addSeparator( pane, "Project files" );
+
+    pane.add( createRightAlignedLabel( "Compression" ) );
+    pane.add( this.projectCompression );
+
+    addSeparator( pane, "CSV export" );
+
+    pane.add( createRightAlignedLabel( "Cursor range only?" ) );
+    pane.add( this.csvCursorRange );
+
+    pane.add( createRightAlignedLabel( "Channels" ) );
+    pane.add( this.csvChannels );
+
+    pane.add( createRightAlignedLabel( "Bus width" ) );
+    pane.add( this.csvBusWidth );
+
+    addSeparator( pane, "Image export" );
+
+    pane.add( createRightAlignedLabel( "Pixels per sample" ) );
+    pane.add( this.imagePixelsPerSample );
+
     makeEditorGrid( pane, 10, 10 );
     return pane;
   }
@@ -446,6 +505,58 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
     return Boolean.parseBoolean( String.valueOf( aValue ) );
   }
 
+  /**
+   * Returns the double value for the given value representation.
+   *
+   * @param aValue
+   *          the value to parse as double, can be <code>null</code>;
+   * @param aDefault
+   *          the default value to return in case the given value is not a
+   *          valid double.
+   * @return a double representation for the given value.
+   */
+  private double getDouble( final Object aValue, final double aDefault )
+  {
+    if ( aValue instanceof Number )
+    {
+      return ( ( Number )aValue ).doubleValue();
+    }
+    try
+    {
+      return Double.parseDouble( String.valueOf( aValue ).trim() );
+    }
+    catch ( NumberFormatException exception )
+    {
+      return aDefault;
+    }
+  }
+
+  /**
+   * Returns the integer value for the given value representation.
+   *
+   * @param aValue
+   *          the value to parse as integer, can be <code>null</code>;
+   * @param aDefault
+   *          the default value to return in case the given value is not a
+   *          valid integer.
+   * @return an integer representation for the given value.
+   */
+  private int getInt( final Object aValue, final int aDefault )
+  {
+    if ( aValue instanceof Number )
+    {
+      return ( ( Number )aValue ).intValue();
+    }
+    try
+    {
+      return Integer.parseInt( String.valueOf( aValue ).trim() );
+    }
+    catch ( NumberFormatException exception )
+    {
+      return aDefault;
+    }
+  }
+
   /**
    * Returns the {@link SignalAlignment} for the given value representation.
    *
@@ -464,6 +575,26 @@ public class PreferencesDialog extends JDialog implements StatusAwareCloseableDi
     return SignalAlignment.valueOf( aValue.toString().toUpperCase() );
   }
 
+  /**
+   * Returns the string value for the given value representation.
+   *
+   * @param aValue
+   *          the value to return as string, can be <code>null</code>;
+   * @param aDefault
+   *          the default value to return in case the given value is
+   *          <code>null</code> or empty.
+   * @return a trimmed string representation for the given value.
+   */
+  private String getString( final Object aValue, final String aDefault )
+  {
+    final String value = ( aValue == null ) ? "" : aValue.toString().trim();
+    if ( "".equals( value ) )
+    {
+      return aDefault;
+    }
+    return value;
+  }
+
   /**
    * Purges the current color scheme from the given dictionary.
    *
@@ -29,7 +29,6 @@ import java.util.logging.*;
 import nl.lxtreme.ols.client.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
-import nl.lxtreme.ols.util.swing.component.*;
 
 
 /**
@@ -151,19 +150,9 @@ public class SaveProjectAction extends BaseAction
     final String projectName = HostUtils.stripFileExtension( aFile, OpenDataFileAction.OLS_FILE_EXTENSION,
         OpenProjectAction.OLS_PROJECT_EXTENSION );
 
-    try
-    {
-      getController().saveProjectFile( projectName, aFile );
-    }
-    catch ( IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "Saving OLS project failed!", exception );
-        JErrorDialog.showDialog( aOwner, "Saving the project data failed!", exception );
-      }
-    }
+    // Saves the project in the background; failures are reported by the
+    // controller itself...
+    getController().saveProjectFile( projectName, aFile );
   }
 
   /**
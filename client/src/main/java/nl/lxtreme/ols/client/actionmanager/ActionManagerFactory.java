@@ -62,6 +62,7 @@ public final class ActionManagerFactory
     aActionManager.add( new OpenProjectAction( aController ) );
     aActionManager.add( new SaveProjectAction( aController ) ).setEnabled( false );
     aActionManager.add( new SaveProjectAsAction( aController ) ).setEnabled( false );
+    aActionManager.add( new CancelSaveProjectAction( aController ) ).setEnabled( false );
     aActionManager.add( new OpenDataFileAction( aController ) );
     aActionManager.add( new SaveDataFileAction( aController ) ).setEnabled( false );
     aActionManager.add( new ExitAction( aController ) );
@@ -69,6 +70,7 @@ public final class ActionManagerFactory
     aActionManager.add( new CaptureAction( aController ) ).setEnabled( false );
     aActionManager.add( new CancelCaptureAction( aController ) ).setEnabled( false );
     aActionManager.add( new RepeatCaptureAction( aController ) ).setEnabled( false );
+    aActionManager.add( new ContinuousCaptureAction( aController ) ).setEnabled( false );
 
     aActionManager.add( new ZoomInAction( signalDiagramController ) ).setEnabled( false );
     aActionManager.add( new ZoomOutAction( signalDiagramController ) ).setEnabled( false );
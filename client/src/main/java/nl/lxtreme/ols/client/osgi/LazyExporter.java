@@ -0,0 +1,129 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.osgi;
+
+
+import java.io.*;
+import java.util.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.util.osgi.*;
+
+
+/**
+ * Provides a stub for an exporter, whose name and file name extensions are
+ * declared in the manifest of its bundle. The real exporter is only
+ * instantiated upon its first export.
+ */
+public final class LazyExporter implements Exporter
+{
+  // CONSTANTS
+
+  /** The manifest header with the name of the exporter. */
+  public static final String OLS_EXPORTER_NAME_KEY = "OLS-ExporterName";
+  /** The manifest header with the (comma-separated) file name extensions. */
+  public static final String OLS_EXPORTER_EXTENSIONS_KEY = "OLS-ExporterExtensions";
+
+  // VARIABLES
+
+  private final GenericBundleAdapter<Exporter> adapter;
+  private final String name;
+  private final String[] extensions;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new LazyExporter instance.
+   */
+  private LazyExporter( final GenericBundleAdapter<Exporter> aAdapter, final String aName, final String[] aExtensions )
+  {
+    this.adapter = aAdapter;
+    this.name = aName;
+    this.extensions = aExtensions;
+  }
+
+  // METHODS
+
+  /**
+   * Creates a new stub for the exporter described by the given manifest
+   * headers.
+   * 
+   * @param aAdapter
+   *          the bundle adapter that provides the real exporter, cannot be
+   *          <code>null</code>;
+   * @param aHeaders
+   *          the manifest headers of the exporter bundle, cannot be
+   *          <code>null</code>.
+   * @return a new stub, or <code>null</code> if the headers do not describe
+   *         the exporter.
+   */
+  public static LazyExporter create( final GenericBundleAdapter<Exporter> aAdapter, final Dictionary<?, ?> aHeaders )
+  {
+    final Object name = aHeaders.get( OLS_EXPORTER_NAME_KEY );
+    final Object extensions = aHeaders.get( OLS_EXPORTER_EXTENSIONS_KEY );
+    if ( ( name == null ) || "".equals( name.toString().trim() ) || ( extensions == null ) )
+    {
+      return null;
+    }
+
+    final List<String> exts = new ArrayList<String>();
+    for ( String ext : extensions.toString().split( "," ) )
+    {
+      if ( !"".equals( ext.trim() ) )
+      {
+        exts.add( ext.trim() );
+      }
+    }
+
+    return new LazyExporter( aAdapter, name.toString().trim(), exts.toArray( new String[exts.size()] ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
+      throws IOException
+  {
+    this.adapter.getService().export( aDataSet, aComponent, aStream );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String[] getFilenameExtentions()
+  {
+    return this.extensions.clone();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return this.name;
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.client.osgi;
+
+
+import java.awt.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.util.osgi.*;
+
+
+/**
+ * Provides a stub for a tool, whose name and category are declared in the
+ * manifest of its bundle. The real tool is only instantiated upon its first
+ * invocation.
+ */
+@SuppressWarnings( "rawtypes" )
+public final class LazyTool implements Tool
+{
+  // CONSTANTS
+
+  /** The manifest header with the name of the tool. */
+  public static final String OLS_TOOL_NAME_KEY = "OLS-ToolName";
+  /** The manifest header with the category of the tool. */
+  public static final String OLS_TOOL_CATEGORY_KEY = "OLS-ToolCategory";
+
+  // VARIABLES
+
+  private final GenericBundleAdapter<Tool> adapter;
+  private final String name;
+  private final ToolCategory category;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new LazyTool instance.
+   */
+  private LazyTool( final GenericBundleAdapter<Tool> aAdapter, final String aName, final ToolCategory aCategory )
+  {
+    this.adapter = aAdapter;
+    this.name = aName;
+    this.category = aCategory;
+  }
+
+  // METHODS
+
+  /**
+   * Creates a new stub for the tool described by the given manifest headers.
+   * 
+   * @param aAdapter
+   *          the bundle adapter that provides the real tool, cannot be
+   *          <code>null</code>;
+   * @param aHeaders
+   *          the manifest headers of the tool bundle, cannot be
+   *          <code>null</code>.
+   * @return a new stub, or <code>null</code> if the headers do not describe
+   *         the tool.
+   */
+  public static LazyTool create( final GenericBundleAdapter<Tool> aAdapter, final Dictionary<?, ?> aHeaders )
+  {
+    final Object name = aHeaders.get( OLS_TOOL_NAME_KEY );
+    if ( ( name == null ) || "".equals( name.toString().trim() ) )
+    {
+      return null;
+    }
+
+    ToolCategory category = ToolCategory.OTHER;
+
+    final Object categoryName = aHeaders.get( OLS_TOOL_CATEGORY_KEY );
+    if ( categoryName != null )
+    {
+      try
+      {
+        category = ToolCategory.valueOf( categoryName.toString().trim().toUpperCase() );
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        // Keep the default category...
+      }
+    }
+
+    return new LazyTool( aAdapter, name.toString().trim(), category );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ToolTask createToolTask( final ToolContext aContext, final ToolProgressListener aProgressListener,
+      final AnnotationListener aAnnotationListener )
+  {
+    return getTool().createToolTask( aContext, aProgressListener, aAnnotationListener );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ToolCategory getCategory()
+  {
+    return this.category;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void invoke( final Window aParent, final ToolContext aContext )
+  {
+    getTool().invoke( aParent, aContext );
+  }
+
+  /**
+   * @return the real tool, never <code>null</code>.
+   */
+  private Tool getTool()
+  {
+    return this.adapter.getService();
+  }
+}
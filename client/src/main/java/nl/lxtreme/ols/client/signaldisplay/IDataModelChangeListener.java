@@ -32,6 +32,16 @@ public interface IDataModelChangeListener extends EventListener
 {
   // METHODS
 
+  /**
+   * Called when new samples are appended to the captured data of a continuous
+   * acquisition, without any change to its channel layout.
+   * 
+   * @param aDataSet
+   *          the data set containing the grown captured data, never
+   *          <code>null</code>.
+   */
+  void dataAppended( DataSet aDataSet );
+
   /**
    * Called when the acquisition is finished and the captured data is available.
    * 
@@ -130,6 +130,30 @@ public final class SignalDiagramController implements ZoomListener
     getViewModel().addPropertyChangeListener( aListener );
   }
 
+  /**
+   * Appends new samples to the data model of this controller, keeping the
+   * current view component and only updating its dimensions.
+   *
+   * @param aDataSet
+   *          the data set to set, cannot be <code>null</code>.
+   */
+  public void appendDataModel( final DataSet aDataSet )
+  {
+    getViewModel().appendDataModel( aDataSet );
+
+    SwingComponentUtils.invokeOnEDT( new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        // Resize the view to the new length of the data...
+        getZoomController().restoreZoomLevel();
+
+        getViewComponent().repaint( 50L );
+      }
+    } );
+  }
+
   /**
    * Returns the current value of actionManager.
    *
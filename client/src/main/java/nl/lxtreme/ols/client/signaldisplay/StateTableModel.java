@@ -27,6 +27,7 @@ import javax.swing.event.*;
 import javax.swing.table.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.client.*;
 import nl.lxtreme.ols.client.signaldisplay.model.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.*;
@@ -44,7 +45,7 @@ class StateTableModel extends AbstractTableModel
 
   // VARIABLES
 
-  private final int[] values;
+  private final int[][] values;
   private final long[] timestamps;
   private final List<ElementGroup> groups;
   private final Radix[] viewModes;
@@ -57,7 +58,11 @@ class StateTableModel extends AbstractTableModel
   public StateTableModel( final SignalDiagramModel aModel )
   {
     AcquisitionResult capturedData = aModel.getCapturedData();
-    this.values = capturedData.getValues();
+    this.values = new int[ChannelAccessor.getPlaneCount( capturedData )][];
+    for ( int plane = 0; plane < this.values.length; plane++ )
+    {
+      this.values[plane] = ChannelAccessor.getValues( capturedData, plane );
+    }
     this.timestamps = capturedData.getTimestamps();
 
     SignalElementManager sem = aModel.getSignalElementManager();
@@ -171,7 +176,9 @@ class StateTableModel extends AbstractTableModel
       return null;
     }
 
-    return Integer.valueOf( this.groups.get( groupIdx ).getValue( this.values[aRowIndex] ) );
+    final ElementGroup group = this.groups.get( groupIdx );
+    final int plane = Math.min( group.getPlane(), this.values.length - 1 );
+    return Integer.valueOf( group.getValue( this.values[plane][aRowIndex] ) );
   }
 
   /**
@@ -473,7 +473,6 @@ public class SignalUI extends ComponentUI
    */
   private void paintSignals( final Graphics2D aCanvas, final SignalViewModel aModel, final IUIElement[] aElements )
   {
-    final int[] values = aModel.getDataValues();
     final long[] timestamps = aModel.getTimestamps();
 
     final Rectangle clip = aCanvas.getClipBounds();
@@ -482,7 +481,7 @@ public class SignalUI extends ComponentUI
     aCanvas.clearRect( clip.x, clip.y, clip.width, clip.height );
 
     final int startIdx = aModel.getStartIndex( clip );
-    final int endIdx = aModel.getEndIndex( clip, values.length );
+    final int endIdx = aModel.getEndIndex( clip, timestamps.length );
 
     final double zoomFactor = aModel.getZoomFactor();
 
@@ -520,6 +519,8 @@ public class SignalUI extends ComponentUI
       aCanvas.setColor( element.getColor() );
 
       final SignalElement signalElement = ( SignalElement )element;
+      // Each element only needs the sample plane holding its channel(s)...
+      final int[] values = aModel.getDataValues( signalElement.getPlane() );
 
       if ( signalElement.isDigitalSignal() )
       {
@@ -53,6 +53,16 @@ public interface UIManagerKeys
    * transitions are shown.
    */
   String DISABLE_SLOPPY_SCOPE_PAINTING = "ols.disble.sloppy.scope.painting.boolean";
+  /** The compression level used when saving projects. */
+  String PROJECT_COMPRESSION_LEVEL = "ols.project.compression.level.enum";
+  /** Whether or not the CSV export is limited to the cursor range. */
+  String EXPORT_CSV_CURSOR_RANGE = "ols.export.csv.cursor.range.boolean";
+  /** The channels included in the CSV export, e.g., "0-7,12" or "all". */
+  String EXPORT_CSV_CHANNELS = "ols.export.csv.channels.enum";
+  /** The number of channels written as a single bus in the CSV export, 0 for none. */
+  String EXPORT_CSV_BUS_WIDTH = "ols.export.csv.bus.width";
+  /** The horizontal scale of the image export, in pixels per sample, 0 for the visible diagram. */
+  String EXPORT_IMAGE_PIXELS_PER_SAMPLE = "ols.export.image.pixels.per.sample.float";
 
   /** The default color for channels, group summary and the scope of group 1. */
   String CHANNEL_GROUP1_DEFAULT_COLOR = "ols.channelgroup1.default.color";
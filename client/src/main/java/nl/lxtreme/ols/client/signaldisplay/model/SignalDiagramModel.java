@@ -236,6 +236,29 @@ public class SignalDiagramModel
     this.propertyChangeSupport.addPropertyChangeListener( aListener );
   }
 
+  /**
+   * Sets the grown data model for this controller, keeping the current signal
+   * elements as the channel layout of the data is unchanged.
+   *
+   * @param aDataSet
+   *          the dataModel to set, cannot be <code>null</code>.
+   */
+  public void appendDataModel( final DataSet aDataSet )
+  {
+    if ( aDataSet == null )
+    {
+      throw new IllegalArgumentException( "Parameter DataSet cannot be null!" );
+    }
+
+    this.dataSet = aDataSet;
+
+    final IDataModelChangeListener[] listeners = this.eventListeners.getListeners( IDataModelChangeListener.class );
+    for ( IDataModelChangeListener listener : listeners )
+    {
+      listener.dataAppended( aDataSet );
+    }
+  }
+
   /**
    * @param aChannelIdx
    * @param aTimestamp
@@ -244,7 +267,7 @@ public class SignalDiagramModel
   public final long findEdgeAfter( final int aChannelIdx, final long aTimestamp )
   {
     final long[] timestamps = getTimestamps();
-    final int[] values = getValues();
+    final int[] values = getValues( ChannelAccessor.getPlane( aChannelIdx ) );
 
     int refIdx = Arrays.binarySearch( timestamps, aTimestamp );
     if ( refIdx < 0 )
@@ -259,7 +282,7 @@ public class SignalDiagramModel
 
     // find the reference time value; which is the "timestamp" under the
     // cursor...
-    final int mask = ( 1 << aChannelIdx );
+    final int mask = ChannelAccessor.getMask( aChannelIdx );
     final int refValue = ( values[refIdx] & mask );
 
     do
@@ -279,7 +302,7 @@ public class SignalDiagramModel
   public final long findEdgeBefore( final int aChannelIdx, final long aTimestamp )
   {
     final long[] timestamps = getTimestamps();
-    final int[] values = getValues();
+    final int[] values = getValues( ChannelAccessor.getPlane( aChannelIdx ) );
 
     int refIdx = Arrays.binarySearch( timestamps, aTimestamp );
     if ( refIdx < 0 )
@@ -294,7 +317,7 @@ public class SignalDiagramModel
 
     // find the reference time value; which is the "timestamp" under the
     // cursor...
-    final int mask = ( 1 << aChannelIdx );
+    final int mask = ChannelAccessor.getMask( aChannelIdx );
     final int refValue = ( values[refIdx] & mask );
 
     do
@@ -592,7 +615,7 @@ public class SignalDiagramModel
 
     // find the reference time value; which is the "timestamp" under the
     // cursor...
-    final int[] values = getValues();
+    final int[] values = getValues( ChannelAccessor.getPlane( channel.getIndex() ) );
     if ( ( refIdx >= 0 ) && ( refIdx < values.length ) )
     {
       final int mask = channel.getMask();
@@ -823,6 +846,29 @@ public class SignalDiagramModel
     return capturedData.getValues();
   }
 
+  /**
+   * Returns the sample values of the given plane.
+   *
+   * @param aPlane
+   *          the sample plane to return the values for, >= 0.
+   * @return the sample values, never <code>null</code>.
+   * @see ChannelAccessor#getPlane(int)
+   */
+  public int[] getValues( final int aPlane )
+  {
+    final AcquisitionResult capturedData = getCapturedData();
+    if ( capturedData == null )
+    {
+      return new int[0];
+    }
+    if ( aPlane >= ChannelAccessor.getPlaneCount( capturedData ) )
+    {
+      // Channel is not part of the current capture; treat it as always low...
+      return new int[capturedData.getTimestamps().length];
+    }
+    return ChannelAccessor.getValues( capturedData, aPlane );
+  }
+
   /**
    * Calculates the vertical block increment.
    * <p>
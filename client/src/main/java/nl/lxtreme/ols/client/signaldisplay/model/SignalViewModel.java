@@ -141,6 +141,16 @@ public class SignalViewModel extends AbstractViewModel
     return this.controller.getViewModel().getValues();
   }
 
+  /**
+   * @param aPlane
+   *          the sample plane to return the values for, >= 0.
+   * @return the sample values of the given plane, never <code>null</code>.
+   */
+  public int[] getDataValues( final int aPlane )
+  {
+    return this.controller.getViewModel().getValues( aPlane );
+  }
+
   /**
    * @param aClip
    * @return
@@ -29,6 +29,7 @@ import java.util.List;
 
 import javax.swing.*;
 
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.client.signaldisplay.laf.*;
 import nl.lxtreme.ols.client.signaldisplay.signalelement.SignalElement.SignalElementType;
 
@@ -91,6 +92,8 @@ public class ElementGroup implements IUIElement
   private final List<SignalElement> elements;
 
   private int mask;
+  /** The sample plane of the channels in this group. */
+  private int plane;
   /** The name of this group. */
   private String name;
   /** The label used for the group summary. */
@@ -122,6 +125,7 @@ public class ElementGroup implements IUIElement
     this.index = aElementGroup.index;
     this.name = aElementGroup.name;
     this.mask = aElementGroup.mask;
+    this.plane = aElementGroup.plane;
     this.visible = aElementGroup.visible;
     this.viewOptions = aElementGroup.viewOptions;
     this.yPosition = aElementGroup.yPosition;
@@ -156,6 +160,7 @@ public class ElementGroup implements IUIElement
     this.index = aIndex;
     this.name = aName;
     this.mask = 0;
+    this.plane = 0;
     // By default visible...
     this.visible = true;
     // By default only the digital signals are shown...
@@ -214,7 +219,7 @@ public class ElementGroup implements IUIElement
       signalElement.setGroup( this );
 
       // Update our local mask...
-      this.mask |= aElement.getMask();
+      updateMask();
     }
   }
 
@@ -405,6 +410,10 @@ public class ElementGroup implements IUIElement
   /**
    * Returns the bitwise mask for all channels that belong to this channel
    * group.
+   * <p>
+   * Only the channels in the sample plane of this group, as returned by
+   * {@link #getPlane()}, are included in this mask.
+   * </p>
    *
    * @return a bitmask, >= 0.
    */
@@ -423,6 +432,18 @@ public class ElementGroup implements IUIElement
     return this.name;
   }
 
+  /**
+   * Returns the sample plane of the channels in this group, which is the plane
+   * of the first channel in this group.
+   *
+   * @return a sample plane, >= 0.
+   * @see ChannelAccessor#getPlane(int)
+   */
+  public int getPlane()
+  {
+    return this.plane;
+  }
+
   /**
    * @return the masked sample value.
    */
@@ -431,6 +452,10 @@ public class ElementGroup implements IUIElement
     int value = 0;
     for ( SignalElement el : this.elements )
     {
+      if ( el.getPlane() != this.plane )
+      {
+        continue;
+      }
       if ( ( aSampleValue & el.getMask() ) != 0 )
       {
         value |= 0x01;
@@ -781,7 +806,7 @@ public class ElementGroup implements IUIElement
       aElement.setGroup( this );
 
       // Update our local mask...
-      this.mask |= aElement.getMask();
+      updateMask();
     }
   }
 
@@ -807,7 +832,7 @@ public class ElementGroup implements IUIElement
         aElement.setGroup( null );
 
         // Remove channel's mask from our local mask...
-        this.mask &= ~aElement.getMask();
+        updateMask();
       }
     }
   }
@@ -851,4 +876,33 @@ public class ElementGroup implements IUIElement
   {
     return String.format( "Summary-%d", Integer.valueOf( getIndex() + 1 ) );
   }
+
+  /**
+   * Recalculates the mask and sample plane of this group from its digital
+   * signal elements. Channels that are not in the same sample plane as the
+   * first channel of this group are left out of the mask.
+   */
+  private void updateMask()
+  {
+    int newPlane = -1;
+    int newMask = 0;
+    for ( SignalElement element : this.elements )
+    {
+      if ( !element.isDigitalSignal() )
+      {
+        continue;
+      }
+      final int elementPlane = element.getPlane();
+      if ( newPlane < 0 )
+      {
+        newPlane = elementPlane;
+      }
+      if ( elementPlane == newPlane )
+      {
+        newMask |= element.getMask();
+      }
+    }
+    this.plane = Math.max( 0, newPlane );
+    this.mask = newMask;
+  }
 }
@@ -344,6 +344,24 @@ public final class SignalElement implements Comparable<SignalElement>, IUIElemen
     return this.mask;
   }
 
+  /**
+   * Returns the sample plane that contains the sample values of this signal
+   * element.
+   *
+   * @return a sample plane, >= 0.
+   * @see ChannelAccessor#getPlane(int)
+   */
+  public int getPlane()
+  {
+    if ( !isDigitalSignal() && ( this.group != null ) )
+    {
+      // For group summary & analog scope, we always use the plane of the entire
+      // group...
+      return this.group.getPlane();
+    }
+    return ( this.channel == null ) ? 0 : ChannelAccessor.getPlane( this.channel.getIndex() );
+  }
+
   /**
    * @return a relative offset to display the contents of this signal element,
    *         >= 0.
@@ -420,10 +438,11 @@ public final class SignalElement implements Comparable<SignalElement>, IUIElemen
     else if ( isAnalogSignal() || isGroupSummary() )
     {
       List<SignalElement> elements = getGroup().getElements();
+      int plane = getPlane();
       for ( int i = elements.size() - 1; i >= 0; i-- )
       {
         SignalElement el = elements.get( i );
-        if ( el.isDigitalSignal() )
+        if ( el.isDigitalSignal() && ( el.getPlane() == plane ) )
         {
           value = ( value << 1 ) | el.getValue( aSampleValue );
         }
@@ -147,6 +147,15 @@ public final class SignalElementManager implements IDataModelChangeListener
     return getSignalElementModel().calculateScreenHeight();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void dataAppended( final DataSet aDataSet )
+  {
+    // Channel layout is unchanged; keep the current signal elements...
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -171,7 +180,7 @@ public final class SignalElementManager implements IDataModelChangeListener
         for ( int c = 0; c < channelsPerGroup; c++ )
         {
           final int channelIdx = ( g * channelsPerGroup ) + c;
-          if ( newChannelList[channelIdx] == null )
+          if ( ( channelIdx >= newChannelList.length ) || ( newChannelList[channelIdx] == null ) )
           {
             continue;
           }
@@ -343,7 +352,7 @@ public final class SignalElementManager implements IDataModelChangeListener
     {
       throw new IllegalArgumentException( "New group cannot be null!" );
     }
-    if ( ( aNewIndex < 0 ) || ( aNewIndex > Ols.MAX_CHANNELS ) )
+    if ( ( aNewIndex < 0 ) || ( aNewIndex > Ols.MAX_WIDE_CHANNELS ) )
     {
       throw new IllegalArgumentException( "Invalid new index: " + aNewIndex + "!" );
     }
@@ -105,6 +105,16 @@ public class AcquisitionDetailsView extends AbstractViewLayer implements IToolWi
     return result;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void dataAppended( final DataSet aDataSet )
+  {
+    // Time width and sample count have grown...
+    dataModelChanged( aDataSet );
+  }
+
   /**
    * {@inheritDoc}
    */
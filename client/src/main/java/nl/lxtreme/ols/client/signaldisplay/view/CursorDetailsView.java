@@ -135,6 +135,15 @@ IDataModelChangeListener, LinkListener
     updateViewText();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void dataAppended( final DataSet aDataSet )
+  {
+    updateViewText();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -216,6 +216,7 @@ ICursorChangeListener, IMeasurementListener
     // VARIABLES
 
     private final AcquisitionResult result;
+    private final int plane;
     private final int mask;
     private final long startTimestamp;
     private final long endTimestamp;
@@ -229,7 +230,8 @@ ICursorChangeListener, IMeasurementListener
         final long aEndTimestamp )
     {
       this.result = aResult;
-      this.mask = ( 1 << aIndex );
+      this.plane = ChannelAccessor.getPlane( aIndex );
+      this.mask = ChannelAccessor.getMask( aIndex );
       this.startTimestamp = aStartTimestamp;
       this.endTimestamp = aEndTimestamp;
     }
@@ -250,7 +252,7 @@ ICursorChangeListener, IMeasurementListener
 
       final boolean hasTimingData = this.result.hasTimingData();
 
-      final int[] values = this.result.getValues();
+      final int[] values = ChannelAccessor.getValues( this.result, this.plane );
       final long[] timestamps = this.result.getTimestamps();
 
       int fallingEdgeCount = 0;
@@ -192,6 +192,15 @@ public class TimeLineView extends AbstractViewLayer implements ICursorChangeList
     repaint( 50L );
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void dataAppended( final DataSet aDataSet )
+  {
+    repaint( 50L );
+  }
+
   /**
    * {@inheritDoc}
    */
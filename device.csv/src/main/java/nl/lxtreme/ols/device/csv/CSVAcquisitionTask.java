@@ -21,14 +21,16 @@
  */
 package nl.lxtreme.ols.device.csv;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.devices.*;
@@ -41,12 +43,31 @@ import nl.lxtreme.ols.api.devices.*;
  * [Channel Data A], [Channel Data B], ..., [Channel Data X]
  * </pre>
  *
- * Everything not numeric is ignored.
+ * Each selected column denotes a channel, whose value is high when it is above the
+ * middle of its range of values. Optionally, one column can denote the time (in
+ * seconds) of each row, for non-uniformly sampled data. Lines without numeric data
+ * in all used columns are ignored.
+ * <p>
+ * The file is streamed twice: once to determine the range of each column, and once
+ * to pack the columns of each row into a sample and to keep only the transitions.
+ * </p>
  */
 public class CSVAcquisitionTask implements AcquisitionTask {
+    private static final Logger LOG = Logger.getLogger(CSVAcquisitionTask.class.getName());
+
+    private static final int INITIAL_CAPACITY = 64 * 1024;
+    /** The number of lines between two checks for progress and interrupts. */
+    private static final int CHECK_INTERVAL = 4096;
+
     private final CSVDeviceDialog configDialog;
     private final AcquisitionProgressListener progressListener;
 
+    private int[] values;
+    private long[] timestamps;
+    private int size;
+    private long lastTimestamp;
+    private int lastPercentage;
+
     /**
      * Creates a new TestDevice instance.
      *
@@ -58,58 +79,60 @@ public class CSVAcquisitionTask implements AcquisitionTask {
         this.progressListener = aProgressListener;
     }
 
-    private final class ChannelData {
-        private final List<Integer> rawData = new ArrayList<Integer>();
-        private boolean setupDone = false;
-        private float meanValue;
+    /**
+     * Keeps track of the range of numeric values of all columns in a file.
+     */
+    private static final class ColumnStatistics {
+        private double[] min = new double[0];
+        private double[] max = new double[0];
+        private int[] count = new int[0];
 
-        public void addRawData(int rawData) {
-            this.rawData.add(rawData);
-            setupDone = false;
-        }
+        private double firstTime = Double.NaN;
+        private double lastTime = Double.NaN;
+        private double minTimeDelta = Double.POSITIVE_INFINITY;
 
-        public boolean isEmpty() {
-            return this.rawData.isEmpty();
+        public void add(final int aColumn, final double aValue) {
+            if (aColumn >= this.count.length) {
+                final int oldLength = this.count.length;
+                final int newLength = aColumn + 1;
+                this.min = Arrays.copyOf(this.min, newLength);
+                this.max = Arrays.copyOf(this.max, newLength);
+                this.count = Arrays.copyOf(this.count, newLength);
+                Arrays.fill(this.min, oldLength, newLength, Double.POSITIVE_INFINITY);
+                Arrays.fill(this.max, oldLength, newLength, Double.NEGATIVE_INFINITY);
+            }
+            if (aValue < this.min[aColumn]) {
+                this.min[aColumn] = aValue;
+            }
+            if (aValue > this.max[aColumn]) {
+                this.max[aColumn] = aValue;
+            }
+            this.count[aColumn]++;
         }
 
-        public int length() {
-            return this.rawData.size();
+        public void addTime(final double aTime) {
+            if (Double.isNaN(this.firstTime)) {
+                this.firstTime = aTime;
+            } else {
+                final double delta = aTime - this.lastTime;
+                if ((delta > 0.0) && (delta < this.minTimeDelta)) {
+                    this.minTimeDelta = delta;
+                }
+            }
+            this.lastTime = aTime;
         }
 
-        public List<Integer> getRawData() {
-            return rawData;
+        public int getColumnCount() {
+            return this.count.length;
         }
 
-        public void setup(int length) {
-            while (rawData.size() > length) {
-                rawData.remove(rawData.size() - 1);
-            }
-            int min = Integer.MAX_VALUE;
-            int max = Integer.MIN_VALUE;
-            for (int value : rawData) {
-                if (value < min) {
-                    min = value;
-                }
-                if (value > max) {
-                    max = value;
-                }
-            }
-            meanValue = ((max - min) / 2f) + min;
-            System.out.println("mean is: " + meanValue);
-            setupDone = true;
+        public boolean hasNumericData(final int aColumn) {
+            return (aColumn < this.count.length) && (this.count[aColumn] > 0);
         }
 
-        public int getHighLowAt(int index) {
-            if (!setupDone) {
-                throw new IllegalStateException("You need to calculate the mean value first");
-            }
-            if (index >= this.rawData.size()) {
-                return 0;
-            } else {
-                return rawData.get(index) > meanValue ? 1 : 0;
-            }
+        public double getThreshold(final int aColumn) {
+            return ((this.max[aColumn] - this.min[aColumn]) / 2.0) + this.min[aColumn];
         }
-
     }
 
     /**
@@ -118,58 +141,276 @@ public class CSVAcquisitionTask implements AcquisitionTask {
     @Override
     public AcquisitionResult call() throws Exception {
         final File file = this.configDialog.getFile();
+        final int timeColumn = this.configDialog.getTimeColumn() - 1;
 
-        int channels = 0;
         int trigger = 0;
 
-        //collect all data
-        List<ChannelData> channelDatas = new ArrayList<ChannelData>();
-        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-        String line;
-        while ((line = in.readLine()) != null) {
-            String[] parts = line.split(",");
-            for (int i = 0; i < parts.length; ++i) {
-                String part = parts[i];
-                if (channelDatas.size() <= i) {
-                    channelDatas.add(new ChannelData());
+        this.lastPercentage = -1;
+
+        //determine the range of values of each column
+        final ColumnStatistics stats = scanColumns(file, timeColumn);
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedException();
+        }
+
+        final int[] columns = getSelectedColumns(stats, timeColumn);
+        if (columns.length == 0) {
+            throw new IOException("No numeric data found in " + file.getName() + "!");
+        }
+        if (columns.length > Ols.MAX_CHANNELS) {
+            throw new IOException("Too many columns selected: at most " + Ols.MAX_CHANNELS + " columns are supported!");
+        }
+
+        final double[] thresholds = new double[columns.length];
+        for (int j = 0; j < columns.length; j++) {
+            thresholds[j] = stats.getThreshold(columns[j]);
+        }
+
+        int rate = this.configDialog.getSampleRate();
+        if ((rate <= 0) && (timeColumn >= 0) && !Double.isInfinite(stats.minTimeDelta)) {
+            // Use a rate that is able to represent the smallest time step...
+            rate = (int) Math.max(1L, Math.min(Integer.MAX_VALUE, Math.round(1.0 / stats.minTimeDelta)));
+        }
+
+        //pack the columns of each row into a single sample
+        final long rows = packSamples(file, columns, thresholds, timeColumn, stats.firstTime, Math.max(1, rate));
+        if (this.size == 0) {
+            throw new IOException("No numeric data found in " + file.getName() + "!");
+        }
+        if (rate <= 0) {
+            // Uniformly sampled data is assumed to span exactly one second...
+            rate = (int) Math.min(Integer.MAX_VALUE, rows);
+        }
+
+        final int[] data = Arrays.copyOf(this.values, this.size);
+        final long[] time = Arrays.copyOf(this.timestamps, this.size);
+        final long absLength = this.lastTimestamp;
+        // Release the buffers as soon as possible...
+        this.values = null;
+        this.timestamps = null;
+
+        LOG.log(Level.FINE, "Imported {0} rows with {1} transitions from {2}.",
+                new Object[] { Long.valueOf(rows), Integer.valueOf(data.length), file });
+
+        final int channels = columns.length;
+        final int enabledChannels = (int) ((1L << channels) - 1);
+        return new CapturedData(data, time, trigger, rate, channels, enabledChannels, absLength);
+    }
+
+    /**
+     * Adds a transition, growing the transition buffers if needed.
+     */
+    private void addTransition(final int aValue, final long aTimestamp) {
+        if (this.size == this.values.length) {
+            final int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, this.size * 2L);
+            this.values = Arrays.copyOf(this.values, newCapacity);
+            this.timestamps = Arrays.copyOf(this.timestamps, newCapacity);
+        }
+        this.values[this.size] = aValue;
+        this.timestamps[this.size] = aTimestamp;
+        this.size++;
+    }
+
+    /**
+     * Determines which columns are to be used as channels. When no explicit
+     * selection is made, all columns with numeric data are used.
+     */
+    private int[] getSelectedColumns(final ColumnStatistics aStats, final int aTimeColumn) throws IOException {
+        final int[] selection;
+        try {
+            selection = parseColumnSelection(this.configDialog.getColumns());
+        } catch (IllegalArgumentException exception) {
+            throw new IOException("Invalid column selection: " + exception.getMessage());
+        }
+
+        final int columnCount = (selection != null) ? selection.length : aStats.getColumnCount();
+        int[] result = new int[columnCount];
+        int count = 0;
+        for (int i = 0; i < columnCount; i++) {
+            final int column = (selection != null) ? selection[i] : i;
+            if ((column != aTimeColumn) && aStats.hasNumericData(column)) {
+                result[count++] = column;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Streams the given file and packs all rows into samples, keeping only the
+     * transitions.
+     *
+     * @return the number of rows used.
+     */
+    private long packSamples(final File aFile, final int[] aColumns, final double[] aThresholds,
+            final int aTimeColumn, final double aFirstTime, final int aRate) throws IOException {
+        int lastColumn = aTimeColumn;
+        for (int column : aColumns) {
+            lastColumn = Math.max(lastColumn, column);
+        }
+
+        this.values = new int[INITIAL_CAPACITY];
+        this.timestamps = new long[INITIAL_CAPACITY];
+        this.size = 0;
+        this.lastTimestamp = -1L;
+
+        final FileInputStream fis = new FileInputStream(aFile);
+        final CSVLineReader reader = new CSVLineReader(new InputStreamReader(fis), ',');
+        try {
+            final FileChannel channel = fis.getChannel();
+            final long length = aFile.length();
+
+            long rows = 0L;
+            int lastValue = 0;
+            int lines = 0;
+            while (reader.nextLine()) {
+                if ((++lines % CHECK_INTERVAL) == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    updateProgress(50 + (int) ((channel.position() * 50L) / Math.max(1L, length)));
                 }
-                ChannelData data = channelDatas.get(i);
-                try {
-                    Integer partInt = Integer.valueOf(part.trim());
-                    data.addRawData(partInt);
-                } catch (NumberFormatException e) {
-                    //ignore for now
+                if (reader.getFieldCount() <= lastColumn) {
+                    continue;
                 }
+
+                long timestamp = rows;
+                if (aTimeColumn >= 0) {
+                    final double time = reader.parseDouble(aTimeColumn);
+                    if (Double.isNaN(time)) {
+                        continue;
+                    }
+                    timestamp = Math.round((time - aFirstTime) * aRate);
+                    if (timestamp <= this.lastTimestamp) {
+                        // Time should always increase...
+                        continue;
+                    }
+                }
+
+                int sample = 0;
+                int j = 0;
+                for (; j < aColumns.length; j++) {
+                    final double value = reader.parseDouble(aColumns[j]);
+                    if (Double.isNaN(value)) {
+                        break;
+                    }
+                    if (value > aThresholds[j]) {
+                        sample |= (1 << j);
+                    }
+                }
+                if (j < aColumns.length) {
+                    // Not all columns are numeric...
+                    continue;
+                }
+
+                if ((this.size == 0) || (sample != lastValue)) {
+                    addTransition(sample, timestamp);
+                    lastValue = sample;
+                }
+                this.lastTimestamp = timestamp;
+                rows++;
             }
+            updateProgress(100);
+            return rows;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Parses a column selection like "1,3-5" into (zero-based) column indexes.
+     *
+     * @param aSelection
+     *            the selection of one-based column numbers and ranges, can be
+     *            <code>null</code> or empty to select all columns.
+     * @return the selected columns, or <code>null</code> if all columns are
+     *         selected.
+     * @throws IllegalArgumentException
+     *             in case the given selection is invalid.
+     */
+    static int[] parseColumnSelection(final String aSelection) {
+        if ((aSelection == null) || aSelection.trim().isEmpty()) {
+            return null;
         }
 
-        //remove empty lists and count channels
-        int minLength = Integer.MAX_VALUE;
-        for (Iterator<ChannelData> iterator = channelDatas.iterator(); iterator.hasNext();) {
-            final ChannelData channelData = iterator.next();
-            if (!channelData.isEmpty()) {
-                if (channelData.length() < minLength) {
-                    minLength = channelData.length();
+        int[] result = new int[8];
+        int count = 0;
+        for (String part : aSelection.split(",")) {
+            part = part.trim();
+            if (part.isEmpty()) {
+                continue;
+            }
+            final int dash = part.indexOf('-', 1);
+            int first, last;
+            try {
+                first = Integer.parseInt(part.substring(0, (dash < 0) ? part.length() : dash).trim());
+                last = (dash < 0) ? first : Integer.parseInt(part.substring(dash + 1).trim());
+            } catch (NumberFormatException exception) {
+                throw new IllegalArgumentException("'" + part + "' is not a column number or range!");
+            }
+            if ((first < 1) || (last < first)) {
+                throw new IllegalArgumentException("'" + part + "' is not a valid column number or range!");
+            }
+            for (int column = first; column <= last; column++) {
+                if (count == result.length) {
+                    if (count > Ols.MAX_CHANNELS) {
+                        throw new IllegalArgumentException("too many columns selected!");
+                    }
+                    result = Arrays.copyOf(result, count * 2);
                 }
-                channels++;
-            } else {
-                iterator.remove();
+                result[count++] = column - 1;
             }
         }
+        return Arrays.copyOf(result, count);
+    }
 
-        for (ChannelData channelData : channelDatas) {
-            channelData.setup(minLength);
-        }
+    /**
+     * Streams the given file and determines the range of values of each column.
+     */
+    private ColumnStatistics scanColumns(final File aFile, final int aTimeColumn) throws IOException {
+        final ColumnStatistics result = new ColumnStatistics();
+
+        final FileInputStream fis = new FileInputStream(aFile);
+        final CSVLineReader reader = new CSVLineReader(new InputStreamReader(fis), ',');
+        try {
+            final FileChannel channel = fis.getChannel();
+            final long length = aFile.length();
 
-        int[] data = new int[minLength];
-        for (int i = 0; i < minLength; ++i) {
-            for (int j = 0; j < channelDatas.size(); ++j) {
-                ChannelData channelData = channelDatas.get(j);
-                data[i] = data[i] | (channelData.getHighLowAt(i) << j);
+            int lines = 0;
+            while (reader.nextLine()) {
+                if ((++lines % CHECK_INTERVAL) == 0) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        break;
+                    }
+                    updateProgress((int) ((channel.position() * 50L) / Math.max(1L, length)));
+                }
+
+                final int fieldCount = reader.getFieldCount();
+                for (int i = 0; i < fieldCount; i++) {
+                    final double value = reader.parseDouble(i);
+                    if (Double.isNaN(value)) {
+                        continue;
+                    }
+                    if (i == aTimeColumn) {
+                        result.addTime(value);
+                    } else {
+                        result.add(i, value);
+                    }
+                }
             }
+            return result;
+        } finally {
+            reader.close();
         }
+    }
 
-        final int enabledChannels = (int) ((1L << channels) - 1);
-        return new CapturedData(data, trigger, data.length, channels, enabledChannels);
+    /**
+     * Reports the given progress, but only if it differs from the last reported
+     * progress.
+     */
+    private void updateProgress(final int aPercentage) {
+        if (aPercentage != this.lastPercentage) {
+            this.progressListener.acquisitionInProgress(Math.min(100, aPercentage));
+            this.lastPercentage = aPercentage;
+        }
     }
 }
@@ -31,6 +31,7 @@ import javax.swing.*;
 import javax.swing.filechooser.FileFilter;
 
 import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.StandardActionFactory.CloseAction.Closeable;
 
@@ -42,6 +43,9 @@ public class CSVDeviceDialog extends JDialog implements Configurable, Closeable
     private static final long serialVersionUID = 1L;
 
     private JTextField filenameField;
+    private JTextField columnsField;
+    private JTextField timeColumnField;
+    private JTextField sampleRateField;
 
     private boolean setupConfirmed;
     private File file;
@@ -80,10 +84,40 @@ public class CSVDeviceDialog extends JDialog implements Configurable, Closeable
         dispose();
     }
 
+    /**
+     * Returns the selection of columns to import.
+     *
+     * @return a comma separated list of (one-based) column numbers and ranges,
+     *         like "1,3-5", or an empty string to import all columns.
+     */
+    public String getColumns() {
+        return this.columnsField.getText().trim();
+    }
+
     public File getFile() {
         return file;
     }
 
+    /**
+     * Returns the sample rate to use.
+     *
+     * @return the sample rate in Hertz (Hz), or 0 to determine the sample rate
+     *         from the data.
+     */
+    public int getSampleRate() {
+        return Math.max(0, NumberUtils.safeParseInt(this.sampleRateField.getText().trim(), 0));
+    }
+
+    /**
+     * Returns the column that holds the time (in seconds) of each row.
+     *
+     * @return the (one-based) time column, or 0 if the data is uniformly
+     *         sampled.
+     */
+    public int getTimeColumn() {
+        return Math.max(0, NumberUtils.safeParseInt(this.timeColumnField.getText().trim(), 0));
+    }
+
     /**
      * @see
      * nl.lxtreme.ols.api.Configurable#readPreferences(nl.lxtreme.ols.api.UserSettings)
@@ -92,7 +126,11 @@ public class CSVDeviceDialog extends JDialog implements Configurable, Closeable
     public void readPreferences(final UserSettings aSettings) {
         if (!aSettings.get("filename", "").isEmpty()) {
             this.file = new File(aSettings.get("filename", ""));
+            this.filenameField.setText(this.file.getPath());
         }
+        this.columnsField.setText(aSettings.get("columns", this.columnsField.getText()));
+        this.timeColumnField.setText(aSettings.get("timeColumn", this.timeColumnField.getText()));
+        this.sampleRateField.setText(aSettings.get("sampleRate", this.sampleRateField.getText()));
     }
 
     /**
@@ -120,6 +158,9 @@ public class CSVDeviceDialog extends JDialog implements Configurable, Closeable
         } catch (IOException ex) {
             Logger.getLogger(CSVDeviceDialog.class.getName()).log(Level.SEVERE, null, ex);
         }
+        aSettings.put("columns", this.columnsField.getText());
+        aSettings.put("timeColumn", this.timeColumnField.getText());
+        aSettings.put("sampleRate", this.sampleRateField.getText());
     }
 
     /**
@@ -158,6 +199,15 @@ public class CSVDeviceDialog extends JDialog implements Configurable, Closeable
 
         });
 
+        columnsField = new JTextField();
+        columnsField.setToolTipText("Columns to import, like \"1,3-5\"; leave empty to import all columns.");
+
+        timeColumnField = new JTextField();
+        timeColumnField.setToolTipText("Column with the time (in seconds) of each row; leave empty for uniformly sampled data.");
+
+        sampleRateField = new JTextField();
+        sampleRateField.setToolTipText("Sample rate (in Hz); leave empty to determine it from the data.");
+
         final Insets labelInsets = new Insets(4, 4, 4, 2);
         final Insets compInsets = new Insets(4, 2, 4, 4);
 
@@ -171,6 +221,27 @@ public class CSVDeviceDialog extends JDialog implements Configurable, Closeable
                 new GridBagConstraints(1, 0, 1, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
                         GridBagConstraints.HORIZONTAL, compInsets, 0, 0));
 
+        result.add(new JLabel("Columns"), //
+                new GridBagConstraints(0, 1, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+                        GridBagConstraints.HORIZONTAL, labelInsets, 0, 0));
+        result.add(this.columnsField, //
+                new GridBagConstraints(1, 1, 1, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+                        GridBagConstraints.HORIZONTAL, compInsets, 0, 0));
+
+        result.add(new JLabel("Time column"), //
+                new GridBagConstraints(0, 2, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+                        GridBagConstraints.HORIZONTAL, labelInsets, 0, 0));
+        result.add(this.timeColumnField, //
+                new GridBagConstraints(1, 2, 1, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+                        GridBagConstraints.HORIZONTAL, compInsets, 0, 0));
+
+        result.add(new JLabel("Sample rate (Hz)"), //
+                new GridBagConstraints(0, 3, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+                        GridBagConstraints.HORIZONTAL, labelInsets, 0, 0));
+        result.add(this.sampleRateField, //
+                new GridBagConstraints(1, 3, 1, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+                        GridBagConstraints.HORIZONTAL, compInsets, 0, 0));
+
         return result;
     }
 
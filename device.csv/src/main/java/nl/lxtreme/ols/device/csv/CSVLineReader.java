@@ -0,0 +1,261 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010 J.W. Janssen, www.lxtreme.nl
+ * Copyright (C) 2015 Florian Frankenberger
+ */
+package nl.lxtreme.ols.device.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Provides a streaming reader for comma separated lines. Lines are read into a
+ * reusable character buffer and split into fields without creating any
+ * intermediary strings, allowing large files to be read with a constant amount
+ * of memory.
+ */
+final class CSVLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** All powers of ten that can be represented exactly as double. */
+    private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+    /** The largest mantissa that can be represented exactly as double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private final Reader reader;
+    private final char separator;
+    private final char[] buffer;
+
+    private int bufferPos;
+    private int bufferLength;
+
+    private char[] line;
+    private int lineLength;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private int fieldCount;
+
+    /**
+     * Creates a new CSVLineReader instance.
+     *
+     * @param aReader
+     *            the reader to read the lines from, cannot be <code>null</code>;
+     * @param aSeparator
+     *            the field separator to use.
+     */
+    public CSVLineReader(final Reader aReader, final char aSeparator) {
+        if (aReader == null) {
+            throw new IllegalArgumentException("Reader cannot be null!");
+        }
+        this.reader = aReader;
+        this.separator = aSeparator;
+        this.buffer = new char[BUFFER_SIZE];
+        this.line = new char[256];
+        this.fieldStarts = new int[16];
+        this.fieldEnds = new int[16];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        this.reader.close();
+    }
+
+    /**
+     * Returns the number of fields in the current line.
+     *
+     * @return a field count, >= 0.
+     */
+    public int getFieldCount() {
+        return this.fieldCount;
+    }
+
+    /**
+     * Reads the next line.
+     *
+     * @return <code>true</code> if a line was read, <code>false</code> if the
+     *         end of the input is reached.
+     * @throws IOException
+     *             in case of I/O problems.
+     */
+    public boolean nextLine() throws IOException {
+        this.lineLength = 0;
+        this.fieldCount = 0;
+
+        boolean charsRead = false;
+        int fieldStart = 0;
+        for (;;) {
+            if (this.bufferPos >= this.bufferLength) {
+                this.bufferLength = this.reader.read(this.buffer, 0, this.buffer.length);
+                this.bufferPos = 0;
+                if (this.bufferLength <= 0) {
+                    this.bufferLength = 0;
+                    if (!charsRead) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+
+            final char c = this.buffer[this.bufferPos++];
+            charsRead = true;
+            if (c == '\n') {
+                break;
+            } else if (c == this.separator) {
+                addField(fieldStart, this.lineLength);
+                fieldStart = this.lineLength;
+            } else if (c != '\r') {
+                if (this.lineLength == this.line.length) {
+                    final char[] newLine = new char[this.line.length * 2];
+                    System.arraycopy(this.line, 0, newLine, 0, this.lineLength);
+                    this.line = newLine;
+                }
+                this.line[this.lineLength++] = c;
+            }
+        }
+        addField(fieldStart, this.lineLength);
+        return true;
+    }
+
+    /**
+     * Parses the given field of the current line as decimal number. Leading and
+     * trailing whitespace and quotes are ignored.
+     *
+     * @param aField
+     *            the index of the field to parse, >= 0 && < field count.
+     * @return the numeric value of the field, or {@link Double#NaN} if the
+     *         field is not numeric.
+     */
+    public double parseDouble(final int aField) {
+        int start = this.fieldStarts[aField];
+        int end = this.fieldEnds[aField];
+        while ((start < end) && isIgnorable(this.line[start])) {
+            start++;
+        }
+        while ((end > start) && isIgnorable(this.line[end - 1])) {
+            end--;
+        }
+
+        int i = start;
+        boolean negative = false;
+        if ((i < end) && ((this.line[i] == '-') || (this.line[i] == '+'))) {
+            negative = (this.line[i] == '-');
+            i++;
+        }
+
+        long mantissa = 0L;
+        int digits = 0;
+        int exponent = 0;
+        boolean digitsSeen = false;
+        boolean exact = true;
+
+        for (; (i < end) && isDigit(this.line[i]); i++) {
+            digitsSeen = true;
+            if (digits < 18) {
+                mantissa = (mantissa * 10L) + (this.line[i] - '0');
+                if (mantissa > 0L) {
+                    digits++;
+                }
+            } else {
+                exponent++;
+                exact = false;
+            }
+        }
+        if ((i < end) && (this.line[i] == '.')) {
+            for (i++; (i < end) && isDigit(this.line[i]); i++) {
+                digitsSeen = true;
+                if (digits < 18) {
+                    mantissa = (mantissa * 10L) + (this.line[i] - '0');
+                    exponent--;
+                    if (mantissa > 0L) {
+                        digits++;
+                    }
+                } else {
+                    exact = false;
+                }
+            }
+        }
+        if (!digitsSeen) {
+            return Double.NaN;
+        }
+        if ((i < end) && ((this.line[i] == 'e') || (this.line[i] == 'E'))) {
+            i++;
+            boolean negativeExponent = false;
+            if ((i < end) && ((this.line[i] == '-') || (this.line[i] == '+'))) {
+                negativeExponent = (this.line[i] == '-');
+                i++;
+            }
+            if ((i == end) || !isDigit(this.line[i])) {
+                return Double.NaN;
+            }
+            int exp = 0;
+            for (; (i < end) && isDigit(this.line[i]); i++) {
+                if (exp < 10000) {
+                    exp = (exp * 10) + (this.line[i] - '0');
+                }
+            }
+            exponent += negativeExponent ? -exp : exp;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+
+        double result;
+        if (mantissa == 0L) {
+            result = 0.0;
+        } else if (exact && (mantissa < MAX_EXACT_MANTISSA) && (exponent >= -22) && (exponent <= 22)) {
+            // Both operands are exact, so the result is correctly rounded...
+            result = (exponent < 0) ? (mantissa / POWERS_OF_TEN[-exponent]) : (mantissa * POWERS_OF_TEN[exponent]);
+        } else {
+            // Rare case: let the JRE do the hard work...
+            result = Double.parseDouble(new String(this.line, start, end - start));
+            return result;
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Adds a field to the current line, growing the field administration if
+     * needed.
+     */
+    private void addField(final int aStart, final int aEnd) {
+        if (this.fieldCount == this.fieldStarts.length) {
+            final int[] newStarts = new int[this.fieldCount * 2];
+            final int[] newEnds = new int[this.fieldCount * 2];
+            System.arraycopy(this.fieldStarts, 0, newStarts, 0, this.fieldCount);
+            System.arraycopy(this.fieldEnds, 0, newEnds, 0, this.fieldCount);
+            this.fieldStarts = newStarts;
+            this.fieldEnds = newEnds;
+        }
+        this.fieldStarts[this.fieldCount] = aStart;
+        this.fieldEnds[this.fieldCount] = aEnd;
+        this.fieldCount++;
+    }
+
+    private static boolean isDigit(final char aChar) {
+        return (aChar >= '0') && (aChar <= '9');
+    }
+
+    private static boolean isIgnorable(final char aChar) {
+        return (aChar == ' ') || (aChar == '\t') || (aChar == '"');
+    }
+}
@@ -22,6 +22,9 @@ package nl.lxtreme.ols.device.generic;
 
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.util.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.api.*;
@@ -33,6 +36,12 @@ import nl.lxtreme.ols.util.*;
 
 /**
  * Provides a generic acquisition task that can read from any file-based source.
+ * <p>
+ * The raw data is read in large chunks and is decoded as little-endian samples
+ * of the configured width. Only the samples that differ from their predecessor
+ * are retained, so the memory used depends on the number of transitions rather
+ * than the number of samples read.
+ * </p>
  */
 public final class RawDataAcquisitionTask implements AcquisitionTask
 {
@@ -40,12 +49,19 @@ public final class RawDataAcquisitionTask implements AcquisitionTask
 
   private static final Logger LOG = Logger.getLogger( RawDataAcquisitionTask.class.getName() );
 
+  /** The number of bytes read from the source in one go. */
+  private static final int CHUNK_SIZE = 1024 * 1024;
+  /** The initial number of transitions to allocate room for. */
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+
   // VARIABLES
 
   private final AcquisitionProgressListener progressListener;
   private final GenericDeviceConfigDialog deviceConfig;
 
-  private InputStream inputStream;
+  private int[] values;
+  private long[] timestamps;
+  private int size;
 
   // CONSTRUCTORS
 
@@ -74,80 +90,145 @@ public final class RawDataAcquisitionTask implements AcquisitionTask
   public AcquisitionResult call() throws IOException
   {
     final int width = this.deviceConfig.getSampleWidth();
-    final int depth = this.deviceConfig.getSampleDepth();
+    final int count = this.deviceConfig.getSampleDepth();
     final int rate = this.deviceConfig.getSampleRate();
     final int channels = this.deviceConfig.getChannelCount();
 
-    final int count = depth * width;
+    if ( ( width < 1 ) || ( width > 4 ) )
+    {
+      throw new IOException( "Unsupported sample width: " + width + " bytes!" );
+    }
 
-    final int[] values = new int[count];
-    final long[] timestamps = new long[count];
+    this.values = new int[Math.max( 1, Math.min( count, INITIAL_CAPACITY ) )];
+    this.timestamps = new long[this.values.length];
+    this.size = 0;
 
-    this.inputStream = new FileInputStream( this.deviceConfig.getDevicePath() );
+    final FileInputStream inputStream = new FileInputStream( this.deviceConfig.getDevicePath() );
 
+    long idx = 0;
     try
     {
-      int idx = 0;
+      final ReadableByteChannel channel = inputStream.getChannel();
+      final ByteBuffer buffer = ByteBuffer.allocateDirect( CHUNK_SIZE - ( CHUNK_SIZE % width ) );
+      buffer.order( ByteOrder.LITTLE_ENDIAN );
+
+      int lastSample = 0;
+      int lastPercentage = -1;
+
       while ( !Thread.currentThread().isInterrupted() && ( idx < count ) )
       {
-        final int sample = readSample( width );
+        // Do not read beyond the last requested sample; the buffer already
+        // holds the first bytes of the next sample, if any...
+        final long remaining = ( count - idx ) * width;
+        if ( remaining < buffer.capacity() )
+        {
+          buffer.limit( ( int )remaining );
+        }
 
-        if ( LOG.isLoggable( Level.FINE ) )
+        if ( channel.read( buffer ) < 0 )
         {
-          LOG.log( Level.FINE, "Read: 0x{0}", Integer.toHexString( sample ) );
+          throw new EOFException( "Data readout interrupted: EOF." );
         }
 
-        values[idx] = sample;
-        timestamps[idx] = idx;
+        buffer.flip();
 
-        // Update the progress...
-        this.progressListener.acquisitionInProgress( ( int )( ( idx++ * 100.0 ) / count ) );
-      }
+        while ( buffer.remaining() >= width )
+        {
+          final int sample = readSample( buffer, width );
+          if ( ( idx == 0 ) || ( sample != lastSample ) )
+          {
+            addTransition( sample, idx );
+            lastSample = sample;
+          }
+          idx++;
+        }
 
-      final long absLength = timestamps[idx - 1];
-      final int enabledChannels = ( 1 << channels ) - 1;
+        // Keep any partially read sample for the next chunk...
+        buffer.compact();
 
-      return new CapturedData( values, timestamps, Ols.NOT_AVAILABLE, rate, channels, enabledChannels, absLength );
+        // Update the progress, but only if it actually changed...
+        final int percentage = ( int )( ( idx * 100L ) / count );
+        if ( percentage != lastPercentage )
+        {
+          this.progressListener.acquisitionInProgress( percentage );
+          lastPercentage = percentage;
+        }
+      }
     }
-    catch ( IOException exception )
+    catch ( ClosedByInterruptException exception )
     {
-      // Rethrow the caught exception...
-      throw exception;
+      // Keep the samples read so far, like a normal interrupt...
+      LOG.log( Level.FINE, "Data readout interrupted after {0} samples.", Long.valueOf( idx ) );
     }
     finally
     {
-      HostUtils.closeResource( this.inputStream );
+      HostUtils.closeResource( inputStream );
     }
+
+    if ( idx == 0 )
+    {
+      throw new InterruptedIOException( "Data readout interrupted: no samples read." );
+    }
+
+    LOG.log( Level.FINE, "Read {0} samples with {1} transitions.",
+        new Object[] { Long.valueOf( idx ), Integer.valueOf( this.size ) } );
+
+    final int[] resultValues = Arrays.copyOf( this.values, this.size );
+    final long[] resultTimestamps = Arrays.copyOf( this.timestamps, this.size );
+    // Release the buffers as soon as possible...
+    this.values = null;
+    this.timestamps = null;
+
+    final long absLength = idx - 1;
+    final int enabledChannels = ( int )( ( 1L << channels ) - 1 );
+
+    return new CapturedData( resultValues, resultTimestamps, Ols.NOT_AVAILABLE, rate, channels, enabledChannels,
+        absLength );
   }
 
   /**
-   * Reads <code>channels</code> / 8 bytes from stream and compiles them into a
-   * single integer.
+   * Decodes a single little-endian sample from the given buffer.
    * 
-   * @param aChannelCount
-   *          number of channels to read (must be multiple of 8)
-   * @return integer containing four bytes read
-   * @throws IOException
-   *           if stream reading fails
+   * @param aBuffer
+   *          the buffer to read from, should be in little-endian order and
+   *          have at least <tt>aSampleWidth</tt> bytes remaining;
+   * @param aSampleWidth
+   *          the number of bytes in a sample, 1..4.
+   * @return the decoded sample value.
    */
-  private int readSample( final int aSampleWidth ) throws IOException
+  private static int readSample( final ByteBuffer aBuffer, final int aSampleWidth )
   {
-    int v, value = 0;
-
-    for ( int i = 0; !Thread.currentThread().isInterrupted() && ( i < aSampleWidth ); i++ )
+    switch ( aSampleWidth )
     {
-      v = this.inputStream.read();
-
-      // Any timeouts/interrupts occurred?
-      if ( v < 0 )
-      {
-        throw new EOFException( "Data readout interrupted: EOF." );
-      }
-
-      value |= v << ( 8 * i );
+      case 1:
+        return aBuffer.get() & 0xFF;
+      case 2:
+        return aBuffer.getShort() & 0xFFFF;
+      case 3:
+        return ( aBuffer.getShort() & 0xFFFF ) | ( ( aBuffer.get() & 0xFF ) << 16 );
+      default:
+        return aBuffer.getInt();
     }
-
-    return value;
   }
 
+  /**
+   * Adds a transition to the current set of transitions, growing it if needed.
+   * 
+   * @param aValue
+   *          the sample value;
+   * @param aTimestamp
+   *          the sample index at which the value was read.
+   */
+  private void addTransition( final int aValue, final long aTimestamp )
+  {
+    if ( this.size == this.values.length )
+    {
+      final int newCapacity = ( int )Math.min( Integer.MAX_VALUE - 8, this.size * 2L );
+      this.values = Arrays.copyOf( this.values, newCapacity );
+      this.timestamps = Arrays.copyOf( this.timestamps, newCapacity );
+    }
+    this.values[this.size] = aValue;
+    this.timestamps[this.size] = aTimestamp;
+    this.size++;
+  }
 }
@@ -22,6 +22,7 @@ package org.sump.device.logicsniffer;
 
 
 import java.io.*;
+import java.nio.*;
 import java.util.*;
 import java.util.logging.*;
 
@@ -31,6 +32,7 @@ import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.io.channel.*;
 import nl.lxtreme.ols.util.*;
 
 import org.sump.device.logicsniffer.profile.*;
@@ -299,7 +301,16 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
       }
 
       this.outputStream = new SumpCommandWriter( this.config, conn.openDataOutputStream() );
-      this.inputStream = new SumpResultReader( conn.openDataInputStream() );
+      if ( conn instanceof ChannelConnection )
+      {
+        // Allow the raw data to be read without any intermediary copies...
+        this.inputStream = new SumpResultReader( conn.openDataInputStream(),
+            ( ( ChannelConnection )conn ).openReadableChannel() );
+      }
+      else
+      {
+        this.inputStream = new SumpResultReader( conn.openDataInputStream() );
+      }
 
       // We don't expect any data, so flush all data pending in the given
       // input stream. See issue #34.
@@ -422,15 +433,17 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
   private int[] readSamples( final int aEnabledGroupCount, int aSampleCount ) throws IOException, InterruptedException
   {
     final int length = aEnabledGroupCount * aSampleCount;
-    final byte[] rawData = new byte[length];
+    // Only NIO-channels benefit from direct buffers; serial connections are
+    // read through a stream, which reads directly into a heap buffer...
+    final ByteBuffer rawData = this.inputStream.isChannelBased() ? ByteBuffer.allocateDirect( length ) : ByteBuffer
+        .allocate( length );
     int offset = 0;
-    int count = length;
 
     try
     {
       while ( !Thread.currentThread().isInterrupted() && ( offset >= 0 ) && ( offset < length ) )
       {
-        int read = this.inputStream.readRawData( rawData, offset, count );
+        int read = this.inputStream.readRawData( rawData );
         if ( read < 0 )
         {
           // If the read fails, it might be because a stop was
@@ -441,7 +454,6 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
         }
         else
         {
-          count -= read;
           offset += read;
         }
 
@@ -488,7 +500,7 @@ public class LogicSnifferAcquisitionTask implements SumpProtocolConstants, Acqui
       {
         if ( this.config.isGroupEnabled( g ) )
         {
-          samples[i] |= ( ( rawData[j++] & 0xff ) << ( 8 * g ) );
+          samples[i] |= ( ( rawData.get( j++ ) & 0xff ) << ( 8 * g ) );
         }
       }
     }
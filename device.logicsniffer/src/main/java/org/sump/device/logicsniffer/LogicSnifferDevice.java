@@ -27,6 +27,7 @@ import java.util.logging.*;
 
 import javax.microedition.io.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.devices.*;
 import nl.lxtreme.ols.util.swing.*;
@@ -37,6 +38,7 @@ import org.osgi.framework.*;
 import org.osgi.service.cm.*;
 import org.osgi.service.io.*;
 import org.sump.device.logicsniffer.profile.*;
+import org.sump.device.logicsniffer.profile.DeviceProfile.CaptureClockSource;
 
 
 /**
@@ -44,7 +46,7 @@ import org.sump.device.logicsniffer.profile.*;
  * 
  * @author J.W. Janssen
  */
-public class LogicSnifferDevice implements Device
+public class LogicSnifferDevice implements ConfigurableDevice
 {
   // CONSTANTS
 
@@ -149,6 +151,81 @@ public class LogicSnifferDevice implements Device
     }
   }
 
+  /**
+   * Sets up this device without any user interaction. The following settings
+   * are recognized:
+   * <ul>
+   * <li><tt>uri</tt>, the connection URI of the device (mandatory);</li>
+   * <li><tt>profile</tt>, the type of the device profile to use;</li>
+   * <li><tt>sampleRate</tt> and <tt>sampleCount</tt>, the sample rate (in Hz)
+   * and number of samples to take;</li>
+   * <li><tt>ratio</tt>, the before/after trigger ratio (0.0..1.0);</li>
+   * <li><tt>enabledChannels</tt>, the bitmask of enabled channels;</li>
+   * <li><tt>externalClock</tt>, <tt>rle</tt>, <tt>filter</tt>,
+   * <tt>testMode</tt> and <tt>altNumberScheme</tt>, to enable these
+   * features;</li>
+   * <li><tt>triggerMask</tt>, <tt>triggerValue</tt> and
+   * <tt>triggerDelay</tt>, to define a simple, single stage, parallel
+   * trigger.</li>
+   * </ul>
+   * 
+   * @see nl.lxtreme.ols.api.devices.ConfigurableDevice#setupCapture(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void setupCapture( final UserSettings aSettings ) throws IllegalArgumentException
+  {
+    if ( aSettings == null )
+    {
+      throw new IllegalArgumentException( "Settings cannot be null!" );
+    }
+
+    final String uri = aSettings.get( "uri", "" ).trim();
+    if ( "".equals( uri ) )
+    {
+      throw new IllegalArgumentException( "No connection URI given!" );
+    }
+
+    final String profileType = aSettings.get( "profile", null );
+    final DeviceProfile profile = ( profileType == null ) ? getDefaultProfile() : getDeviceProfileManager()
+        .getProfile( profileType );
+    if ( profile == null )
+    {
+      throw new IllegalArgumentException( "No such device profile: " + profileType + "!" );
+    }
+
+    final LogicSnifferConfig newConfig = new LogicSnifferConfig();
+    newConfig.setDeviceProfile( profile );
+    newConfig.setConnectionURI( uri );
+    newConfig.setClockSource( aSettings.getBoolean( "externalClock", false ) ? CaptureClockSource.EXTERNAL_RISING
+        : CaptureClockSource.INTERNAL );
+    newConfig.setEnabledChannels( ( int )parseLong( aSettings, "enabledChannels", 0xFFFFFFFFL ) );
+    newConfig.setSampleRate( aSettings.getInt( "sampleRate", 1000000 ) );
+    newConfig.setSampleCount( aSettings.getInt( "sampleCount", 4096 ) );
+    try
+    {
+      newConfig.setRatio( Double.parseDouble( aSettings.get( "ratio", "0.5" ) ) );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IllegalArgumentException( "Invalid ratio: " + aSettings.get( "ratio", "" ) + "!" );
+    }
+    newConfig.setFilterEnabled( aSettings.getBoolean( "filter", false ) );
+    newConfig.setRleEnabled( aSettings.getBoolean( "rle", false ) );
+    newConfig.setAltNumberSchemeEnabled( aSettings.getBoolean( "altNumberScheme", false ) );
+    newConfig.setTestModeEnabled( aSettings.getBoolean( "testMode", false ) );
+
+    final int triggerMask = ( int )parseLong( aSettings, "triggerMask", 0L );
+    newConfig.setTriggerEnabled( triggerMask != 0 );
+    if ( triggerMask != 0 )
+    {
+      final int triggerValue = ( int )parseLong( aSettings, "triggerValue", 0L );
+      final int triggerDelay = aSettings.getInt( "triggerDelay", 0 );
+      newConfig.setParallelTrigger( 0, triggerMask, triggerValue, 0 /* level */, triggerDelay, true /* start */);
+    }
+
+    this.config = newConfig;
+  }
+
   /**
    * @param uri
    * @return
@@ -224,6 +301,29 @@ public class LogicSnifferDevice implements Device
     }
   }
 
+  /**
+   * Parses a (decimal, hexadecimal or octal) numeric setting.
+   * 
+   * @throws IllegalArgumentException
+   *           in case the setting was not numeric.
+   */
+  private static long parseLong( final UserSettings aSettings, final String aName, final long aDefault )
+  {
+    final String value = aSettings.get( aName, null );
+    if ( value == null )
+    {
+      return aDefault;
+    }
+    try
+    {
+      return Long.decode( value.trim() ).longValue();
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IllegalArgumentException( "Invalid value for " + aName + ": " + value + "!" );
+    }
+  }
+
   /**
    * Returns the current stream connection that is opened.
    * 
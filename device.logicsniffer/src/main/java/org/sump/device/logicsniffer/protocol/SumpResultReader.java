@@ -22,6 +22,8 @@ package org.sump.device.logicsniffer.protocol;
 
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.util.*;
@@ -41,6 +43,7 @@ public class SumpResultReader implements Closeable, SumpProtocolConstants
   // VARIABLES
 
   private final DataInputStream inputStream;
+  private final ReadableByteChannel channel;
 
   // CONSTRUCTORS
 
@@ -52,8 +55,25 @@ public class SumpResultReader implements Closeable, SumpProtocolConstants
    *          <code>null</code>.
    */
   public SumpResultReader( final DataInputStream aInputStream )
+  {
+    this( aInputStream, null );
+  }
+
+  /**
+   * Creates a new {@link SumpResultReader} instance.
+   * 
+   * @param aInputStream
+   *          the {@link DataInputStream} to read from, cannot be
+   *          <code>null</code>;
+   * @param aChannel
+   *          the channel to read raw data from, should read from the same
+   *          connection as the given input stream. If <code>null</code>, raw
+   *          data is read from the given input stream.
+   */
+  public SumpResultReader( final DataInputStream aInputStream, final ReadableByteChannel aChannel )
   {
     this.inputStream = aInputStream;
+    this.channel = aChannel;
   }
 
   // METHODS
@@ -80,6 +100,19 @@ public class SumpResultReader implements Closeable, SumpProtocolConstants
     }
   }
 
+  /**
+   * Returns whether raw data is read directly from a channel.
+   * 
+   * @return <code>true</code> if raw data is read from a channel, in which
+   *         case direct buffers are most efficient, <code>false</code> if it
+   *         is read from the contained input stream, in which case heap buffers
+   *         are most efficient.
+   */
+  public boolean isChannelBased()
+  {
+    return this.channel != null;
+  }
+
   /**
    * @return the found device ID, or -1 if no suitable device ID was found.
    * @throws IOException
@@ -187,6 +220,51 @@ public class SumpResultReader implements Closeable, SumpProtocolConstants
     return this.inputStream.read( aBuffer, aOffset, aCount );
   }
 
+  /**
+   * Reads raw data into the given buffer.
+   * <p>
+   * In case this reader has a channel to read from, the data is read directly
+   * into the given buffer, which is most efficient for direct buffers.
+   * Otherwise, the data is read from the contained input stream, which is most
+   * efficient for heap buffers, as these are read into without any copying.
+   * </p>
+   * 
+   * @see #isChannelBased()
+   * 
+   * @param aBuffer
+   *          the buffer to read into, cannot be <code>null</code>.
+   * @return the number of bytes read, >= 0, or -1 in case the end of the
+   *         stream is reached.
+   * @throws IOException
+   *           if stream reading fails.
+   */
+  public int readRawData( final ByteBuffer aBuffer ) throws IOException
+  {
+    if ( this.channel != null )
+    {
+      return this.channel.read( aBuffer );
+    }
+
+    if ( aBuffer.hasArray() )
+    {
+      final int read = this.inputStream.read( aBuffer.array(), aBuffer.arrayOffset() + aBuffer.position(),
+          aBuffer.remaining() );
+      if ( read > 0 )
+      {
+        aBuffer.position( aBuffer.position() + read );
+      }
+      return read;
+    }
+
+    final byte[] buf = new byte[Math.min( aBuffer.remaining(), 8192 )];
+    final int read = this.inputStream.read( buf );
+    if ( read > 0 )
+    {
+      aBuffer.put( buf, 0, read );
+    }
+    return read;
+  }
+
   /**
    * Reads a zero-terminated ASCII-string from the current input stream.
    * 
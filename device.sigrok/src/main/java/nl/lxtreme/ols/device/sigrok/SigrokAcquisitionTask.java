@@ -0,0 +1,393 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.sigrok;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.devices.*;
+
+
+/**
+ * Provides an acquisition task that imports a sigrok session file, as written
+ * by sigrok-cli, PulseView or the sigrok exporter.
+ * <p>
+ * Both version 1 sessions (a single <tt>logic-1</tt> entry) and version 2
+ * sessions (<tt>logic-1-1</tt>, <tt>logic-1-2</tt>, ... chunks) are supported.
+ * The sample chunks are streamed, and only the transitions are kept.
+ * </p>
+ */
+public class SigrokAcquisitionTask implements AcquisitionTask
+{
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( SigrokAcquisitionTask.class.getName() );
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  private static final int BUFFER_SIZE = 256 * 1024;
+
+  // VARIABLES
+
+  private final File file;
+  private final AcquisitionProgressListener progressListener;
+
+  private int[] values;
+  private long[] wideValues;
+  private long[] timestamps;
+  private int size;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SigrokAcquisitionTask} instance.
+   * 
+   * @param aFile
+   *          the session file to import, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the progress listener to report to, cannot be <code>null</code>.
+   */
+  public SigrokAcquisitionTask( final File aFile, final AcquisitionProgressListener aProgressListener )
+  {
+    this.file = aFile;
+    this.progressListener = aProgressListener;
+  }
+
+  // METHODS
+
+  /**
+   * Parses a sample rate as written by sigrok, like "24 MHz" or "500 kHz".
+   * 
+   * @param aRate
+   *          the sample rate to parse, cannot be <code>null</code>.
+   * @return the sample rate, in Hertz.
+   * @throws IOException
+   *           in case the given sample rate is invalid.
+   */
+  static long parseSampleRate( final String aRate ) throws IOException
+  {
+    String text = aRate.trim();
+    if ( text.toLowerCase().endsWith( "hz" ) )
+    {
+      text = text.substring( 0, text.length() - 2 ).trim();
+    }
+
+    double multiplier = 1.0;
+    if ( !text.isEmpty() )
+    {
+      final char suffix = text.charAt( text.length() - 1 );
+      if ( ( suffix == 'k' ) || ( suffix == 'K' ) )
+      {
+        multiplier = 1.0e3;
+      }
+      else if ( suffix == 'M' )
+      {
+        multiplier = 1.0e6;
+      }
+      else if ( ( suffix == 'G' ) || ( suffix == 'g' ) )
+      {
+        multiplier = 1.0e9;
+      }
+      if ( multiplier > 1.0 )
+      {
+        text = text.substring( 0, text.length() - 1 ).trim();
+      }
+    }
+
+    try
+    {
+      return Math.round( Double.parseDouble( text ) * multiplier );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IOException( "Invalid sample rate: " + aRate + "!" );
+    }
+  }
+
+  /**
+   * Reads the first device section of the given metadata.
+   * 
+   * @return the properties of the first device, never <code>null</code>.
+   */
+  static Map<String, String> parseMetadata( final Reader aReader ) throws IOException
+  {
+    final Map<String, String> result = new HashMap<String, String>();
+
+    final BufferedReader reader = new BufferedReader( aReader );
+    boolean inDevice = false;
+
+    String line;
+    while ( ( line = reader.readLine() ) != null )
+    {
+      line = line.trim();
+      if ( line.startsWith( "[" ) )
+      {
+        if ( inDevice )
+        {
+          // Only the first device is imported...
+          break;
+        }
+        inDevice = line.startsWith( "[device " );
+      }
+      else if ( inDevice )
+      {
+        final int idx = line.indexOf( '=' );
+        if ( idx > 0 )
+        {
+          result.put( line.substring( 0, idx ).trim(), line.substring( idx + 1 ).trim() );
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AcquisitionResult call() throws Exception
+  {
+    final ZipFile zipFile = new ZipFile( this.file );
+    try
+    {
+      final ZipEntry metadataEntry = zipFile.getEntry( "metadata" );
+      if ( metadataEntry == null )
+      {
+        throw new IOException( this.file.getName() + " is not a sigrok session: no metadata found!" );
+      }
+
+      final Map<String, String> metadata = parseMetadata( new InputStreamReader(
+          zipFile.getInputStream( metadataEntry ), "UTF-8" ) );
+
+      final String captureFile = metadata.get( "capturefile" );
+      if ( captureFile == null )
+      {
+        throw new IOException( "No logic data found in " + this.file.getName() + "!" );
+      }
+
+      final int channels = parseInt( metadata, "total probes", 0 );
+      if ( ( channels < 1 ) || ( channels > Ols.MAX_WIDE_CHANNELS ) )
+      {
+        throw new IOException( "Unsupported number of channels: " + channels + "; at most "
+            + Ols.MAX_WIDE_CHANNELS + " channels are supported!" );
+      }
+      final int unitSize = parseInt( metadata, "unitsize", 1 );
+      if ( ( unitSize < 1 ) || ( unitSize > 8 ) )
+      {
+        throw new IOException( "Unsupported unit size: " + unitSize + "!" );
+      }
+
+      int rate = Ols.NOT_AVAILABLE;
+      if ( metadata.containsKey( "samplerate" ) )
+      {
+        rate = ( int )Math.min( Integer.MAX_VALUE, parseSampleRate( metadata.get( "samplerate" ) ) );
+      }
+
+      final List<ZipEntry> chunks = getChunks( zipFile, captureFile );
+
+      final long sampleCount = readSamples( zipFile, chunks, channels, unitSize );
+      if ( sampleCount == 0L )
+      {
+        throw new IOException( "No samples found in " + this.file.getName() + "!" );
+      }
+
+      LOG.log( Level.FINE, "Imported {0} samples with {1} transitions from {2}.", new Object[] {
+          Long.valueOf( sampleCount ), Integer.valueOf( this.size ), this.file } );
+
+      final long[] time = Arrays.copyOf( this.timestamps, this.size );
+      this.timestamps = null;
+
+      if ( channels > Ols.MAX_CHANNELS )
+      {
+        final long[] data = Arrays.copyOf( this.wideValues, this.size );
+        final long enabledChannels = ( channels >= 64 ) ? -1L : ( ( 1L << channels ) - 1L );
+        return new WideCapturedData( data, time, Ols.NOT_AVAILABLE, rate, channels, enabledChannels,
+            sampleCount - 1L );
+      }
+
+      final int[] data = Arrays.copyOf( this.values, this.size );
+      final int enabledChannels = ( int )( ( 1L << channels ) - 1L );
+      return new CapturedData( data, time, Ols.NOT_AVAILABLE, rate, channels, enabledChannels, sampleCount - 1L );
+    }
+    finally
+    {
+      this.values = null;
+      this.wideValues = null;
+      this.timestamps = null;
+
+      zipFile.close();
+    }
+  }
+
+  /**
+   * Parses an integer property of the given metadata.
+   */
+  private static int parseInt( final Map<String, String> aMetadata, final String aKey, final int aDefault )
+      throws IOException
+  {
+    final String value = aMetadata.get( aKey );
+    if ( value == null )
+    {
+      return aDefault;
+    }
+    try
+    {
+      return Integer.parseInt( value );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IOException( "Invalid value for " + aKey + ": " + value + "!" );
+    }
+  }
+
+  /**
+   * Adds a transition, growing the transition buffers if needed.
+   */
+  private void addTransition( final long aValue, final long aTimestamp ) throws IOException
+  {
+    if ( this.size == this.timestamps.length )
+    {
+      if ( this.size >= ( Integer.MAX_VALUE - 8 ) )
+      {
+        throw new IOException( "Too many transitions!" );
+      }
+      final int newCapacity = ( int )Math.min( Integer.MAX_VALUE - 8, this.size * 2L );
+      if ( this.values != null )
+      {
+        this.values = Arrays.copyOf( this.values, newCapacity );
+      }
+      else
+      {
+        this.wideValues = Arrays.copyOf( this.wideValues, newCapacity );
+      }
+      this.timestamps = Arrays.copyOf( this.timestamps, newCapacity );
+    }
+    if ( this.values != null )
+    {
+      this.values[this.size] = ( int )aValue;
+    }
+    else
+    {
+      this.wideValues[this.size] = aValue;
+    }
+    this.timestamps[this.size] = aTimestamp;
+    this.size++;
+  }
+
+  /**
+   * Returns the sample chunks of the given capture file, in order.
+   */
+  private List<ZipEntry> getChunks( final ZipFile aZipFile, final String aCaptureFile ) throws IOException
+  {
+    final List<ZipEntry> result = new ArrayList<ZipEntry>();
+
+    final ZipEntry single = aZipFile.getEntry( aCaptureFile );
+    if ( single != null )
+    {
+      // Version 1 session...
+      result.add( single );
+    }
+    else
+    {
+      ZipEntry chunk;
+      while ( ( chunk = aZipFile.getEntry( aCaptureFile + "-" + ( result.size() + 1 ) ) ) != null )
+      {
+        result.add( chunk );
+      }
+    }
+
+    if ( result.isEmpty() )
+    {
+      throw new IOException( "No logic data found in " + this.file.getName() + "!" );
+    }
+    return result;
+  }
+
+  /**
+   * Streams all sample chunks, and keeps only the transitions.
+   * 
+   * @return the number of samples read.
+   */
+  private long readSamples( final ZipFile aZipFile, final List<ZipEntry> aChunks, final int aChannels,
+      final int aUnitSize ) throws IOException, InterruptedException
+  {
+    final boolean wide = aChannels > Ols.MAX_CHANNELS;
+    this.values = wide ? null : new int[INITIAL_CAPACITY];
+    this.wideValues = wide ? new long[INITIAL_CAPACITY] : null;
+    this.timestamps = new long[INITIAL_CAPACITY];
+    this.size = 0;
+
+    final long mask = ( aChannels >= 64 ) ? -1L : ( ( 1L << aChannels ) - 1L );
+    final byte[] buffer = new byte[BUFFER_SIZE];
+
+    long sample = 0L;
+    long lastValue = 0L;
+    // A sample can be split across two reads (or even chunks)...
+    long value = 0L;
+    int byteIndex = 0;
+
+    for ( int c = 0; c < aChunks.size(); c++ )
+    {
+      final InputStream is = aZipFile.getInputStream( aChunks.get( c ) );
+      try
+      {
+        int count;
+        while ( ( count = is.read( buffer ) ) > 0 )
+        {
+          for ( int i = 0; i < count; i++ )
+          {
+            value |= ( buffer[i] & 0xFFL ) << ( byteIndex * 8 );
+            if ( ++byteIndex == aUnitSize )
+            {
+              value &= mask;
+              if ( ( sample == 0L ) || ( value != lastValue ) )
+              {
+                addTransition( value, sample );
+                lastValue = value;
+              }
+              sample++;
+              value = 0L;
+              byteIndex = 0;
+            }
+          }
+        }
+      }
+      finally
+      {
+        is.close();
+      }
+
+      if ( Thread.currentThread().isInterrupted() )
+      {
+        throw new InterruptedException();
+      }
+      this.progressListener.acquisitionInProgress( ( ( c + 1 ) * 100 ) / aChunks.size() );
+    }
+
+    return sample;
+  }
+}
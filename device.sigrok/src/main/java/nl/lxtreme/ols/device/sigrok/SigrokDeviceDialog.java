@@ -0,0 +1,211 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.sigrok;
+
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.util.swing.*;
+import nl.lxtreme.ols.util.swing.StandardActionFactory.CloseAction.Closeable;
+
+
+/**
+ * Provides the settings dialog for the sigrok import device.
+ */
+public class SigrokDeviceDialog extends JDialog implements Configurable, Closeable
+{
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  private static final FileFilter SESSION_FILTER = new FileNameExtensionFilter( "sigrok session files", "sr" );
+
+  // VARIABLES
+
+  private boolean setupConfirmed;
+  private File file;
+
+  private JTextField filenameField;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SigrokDeviceDialog} instance.
+   * 
+   * @param aParent
+   *          the owning window of this dialog.
+   */
+  public SigrokDeviceDialog( final Window aParent )
+  {
+    super( aParent, "sigrok import settings", ModalityType.DOCUMENT_MODAL );
+
+    this.setupConfirmed = false;
+
+    initDialog();
+  }
+
+  // METHODS
+
+  /**
+   * @see nl.lxtreme.ols.util.swing.StandardActionFactory.CloseAction.Closeable#close()
+   */
+  @Override
+  public void close()
+  {
+    setVisible( false );
+    dispose();
+  }
+
+  /**
+   * Returns the session file to import.
+   * 
+   * @return the file to import, never <code>null</code>.
+   */
+  public File getFile()
+  {
+    return this.file;
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#readPreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void readPreferences( final UserSettings aSettings )
+  {
+    this.filenameField.setText( aSettings.get( "filename", this.filenameField.getText() ) );
+  }
+
+  /**
+   * Shows this dialog on screen.
+   * 
+   * @return <code>true</code> if this dialog is confirmed, <code>false</code>
+   *         if it was cancelled.
+   */
+  public boolean showDialog()
+  {
+    this.setupConfirmed = false;
+
+    setVisible( true );
+
+    return this.setupConfirmed;
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#writePreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void writePreferences( final UserSettings aSettings )
+  {
+    aSettings.put( "filename", this.filenameField.getText() );
+  }
+
+  /**
+   * Confirms and closes this dialog.
+   */
+  final void confirmAndCloseDialog()
+  {
+    final File selectedFile = new File( this.filenameField.getText().trim() );
+    if ( !selectedFile.isFile() )
+    {
+      JOptionPane.showMessageDialog( this, "Please select an existing session file!", "Invalid file",
+          JOptionPane.ERROR_MESSAGE );
+      return;
+    }
+
+    this.setupConfirmed = true;
+
+    // Make the selected information available for the outside...
+    this.file = selectedFile;
+
+    close();
+  }
+
+  /**
+   * @return
+   */
+  private JPanel createContents()
+  {
+    this.filenameField = new JTextField( 30 );
+
+    final JButton browseButton = new JButton( "..." );
+    browseButton.addActionListener( new ActionListener()
+    {
+      @Override
+      public void actionPerformed( final ActionEvent aEvent )
+      {
+        final File selectedFile = SwingComponentUtils.showFileOpenDialog( SigrokDeviceDialog.this, SESSION_FILTER );
+        if ( selectedFile != null )
+        {
+          SigrokDeviceDialog.this.filenameField.setText( selectedFile.getAbsolutePath() );
+        }
+      }
+    } );
+
+    final Insets labelInsets = new Insets( 4, 4, 4, 2 );
+    final Insets compInsets = new Insets( 4, 2, 4, 4 );
+
+    final JPanel result = new JPanel( new GridBagLayout() );
+    result.setBorder( BorderFactory.createEmptyBorder( 4, 0, 4, 0 ) );
+
+    result.add( new JLabel( "Input file" ), //
+        new GridBagConstraints( 0, 0, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+            GridBagConstraints.HORIZONTAL, labelInsets, 0, 0 ) );
+    result.add( this.filenameField, //
+        new GridBagConstraints( 1, 0, 1, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+            GridBagConstraints.HORIZONTAL, compInsets, 0, 0 ) );
+    result.add( browseButton, //
+        new GridBagConstraints( 2, 0, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+            GridBagConstraints.NONE, compInsets, 0, 0 ) );
+
+    return result;
+  }
+
+  /**
+   * Initializes this dialog.
+   */
+  private void initDialog()
+  {
+    final JComponent contents = createContents();
+    final JButton closeButton = StandardActionFactory.createCloseButton();
+
+    final JButton okButton = new JButton( "Ok" );
+    okButton.setPreferredSize( closeButton.getPreferredSize() );
+    okButton.addActionListener( new ActionListener()
+    {
+      @Override
+      public void actionPerformed( final ActionEvent aEvent )
+      {
+        confirmAndCloseDialog();
+      }
+    } );
+
+    final JComponent buttonPane = SwingComponentUtils.createButtonPane( okButton, closeButton );
+
+    SwingComponentUtils.setupWindowContentPane( this, contents, buttonPane, okButton );
+  }
+}
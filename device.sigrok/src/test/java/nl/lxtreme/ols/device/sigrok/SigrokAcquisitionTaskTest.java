@@ -0,0 +1,262 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.sigrok;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link SigrokAcquisitionTask}.
+ */
+public class SigrokAcquisitionTaskTest
+{
+  // VARIABLES
+
+  private File file;
+
+  // METHODS
+
+  /**
+   * Deletes the session file written by a test.
+   */
+  @After
+  public void tearDown()
+  {
+    if ( this.file != null )
+    {
+      this.file.delete();
+    }
+  }
+
+  /**
+   * Test method for {@link SigrokAcquisitionTask#parseSampleRate(String)}.
+   */
+  @Test
+  public void testParseSampleRateOk() throws IOException
+  {
+    assertEquals( 200L, SigrokAcquisitionTask.parseSampleRate( "200 Hz" ) );
+    assertEquals( 1000L, SigrokAcquisitionTask.parseSampleRate( "1000" ) );
+    assertEquals( 500000L, SigrokAcquisitionTask.parseSampleRate( "500 kHz" ) );
+    assertEquals( 500000L, SigrokAcquisitionTask.parseSampleRate( "500khz" ) );
+    assertEquals( 24000000L, SigrokAcquisitionTask.parseSampleRate( "24 MHz" ) );
+    assertEquals( 1500000000L, SigrokAcquisitionTask.parseSampleRate( "1.5 GHz" ) );
+  }
+
+  /**
+   * Test method for {@link SigrokAcquisitionTask#parseSampleRate(String)}.
+   */
+  @Test( expected = IOException.class )
+  public void testParseInvalidSampleRateFail() throws IOException
+  {
+    SigrokAcquisitionTask.parseSampleRate( "fast" );
+  }
+
+  /**
+   * Tests that a version 1 session, with all samples in a single entry, is
+   * imported correctly.
+   */
+  @Test
+  public void testImportVersion1SessionOk() throws Exception
+  {
+    final byte[] samples = { 0x00, 0x00, 0x01, 0x01, 0x01, 0x03, 0x02, 0x02 };
+
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put( "metadata", metadata( "logic-1", 8, 1, "1 MHz" ) );
+    entries.put( "logic-1", samples );
+
+    final AcquisitionResult result = importSession( entries );
+
+    assertTrue( result instanceof CapturedData );
+    assertEquals( 8, result.getChannels() );
+    assertEquals( 0xFF, result.getEnabledChannels() );
+    assertEquals( 1000000, result.getSampleRate() );
+    assertEquals( samples.length - 1L, result.getAbsoluteLength() );
+    // Only the transitions are kept, plus the last sample...
+    assertArrayEquals( new int[] { 0x00, 0x01, 0x03, 0x02, 0x02 }, result.getValues() );
+    assertArrayEquals( new long[] { 0L, 2L, 5L, 6L, 7L }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that a version 2 session, with its samples split over several
+   * chunks and a unit size of more than one byte, is imported correctly.
+   */
+  @Test
+  public void testImportVersion2ChunkedSessionOk() throws Exception
+  {
+    final int[] expected = { 0x0000, 0x1234, 0x1234, 0xFFFF, 0x00FF, 0x00FF };
+    final byte[] samples = toBytes( expected, 2 );
+
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put( "version", "2".getBytes( "US-ASCII" ) );
+    entries.put( "metadata", metadata( "logic-1", 16, 2, "24 MHz" ) );
+    // Split the samples halfway a sample, over three chunks...
+    entries.put( "logic-1-1", Arrays.copyOfRange( samples, 0, 3 ) );
+    entries.put( "logic-1-2", Arrays.copyOfRange( samples, 3, 8 ) );
+    entries.put( "logic-1-3", Arrays.copyOfRange( samples, 8, samples.length ) );
+
+    final AcquisitionResult result = importSession( entries );
+
+    assertEquals( 16, result.getChannels() );
+    assertEquals( 24000000, result.getSampleRate() );
+    assertEquals( expected.length - 1L, result.getAbsoluteLength() );
+    assertArrayEquals( new int[] { 0x0000, 0x1234, 0xFFFF, 0x00FF, 0x00FF }, result.getValues() );
+    assertArrayEquals( new long[] { 0L, 1L, 3L, 4L, 5L }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that the bits beyond the number of channels are ignored.
+   */
+  @Test
+  public void testImportIgnoresUnusedBitsOk() throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put( "metadata", metadata( "logic-1", 4, 1, "100 kHz" ) );
+    entries.put( "logic-1", new byte[] { 0x01, ( byte )0xF1, 0x02 } );
+
+    final AcquisitionResult result = importSession( entries );
+
+    assertArrayEquals( new int[] { 0x01, 0x02 }, result.getValues() );
+    assertArrayEquals( new long[] { 0L, 2L }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that a session with more than 32 channels is imported as wide
+   * capture data.
+   */
+  @Test
+  public void testImportWideSessionOk() throws Exception
+  {
+    final long[] expected = { 0x00000000001L, 0x0FF00000001L, 0x0FF00000001L, 0x8000000000L };
+    final byte[] samples = new byte[expected.length * 5];
+    for ( int i = 0; i < expected.length; i++ )
+    {
+      for ( int b = 0; b < 5; b++ )
+      {
+        samples[i * 5 + b] = ( byte )( expected[i] >>> ( 8 * b ) );
+      }
+    }
+
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put( "version", "2".getBytes( "US-ASCII" ) );
+    entries.put( "metadata", metadata( "logic-1", 40, 5, "1 MHz" ) );
+    entries.put( "logic-1-1", samples );
+
+    final AcquisitionResult result = importSession( entries );
+
+    assertTrue( result instanceof WideCapturedData );
+    final WideCapturedData wide = ( WideCapturedData )result;
+    assertEquals( 40, wide.getChannels() );
+    assertEquals( 0xFFFFFFFFFFL, wide.getEnabledChannelMask() );
+    assertArrayEquals( new long[] { 0L, 1L, 3L }, wide.getTimestamps() );
+    assertArrayEquals( new int[] { 0x00000001, 0x00000001, 0x00000000 }, wide.getValues( 0 ) );
+    assertArrayEquals( new int[] { 0x00, 0xFF, 0x80 }, wide.getValues( 1 ) );
+  }
+
+  /**
+   * Tests that a session without any logic data is refused.
+   */
+  @Test( expected = IOException.class )
+  public void testImportSessionWithoutSamplesFail() throws Exception
+  {
+    final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+    entries.put( "metadata", metadata( "logic-1", 8, 1, "1 MHz" ) );
+
+    importSession( entries );
+  }
+
+  /**
+   * Creates the metadata of a session with a single device.
+   */
+  private byte[] metadata( final String aCaptureFile, final int aChannels, final int aUnitSize, final String aRate )
+      throws IOException
+  {
+    final StringBuilder sb = new StringBuilder();
+    sb.append( "[global]\n" );
+    sb.append( "sigrok version=0.3.0\n" );
+    sb.append( "\n" );
+    sb.append( "[device 1]\n" );
+    sb.append( "capturefile=" ).append( aCaptureFile ).append( '\n' );
+    sb.append( "total probes=" ).append( aChannels ).append( '\n' );
+    sb.append( "samplerate=" ).append( aRate ).append( '\n' );
+    sb.append( "unitsize=" ).append( aUnitSize ).append( '\n' );
+    for ( int i = 1; i <= aChannels; i++ )
+    {
+      sb.append( "probe" ).append( i ).append( '=' ).append( i - 1 ).append( '\n' );
+    }
+    sb.append( "\n" );
+    sb.append( "[device 2]\n" );
+    sb.append( "capturefile=other\n" );
+    return sb.toString().getBytes( "UTF-8" );
+  }
+
+  /**
+   * Writes the given entries to a session file, and imports it.
+   */
+  private AcquisitionResult importSession( final Map<String, byte[]> aEntries ) throws Exception
+  {
+    this.file = File.createTempFile( "ols", ".sr" );
+
+    final ZipOutputStream zos = new ZipOutputStream( new FileOutputStream( this.file ) );
+    try
+    {
+      for ( Map.Entry<String, byte[]> entry : aEntries.entrySet() )
+      {
+        zos.putNextEntry( new ZipEntry( entry.getKey() ) );
+        zos.write( entry.getValue() );
+        zos.closeEntry();
+      }
+    }
+    finally
+    {
+      zos.close();
+    }
+
+    final AcquisitionProgressListener listener = mock( AcquisitionProgressListener.class );
+    return new SigrokAcquisitionTask( this.file, listener ).call();
+  }
+
+  /**
+   * Converts the given values to little-endian samples of the given size.
+   */
+  private byte[] toBytes( final int[] aValues, final int aUnitSize )
+  {
+    final byte[] result = new byte[aValues.length * aUnitSize];
+    for ( int i = 0; i < aValues.length; i++ )
+    {
+      for ( int b = 0; b < aUnitSize; b++ )
+      {
+        result[i * aUnitSize + b] = ( byte )( aValues[i] >>> ( 8 * b ) );
+      }
+    }
+    return result;
+  }
+}
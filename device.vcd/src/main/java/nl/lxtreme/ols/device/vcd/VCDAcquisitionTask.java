@@ -0,0 +1,674 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.vcd;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.devices.*;
+
+
+/**
+ * Provides an acquisition task that imports a value change dump, as specified
+ * in IEEE Std 1364-2001.
+ * <p>
+ * Each bit of a scalar or vector variable is mapped onto a channel, in order of
+ * declaration; the least significant bit of a vector comes first. Unknown
+ * (<tt>x</tt>) and high-impedance (<tt>z</tt>) values are imported as low, real
+ * variables are ignored.
+ * </p>
+ * <p>
+ * The body of the dump is streamed, and only the transitions are kept, after
+ * decimating the simulation times to the sample rate. Hence, the memory used
+ * depends on the number of transitions at the sample rate, not on the size of
+ * the dump.
+ * </p>
+ */
+public class VCDAcquisitionTask implements AcquisitionTask
+{
+  // INNER TYPES
+
+  /**
+   * Describes a declared variable and the channels it is mapped onto.
+   */
+  static final class Variable
+  {
+    // VARIABLES
+
+    final String name;
+    final int width;
+
+    int firstChannel = -1;
+    int channelCount = 0;
+    long mask = 0L;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Variable} instance.
+     */
+    Variable( final String aName, final int aWidth )
+    {
+      this.name = aName;
+      this.width = aWidth;
+    }
+
+    // METHODS
+
+    /**
+     * Returns whether this variable is mapped onto one or more channels.
+     */
+    boolean isImported()
+    {
+      return this.mask != 0L;
+    }
+
+    /**
+     * Maps this variable onto the channels starting at the given channel.
+     * 
+     * @return the number of channels used.
+     */
+    int mapTo( final int aFirstChannel )
+    {
+      this.firstChannel = aFirstChannel;
+      this.channelCount = this.width;
+      if ( ( aFirstChannel + this.width ) <= Ols.MAX_WIDE_CHANNELS )
+      {
+        this.mask = ( ( this.width >= 64 ) ? -1L : ( ( 1L << this.width ) - 1L ) ) << aFirstChannel;
+      }
+      return this.channelCount;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( VCDAcquisitionTask.class.getName() );
+
+  private static final int INITIAL_CAPACITY = 64 * 1024;
+  /** The number of tokens between two checks for progress and interrupts. */
+  private static final int CHECK_INTERVAL = 64 * 1024;
+  /** The number of femtoseconds in a second. */
+  private static final long FS_PER_SECOND = 1000000000000000L;
+  /** The timescale to use when a dump does not declare one, in femtoseconds. */
+  private static final long DEFAULT_TIMESCALE = 1000000L;
+
+  // VARIABLES
+
+  private final File file;
+  private final Set<String> selection;
+  private final int sampleRate;
+  private final AcquisitionProgressListener progressListener;
+
+  private final List<Variable> variables;
+  private final VCDIdentifierMap identifiers;
+
+  private long timescale;
+  private int channels;
+
+  private int[] values;
+  private long[] wideValues;
+  private long[] timestamps;
+  private int size;
+  private int lastPercentage;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link VCDAcquisitionTask} instance.
+   * 
+   * @param aFile
+   *          the VCD file to import, cannot be <code>null</code>;
+   * @param aVariables
+   *          the comma separated names of the variables to import, can be
+   *          <code>null</code> or empty to import all variables;
+   * @param aSampleRate
+   *          the sample rate to decimate to, in Hertz, or 0 to use the
+   *          timescale of the dump;
+   * @param aProgressListener
+   *          the progress listener to report to, cannot be <code>null</code>.
+   */
+  public VCDAcquisitionTask( final File aFile, final String aVariables, final int aSampleRate,
+      final AcquisitionProgressListener aProgressListener )
+  {
+    this.file = aFile;
+    this.selection = parseSelection( aVariables );
+    this.sampleRate = aSampleRate;
+    this.progressListener = aProgressListener;
+
+    this.variables = new ArrayList<Variable>();
+    this.identifiers = new VCDIdentifierMap();
+  }
+
+  // METHODS
+
+  /**
+   * Determines the sample rate to use for a given timescale, which is the
+   * highest rate that fits in an integer, but no higher than one sample per
+   * time unit.
+   * 
+   * @param aTimescale
+   *          the timescale, in femtoseconds, > 0.
+   * @return a sample rate, in Hertz, >= 1.
+   */
+  static int getSampleRate( final long aTimescale )
+  {
+    long rate = FS_PER_SECOND / aTimescale;
+    while ( rate > Integer.MAX_VALUE )
+    {
+      rate /= 10L;
+    }
+    return ( int )Math.max( 1L, rate );
+  }
+
+  /**
+   * Parses a timescale declaration like "1 ns" or "10ps".
+   * 
+   * @param aTimescale
+   *          the timescale to parse, cannot be <code>null</code>.
+   * @return the timescale, in femtoseconds.
+   * @throws IOException
+   *           in case the given timescale is invalid.
+   */
+  static long parseTimescale( final String aTimescale ) throws IOException
+  {
+    final String text = aTimescale.replaceAll( "\\s+", "" );
+
+    int i = 0;
+    while ( ( i < text.length() ) && Character.isDigit( text.charAt( i ) ) )
+    {
+      i++;
+    }
+
+    final String number = text.substring( 0, i );
+    final String unit = text.substring( i );
+
+    final long factor;
+    if ( "s".equals( unit ) )
+    {
+      factor = FS_PER_SECOND;
+    }
+    else if ( "ms".equals( unit ) )
+    {
+      factor = FS_PER_SECOND / 1000L;
+    }
+    else if ( "us".equals( unit ) )
+    {
+      factor = FS_PER_SECOND / 1000000L;
+    }
+    else if ( "ns".equals( unit ) )
+    {
+      factor = FS_PER_SECOND / 1000000000L;
+    }
+    else if ( "ps".equals( unit ) )
+    {
+      factor = 1000L;
+    }
+    else if ( "fs".equals( unit ) )
+    {
+      factor = 1L;
+    }
+    else
+    {
+      throw new IOException( "Invalid timescale: " + aTimescale + "!" );
+    }
+
+    if ( !"1".equals( number ) && !"10".equals( number ) && !"100".equals( number ) )
+    {
+      throw new IOException( "Invalid timescale: " + aTimescale + "!" );
+    }
+    return Integer.parseInt( number ) * factor;
+  }
+
+  /**
+   * Returns the greatest common divisor of the given (positive) numbers.
+   */
+  private static long gcd( final long aA, final long aB )
+  {
+    long a = aA;
+    long b = aB;
+    while ( b != 0L )
+    {
+      final long t = a % b;
+      a = b;
+      b = t;
+    }
+    return a;
+  }
+
+  /**
+   * Returns <tt>floor(aValue * aNumerator / aDenominator)</tt>, without
+   * overflowing for large values.
+   */
+  static long scale( final long aValue, final long aNumerator, final long aDenominator )
+  {
+    final long whole = ( aValue / aDenominator ) * aNumerator;
+    final long rest = aValue % aDenominator;
+    if ( ( aDenominator - 1L ) <= ( Long.MAX_VALUE / aNumerator ) )
+    {
+      return whole + ( ( rest * aNumerator ) / aDenominator );
+    }
+    return whole + ( long )( ( rest * ( double )aNumerator ) / aDenominator );
+  }
+
+  /**
+   * Parses a comma separated list of variable names.
+   * 
+   * @return the set of names, or <code>null</code> if no names are given.
+   */
+  private static Set<String> parseSelection( final String aSelection )
+  {
+    if ( ( aSelection == null ) || aSelection.trim().isEmpty() )
+    {
+      return null;
+    }
+
+    final Set<String> result = new HashSet<String>();
+    for ( String name : aSelection.split( "," ) )
+    {
+      name = name.trim();
+      if ( !name.isEmpty() )
+      {
+        result.add( name );
+      }
+    }
+    return result.isEmpty() ? null : result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AcquisitionResult call() throws Exception
+  {
+    this.lastPercentage = -1;
+    this.timescale = DEFAULT_TIMESCALE;
+
+    final long length = this.file.length();
+
+    final VCDTokenizer tokenizer = new VCDTokenizer( new FileInputStream( this.file ) );
+    try
+    {
+      readDeclarations( tokenizer );
+      if ( this.channels == 0 )
+      {
+        throw new IOException( "No (selected) variables found in " + this.file.getName() + "!" );
+      }
+
+      final int rate = ( this.sampleRate > 0 ) ? this.sampleRate : getSampleRate( this.timescale );
+
+      LOG.log( Level.FINE, "Importing {0} channels from {1}, using a timescale of {2} fs and {3} Hz.", new Object[] {
+          Integer.valueOf( this.channels ), this.file, Long.valueOf( this.timescale ), Integer.valueOf( rate ) } );
+
+      // Samples per time unit = (timescale * rate) / FS_PER_SECOND, as exact
+      // fraction to avoid rounding errors...
+      final long g1 = gcd( this.timescale, FS_PER_SECOND );
+      final long g2 = gcd( rate, FS_PER_SECOND / g1 );
+      final long numerator = ( this.timescale / g1 ) * ( rate / g2 );
+      final long denominator = FS_PER_SECOND / g1 / g2;
+
+      final long absLength = readValueChanges( tokenizer, numerator, denominator, length );
+      if ( this.size == 0 )
+      {
+        throw new IOException( "No value changes found in " + this.file.getName() + "!" );
+      }
+
+      return createResult( rate, absLength );
+    }
+    finally
+    {
+      this.values = null;
+      this.wideValues = null;
+      this.timestamps = null;
+
+      tokenizer.close();
+    }
+  }
+
+  /**
+   * Adds a transition, growing the transition buffers if needed.
+   */
+  private void addTransition( final long aValue, final long aTimestamp ) throws IOException
+  {
+    if ( this.size == this.timestamps.length )
+    {
+      if ( this.size >= ( Integer.MAX_VALUE - 8 ) )
+      {
+        throw new IOException( "Too many transitions; try a lower sample rate!" );
+      }
+      final int newCapacity = ( int )Math.min( Integer.MAX_VALUE - 8, this.size * 2L );
+      if ( this.values != null )
+      {
+        this.values = Arrays.copyOf( this.values, newCapacity );
+      }
+      else
+      {
+        this.wideValues = Arrays.copyOf( this.wideValues, newCapacity );
+      }
+      this.timestamps = Arrays.copyOf( this.timestamps, newCapacity );
+    }
+    if ( this.values != null )
+    {
+      this.values[this.size] = ( int )aValue;
+    }
+    else
+    {
+      this.wideValues[this.size] = aValue;
+    }
+    this.timestamps[this.size] = aTimestamp;
+    this.size++;
+  }
+
+  /**
+   * Creates the acquisition result from the transition buffers.
+   */
+  private AcquisitionResult createResult( final int aRate, final long aAbsLength )
+  {
+    final long[] time = Arrays.copyOf( this.timestamps, this.size );
+    this.timestamps = null;
+
+    if ( this.channels > Ols.MAX_CHANNELS )
+    {
+      final long[] data = Arrays.copyOf( this.wideValues, this.size );
+      this.wideValues = null;
+
+      final long enabledChannels = ( this.channels >= 64 ) ? -1L : ( ( 1L << this.channels ) - 1L );
+      return new WideCapturedData( data, time, Ols.NOT_AVAILABLE, aRate, this.channels, enabledChannels, aAbsLength );
+    }
+
+    final int[] data = Arrays.copyOf( this.values, this.size );
+    this.values = null;
+
+    final int enabledChannels = ( int )( ( 1L << this.channels ) - 1L );
+    return new CapturedData( data, time, Ols.NOT_AVAILABLE, aRate, this.channels, enabledChannels, aAbsLength );
+  }
+
+  /**
+   * Reads all declarations up to and including <tt>$enddefinitions</tt>, and
+   * maps the (selected) variables onto channels.
+   */
+  private void readDeclarations( final VCDTokenizer aTokenizer ) throws IOException
+  {
+    final LinkedList<String> scopes = new LinkedList<String>();
+
+    while ( aTokenizer.nextToken() )
+    {
+      if ( aTokenizer.matches( "$enddefinitions" ) )
+      {
+        aTokenizer.readUntilEnd();
+
+        if ( this.channels > Ols.MAX_WIDE_CHANNELS )
+        {
+          throw new IOException( "Too many channels: at most " + Ols.MAX_WIDE_CHANNELS
+              + " channels are supported; please select the variables to import!" );
+        }
+
+        this.values = ( this.channels > Ols.MAX_CHANNELS ) ? null : new int[INITIAL_CAPACITY];
+        this.wideValues = ( this.channels > Ols.MAX_CHANNELS ) ? new long[INITIAL_CAPACITY] : null;
+        this.timestamps = new long[INITIAL_CAPACITY];
+        this.size = 0;
+        return;
+      }
+      else if ( aTokenizer.matches( "$timescale" ) )
+      {
+        this.timescale = parseTimescale( aTokenizer.readUntilEnd() );
+      }
+      else if ( aTokenizer.matches( "$scope" ) )
+      {
+        final String[] parts = aTokenizer.readUntilEnd().split( " " );
+        scopes.addLast( parts[parts.length - 1] );
+      }
+      else if ( aTokenizer.matches( "$upscope" ) )
+      {
+        aTokenizer.readUntilEnd();
+        if ( !scopes.isEmpty() )
+        {
+          scopes.removeLast();
+        }
+      }
+      else if ( aTokenizer.matches( "$var" ) )
+      {
+        readVariable( aTokenizer.readUntilEnd(), scopes );
+      }
+      else if ( aTokenizer.charAt( 0 ) == '$' )
+      {
+        // $comment, $date, $version, ...
+        aTokenizer.readUntilEnd();
+      }
+      else
+      {
+        throw new IOException( "Unexpected token in declarations: " + aTokenizer + "!" );
+      }
+    }
+
+    throw new EOFException( "Unexpected end of file: missing $enddefinitions!" );
+  }
+
+  /**
+   * Streams all value changes, and keeps the transitions at the given sample
+   * rate.
+   * 
+   * @param aNumerator
+   *          the numerator of the number of samples per time unit;
+   * @param aDenominator
+   *          the denominator of the number of samples per time unit;
+   * @param aLength
+   *          the length of the file, for reporting progress.
+   * @return the absolute length of the data, in samples.
+   */
+  private long readValueChanges( final VCDTokenizer aTokenizer, final long aNumerator, final long aDenominator,
+      final long aLength ) throws IOException, InterruptedException
+  {
+
+    final Variable[] vars = this.variables.toArray( new Variable[this.variables.size()] );
+
+    long value = 0L;
+    long lastValue = 0L;
+    long sample = -1L;
+
+    int tokens = 0;
+    while ( aTokenizer.nextToken() )
+    {
+      if ( ( ++tokens % CHECK_INTERVAL ) == 0 )
+      {
+        if ( Thread.currentThread().isInterrupted() )
+        {
+          throw new InterruptedException();
+        }
+        updateProgress( ( int )( ( aTokenizer.getBytesRead() * 100L ) / Math.max( 1L, aLength ) ) );
+      }
+
+      final char ch = aTokenizer.charAt( 0 );
+      switch ( ch )
+      {
+        case '#':
+        {
+          final long time = aTokenizer.parseLong( 1 );
+          if ( time < 0L )
+          {
+            throw new IOException( "Invalid simulation time: " + aTokenizer + "!" );
+          }
+
+          final long newSample = scale( time, aNumerator, aDenominator );
+          if ( newSample > sample )
+          {
+            // Leaving the current sample; keep its final value if it changed...
+            if ( ( sample >= 0L ) && ( ( this.size == 0 ) || ( value != lastValue ) ) )
+            {
+              addTransition( value, sample );
+              lastValue = value;
+            }
+            sample = newSample;
+          }
+          break;
+        }
+
+        case '0':
+        case '1':
+        case 'x':
+        case 'X':
+        case 'z':
+        case 'Z':
+        {
+          final int index = this.identifiers.get( aTokenizer, 1 );
+          if ( ( index >= 0 ) && vars[index].isImported() )
+          {
+            final Variable var = vars[index];
+            value = ( ch == '1' ) ? ( value | var.mask ) : ( value & ~var.mask );
+          }
+          break;
+        }
+
+        case 'b':
+        case 'B':
+        {
+          final long bits = aTokenizer.parseBinary( 1 );
+          if ( !aTokenizer.nextToken() )
+          {
+            throw new EOFException( "Unexpected end of file: missing identifier!" );
+          }
+
+          final int index = this.identifiers.get( aTokenizer, 0 );
+          if ( ( index >= 0 ) && vars[index].isImported() )
+          {
+            final Variable var = vars[index];
+            value = ( value & ~var.mask ) | ( ( bits << var.firstChannel ) & var.mask );
+          }
+          break;
+        }
+
+        case 'r':
+        case 'R':
+        {
+          // Real values are not supported; skip its identifier...
+          aTokenizer.nextToken();
+          break;
+        }
+
+        case '$':
+        {
+          if ( aTokenizer.matches( "$comment" ) )
+          {
+            aTokenizer.readUntilEnd();
+          }
+          // $dumpvars, $dumpall, $dumpon, $dumpoff and $end simply
+          // surround value changes...
+          break;
+        }
+
+        default:
+          throw new IOException( "Unexpected token in value changes: " + aTokenizer + "!" );
+      }
+    }
+
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedException();
+    }
+
+    if ( ( sample >= 0L ) && ( ( this.size == 0 ) || ( value != lastValue ) ) )
+    {
+      addTransition( value, sample );
+    }
+    updateProgress( 100 );
+
+    return Math.max( 0L, sample );
+  }
+
+  /**
+   * Parses a variable declaration (without the leading <tt>$var</tt> and the
+   * trailing <tt>$end</tt>), and maps it onto channels when selected.
+   */
+  private void readVariable( final String aDeclaration, final List<String> aScopes ) throws IOException
+  {
+    // <type> <width> <identifier> <reference> [<range>]
+    final String[] parts = aDeclaration.split( " " );
+    if ( parts.length < 4 )
+    {
+      throw new IOException( "Invalid variable declaration: " + aDeclaration + "!" );
+    }
+
+    final int width;
+    try
+    {
+      width = Integer.parseInt( parts[1] );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IOException( "Invalid variable width: " + aDeclaration + "!" );
+    }
+
+    final String identifier = parts[2];
+    final String reference = parts[3];
+
+    final StringBuilder sb = new StringBuilder();
+    for ( String scope : aScopes )
+    {
+      sb.append( scope ).append( '.' );
+    }
+    final String name = sb.append( reference ).toString();
+
+    final boolean real = "real".equals( parts[0] ) || "realtime".equals( parts[0] );
+    final boolean selected = ( this.selection == null ) || this.selection.contains( name )
+        || this.selection.contains( reference );
+
+    final int index = this.variables.size();
+    final Variable var = new Variable( name, width );
+    this.variables.add( var );
+
+    final int aliased = this.identifiers.get( identifier );
+    if ( ( aliased >= 0 ) && ( this.variables.get( aliased ).firstChannel >= 0 ) )
+    {
+      // An alias of an already mapped variable; its values are shared...
+      return;
+    }
+
+    if ( selected && !real && ( width > 0 ) )
+    {
+      this.channels += var.mapTo( this.channels );
+      LOG.log( Level.FINE, "Mapping {0} onto channel {1}.",
+          new Object[] { name, Integer.valueOf( var.firstChannel ) } );
+    }
+    // Bind the identifier to this variable, unless it is not mapped while an
+    // (unmapped) alias was declared earlier...
+    if ( ( aliased < 0 ) || ( var.firstChannel >= 0 ) )
+    {
+      this.identifiers.put( identifier, index );
+    }
+  }
+
+  /**
+   * Reports the given progress, but only if it differs from the last reported
+   * progress.
+   */
+  private void updateProgress( final int aPercentage )
+  {
+    if ( aPercentage != this.lastPercentage )
+    {
+      this.progressListener.acquisitionInProgress( Math.min( 100, aPercentage ) );
+      this.lastPercentage = aPercentage;
+    }
+  }
+}
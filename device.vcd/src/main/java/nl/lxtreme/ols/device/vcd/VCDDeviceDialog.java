@@ -0,0 +1,264 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.vcd;
+
+
+import java.awt.*;
+import java.awt.event.*;
+import java.io.*;
+
+import javax.swing.*;
+import javax.swing.filechooser.FileFilter;
+import javax.swing.filechooser.FileNameExtensionFilter;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.util.*;
+import nl.lxtreme.ols.util.swing.*;
+import nl.lxtreme.ols.util.swing.StandardActionFactory.CloseAction.Closeable;
+
+
+/**
+ * Provides the settings dialog for the VCD import device.
+ */
+public class VCDDeviceDialog extends JDialog implements Configurable, Closeable
+{
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  private static final FileFilter VCD_FILTER = new FileNameExtensionFilter( "Value Change Dump files", "vcd" );
+
+  // VARIABLES
+
+  private boolean setupConfirmed;
+  private File file;
+  private String variables;
+  private int sampleRate;
+
+  private JTextField filenameField;
+  private JTextField variablesField;
+  private JTextField sampleRateField;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link VCDDeviceDialog} instance.
+   * 
+   * @param aParent
+   *          the owning window of this dialog.
+   */
+  public VCDDeviceDialog( final Window aParent )
+  {
+    super( aParent, "VCD import settings", ModalityType.DOCUMENT_MODAL );
+
+    this.setupConfirmed = false;
+
+    initDialog();
+  }
+
+  // METHODS
+
+  /**
+   * @see nl.lxtreme.ols.util.swing.StandardActionFactory.CloseAction.Closeable#close()
+   */
+  @Override
+  public void close()
+  {
+    setVisible( false );
+    dispose();
+  }
+
+  /**
+   * Returns the VCD file to import.
+   * 
+   * @return the file to import, never <code>null</code>.
+   */
+  public File getFile()
+  {
+    return this.file;
+  }
+
+  /**
+   * Returns the sample rate to decimate the dump to.
+   * 
+   * @return the sample rate in Hertz (Hz), or 0 to derive the sample rate from
+   *         the timescale of the dump.
+   */
+  public int getSampleRate()
+  {
+    return this.sampleRate;
+  }
+
+  /**
+   * Returns the variables to import.
+   * 
+   * @return a comma separated list of (hierarchical) variable names, or an
+   *         empty string to import all variables.
+   */
+  public String getVariables()
+  {
+    return this.variables;
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#readPreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void readPreferences( final UserSettings aSettings )
+  {
+    this.filenameField.setText( aSettings.get( "filename", this.filenameField.getText() ) );
+    this.variablesField.setText( aSettings.get( "variables", this.variablesField.getText() ) );
+    this.sampleRateField.setText( aSettings.get( "sampleRate", this.sampleRateField.getText() ) );
+  }
+
+  /**
+   * Shows this dialog on screen.
+   * 
+   * @return <code>true</code> if this dialog is confirmed, <code>false</code>
+   *         if it was cancelled.
+   */
+  public boolean showDialog()
+  {
+    this.setupConfirmed = false;
+
+    setVisible( true );
+
+    return this.setupConfirmed;
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#writePreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void writePreferences( final UserSettings aSettings )
+  {
+    aSettings.put( "filename", this.filenameField.getText() );
+    aSettings.put( "variables", this.variablesField.getText() );
+    aSettings.put( "sampleRate", this.sampleRateField.getText() );
+  }
+
+  /**
+   * Confirms and closes this dialog.
+   */
+  final void confirmAndCloseDialog()
+  {
+    final File selectedFile = new File( this.filenameField.getText().trim() );
+    if ( !selectedFile.isFile() )
+    {
+      JOptionPane.showMessageDialog( this, "Please select an existing VCD file!", "Invalid file",
+          JOptionPane.ERROR_MESSAGE );
+      return;
+    }
+
+    this.setupConfirmed = true;
+
+    // Make the selected information available for the outside...
+    this.file = selectedFile;
+    this.variables = this.variablesField.getText().trim();
+    this.sampleRate = Math.max( 0, NumberUtils.safeParseInt( this.sampleRateField.getText().trim(), 0 ) );
+
+    close();
+  }
+
+  /**
+   * @return
+   */
+  private JPanel createContents()
+  {
+    this.filenameField = new JTextField( 30 );
+
+    final JButton browseButton = new JButton( "..." );
+    browseButton.addActionListener( new ActionListener()
+    {
+      @Override
+      public void actionPerformed( final ActionEvent aEvent )
+      {
+        final File selectedFile = SwingComponentUtils.showFileOpenDialog( VCDDeviceDialog.this, VCD_FILTER );
+        if ( selectedFile != null )
+        {
+          VCDDeviceDialog.this.filenameField.setText( selectedFile.getAbsolutePath() );
+        }
+      }
+    } );
+
+    this.variablesField = new JTextField();
+    this.variablesField.setToolTipText( "Variables to import, like \"top.clk,data\"; leave empty to import all." );
+
+    this.sampleRateField = new JTextField();
+    this.sampleRateField.setToolTipText( "Sample rate (in Hz); leave empty to use the timescale of the dump." );
+
+    final Insets labelInsets = new Insets( 4, 4, 4, 2 );
+    final Insets compInsets = new Insets( 4, 2, 4, 4 );
+
+    final JPanel result = new JPanel( new GridBagLayout() );
+    result.setBorder( BorderFactory.createEmptyBorder( 4, 0, 4, 0 ) );
+
+    result.add( new JLabel( "Input file" ), //
+        new GridBagConstraints( 0, 0, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+            GridBagConstraints.HORIZONTAL, labelInsets, 0, 0 ) );
+    result.add( this.filenameField, //
+        new GridBagConstraints( 1, 0, 1, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+            GridBagConstraints.HORIZONTAL, compInsets, 0, 0 ) );
+    result.add( browseButton, //
+        new GridBagConstraints( 2, 0, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+            GridBagConstraints.NONE, compInsets, 0, 0 ) );
+
+    result.add( new JLabel( "Variables" ), //
+        new GridBagConstraints( 0, 1, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+            GridBagConstraints.HORIZONTAL, labelInsets, 0, 0 ) );
+    result.add( this.variablesField, //
+        new GridBagConstraints( 1, 1, 2, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+            GridBagConstraints.HORIZONTAL, compInsets, 0, 0 ) );
+
+    result.add( new JLabel( "Sample rate (Hz)" ), //
+        new GridBagConstraints( 0, 2, 1, 1, 0.0, 0.0, GridBagConstraints.BASELINE_LEADING,
+            GridBagConstraints.HORIZONTAL, labelInsets, 0, 0 ) );
+    result.add( this.sampleRateField, //
+        new GridBagConstraints( 1, 2, 2, 1, 1.0, 0.0, GridBagConstraints.BASELINE_TRAILING,
+            GridBagConstraints.HORIZONTAL, compInsets, 0, 0 ) );
+
+    return result;
+  }
+
+  /**
+   * Initializes this dialog.
+   */
+  private void initDialog()
+  {
+    final JComponent contents = createContents();
+    final JButton closeButton = StandardActionFactory.createCloseButton();
+
+    final JButton okButton = new JButton( "Ok" );
+    okButton.setPreferredSize( closeButton.getPreferredSize() );
+    okButton.addActionListener( new ActionListener()
+    {
+      @Override
+      public void actionPerformed( final ActionEvent aEvent )
+      {
+        confirmAndCloseDialog();
+      }
+    } );
+
+    final JComponent buttonPane = SwingComponentUtils.createButtonPane( okButton, closeButton );
+
+    SwingComponentUtils.setupWindowContentPane( this, contents, buttonPane, okButton );
+  }
+}
@@ -0,0 +1,246 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.vcd;
+
+
+import java.util.*;
+
+
+/**
+ * Maps VCD identifier codes onto variable indexes without creating objects for
+ * each lookup.
+ * <p>
+ * Identifier codes consist of printable ASCII characters. Codes of a single
+ * character are looked up directly in an array; codes of up to nine characters
+ * are packed into a single long, and looked up in an open addressing hash
+ * table. Only longer codes, which are rare in practice, are looked up as
+ * strings.
+ * </p>
+ */
+final class VCDIdentifierMap
+{
+  // CONSTANTS
+
+  /** The maximum number of characters that can be packed in a long. */
+  private static final int MAX_PACKED_LENGTH = 9;
+
+  // VARIABLES
+
+  private final int[] singles;
+  private final Map<String, Integer> others;
+
+  private long[] keys;
+  private int[] values;
+  private int size;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link VCDIdentifierMap} instance.
+   */
+  public VCDIdentifierMap()
+  {
+    this.singles = new int[128];
+    Arrays.fill( this.singles, -1 );
+    this.others = new HashMap<String, Integer>();
+
+    this.keys = new long[256];
+    this.values = new int[256];
+  }
+
+  // METHODS
+
+  /**
+   * Returns the index of the variable with the identifier code that is
+   * currently held by the given tokenizer.
+   * 
+   * @param aTokenizer
+   *          the tokenizer holding the identifier code;
+   * @param aOffset
+   *          the offset of the identifier code in the current token.
+   * @return the index of the variable, or -1 if the identifier is unknown.
+   */
+  public int get( final VCDTokenizer aTokenizer, final int aOffset )
+  {
+    final int length = aTokenizer.length() - aOffset;
+    if ( length == 1 )
+    {
+      return this.singles[aTokenizer.charAt( aOffset ) & 0x7F];
+    }
+    if ( length <= 0 )
+    {
+      return -1;
+    }
+    if ( length > MAX_PACKED_LENGTH )
+    {
+      final Integer value = this.others.get( aTokenizer.toString().substring( aOffset ) );
+      return ( value == null ) ? -1 : value.intValue();
+    }
+
+    long key = 0L;
+    for ( int i = aOffset; i < aTokenizer.length(); i++ )
+    {
+      key = ( key << 7 ) | ( aTokenizer.charAt( i ) & 0x7F );
+    }
+    return lookup( key );
+  }
+
+  /**
+   * Returns the index of the variable with the given identifier code.
+   * 
+   * @param aIdentifier
+   *          the identifier code, cannot be <code>null</code>.
+   * @return the index of the variable, or -1 if the identifier is unknown.
+   */
+  public int get( final String aIdentifier )
+  {
+    final int length = aIdentifier.length();
+    if ( length == 1 )
+    {
+      return this.singles[aIdentifier.charAt( 0 ) & 0x7F];
+    }
+    if ( ( length == 0 ) || ( length > MAX_PACKED_LENGTH ) )
+    {
+      final Integer value = this.others.get( aIdentifier );
+      return ( value == null ) ? -1 : value.intValue();
+    }
+    return lookup( pack( aIdentifier ) );
+  }
+
+  /**
+   * Adds a mapping for the given identifier code, replacing any existing
+   * mapping of this identifier code.
+   * 
+   * @param aIdentifier
+   *          the identifier code, cannot be <code>null</code> or empty;
+   * @param aIndex
+   *          the variable index, >= 0.
+   */
+  public void put( final String aIdentifier, final int aIndex )
+  {
+    final int length = aIdentifier.length();
+    if ( length == 1 )
+    {
+      this.singles[aIdentifier.charAt( 0 ) & 0x7F] = aIndex;
+      return;
+    }
+    if ( ( length == 0 ) || ( length > MAX_PACKED_LENGTH ) )
+    {
+      this.others.put( aIdentifier, Integer.valueOf( aIndex ) );
+      return;
+    }
+
+    if ( ( ( this.size + 1 ) * 2 ) > this.keys.length )
+    {
+      rehash( this.keys.length * 2 );
+    }
+    if ( insert( this.keys, this.values, pack( aIdentifier ), aIndex ) )
+    {
+      this.size++;
+    }
+  }
+
+  /**
+   * Returns a hash for the given key.
+   */
+  private static int hash( final long aKey )
+  {
+    final long h = aKey * 0x9E3779B97F4A7C15L;
+    return ( int )( h ^ ( h >>> 32 ) );
+  }
+
+  /**
+   * Packs the given identifier code of at most {@value #MAX_PACKED_LENGTH}
+   * characters into a single long.
+   */
+  private static long pack( final String aIdentifier )
+  {
+    long key = 0L;
+    for ( int i = 0; i < aIdentifier.length(); i++ )
+    {
+      key = ( key << 7 ) | ( aIdentifier.charAt( i ) & 0x7F );
+    }
+    return key;
+  }
+
+  /**
+   * Inserts the given key into the given table, or replaces its value if it is
+   * already present.
+   * 
+   * @return <code>true</code> if the key was inserted, <code>false</code> if
+   *         it was already present.
+   */
+  private static boolean insert( final long[] aKeys, final int[] aValues, final long aKey, final int aValue )
+  {
+    final int mask = aKeys.length - 1;
+    for ( int slot = hash( aKey ) & mask;; slot = ( slot + 1 ) & mask )
+    {
+      if ( aKeys[slot] == aKey )
+      {
+        aValues[slot] = aValue;
+        return false;
+      }
+      if ( aKeys[slot] == 0L )
+      {
+        aKeys[slot] = aKey;
+        aValues[slot] = aValue;
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Looks up the given packed identifier code in the hash table.
+   */
+  private int lookup( final long aKey )
+  {
+    final int mask = this.keys.length - 1;
+    for ( int slot = hash( aKey ) & mask;; slot = ( slot + 1 ) & mask )
+    {
+      if ( this.keys[slot] == aKey )
+      {
+        return this.values[slot];
+      }
+      if ( this.keys[slot] == 0L )
+      {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * Grows the hash table to the given capacity.
+   */
+  private void rehash( final int aCapacity )
+  {
+    final long[] newKeys = new long[aCapacity];
+    final int[] newValues = new int[aCapacity];
+    for ( int i = 0; i < this.keys.length; i++ )
+    {
+      if ( this.keys[i] != 0L )
+      {
+        insert( newKeys, newValues, this.keys[i], this.values[i] );
+      }
+    }
+    this.keys = newKeys;
+    this.values = newValues;
+  }
+}
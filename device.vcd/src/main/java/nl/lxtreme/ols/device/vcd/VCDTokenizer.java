@@ -0,0 +1,340 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.vcd;
+
+
+import java.io.*;
+
+
+/**
+ * Provides a streaming tokenizer for value change dump files.
+ * <p>
+ * A VCD file consists of whitespace separated tokens of (7-bit) ASCII
+ * characters. This tokenizer reads its input in large blocks and copies each
+ * token into a reusable buffer, so that no objects are created while reading
+ * the (potentially very large) body of a dump.
+ * </p>
+ */
+final class VCDTokenizer implements Closeable
+{
+  // CONSTANTS
+
+  private static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  // VARIABLES
+
+  private final InputStream input;
+  private final byte[] buffer;
+
+  private byte[] token;
+  private int tokenLength;
+  private int position;
+  private int limit;
+  private long bytesRead;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link VCDTokenizer} instance.
+   * 
+   * @param aInput
+   *          the input stream to read the tokens from, cannot be
+   *          <code>null</code>.
+   */
+  public VCDTokenizer( final InputStream aInput )
+  {
+    this( aInput, DEFAULT_BUFFER_SIZE );
+  }
+
+  /**
+   * Creates a new {@link VCDTokenizer} instance.
+   * 
+   * @param aInput
+   *          the input stream to read the tokens from, cannot be
+   *          <code>null</code>;
+   * @param aBufferSize
+   *          the size of the read buffer, in bytes, > 0.
+   */
+  public VCDTokenizer( final InputStream aInput, final int aBufferSize )
+  {
+    if ( aInput == null )
+    {
+      throw new IllegalArgumentException( "Input cannot be null!" );
+    }
+    if ( aBufferSize <= 0 )
+    {
+      throw new IllegalArgumentException( "Buffer size should be positive!" );
+    }
+
+    this.input = aInput;
+    this.buffer = new byte[aBufferSize];
+    this.token = new byte[64];
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    this.input.close();
+  }
+
+  /**
+   * Returns the number of bytes that are consumed so far.
+   * 
+   * @return the number of consumed bytes, >= 0.
+   */
+  public long getBytesRead()
+  {
+    return this.bytesRead - ( this.limit - this.position );
+  }
+
+  /**
+   * Returns the character at the given position of the current token.
+   * 
+   * @param aIndex
+   *          the index of the character, >= 0 && < {@link #length()}.
+   * @return a character.
+   */
+  public char charAt( final int aIndex )
+  {
+    return ( char )( this.token[aIndex] & 0xFF );
+  }
+
+  /**
+   * Returns whether the current token equals the given text.
+   * 
+   * @param aText
+   *          the text to compare against, cannot be <code>null</code>.
+   * @return <code>true</code> if the current token equals the given text,
+   *         <code>false</code> otherwise.
+   */
+  public boolean matches( final String aText )
+  {
+    final int length = aText.length();
+    if ( length != this.tokenLength )
+    {
+      return false;
+    }
+    for ( int i = 0; i < length; i++ )
+    {
+      if ( this.token[i] != aText.charAt( i ) )
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the length of the current token.
+   * 
+   * @return a token length, >= 0.
+   */
+  public int length()
+  {
+    return this.tokenLength;
+  }
+
+  /**
+   * Reads the next token.
+   * 
+   * @return <code>true</code> if a next token was read, <code>false</code> if
+   *         the end of the input was reached.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public boolean nextToken() throws IOException
+  {
+    this.tokenLength = 0;
+
+    // Skip all leading whitespace...
+    do
+    {
+      if ( ( this.position == this.limit ) && !fill() )
+      {
+        return false;
+      }
+    }
+    while ( this.buffer[this.position++] <= ' ' );
+
+    this.position--;
+
+    do
+    {
+      final byte[] buf = this.buffer;
+      final int end = this.limit;
+
+      int pos = this.position;
+      while ( ( pos < end ) && ( buf[pos] > ' ' ) )
+      {
+        pos++;
+      }
+
+      append( this.position, pos - this.position );
+      this.position = pos;
+
+      if ( pos < end )
+      {
+        // Found the whitespace ending this token...
+        return true;
+      }
+    }
+    while ( fill() );
+
+    return true;
+  }
+
+  /**
+   * Parses the current token, starting at the given offset, as a binary
+   * number. Only the 64 least significant bits are returned; any character
+   * other than <tt>1</tt> (e.g., <tt>x</tt> or <tt>z</tt>) is taken as zero.
+   * 
+   * @param aOffset
+   *          the offset to start parsing from, >= 0.
+   * @return the parsed number.
+   */
+  public long parseBinary( final int aOffset )
+  {
+    long result = 0L;
+    for ( int i = Math.max( aOffset, this.tokenLength - 64 ); i < this.tokenLength; i++ )
+    {
+      result = ( result << 1 ) | ( ( this.token[i] == '1' ) ? 1L : 0L );
+    }
+    return result;
+  }
+
+  /**
+   * Parses the current token, starting at the given offset, as an unsigned
+   * decimal number.
+   * 
+   * @param aOffset
+   *          the offset to start parsing from, >= 0.
+   * @return the parsed number, or -1 if the token did not contain a valid
+   *         number.
+   */
+  public long parseLong( final int aOffset )
+  {
+    if ( aOffset >= this.tokenLength )
+    {
+      return -1L;
+    }
+
+    long result = 0L;
+    for ( int i = aOffset; i < this.tokenLength; i++ )
+    {
+      final int digit = this.token[i] - '0';
+      if ( ( digit < 0 ) || ( digit > 9 ) || ( result > ( ( Long.MAX_VALUE - digit ) / 10L ) ) )
+      {
+        return -1L;
+      }
+      result = ( result * 10L ) + digit;
+    }
+    return result;
+  }
+
+  /**
+   * Skips all tokens up to and including the next <tt>$end</tt> token.
+   * 
+   * @return the skipped tokens, separated by a single space, never
+   *         <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems, or when the end of the input was
+   *           reached.
+   */
+  public String readUntilEnd() throws IOException
+  {
+    final StringBuilder sb = new StringBuilder();
+    while ( nextToken() )
+    {
+      if ( matches( "$end" ) )
+      {
+        return sb.toString();
+      }
+      if ( sb.length() > 0 )
+      {
+        sb.append( ' ' );
+      }
+      sb.append( toString() );
+    }
+    throw new EOFException( "Unexpected end of file: missing $end!" );
+  }
+
+  /**
+   * Returns the current token as string. Should only be used for the
+   * (relatively small) declarations, as it creates a new string.
+   * 
+   * @return the current token, never <code>null</code>.
+   */
+  @Override
+  public String toString()
+  {
+    final char[] chars = new char[this.tokenLength];
+    for ( int i = 0; i < chars.length; i++ )
+    {
+      chars[i] = ( char )( this.token[i] & 0xFF );
+    }
+    return new String( chars );
+  }
+
+  /**
+   * Appends the given part of the read buffer to the current token.
+   */
+  private void append( final int aOffset, final int aLength )
+  {
+    final int newLength = this.tokenLength + aLength;
+    if ( newLength > this.token.length )
+    {
+      final byte[] newToken = new byte[Math.max( newLength, this.token.length * 2 )];
+      System.arraycopy( this.token, 0, newToken, 0, this.tokenLength );
+      this.token = newToken;
+    }
+    System.arraycopy( this.buffer, aOffset, this.token, this.tokenLength, aLength );
+    this.tokenLength = newLength;
+  }
+
+  /**
+   * Fills the read buffer with the next block of input.
+   * 
+   * @return <code>true</code> if new data was read, <code>false</code> if the
+   *         end of the input was reached.
+   */
+  private boolean fill() throws IOException
+  {
+    int count;
+    do
+    {
+      count = this.input.read( this.buffer, 0, this.buffer.length );
+    }
+    while ( count == 0 );
+
+    this.position = 0;
+    this.limit = Math.max( 0, count );
+    if ( count > 0 )
+    {
+      this.bytesRead += count;
+    }
+    return count > 0;
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.device.vcd;
+
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+import org.junit.*;
+import org.junit.rules.*;
+
+
+/**
+ * Provides test cases for {@link VCDAcquisitionTask}.
+ */
+public class VCDAcquisitionTaskTest
+{
+  // CONSTANTS
+
+  private static final String HEADER = "$date today $end\n" //
+      + "$timescale 1 ns $end\n" //
+      + "$scope module top $end\n" //
+      + "$var wire 1 ! clk $end\n" //
+      + "$var wire 4 \"# data [3:0] $end\n" //
+      + "$var real 64 $ voltage $end\n" //
+      + "$upscope $end\n" //
+      + "$enddefinitions $end\n";
+
+  // VARIABLES
+
+  private AcquisitionProgressListener listener;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  // METHODS
+
+  /**
+   * Set up for each test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.listener = mock( AcquisitionProgressListener.class );
+  }
+
+  /**
+   * Tests that value changes within a single sample are decimated to the last
+   * value of that sample.
+   */
+  @Test
+  public void testDecimateToSampleRateOk() throws Exception
+  {
+    final File file = createDump( HEADER //
+        + "#0\n0!\nb0000 \"#\n" //
+        + "#10\n1!\n" // glitch of 5 ns
+        + "#15\n0!\n" //
+        + "#100\n1!\n" //
+        + "#200\n" );
+
+    // 100 MHz = 10 ns per sample...
+    final AcquisitionResult result = new VCDAcquisitionTask( file, null, 100000000, this.listener ).call();
+
+    assertEquals( 100000000, result.getSampleRate() );
+    assertArrayEquals( new int[] { 0, 1, 1 }, result.getValues() );
+    assertArrayEquals( new long[] { 0, 10, 20 }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that a selected variable is imported when it shares its identifier
+   * with an earlier declared, unselected, variable.
+   */
+  @Test
+  public void testImportAliasedIdentifierOk() throws Exception
+  {
+    final File file = createDump( "$timescale 1 ns $end\n" //
+        + "$scope module top $end\n" //
+        + "$var wire 1 ! clk $end\n" //
+        + "$var wire 1 % en $end\n" //
+        + "$scope module sub $end\n" //
+        + "$var wire 1 ! sclk $end\n" //
+        + "$var wire 1 % sen $end\n" //
+        + "$upscope $end\n" //
+        + "$upscope $end\n" //
+        + "$enddefinitions $end\n" //
+        + "#0\n1!\n0%\n" //
+        + "#2\n0!\n1%\n" //
+        + "#4\n" );
+
+    // clk is not selected, but its alias sclk is; en and its alias sen are
+    // both selected, but share a single channel...
+    final AcquisitionResult result = new VCDAcquisitionTask( file, "top.sub.sclk,top.en,top.sub.sen", 0,
+        this.listener ).call();
+
+    assertEquals( 2, result.getChannels() );
+    // en is declared first, so it is mapped onto channel 0...
+    assertArrayEquals( new int[] { 0x02, 0x01, 0x01 }, result.getValues() );
+    assertArrayEquals( new long[] { 0, 2, 4 }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that scalar and vector variables are mapped onto channels, and that
+   * real variables are ignored.
+   */
+  @Test
+  public void testImportScalarsAndVectorsOk() throws Exception
+  {
+    final File file = createDump( HEADER //
+        + "$dumpvars\nx!\nbxxxx \"#\nr0.5 $\n$end\n" //
+        + "#0\n1!\n" //
+        + "#5\nb101 \"#\nr1.5 $\n" //
+        + "#7\n0!\nb1z10 \"#\n" //
+        + "#9\n" );
+
+    final AcquisitionResult result = new VCDAcquisitionTask( file, "", 0, this.listener ).call();
+
+    assertEquals( 5, result.getChannels() );
+    assertEquals( 0x1F, result.getEnabledChannels() );
+    assertEquals( 1000000000, result.getSampleRate() );
+    assertEquals( 9, result.getAbsoluteLength() );
+    assertArrayEquals( new int[] { 0x01, 0x0B, 0x14, 0x14 }, result.getValues() );
+    assertArrayEquals( new long[] { 0, 5, 7, 9 }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that only the selected variables are imported.
+   */
+  @Test
+  public void testImportSelectedVariablesOk() throws Exception
+  {
+    final File file = createDump( HEADER //
+        + "#0\n1!\nb0011 \"#\n" //
+        + "#1\n0!\n" //
+        + "#2\nb0000 \"#\n" //
+        + "#3\n" );
+
+    final AcquisitionResult result = new VCDAcquisitionTask( file, "top.data", 0, this.listener ).call();
+
+    assertEquals( 4, result.getChannels() );
+    assertArrayEquals( new int[] { 3, 0, 0 }, result.getValues() );
+    assertArrayEquals( new long[] { 0, 2, 3 }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that more than 32 channels result in wide captured data.
+   */
+  @Test
+  public void testImportWideVectorOk() throws Exception
+  {
+    final File file = createDump( "$timescale 1 us $end\n" //
+        + "$var wire 40 ! bus [39:0] $end\n" //
+        + "$enddefinitions $end\n" //
+        + "#0\nb0 !\n" //
+        + "#3\nb1000000000000000000000000000000000000001 !\n" //
+        + "#4\n" );
+
+    final AcquisitionResult result = new VCDAcquisitionTask( file, null, 0, this.listener ).call();
+
+    assertTrue( result instanceof WideAcquisitionResult );
+    assertEquals( 40, result.getChannels() );
+    assertEquals( 1000000, result.getSampleRate() );
+
+    final WideAcquisitionResult wideResult = ( WideAcquisitionResult )result;
+    assertEquals( ( 1L << 40 ) - 1L, wideResult.getEnabledChannelMask() );
+    assertArrayEquals( new int[] { 0, 1, 1 }, wideResult.getValues( 0 ) );
+    assertArrayEquals( new int[] { 0, 0x80, 0x80 }, wideResult.getValues( 1 ) );
+  }
+
+  /**
+   * Tests that simulation times beyond the integer range are supported.
+   */
+  @Test
+  public void testImportLargeTimesOk() throws Exception
+  {
+    final File file = createDump( "$timescale 1 ps $end\n" //
+        + "$var wire 1 ! a $end\n" //
+        + "$enddefinitions $end\n" //
+        + "#0\n0!\n" //
+        + "#5000000000000\n1!\n" //
+        + "#6000000000000\n" );
+
+    final AcquisitionResult result = new VCDAcquisitionTask( file, null, 0, this.listener ).call();
+
+    // 1 ps cannot be represented as integer rate, hence 1 GHz is used...
+    assertEquals( 1000000000, result.getSampleRate() );
+    assertArrayEquals( new long[] { 0L, 5000000000L, 6000000000L }, result.getTimestamps() );
+  }
+
+  /**
+   * Tests that too many channels are refused.
+   */
+  @Test( expected = IOException.class )
+  public void testImportTooManyChannelsFail() throws Exception
+  {
+    final File file = createDump( "$var wire 40 ! a [39:0] $end\n" //
+        + "$var wire 40 \" b [39:0] $end\n" //
+        + "$enddefinitions $end\n" //
+        + "#0\n" );
+
+    new VCDAcquisitionTask( file, null, 0, this.listener ).call();
+  }
+
+  /**
+   * Test method for {@link VCDAcquisitionTask#parseTimescale(String)}.
+   */
+  @Test
+  public void testParseTimescaleOk() throws IOException
+  {
+    assertEquals( 1000000L, VCDAcquisitionTask.parseTimescale( "1 ns" ) );
+    assertEquals( 100000L, VCDAcquisitionTask.parseTimescale( "100ps" ) );
+    assertEquals( 10000000000000000L, VCDAcquisitionTask.parseTimescale( "10 s" ) );
+  }
+
+  /**
+   * Test method for {@link VCDAcquisitionTask#parseTimescale(String)}.
+   */
+  @Test( expected = IOException.class )
+  public void testParseInvalidTimescaleFail() throws IOException
+  {
+    VCDAcquisitionTask.parseTimescale( "2 ns" );
+  }
+
+  /**
+   * Writes the given contents to a temporary VCD file.
+   */
+  private File createDump( final String aContents ) throws IOException
+  {
+    final File file = this.folder.newFile( "dump.vcd" );
+    final Writer writer = new OutputStreamWriter( new FileOutputStream( file ), "US-ASCII" );
+    try
+    {
+      writer.write( aContents );
+    }
+    finally
+    {
+      writer.close();
+    }
+    return file;
+  }
+}
@@ -22,10 +22,15 @@ package nl.lxtreme.ols.export.csv;
 
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
+import java.util.concurrent.*;
 
 import javax.swing.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.export.*;
@@ -34,25 +39,165 @@ import nl.lxtreme.ols.api.data.export.*;
 /**
  * Provides a CSV exporter for exporting the acquisition data in a
  * comma-separated format.
+ * <p>
+ * The export can be limited to the range between the cursors and to a subset
+ * of the channels, and channels can be grouped into buses, which are written
+ * as a single hexadecimal column. These options are taken from the
+ * preferences, see {@link #CURSOR_RANGE}, {@link #CHANNELS} and
+ * {@link #BUS_WIDTH}.
+ * </p>
+ * <p>
+ * The data rows are formatted in chunks on a number of threads, and written
+ * in order; only a limited number of chunks is in memory at any time.
+ * </p>
  */
 public class CsvExporter implements Exporter
 {
+  // CONSTANTS
+
+  /** The UI-preference defining whether only the cursor range is exported. */
+  public static final String CURSOR_RANGE = "ols.export.csv.cursor.range.boolean";
+  /** The UI-preference defining the channels to export, e.g., "0-7,12" or "all". */
+  public static final String CHANNELS = "ols.export.csv.channels.enum";
+  /** The UI-preference defining the width of buses, 0 for no buses. */
+  public static final String BUS_WIDTH = "ols.export.csv.bus.width";
+
+  /** Denotes all channels in a channel specification. */
+  static final String ALL_CHANNELS = "all";
+
+  /** The number of data rows formatted as a single chunk. */
+  static final int CHUNK_ROWS = 32 * 1024;
+
   // VARIABLES
 
   private final char colSeparator;
+  private final boolean usePreferences;
+  private final boolean cursorRange;
+  private final long channelMask;
+  private final int busWidth;
+  private final int threadCount;
 
   // CONSTRUCTORS
 
   /**
-   * Creates a new {@link CsvExporter} instance.
+   * Creates a new {@link CsvExporter} instance, taking its options from the
+   * preferences at the moment of each export.
    */
   public CsvExporter()
   {
+    this( false /* aCursorRange */, -1L, 0, Runtime.getRuntime().availableProcessors(), true /* aUsePreferences */);
+  }
+
+  /**
+   * Creates a new {@link CsvExporter} instance.
+   * 
+   * @param aCursorRange
+   *          <code>true</code> to export only the samples between the first
+   *          and last defined cursor, <code>false</code> to export all
+   *          samples;
+   * @param aChannelMask
+   *          the bitmask of the channels to export;
+   * @param aBusWidth
+   *          the number of (exported) channels to write as a single
+   *          hexadecimal bus column, >= 2 &&
+   *          <= {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS}, or 0 to
+   *          write each channel in its own column;
+   * @param aThreadCount
+   *          the number of threads to format the data rows on, >= 1.
+   */
+  public CsvExporter( final boolean aCursorRange, final long aChannelMask, final int aBusWidth,
+      final int aThreadCount )
+  {
+    this( aCursorRange, aChannelMask, aBusWidth, aThreadCount, false /* aUsePreferences */);
+  }
+
+  /**
+   * Creates a new {@link CsvExporter} instance.
+   */
+  private CsvExporter( final boolean aCursorRange, final long aChannelMask, final int aBusWidth,
+      final int aThreadCount, final boolean aUsePreferences )
+  {
+    if ( ( aBusWidth < 0 ) || ( aBusWidth == 1 ) || ( aBusWidth > Ols.MAX_WIDE_CHANNELS ) )
+    {
+      throw new IllegalArgumentException( "Invalid bus width: " + aBusWidth + "!" );
+    }
+
     this.colSeparator = ',';
+    this.usePreferences = aUsePreferences;
+    this.cursorRange = aCursorRange;
+    this.channelMask = aChannelMask;
+    this.busWidth = aBusWidth;
+    this.threadCount = Math.max( 1, aThreadCount );
   }
 
   // METHODS
 
+  /**
+   * Parses the given channel specification, a comma-separated list of channel
+   * indices and ranges of channel indices, such as "0-7,12".
+   * 
+   * @param aSpec
+   *          the specification to parse, can be <code>null</code>.
+   * @return the bitmask of the specified channels, or all channels in case
+   *         the given specification was <code>null</code>, empty or
+   *         {@value #ALL_CHANNELS}.
+   * @throws IllegalArgumentException
+   *           in case the given specification was invalid.
+   */
+  static long parseChannels( final String aSpec )
+  {
+    if ( ( aSpec == null ) || "".equals( aSpec.trim() ) || ALL_CHANNELS.equalsIgnoreCase( aSpec.trim() ) )
+    {
+      return -1L;
+    }
+
+    long result = 0L;
+    for ( String part : aSpec.split( "," ) )
+    {
+      final String[] bounds = part.trim().split( "\\s*-\\s*", 2 );
+      try
+      {
+        final int first = Integer.parseInt( bounds[0].trim() );
+        final int last = ( bounds.length > 1 ) ? Integer.parseInt( bounds[1].trim() ) : first;
+        if ( ( first < 0 ) || ( last < first ) || ( last >= Ols.MAX_WIDE_CHANNELS ) )
+        {
+          throw new IllegalArgumentException( "Invalid channel range: " + part + "!" );
+        }
+        for ( int i = first; i <= last; i++ )
+        {
+          result |= ( 1L << i );
+        }
+      }
+      catch ( NumberFormatException exception )
+      {
+        throw new IllegalArgumentException( "Invalid channel specification: " + aSpec + "!" );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Waits for the given formatted chunk.
+   */
+  private static ChunkBuffer get( final Future<ChunkBuffer> aFuture ) throws IOException
+  {
+    try
+    {
+      return aFuture.get();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Export interrupted!" );
+    }
+    catch ( ExecutionException exception )
+    {
+      final IOException ioException = new IOException( "Failed to format data!" );
+      ioException.initCause( exception.getCause() );
+      throw ioException;
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -60,31 +205,93 @@ public class CsvExporter implements Exporter
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    final PrintStream stream = new PrintStream( aStream );
+    if ( this.usePreferences )
+    {
+      createFromPreferences().export( aDataSet, aComponent, aStream );
+      return;
+    }
 
-    try
+    final AcquisitionResult capturedData = aDataSet.getCapturedData();
+    final long[] timestamps = capturedData.getTimestamps();
+
+    final int[][] columns = createColumns( aDataSet );
+
+    final WritableByteChannel channel;
+    if ( aStream instanceof FileOutputStream )
+    {
+      channel = ( ( FileOutputStream )aStream ).getChannel();
+    }
+    else
+    {
+      channel = Channels.newChannel( aStream );
+    }
+
+    // Write header row...
+    final byte[] header = createHeaderRow( aDataSet, columns ).getBytes();
+    write( channel, ByteBuffer.wrap( header ) );
+
+    final long[] range = getRange( aDataSet );
+
+    // Find the sample that is "active" at the start of the range...
+    int first = Arrays.binarySearch( timestamps, range[0] );
+    if ( first < 0 )
+    {
+      first = Math.max( 0, -first - 2 );
+    }
+    int last = Arrays.binarySearch( timestamps, range[1] );
+    if ( last < 0 )
     {
-      // Write header row...
-      writeHeaderRow( stream, createHeaderRowValues( aDataSet ) );
+      last = -last - 2;
+    }
+
+    final RowFormatter formatter = new RowFormatter( capturedData, columns, range[0], this.colSeparator );
 
-      final Channel[] channels = aDataSet.getChannels();
+    final ExecutorService executor = Executors.newFixedThreadPool( this.threadCount, new ThreadFactory()
+    {
+      @Override
+      public Thread newThread( final Runnable aRunnable )
+      {
+        Thread thread = new Thread( aRunnable, "CSV chunk formatter" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
 
-      final AcquisitionResult capturedData = aDataSet.getCapturedData();
-      final int sampleRate = capturedData.getSampleRate();
-      final int[] values = capturedData.getValues();
-      final long[] timestamps = capturedData.getTimestamps();
-      final long triggerPos = capturedData.getTriggerPosition();
+    try
+    {
+      // Keep all threads busy, but bound the number of chunks in memory...
+      final int maxPending = 2 * this.threadCount;
+      final LinkedList<Future<ChunkBuffer>> pending = new LinkedList<Future<ChunkBuffer>>();
 
-      // Write data...
-      for ( int i = 0; i < values.length; i++ )
+      for ( int start = first; start <= last; start += CHUNK_ROWS )
       {
-        // Write data row...
-        writeDataRow( stream, timestamps[i], triggerPos, sampleRate, values[i], channels );
+        final int chunkStart = start;
+        final int chunkEnd = ( int )Math.min( last + 1L, ( long )start + CHUNK_ROWS );
+        pending.addLast( executor.submit( new Callable<ChunkBuffer>()
+        {
+          @Override
+          public ChunkBuffer call() throws Exception
+          {
+            return formatter.format( chunkStart, chunkEnd );
+          }
+        } ) );
+
+        while ( pending.size() >= maxPending )
+        {
+          write( channel, get( pending.removeFirst() ).toByteBuffer() );
+        }
+      }
+
+      while ( !pending.isEmpty() )
+      {
+        write( channel, get( pending.removeFirst() ).toByteBuffer() );
       }
     }
     finally
     {
-      stream.flush();
+      executor.shutdownNow();
+
+      aStream.flush();
     }
   }
 
@@ -107,29 +314,78 @@ public class CsvExporter implements Exporter
   }
 
   /**
-   * @param aChannelCount
-   * @return
+   * Creates the channel columns, each of which is an array of one or more
+   * channel indices, least significant channel first. The columns are
+   * returned in "inverse" order, MSB first.
+   * 
+   * @param aDataSet
+   *          the data set to create the columns for, cannot be
+   *          <code>null</code>.
+   * @return the channel columns, never <code>null</code>.
    */
-  private void createChannelHeaders( final List<String> aList, final Channel[] aChannels )
+  private int[][] createColumns( final DataSet aDataSet )
   {
-    final int insertIdx = aList.size();
-    for ( int i = 0; i < aChannels.length; i++ )
+    final int channelCount = aDataSet.getChannels().length;
+
+    final List<Integer> selected = new ArrayList<Integer>();
+    for ( int i = 0; i < channelCount; i++ )
+    {
+      if ( ( this.channelMask & ( 1L << i ) ) != 0L )
+      {
+        selected.add( Integer.valueOf( i ) );
+      }
+    }
+
+    final int width = Math.max( 1, this.busWidth );
+    final List<int[]> result = new ArrayList<int[]>();
+    for ( int start = 0; start < selected.size(); start += width )
     {
-      String label = aChannels[i].getLabel();
-      if ( label == null )
+      final int[] column = new int[Math.min( width, selected.size() - start )];
+      for ( int i = 0; i < column.length; i++ )
       {
-        label = String.format( "Ch.%d", Integer.valueOf( i ) );
+        column[i] = selected.get( start + i ).intValue();
       }
-      // Causes the channels to be listed in "inverse" order, MSB first...
-      aList.add( insertIdx, label );
+      // Causes the columns to be listed in "inverse" order, MSB first...
+      result.add( 0, column );
+    }
+
+    return result.toArray( new int[result.size()][] );
+  }
+
+  /**
+   * Creates an exporter with the options as currently set in the preferences.
+   * 
+   * @return a new {@link CsvExporter} instance, never <code>null</code>.
+   * @throws IOException
+   *           in case the preferences contain an invalid option.
+   */
+  private CsvExporter createFromPreferences() throws IOException
+  {
+    final String channels = UIManager.getString( CHANNELS );
+    // Widths below two make no sense as bus, and are written as channels...
+    final int busWidth = Math.min( Ols.MAX_WIDE_CHANNELS, UIManager.getInt( BUS_WIDTH ) );
+
+    try
+    {
+      return new CsvExporter( UIManager.getBoolean( CURSOR_RANGE ), parseChannels( channels ), ( busWidth < 2 ) ? 0
+          : busWidth, this.threadCount, false /* aUsePreferences */);
+    }
+    catch ( IllegalArgumentException exception )
+    {
+      throw new IOException( exception.getMessage() );
     }
   }
 
   /**
+   * Creates the header row, including its line separator.
+   * 
    * @param aDataSet
-   * @return
+   *          the data set to create the header row for;
+   * @param aColumns
+   *          the channel columns to create headers for.
+   * @return the header row, never <code>null</code>.
    */
-  private String[] createHeaderRowValues( final DataSet aDataSet )
+  private String createHeaderRow( final DataSet aDataSet, final int[][] aColumns )
   {
     final Channel[] channels = aDataSet.getChannels();
 
@@ -164,9 +420,82 @@ public class CsvExporter implements Exporter
       result.add( "sample rate (Hz)" );
     }
 
-    createChannelHeaders( result, channels );
+    for ( int[] column : aColumns )
+    {
+      final String label = getLabel( channels, column[column.length - 1] );
+      if ( column.length == 1 )
+      {
+        result.add( label );
+      }
+      else
+      {
+        result.add( label + ".." + getLabel( channels, column[0] ) );
+      }
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    for ( int i = 0; i < result.size(); i++ )
+    {
+      if ( i > 0 )
+      {
+        sb.append( this.colSeparator );
+      }
+      sb.append( quote( result.get( i ) ) );
+    }
+    sb.append( RowFormatter.LINE_SEPARATOR );
+
+    return sb.toString();
+  }
 
-    return result.toArray( new String[result.size()] );
+  /**
+   * Returns the label of the channel with the given index.
+   */
+  private String getLabel( final Channel[] aChannels, final int aIndex )
+  {
+    String label = aChannels[aIndex].getLabel();
+    if ( label == null )
+    {
+      label = String.format( "Ch.%d", Integer.valueOf( aIndex ) );
+    }
+    return label;
+  }
+
+  /**
+   * Returns the range of timestamps to export.
+   * 
+   * @return an array with the first and last timestamp to export.
+   * @throws IOException
+   *           in case the cursor range should be exported, but less than two
+   *           cursors are defined.
+   */
+  private long[] getRange( final DataSet aDataSet ) throws IOException
+  {
+    if ( !this.cursorRange )
+    {
+      return new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+    }
+
+    long start = Long.MAX_VALUE;
+    long end = Long.MIN_VALUE;
+    int count = 0;
+    if ( aDataSet.isCursorsEnabled() )
+    {
+      for ( Cursor cursor : aDataSet.getCursors() )
+      {
+        if ( cursor.isDefined() )
+        {
+          start = Math.min( start, cursor.getTimestamp() );
+          end = Math.max( end, cursor.getTimestamp() );
+          count++;
+        }
+      }
+    }
+
+    if ( count < 2 )
+    {
+      throw new IOException( "At least two cursors should be defined to export the cursor range!" );
+    }
+    return new long[] { start, end };
   }
 
   /**
@@ -179,65 +508,237 @@ public class CsvExporter implements Exporter
   }
 
   /**
-   * @param aStream
-   *          the output stream to write the data values to;
-   * @param aAbsTime
-   * @param aTriggerPos
-   * @param aValue
-   * @param aChannels
-   * @throws IOException
-   *           in case of I/O problems.
+   * Writes the given buffer completely to the given channel.
+   */
+  private void write( final WritableByteChannel aChannel, final ByteBuffer aBuffer ) throws IOException
+  {
+    while ( aBuffer.hasRemaining() )
+    {
+      aChannel.write( aBuffer );
+    }
+  }
+
+  // INNER TYPES
+
+  /**
+   * Provides a growable buffer for a chunk of (ASCII-only) formatted rows.
    */
-  private void writeDataRow( final PrintStream aStream, final long aAbsTime, final long aTriggerPos,
-      final int aSampleRate, final int aValue, final Channel[] aChannels ) throws IOException
+  static final class ChunkBuffer
   {
-    aStream.print( aAbsTime );
+    // VARIABLES
 
-    if ( aTriggerPos > 0 )
+    private byte[] data;
+    private int length;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link ChunkBuffer} instance.
+     */
+    ChunkBuffer( final int aCapacity )
+    {
+      this.data = new byte[aCapacity];
+    }
+
+    // METHODS
+
+    /**
+     * Appends a single character.
+     */
+    void append( final char aChar )
     {
-      aStream.print( this.colSeparator );
-      aStream.print( aAbsTime - aTriggerPos );
+      ensureCapacity( 1 );
+      this.data[this.length++] = ( byte )aChar;
     }
-    if ( aSampleRate > 0 )
+
+    /**
+     * Appends the given string, which should only contain ASCII characters.
+     */
+    void append( final String aString )
+    {
+      ensureCapacity( aString.length() );
+      for ( int i = 0; i < aString.length(); i++ )
+      {
+        this.data[this.length++] = ( byte )aString.charAt( i );
+      }
+    }
+
+    /**
+     * Appends the given value in hexadecimal notation, zero-padded to the
+     * given number of digits.
+     */
+    void appendHex( final long aValue, final int aDigits )
     {
-      aStream.print( this.colSeparator );
-      aStream.print( aSampleRate );
+      ensureCapacity( aDigits + 2 );
+      this.data[this.length++] = '0';
+      this.data[this.length++] = 'x';
+      for ( int i = aDigits - 1; i >= 0; i-- )
+      {
+        final int digit = ( int )( aValue >>> ( 4 * i ) ) & 0x0F;
+        this.data[this.length++] = ( byte )( ( digit < 10 ) ? ( '0' + digit ) : ( ( 'A' - 10 ) + digit ) );
+      }
     }
 
-    if ( aChannels != null )
+    /**
+     * Appends the given value in decimal notation.
+     */
+    void appendLong( final long aValue )
     {
-      int l = aChannels.length;
-      for ( int i = 0; i < l; i++ )
+      if ( ( aValue < 0L ) || ( aValue > 999999999999999999L ) )
+      {
+        append( Long.toString( aValue ) );
+        return;
+      }
+
+      ensureCapacity( 18 );
+
+      int digits = 1;
+      for ( long v = aValue; v >= 10L; v /= 10L )
       {
-        Channel channel = aChannels[l - i - 1];
-        int v = ( aValue & channel.getMask() ) >> channel.getIndex();
-        aStream.print( this.colSeparator );
-        aStream.print( v );
+        digits++;
       }
+
+      long value = aValue;
+      for ( int i = this.length + digits - 1; i >= this.length; i-- )
+      {
+        this.data[i] = ( byte )( '0' + ( value % 10L ) );
+        value /= 10L;
+      }
+      this.length += digits;
+    }
+
+    /**
+     * Returns the formatted data as byte buffer.
+     */
+    ByteBuffer toByteBuffer()
+    {
+      return ByteBuffer.wrap( this.data, 0, this.length );
     }
 
-    aStream.println();
+    /**
+     * Grows the buffer when needed to append the given number of bytes.
+     */
+    private void ensureCapacity( final int aCount )
+    {
+      if ( ( this.length + aCount ) > this.data.length )
+      {
+        this.data = Arrays.copyOf( this.data, Math.max( this.length + aCount, 2 * this.data.length ) );
+      }
+    }
   }
 
   /**
-   * @param aStream
-   *          the output stream to write the headers to;
-   * @param aHeaders
-   *          the header values to write.
-   * @throws IOException
-   *           in case of I/O problems.
+   * Formats data rows; is thread-safe, as it only reads the captured data.
    */
-  private void writeHeaderRow( final PrintStream aStream, final String[] aHeaders ) throws IOException
+  static final class RowFormatter
   {
-    for ( int i = 0; i < aHeaders.length; i++ )
+    // CONSTANTS
+
+    static final String LINE_SEPARATOR = System.getProperty( "line.separator", "\n" );
+
+    // VARIABLES
+
+    private final int[][] planes;
+    private final long[] timestamps;
+    private final long triggerPos;
+    private final int sampleRate;
+    private final int[][] columns;
+    private final long startTime;
+    private final char separator;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link RowFormatter} instance.
+     */
+    RowFormatter( final AcquisitionResult aData, final int[][] aColumns, final long aStartTime,
+        final char aSeparator )
     {
-      if ( i > 0 )
+      final int planeCount = ChannelAccessor.getPlaneCount( aData );
+
+      this.planes = new int[planeCount][];
+      for ( int p = 0; p < planeCount; p++ )
       {
-        aStream.print( this.colSeparator );
+        this.planes[p] = ChannelAccessor.getValues( aData, p );
       }
-      aStream.print( quote( aHeaders[i] ) );
+      this.timestamps = aData.getTimestamps();
+      this.triggerPos = aData.getTriggerPosition();
+      this.sampleRate = aData.getSampleRate();
+      this.columns = aColumns;
+      this.startTime = aStartTime;
+      this.separator = aSeparator;
     }
 
-    aStream.println();
+    // METHODS
+
+    /**
+     * Formats the rows of the samples in the given range.
+     * 
+     * @param aStart
+     *          the index of the first sample to format;
+     * @param aEnd
+     *          the index of the sample after the last one to format.
+     * @return the formatted rows, never <code>null</code>.
+     */
+    ChunkBuffer format( final int aStart, final int aEnd )
+    {
+      final ChunkBuffer buffer = new ChunkBuffer( ( aEnd - aStart ) * ( 24 + ( 2 * this.columns.length ) ) );
+
+      for ( int i = aStart; i < aEnd; i++ )
+      {
+        // The first sample can start before the exported range...
+        final long time = Math.max( this.timestamps[i], this.startTime );
+        final long value = getValue( i );
+
+        buffer.appendLong( time );
+
+        if ( this.triggerPos > 0 )
+        {
+          buffer.append( this.separator );
+          buffer.appendLong( time - this.triggerPos );
+        }
+        if ( this.sampleRate > 0 )
+        {
+          buffer.append( this.separator );
+          buffer.appendLong( this.sampleRate );
+        }
+
+        for ( int[] column : this.columns )
+        {
+          buffer.append( this.separator );
+          if ( column.length == 1 )
+          {
+            buffer.append( ( ( value >>> column[0] ) & 1L ) != 0L ? '1' : '0' );
+          }
+          else
+          {
+            long bus = 0L;
+            for ( int b = 0; b < column.length; b++ )
+            {
+              bus |= ( ( value >>> column[b] ) & 1L ) << b;
+            }
+            buffer.appendHex( bus, ( column.length + 3 ) / 4 );
+          }
+        }
+
+        buffer.append( LINE_SEPARATOR );
+      }
+
+      return buffer;
+    }
+
+    /**
+     * Returns all channels of the sample with the given index as a single
+     * value.
+     */
+    private long getValue( final int aIndex )
+    {
+      long result = this.planes[0][aIndex] & 0xFFFFFFFFL;
+      for ( int p = 1; p < this.planes.length; p++ )
+      {
+        result |= ( this.planes[p][aIndex] & 0xFFFFFFFFL ) << ( p * Ols.CHANNELS_PER_PLANE );
+      }
+      return result;
+    }
   }
 }
@@ -182,6 +182,136 @@ public class CsvExporterTest
     assertCsvDimensions( results, expectedRows, expectedCols );
   }
 
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that only the samples between the cursors are exported, starting
+   * with the sample that is active at the first cursor.
+   * </p>
+   */
+  @Test
+  public void testExportCursorRangeOk() throws Exception
+  {
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( new CapturedData( new int[] { 0x0, 0x1, 0x2, 0x3, 0x4 }, new long[] { 0L, 10L, 20L,
+        30L, 40L }, -1L, -1, CHANNEL_COUNT, 0x0F, 50L ) );
+    dataSet.setCursorsEnabled( true );
+    dataSet.getCursor( 0 ).setTimestamp( 35L );
+    dataSet.getCursor( 1 ).setTimestamp( 15L );
+
+    new CsvExporter( true, -1L, 0, 2 ).export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertEquals( 4, results.length );
+    assertEquals( "15,0,0,0,1", results[1] );
+    assertEquals( "20,0,0,1,0", results[2] );
+    assertEquals( "30,0,0,1,1", results[3] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that a subset of the channels can be exported as hexadecimal bus
+   * columns, MSB first.
+   * </p>
+   */
+  @Test
+  public void testExportChannelSubsetAsBusesOk() throws Exception
+  {
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( new WideCapturedData( new long[] { 0xA5L, 0x8000000F00L }, new long[] { 0L, 1L },
+        -1L, -1, 40, ( 1L << 40 ) - 1L, 1L ) );
+
+    final long channels = CsvExporter.parseChannels( "0-11, 39" );
+    new CsvExporter( false, channels, 8, 1 ).export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertEquals( 3, results.length );
+    assertEquals( "\"state (abs)\",\"Ch.39..Ch.8\",\"Ch.7..Ch.0\"", results[0] );
+    assertEquals( "0,0x00,0xA5", results[1] );
+    assertEquals( "1,0x1F,0x00", results[2] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that the default exporter takes its options from the preferences.
+   * </p>
+   */
+  @Test
+  public void testExportWithOptionsFromPreferencesOk() throws Exception
+  {
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( new CapturedData( new int[] { 0x00, 0xA5 }, new long[] { 0L, 1L }, -1L, -1, 16,
+        0xFFFF, 1L ) );
+
+    UIManager.put( CsvExporter.CHANNELS, "0-7" );
+    UIManager.put( CsvExporter.BUS_WIDTH, Integer.valueOf( 8 ) );
+    try
+    {
+      this.exporter.export( dataSet, this.component, this.outputStream );
+    }
+    finally
+    {
+      UIManager.put( CsvExporter.CHANNELS, null );
+      UIManager.put( CsvExporter.BUS_WIDTH, null );
+    }
+
+    String[] results = getCsvData();
+    assertEquals( 3, results.length );
+    assertEquals( "\"state (abs)\",\"Ch.7..Ch.0\"", results[0] );
+    assertEquals( "1,0xA5", results[2] );
+  }
+
+  /**
+   * Test method for
+   * {@link CsvExporter#export(DataSet, JComponent, OutputStream)}.
+   * <p>
+   * Tests that data spanning multiple chunks is written in order.
+   * </p>
+   */
+  @Test
+  public void testExportMultipleChunksInOrderOk() throws Exception
+  {
+    final int dataSize = ( 3 * CsvExporter.CHUNK_ROWS ) + 17;
+
+    final DataSet dataSet = createTestDataSet( CHANNEL_COUNT, dataSize, SAMPLE_RATE, -1L );
+
+    new CsvExporter( false, -1L, 0, 4 ).export( dataSet, this.component, this.outputStream );
+
+    String[] results = getCsvData();
+    assertCsvDimensions( results, 1 /* header */+ dataSize, 2 /* time + samplerate */+ CHANNEL_COUNT );
+    for ( int i = 1; i < results.length; i++ )
+    {
+      assertEquals( String.valueOf( i - 1 ), getCsvCols( results[i] )[0] );
+    }
+  }
+
+  /**
+   * Test method for {@link CsvExporter#parseChannels(String)}.
+   */
+  @Test
+  public void testParseChannelsOk()
+  {
+    assertEquals( -1L, CsvExporter.parseChannels( null ) );
+    assertEquals( -1L, CsvExporter.parseChannels( " " ) );
+    assertEquals( -1L, CsvExporter.parseChannels( "All" ) );
+    assertEquals( 0x10FL, CsvExporter.parseChannels( "0-3,8" ) );
+    assertEquals( 1L << 63, CsvExporter.parseChannels( "63" ) );
+  }
+
+  /**
+   * Test method for {@link CsvExporter#parseChannels(String)}.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testParseChannelsFail()
+  {
+    CsvExporter.parseChannels( "3-1" );
+  }
+
   /**
    * @param aCsvData
    * @param aExpectedRows
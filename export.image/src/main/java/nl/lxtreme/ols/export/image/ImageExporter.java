@@ -24,6 +24,8 @@ package nl.lxtreme.ols.export.image;
 import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
 
 import javax.imageio.*;
 import javax.swing.*;
@@ -35,44 +37,137 @@ import nl.lxtreme.ols.api.data.export.*;
 
 /**
  * Provides a simple export-to-image functionality.
+ * <p>
+ * By default, the visible part of the signal diagram is exported as-is. When a
+ * horizontal scale is given, through the {@link #PIXELS_PER_SAMPLE}
+ * preference, the complete capture is rendered directly from its sample data
+ * instead. This is also done when there is no diagram to export, for
+ * example, in batch mode. The capture is rendered in bands on a number of
+ * worker threads, and streamed into the PNG image band by band, so only a
+ * handful of bands need to be in memory at any time.
+ * </p>
  */
 public class ImageExporter implements Exporter
 {
   // CONSTANTS
 
+  /** The UI-preference defining the horizontal scale, in pixels per sample, 0 for the visible diagram. */
+  public static final String PIXELS_PER_SAMPLE = "ols.export.image.pixels.per.sample.float";
+
   /** The maximum width of the image to export. */
   private static final int MAX_WIDTH = 8192;
   /** The maximum height of the image to export. */
   private static final int MAX_HEIGHT = 8192;
 
-  // METHODS
+  /** The horizontal scale used when there is no diagram to export. */
+  private static final double DEFAULT_PIXELS_PER_SAMPLE = 1.0;
+
+  // VARIABLES
+
+  private final boolean usePreferences;
+  private final double pixelsPerSample;
+  private final int threadCount;
+
+  // CONSTRUCTORS
 
   /**
-   * {@inheritDoc}
+   * Creates a new {@link ImageExporter} instance, taking the horizontal scale
+   * from the preferences at the moment of each export.
    */
-  @Override
-  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
-      throws IOException
+  public ImageExporter()
   {
-    final Dimension dims = getExportSize( aComponent );
+    this( 0.0, Runtime.getRuntime().availableProcessors(), true /* aUsePreferences */);
+  }
 
-    final BufferedImage image = new BufferedImage( dims.width, dims.height, BufferedImage.TYPE_INT_RGB );
+  /**
+   * Creates a new {@link ImageExporter} instance.
+   * 
+   * @param aPixelsPerSample
+   *          the horizontal scale to render the complete capture with, in
+   *          pixels per sample, > 0.0, or 0.0 to export the visible part of
+   *          the signal diagram;
+   * @param aThreadCount
+   *          the number of threads to render the capture on, >= 1.
+   */
+  public ImageExporter( final double aPixelsPerSample, final int aThreadCount )
+  {
+    this( aPixelsPerSample, aThreadCount, false /* aUsePreferences */);
+  }
 
-    // Create a graphics contents on the buffered image
-    Graphics2D g2d = image.createGraphics();
+  /**
+   * Creates a new {@link ImageExporter} instance.
+   */
+  private ImageExporter( final double aPixelsPerSample, final int aThreadCount, final boolean aUsePreferences )
+  {
+    if ( !( aPixelsPerSample >= 0.0 ) || Double.isInfinite( aPixelsPerSample ) )
+    {
+      throw new IllegalArgumentException( "Invalid pixels per sample: " + aPixelsPerSample + "!" );
+    }
+    this.usePreferences = aUsePreferences;
+    this.pixelsPerSample = aPixelsPerSample;
+    this.threadCount = Math.max( 1, aThreadCount );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the horizontal scale as currently set in the preferences.
+   * 
+   * @return the horizontal scale, or 0.0 if not (validly) defined.
+   */
+  static double getPreferredPixelsPerSample()
+  {
+    final Object value = UIManager.get( PIXELS_PER_SAMPLE );
+    if ( value instanceof Number )
+    {
+      final double result = ( ( Number )value ).doubleValue();
+      if ( ( result > 0.0 ) && !Double.isInfinite( result ) )
+      {
+        return result;
+      }
+    }
+    // Not set; use the visible diagram...
+    return 0.0;
+  }
+
+  /**
+   * Waits for the given rendered band.
+   */
+  private static byte[] get( final Future<byte[]> aFuture ) throws IOException
+  {
     try
     {
-      paintDiagram( g2d, aComponent );
+      return aFuture.get();
     }
-    finally
+    catch ( InterruptedException exception )
     {
-      g2d.dispose();
-      g2d = null;
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "Export interrupted!" );
     }
+    catch ( ExecutionException exception )
+    {
+      final IOException ioException = new IOException( "Failed to render image!" );
+      ioException.initCause( exception.getCause() );
+      throw ioException;
+    }
+  }
 
-    if ( !ImageIO.write( image, "png", aStream ) )
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
+      throws IOException
+  {
+    final double pixelsPerSample = this.usePreferences ? getPreferredPixelsPerSample() : this.pixelsPerSample;
+    if ( ( pixelsPerSample > 0.0 ) || ( aComponent == null ) )
     {
-      throw new IOException( "Export to PNG failed! Image not supported?" );
+      final double scale = ( pixelsPerSample > 0.0 ) ? pixelsPerSample : DEFAULT_PIXELS_PER_SAMPLE;
+      exportCapture( aDataSet, scale, aStream );
+    }
+    else
+    {
+      exportDiagram( aComponent, aStream );
     }
   }
 
@@ -94,6 +189,119 @@ public class ImageExporter implements Exporter
     return "PNG Image";
   }
 
+  /**
+   * Renders the complete capture of the given data set, and streams it as PNG
+   * image to the given output stream.
+   * 
+   * @param aDataSet
+   *          the data set to export, cannot be <code>null</code>;
+   * @param aPixelsPerSample
+   *          the horizontal scale, in pixels per sample, > 0.0;
+   * @param aStream
+   *          the output stream to write the image to, cannot be
+   *          <code>null</code>.
+   */
+  private void exportCapture( final DataSet aDataSet, final double aPixelsPerSample, final OutputStream aStream )
+      throws IOException
+  {
+    final WaveformRenderer renderer = new WaveformRenderer( aDataSet, aPixelsPerSample );
+
+    final long width = renderer.getWidth();
+    final int bandCount = renderer.getBandCount();
+    if ( bandCount == 0 )
+    {
+      throw new IOException( "Nothing to export: no channels enabled!" );
+    }
+    if ( ( width * WaveformRenderer.ROW_HEIGHT ) > Integer.MAX_VALUE )
+    {
+      throw new IOException( "Image too wide (" + width + " pixels); use less pixels per sample!" );
+    }
+
+    final PngEncoder encoder = new PngEncoder( new BufferedOutputStream( aStream, 64 * 1024 ), ( int )width,
+        renderer.getHeight(), WaveformRenderer.PALETTE, -1 /* default compression */ );
+
+    final ExecutorService executor = Executors.newFixedThreadPool( this.threadCount, new ThreadFactory()
+    {
+      @Override
+      public Thread newThread( final Runnable aRunnable )
+      {
+        Thread thread = new Thread( aRunnable, "image band renderer" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+
+    try
+    {
+      // Keep all threads busy, but bound the number of bands in memory...
+      final int maxPending = 2 * this.threadCount;
+      final LinkedList<Future<byte[]>> pending = new LinkedList<Future<byte[]>>();
+
+      for ( int band = 0; band < bandCount; band++ )
+      {
+        final int index = band;
+        pending.addLast( executor.submit( new Callable<byte[]>()
+        {
+          @Override
+          public byte[] call() throws Exception
+          {
+            return renderer.renderBand( index );
+          }
+        } ) );
+
+        while ( pending.size() >= maxPending )
+        {
+          encoder.writeRows( get( pending.removeFirst() ), 0, ( int )width, WaveformRenderer.ROW_HEIGHT );
+        }
+      }
+
+      while ( !pending.isEmpty() )
+      {
+        encoder.writeRows( get( pending.removeFirst() ), 0, ( int )width, WaveformRenderer.ROW_HEIGHT );
+      }
+
+      encoder.finish();
+    }
+    finally
+    {
+      executor.shutdownNow();
+      encoder.close();
+    }
+  }
+
+  /**
+   * Exports the visible part of the given diagram as PNG image.
+   * 
+   * @param aComponent
+   *          the diagram to export, cannot be <code>null</code>;
+   * @param aStream
+   *          the output stream to write the image to, cannot be
+   *          <code>null</code>.
+   */
+  private void exportDiagram( final JComponent aComponent, final OutputStream aStream ) throws IOException
+  {
+    final Dimension dims = getExportSize( aComponent );
+
+    final BufferedImage image = new BufferedImage( dims.width, dims.height, BufferedImage.TYPE_INT_RGB );
+
+    // Create a graphics contents on the buffered image
+    Graphics2D g2d = image.createGraphics();
+    try
+    {
+      paintDiagram( g2d, aComponent );
+    }
+    finally
+    {
+      g2d.dispose();
+      g2d = null;
+    }
+
+    if ( !ImageIO.write( image, "png", aStream ) )
+    {
+      throw new IOException( "Export to PNG failed! Image not supported?" );
+    }
+  }
+
   /**
    * Returns the export image size for the given component.
    * 
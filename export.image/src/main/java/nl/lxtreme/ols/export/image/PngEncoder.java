@@ -0,0 +1,296 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.image;
+
+
+import java.awt.image.*;
+import java.io.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides a streaming encoder for 8-bit palette-based PNG images.
+ * <p>
+ * Unlike {@link javax.imageio.ImageIO}, which needs the complete image in
+ * memory, this encoder takes the image a couple of rows at a time, and
+ * deflates them straight into the output stream. Each row is written with the
+ * "up" filter, so that rows which are equal to the previous one (as is common
+ * for waveforms) compress to almost nothing.
+ * </p>
+ */
+final class PngEncoder
+{
+  // CONSTANTS
+
+  private static final byte[] SIGNATURE = { ( byte )0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+  private static final int COLOR_TYPE_PALETTE = 3;
+  private static final int FILTER_NONE = 0;
+  private static final int FILTER_UP = 2;
+
+  /** The maximum size of a single IDAT chunk. */
+  private static final int IDAT_SIZE = 64 * 1024;
+
+  // VARIABLES
+
+  private final OutputStream output;
+  private final int width;
+  private final int height;
+  private final Deflater deflater;
+  private final CRC32 crc;
+
+  private final byte[] previousRow;
+  private final byte[] filteredRow;
+  private final byte[] buffer;
+
+  private int bufferLength;
+  private int rowsWritten;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link PngEncoder} instance, and writes the PNG header.
+   * 
+   * @param aOutput
+   *          the output stream to write the PNG image to, cannot be
+   *          <code>null</code>;
+   * @param aWidth
+   *          the width of the image, in pixels, > 0;
+   * @param aHeight
+   *          the height of the image, in pixels, > 0;
+   * @param aPalette
+   *          the palette of the image, cannot be <code>null</code>;
+   * @param aLevel
+   *          the compression level to use, 0..9, or -1 for the default
+   *          compression level.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public PngEncoder( final OutputStream aOutput, final int aWidth, final int aHeight, final IndexColorModel aPalette,
+      final int aLevel ) throws IOException
+  {
+    if ( aOutput == null )
+    {
+      throw new IllegalArgumentException( "Output cannot be null!" );
+    }
+    if ( ( aWidth <= 0 ) || ( aHeight <= 0 ) )
+    {
+      throw new IllegalArgumentException( "Invalid image size: " + aWidth + "x" + aHeight + "!" );
+    }
+
+    this.output = aOutput;
+    this.width = aWidth;
+    this.height = aHeight;
+    this.deflater = new Deflater( aLevel );
+    this.crc = new CRC32();
+
+    this.previousRow = new byte[aWidth];
+    this.filteredRow = new byte[aWidth + 1];
+    this.buffer = new byte[IDAT_SIZE];
+
+    boolean written = false;
+    try
+    {
+      writeHeader( aPalette );
+      written = true;
+    }
+    finally
+    {
+      if ( !written )
+      {
+        close();
+      }
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Releases the (native) resources of this encoder, whether or not the image
+   * is finished. Does <em>not</em> close the underlying output stream. Calling
+   * this method more than once has no effect.
+   */
+  public void close()
+  {
+    this.deflater.end();
+  }
+
+  /**
+   * Finishes the image by flushing all pending image data and writing the PNG
+   * trailer. Does <em>not</em> close the underlying output stream, nor release
+   * the resources of this encoder, see {@link #close()}.
+   * 
+   * @throws IOException
+   *           in case not all rows are written, or in case of I/O problems.
+   */
+  public void finish() throws IOException
+  {
+    if ( this.rowsWritten != this.height )
+    {
+      throw new IOException( "Incomplete image: only " + this.rowsWritten + " of " + this.height + " rows written!" );
+    }
+
+    this.deflater.finish();
+    while ( !this.deflater.finished() )
+    {
+      drain();
+    }
+    flushImageData();
+
+    writeChunk( "IEND", new byte[0], 0 );
+    this.output.flush();
+  }
+
+  /**
+   * Writes a number of rows of pixels.
+   * 
+   * @param aPixels
+   *          the palette indices of the pixels, cannot be <code>null</code>;
+   * @param aOffset
+   *          the offset of the first row in the given pixels;
+   * @param aStride
+   *          the distance between two consecutive rows in the given pixels,
+   *          >= the width of the image;
+   * @param aRows
+   *          the number of rows to write.
+   * @throws IOException
+   *           in case more rows are written than the image is high, or in
+   *           case of I/O problems.
+   */
+  public void writeRows( final byte[] aPixels, final int aOffset, final int aStride, final int aRows )
+      throws IOException
+  {
+    if ( ( this.rowsWritten + aRows ) > this.height )
+    {
+      throw new IOException( "Image height exceeded!" );
+    }
+
+    final byte[] filtered = this.filteredRow;
+    final byte[] previous = this.previousRow;
+
+    for ( int row = 0, offset = aOffset; row < aRows; row++, offset += aStride )
+    {
+      if ( this.rowsWritten == 0 )
+      {
+        filtered[0] = FILTER_NONE;
+        System.arraycopy( aPixels, offset, filtered, 1, this.width );
+      }
+      else
+      {
+        filtered[0] = FILTER_UP;
+        for ( int x = 0; x < this.width; x++ )
+        {
+          filtered[x + 1] = ( byte )( aPixels[offset + x] - previous[x] );
+        }
+      }
+      System.arraycopy( aPixels, offset, previous, 0, this.width );
+
+      this.deflater.setInput( filtered, 0, this.width + 1 );
+      while ( !this.deflater.needsInput() )
+      {
+        drain();
+      }
+      this.rowsWritten++;
+    }
+  }
+
+  /**
+   * Deflates pending data into the IDAT buffer, writing it as chunk when full.
+   */
+  private void drain() throws IOException
+  {
+    final int free = this.buffer.length - this.bufferLength;
+    this.bufferLength += this.deflater.deflate( this.buffer, this.bufferLength, free );
+    if ( this.bufferLength == this.buffer.length )
+    {
+      flushImageData();
+    }
+  }
+
+  /**
+   * Writes the buffered image data as IDAT chunk.
+   */
+  private void flushImageData() throws IOException
+  {
+    if ( this.bufferLength > 0 )
+    {
+      writeChunk( "IDAT", this.buffer, this.bufferLength );
+      this.bufferLength = 0;
+    }
+  }
+
+  /**
+   * Writes a single PNG chunk.
+   */
+  private void writeChunk( final String aType, final byte[] aData, final int aLength ) throws IOException
+  {
+    final byte[] type = aType.getBytes( "US-ASCII" );
+
+    this.crc.reset();
+    this.crc.update( type );
+    this.crc.update( aData, 0, aLength );
+
+    writeInt( aLength );
+    this.output.write( type );
+    this.output.write( aData, 0, aLength );
+    writeInt( ( int )this.crc.getValue() );
+  }
+
+  /**
+   * Writes the PNG signature, the image header and the palette.
+   */
+  private void writeHeader( final IndexColorModel aPalette ) throws IOException
+  {
+    this.output.write( SIGNATURE );
+
+    final ByteArrayOutputStream header = new ByteArrayOutputStream( 13 );
+    final DataOutputStream dos = new DataOutputStream( header );
+    dos.writeInt( this.width );
+    dos.writeInt( this.height );
+    dos.writeByte( 8 ); // bit depth
+    dos.writeByte( COLOR_TYPE_PALETTE );
+    dos.writeByte( 0 ); // compression method: deflate
+    dos.writeByte( 0 ); // filter method: adaptive
+    dos.writeByte( 0 ); // interlace method: none
+    writeChunk( "IHDR", header.toByteArray(), header.size() );
+
+    final int size = aPalette.getMapSize();
+    final byte[] palette = new byte[3 * size];
+    for ( int i = 0; i < size; i++ )
+    {
+      palette[3 * i] = ( byte )aPalette.getRed( i );
+      palette[( 3 * i ) + 1] = ( byte )aPalette.getGreen( i );
+      palette[( 3 * i ) + 2] = ( byte )aPalette.getBlue( i );
+    }
+    writeChunk( "PLTE", palette, palette.length );
+  }
+
+  /**
+   * Writes a 32-bit integer in big-endian order.
+   */
+  private void writeInt( final int aValue ) throws IOException
+  {
+    this.output.write( aValue >>> 24 );
+    this.output.write( aValue >>> 16 );
+    this.output.write( aValue >>> 8 );
+    this.output.write( aValue );
+  }
+}
@@ -0,0 +1,280 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.image;
+
+
+import java.awt.*;
+import java.awt.image.*;
+import java.util.*;
+import java.util.List;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Renders the waveforms of an acquisition result directly from its sample
+ * data, without using the Swing components of the client.
+ * <p>
+ * The image consists of one row per enabled channel, each of which can be
+ * rendered independently (and concurrently) in a band that spans the full
+ * width of the image. A band uses an 8-bit palette, so it only takes
+ * {@link #ROW_HEIGHT} bytes per pixel column.
+ * </p>
+ */
+final class WaveformRenderer
+{
+  // CONSTANTS
+
+  /** The height of a single channel row, in pixels. */
+  static final int ROW_HEIGHT = 20;
+  /** The width of the channel label column, in pixels. */
+  static final int LABEL_WIDTH = 80;
+
+  static final int COLOR_BACKGROUND = 0;
+  static final int COLOR_SIGNAL = 1;
+  static final int COLOR_TEXT = 2;
+  static final int COLOR_GRID = 3;
+  static final int COLOR_TRIGGER = 4;
+
+  /** The palette of the rendered image, indexed by the COLOR_* constants. */
+  static final IndexColorModel PALETTE = new IndexColorModel( 8, 5, //
+      new byte[] { 0x00, 0x30, ( byte )0xFF, 0x40, ( byte )0xFF }, //
+      new byte[] { 0x00, ( byte )0xFF, ( byte )0xFF, 0x40, 0x00 }, //
+      new byte[] { 0x00, 0x30, ( byte )0xFF, 0x40, 0x00 } );
+
+  private static final int SIGNAL_HIGH = 3;
+  private static final int SIGNAL_LOW = ROW_HEIGHT - 4;
+
+  private static final Font LABEL_FONT = new Font( "SansSerif", Font.PLAIN, 11 );
+
+  // VARIABLES
+
+  private final AcquisitionResult data;
+  private final long[] timestamps;
+  private final int[] channels;
+  private final String[] labels;
+  private final double pixelsPerSample;
+  private final int width;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link WaveformRenderer} instance.
+   * 
+   * @param aDataSet
+   *          the data set to render, cannot be <code>null</code>;
+   * @param aPixelsPerSample
+   *          the horizontal scale, in pixels per sample, > 0.0.
+   */
+  public WaveformRenderer( final DataSet aDataSet, final double aPixelsPerSample )
+  {
+    if ( !( aPixelsPerSample > 0.0 ) )
+    {
+      throw new IllegalArgumentException( "Invalid pixels per sample: " + aPixelsPerSample + "!" );
+    }
+
+    this.data = aDataSet.getCapturedData();
+    this.timestamps = this.data.getTimestamps();
+    this.pixelsPerSample = aPixelsPerSample;
+
+    final Channel[] channelList = aDataSet.getChannels();
+    final long enabledMask = ChannelAccessor.getEnabledChannelMask( this.data );
+
+    final List<Integer> enabled = new ArrayList<Integer>();
+    for ( int i = 0; i < this.data.getChannels(); i++ )
+    {
+      if ( ( enabledMask & ( 1L << i ) ) != 0L )
+      {
+        enabled.add( Integer.valueOf( i ) );
+      }
+    }
+
+    this.channels = new int[enabled.size()];
+    this.labels = new String[enabled.size()];
+    for ( int i = 0; i < this.channels.length; i++ )
+    {
+      final int index = enabled.get( i ).intValue();
+      final String label = ( index < channelList.length ) ? channelList[index].getLabel() : null;
+
+      this.channels[i] = index;
+      this.labels[i] = StringUtils.isEmpty( label ) ? ( "Channel " + index ) : label;
+    }
+
+    final long sampleCount = ( this.timestamps.length == 0 ) ? 0L : ( this.data.getAbsoluteLength() + 1L );
+    final long signalWidth = ( long )Math.ceil( sampleCount * aPixelsPerSample );
+    this.width = ( int )Math.min( Integer.MAX_VALUE - LABEL_WIDTH, Math.max( 1L, signalWidth ) );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the number of bands, which equals the number of rendered
+   * channels.
+   * 
+   * @return a band count, >= 0.
+   */
+  public int getBandCount()
+  {
+    return this.channels.length;
+  }
+
+  /**
+   * Returns the total height of the rendered image.
+   * 
+   * @return a height, in pixels.
+   */
+  public int getHeight()
+  {
+    return this.channels.length * ROW_HEIGHT;
+  }
+
+  /**
+   * Returns the total width of the rendered image, including the label
+   * column.
+   * 
+   * @return a width, in pixels.
+   */
+  public long getWidth()
+  {
+    return ( long )LABEL_WIDTH + this.width;
+  }
+
+  /**
+   * Renders the band of the given channel row.
+   * 
+   * @param aBand
+   *          the index of the band to render, >= 0 && &lt;
+   *          {@link #getBandCount()}.
+   * @return the palette indices of the band, in rows of {@link #getWidth()}
+   *         pixels, never <code>null</code>.
+   */
+  public byte[] renderBand( final int aBand )
+  {
+    final int stride = ( int )getWidth();
+    final BufferedImage image = new BufferedImage( stride, ROW_HEIGHT, BufferedImage.TYPE_BYTE_INDEXED, PALETTE );
+    final byte[] pixels = ( ( DataBufferByte )image.getRaster().getDataBuffer() ).getData();
+
+    renderLabel( image, this.labels[aBand] );
+
+    // Separator between the channel rows...
+    Arrays.fill( pixels, ( ROW_HEIGHT - 1 ) * stride, ROW_HEIGHT * stride, ( byte )COLOR_GRID );
+
+    if ( this.data.hasTriggerData() )
+    {
+      final int x = LABEL_WIDTH + toX( this.data.getTriggerPosition() );
+      vline( pixels, stride, x, 0, ROW_HEIGHT - 1, COLOR_TRIGGER );
+    }
+
+    renderSignal( pixels, stride, this.channels[aBand] );
+
+    return pixels;
+  }
+
+  /**
+   * Draws a vertical line.
+   */
+  private static void vline( final byte[] aPixels, final int aStride, final int aX, final int aY1, final int aY2,
+      final int aColor )
+  {
+    for ( int y = aY1, offset = ( aY1 * aStride ) + aX; y < aY2; y++, offset += aStride )
+    {
+      aPixels[offset] = ( byte )aColor;
+    }
+  }
+
+  /**
+   * Renders the label column of a band.
+   */
+  private void renderLabel( final BufferedImage aImage, final String aLabel )
+  {
+    final Graphics2D canvas = aImage.createGraphics();
+    try
+    {
+      canvas.setRenderingHint( RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_OFF );
+      canvas.setClip( 0, 0, LABEL_WIDTH - 4, ROW_HEIGHT );
+      canvas.setFont( LABEL_FONT );
+      canvas.setColor( new Color( PALETTE.getRGB( COLOR_TEXT ) ) );
+
+      final FontMetrics fm = canvas.getFontMetrics();
+      final int y = ( ( ROW_HEIGHT - fm.getHeight() ) / 2 ) + fm.getAscent();
+      canvas.drawString( aLabel, 4, y );
+    }
+    finally
+    {
+      canvas.dispose();
+    }
+  }
+
+  /**
+   * Renders the signal of the given channel.
+   */
+  private void renderSignal( final byte[] aPixels, final int aStride, final int aChannelIdx )
+  {
+    if ( this.timestamps.length == 0 )
+    {
+      return;
+    }
+
+    final int[] values = ChannelAccessor.getValues( this.data, ChannelAccessor.getPlane( aChannelIdx ) );
+    final int mask = ChannelAccessor.getMask( aChannelIdx );
+    final byte color = ( byte )COLOR_SIGNAL;
+
+    final int highOffset = ( SIGNAL_HIGH * aStride ) + LABEL_WIDTH;
+    final int lowOffset = ( SIGNAL_LOW * aStride ) + LABEL_WIDTH;
+
+    boolean level = ( values[0] & mask ) != 0;
+    int lastX = 0;
+
+    for ( int i = 1; i < this.timestamps.length; i++ )
+    {
+      final boolean newLevel = ( values[i] & mask ) != 0;
+      if ( newLevel == level )
+      {
+        continue;
+      }
+
+      final int x = toX( this.timestamps[i] );
+      if ( x > lastX )
+      {
+        final int offset = level ? highOffset : lowOffset;
+        Arrays.fill( aPixels, offset + lastX, offset + x, color );
+      }
+      vline( aPixels, aStride, LABEL_WIDTH + x, SIGNAL_HIGH, SIGNAL_LOW + 1, color );
+
+      level = newLevel;
+      lastX = x;
+    }
+
+    final int offset = level ? highOffset : lowOffset;
+    Arrays.fill( aPixels, offset + lastX, offset + this.width, color );
+  }
+
+  /**
+   * Converts the given timestamp to a (signal relative) X-coordinate.
+   */
+  private int toX( final long aTimestamp )
+  {
+    final long x = ( long )( aTimestamp * this.pixelsPerSample );
+    return ( int )Math.max( 0L, Math.min( this.width - 1L, x ) );
+  }
+}
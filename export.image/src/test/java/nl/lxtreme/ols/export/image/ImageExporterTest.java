@@ -0,0 +1,207 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.image;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.image.*;
+import java.io.*;
+import java.util.*;
+
+import javax.imageio.*;
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.test.data.project.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link ImageExporter}.
+ */
+public class ImageExporterTest
+{
+  // CONSTANTS
+
+  private static final int BACKGROUND = WaveformRenderer.PALETTE.getRGB( WaveformRenderer.COLOR_BACKGROUND );
+  private static final int SIGNAL = WaveformRenderer.PALETTE.getRGB( WaveformRenderer.COLOR_SIGNAL );
+  private static final int TRIGGER = WaveformRenderer.PALETTE.getRGB( WaveformRenderer.COLOR_TRIGGER );
+
+  // METHODS
+
+  /**
+   * Tests that the complete capture is rendered, one row per enabled channel,
+   * at the requested horizontal scale.
+   */
+  @Test
+  public void testExportCaptureOk() throws IOException
+  {
+    // channel 0 goes high at sample 4, channel 1 is disabled, channel 2 is
+    // always high...
+    final AcquisitionResult data = new CapturedData( new int[] { 0x04, 0x05 }, new long[] { 0L, 4L }, -1L, 1000, 3,
+        0x05, 9L );
+
+    final BufferedImage image = export( data, new ImageExporter( 2.0, 2 ) );
+
+    assertEquals( WaveformRenderer.LABEL_WIDTH + 20, image.getWidth() );
+    assertEquals( 2 * WaveformRenderer.ROW_HEIGHT, image.getHeight() );
+
+    final int x0 = WaveformRenderer.LABEL_WIDTH;
+    final int high = 3;
+    final int low = WaveformRenderer.ROW_HEIGHT - 4;
+
+    // Channel 0: low up to the transition at x = 8, high afterwards...
+    assertEquals( SIGNAL, image.getRGB( x0 + 2, low ) );
+    assertEquals( BACKGROUND, image.getRGB( x0 + 2, high ) );
+    assertEquals( SIGNAL, image.getRGB( x0 + 8, ( high + low ) / 2 ) );
+    assertEquals( SIGNAL, image.getRGB( x0 + 12, high ) );
+    assertEquals( BACKGROUND, image.getRGB( x0 + 12, low ) );
+    assertEquals( SIGNAL, image.getRGB( x0 + 19, high ) );
+
+    // Channel 2: high all along...
+    final int y = WaveformRenderer.ROW_HEIGHT;
+    assertEquals( SIGNAL, image.getRGB( x0, y + high ) );
+    assertEquals( SIGNAL, image.getRGB( x0 + 19, y + high ) );
+    assertEquals( BACKGROUND, image.getRGB( x0 + 10, y + low ) );
+  }
+
+  /**
+   * Tests that the trigger position is marked, and that captures of more than
+   * 32 channels are rendered as well.
+   */
+  @Test
+  public void testExportWideCaptureWithTriggerOk() throws IOException
+  {
+    final AcquisitionResult data = new WideCapturedData( new long[] { 0L, 1L << 39 }, new long[] { 0L, 5L }, 5L,
+        1000, 40, ( 1L << 40 ) - 1L, 9L );
+
+    final BufferedImage image = export( data, new ImageExporter( 1.0, 1 ) );
+
+    assertEquals( WaveformRenderer.LABEL_WIDTH + 10, image.getWidth() );
+    assertEquals( 40 * WaveformRenderer.ROW_HEIGHT, image.getHeight() );
+
+    final int x0 = WaveformRenderer.LABEL_WIDTH;
+    final int y = 39 * WaveformRenderer.ROW_HEIGHT;
+    assertEquals( TRIGGER, image.getRGB( x0 + 5, 1 ) );
+    assertEquals( SIGNAL, image.getRGB( x0 + 2, y + WaveformRenderer.ROW_HEIGHT - 4 ) );
+    assertEquals( SIGNAL, image.getRGB( x0 + 7, y + 3 ) );
+  }
+
+  /**
+   * Tests that a wide image, spanning many IDAT chunks, is encoded exactly as
+   * it is rendered.
+   */
+  @Test
+  public void testExportLargeCaptureOk() throws IOException
+  {
+    final Random rnd = new Random( 42L );
+
+    final int count = 20000;
+    final int[] values = new int[count];
+    final long[] timestamps = new long[count];
+    long time = 0L;
+    for ( int i = 0; i < count; i++ )
+    {
+      values[i] = rnd.nextInt();
+      timestamps[i] = time;
+      time += 1 + rnd.nextInt( 10 );
+    }
+    final AcquisitionResult data = new CapturedData( values, timestamps, -1L, 1000000, 8, 0xFF, time );
+
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( data );
+
+    final BufferedImage image = export( data, new ImageExporter( 1.0, 4 ) );
+
+    final WaveformRenderer renderer = new WaveformRenderer( dataSet, 1.0 );
+    assertEquals( renderer.getWidth(), image.getWidth() );
+    assertEquals( renderer.getHeight(), image.getHeight() );
+
+    final int width = image.getWidth();
+    for ( int band = 0; band < renderer.getBandCount(); band++ )
+    {
+      final byte[] pixels = renderer.renderBand( band );
+      for ( int y = 0; y < WaveformRenderer.ROW_HEIGHT; y++ )
+      {
+        for ( int x = WaveformRenderer.LABEL_WIDTH; x < width; x++ )
+        {
+          final int expected = WaveformRenderer.PALETTE.getRGB( pixels[( y * width ) + x] & 0xFF );
+          assertEquals( expected, image.getRGB( x, ( band * WaveformRenderer.ROW_HEIGHT ) + y ) );
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that the default exporter takes its horizontal scale from the
+   * preferences at the moment of each export.
+   */
+  @Test
+  public void testExportWithPreferredPixelsPerSampleOk() throws IOException
+  {
+    final AcquisitionResult data = new CapturedData( new int[] { 0x01, 0x00 }, new long[] { 0L, 4L }, -1L, 1000, 1,
+        0x01, 9L );
+    final ImageExporter exporter = new ImageExporter();
+
+    try
+    {
+      UIManager.put( ImageExporter.PIXELS_PER_SAMPLE, Float.valueOf( 3.0f ) );
+      assertEquals( WaveformRenderer.LABEL_WIDTH + 30, export( data, exporter ).getWidth() );
+
+      // Without a diagram, the capture is rendered at its default scale...
+      UIManager.put( ImageExporter.PIXELS_PER_SAMPLE, null );
+      assertEquals( WaveformRenderer.LABEL_WIDTH + 10, export( data, exporter ).getWidth() );
+    }
+    finally
+    {
+      UIManager.put( ImageExporter.PIXELS_PER_SAMPLE, null );
+    }
+  }
+
+  /**
+   * Tests that an invalid horizontal scale is not accepted.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testInvalidPixelsPerSampleFail()
+  {
+    new ImageExporter( -1.0, 1 );
+  }
+
+  /**
+   * Exports the given data without a diagram, and reads back the resulting
+   * image using the image I/O support of the JRE.
+   */
+  private BufferedImage export( final AcquisitionResult aData, final ImageExporter aExporter ) throws IOException
+  {
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( aData );
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    aExporter.export( dataSet, null, output );
+
+    final BufferedImage result = ImageIO.read( new ByteArrayInputStream( output.toByteArray() ) );
+    assertNotNull( result );
+    return result;
+  }
+}
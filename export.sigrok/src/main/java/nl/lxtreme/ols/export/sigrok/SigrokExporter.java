@@ -0,0 +1,376 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.sigrok;
+
+
+import java.io.*;
+import java.util.*;
+
+import javax.swing.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides an exporter for the sigrok session format (version 2), as used by
+ * sigrok-cli and PulseView.
+ * <p>
+ * A session is a ZIP file with a <tt>version</tt> entry, a <tt>metadata</tt>
+ * entry describing the capture, and the raw samples in <tt>logic-1-N</tt>
+ * chunks. Each sample is stored in little-endian order, using as many bytes
+ * as needed for all channels.
+ * </p>
+ * <p>
+ * The transitions of the acquisition result are expanded into packed sample
+ * chunks on the exporting thread, while the chunks are deflated in parallel.
+ * Only a limited number of chunks is in flight at any time, so memory usage
+ * does not depend on the length of the capture.
+ * </p>
+ */
+public class SigrokExporter implements Exporter
+{
+  // INNER TYPES
+
+  /**
+   * Expands the transitions of an acquisition result into consecutive,
+   * packed, samples.
+   */
+  static final class SampleExpander
+  {
+    // VARIABLES
+
+    private final int[][] planes;
+    private final long[] timestamps;
+    private final int unitSize;
+    private final long sampleCount;
+
+    private final byte[] pattern;
+
+    private long sample;
+    private int transition;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link SampleExpander} instance.
+     */
+    SampleExpander( final AcquisitionResult aData, final int aUnitSize )
+    {
+      final int planeCount = ChannelAccessor.getPlaneCount( aData );
+
+      this.planes = new int[planeCount][];
+      for ( int p = 0; p < planeCount; p++ )
+      {
+        this.planes[p] = ChannelAccessor.getValues( aData, p );
+      }
+      this.timestamps = aData.getTimestamps();
+      this.unitSize = aUnitSize;
+      this.sampleCount = ( this.timestamps.length == 0 ) ? 0L : ( aData.getAbsoluteLength() + 1L );
+
+      this.pattern = new byte[aUnitSize];
+    }
+
+    // METHODS
+
+    /**
+     * Fills the given buffer with the next samples.
+     * 
+     * @param aBuffer
+     *          the buffer to fill, its length should be a multiple of the unit
+     *          size.
+     */
+    void expand( final byte[] aBuffer )
+    {
+      final int count = aBuffer.length / this.unitSize;
+      final long end = this.sample + count;
+
+      int pos = 0;
+      while ( this.sample < end )
+      {
+        // Advance to the transition that is valid for the current sample...
+        while ( ( ( this.transition + 1 ) < this.timestamps.length )
+            && ( this.timestamps[this.transition + 1] <= this.sample ) )
+        {
+          this.transition++;
+        }
+
+        final long next = ( ( this.transition + 1 ) < this.timestamps.length ) ? this.timestamps[this.transition + 1]
+            : Long.MAX_VALUE;
+        final int run = ( int )( Math.min( next, end ) - this.sample );
+
+        pos = fill( aBuffer, pos, run );
+        this.sample += run;
+      }
+    }
+
+    /**
+     * Returns the number of samples that are not yet expanded.
+     */
+    long getRemaining()
+    {
+      return this.sampleCount - this.sample;
+    }
+
+    /**
+     * Returns whether there are samples that are not yet expanded.
+     */
+    boolean hasRemaining()
+    {
+      return this.sample < this.sampleCount;
+    }
+
+    /**
+     * Fills the given buffer with a run of the current sample value.
+     * 
+     * @return the new position in the buffer.
+     */
+    private int fill( final byte[] aBuffer, final int aPos, final int aRun )
+    {
+      final int length = aRun * this.unitSize;
+      if ( this.unitSize == 1 )
+      {
+        final byte value = ( byte )this.planes[0][this.transition];
+        Arrays.fill( aBuffer, aPos, aPos + length, value );
+        return aPos + length;
+      }
+
+      for ( int i = 0; i < this.unitSize; i++ )
+      {
+        this.pattern[i] = ( byte )( this.planes[i >> 2][this.transition] >>> ( ( i & 3 ) * 8 ) );
+      }
+
+      // Copy the pattern once, and keep doubling the copied part...
+      final int copy = Math.min( length, this.unitSize );
+      System.arraycopy( this.pattern, 0, aBuffer, aPos, copy );
+      int filled = copy;
+      while ( filled < length )
+      {
+        final int n = Math.min( filled, length - filled );
+        System.arraycopy( aBuffer, aPos, aBuffer, aPos + filled, n );
+        filled += n;
+      }
+      return aPos + length;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The (uncompressed) size of a single chunk of samples, in bytes. */
+  static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+  static final String VERSION_ENTRY = "version";
+  static final String METADATA_ENTRY = "metadata";
+  static final String CAPTURE_FILE = "logic-1";
+
+  private static final String NAME = "sigrok session";
+  private static final String SESSION_VERSION = "2";
+
+  // VARIABLES
+
+  private final int compressionLevel;
+  private final int threadCount;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SigrokExporter} instance.
+   */
+  public SigrokExporter()
+  {
+    this( -1 /* default compression */, Runtime.getRuntime().availableProcessors() );
+  }
+
+  /**
+   * Creates a new {@link SigrokExporter} instance.
+   * 
+   * @param aCompressionLevel
+   *          the compression level to use, 0..9, or -1 for the default
+   *          compression level;
+   * @param aThreadCount
+   *          the number of threads to deflate the sample chunks on, >= 1.
+   */
+  public SigrokExporter( final int aCompressionLevel, final int aThreadCount )
+  {
+    if ( ( aCompressionLevel < -1 ) || ( aCompressionLevel > 9 ) )
+    {
+      throw new IllegalArgumentException( "Invalid compression level: " + aCompressionLevel + "!" );
+    }
+    this.compressionLevel = aCompressionLevel;
+    this.threadCount = Math.max( 1, aThreadCount );
+  }
+
+  // METHODS
+
+  /**
+   * Returns the sample rate as string, in the way sigrok formats it, for
+   * example "24 MHz".
+   * 
+   * @param aRate
+   *          the sample rate, in Hertz.
+   * @return the sample rate as string, never <code>null</code>.
+   */
+  static String formatSampleRate( final long aRate )
+  {
+    if ( ( aRate >= 1000000000L ) && ( ( aRate % 1000000000L ) == 0L ) )
+    {
+      return ( aRate / 1000000000L ) + " GHz";
+    }
+    if ( ( aRate >= 1000000L ) && ( ( aRate % 1000000L ) == 0L ) )
+    {
+      return ( aRate / 1000000L ) + " MHz";
+    }
+    if ( ( aRate >= 1000L ) && ( ( aRate % 1000L ) == 0L ) )
+    {
+      return ( aRate / 1000L ) + " kHz";
+    }
+    return aRate + " Hz";
+  }
+
+  /**
+   * Returns the number of bytes used for a single sample.
+   * 
+   * @param aChannels
+   *          the number of channels, >= 1.
+   * @return the sample size, in bytes.
+   */
+  static int getUnitSize( final int aChannels )
+  {
+    return Math.max( 1, ( aChannels + 7 ) / 8 );
+  }
+
+  /**
+   * Returns the name of the chunk entry with the given (one-based) number.
+   */
+  static String getChunkName( final int aChunk )
+  {
+    return CAPTURE_FILE + "-" + aChunk;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
+      throws IOException
+  {
+    final AcquisitionResult data = aDataSet.getCapturedData();
+
+    final int channels = data.getChannels();
+    final int unitSize = getUnitSize( channels );
+
+    final ZipWriter writer = new ZipWriter( new BufferedOutputStream( aStream, 64 * 1024 ), this.compressionLevel,
+        this.threadCount );
+
+    writer.putNextEntry( VERSION_ENTRY );
+    writer.write( SESSION_VERSION.getBytes( "US-ASCII" ) );
+
+    writer.putNextEntry( METADATA_ENTRY );
+    writer.write( createMetadata( aDataSet, unitSize ).getBytes( "UTF-8" ) );
+
+    writeSamples( writer, data, unitSize );
+
+    writer.finish();
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.data.export.Exporter#getFilenameExtentions()
+   */
+  @Override
+  public String[] getFilenameExtentions()
+  {
+    return new String[] { "sr" };
+  }
+
+  /**
+   * @see nl.lxtreme.ols.api.data.export.Exporter#getName()
+   */
+  @Override
+  public String getName()
+  {
+    return NAME;
+  }
+
+  /**
+   * Creates the contents of the metadata entry.
+   */
+  final String createMetadata( final DataSet aDataSet, final int aUnitSize )
+  {
+    final AcquisitionResult data = aDataSet.getCapturedData();
+    final Channel[] labels = aDataSet.getChannels();
+    final int channels = data.getChannels();
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append( "[global]\n" );
+    sb.append( "sigrok version=0.2.0\n" );
+    sb.append( "\n" );
+    sb.append( "[device 1]\n" );
+    sb.append( "capturefile=" ).append( CAPTURE_FILE ).append( '\n' );
+    sb.append( "total probes=" ).append( channels ).append( '\n' );
+    if ( data.getSampleRate() > 0 )
+    {
+      sb.append( "samplerate=" ).append( formatSampleRate( data.getSampleRate() ) ).append( '\n' );
+    }
+    sb.append( "total analog=0\n" );
+    for ( int i = 0; i < channels; i++ )
+    {
+      String label = ( i < labels.length ) ? labels[i].getLabel() : null;
+      if ( StringUtils.isEmpty( label ) )
+      {
+        label = "D" + i;
+      }
+      // Newlines would break the metadata...
+      sb.append( "probe" ).append( i + 1 ).append( '=' ).append( label.replaceAll( "[\\r\\n]+", " " ) ).append( '\n' );
+    }
+    sb.append( "unitsize=" ).append( aUnitSize ).append( '\n' );
+    return sb.toString();
+  }
+
+  /**
+   * Expands the transitions of the given acquisition result into packed
+   * sample chunks, and writes them as entries that are deflated in parallel.
+   */
+  private void writeSamples( final ZipWriter aWriter, final AcquisitionResult aData, final int aUnitSize )
+      throws IOException
+  {
+    final SampleExpander expander = new SampleExpander( aData, aUnitSize );
+    final int samplesPerChunk = CHUNK_SIZE / aUnitSize;
+
+    byte[] buffer = null;
+    int chunk = 0;
+    while ( expander.hasRemaining() )
+    {
+      // The writer copies the samples, so the buffer can be reused...
+      final int length = ( int )Math.min( samplesPerChunk, expander.getRemaining() ) * aUnitSize;
+      if ( ( buffer == null ) || ( buffer.length != length ) )
+      {
+        buffer = new byte[length];
+      }
+      expander.expand( buffer );
+
+      aWriter.putNextEntry( getChunkName( ++chunk ), true /* aParallel */);
+      aWriter.write( buffer );
+    }
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.sigrok;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.test.data.project.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link SigrokExporter}.
+ */
+public class SigrokExporterTest
+{
+  // METHODS
+
+  /**
+   * Test method for {@link SigrokExporter#formatSampleRate(long)}.
+   */
+  @Test
+  public void testFormatSampleRateOk()
+  {
+    assertEquals( "200 Hz", SigrokExporter.formatSampleRate( 200 ) );
+    assertEquals( "1500 Hz", SigrokExporter.formatSampleRate( 1500 ) );
+    assertEquals( "500 kHz", SigrokExporter.formatSampleRate( 500000 ) );
+    assertEquals( "24 MHz", SigrokExporter.formatSampleRate( 24000000 ) );
+    assertEquals( "1 GHz", SigrokExporter.formatSampleRate( 1000000000 ) );
+  }
+
+  /**
+   * Tests that a capture that does not fit in a single chunk is split over
+   * multiple, consecutively numbered, chunks.
+   */
+  @Test
+  public void testExportMultipleChunksOk() throws IOException
+  {
+    final long length = SigrokExporter.CHUNK_SIZE + 1000L;
+    final AcquisitionResult data = new CapturedData( new int[] { 0x01, 0x02, 0x03 }, new long[] { 0L,
+        SigrokExporter.CHUNK_SIZE - 1L, length }, 0, 1000000, 2, 0x03, length );
+
+    final Map<String, byte[]> entries = export( data, new SigrokExporter( 1, 2 ) );
+
+    assertTrue( entries.containsKey( "logic-1-1" ) );
+    assertTrue( entries.containsKey( "logic-1-2" ) );
+    assertFalse( entries.containsKey( "logic-1-3" ) );
+
+    final byte[] first = entries.get( "logic-1-1" );
+    final byte[] second = entries.get( "logic-1-2" );
+    assertEquals( SigrokExporter.CHUNK_SIZE, first.length );
+    assertEquals( length + 1L, first.length + second.length );
+
+    assertEquals( 0x01, first[0] );
+    assertEquals( 0x01, first[SigrokExporter.CHUNK_SIZE - 2] );
+    assertEquals( 0x02, first[SigrokExporter.CHUNK_SIZE - 1] );
+    assertEquals( 0x02, second[second.length - 2] );
+    assertEquals( 0x03, second[second.length - 1] );
+  }
+
+  /**
+   * Tests that the session contains a version, metadata and the expanded
+   * samples.
+   */
+  @Test
+  public void testExportSessionOk() throws IOException
+  {
+    final AcquisitionResult data = new CapturedData( new int[] { 0x05, 0x0A, 0x0F }, new long[] { 0L, 3L, 5L }, 0,
+        24000000, 4, 0x0F, 6L );
+
+    final Map<String, byte[]> entries = export( data, new SigrokExporter() );
+
+    assertEquals( "2", new String( entries.get( "version" ), "US-ASCII" ) );
+
+    final String metadata = new String( entries.get( "metadata" ), "UTF-8" );
+    assertTrue( metadata.startsWith( "[global]\n" ) );
+    assertTrue( metadata.contains( "[device 1]\n" ) );
+    assertTrue( metadata.contains( "capturefile=logic-1\n" ) );
+    assertTrue( metadata.contains( "total probes=4\n" ) );
+    assertTrue( metadata.contains( "samplerate=24 MHz\n" ) );
+    assertTrue( metadata.contains( "probe4=" ) );
+    assertFalse( metadata.contains( "probe5=" ) );
+    assertTrue( metadata.contains( "unitsize=1\n" ) );
+
+    assertArrayEquals( new byte[] { 5, 5, 5, 10, 10, 15, 15 }, entries.get( "logic-1-1" ) );
+  }
+
+  /**
+   * Tests that captures of more than 32 channels are written with multiple
+   * bytes per sample, in little-endian order.
+   */
+  @Test
+  public void testExportWideSamplesOk() throws IOException
+  {
+    final AcquisitionResult data = new WideCapturedData( new long[] { 0x0102030405L, 0x8000000001L },
+        new long[] { 0L, 2L }, 0, 1000, 40, ( 1L << 40 ) - 1L, 2L );
+
+    final Map<String, byte[]> entries = export( data, new SigrokExporter( 9, 1 ) );
+
+    final String metadata = new String( entries.get( "metadata" ), "UTF-8" );
+    assertTrue( metadata.contains( "samplerate=1 kHz\n" ) );
+    assertTrue( metadata.contains( "unitsize=5\n" ) );
+
+    assertArrayEquals( new byte[] { 5, 4, 3, 2, 1, 5, 4, 3, 2, 1, 1, 0, 0, 0, ( byte )0x80 },
+        entries.get( "logic-1-1" ) );
+  }
+
+  /**
+   * Exports the given data, and reads back all entries of the resulting
+   * session using the ZIP support of the JRE.
+   */
+  private Map<String, byte[]> export( final AcquisitionResult aData, final SigrokExporter aExporter )
+      throws IOException
+  {
+    final StubDataSet dataSet = new StubDataSet();
+    dataSet.setCapturedData( aData );
+
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    aExporter.export( dataSet, null, output );
+
+    final Map<String, byte[]> result = new LinkedHashMap<String, byte[]>();
+
+    final ZipInputStream zis = new ZipInputStream( new ByteArrayInputStream( output.toByteArray() ) );
+    try
+    {
+      final byte[] buffer = new byte[8192];
+
+      ZipEntry entry;
+      while ( ( entry = zis.getNextEntry() ) != null )
+      {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        int count;
+        while ( ( count = zis.read( buffer ) ) > 0 )
+        {
+          baos.write( buffer, 0, count );
+        }
+        result.put( entry.getName(), baos.toByteArray() );
+      }
+    }
+    finally
+    {
+      zis.close();
+    }
+
+    // The central directory should be readable as well...
+    final File file = File.createTempFile( "session", ".sr" );
+    try
+    {
+      final FileOutputStream fos = new FileOutputStream( file );
+      try
+      {
+        fos.write( output.toByteArray() );
+      }
+      finally
+      {
+        fos.close();
+      }
+
+      final ZipFile zipFile = new ZipFile( file );
+      try
+      {
+        assertEquals( result.size(), zipFile.size() );
+      }
+      finally
+      {
+        zipFile.close();
+      }
+    }
+    finally
+    {
+      file.delete();
+    }
+
+    return result;
+  }
+}
@@ -21,65 +21,191 @@
 package nl.lxtreme.ols.export.svg;
 
 
-import java.awt.*;
 import java.io.*;
 import java.util.*;
+import java.util.List;
 
 import javax.swing.*;
-import javax.swing.border.*;
 
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.data.export.*;
-
-import org.apache.batik.dom.*;
-import org.apache.batik.svggen.*;
-import org.w3c.dom.*;
+import nl.lxtreme.ols.util.*;
 
 
 /**
- * @author jawi
+ * Provides an exporter for scalable vector graphics (SVG) images.
+ * <p>
+ * The complete capture is written directly from its sample data, with one
+ * path per enabled channel. Transitions are decimated to the pixel level: all
+ * transitions that fall in the same pixel column end up as a single vertical
+ * line, so the size of the image is bounded by its width, and not by the
+ * number of transitions. Annotations are only written when their text fits in
+ * the time span they cover. The document is streamed to the output while it
+ * is written, so no document model is kept in memory.
+ * </p>
+ * <p>
+ * The horizontal scale can be set through the
+ * {@value #PROPERTY_PIXELS_PER_SAMPLE} system property; by default, the
+ * capture is scaled to a width of {@value #DEFAULT_WIDTH} pixels.
+ * </p>
  */
 public class SVGExporter implements Exporter
 {
+  // CONSTANTS
+
+  /** The system property defining the horizontal scale, in pixels per sample. */
+  public static final String PROPERTY_PIXELS_PER_SAMPLE = "nl.lxtreme.ols.export.svg.pixelsPerSample";
+
+  /** The width of the signals in case no horizontal scale is given. */
+  static final int DEFAULT_WIDTH = 2048;
+
+  /** The height of a single channel row, in pixels. */
+  static final int ROW_HEIGHT = 20;
+  /** The width of the channel label column, in pixels. */
+  static final int LABEL_WIDTH = 80;
+
+  /** The (approximate) width of a single character of an annotation. */
+  static final int ANNOTATION_CHAR_WIDTH = 6;
+
+  private static final int SIGNAL_HIGH = 3;
+  private static final int SIGNAL_LOW = ROW_HEIGHT - 4;
+
+  private static final String STYLE = //
+  "svg{shape-rendering:crispEdges}\n" //
+      + ".bg{fill:#000}\n" //
+      + ".sep{stroke:#404040}\n" //
+      + ".trg{stroke:#f00}\n" //
+      + ".sig{fill:none;stroke:#30ff30}\n" //
+      + ".lbl{fill:#fff;font:11px sans-serif}\n" //
+      + ".ann{fill:#fff;font:10px monospace;text-anchor:middle}\n";
+
+  // VARIABLES
+
+  private final double pixelsPerSample;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SVGExporter} instance, taking the horizontal scale
+   * from the {@value #PROPERTY_PIXELS_PER_SAMPLE} system property.
+   */
+  public SVGExporter()
+  {
+    this( getDefaultPixelsPerSample() );
+  }
+
+  /**
+   * Creates a new {@link SVGExporter} instance.
+   * 
+   * @param aPixelsPerSample
+   *          the horizontal scale, in pixels per sample, > 0.0, or 0.0 to
+   *          scale the capture to {@value #DEFAULT_WIDTH} pixels.
+   */
+  public SVGExporter( final double aPixelsPerSample )
+  {
+    if ( !( aPixelsPerSample >= 0.0 ) || Double.isInfinite( aPixelsPerSample ) )
+    {
+      throw new IllegalArgumentException( "Invalid pixels per sample: " + aPixelsPerSample + "!" );
+    }
+    this.pixelsPerSample = aPixelsPerSample;
+  }
+
   // METHODS
 
   /**
-   * @see nl.lxtreme.ols.api.data.export.Exporter#export(nl.lxtreme.ols.api.data.DataContainer,
-   *      javax.swing.JComponent, java.io.OutputStream)
+   * Returns the horizontal scale as defined by the
+   * {@value #PROPERTY_PIXELS_PER_SAMPLE} system property.
+   * 
+   * @return the horizontal scale, or 0.0 if not (validly) defined.
+   */
+  static double getDefaultPixelsPerSample()
+  {
+    final String value = System.getProperty( PROPERTY_PIXELS_PER_SAMPLE );
+    if ( value != null )
+    {
+      try
+      {
+        final double result = Double.parseDouble( value.trim() );
+        if ( ( result > 0.0 ) && !Double.isInfinite( result ) )
+        {
+          return result;
+        }
+      }
+      catch ( NumberFormatException exception )
+      {
+        // Ignore; use the default width...
+      }
+    }
+    return 0.0;
+  }
+
+  /**
+   * {@inheritDoc}
    */
   @Override
-  public void export( final DataContainer aContainer, final JComponent aComponent, final OutputStream aStream )
+  public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    // Get a DOMImplementation.
-    DOMImplementation domImpl = GenericDOMImplementation.getDOMImplementation();
-
-    // Create an instance of org.w3c.dom.Document.
-    final String svgNS = "http://www.w3.org/2000/svg";
-    Document document = domImpl.createDocument( svgNS, "svg", null );
-
-    final SVGGeneratorContext ctx = SVGGeneratorContext.createDefault( document );
-    ctx.setComment( "Generated on " + new Date() );
-
-    // Create an instance of the SVG Generator.
-    final SVGGraphics2D svgGenerator = new SVGGraphics2D( ctx, false /* textAsShapes */);
-    // Make sure to set the correct canvas size, in order for viewers to get a
-    // notion of the size of the display...
-    svgGenerator.setSVGCanvasSize( getImageSize( aComponent ) );
-    // "Paint" the diagram component to SVG...
-    paintDiagram( svgGenerator, aComponent );
-
-    Writer out = new OutputStreamWriter( aStream, "UTF-8" );
-    try
+    final AcquisitionResult data = aDataSet.getCapturedData();
+    final long[] timestamps = data.getTimestamps();
+
+    final long sampleCount = ( timestamps.length == 0 ) ? 0L : ( data.getAbsoluteLength() + 1L );
+    final double scale = ( this.pixelsPerSample > 0.0 ) ? this.pixelsPerSample : ( double )DEFAULT_WIDTH
+        / Math.max( 1L, sampleCount );
+
+    final long signalWidth = Math.max( 1L, ( long )Math.ceil( sampleCount * scale ) );
+    if ( signalWidth > ( Integer.MAX_VALUE - LABEL_WIDTH ) )
     {
-      svgGenerator.stream( out, true /* useCSS */);
+      throw new IOException( "Image too wide (" + signalWidth + " pixels); use less pixels per sample!" );
     }
-    finally
+
+    final List<Integer> channels = getEnabledChannels( data );
+    final Scale xScale = new Scale( scale, ( int )signalWidth );
+
+    final SVGWriter writer = new SVGWriter( new BufferedWriter( new OutputStreamWriter( aStream, "UTF-8" ),
+        64 * 1024 ) );
+
+    final long width = LABEL_WIDTH + signalWidth;
+    final long height = ( long )channels.size() * ROW_HEIGHT;
+
+    writer.startDocument( width, height, STYLE );
+    writer.writeRect( "bg", 0, 0, width, height );
+
+    if ( data.hasTriggerData() )
     {
-      out.flush();
-      out.close();
-      out = null;
+      final int x = LABEL_WIDTH + xScale.toX( data.getTriggerPosition() );
+      writer.writeLine( "trg", x, 0, x, height );
+    }
+
+    final Channel[] channelList = aDataSet.getChannels();
+
+    int y = 0;
+    for ( Integer channel : channels )
+    {
+      final int index = channel.intValue();
+      final Channel ch = ( index < channelList.length ) ? channelList[index] : null;
+
+      writer.startGroup( null );
+
+      final String label = ( ch != null ) ? ch.getLabel() : null;
+      writer.writeText( "lbl", 4, y + ROW_HEIGHT - 6, StringUtils.isEmpty( label ) ? ( "Channel " + index ) : label );
+      writer.writeLine( "sep", 0, y + ROW_HEIGHT - 1, width, y + ROW_HEIGHT - 1 );
+
+      writeSignal( writer, data, index, xScale, y );
+
+      if ( ch != null )
+      {
+        writeAnnotations( writer, ch.getAnnotations(), xScale, y );
+      }
+
+      writer.endGroup();
+
+      y += ROW_HEIGHT;
     }
+
+    writer.endDocument();
   }
 
   /**
@@ -101,115 +227,150 @@ public class SVGExporter implements Exporter
   }
 
   /**
-   * Returns the export image size for the given component.
-   * 
-   * @param aDiagram
-   *          the component to get the export image size for, cannot be
-   *          <code>null</code>.
-   * @return a export image size, never <code>null</code>.
+   * Returns the indices of all enabled channels of the given data.
    */
-  private Dimension getImageSize( final JComponent aDiagram )
+  private List<Integer> getEnabledChannels( final AcquisitionResult aData )
   {
-    if ( aDiagram instanceof JScrollPane )
-    {
-      final JScrollPane scrollpane = ( JScrollPane )aDiagram;
-
-      final Dimension viewSize = scrollpane.getViewport().getViewSize();
-      final Dimension rowHeaderSize = scrollpane.getRowHeader().getViewSize();
-      final Dimension columnHeaderSize = scrollpane.getColumnHeader().getViewSize();
-
-      final int width = viewSize.width + rowHeaderSize.width;
-      final int height = viewSize.height + columnHeaderSize.height;
+    final long enabledMask = ChannelAccessor.getEnabledChannelMask( aData );
 
-      return new Dimension( width, height );
+    final List<Integer> result = new ArrayList<Integer>();
+    for ( int i = 0; i < aData.getChannels(); i++ )
+    {
+      if ( ( enabledMask & ( 1L << i ) ) != 0L )
+      {
+        result.add( Integer.valueOf( i ) );
+      }
     }
-
-    return aDiagram.getPreferredSize();
+    return result;
   }
 
   /**
-   * Paints the given component on the given canvas.
-   * 
-   * @param aCanvas
-   *          the canvas to paint on, cannot be <code>null</code>;
-   * @param aDiagram
-   *          the component to paint, cannot be <code>null</code>.
-   * @see #paintScrollPaneContents(Graphics2D, JScrollPane)
+   * Writes the text of all data annotations that fit in the time span they
+   * cover.
    */
-  private void paintDiagram( final Graphics2D aCanvas, final JComponent aDiagram )
+  private void writeAnnotations( final SVGWriter aWriter, final Collection<Annotation<?>> aAnnotations,
+      final Scale aScale, final int aY ) throws IOException
   {
-    if ( aDiagram instanceof JScrollPane )
-    {
-      paintScrollPaneContents( aCanvas, ( JScrollPane )aDiagram );
-    }
-    else
+    for ( Annotation<?> annotation : aAnnotations )
     {
-      final Border border = aDiagram.getBorder();
-      if ( border != null )
+      if ( !( annotation instanceof DataAnnotation<?> ) || ( annotation.getAnnotation() == null ) )
       {
-        final Insets insets = border.getBorderInsets( aDiagram );
-        if ( insets != null )
-        {
-          aCanvas.translate( -insets.left, -insets.top );
-        }
+        continue;
       }
 
-      aDiagram.paint( aCanvas );
+      final DataAnnotation<?> dataAnnotation = ( DataAnnotation<?> )annotation;
+      final String text = String.valueOf( dataAnnotation.getAnnotation() );
+
+      final int x1 = aScale.toX( dataAnnotation.getStartTimestamp() );
+      final int x2 = aScale.toX( dataAnnotation.getEndTimestamp() );
+      if ( text.isEmpty() || ( ( x2 - x1 ) < ( text.length() * ANNOTATION_CHAR_WIDTH ) ) )
+      {
+        // Not visible at this scale...
+        continue;
+      }
+
+      aWriter.writeText( "ann", LABEL_WIDTH + ( ( x1 + x2 ) / 2 ), aY + ( ROW_HEIGHT / 2 ) + 4, text );
     }
   }
 
   /**
-   * Paints the contents of the given scrollpane on the given canvas, expanding
-   * it to its full view (without scroll bars).
-   * 
-   * @param aCanvas
-   *          the canvas to paint on, cannot be <code>null</code>;
-   * @param aScrollPane
-   *          the scroll pane to paint, cannot be <code>null</code>.
+   * Writes the signal of a single channel as path, merging all transitions
+   * that fall in the same pixel column into a single vertical line.
    */
-  private void paintScrollPaneContents( final Graphics2D aCanvas, final JScrollPane aScrollPane )
+  private void writeSignal( final SVGWriter aWriter, final AcquisitionResult aData, final int aChannelIdx,
+      final Scale aScale, final int aY ) throws IOException
   {
-    int offsetX = 0;
-    int offsetY = 0;
-
-    final Component rowHeaderView = aScrollPane.getRowHeader().getView();
-    final Component columnHeaderView = aScrollPane.getColumnHeader().getView();
-    final Component cornerView = aScrollPane.getCorner( ScrollPaneConstants.UPPER_LEADING_CORNER );
-    final Component contentView = aScrollPane.getViewport().getView();
-
-    if ( rowHeaderView != null )
+    final long[] timestamps = aData.getTimestamps();
+    if ( timestamps.length == 0 )
     {
-      offsetX = rowHeaderView.getWidth();
-    }
-    if ( columnHeaderView != null )
-    {
-      offsetY = columnHeaderView.getHeight();
+      return;
     }
 
-    if ( cornerView != null )
+    final int[] values = ChannelAccessor.getValues( aData, ChannelAccessor.getPlane( aChannelIdx ) );
+    final int mask = ChannelAccessor.getMask( aChannelIdx );
+
+    final int yHigh = aY + SIGNAL_HIGH;
+    final int yLow = aY + SIGNAL_LOW;
+
+    boolean level = ( values[0] & mask ) != 0;
+    int penY = level ? yHigh : yLow;
+    int lastX = -1;
+
+    aWriter.startPath( "sig" );
+    aWriter.moveTo( LABEL_WIDTH, penY );
+
+    for ( int i = 1; i < timestamps.length; i++ )
     {
-      cornerView.paint( aCanvas );
+      final boolean newLevel = ( values[i] & mask ) != 0;
+      if ( newLevel == level )
+      {
+        continue;
+      }
+      level = newLevel;
+
+      final int x = aScale.toX( timestamps[i] );
+      if ( x == lastX )
+      {
+        // Already drawn as full-height vertical line in this column...
+        continue;
+      }
+
+      // The previous column might have ended on the other level...
+      final int y = newLevel ? yLow : yHigh;
+      if ( penY != y )
+      {
+        aWriter.verticalLineTo( y );
+      }
+      aWriter.horizontalLineTo( LABEL_WIDTH + x );
+
+      penY = newLevel ? yHigh : yLow;
+      aWriter.verticalLineTo( penY );
+
+      lastX = x;
     }
 
-    if ( columnHeaderView != null )
+    final int y = level ? yHigh : yLow;
+    if ( penY != y )
     {
-      aCanvas.translate( offsetX, 0 );
-      columnHeaderView.paint( aCanvas );
-      aCanvas.translate( -offsetX, 0 );
+      aWriter.verticalLineTo( y );
     }
+    aWriter.horizontalLineTo( LABEL_WIDTH + aScale.width );
 
-    if ( rowHeaderView != null )
+    aWriter.endPath();
+  }
+
+  // INNER TYPES
+
+  /**
+   * Converts timestamps to pixel columns.
+   */
+  static final class Scale
+  {
+    // VARIABLES
+
+    final double pixelsPerSample;
+    final int width;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Scale} instance.
+     */
+    Scale( final double aPixelsPerSample, final int aWidth )
     {
-      aCanvas.translate( 0, offsetY );
-      rowHeaderView.paint( aCanvas );
-      aCanvas.translate( 0, -offsetY );
+      this.pixelsPerSample = aPixelsPerSample;
+      this.width = aWidth;
     }
 
-    if ( contentView != null )
+    // METHODS
+
+    /**
+     * Converts the given timestamp to a (signal relative) X-coordinate.
+     */
+    int toX( final long aTimestamp )
     {
-      aCanvas.translate( offsetX, offsetY );
-      contentView.paint( aCanvas );
-      aCanvas.translate( -offsetX, -offsetY );
+      final long x = ( long )( aTimestamp * this.pixelsPerSample );
+      return ( int )Math.max( 0L, Math.min( this.width - 1L, x ) );
     }
   }
 }
@@ -0,0 +1,263 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.svg;
+
+
+import java.io.*;
+
+
+/**
+ * Provides a small streaming writer for SVG documents.
+ * <p>
+ * Elements are written straight to the underlying writer, no document model
+ * is kept in memory. Path data in particular can be written a command at a
+ * time, so that a path of any length can be written without first building
+ * it as string.
+ * </p>
+ */
+final class SVGWriter
+{
+  // VARIABLES
+
+  private final Writer writer;
+  private final char[] digits;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SVGWriter} instance.
+   * 
+   * @param aWriter
+   *          the writer to write the SVG document to, cannot be
+   *          <code>null</code>.
+   */
+  public SVGWriter( final Writer aWriter )
+  {
+    if ( aWriter == null )
+    {
+      throw new IllegalArgumentException( "Writer cannot be null!" );
+    }
+    this.writer = aWriter;
+    this.digits = new char[11];
+  }
+
+  // METHODS
+
+  /**
+   * Escapes the given text for use in XML content or attribute values.
+   * 
+   * @param aText
+   *          the text to escape, cannot be <code>null</code>.
+   * @return the escaped text, never <code>null</code>.
+   */
+  static String escape( final String aText )
+  {
+    final StringBuilder sb = new StringBuilder( aText.length() );
+    for ( int i = 0; i < aText.length(); i++ )
+    {
+      final char ch = aText.charAt( i );
+      switch ( ch )
+      {
+        case '<':
+          sb.append( "&lt;" );
+          break;
+        case '>':
+          sb.append( "&gt;" );
+          break;
+        case '&':
+          sb.append( "&amp;" );
+          break;
+        case '"':
+          sb.append( "&quot;" );
+          break;
+        default:
+          // Control characters are not allowed in XML 1.0...
+          sb.append( ( ( ch < ' ' ) && ( ch != '\t' ) ) ? ' ' : ch );
+          break;
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Ends the current path element.
+   */
+  public void endPath() throws IOException
+  {
+    this.writer.write( "\"/>\n" );
+  }
+
+  /**
+   * Ends the SVG document, and flushes the underlying writer.
+   */
+  public void endDocument() throws IOException
+  {
+    this.writer.write( "</svg>\n" );
+    this.writer.flush();
+  }
+
+  /**
+   * Ends the current group element.
+   */
+  public void endGroup() throws IOException
+  {
+    this.writer.write( "</g>\n" );
+  }
+
+  /**
+   * Writes a horizontal "line to" command of the current path.
+   */
+  public void horizontalLineTo( final int aX ) throws IOException
+  {
+    this.writer.write( 'H' );
+    writeInt( aX );
+  }
+
+  /**
+   * Writes a "move to" command of the current path.
+   */
+  public void moveTo( final int aX, final int aY ) throws IOException
+  {
+    this.writer.write( 'M' );
+    writeInt( aX );
+    this.writer.write( ' ' );
+    writeInt( aY );
+  }
+
+  /**
+   * Starts the SVG document.
+   * 
+   * @param aWidth
+   *          the width of the document, in pixels;
+   * @param aHeight
+   *          the height of the document, in pixels;
+   * @param aStyle
+   *          the CSS style sheet of the document, can be <code>null</code>.
+   */
+  public void startDocument( final long aWidth, final long aHeight, final String aStyle ) throws IOException
+  {
+    this.writer.write( "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n" );
+    this.writer.write( "<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\" width=\"" + aWidth + "\" height=\""
+        + aHeight + "\" viewBox=\"0 0 " + aWidth + " " + aHeight + "\">\n" );
+    if ( aStyle != null )
+    {
+      this.writer.write( "<style type=\"text/css\"><![CDATA[\n" );
+      this.writer.write( aStyle );
+      this.writer.write( "]]></style>\n" );
+    }
+  }
+
+  /**
+   * Starts a group element.
+   * 
+   * @param aClass
+   *          the CSS class of the group, can be <code>null</code>.
+   */
+  public void startGroup( final String aClass ) throws IOException
+  {
+    this.writer.write( ( aClass == null ) ? "<g>\n" : "<g class=\"" + aClass + "\">\n" );
+  }
+
+  /**
+   * Starts a path element; its path data should be written using
+   * {@link #moveTo(int, int)}, {@link #horizontalLineTo(int)} and
+   * {@link #verticalLineTo(int)}, followed by {@link #endPath()}.
+   * 
+   * @param aClass
+   *          the CSS class of the path, cannot be <code>null</code>.
+   */
+  public void startPath( final String aClass ) throws IOException
+  {
+    this.writer.write( "<path class=\"" + aClass + "\" d=\"" );
+  }
+
+  /**
+   * Writes a vertical "line to" command of the current path.
+   */
+  public void verticalLineTo( final int aY ) throws IOException
+  {
+    this.writer.write( 'V' );
+    writeInt( aY );
+  }
+
+  /**
+   * Writes a line element.
+   */
+  public void writeLine( final String aClass, final long aX1, final long aY1, final long aX2, final long aY2 )
+      throws IOException
+  {
+    this.writer.write( "<line class=\"" + aClass + "\" x1=\"" + aX1 + "\" y1=\"" + aY1 + "\" x2=\"" + aX2 + "\" y2=\""
+        + aY2 + "\"/>\n" );
+  }
+
+  /**
+   * Writes a rectangle element.
+   */
+  public void writeRect( final String aClass, final long aX, final long aY, final long aWidth, final long aHeight )
+      throws IOException
+  {
+    this.writer.write( "<rect class=\"" + aClass + "\" x=\"" + aX + "\" y=\"" + aY + "\" width=\"" + aWidth
+        + "\" height=\"" + aHeight + "\"/>\n" );
+  }
+
+  /**
+   * Writes a text element.
+   * 
+   * @param aClass
+   *          the CSS class of the text, cannot be <code>null</code>;
+   * @param aX
+   *          the X-coordinate of the text;
+   * @param aY
+   *          the Y-coordinate of the baseline of the text;
+   * @param aText
+   *          the (unescaped) text to write, cannot be <code>null</code>.
+   */
+  public void writeText( final String aClass, final long aX, final long aY, final String aText ) throws IOException
+  {
+    this.writer.write( "<text class=\"" + aClass + "\" x=\"" + aX + "\" y=\"" + aY + "\">" );
+    this.writer.write( escape( aText ) );
+    this.writer.write( "</text>\n" );
+  }
+
+  /**
+   * Writes the given (non-negative) integer without creating intermediary
+   * strings, as path data consists of little else.
+   */
+  private void writeInt( final int aValue ) throws IOException
+  {
+    if ( aValue < 0 )
+    {
+      this.writer.write( Integer.toString( aValue ) );
+      return;
+    }
+
+    int value = aValue;
+    int pos = this.digits.length;
+    do
+    {
+      this.digits[--pos] = ( char )( '0' + ( value % 10 ) );
+      value /= 10;
+    }
+    while ( value != 0 );
+
+    this.writer.write( this.digits, pos, this.digits.length - pos );
+  }
+}
@@ -0,0 +1,244 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.svg;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import javax.xml.parsers.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.test.data.project.*;
+
+import org.junit.*;
+import org.w3c.dom.*;
+
+
+/**
+ * Provides test cases for {@link SVGExporter}.
+ */
+public class SVGExporterTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a simple data annotation.
+   */
+  static final class StubDataAnnotation implements DataAnnotation<String>
+  {
+    private final int channel;
+    private final long start;
+    private final long end;
+    private final String text;
+
+    StubDataAnnotation( final int aChannel, final long aStart, final long aEnd, final String aText )
+    {
+      this.channel = aChannel;
+      this.start = aStart;
+      this.end = aEnd;
+      this.text = aText;
+    }
+
+    @Override
+    public int compareTo( final Annotation<String> aAnnotation )
+    {
+      return 0;
+    }
+
+    @Override
+    public String getAnnotation()
+    {
+      return this.text;
+    }
+
+    @Override
+    public int getChannel()
+    {
+      return this.channel;
+    }
+
+    @Override
+    public long getEndTimestamp()
+    {
+      return this.end;
+    }
+
+    @Override
+    public long getStartTimestamp()
+    {
+      return this.start;
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Tests that each enabled channel is written as a single path, following
+   * the transitions of that channel.
+   */
+  @Test
+  public void testExportSignalPathOk() throws Exception
+  {
+    // channel 0 goes high at sample 4, channel 1 is disabled, channel 2 is
+    // always high...
+    final AcquisitionResult data = new CapturedData( new int[] { 0x04, 0x05 }, new long[] { 0L, 4L }, -1L, 1000, 3,
+        0x05, 9L );
+
+    final Document document = export( createDataSet( data ), new SVGExporter( 2.0 ) );
+
+    final Element svg = document.getDocumentElement();
+    assertEquals( "svg", svg.getTagName() );
+    assertEquals( String.valueOf( SVGExporter.LABEL_WIDTH + 20 ), svg.getAttribute( "width" ) );
+    assertEquals( String.valueOf( 2 * SVGExporter.ROW_HEIGHT ), svg.getAttribute( "height" ) );
+
+    final List<String> paths = getPaths( document );
+    assertEquals( 2, paths.size() );
+    assertEquals( "M80 16H88V3H100", paths.get( 0 ) );
+    assertEquals( "M80 23H100", paths.get( 1 ) );
+  }
+
+  /**
+   * Tests that many transitions within the same pixel column are merged into
+   * a single vertical line.
+   */
+  @Test
+  public void testExportDecimatesTransitionsOk() throws Exception
+  {
+    final int count = 100000;
+    final int[] values = new int[count];
+    final long[] timestamps = new long[count];
+    for ( int i = 0; i < count; i++ )
+    {
+      values[i] = i & 1;
+      timestamps[i] = i;
+    }
+    final AcquisitionResult data = new CapturedData( values, timestamps, -1L, 1000000, 1, 0x01, count - 1L );
+
+    final Document document = export( createDataSet( data ), new SVGExporter( 0.001 ) );
+
+    final List<String> paths = getPaths( document );
+    assertEquals( 1, paths.size() );
+
+    // 100 pixel columns, each with (at most) three commands...
+    final String path = paths.get( 0 );
+    final int commands = path.replaceAll( "[^MHV]", "" ).length();
+    assertTrue( "Too many commands: " + commands, commands <= ( 3 * 100 + 2 ) );
+    assertTrue( path.startsWith( "M80 16H80V3" ) );
+  }
+
+  /**
+   * Tests that annotations are only written when their text fits in the time
+   * span they cover.
+   */
+  @Test
+  public void testExportVisibleAnnotationsOnlyOk() throws Exception
+  {
+    final AcquisitionResult data = new CapturedData( new int[] { 0x00, 0x01 }, new long[] { 0L, 50L }, -1L, 1000, 1,
+        0x01, 99L );
+
+    final StubDataSet dataSet = createDataSet( data, new StubDataAnnotation( 0, 10L, 40L, "0x<A>" ),
+        new StubDataAnnotation( 0, 60L, 62L, "too long to fit" ) );
+
+    final Document document = export( dataSet, new SVGExporter( 1.0 ) );
+
+    final List<String> texts = new ArrayList<String>();
+    final NodeList nodes = document.getElementsByTagName( "text" );
+    for ( int i = 0; i < nodes.getLength(); i++ )
+    {
+      final Element element = ( Element )nodes.item( i );
+      if ( "ann".equals( element.getAttribute( "class" ) ) )
+      {
+        texts.add( element.getTextContent() );
+        assertEquals( String.valueOf( SVGExporter.LABEL_WIDTH + 25 ), element.getAttribute( "x" ) );
+      }
+    }
+    assertEquals( Arrays.asList( "0x<A>" ), texts );
+  }
+
+  /**
+   * Tests that an invalid horizontal scale is not accepted.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testInvalidPixelsPerSampleFail()
+  {
+    new SVGExporter( Double.NaN );
+  }
+
+  /**
+   * Creates a data set for the given data, with the given annotations on
+   * channel 0.
+   */
+  private StubDataSet createDataSet( final AcquisitionResult aData, final Annotation<?>... aAnnotations )
+  {
+    final StubChannel channel = new StubChannel( 0 )
+    {
+      @Override
+      public Collection<Annotation<?>> getAnnotations()
+      {
+        return Arrays.<Annotation<?>> asList( aAnnotations );
+      }
+    };
+
+    final StubDataSet result = new StubDataSet()
+    {
+      @Override
+      public Channel[] getChannels()
+      {
+        final Channel[] channels = super.getChannels();
+        channels[0] = channel;
+        return channels;
+      }
+    };
+    result.setCapturedData( aData );
+    return result;
+  }
+
+  /**
+   * Exports the given data set, and parses the resulting document.
+   */
+  private Document export( final DataSet aDataSet, final SVGExporter aExporter ) throws Exception
+  {
+    final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    aExporter.export( aDataSet, null, output );
+
+    final DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    return builder.parse( new ByteArrayInputStream( output.toByteArray() ) );
+  }
+
+  /**
+   * Returns the path data of all paths in the given document.
+   */
+  private List<String> getPaths( final Document aDocument )
+  {
+    final List<String> result = new ArrayList<String>();
+    final NodeList nodes = aDocument.getElementsByTagName( "path" );
+    for ( int i = 0; i < nodes.getLength(); i++ )
+    {
+      result.add( ( ( Element )nodes.item( i ) ).getAttribute( "d" ) );
+    }
+    return result;
+  }
+}
@@ -24,11 +24,17 @@ package nl.lxtreme.ols.export.vcd;
 import static nl.lxtreme.ols.export.vcd.ValueChangeDumpHelper.*;
 
 import java.io.*;
+import java.nio.channels.*;
+import java.text.*;
+import java.util.*;
+import java.util.logging.*;
 
 import javax.swing.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.Channel;
 import nl.lxtreme.ols.api.data.export.*;
 import nl.lxtreme.ols.util.*;
 
@@ -36,16 +42,101 @@ import nl.lxtreme.ols.util.*;
 /**
  * Provides a exporter for the "value change dump" format, as specified in IEEE
  * Std 1364-2001.
+ * <p>
+ * Each enabled channel is written as a single bit variable. Optionally,
+ * consecutive channels are also written as buses of a given width, using
+ * vector records; the bus width can be set through the
+ * {@value #PROPERTY_BUS_WIDTH} system property.
+ * </p>
  */
 public class ValueChangeDumpExporter implements Exporter
 {
   // CONSTANTS
 
+  /** The system property defining the width of buses, 0 for no buses. */
+  public static final String PROPERTY_BUS_WIDTH = "nl.lxtreme.ols.export.vcd.busWidth";
+
   private static final String ID = "OLS Java Client";
-  private static final String VERSION = "VCD exporter v1.1";
+  private static final String VERSION = "VCD exporter v1.2";
+
+  private static final Logger LOG = Logger.getLogger( ValueChangeDumpExporter.class.getName() );
+
+  // VARIABLES
+
+  private final int busWidth;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ValueChangeDumpExporter} instance, taking the bus
+   * width from the {@value #PROPERTY_BUS_WIDTH} system property.
+   */
+  public ValueChangeDumpExporter()
+  {
+    this( getBusWidthProperty() );
+  }
+
+  /**
+   * Creates a new {@link ValueChangeDumpExporter} instance.
+   * 
+   * @param aBusWidth
+   *          the number of consecutive channels to write as a single bus,
+   *          >= 2 && <= {@value nl.lxtreme.ols.api.Ols#MAX_WIDE_CHANNELS}, or
+   *          0 to write no buses.
+   */
+  public ValueChangeDumpExporter( final int aBusWidth )
+  {
+    if ( !isValidBusWidth( aBusWidth ) )
+    {
+      throw new IllegalArgumentException( "Invalid bus width: " + aBusWidth + "!" );
+    }
+    this.busWidth = aBusWidth;
+  }
 
   // METHODS
 
+  /**
+   * Returns the bus width as defined by the {@value #PROPERTY_BUS_WIDTH} system
+   * property. An invalid value is logged and ignored, as it should not prevent
+   * the exporter from being used.
+   * 
+   * @return the bus width, or 0 (no buses) in case the property is not set or
+   *         invalid.
+   */
+  static int getBusWidthProperty()
+  {
+    final String value = System.getProperty( PROPERTY_BUS_WIDTH );
+    if ( value == null )
+    {
+      return 0;
+    }
+
+    try
+    {
+      final int result = Integer.parseInt( value.trim() );
+      if ( isValidBusWidth( result ) )
+      {
+        return result;
+      }
+    }
+    catch ( NumberFormatException exception )
+    {
+      // Handled below...
+    }
+
+    LOG.log( Level.WARNING, "Ignoring invalid bus width {0}, writing no buses instead...", value );
+    return 0;
+  }
+
+  /**
+   * Returns whether the given bus width is 0 (no buses) or lies between 2 and
+   * the maximum number of channels.
+   */
+  private static boolean isValidBusWidth( final int aBusWidth )
+  {
+    return ( aBusWidth == 0 ) || ( ( aBusWidth >= 2 ) && ( aBusWidth <= Ols.MAX_WIDE_CHANNELS ) );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -53,7 +144,17 @@ public class ValueChangeDumpExporter implements Exporter
   public void export( final DataSet aDataSet, final JComponent aComponent, final OutputStream aStream )
       throws IOException
   {
-    final PrintWriter writer = new PrintWriter( aStream );
+    final WritableByteChannel channel;
+    if ( aStream instanceof FileOutputStream )
+    {
+      channel = ( ( FileOutputStream )aStream ).getChannel();
+    }
+    else
+    {
+      channel = Channels.newChannel( aStream );
+    }
+
+    final ValueChangeDumpWriter writer = new ValueChangeDumpWriter( channel );
     try
     {
       final AcquisitionResult capturedData = aDataSet.getCapturedData();
@@ -66,7 +167,9 @@ public class ValueChangeDumpExporter implements Exporter
     }
     finally
     {
+      // The stream is owned by our caller, so only flush it...
       writer.flush();
+      aStream.flush();
     }
   }
 
@@ -88,37 +191,64 @@ public class ValueChangeDumpExporter implements Exporter
     return "Value Change Dump";
   }
 
+  /**
+   * Returns the number of buses to write for the given number of channels.
+   * Buses are identified after the channels themselves, so buses that would
+   * not fit in the available identifiers are left out.
+   * 
+   * @param aChannelCount
+   *          the total number of channels.
+   * @return the number of buses, >= 0.
+   */
+  final int getBusCount( final int aChannelCount )
+  {
+    if ( this.busWidth == 0 )
+    {
+      return 0;
+    }
+    final int buses = ( ( aChannelCount + this.busWidth ) - 1 ) / this.busWidth;
+    return Math.max( 0, Math.min( buses, ValueChangeDumpWriter.MAX_IDENTIFIERS - aChannelCount ) );
+  }
+
   /**
    * @param aWriter
    * @param aCapturedData
    * @param aTimebase
    */
-  protected void writeDataDump( final PrintWriter aWriter, final AcquisitionResult aCapturedData, final double aTimebase )
+  protected void writeDataDump( final ValueChangeDumpWriter aWriter, final AcquisitionResult aCapturedData,
+      final double aTimebase ) throws IOException
   {
-    final int[] values = aCapturedData.getValues();
+    final int planeCount = ChannelAccessor.getPlaneCount( aCapturedData );
+    final int[][] planes = new int[planeCount][];
+    for ( int p = 0; p < planeCount; p++ )
+    {
+      planes[p] = ChannelAccessor.getValues( aCapturedData, p );
+    }
+
     final long[] timestamps = aCapturedData.getTimestamps();
     final int channelCount = aCapturedData.getChannels();
-    final int channelMask = aCapturedData.getEnabledChannels();
+    final long channelMask = ChannelAccessor.getEnabledChannelMask( aCapturedData );
+    final double timeDivider = aCapturedData.getSampleRate() * aTimebase;
 
-    int oldValue = -1;
-    for ( int i = 0, size = values.length; i < size; i++ )
+    long oldValue = -1L;
+    for ( int i = 0, size = timestamps.length; i < size; i++ )
     {
-      final int value = values[i];
-      final long timestamp = timestamps[i];
-
-      final int time = ( int )( timestamp / ( aCapturedData.getSampleRate() * aTimebase ) );
+      long value = planes[0][i] & 0xFFFFFFFFL;
+      for ( int p = 1; p < planeCount; p++ )
+      {
+        value |= ( planes[p][i] & 0xFFFFFFFFL ) << ( p * Ols.CHANNELS_PER_PLANE );
+      }
 
       if ( ( i == 0 ) || ( oldValue != value ) )
       {
-        writeTime( aWriter, time );
+        writeTime( aWriter, ( long )( timestamps[i] / timeDivider ) );
         writeVariableData( aWriter, channelCount, channelMask, value, oldValue, ( i == 0 ) );
       }
 
       oldValue = value;
     }
 
-    final int time = ( int )( aCapturedData.getAbsoluteLength() / ( aCapturedData.getSampleRate() * aTimebase ) );
-    writeTime( aWriter, time );
+    writeTime( aWriter, ( long )( aCapturedData.getAbsoluteLength() / timeDivider ) );
   }
 
   /**
@@ -126,34 +256,36 @@ public class ValueChangeDumpExporter implements Exporter
    * @param aContainer
    * @param aTimescale
    */
-  protected void writePreamble( final PrintWriter aWriter, final DataSet aDataSet, final double aTimescale )
+  protected void writePreamble( final ValueChangeDumpWriter aWriter, final DataSet aDataSet, final double aTimescale )
+      throws IOException
   {
-    writeDeclaration( aWriter, "comment", ID );
-    writeDate( aWriter );
-    writeDeclaration( aWriter, "version", VERSION );
-    writeTimescale( aWriter, aTimescale );
-    writeDeclaration( aWriter, "scope", "module logic" );
+    aWriter.writeDeclaration( "comment", ID );
+    aWriter.writeDeclaration( "date", DateFormat.getDateTimeInstance().format( new Date() ) );
+    aWriter.writeDeclaration( "version", VERSION );
+    aWriter.writeDeclaration( "timescale", getTimescale( aTimescale ) );
+    aWriter.writeDeclaration( "scope", "module logic" );
     writeVariableDefinitions( aWriter, aDataSet );
-    writeDeclaration( aWriter, "upscope" );
-    writeDeclaration( aWriter, "enddefinitions" );
+    aWriter.writeDeclaration( "upscope" );
+    aWriter.writeDeclaration( "enddefinitions" );
   }
 
   /**
    * @param aWriter
    * @param aIndex
    */
-  protected void writeSingleVariableDefinition( final PrintWriter aWriter, final int aIndex )
+  protected void writeSingleVariableDefinition( final ValueChangeDumpWriter aWriter, final int aIndex )
+      throws IOException
   {
-    aWriter.printf( "x%s", getIdentifier( aIndex ) ).println();
+    aWriter.writeUnknown( 1, aIndex );
   }
 
   /**
    * @param aWriter
    * @param aTimebase
    */
-  protected void writeTime( final PrintWriter aWriter, final long aTimebase )
+  protected void writeTime( final ValueChangeDumpWriter aWriter, final long aTimebase ) throws IOException
   {
-    ValueChangeDumpHelper.writeTime( aWriter, aTimebase );
+    aWriter.writeTime( aTimebase );
   }
 
   /**
@@ -166,29 +298,30 @@ public class ValueChangeDumpExporter implements Exporter
    * @param aValue
    *          the value to write.
    */
-  protected void writeVariableData( final PrintWriter aWriter, final int aChannelCount, final int aChannelMask,
-      final int aValue, final int aOldValue, final boolean aAllBits )
+  protected void writeVariableData( final ValueChangeDumpWriter aWriter, final int aChannelCount,
+      final long aChannelMask, final long aValue, final long aOldValue, final boolean aAllBits ) throws IOException
   {
-    int value = aValue;
-    int oldValue = aOldValue;
-    int mask = aChannelMask;
-    for ( int i = 0; i < aChannelCount; i++ )
+    final long channels = ( aChannelCount >= 64 ) ? -1L : ( ( 1L << aChannelCount ) - 1L );
+
+    // Only visit the channels that actually changed...
+    long changed = ( aAllBits ? -1L : ( aValue ^ aOldValue ) ) & aChannelMask & channels;
+    while ( changed != 0L )
     {
-      if ( ( mask & ( 1 << i ) ) == 0 )
-      {
-        continue;
-      }
+      final int i = Long.numberOfTrailingZeros( changed );
+      aWriter.writeScalar( ( int )( ( aValue >>> i ) & 1L ), i );
+      changed &= changed - 1L;
+    }
 
-      final int bitValue = ( value & 1 );
-      final int oldBitValue = ( oldValue & 1 );
+    for ( int bus = 0, start = 0, buses = getBusCount( aChannelCount ); bus < buses; bus++, start += this.busWidth )
+    {
+      final int width = Math.min( this.busWidth, aChannelCount - start );
+      final long mask = ( width >= 64 ) ? -1L : ( ( 1L << width ) - 1L );
 
-      if ( aAllBits || ( bitValue != oldBitValue ) )
+      final long busValue = ( aValue >>> start ) & mask;
+      if ( aAllBits || ( busValue != ( ( aOldValue >>> start ) & mask ) ) )
       {
-        aWriter.printf( "%d%s", Integer.valueOf( bitValue ), getIdentifier( i ) ).println();
+        aWriter.writeVector( busValue, width, aChannelCount + bus );
       }
-
-      value >>= 1;
-      oldValue >>= 1;
     }
   }
 
@@ -196,21 +329,23 @@ public class ValueChangeDumpExporter implements Exporter
    * Writes down all variable definitions.
    * 
    * @param aWriter
-   *          the print writer to write to, cannot be <code>null</code>;
+   *          the writer to write to, cannot be <code>null</code>;
    * @param aContainer
    *          the data container to take the channel information from, cannot be
    *          <code>null</code>.
    */
-  protected void writeVariableDefinitions( final PrintWriter aWriter, final DataSet aDataSet )
+  protected void writeVariableDefinitions( final ValueChangeDumpWriter aWriter, final DataSet aDataSet )
+      throws IOException
   {
     final AcquisitionResult capturedData = aDataSet.getCapturedData();
 
-    final int channelMask = capturedData.getEnabledChannels();
+    final int channelCount = capturedData.getChannels();
+    final long channelMask = ChannelAccessor.getEnabledChannelMask( capturedData );
     final Channel[] channelLabels = aDataSet.getChannels();
 
     for ( int i = 0; i < channelLabels.length; i++ )
     {
-      if ( ( channelMask & ( 1 << i ) ) == 0 )
+      if ( ( channelMask & ( 1L << i ) ) == 0 )
       {
         continue;
       }
@@ -221,7 +356,13 @@ public class ValueChangeDumpExporter implements Exporter
         label = "channel" + i;
       }
 
-      writeVariable( aWriter, i, label );
+      aWriter.writeVariable( 1, i, label );
+    }
+
+    for ( int bus = 0, start = 0, buses = getBusCount( channelCount ); bus < buses; bus++, start += this.busWidth )
+    {
+      final int width = Math.min( this.busWidth, channelCount - start );
+      aWriter.writeVariable( width, channelCount + bus, "bus" + bus );
     }
   }
 
@@ -229,18 +370,18 @@ public class ValueChangeDumpExporter implements Exporter
    * @param aWriter
    * @param aContainer
    */
-  protected void writeVariableDump( final PrintWriter aWriter, final DataSet aDataSet )
+  protected void writeVariableDump( final ValueChangeDumpWriter aWriter, final DataSet aDataSet ) throws IOException
   {
     final AcquisitionResult capturedData = aDataSet.getCapturedData();
 
     final int channelCount = capturedData.getChannels();
-    final int channelMask = capturedData.getEnabledChannels();
+    final long channelMask = ChannelAccessor.getEnabledChannelMask( capturedData );
 
-    writeOpenDeclaration( aWriter, "dumpvars" );
+    aWriter.writeOpenDeclaration( "dumpvars" );
 
     for ( int i = 0; i < channelCount; i++ )
     {
-      if ( ( channelMask & ( 1 << i ) ) == 0 )
+      if ( ( channelMask & ( 1L << i ) ) == 0 )
       {
         continue;
       }
@@ -248,6 +389,11 @@ public class ValueChangeDumpExporter implements Exporter
       writeSingleVariableDefinition( aWriter, i );
     }
 
-    writeCloseDeclaration( aWriter );
+    for ( int bus = 0, start = 0, buses = getBusCount( channelCount ); bus < buses; bus++, start += this.busWidth )
+    {
+      aWriter.writeUnknown( Math.min( this.busWidth, channelCount - start ), channelCount + bus );
+    }
+
+    aWriter.writeCloseDeclaration();
   }
 }
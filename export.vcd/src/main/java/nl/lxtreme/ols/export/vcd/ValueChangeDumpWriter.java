@@ -0,0 +1,416 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+
+/**
+ * Provides a streaming writer for value change dumps.
+ * <p>
+ * All records are formatted directly as ASCII into a single, reusable buffer,
+ * which is written to the underlying channel only when it is full. Variable
+ * identifiers are looked up once and cached, and times are written as 64-bit
+ * values, so long captures at high sample rates do not overflow.
+ * </p>
+ * <p>
+ * This writer is not thread-safe.
+ * </p>
+ */
+public final class ValueChangeDumpWriter implements Closeable, Flushable
+{
+  // CONSTANTS
+
+  /** The default size of the output buffer, in bytes. */
+  public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+
+  private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+  /** The maximum number of identifiers, as supported by the helper. */
+  static final int MAX_IDENTIFIERS = 91;
+  /** The maximum size of a single value record, e.g. a 64-bit vector. */
+  private static final int MAX_RECORD_SIZE = 80;
+
+  // VARIABLES
+
+  private final WritableByteChannel channel;
+  private final byte[] buffer;
+  private final ByteBuffer byteBuffer;
+  private final byte[][] identifiers;
+  private final byte[] digits;
+
+  private int position;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ValueChangeDumpWriter} instance with a default buffer
+   * size.
+   * 
+   * @param aChannel
+   *          the channel to write to, cannot be <code>null</code>.
+   */
+  public ValueChangeDumpWriter( final WritableByteChannel aChannel )
+  {
+    this( aChannel, DEFAULT_BUFFER_SIZE );
+  }
+
+  /**
+   * Creates a new {@link ValueChangeDumpWriter} instance.
+   * 
+   * @param aChannel
+   *          the channel to write to, cannot be <code>null</code>;
+   * @param aBufferSize
+   *          the size of the output buffer, in bytes, >= 1024.
+   */
+  public ValueChangeDumpWriter( final WritableByteChannel aChannel, final int aBufferSize )
+  {
+    if ( aChannel == null )
+    {
+      throw new IllegalArgumentException( "Channel cannot be null!" );
+    }
+    if ( aBufferSize < 1024 )
+    {
+      throw new IllegalArgumentException( "Buffer size should be at least 1024 bytes!" );
+    }
+
+    this.channel = aChannel;
+    this.buffer = new byte[aBufferSize];
+    this.byteBuffer = ByteBuffer.wrap( this.buffer );
+    this.identifiers = new byte[MAX_IDENTIFIERS][];
+    this.digits = new byte[20];
+  }
+
+  // METHODS
+
+  /**
+   * Flushes this writer and closes the underlying channel.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      flush();
+    }
+    finally
+    {
+      this.channel.close();
+    }
+  }
+
+  /**
+   * Writes all buffered data to the underlying channel.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  @Override
+  public void flush() throws IOException
+  {
+    this.byteBuffer.clear();
+    this.byteBuffer.limit( this.position );
+    while ( this.byteBuffer.hasRemaining() )
+    {
+      this.channel.write( this.byteBuffer );
+    }
+    this.position = 0;
+  }
+
+  /**
+   * Writes the end of a declaration, <tt>$end</tt>.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeCloseDeclaration() throws IOException
+  {
+    writeText( "$end" );
+    writeNewLine();
+  }
+
+  /**
+   * Writes a complete declaration with the given keyword and values.
+   * 
+   * @param aKeyword
+   *          the keyword of the declaration, without the leading '$';
+   * @param aValues
+   *          the values of the declaration, each written on its own line.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeDeclaration( final String aKeyword, final String... aValues ) throws IOException
+  {
+    writeText( "$" );
+    writeText( aKeyword );
+    writeText( " " );
+    for ( String value : aValues )
+    {
+      writeNewLine();
+      writeText( "  " );
+      writeText( value );
+    }
+    if ( aValues.length > 0 )
+    {
+      writeNewLine();
+    }
+    writeCloseDeclaration();
+  }
+
+  /**
+   * Writes the start of a declaration whose contents follow on the next lines.
+   * 
+   * @param aKeyword
+   *          the keyword of the declaration, without the leading '$'.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeOpenDeclaration( final String aKeyword ) throws IOException
+  {
+    writeText( "$" );
+    writeText( aKeyword );
+    writeNewLine();
+  }
+
+  /**
+   * Writes a value change of a single bit variable, for example
+   * <tt>1!</tt>.
+   * 
+   * @param aValue
+   *          the bit value to write, 0 or 1;
+   * @param aIndex
+   *          the index of the variable.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeScalar( final int aValue, final int aIndex ) throws IOException
+  {
+    ensureCapacity( MAX_RECORD_SIZE );
+
+    this.buffer[this.position++] = ( byte )( ( aValue == 0 ) ? '0' : '1' );
+    appendIdentifier( aIndex );
+    this.buffer[this.position++] = '\n';
+  }
+
+  /**
+   * Writes the simulation time, for example <tt>#1234</tt>.
+   * 
+   * @param aTime
+   *          the time to write, >= 0.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeTime( final long aTime ) throws IOException
+  {
+    ensureCapacity( MAX_RECORD_SIZE );
+
+    this.buffer[this.position++] = '#';
+    appendLong( aTime );
+    this.buffer[this.position++] = '\n';
+  }
+
+  /**
+   * Writes an unknown value for the given variable, for example <tt>x!</tt>
+   * for a scalar, or <tt>bx !</tt> for a vector.
+   * 
+   * @param aWidth
+   *          the width of the variable, in bits, >= 1;
+   * @param aIndex
+   *          the index of the variable.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeUnknown( final int aWidth, final int aIndex ) throws IOException
+  {
+    ensureCapacity( MAX_RECORD_SIZE );
+
+    if ( aWidth > 1 )
+    {
+      this.buffer[this.position++] = 'b';
+      this.buffer[this.position++] = 'x';
+      this.buffer[this.position++] = ' ';
+    }
+    else
+    {
+      this.buffer[this.position++] = 'x';
+    }
+    appendIdentifier( aIndex );
+    this.buffer[this.position++] = '\n';
+  }
+
+  /**
+   * Writes a variable definition, for example
+   * <tt>$var wire 8 # bus0 [7:0] $end</tt>.
+   * 
+   * @param aWidth
+   *          the width of the variable, in bits, >= 1 && <= 64;
+   * @param aIndex
+   *          the index of the variable;
+   * @param aLabel
+   *          the name of the variable, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeVariable( final int aWidth, final int aIndex, final String aLabel ) throws IOException
+  {
+    writeText( "$var wire " );
+    writeText( Integer.toString( aWidth ) );
+    writeText( " " );
+    ensureCapacity( MAX_RECORD_SIZE );
+    appendIdentifier( aIndex );
+    writeText( " " );
+    writeText( aLabel );
+    if ( aWidth > 1 )
+    {
+      writeText( " [" + ( aWidth - 1 ) + ":0]" );
+    }
+    writeText( " $end" );
+    writeNewLine();
+  }
+
+  /**
+   * Writes a value change of a multi-bit variable as binary vector, most
+   * significant bit first, for example <tt>b0101 !</tt>.
+   * 
+   * @param aValue
+   *          the value to write;
+   * @param aWidth
+   *          the width of the variable, in bits, >= 1 && <= 64;
+   * @param aIndex
+   *          the index of the variable.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void writeVector( final long aValue, final int aWidth, final int aIndex ) throws IOException
+  {
+    ensureCapacity( MAX_RECORD_SIZE );
+
+    final byte[] buf = this.buffer;
+    int pos = this.position;
+
+    buf[pos++] = 'b';
+    for ( int bit = aWidth - 1; bit >= 0; bit-- )
+    {
+      buf[pos++] = ( byte )( ( ( aValue >>> bit ) & 1L ) == 0L ? '0' : '1' );
+    }
+    buf[pos++] = ' ';
+
+    this.position = pos;
+    appendIdentifier( aIndex );
+    this.buffer[this.position++] = '\n';
+  }
+
+  /**
+   * Appends the (cached) identifier of the variable with the given index.
+   */
+  private void appendIdentifier( final int aIndex )
+  {
+    if ( ( aIndex < 0 ) || ( aIndex >= MAX_IDENTIFIERS ) )
+    {
+      throw new IllegalArgumentException( "Invalid identifier index: " + aIndex + "!" );
+    }
+
+    byte[] id = this.identifiers[aIndex];
+    if ( id == null )
+    {
+      id = ValueChangeDumpHelper.getIdentifier( aIndex ).getBytes( UTF8 );
+      this.identifiers[aIndex] = id;
+    }
+    for ( byte b : id )
+    {
+      this.buffer[this.position++] = b;
+    }
+  }
+
+  /**
+   * Appends the decimal representation of the given value.
+   */
+  private void appendLong( final long aValue )
+  {
+    long value = aValue;
+    if ( value < 0L )
+    {
+      this.buffer[this.position++] = '-';
+      value = -value;
+    }
+
+    int count = 0;
+    do
+    {
+      this.digits[count++] = ( byte )( '0' + ( value % 10L ) );
+      value /= 10L;
+    }
+    while ( value > 0L );
+
+    while ( count > 0 )
+    {
+      this.buffer[this.position++] = this.digits[--count];
+    }
+  }
+
+  /**
+   * Makes sure that at least the given number of bytes can be appended to the
+   * buffer, flushing it when necessary.
+   */
+  private void ensureCapacity( final int aLength ) throws IOException
+  {
+    if ( ( this.position + aLength ) > this.buffer.length )
+    {
+      flush();
+    }
+  }
+
+  /**
+   * Writes a line separator.
+   */
+  private void writeNewLine() throws IOException
+  {
+    ensureCapacity( 1 );
+    this.buffer[this.position++] = '\n';
+  }
+
+  /**
+   * Writes the given text as UTF-8, flushing the buffer as often as needed.
+   */
+  private void writeText( final String aText ) throws IOException
+  {
+    final byte[] bytes = aText.getBytes( UTF8 );
+    int offset = 0;
+    while ( offset < bytes.length )
+    {
+      if ( this.position == this.buffer.length )
+      {
+        flush();
+      }
+      final int count = Math.min( bytes.length - offset, this.buffer.length - this.position );
+      System.arraycopy( bytes, offset, this.buffer, this.position, count );
+      this.position += count;
+      offset += count;
+    }
+  }
+}
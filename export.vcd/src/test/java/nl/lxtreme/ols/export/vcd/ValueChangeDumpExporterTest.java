@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.export.vcd;
 
 
+import static org.junit.Assert.*;
 import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
@@ -78,11 +79,12 @@ public class ValueChangeDumpExporterTest
 
     this.exporter.export( dataSet, this.component, this.nullOutputStream );
 
-    verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
-    verify( this.exporter, times( 16 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 2 ) ).writeVariableData( any( PrintWriter.class ), eq( 16 ), eq( 65535 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 3 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    verify( this.exporter ).writeVariableDump( any( ValueChangeDumpWriter.class ), eq( dataSet ) );
+    verify( this.exporter, times( 16 ) ).writeSingleVariableDefinition( any( ValueChangeDumpWriter.class ),
+        anyInt() );
+    verify( this.exporter, times( 2 ) ).writeVariableData( any( ValueChangeDumpWriter.class ), eq( 16 ), eq( 65535L ),
+        anyLong(), anyLong(), anyBoolean() );
+    verify( this.exporter, times( 3 ) ).writeTime( any( ValueChangeDumpWriter.class ), anyLong() );
   }
 
   /**
@@ -100,11 +102,12 @@ public class ValueChangeDumpExporterTest
 
     this.exporter.export( dataSet, this.component, this.nullOutputStream );
 
-    verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
-    verify( this.exporter, times( 8 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 4 ) ).writeVariableData( any( PrintWriter.class ), eq( 8 ), eq( 255 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 5 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    verify( this.exporter ).writeVariableDump( any( ValueChangeDumpWriter.class ), eq( dataSet ) );
+    verify( this.exporter, times( 8 ) ).writeSingleVariableDefinition( any( ValueChangeDumpWriter.class ),
+        anyInt() );
+    verify( this.exporter, times( 4 ) ).writeVariableData( any( ValueChangeDumpWriter.class ), eq( 8 ), eq( 255L ),
+        anyLong(), anyLong(), anyBoolean() );
+    verify( this.exporter, times( 5 ) ).writeTime( any( ValueChangeDumpWriter.class ), anyLong() );
   }
 
   /**
@@ -148,10 +151,53 @@ public class ValueChangeDumpExporterTest
 
     this.exporter.export( dataSet, this.component, this.nullOutputStream );
 
-    verify( this.exporter ).writeVariableDump( any( PrintWriter.class ), eq( dataSet ) );
-    verify( this.exporter, times( 1 ) ).writeSingleVariableDefinition( any( PrintWriter.class ), anyInt() );
-    verify( this.exporter, times( 16 ) ).writeVariableData( any( PrintWriter.class ), eq( 1 ), eq( 1 ), anyInt(),
-        anyInt(), anyBoolean() );
-    verify( this.exporter, times( 17 ) ).writeTime( any( PrintWriter.class ), anyLong() );
+    verify( this.exporter ).writeVariableDump( any( ValueChangeDumpWriter.class ), eq( dataSet ) );
+    verify( this.exporter, times( 1 ) ).writeSingleVariableDefinition( any( ValueChangeDumpWriter.class ),
+        anyInt() );
+    verify( this.exporter, times( 16 ) ).writeVariableData( any( ValueChangeDumpWriter.class ), eq( 1 ), eq( 1L ),
+        anyLong(), anyLong(), anyBoolean() );
+    verify( this.exporter, times( 17 ) ).writeTime( any( ValueChangeDumpWriter.class ), anyLong() );
+  }
+
+  /**
+   * Tests that an invalid bus width system property is ignored, instead of
+   * making the exporter unusable.
+   */
+  @Test
+  public void testGetBusWidthPropertyInvalidOk()
+  {
+    try
+    {
+      System.setProperty( ValueChangeDumpExporter.PROPERTY_BUS_WIDTH, "1" );
+      assertEquals( 0, ValueChangeDumpExporter.getBusWidthProperty() );
+
+      System.setProperty( ValueChangeDumpExporter.PROPERTY_BUS_WIDTH, "wide" );
+      assertEquals( 0, ValueChangeDumpExporter.getBusWidthProperty() );
+
+      // Should not throw an exception...
+      assertEquals( 0, new ValueChangeDumpExporter().getBusCount( 8 ) );
+    }
+    finally
+    {
+      System.clearProperty( ValueChangeDumpExporter.PROPERTY_BUS_WIDTH );
+    }
+  }
+
+  /**
+   * Tests that a valid bus width system property is used.
+   */
+  @Test
+  public void testGetBusWidthPropertyOk()
+  {
+    try
+    {
+      System.setProperty( ValueChangeDumpExporter.PROPERTY_BUS_WIDTH, "4" );
+      assertEquals( 4, ValueChangeDumpExporter.getBusWidthProperty() );
+      assertEquals( 2, new ValueChangeDumpExporter().getBusCount( 8 ) );
+    }
+    finally
+    {
+      System.clearProperty( ValueChangeDumpExporter.PROPERTY_BUS_WIDTH );
+    }
   }
 }
@@ -0,0 +1,246 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.export.vcd;
+
+
+import static nl.lxtreme.ols.export.vcd.ValueChangeDumpHelper.*;
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.nio.channels.*;
+
+import org.junit.*;
+
+
+/**
+ * Provides test cases for {@link ValueChangeDumpWriter}.
+ */
+public class ValueChangeDumpWriterTest
+{
+  // CONSTANTS
+
+  private static final int DUMP_SAMPLES = 1000;
+  private static final int DUMP_CHANNELS = 16;
+
+  // VARIABLES
+
+  private ByteArrayOutputStream output;
+  private ValueChangeDumpWriter writer;
+
+  // METHODS
+
+  /**
+   * 
+   */
+  @Before
+  public void setUp()
+  {
+    this.output = new ByteArrayOutputStream();
+    this.writer = new ValueChangeDumpWriter( Channels.newChannel( this.output ), 1024 );
+  }
+
+  /**
+   * Tests that the writer produces exactly the same value changes as the
+   * formatted output it replaces.
+   */
+  @Test
+  public void testWriteDumpMatchesFormattedOutputOk() throws IOException
+  {
+    final String expected = createReferenceDump();
+
+    final ByteArrayOutputStream writerOutput = new ByteArrayOutputStream();
+    writeWithWriter( writerOutput );
+
+    assertEquals( expected, new String( writerOutput.toByteArray(), "UTF-8" ) );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeDeclaration(String, String...)}.
+   */
+  @Test
+  public void testWriteDeclarationOk() throws IOException
+  {
+    this.writer.writeDeclaration( "comment", "foo", "bar" );
+    this.writer.writeDeclaration( "enddefinitions" );
+
+    assertEquals( "$comment \n  foo\n  bar\n$end\n$enddefinitions $end\n", getOutput() );
+  }
+
+  /**
+   * Tests that records larger than the buffer are written completely.
+   */
+  @Test
+  public void testWriteLargeDeclarationOk() throws IOException
+  {
+    final StringBuilder sb = new StringBuilder();
+    for ( int i = 0; i < 5000; i++ )
+    {
+      sb.append( ( char )( 'a' + ( i % 26 ) ) );
+    }
+
+    this.writer.writeDeclaration( "comment", sb.toString() );
+
+    assertEquals( "$comment \n  " + sb + "\n$end\n", getOutput() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeScalar(int, int)}.
+   */
+  @Test
+  public void testWriteScalarOk() throws IOException
+  {
+    this.writer.writeScalar( 1, 0 );
+    this.writer.writeScalar( 0, 90 );
+
+    assertEquals( "1!\n0{\n", getOutput() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeScalar(int, int)}.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testWriteScalarWithTooLargeIdentifierFail() throws IOException
+  {
+    this.writer.writeScalar( 1, 91 );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeTime(long)}.
+   */
+  @Test
+  public void testWriteTimeBeyondIntegerRangeOk() throws IOException
+  {
+    this.writer.writeTime( 0L );
+    this.writer.writeTime( Integer.MAX_VALUE + 1L );
+    this.writer.writeTime( Long.MAX_VALUE );
+
+    assertEquals( "#0\n#2147483648\n#9223372036854775807\n", getOutput() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeUnknown(int, int)}.
+   */
+  @Test
+  public void testWriteUnknownOk() throws IOException
+  {
+    this.writer.writeUnknown( 1, 1 );
+    this.writer.writeUnknown( 4, 2 );
+
+    assertEquals( "x\"\nbx #\n", getOutput() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeVariable(int, int, String)}.
+   */
+  @Test
+  public void testWriteVariableOk() throws IOException
+  {
+    this.writer.writeVariable( 1, 0, "channel0" );
+    this.writer.writeVariable( 8, 3, "bus0" );
+
+    assertEquals( "$var wire 1 ! channel0 $end\n$var wire 8 $ bus0 [7:0] $end\n", getOutput() );
+  }
+
+  /**
+   * Test method for {@link ValueChangeDumpWriter#writeVector(long, int, int)}.
+   */
+  @Test
+  public void testWriteVectorOk() throws IOException
+  {
+    this.writer.writeVector( 5L, 4, 0 );
+    this.writer.writeVector( 0x8000000000000001L, 64, 1 );
+
+    assertEquals( "b0101 !\nb1000000000000000000000000000000000000000000000000000000000000001 \"\n", getOutput() );
+  }
+
+  /**
+   * Flushes the writer and returns all output written so far.
+   */
+  private String getOutput() throws IOException
+  {
+    this.writer.flush();
+    return new String( this.output.toByteArray(), "UTF-8" );
+  }
+
+  /**
+   * Creates the reference data dump in the way the exporter used to format
+   * it, using explicit newlines so it does not depend on the platform.
+   */
+  private String createReferenceDump()
+  {
+    final StringBuilder sb = new StringBuilder();
+
+    int oldValue = 0;
+    for ( int i = 0; i < DUMP_SAMPLES; i++ )
+    {
+      final int value = i * 0x9E3779B1;
+
+      sb.append( '#' ).append( i * 10L ).append( '\n' );
+
+      int newBits = value;
+      int oldBits = oldValue;
+      for ( int c = 0; c < DUMP_CHANNELS; c++ )
+      {
+        final int bitValue = ( newBits & 1 );
+        if ( bitValue != ( oldBits & 1 ) )
+        {
+          sb.append( bitValue ).append( getIdentifier( c ) ).append( '\n' );
+        }
+        newBits >>= 1;
+        oldBits >>= 1;
+      }
+
+      oldValue = value;
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Writes the data dump using {@link ValueChangeDumpWriter}.
+   */
+  private void writeWithWriter( final OutputStream aStream ) throws IOException
+  {
+    final ValueChangeDumpWriter vcdWriter = new ValueChangeDumpWriter( Channels.newChannel( aStream ) );
+
+    final long channels = ( 1L << DUMP_CHANNELS ) - 1L;
+
+    long oldValue = 0L;
+    for ( int i = 0; i < DUMP_SAMPLES; i++ )
+    {
+      final long value = ( i * 0x9E3779B1 ) & 0xFFFFFFFFL;
+
+      vcdWriter.writeTime( i * 10L );
+
+      long changed = ( value ^ oldValue ) & channels;
+      while ( changed != 0L )
+      {
+        final int c = Long.numberOfTrailingZeros( changed );
+        vcdWriter.writeScalar( ( int )( ( value >>> c ) & 1L ), c );
+        changed &= changed - 1L;
+      }
+
+      oldValue = value;
+    }
+
+    vcdWriter.flush();
+  }
+}
@@ -38,6 +38,9 @@ public class Activator extends DependencyActivatorBase
   private static final String PROPERTY_LOG_LEVEL = "nl.lxtreme.ols.logLevel";
   private static final String PROPERTY_LOG_TO_CONSOLE = "nl.lxtreme.ols.logToConsole";
   private static final String PROPERTY_FILTER_JDKUI_LOGS = "nl.lxtreme.ols.filterJdkUiLogs";
+  private static final String PROPERTY_LOG_BUFFER_SIZE = "nl.lxtreme.ols.logBufferSize";
+
+  private static final int DEFAULT_LOG_BUFFER_SIZE = 8192;
 
   // METHODS
 
@@ -69,6 +72,26 @@ public class Activator extends DependencyActivatorBase
     }
   }
 
+  /**
+   * Returns the maximum number of log messages that can be pending before new
+   * messages are dropped.
+   * 
+   * @return a buffer size, > 0.
+   */
+  public static int getLogBufferSize()
+  {
+    int size = DEFAULT_LOG_BUFFER_SIZE;
+    try
+    {
+      size = Integer.getInteger( PROPERTY_LOG_BUFFER_SIZE, size ).intValue();
+    }
+    catch ( NumberFormatException exception )
+    {
+      // Ignore...
+    }
+    return ( size > 0 ) ? size : DEFAULT_LOG_BUFFER_SIZE;
+  }
+
   /**
    * Returns the default log level to use in OSGi LogService.
    * 
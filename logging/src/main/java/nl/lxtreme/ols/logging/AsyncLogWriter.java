@@ -0,0 +1,232 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.logging;
+
+
+import java.io.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+import org.osgi.framework.*;
+import org.osgi.service.log.*;
+
+
+/**
+ * Writes log events asynchronously to <code>System.out</code>.
+ * <p>
+ * Log events are stored unformatted in a {@link LogEventBuffer}; a dedicated
+ * writer thread formats them and writes them in batches. The logging threads
+ * themselves never block on I/O. When the buffer is full, debug and info
+ * events are dropped, and the number of dropped events is reported in the
+ * log; warnings and errors are then written synchronously instead.
+ * </p>
+ */
+final class AsyncLogWriter implements Runnable
+{
+  // CONSTANTS
+
+  /** The maximum number of events written in a single batch. */
+  private static final int MAX_BATCH_SIZE = 256;
+  /** The maximum time the writer thread waits for new events. */
+  private static final long MAX_IDLE_TIME = TimeUnit.MILLISECONDS.toNanos( 50L );
+  /** The maximum time to wait for pending events to be written upon stop. */
+  private static final long STOP_TIMEOUT = 1000L;
+
+  // VARIABLES
+
+  private final LogEventBuffer buffer;
+  private final StringBuilder batch;
+  private final AtomicLong dropped;
+
+  private volatile Thread writerThread;
+  private volatile boolean waiting;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new AsyncLogWriter instance.
+   * 
+   * @param aCapacity
+   *          the maximum number of pending log events, > 0.
+   */
+  public AsyncLogWriter( final int aCapacity )
+  {
+    this.buffer = new LogEventBuffer( aCapacity );
+    this.batch = new StringBuilder( 8192 );
+    this.dropped = new AtomicLong();
+  }
+
+  // METHODS
+
+  /**
+   * Logs the given event. In case the writer thread is not running, the event
+   * is written synchronously.
+   */
+  public void log( final int aLevel, final ServiceReference aReference, final String aLoggerName,
+      final String aMessage, final Object[] aParams, final Throwable aThrowable )
+  {
+    final Thread thread = this.writerThread;
+    if ( thread == null )
+    {
+      writeDirectly( aLevel, aReference, aLoggerName, aMessage, aParams, aThrowable );
+      return;
+    }
+
+    if ( this.buffer.offer( aLevel, aReference, aLoggerName, aMessage, aParams, aThrowable ) )
+    {
+      if ( this.waiting )
+      {
+        LockSupport.unpark( thread );
+      }
+    }
+    else if ( aLevel <= LogService.LOG_WARNING )
+    {
+      // Never drop warnings or errors...
+      writeDirectly( aLevel, aReference, aLoggerName, aMessage, aParams, aThrowable );
+    }
+    else
+    {
+      this.dropped.incrementAndGet();
+    }
+  }
+
+  /**
+   * Writes all pending events in batches until this writer is stopped.
+   */
+  @Override
+  public void run()
+  {
+    final Thread current = Thread.currentThread();
+
+    while ( this.writerThread == current )
+    {
+      if ( !writeBatch() )
+      {
+        this.waiting = true;
+        // Re-check to avoid missing a wake-up of a producer...
+        if ( this.buffer.isEmpty() && ( this.writerThread == current ) )
+        {
+          LockSupport.parkNanos( this, MAX_IDLE_TIME );
+        }
+        this.waiting = false;
+      }
+    }
+
+    // Write all remaining events...
+    while ( writeBatch() )
+    {
+      // Keep going...
+    }
+  }
+
+  /**
+   * Starts the writer thread.
+   */
+  public void start()
+  {
+    final Thread thread = new Thread( this, "OLS log writer" );
+    thread.setDaemon( true );
+    thread.setPriority( Thread.MIN_PRIORITY + 1 );
+
+    this.writerThread = thread;
+    thread.start();
+  }
+
+  /**
+   * Stops the writer thread, after all pending events are written.
+   */
+  public void stop()
+  {
+    final Thread thread = this.writerThread;
+    this.writerThread = null;
+
+    if ( thread != null )
+    {
+      LockSupport.unpark( thread );
+      try
+      {
+        thread.join( STOP_TIMEOUT );
+      }
+      catch ( InterruptedException exception )
+      {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Writes the contents of the given buffer to the console.
+   */
+  private void write( final StringBuilder aBuffer )
+  {
+    final PrintStream out = System.out;
+    out.print( aBuffer );
+    out.flush();
+  }
+
+  /**
+   * Formats and writes a single event synchronously.
+   */
+  private void writeDirectly( final int aLevel, final ServiceReference aReference, final String aLoggerName,
+      final String aMessage, final Object[] aParams, final Throwable aThrowable )
+  {
+    final LogEvent event = new LogEvent();
+    event.set( aLevel, aReference, aLoggerName, aMessage, aParams, aThrowable );
+
+    final StringBuilder sb = new StringBuilder();
+    event.formatTo( sb );
+    write( sb );
+  }
+
+  /**
+   * Formats and writes a single batch of events.
+   * 
+   * @return <code>true</code> if any events were written, <code>false</code>
+   *         if there were no pending events.
+   */
+  private boolean writeBatch()
+  {
+    this.batch.setLength( 0 );
+
+    final long dropCount = this.dropped.getAndSet( 0L );
+    if ( dropCount > 0L )
+    {
+      this.batch.append( "[WARN ] [   ] " ).append( dropCount )
+          .append( " log message(s) dropped; logging cannot keep up!\n" );
+    }
+
+    final int count = this.buffer.drainTo( this.batch, MAX_BATCH_SIZE );
+    if ( this.batch.length() > 0 )
+    {
+      write( this.batch );
+    }
+
+    // Do not keep overly large buffers around...
+    if ( this.batch.capacity() > ( 1 << 20 ) )
+    {
+      this.batch.setLength( 0 );
+      this.batch.trimToSize();
+    }
+
+    return ( count > 0 ) || ( dropCount > 0L );
+  }
+}
@@ -27,13 +27,42 @@ import org.osgi.service.log.*;
 
 
 /**
- * An implementation of the OSGi LogService that directly outputs each log
- * message to <code>System.out</code>. It does not implement the LogReader or
+ * An implementation of the OSGi LogService that outputs each log message to
+ * <code>System.out</code>. It does not implement the LogReader or
  * LogListeners.
+ * <p>
+ * Log messages are written asynchronously by an {@link AsyncLogWriter}, and
+ * are only formatted on its writer thread.
+ * </p>
  */
 public class ConsoleLogger implements LogService
 {
-  private static String[] LEVEL = { "", "ERROR", "WARN ", "INFO ", "DEBUG" };
+  private final boolean enabled;
+  private final int maxLevel;
+  private final AsyncLogWriter writer;
+
+  /**
+   * Creates a new {@link ConsoleLogger} instance.
+   */
+  public ConsoleLogger()
+  {
+    this.enabled = isDebugMode();
+    this.maxLevel = getOsgiLogLevel();
+    this.writer = new AsyncLogWriter( getLogBufferSize() );
+  }
+
+  /**
+   * Returns whether messages of the given level are logged at all.
+   * 
+   * @param level
+   *          the OSGi log level to test.
+   * @return <code>true</code> if messages of the given level are logged,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isLoggable( int level )
+  {
+    return this.enabled && ( level <= this.maxLevel );
+  }
 
   public void log( int level, String message )
   {
@@ -52,49 +81,54 @@ public class ConsoleLogger implements LogService
 
   public void log( ServiceReference reference, int level, String message, Throwable throwable )
   {
-    if ( !isDebugMode() || level > getOsgiLogLevel() )
+    if ( !isLoggable( level ) )
     {
       return;
     }
 
-    String bundle = " [   ]";
-    String service = " ";
-    if ( reference != null )
-    {
-      bundle = "00" + reference.getBundle().getBundleId();
-      bundle = " [" + bundle.substring( bundle.length() - 3 ) + "]";
-
-      Object objectClass = reference.getProperty( Constants.OBJECTCLASS );
-      if ( objectClass instanceof String[] )
-      {
-        StringBuffer buffer = new StringBuffer();
-        String[] objClassArr = ( ( String[] )objectClass );
-        for ( int i = 0; i < objClassArr.length; i++ )
-        {
-          String svc = objClassArr[i];
-          if ( buffer.length() > 0 )
-          {
-            buffer.append( ';' );
-          }
-          buffer.append( svc );
-          service = buffer.toString() + ": ";
-        }
-      }
-      else
-      {
-        service = objectClass.toString() + ": ";
-      }
-    }
+    this.writer.log( level, reference, null /* loggerName */, message, null /* params */, throwable );
+  }
 
-    String msg = "[" + LEVEL[level] + "]" + bundle + service + message;
-    if ( !msg.contains( "org.slf4j.helpers" ) && !message.contains( "TRACE" ) )
+  /**
+   * Logs a message of a (JUL) logger, whose parameters are only formatted when
+   * the message is actually written.
+   * 
+   * @param level
+   *          the OSGi log level of the message;
+   * @param loggerName
+   *          the name of the originating logger, can be <code>null</code>;
+   * @param message
+   *          the message (pattern) to log;
+   * @param params
+   *          the {@link java.text.MessageFormat} parameters of the message, can
+   *          be <code>null</code>;
+   * @param throwable
+   *          the exception to log, can be <code>null</code>.
+   */
+  public void log( int level, String loggerName, String message, Object[] params, Throwable throwable )
+  {
+    if ( !isLoggable( level ) )
     {
-      System.out.println( msg );
+      return;
     }
 
-    if ( throwable != null )
-    {
-      throwable.printStackTrace( System.out );
-    }
+    this.writer.log( level, null /* reference */, loggerName, message, params, throwable );
+  }
+
+  /**
+   * Called by Felix DependencyManager when starting this component.
+   */
+  public void start()
+  {
+    this.writer.start();
+  }
+
+  /**
+   * Called by Felix DependencyManager upon stopping this component; writes all
+   * pending log messages.
+   */
+  public void stop()
+  {
+    this.writer.stop();
   }
 }
@@ -0,0 +1,174 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.logging;
+
+
+import java.io.*;
+import java.text.*;
+
+import org.osgi.framework.*;
+
+
+/**
+ * Provides a (reusable) log event, as stored in the {@link LogEventBuffer}.
+ * Its message is only formatted when it is actually written.
+ */
+final class LogEvent
+{
+  // CONSTANTS
+
+  private static final String[] LEVEL = { "", "ERROR", "WARN ", "INFO ", "DEBUG" };
+
+  // VARIABLES
+
+  int level;
+  ServiceReference reference;
+  String loggerName;
+  String message;
+  Object[] params;
+  Throwable throwable;
+
+  // METHODS
+
+  /**
+   * Clears this event, allowing its contents to be garbage collected.
+   */
+  void clear()
+  {
+    this.reference = null;
+    this.loggerName = null;
+    this.message = null;
+    this.params = null;
+    this.throwable = null;
+  }
+
+  /**
+   * Formats this event and appends it to the given buffer.
+   * 
+   * @param aBuffer
+   *          the buffer to append this event to, cannot be <code>null</code>.
+   */
+  void formatTo( final StringBuilder aBuffer )
+  {
+    String msg = this.message;
+    if ( ( this.params != null ) && ( this.params.length > 0 ) && ( msg != null ) )
+    {
+      try
+      {
+        msg = MessageFormat.format( msg, this.params );
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        // Keep the message as-is...
+      }
+    }
+    if ( this.loggerName != null )
+    {
+      msg = this.loggerName + " " + msg;
+    }
+
+    final int start = aBuffer.length();
+
+    aBuffer.append( '[' ).append( LEVEL[Math.max( 0, Math.min( LEVEL.length - 1, this.level ) )] ).append( ']' );
+    appendReference( aBuffer );
+    aBuffer.append( msg );
+
+    // Filter out the noise of some third party libraries...
+    if ( ( msg != null ) && ( msg.contains( "TRACE" ) || ( aBuffer.indexOf( "org.slf4j.helpers", start ) >= 0 ) ) )
+    {
+      aBuffer.setLength( start );
+    }
+    else
+    {
+      aBuffer.append( '\n' );
+    }
+
+    if ( this.throwable != null )
+    {
+      final StringWriter sw = new StringWriter();
+      this.throwable.printStackTrace( new PrintWriter( sw ) );
+      aBuffer.append( sw.getBuffer() );
+    }
+  }
+
+  /**
+   * Sets the contents of this event.
+   */
+  void set( final int aLevel, final ServiceReference aReference, final String aLoggerName, final String aMessage,
+      final Object[] aParams, final Throwable aThrowable )
+  {
+    this.level = aLevel;
+    this.reference = aReference;
+    this.loggerName = aLoggerName;
+    this.message = aMessage;
+    this.params = aParams;
+    this.throwable = aThrowable;
+  }
+
+  /**
+   * Appends the bundle ID and service interfaces of the service reference.
+   */
+  private void appendReference( final StringBuilder aBuffer )
+  {
+    final Bundle bundle = ( this.reference == null ) ? null : this.reference.getBundle();
+    if ( bundle == null )
+    {
+      // The service might have been unregistered in the meantime...
+      aBuffer.append( " [   ] " );
+      return;
+    }
+
+    final long bundleId = bundle.getBundleId();
+    aBuffer.append( " [" );
+    if ( bundleId < 100 )
+    {
+      aBuffer.append( '0' );
+    }
+    if ( bundleId < 10 )
+    {
+      aBuffer.append( '0' );
+    }
+    aBuffer.append( bundleId % 1000 ).append( ']' );
+
+    final Object objectClass = this.reference.getProperty( Constants.OBJECTCLASS );
+    if ( objectClass instanceof String[] )
+    {
+      final String[] objClassArr = ( String[] )objectClass;
+      for ( int i = 0; i < objClassArr.length; i++ )
+      {
+        if ( i > 0 )
+        {
+          aBuffer.append( ';' );
+        }
+        aBuffer.append( objClassArr[i] );
+      }
+      aBuffer.append( ": " );
+    }
+    else if ( objectClass != null )
+    {
+      aBuffer.append( objectClass ).append( ": " );
+    }
+    else
+    {
+      aBuffer.append( ' ' );
+    }
+  }
+}
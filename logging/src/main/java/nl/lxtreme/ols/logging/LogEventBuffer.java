@@ -0,0 +1,151 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.logging;
+
+
+import java.util.concurrent.atomic.*;
+
+import org.osgi.framework.*;
+
+
+/**
+ * Provides a bounded, lock-free ring buffer of log events for many producers
+ * and a single consumer.
+ */
+final class LogEventBuffer
+{
+  // VARIABLES
+
+  private final LogEvent[] slots;
+  /** Per slot: the sequence number (+1) of the last event published in it. */
+  private final AtomicLongArray published;
+  private final int mask;
+  /** The sequence number of the next event to claim by a producer. */
+  private final AtomicLong head;
+  /** The sequence number of the next event to consume. */
+  private volatile long tail;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new LogEventBuffer instance.
+   * 
+   * @param aCapacity
+   *          the minimal capacity of this buffer, will be rounded up to the
+   *          next power of two, > 0.
+   */
+  public LogEventBuffer( final int aCapacity )
+  {
+    if ( aCapacity <= 0 )
+    {
+      throw new IllegalArgumentException( "Capacity should be positive!" );
+    }
+
+    int capacity = 1;
+    while ( capacity < aCapacity )
+    {
+      capacity <<= 1;
+    }
+
+    this.slots = new LogEvent[capacity];
+    for ( int i = 0; i < capacity; i++ )
+    {
+      this.slots[i] = new LogEvent();
+    }
+    this.published = new AtomicLongArray( capacity );
+    this.mask = capacity - 1;
+    this.head = new AtomicLong();
+  }
+
+  // METHODS
+
+  /**
+   * Consumes at most the given number of events. May only be called by a
+   * single (consumer) thread.
+   * 
+   * @param aBuffer
+   *          the buffer to format the consumed events to, cannot be
+   *          <code>null</code>;
+   * @param aMaxCount
+   *          the maximum number of events to consume.
+   * @return the number of consumed events, >= 0.
+   */
+  public int drainTo( final StringBuilder aBuffer, final int aMaxCount )
+  {
+    long seq = this.tail;
+    int count = 0;
+
+    while ( count < aMaxCount )
+    {
+      final int idx = ( int )seq & this.mask;
+      if ( this.published.get( idx ) != ( seq + 1 ) )
+      {
+        // Not (yet) published...
+        break;
+      }
+
+      final LogEvent event = this.slots[idx];
+      event.formatTo( aBuffer );
+      event.clear();
+
+      // Releases the slot for the producers...
+      this.tail = ++seq;
+      count++;
+    }
+
+    return count;
+  }
+
+  /**
+   * @return <code>true</code> if there are no events pending,
+   *         <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.head.get() == this.tail;
+  }
+
+  /**
+   * Adds a new event to this buffer, if there is room for it.
+   * 
+   * @return <code>true</code> if the event is added, <code>false</code> if the
+   *         buffer is full.
+   */
+  public boolean offer( final int aLevel, final ServiceReference aReference, final String aLoggerName,
+      final String aMessage, final Object[] aParams, final Throwable aThrowable )
+  {
+    long seq;
+    do
+    {
+      seq = this.head.get();
+      if ( ( seq - this.tail ) >= this.slots.length )
+      {
+        return false;
+      }
+    }
+    while ( !this.head.compareAndSet( seq, seq + 1 ) );
+
+    final int idx = ( int )seq & this.mask;
+    this.slots[idx].set( aLevel, aReference, aLoggerName, aMessage, aParams, aThrowable );
+    this.published.lazySet( idx, seq + 1 );
+    return true;
+  }
+}
@@ -85,6 +85,16 @@ public class LogHandler extends Handler
       return;
     }
 
+    final LogService service = this.logService;
+    final int level = mapLevel( aRecord.getLevel() );
+    if ( service instanceof ConsoleLogger )
+    {
+      // Let the console logger format the message lazily on its own thread...
+      ( ( ConsoleLogger )service ).log( level, aRecord.getLoggerName(), aRecord.getMessage(),
+          aRecord.getParameters(), aRecord.getThrown() );
+      return;
+    }
+
     Object[] params = aRecord.getParameters();
     String message = aRecord.getMessage();
     if ( ( params != null ) && ( params.length > 0 ) )
@@ -93,7 +103,7 @@ public class LogHandler extends Handler
     }
 
     Throwable thrownException = aRecord.getThrown();
-    this.logService.log( mapLevel( aRecord.getLevel() ), aRecord.getLoggerName() + " " + message, thrownException );
+    service.log( level, aRecord.getLoggerName() + " " + message, thrownException );
   }
 
   /**
@@ -0,0 +1,205 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.logging;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.osgi.service.log.*;
+
+
+/**
+ * Test cases for {@link AsyncLogWriter}.
+ */
+public class AsyncLogWriterTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a print stream that records everything written to it, and blocks
+   * the first print of the log writer thread until it is released.
+   */
+  static final class BlockingPrintStream extends PrintStream
+  {
+    // VARIABLES
+
+    final CountDownLatch blocked = new CountDownLatch( 1 );
+    final CountDownLatch release = new CountDownLatch( 1 );
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new BlockingPrintStream instance.
+     */
+    public BlockingPrintStream()
+    {
+      super( new ByteArrayOutputStream(), true );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void print( final Object aObject )
+    {
+      // Block outside the lock of this stream, to let other threads print...
+      if ( "OLS log writer".equals( Thread.currentThread().getName() ) && ( this.blocked.getCount() > 0 ) )
+      {
+        this.blocked.countDown();
+        try
+        {
+          this.release.await( 10L, TimeUnit.SECONDS );
+        }
+        catch ( InterruptedException exception )
+        {
+          Thread.currentThread().interrupt();
+        }
+      }
+      super.print( aObject );
+    }
+
+    /**
+     * Returns everything printed so far.
+     */
+    synchronized String getRecorded()
+    {
+      return this.out.toString();
+    }
+  }
+
+  // VARIABLES
+
+  private PrintStream originalOut;
+  private BlockingPrintStream out;
+  private AsyncLogWriter writer;
+
+  // METHODS
+
+  /**
+   * Sets up the test cases.
+   */
+  @Before
+  public void setUp()
+  {
+    this.originalOut = System.out;
+    this.out = new BlockingPrintStream();
+    System.setOut( this.out );
+
+    this.writer = new AsyncLogWriter( 2 );
+  }
+
+  /**
+   * Tears down the test cases.
+   */
+  @After
+  public void tearDown()
+  {
+    this.out.release.countDown();
+    this.writer.stop();
+
+    System.setOut( this.originalOut );
+  }
+
+  /**
+   * Tests that info events are dropped when the buffer is full, and that the
+   * number of dropped events is reported once the writer catches up.
+   */
+  @Test
+  public void testDroppedEventsAreReportedOk() throws Exception
+  {
+    this.writer.start();
+
+    // Let the writer thread block while writing the first event...
+    log( LogService.LOG_INFO, "first" );
+    assertTrue( this.out.blocked.await( 10L, TimeUnit.SECONDS ) );
+
+    log( LogService.LOG_INFO, "pending1" );
+    log( LogService.LOG_INFO, "pending2" );
+    log( LogService.LOG_INFO, "dropped1" );
+    log( LogService.LOG_DEBUG, "dropped2" );
+    log( LogService.LOG_INFO, "dropped3" );
+
+    this.out.release.countDown();
+    this.writer.stop();
+
+    assertEquals( "[INFO ] [   ] first\n" //
+        + "[WARN ] [   ] 3 log message(s) dropped; logging cannot keep up!\n" //
+        + "[INFO ] [   ] pending1\n" //
+        + "[INFO ] [   ] pending2\n", this.out.getRecorded() );
+  }
+
+  /**
+   * Tests that warnings and errors are written directly when the buffer is
+   * full, and are not counted as dropped.
+   */
+  @Test
+  public void testFullBufferWritesWarningsDirectlyOk() throws Exception
+  {
+    this.writer.start();
+
+    log( LogService.LOG_INFO, "first" );
+    assertTrue( this.out.blocked.await( 10L, TimeUnit.SECONDS ) );
+
+    log( LogService.LOG_INFO, "pending1" );
+    log( LogService.LOG_INFO, "pending2" );
+    log( LogService.LOG_WARNING, "warning" );
+    log( LogService.LOG_ERROR, "error" );
+
+    // Written while the writer thread is still blocked...
+    assertEquals( "[WARN ] [   ] warning\n[ERROR] [   ] error\n", this.out.getRecorded() );
+
+    this.out.release.countDown();
+    this.writer.stop();
+
+    assertEquals( "[WARN ] [   ] warning\n" //
+        + "[ERROR] [   ] error\n" //
+        + "[INFO ] [   ] first\n" //
+        + "[INFO ] [   ] pending1\n" //
+        + "[INFO ] [   ] pending2\n", this.out.getRecorded() );
+  }
+
+  /**
+   * Tests that events are written synchronously when the writer thread is not
+   * running.
+   */
+  @Test
+  public void testLogWithoutWriterThreadOk()
+  {
+    log( LogService.LOG_INFO, "msg1" );
+    log( LogService.LOG_DEBUG, "msg2" );
+
+    assertEquals( "[INFO ] [   ] msg1\n[DEBUG] [   ] msg2\n", this.out.getRecorded() );
+  }
+
+  /**
+   * Logs a message with the given level.
+   */
+  private void log( final int aLevel, final String aMessage )
+  {
+    this.writer.log( aLevel, null, null, aMessage, null, null );
+  }
+}
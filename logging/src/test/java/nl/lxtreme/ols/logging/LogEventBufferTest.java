@@ -0,0 +1,228 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.logging;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+import org.osgi.service.log.*;
+
+
+/**
+ * Test cases for {@link LogEventBuffer}.
+ */
+public class LogEventBufferTest
+{
+  // METHODS
+
+  /**
+   * Tests that the capacity of a buffer is rounded up to the next power of two.
+   */
+  @Test
+  public void testCapacityIsRoundedUpOk()
+  {
+    final LogEventBuffer buffer = new LogEventBuffer( 3 );
+
+    for ( int i = 0; i < 4; i++ )
+    {
+      assertTrue( offer( buffer, "msg" + i ) );
+    }
+    assertFalse( offer( buffer, "msg4" ) );
+  }
+
+  /**
+   * Tests that events of concurrent producers are neither lost nor reordered
+   * per producer.
+   */
+  @Test
+  public void testConcurrentProducersOk() throws Exception
+  {
+    final int producerCount = 4;
+    final int eventCount = 10000;
+
+    final LogEventBuffer buffer = new LogEventBuffer( 64 );
+    final CountDownLatch startLatch = new CountDownLatch( 1 );
+
+    final ExecutorService executor = Executors.newFixedThreadPool( producerCount );
+    try
+    {
+      for ( int p = 0; p < producerCount; p++ )
+      {
+        final int producer = p;
+        executor.submit( new Callable<Void>()
+        {
+          @Override
+          public Void call() throws Exception
+          {
+            startLatch.await();
+            for ( int i = 0; i < eventCount; i++ )
+            {
+              while ( !offer( buffer, producer + ":" + i ) )
+              {
+                Thread.yield();
+              }
+            }
+            return null;
+          }
+        } );
+      }
+      startLatch.countDown();
+
+      final int[] next = new int[producerCount];
+      final StringBuilder sb = new StringBuilder();
+      final long deadline = System.currentTimeMillis() + 10000L;
+
+      int received = 0;
+      while ( ( received < ( producerCount * eventCount ) ) && ( System.currentTimeMillis() < deadline ) )
+      {
+        sb.setLength( 0 );
+        received += buffer.drainTo( sb, 16 );
+
+        for ( String msg : messages( sb ) )
+        {
+          final int sep = msg.indexOf( ':' );
+          final int producer = Integer.parseInt( msg.substring( 0, sep ) );
+          assertEquals( next[producer]++, Integer.parseInt( msg.substring( sep + 1 ) ) );
+        }
+      }
+
+      assertEquals( producerCount * eventCount, received );
+      assertTrue( buffer.isEmpty() );
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Tests that a buffer cannot be created with a non-positive capacity.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testCreateWithZeroCapacityFail()
+  {
+    new LogEventBuffer( 0 );
+  }
+
+  /**
+   * Tests that draining is limited to the given maximum number of events.
+   */
+  @Test
+  public void testDrainToMaxCountOk()
+  {
+    final LogEventBuffer buffer = new LogEventBuffer( 8 );
+    offer( buffer, "a" );
+    offer( buffer, "b" );
+    offer( buffer, "c" );
+
+    final StringBuilder sb = new StringBuilder();
+    assertEquals( 2, buffer.drainTo( sb, 2 ) );
+    assertEquals( Arrays.asList( "a", "b" ), messages( sb ) );
+    assertFalse( buffer.isEmpty() );
+
+    sb.setLength( 0 );
+    assertEquals( 1, buffer.drainTo( sb, 2 ) );
+    assertEquals( Arrays.asList( "c" ), messages( sb ) );
+    assertTrue( buffer.isEmpty() );
+
+    sb.setLength( 0 );
+    assertEquals( 0, buffer.drainTo( sb, 2 ) );
+    assertEquals( 0, sb.length() );
+  }
+
+  /**
+   * Tests that a full buffer accepts new events once events are drained.
+   */
+  @Test
+  public void testOfferAfterDrainOk()
+  {
+    final LogEventBuffer buffer = new LogEventBuffer( 2 );
+    assertTrue( offer( buffer, "a" ) );
+    assertTrue( offer( buffer, "b" ) );
+    assertFalse( offer( buffer, "c" ) );
+
+    final StringBuilder sb = new StringBuilder();
+    assertEquals( 1, buffer.drainTo( sb, 1 ) );
+
+    assertTrue( offer( buffer, "d" ) );
+    assertFalse( offer( buffer, "e" ) );
+
+    assertEquals( 2, buffer.drainTo( sb, 10 ) );
+    assertEquals( Arrays.asList( "a", "b", "d" ), messages( sb ) );
+  }
+
+  /**
+   * Tests that events keep their order when the buffer wraps around.
+   */
+  @Test
+  public void testWrapAroundKeepsOrderOk()
+  {
+    final LogEventBuffer buffer = new LogEventBuffer( 4 );
+    final StringBuilder sb = new StringBuilder();
+    final List<String> expected = new ArrayList<String>();
+
+    // Keep one event pending, so each round starts in the middle of the ring...
+    assertTrue( offer( buffer, "msg0" ) );
+    expected.add( "msg0" );
+
+    for ( int seqNo = 1; seqNo < 30; seqNo += 2 )
+    {
+      for ( int i = seqNo; i < ( seqNo + 2 ); i++ )
+      {
+        assertTrue( offer( buffer, "msg" + i ) );
+        expected.add( "msg" + i );
+      }
+      assertEquals( 2, buffer.drainTo( sb, 2 ) );
+    }
+    buffer.drainTo( sb, 10 );
+
+    assertEquals( expected, messages( sb ) );
+    assertTrue( buffer.isEmpty() );
+  }
+
+  /**
+   * Extracts the messages from the given formatted log events.
+   */
+  private static List<String> messages( final CharSequence aEvents )
+  {
+    final List<String> result = new ArrayList<String>();
+    for ( String line : aEvents.toString().split( "\n" ) )
+    {
+      if ( line.length() > 0 )
+      {
+        result.add( line.substring( line.indexOf( "] ", line.indexOf( ']' ) + 1 ) + 2 ) );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Offers an info event with the given message to the given buffer.
+   */
+  private static boolean offer( final LogEventBuffer aBuffer, final String aMessage )
+  {
+    return aBuffer.offer( LogService.LOG_INFO, null, null, aMessage, null, null );
+  }
+}
@@ -25,6 +25,7 @@ import java.io.*;
 import java.net.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.zip.*;
 
 import org.apache.felix.framework.*;
 import org.apache.felix.framework.util.*;
@@ -49,6 +50,9 @@ public final class Runner
     final File cacheDir;
     final boolean cleanCache;
     final int logLevel;
+    final boolean headless;
+    final File jobFile;
+    final long jobTimeout;
 
     // CONSTRUCTORS
 
@@ -58,6 +62,9 @@ public final class Runner
       String _cacheDir = null;
       boolean _cleanCache = false;
       int _logLevel = 2;
+      boolean _headless = false;
+      String _jobFile = null;
+      long _jobTimeout = DEFAULT_JOB_TIMEOUT;
 
       for ( String cmdLineArg : aCmdLineArgs )
       {
@@ -78,6 +85,26 @@ public final class Runner
         {
           _cacheDir = cmdLineArg.substring( 10 );
         }
+        else if ( "-headless".equals( cmdLineArg ) )
+        {
+          _headless = true;
+        }
+        else if ( cmdLineArg.startsWith( "-job=" ) )
+        {
+          // A batch job always runs headless...
+          _jobFile = cmdLineArg.substring( 5 );
+          _headless = true;
+        }
+        else if ( cmdLineArg.startsWith( "-jobTimeout=" ) )
+        {
+          String arg = cmdLineArg.substring( 12 );
+          _jobTimeout = Long.parseLong( arg );
+        }
+      }
+
+      if ( _jobTimeout < 0L )
+      {
+        throw new IllegalArgumentException( "Invalid job timeout, should be zero or more seconds!" );
       }
 
       if ( ( _logLevel < 0 ) || ( _logLevel > 6 ) )
@@ -103,8 +130,24 @@ public final class Runner
             this.cacheDir ) );
       }
 
+      if ( _jobFile != null )
+      {
+        this.jobFile = new File( _jobFile ).getCanonicalFile();
+        if ( !this.jobFile.isFile() )
+        {
+          throw new IllegalArgumentException( String.format( "Invalid job file (%s)!", this.jobFile ) );
+        }
+        validateJobFile( this.jobFile );
+      }
+      else
+      {
+        this.jobFile = null;
+      }
+
       this.cleanCache = _cleanCache;
       this.logLevel = _logLevel;
+      this.headless = _headless;
+      this.jobTimeout = _jobTimeout;
     }
 
     // METHODS
@@ -138,8 +181,78 @@ public final class Runner
 
       return null;
     }
+
+    /**
+     * Validates the given job file up front, so that an invalid job does not
+     * start the framework at all.
+     *
+     * @param aJobFile
+     *          the job file to validate, cannot be <code>null</code>.
+     * @throws IllegalArgumentException
+     *           in case the job file could not be read, or does not define
+     *           either an input file or a device.
+     */
+    private static void validateJobFile( final File aJobFile ) throws IllegalArgumentException
+    {
+      Properties props = new Properties();
+
+      InputStream is = null;
+      try
+      {
+        is = new FileInputStream( aJobFile );
+        props.load( is );
+      }
+      catch ( IOException exception )
+      {
+        throw new IllegalArgumentException( String.format( "Invalid job file (%s): %s!", aJobFile,
+            exception.getMessage() ) );
+      }
+      finally
+      {
+        if ( is != null )
+        {
+          try
+          {
+            is.close();
+          }
+          catch ( IOException exception )
+          {
+            // Ignore...
+          }
+        }
+      }
+
+      String input = props.getProperty( "input", "" ).trim();
+      String device = props.getProperty( "device", "" ).trim();
+      if ( "".equals( input ) == "".equals( device ) )
+      {
+        throw new IllegalArgumentException( String.format(
+            "Invalid job file (%s): should define either an input file or a device!", aJobFile ) );
+      }
+    }
   }
 
+  // CONSTANTS
+
+  /** Bundles with this manifest header are not started when running headless. */
+  private static final String OLS_UI_KEY = "OLS-UI";
+
+  /** The framework property denoting the batch job to run. */
+  private static final String BATCH_JOB_PROPERTY = "nl.lxtreme.ols.batch.job";
+  /** The system property in which the batch service stores its exit code. */
+  private static final String BATCH_EXIT_CODE_PROPERTY = "nl.lxtreme.ols.batch.exitCode";
+  /** The exit code used when a batch job does not complete in time. */
+  private static final int BATCH_TIMEOUT_EXIT_CODE = 3;
+  /** The default time (in seconds) a batch job may take before it is aborted. */
+  private static final long DEFAULT_JOB_TIMEOUT = 600L;
+  /** The time (in milliseconds) to wait for the framework to stop. */
+  private static final long STOP_TIMEOUT = 10000L;
+
+  /** The file (in the cache directory) holding the plugin dir fingerprint. */
+  private static final String FINGERPRINT_FILE = "plugins.fingerprint";
+  /** The bundle headers that denote a plugin (tool, device or exporter). */
+  private static final String[] PLUGIN_KEYS = { "OLS-Tool", "OLS-Device", "OLS-Exporter" };
+
   // VARIABLES
 
   private final CmdLineOptions options;
@@ -170,7 +283,14 @@ public final class Runner
    */
   public static void main( final String[] aArgs ) throws Exception
   {
-    Runner runner = new Runner( new CmdLineOptions( aArgs ) );
+    CmdLineOptions options = new CmdLineOptions( aArgs );
+    if ( options.headless )
+    {
+      // Make sure nothing tries to access a display...
+      System.setProperty( "java.awt.headless", "true" );
+    }
+
+    Runner runner = new Runner( options );
     runner.run();
     runner.waitForStop();
   }
@@ -184,6 +304,13 @@ public final class Runner
     {
       this.framework = new Felix( createConfig() );
       this.framework.init();
+
+      if ( this.options.headless )
+      {
+        // Make sure no UI bundle is activated when the framework starts...
+        disableUIBundles( this.framework.getBundleContext() );
+      }
+
       this.framework.start();
 
       // Issue #36: log something about where we're trying to read/store stuff,
@@ -191,6 +318,11 @@ public final class Runner
       log( LogService.LOG_INFO, "Framework started..." );
       log( LogService.LOG_INFO, "  plugin dir: " + this.options.pluginDir );
       log( LogService.LOG_INFO, "  cache dir : " + this.options.cacheDir );
+      if ( this.options.headless )
+      {
+        Object headless = ( this.options.jobFile != null ) ? this.options.jobFile : "yes";
+        log( LogService.LOG_INFO, "  headless  : " + headless );
+      }
 
       bootstrap( this.framework.getBundleContext() );
 
@@ -212,7 +344,35 @@ public final class Runner
    */
   public void waitForStop() throws InterruptedException
   {
-    FrameworkEvent event = this.framework.waitForStop( 0 );
+    long timeout = ( this.options.jobFile != null ) ? TimeUnit.SECONDS.toMillis( this.options.jobTimeout ) : 0L;
+
+    FrameworkEvent event = this.framework.waitForStop( timeout );
+    if ( event.getType() == FrameworkEvent.WAIT_TIMEDOUT )
+    {
+      // Either the job hangs, or one of its required services never showed
+      // up; in both cases there is nothing left to wait for...
+      log( LogService.LOG_ERROR, "Batch job did not complete within " + this.options.jobTimeout
+          + " seconds; aborting!" );
+
+      try
+      {
+        this.framework.stop();
+        this.framework.waitForStop( STOP_TIMEOUT );
+      }
+      catch ( BundleException exception )
+      {
+        log( LogService.LOG_WARNING, "Failed to stop OSGi framework!", exception );
+      }
+
+      System.exit( BATCH_TIMEOUT_EXIT_CODE );
+    }
+
+    String exitCode = System.getProperty( BATCH_EXIT_CODE_PROPERTY );
+    if ( ( exitCode != null ) && ( event.getType() == FrameworkEvent.STOPPED ) )
+    {
+      System.exit( Integer.parseInt( exitCode ) );
+    }
+
     switch ( event.getType() )
     {
       case FrameworkEvent.STOPPED:
@@ -228,61 +388,155 @@ public final class Runner
   /**
    * Bootstraps the application by installing the new/updated bundles and
    * removing all stale bundles.
+   * <p>
+   * In case the plugin directory did not change since the last run (as
+   * determined by its fingerprint), the checks for new, updated and stale
+   * bundles as well as the package refresh are skipped entirely.
+   * </p>
    *
    * @param aContext
    *          the OSGi bundle context to use, cannot be <code>null</code>.
    */
   private void bootstrap( final BundleContext aContext ) throws InterruptedException
   {
+    long startTime = System.nanoTime();
+
     Map<String, Bundle> installed = getInstalledBundles( aContext );
-    List<Bundle> toBeStarted = new ArrayList<Bundle>();
 
     List<String> available = getBundles( this.options.pluginDir );
-    for ( String bundleLocation : available )
+    String fingerprint = getFingerprint( available );
+
+    boolean unchanged = !this.options.cleanCache && fingerprint.equals( readFingerprint() )
+        && installed.keySet().containsAll( available );
+    if ( unchanged )
     {
-      Bundle bundle = installed.get( bundleLocation );
-      if ( bundle == null )
+      log( LogService.LOG_INFO, "Plugin directory unchanged, skipping bundle updates..." );
+
+      resolveAll( aContext );
+    }
+    else
+    {
+      for ( String bundleLocation : available )
       {
-        // New plugin...
-        bundle = installBundle( aContext, bundleLocation );
-        if ( bundle != null )
+        long bundleStartTime = System.nanoTime();
+
+        Bundle bundle = installed.get( bundleLocation );
+        if ( bundle == null )
         {
-          installed.put( bundleLocation, bundle );
-          toBeStarted.add( bundle );
+          // New plugin...
+          bundle = installBundle( aContext, bundleLocation );
+          if ( bundle != null )
+          {
+            installed.put( bundleLocation, bundle );
+
+            logTiming( "Installed " + bundle.getSymbolicName(), bundleStartTime );
+          }
         }
-      }
-      else
-      {
-        // Plugin exists...
-        File file = new File( URI.create( bundleLocation ) );
-        if ( file.lastModified() >= bundle.getLastModified() )
+        else
         {
-          bundle = updateBundle( bundle );
-          if ( bundle != null )
+          // Plugin exists...
+          File file = new File( URI.create( bundleLocation ) );
+          if ( file.lastModified() >= bundle.getLastModified() )
           {
-            toBeStarted.add( bundle );
+            updateBundle( bundle );
+
+            logTiming( "Updated " + bundle.getSymbolicName(), bundleStartTime );
           }
         }
       }
+
+      // Remove all installed plugins that are no longer available as plugin...
+      List<String> removed = new ArrayList<String>( installed.keySet() );
+      removed.remove( Constants.SYSTEM_BUNDLE_LOCATION );
+      removed.removeAll( available );
+      for ( String plugin : removed )
+      {
+        Bundle bundle = installed.remove( plugin );
+        uninstallBundle( bundle );
+      }
+
+      refreshAll( aContext );
+
+      writeFingerprint( fingerprint );
     }
 
-    // Remove all installed plugins that are no longer available as plugin...
-    List<String> removed = new ArrayList<String>( installed.keySet() );
-    removed.remove( Constants.SYSTEM_BUNDLE_LOCATION );
-    removed.removeAll( available );
-    for ( String plugin : removed )
+    logTiming( "Installed and resolved all bundles", startTime );
+
+    // Start the core bundles first, in order, and all plugins (tools, devices,
+    // exporters) afterwards in parallel; the latter are picked up dynamically
+    // by the client, which is usable as soon as it is started...
+    List<Bundle> core = new ArrayList<Bundle>();
+    List<Bundle> plugins = new ArrayList<Bundle>();
+    for ( String bundleLocation : available )
     {
-      Bundle bundle = installed.remove( plugin );
-      uninstallBundle( bundle );
-    }
+      Bundle bundle = installed.get( bundleLocation );
+      if ( ( bundle == null ) || isFragment( bundle ) )
+      {
+        continue;
+      }
+      if ( this.options.headless && isUIBundle( bundle ) )
+      {
+        log( LogService.LOG_DEBUG, "Not starting UI bundle: " + bundle.getSymbolicName() + "..." );
+        continue;
+      }
 
-    refreshAll( aContext );
+      if ( isPlugin( bundle ) )
+      {
+        plugins.add( bundle );
+      }
+      else
+      {
+        core.add( bundle );
+      }
+    }
 
-    // Start all remaining bundles...
-    for ( Bundle bundle : toBeStarted )
+    for ( Bundle bundle : core )
     {
       startBundle( bundle );
     }
+
+    logTiming( "Started all core bundles", startTime );
+
+    startBundles( plugins );
+
+    logTiming( "Started all bundles", startTime );
+  }
+
+  private void closeQuietly( final Closeable aResource )
+  {
+    if ( aResource != null )
+    {
+      try
+      {
+        aResource.close();
+      }
+      catch ( IOException exception )
+      {
+        // Ignore...
+      }
+    }
+  }
+
+  /**
+   * Clears the persistent autostart setting of all UI bundles, which might be
+   * set by a previous (non-headless) run. As the framework is only initialised
+   * and not yet started, none of these bundles is activated; a later GUI run
+   * starts them again, like all other bundles.
+   *
+   * @param aContext
+   *          the OSGi bundle context to use, cannot be <code>null</code>.
+   */
+  private void disableUIBundles( final BundleContext aContext )
+  {
+    for ( Bundle bundle : aContext.getBundles() )
+    {
+      if ( isUIBundle( bundle ) && !isFragment( bundle ) )
+      {
+        // Not transient: this only clears the autostart setting of the
+        // (not yet active) bundle...
+        stopBundle( bundle, 0 );
+      }
+    }
   }
 
   private Map<String, Object> createConfig()
@@ -309,6 +563,10 @@ public final class Runner
     config.put( FelixConstants.LOG_LOGGER_PROP, this.fwLogger );
 
     config.put( "nl.lxtreme.ols.config.dir", this.options.pluginDir.getAbsolutePath() );
+    if ( this.options.jobFile != null )
+    {
+      config.put( BATCH_JOB_PROPERTY, this.options.jobFile.getAbsolutePath() );
+    }
 
     return config;
   }
@@ -331,6 +589,40 @@ public final class Runner
     return plugins;
   }
 
+  /**
+   * Calculates a fingerprint of the given plugins, based on their names, sizes
+   * and modification times.
+   *
+   * @param aPlugins
+   *          the locations of the plugins to fingerprint, cannot be
+   *          <code>null</code>.
+   * @return a fingerprint, never <code>null</code>.
+   */
+  private String getFingerprint( final List<String> aPlugins )
+  {
+    List<String> sorted = new ArrayList<String>( aPlugins );
+    Collections.sort( sorted );
+
+    StringBuilder sb = new StringBuilder();
+    for ( String plugin : sorted )
+    {
+      File file = new File( URI.create( plugin ) );
+      sb.append( plugin ).append( ';' ).append( file.length() ).append( ';' ).append( file.lastModified() ).append( '\n' );
+    }
+
+    CRC32 crc = new CRC32();
+    try
+    {
+      crc.update( sb.toString().getBytes( "UTF-8" ) );
+    }
+    catch ( UnsupportedEncodingException exception )
+    {
+      throw new RuntimeException( exception ); // should never happen
+    }
+
+    return Integer.toHexString( sorted.size() ) + "-" + Long.toHexString( crc.getValue() );
+  }
+
   private Map<String, Bundle> getInstalledBundles( final BundleContext context )
   {
     Map<String, Bundle> installed = new HashMap<String, Bundle>();
@@ -371,6 +663,44 @@ public final class Runner
     return aBundle.getHeaders().get( Constants.FRAGMENT_HOST ) != null;
   }
 
+  /**
+   * @param aBundle
+   *          the bundle to test, can be <code>null</code>.
+   * @return <code>true</code> if the given bundle is a plugin (tool, device or
+   *         exporter), <code>false</code> otherwise.
+   */
+  private boolean isPlugin( final Bundle aBundle )
+  {
+    if ( aBundle == null )
+    {
+      return false;
+    }
+    for ( String key : PLUGIN_KEYS )
+    {
+      if ( aBundle.getHeaders().get( key ) != null )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param aBundle
+   *          the bundle to test, can be <code>null</code>.
+   * @return <code>true</code> if the given bundle is a UI-only bundle that
+   *         should not be started when running headless, <code>false</code>
+   *         otherwise.
+   */
+  private boolean isUIBundle( final Bundle aBundle )
+  {
+    if ( aBundle == null )
+    {
+      return false;
+    }
+    return Boolean.parseBoolean( aBundle.getHeaders().get( OLS_UI_KEY ) );
+  }
+
   private void log( final int aLevel, final String aMessage )
   {
     this.fwLogger.log( aLevel, aMessage );
@@ -381,6 +711,46 @@ public final class Runner
     this.fwLogger.log( aLevel, aMessage, aException );
   }
 
+  /**
+   * Logs the time elapsed since the given start time.
+   */
+  private void logTiming( final String aMessage, final long aStartTime )
+  {
+    long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - aStartTime );
+    log( LogService.LOG_INFO, String.format( "%s in %d ms.", aMessage, Long.valueOf( elapsed ) ) );
+  }
+
+  /**
+   * Reads the fingerprint of the plugin directory, as stored by the last run.
+   *
+   * @return the fingerprint, or an empty string if there is no fingerprint.
+   */
+  private String readFingerprint()
+  {
+    File file = new File( this.options.cacheDir, FINGERPRINT_FILE );
+    if ( !file.isFile() )
+    {
+      return "";
+    }
+
+    BufferedReader reader = null;
+    try
+    {
+      reader = new BufferedReader( new FileReader( file ) );
+      String line = reader.readLine();
+      return ( line == null ) ? "" : line.trim();
+    }
+    catch ( IOException exception )
+    {
+      log( LogService.LOG_DEBUG, "Failed to read plugin fingerprint...", exception );
+      return "";
+    }
+    finally
+    {
+      closeQuietly( reader );
+    }
+  }
+
   @SuppressWarnings( "deprecation" )
   private void refreshAll( final BundleContext aContext ) throws InterruptedException
   {
@@ -406,6 +776,7 @@ public final class Runner
         }
       };
 
+      long startTime = System.nanoTime();
       try
       {
         aContext.addFrameworkListener( fwListener );
@@ -418,6 +789,8 @@ public final class Runner
           {
             log( LogService.LOG_WARNING, "Not all bundles resolve correctly!" );
           }
+
+          logTiming( "Refreshed and resolved all bundles", startTime );
         }
         else
         {
@@ -432,15 +805,48 @@ public final class Runner
     }
   }
 
+  /**
+   * Resolves all bundles up front, without refreshing them first.
+   */
+  @SuppressWarnings( "deprecation" )
+  private void resolveAll( final BundleContext aContext )
+  {
+    ServiceReference<?> ref = aContext.getServiceReference( PackageAdmin.class.getName() );
+    if ( ref != null )
+    {
+      PackageAdmin packageAdm = ( PackageAdmin )aContext.getService( ref );
+
+      long startTime = System.nanoTime();
+      try
+      {
+        if ( !packageAdm.resolveBundles( null ) )
+        {
+          log( LogService.LOG_WARNING, "Not all bundles resolve correctly!" );
+        }
+
+        logTiming( "Resolved all bundles", startTime );
+      }
+      finally
+      {
+        aContext.ungetService( ref );
+      }
+    }
+  }
+
   private void startBundle( final Bundle aBundle )
   {
     if ( !isFragment( aBundle ) )
     {
       log( LogService.LOG_DEBUG, "Starting bundle: " + aBundle.getSymbolicName() + "..." );
 
+      long startTime = System.nanoTime();
       try
       {
-        aBundle.start( Bundle.START_ACTIVATION_POLICY );
+        // Start transiently: the runner starts all bundles itself upon each
+        // run, which allows it to start plugins in parallel...
+        aBundle.start( Bundle.START_TRANSIENT | Bundle.START_ACTIVATION_POLICY );
+
+        logTiming( "Started " + aBundle.getSymbolicName(), startTime );
       }
       catch ( BundleException exception )
       {
@@ -449,6 +855,69 @@ public final class Runner
     }
   }
 
+  /**
+   * Starts the given bundles in parallel and waits until all of them are
+   * started.
+   *
+   * @param aBundles
+   *          the bundles to start, cannot be <code>null</code>.
+   */
+  private void startBundles( final List<Bundle> aBundles ) throws InterruptedException
+  {
+    if ( aBundles.isEmpty() )
+    {
+      return;
+    }
+
+    int threadCount = Math.max( 1, Math.min( aBundles.size(), Runtime.getRuntime().availableProcessors() ) );
+    ExecutorService executor = Executors.newFixedThreadPool( threadCount, new ThreadFactory()
+    {
+      @Override
+      public Thread newThread( final Runnable aRunnable )
+      {
+        Thread thread = new Thread( aRunnable, "Bundle starter" );
+        thread.setDaemon( true );
+        return thread;
+      }
+    } );
+
+    try
+    {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+      for ( final Bundle bundle : aBundles )
+      {
+        tasks.add( Executors.callable( new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            startBundle( bundle );
+          }
+        } ) );
+      }
+
+      executor.invokeAll( tasks );
+    }
+    finally
+    {
+      executor.shutdown();
+    }
+  }
+
+  private void stopBundle( final Bundle aBundle, final int aOptions )
+  {
+    log( LogService.LOG_DEBUG, "Stopping bundle: " + aBundle.getSymbolicName() + "..." );
+
+    try
+    {
+      aBundle.stop( aOptions );
+    }
+    catch ( BundleException exception )
+    {
+      log( LogService.LOG_WARNING, "Failed to stop bundle: " + aBundle.getSymbolicName() + "...", exception );
+    }
+  }
+
   private void uninstallBundle( final Bundle aBundle )
   {
     log( LogService.LOG_DEBUG, "Removing stale plugin: " + aBundle.getSymbolicName() + "..." );
@@ -471,11 +940,36 @@ public final class Runner
     }
   }
 
-  private Bundle updateBundle( final Bundle aBundle )
+  /**
+   * Stores the fingerprint of the plugin directory for the next run.
+   *
+   * @param aFingerprint
+   *          the fingerprint to store, cannot be <code>null</code>.
+   */
+  private void writeFingerprint( final String aFingerprint )
+  {
+    File file = new File( this.options.cacheDir, FINGERPRINT_FILE );
+
+    Writer writer = null;
+    try
+    {
+      writer = new FileWriter( file );
+      writer.write( aFingerprint );
+    }
+    catch ( IOException exception )
+    {
+      log( LogService.LOG_DEBUG, "Failed to write plugin fingerprint...", exception );
+    }
+    finally
+    {
+      closeQuietly( writer );
+    }
+  }
+
+  private void updateBundle( final Bundle aBundle )
   {
     log( LogService.LOG_DEBUG, "Updating plugin: " + aBundle.getSymbolicName() + "..." );
 
-    Bundle result = null;
     if ( !isFragment( aBundle ) && ( ( aBundle.getState() & Bundle.ACTIVE ) != 0 ) )
     {
       log( LogService.LOG_DEBUG, "Stopping plugin: " + aBundle.getSymbolicName() + " for update..." );
@@ -488,7 +982,6 @@ public final class Runner
       {
         log( LogService.LOG_WARNING, "Failed to stop bundle: " + aBundle.getSymbolicName() + "...", exception );
       }
-      result = aBundle;
     }
 
     try
@@ -499,7 +992,6 @@ public final class Runner
     {
       log( LogService.LOG_WARNING, "Failed to update bundle: " + aBundle.getSymbolicName() + "...", exception );
     }
-    return result;
   }
 }
 
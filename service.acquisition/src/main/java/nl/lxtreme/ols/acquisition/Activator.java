@@ -72,6 +72,10 @@ public class Activator extends DependencyActivatorBase
             .setService( AcquisitionDataListener.class ) //
             .setCallbacks( "addAcquisitionDataListener", "removeAcquisitionDataListener" ) //
             .setRequired( false ) ) //
+        .add( createServiceDependency() //
+            .setService( DeviceAcquisitionListener.class ) //
+            .setCallbacks( "addDeviceAcquisitionListener", "removeDeviceAcquisitionListener" ) //
+            .setRequired( false ) ) //
         );
 
   }
@@ -29,6 +29,7 @@ import java.util.logging.*;
 import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.acquisition.AcquisitionResultStatus.ResultStatus;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.devices.*;
 import nl.lxtreme.ols.api.task.*;
 
@@ -36,9 +37,140 @@ import nl.lxtreme.ols.api.task.*;
 /**
  * Provides a {@link DataAcquisitionService} that performs the acquisition in
  * the background.
+ * <p>
+ * Each device can have its own acquisition in progress. The
+ * {@link AcquisitionStatusListener}s and {@link AcquisitionProgressListener}s
+ * are informed about all acquisitions as a whole: the acquisition is started
+ * when the first device starts acquiring, and ends when the last device
+ * finishes. {@link DeviceAcquisitionListener}s are informed about each device
+ * separately.
+ * </p>
+ * <p>
+ * A continuous acquisition is seen as a single acquisition by these
+ * listeners, even though the device is re-armed after each capture.
+ * </p>
  */
 public class BackgroundDataAcquisitionService implements DataAcquisitionService, TaskStatusListener
 {
+  // INNER TYPES
+
+  /**
+   * Keeps track of the acquisition of a single device.
+   */
+  static final class Acquisition
+  {
+    // VARIABLES
+
+    final Device device;
+    final AcquisitionGroup group;
+    final ContinuousSession session;
+    final boolean rearmed;
+
+    volatile Task<AcquisitionResult> task;
+    volatile Future<?> future;
+    volatile int progress;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Acquisition instance.
+     */
+    Acquisition( final Device aDevice, final AcquisitionGroup aGroup, final ContinuousSession aSession,
+        final boolean aRearmed )
+    {
+      this.device = aDevice;
+      this.group = aGroup;
+      this.session = aSession;
+      this.rearmed = aRearmed;
+    }
+  }
+
+  /**
+   * Keeps track of a group of simultaneous acquisitions whose results are to
+   * be merged into a single result.
+   */
+  static final class AcquisitionGroup
+  {
+    // VARIABLES
+
+    private final List<Device> devices;
+    private final boolean alignOnTrigger;
+    private final Map<Device, AcquisitionResult> results;
+    private int pending;
+    private boolean failed;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new AcquisitionGroup instance.
+     */
+    AcquisitionGroup( final List<Device> aDevices, final boolean aAlignOnTrigger )
+    {
+      this.devices = new ArrayList<Device>( aDevices );
+      this.alignOnTrigger = aAlignOnTrigger;
+      this.results = new HashMap<Device, AcquisitionResult>();
+      this.pending = this.devices.size();
+    }
+
+    // METHODS
+
+    /**
+     * Registers the result of the given device.
+     * 
+     * @return the merged result of all devices if this was the last pending
+     *         result, <code>null</code> otherwise.
+     */
+    synchronized AcquisitionResult completed( final Device aDevice, final AcquisitionResult aResult )
+    {
+      this.results.put( aDevice, aResult );
+      return ( --this.pending == 0 ) && !this.failed ? merge() : null;
+    }
+
+    /**
+     * Registers the failure of the given device, causing no merged result to
+     * be made.
+     */
+    synchronized void failed( final Device aDevice )
+    {
+      this.failed = true;
+      this.pending--;
+    }
+
+    /**
+     * Merges the results of all devices, in the order the devices were given.
+     */
+    private AcquisitionResult merge()
+    {
+      final AcquisitionResultMerger merger = new AcquisitionResultMerger( this.alignOnTrigger );
+      for ( Device device : this.devices )
+      {
+        merger.add( this.results.get( device ) );
+      }
+      return merger.merge();
+    }
+  }
+
+  /**
+   * Keeps track of a continuous acquisition, which spans multiple captures.
+   */
+  static final class ContinuousSession
+  {
+    // VARIABLES
+
+    final RollingCaptureBuffer buffer;
+    volatile boolean stopped;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ContinuousSession instance.
+     */
+    ContinuousSession( final double aMaxDuration, final int aMaxTransitions )
+    {
+      this.buffer = new RollingCaptureBuffer( aMaxDuration, aMaxTransitions );
+    }
+  }
+
   // CONSTANTS
 
   private static final Logger LOG = Logger.getLogger( BackgroundDataAcquisitionService.class.getName() );
@@ -48,10 +180,14 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
   private final List<AcquisitionProgressListener> acquisitionProgressListeners;
   private final List<AcquisitionStatusListener> acquisitionStatusListeners;
   private final List<AcquisitionDataListener> acquisitionDataListeners;
+  private final List<DeviceAcquisitionListener> deviceAcquisitionListeners;
+  private final ConcurrentMap<Device, Acquisition> acquisitions;
 
   private volatile TaskExecutionService taskExecutionService;
-  private volatile Future<?> acquisitionFutureTask;
-  private volatile Task<AcquisitionResult> acquisitionTask;
+
+  // Guarded by acquisitions...
+  private int runningCount;
+  private AcquisitionResultStatus failureStatus;
 
   // CONSTRUCTORS
 
@@ -60,9 +196,24 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
    */
   public BackgroundDataAcquisitionService()
   {
+    this( null );
+  }
+
+  /**
+   * Creates a new {@link BackgroundDataAcquisitionService} instance with a
+   * given task execution service, instead of an injected one.
+   * 
+   * @param aTaskExecutionService
+   *          the task execution service to use, can be <code>null</code>.
+   */
+  BackgroundDataAcquisitionService( final TaskExecutionService aTaskExecutionService )
+  {
+    this.taskExecutionService = aTaskExecutionService;
     this.acquisitionProgressListeners = new CopyOnWriteArrayList<AcquisitionProgressListener>();
     this.acquisitionStatusListeners = new CopyOnWriteArrayList<AcquisitionStatusListener>();
     this.acquisitionDataListeners = new CopyOnWriteArrayList<AcquisitionDataListener>();
+    this.deviceAcquisitionListeners = new CopyOnWriteArrayList<DeviceAcquisitionListener>();
+    this.acquisitions = new ConcurrentHashMap<Device, Acquisition>();
   }
 
   // METHODS
@@ -73,34 +224,63 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
   @Override
   public void acquireData( final Device aDevice ) throws IOException
   {
-    final AcquisitionTask innerTask = aDevice.createAcquisitionTask( new AcquisitionProgressListener()
+    startAcquisition( aDevice, null /* aGroup */, null /* aSession */, null /* aPrevious */);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquireData( final List<Device> aDevices, final boolean aAlignOnTrigger ) throws IOException
+  {
+    if ( ( aDevices == null ) || aDevices.isEmpty() )
+    {
+      throw new IllegalArgumentException( "Devices cannot be null or empty!" );
+    }
+    for ( Device device : aDevices )
     {
-      @Override
-      public void acquisitionInProgress( final int aPercentage )
+      if ( isAcquiring( device ) )
       {
-        fireAcquisitionInProgressEvent( aPercentage );
+        throw new IllegalStateException( "Device " + device.getName() + " is already acquiring data!" );
       }
-    } );
+    }
+
+    final AcquisitionGroup group = new AcquisitionGroup( aDevices, aAlignOnTrigger );
 
-    // Wrap the actual acquisition task in order to get a kind of "auto"
-    // closable behavior...
-    this.acquisitionTask = new Task<AcquisitionResult>()
+    final List<Acquisition> started = new ArrayList<Acquisition>();
+    boolean allStarted = false;
+    try
     {
-      @Override
-      public AcquisitionResult call() throws Exception
+      for ( Device device : aDevices )
       {
-        try
-        {
-          return innerTask.call();
-        }
-        finally
+        started.add( startAcquisition( device, group, null /* aSession */, null /* aPrevious */) );
+      }
+      allStarted = true;
+    }
+    finally
+    {
+      if ( !allStarted )
+      {
+        // Do not leave the already started devices running, regardless of
+        // what made the other devices fail to start...
+        for ( Acquisition acquisition : started )
         {
-          aDevice.close();
+          abortAcquisition( acquisition );
         }
       }
-    };
+    }
+  }
 
-    this.acquisitionFutureTask = this.taskExecutionService.execute( this.acquisitionTask );
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquireDataContinuously( final Device aDevice, final double aMaxDuration, final int aMaxTransitions )
+      throws IOException
+  {
+    final ContinuousSession session = new ContinuousSession( aMaxDuration, aMaxTransitions );
+
+    startAcquisition( aDevice, null /* aGroup */, session, null /* aPrevious */);
   }
 
   /**
@@ -145,17 +325,38 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
     this.acquisitionStatusListeners.add( aListener );
   }
 
+  /**
+   * Adds a new {@link DeviceAcquisitionListener} to the list of listeners.
+   * <p>
+   * Called by the dependency manager.
+   * </p>
+   * 
+   * @param aListener
+   *          the listener to add.
+   */
+  public void addDeviceAcquisitionListener( final DeviceAcquisitionListener aListener )
+  {
+    this.deviceAcquisitionListeners.add( aListener );
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public void cancelAcquisition( final Device aDevice ) throws IOException, IllegalStateException
   {
-    if ( this.acquisitionFutureTask == null )
+    final Acquisition acquisition = ( aDevice == null ) ? null : this.acquisitions.get( aDevice );
+    if ( acquisition == null )
     {
       throw new IllegalStateException( "No acquisition in progress!" );
     }
 
+    if ( acquisition.session != null )
+    {
+      // Do not re-arm the device after its current capture...
+      acquisition.session.stopped = true;
+    }
+
     final CancelTask cancelTask = aDevice.createCancelTask();
     if ( cancelTask != null )
     {
@@ -163,8 +364,7 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
     }
     else
     {
-      this.acquisitionFutureTask.cancel( true /* mayInterruptIfRunning */);
-      this.acquisitionFutureTask = null;
+      abortAcquisition( acquisition );
     }
   }
 
@@ -174,7 +374,23 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
   @Override
   public boolean isAcquiring()
   {
-    return ( this.acquisitionFutureTask != null ) && !this.acquisitionFutureTask.isDone();
+    for ( Acquisition acquisition : this.acquisitions.values() )
+    {
+      if ( isRunning( acquisition ) )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean isAcquiring( final Device aDevice )
+  {
+    return ( aDevice != null ) && isRunning( this.acquisitions.get( aDevice ) );
   }
 
   /**
@@ -221,6 +437,21 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
     this.acquisitionStatusListeners.remove( aListener );
   }
 
+  /**
+   * Removes a given {@link DeviceAcquisitionListener} from the list of
+   * listeners.
+   * <p>
+   * Called by the dependency manager.
+   * </p>
+   * 
+   * @param aListener
+   *          the listener to remove.
+   */
+  public void removeDeviceAcquisitionListener( final DeviceAcquisitionListener aListener )
+  {
+    this.deviceAcquisitionListeners.remove( aListener );
+  }
+
   /**
    * Closes/shuts down this data acquisition service.
    * <p>
@@ -229,11 +460,14 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
    */
   public void stop()
   {
-    if ( ( this.acquisitionFutureTask != null ) && !this.acquisitionFutureTask.isDone() )
+    for ( Acquisition acquisition : this.acquisitions.values() )
     {
-      this.acquisitionFutureTask.cancel( true /* mayInterruptIfRunning */);
-      this.acquisitionFutureTask = null;
+      if ( isRunning( acquisition ) )
+      {
+        acquisition.future.cancel( true /* mayInterruptIfRunning */);
+      }
     }
+    this.acquisitions.clear();
   }
 
   /**
@@ -242,18 +476,42 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
   @Override
   public <RT> void taskEnded( final Task<RT> aTask, final RT aResult )
   {
-    if ( aTask == this.acquisitionTask )
+    final Acquisition acquisition = findAcquisition( aTask );
+    if ( acquisition != null )
     {
-      this.acquisitionTask = null;
-      this.acquisitionFutureTask = null;
-
       final AcquisitionResult result = ( AcquisitionResult )aResult;
-      fireAcquisitionCompleteEvent( result );
+      fireAcquisitionCompleteEvent( acquisition.device, result );
 
-      final AcquisitionResultStatus status = new AcquisitionResultStatus( ResultStatus.NORMAL );
-      fireAcquisitionEndedEvent( status );
+      if ( acquisition.session != null )
+      {
+        captureAppended( acquisition, result );
+        return;
+      }
+      else if ( acquisition.group == null )
+      {
+        fireAcquisitionCompleteEvent( result );
+      }
+      else
+      {
+        try
+        {
+          final AcquisitionResult merged = acquisition.group.completed( acquisition.device, result );
+          if ( merged != null )
+          {
+            fireAcquisitionCompleteEvent( merged );
+          }
+        }
+        catch ( RuntimeException exception )
+        {
+          LOG.log( Level.WARNING, "Merging acquisition results failed!", exception );
+          acquisitionEnded( acquisition, AcquisitionResultStatus.create( exception ) );
+          return;
+        }
+      }
+
+      acquisitionEnded( acquisition, new AcquisitionResultStatus( ResultStatus.NORMAL ) );
 
-      LOG.log( Level.INFO, "Acquisition successful!" );
+      LOG.log( Level.INFO, "Acquisition of {0} successful!", acquisition.device.getName() );
     }
   }
 
@@ -263,15 +521,21 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
   @Override
   public <RT> void taskFailed( final Task<RT> aTask, final Exception aException )
   {
-    if ( aTask == this.acquisitionTask )
+    final Acquisition acquisition = findAcquisition( aTask );
+    if ( acquisition != null )
     {
-      this.acquisitionTask = null;
-      this.acquisitionFutureTask = null;
+      if ( acquisition.group != null )
+      {
+        acquisition.group.failed( acquisition.device );
+      }
+      if ( acquisition.session != null )
+      {
+        sessionEnded( acquisition.session );
+      }
 
-      final AcquisitionResultStatus status = AcquisitionResultStatus.create( aException );
-      fireAcquisitionEndedEvent( status );
+      acquisitionEnded( acquisition, AcquisitionResultStatus.create( aException ) );
 
-      LOG.log( Level.WARNING, "Acquisition failed!", aException );
+      LOG.log( Level.WARNING, "Acquisition of " + acquisition.device.getName() + " failed!", aException );
     }
   }
 
@@ -281,9 +545,24 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
   @Override
   public <RT> void taskStarted( final Task<RT> aTask )
   {
-    if ( this.acquisitionTask == aTask )
+    final Acquisition acquisition = findAcquisition( aTask );
+    if ( ( acquisition != null ) && !acquisition.rearmed )
     {
-      fireAcquisitionStartedEvent();
+      final boolean first;
+      synchronized ( this.acquisitions )
+      {
+        first = ( this.runningCount++ == 0 );
+        if ( first )
+        {
+          this.failureStatus = null;
+        }
+      }
+
+      if ( first )
+      {
+        fireAcquisitionStartedEvent();
+      }
+      fireAcquisitionStartedEvent( acquisition.device );
     }
   }
 
@@ -299,6 +578,33 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
     }
   }
 
+  /**
+   * @param aData
+   * @param aAppendedFrom
+   */
+  void fireAcquisitionDataAppendedEvent( final AcquisitionResult aData, final long aAppendedFrom )
+  {
+    for ( AcquisitionDataListener listener : this.acquisitionDataListeners )
+    {
+      if ( listener instanceof ContinuousAcquisitionDataListener )
+      {
+        ( ( ContinuousAcquisitionDataListener )listener ).acquisitionDataAppended( aData, aAppendedFrom );
+      }
+    }
+  }
+
+  /**
+   * @param aDevice
+   * @param aResult
+   */
+  void fireAcquisitionCompleteEvent( final Device aDevice, final AcquisitionResult aResult )
+  {
+    for ( DeviceAcquisitionListener listener : this.deviceAcquisitionListeners )
+    {
+      listener.acquisitionComplete( aDevice, aResult );
+    }
+  }
+
   /**
    * @param status
    */
@@ -311,6 +617,18 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
     }
   }
 
+  /**
+   * @param aDevice
+   * @param aStatus
+   */
+  void fireAcquisitionEndedEvent( final Device aDevice, final AcquisitionResultStatus aStatus )
+  {
+    for ( DeviceAcquisitionListener listener : this.deviceAcquisitionListeners )
+    {
+      listener.acquisitionEnded( aDevice, aStatus );
+    }
+  }
+
   /**
    * @param aPercentage
    */
@@ -323,6 +641,18 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
     }
   }
 
+  /**
+   * @param aDevice
+   * @param aPercentage
+   */
+  void fireAcquisitionInProgressEvent( final Device aDevice, final int aPercentage )
+  {
+    for ( DeviceAcquisitionListener listener : this.deviceAcquisitionListeners )
+    {
+      listener.acquisitionInProgress( aDevice, aPercentage );
+    }
+  }
+
   /**
    * @param status
    */
@@ -334,4 +664,322 @@ public class BackgroundDataAcquisitionService implements DataAcquisitionService,
       statusListenerIter.next().acquisitionStarted();
     }
   }
+
+  /**
+   * @param aDevice
+   */
+  void fireAcquisitionStartedEvent( final Device aDevice )
+  {
+    for ( DeviceAcquisitionListener listener : this.deviceAcquisitionListeners )
+    {
+      listener.acquisitionStarted( aDevice );
+    }
+  }
+
+  /**
+   * Aborts the given acquisition by interrupting its task.
+   * 
+   * @param aAcquisition
+   *          the acquisition to abort, may be <code>null</code>.
+   */
+  private void abortAcquisition( final Acquisition aAcquisition )
+  {
+    if ( ( aAcquisition == null ) || ( aAcquisition.future == null ) )
+    {
+      return;
+    }
+
+    aAcquisition.future.cancel( true /* mayInterruptIfRunning */);
+
+    // Only report the acquisition as ended if it was actually started, and
+    // did not end in the meantime...
+    if ( this.acquisitions.remove( aAcquisition.device, aAcquisition ) )
+    {
+      if ( aAcquisition.group != null )
+      {
+        aAcquisition.group.failed( aAcquisition.device );
+      }
+      if ( aAcquisition.session != null )
+      {
+        sessionEnded( aAcquisition.session );
+      }
+
+      final AcquisitionResultStatus status = new AcquisitionResultStatus( ResultStatus.ABORTED );
+      fireAcquisitionEndedEvent( aAcquisition.device, status );
+      acquisitionStopped( status );
+    }
+  }
+
+  /**
+   * Called when the given acquisition has ended.
+   * 
+   * @param aAcquisition
+   *          the ended acquisition;
+   * @param aStatus
+   *          the status of the ended acquisition.
+   */
+  private void acquisitionEnded( final Acquisition aAcquisition, final AcquisitionResultStatus aStatus )
+  {
+    if ( this.acquisitions.remove( aAcquisition.device, aAcquisition ) )
+    {
+      fireAcquisitionEndedEvent( aAcquisition.device, aStatus );
+      acquisitionStopped( aStatus );
+    }
+  }
+
+  /**
+   * Called when a (started) acquisition is stopped, and fires the "ended"
+   * event when it was the last running acquisition.
+   * 
+   * @param aStatus
+   *          the status of the stopped acquisition.
+   */
+  private void acquisitionStopped( final AcquisitionResultStatus aStatus )
+  {
+    final AcquisitionResultStatus status;
+    synchronized ( this.acquisitions )
+    {
+      if ( ( this.failureStatus == null ) && !aStatus.isCompletedNormally() )
+      {
+        this.failureStatus = aStatus;
+      }
+      if ( ( this.runningCount == 0 ) || ( --this.runningCount > 0 ) )
+      {
+        return;
+      }
+      status = ( this.failureStatus != null ) ? this.failureStatus : aStatus;
+    }
+
+    fireAcquisitionEndedEvent( status );
+  }
+
+  /**
+   * Called when a capture of a continuous acquisition is completed, and
+   * re-arms the device, unless the continuous acquisition is stopped.
+   * 
+   * @param aAcquisition
+   *          the acquisition of the completed capture;
+   * @param aResult
+   *          the result of the completed capture.
+   */
+  private void captureAppended( final Acquisition aAcquisition, final AcquisitionResult aResult )
+  {
+    final ContinuousSession session = aAcquisition.session;
+
+    final AcquisitionResult snapshot;
+    final long appendedFrom;
+    synchronized ( session )
+    {
+      appendedFrom = session.buffer.append( aResult );
+      // Only refers to the retained data; it is copied when a listener uses it...
+      snapshot = session.buffer.getSnapshot();
+    }
+
+    if ( !session.stopped )
+    {
+      fireAcquisitionDataAppendedEvent( snapshot, appendedFrom );
+
+      try
+      {
+        final Acquisition next = startAcquisition( aAcquisition.device, null /* aGroup */, session, aAcquisition );
+        if ( ( next != null ) && session.stopped )
+        {
+          // Stopped while re-arming...
+          abortAcquisition( next );
+        }
+        return;
+      }
+      catch ( IOException exception )
+      {
+        LOG.log( Level.WARNING, "Re-arming device " + aAcquisition.device.getName() + " failed!", exception );
+
+        sessionEnded( session );
+        acquisitionEnded( aAcquisition, AcquisitionResultStatus.create( exception ) );
+        return;
+      }
+    }
+
+    sessionEnded( session );
+    acquisitionEnded( aAcquisition, new AcquisitionResultStatus( ResultStatus.NORMAL ) );
+
+    LOG.log( Level.INFO, "Continuous acquisition of {0} stopped!", aAcquisition.device.getName() );
+  }
+
+  /**
+   * Finds the acquisition belonging to the given task.
+   * 
+   * @param aTask
+   *          the task to find the acquisition for.
+   * @return the acquisition, or <code>null</code> if the given task is not an
+   *         acquisition task (of this service).
+   */
+  private Acquisition findAcquisition( final Task<?> aTask )
+  {
+    for ( Acquisition acquisition : this.acquisitions.values() )
+    {
+      if ( acquisition.task == aTask )
+      {
+        return acquisition;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reports the progress of the given acquisition, both for the device itself
+   * as for all running acquisitions as a whole.
+   * 
+   * @param aAcquisition
+   *          the acquisition to report the progress for;
+   * @param aPercentage
+   *          the progress of the given acquisition.
+   */
+  private void fireAcquisitionInProgressEvent( final Acquisition aAcquisition, final int aPercentage )
+  {
+    aAcquisition.progress = aPercentage;
+    fireAcquisitionInProgressEvent( aAcquisition.device, aPercentage );
+
+    int total = 0;
+    int count = 0;
+    for ( Acquisition acquisition : this.acquisitions.values() )
+    {
+      total += acquisition.progress;
+      count++;
+    }
+    fireAcquisitionInProgressEvent( ( count > 0 ) ? ( total / count ) : aPercentage );
+  }
+
+  /**
+   * @return <code>true</code> if the given acquisition is running,
+   *         <code>false</code> otherwise.
+   */
+  private boolean isRunning( final Acquisition aAcquisition )
+  {
+    return ( aAcquisition != null ) && ( aAcquisition.future != null ) && !aAcquisition.future.isDone();
+  }
+
+  /**
+   * Reports all retained data of the given (stopped) continuous acquisition as
+   * a regular acquisition result.
+   * 
+   * @param aSession
+   *          the continuous acquisition that has ended.
+   */
+  private void sessionEnded( final ContinuousSession aSession )
+  {
+    aSession.stopped = true;
+
+    final AcquisitionResult snapshot;
+    synchronized ( aSession )
+    {
+      snapshot = aSession.buffer.isEmpty() ? null : aSession.buffer.getSnapshot();
+      aSession.buffer.clear();
+    }
+
+    if ( snapshot != null )
+    {
+      fireAcquisitionCompleteEvent( snapshot );
+    }
+  }
+
+  /**
+   * Starts the acquisition of a given device.
+   * 
+   * @param aDevice
+   *          the device to start the acquisition for, cannot be
+   *          <code>null</code>;
+   * @param aGroup
+   *          the group the acquisition belongs to, can be <code>null</code>;
+   * @param aSession
+   *          the continuous acquisition the acquisition belongs to, can be
+   *          <code>null</code>;
+   * @param aPrevious
+   *          the previous acquisition of the continuous acquisition that is
+   *          to be replaced, can be <code>null</code>.
+   * @return the started acquisition, or <code>null</code> in case the given
+   *         previous acquisition was aborted in the meantime.
+   * @throws IOException
+   *           in case of I/O problems creating the acquisition task.
+   */
+  private Acquisition startAcquisition( final Device aDevice, final AcquisitionGroup aGroup,
+      final ContinuousSession aSession, final Acquisition aPrevious ) throws IOException
+  {
+    if ( aDevice == null )
+    {
+      throw new IllegalArgumentException( "Device cannot be null!" );
+    }
+
+    final Acquisition acquisition = new Acquisition( aDevice, aGroup, aSession, aPrevious != null );
+
+    if ( aPrevious != null )
+    {
+      if ( !this.acquisitions.replace( aDevice, aPrevious, acquisition ) )
+      {
+        // The previous acquisition is aborted in the meantime...
+        return null;
+      }
+    }
+    else
+    {
+      final Acquisition existing = this.acquisitions.putIfAbsent( aDevice, acquisition );
+      if ( existing != null )
+      {
+        if ( isRunning( existing ) )
+        {
+          throw new IllegalStateException( "Device " + aDevice.getName() + " is already acquiring data!" );
+        }
+        // Stale entry, for example, of a task that never started...
+        this.acquisitions.put( aDevice, acquisition );
+      }
+    }
+
+    try
+    {
+      final AcquisitionTask innerTask = aDevice.createAcquisitionTask( new AcquisitionProgressListener()
+      {
+        @Override
+        public void acquisitionInProgress( final int aPercentage )
+        {
+          fireAcquisitionInProgressEvent( acquisition, aPercentage );
+        }
+      } );
+
+      // Wrap the actual acquisition task in order to get a kind of "auto"
+      // closable behavior...
+      acquisition.task = new Task<AcquisitionResult>()
+      {
+        @Override
+        public AcquisitionResult call() throws Exception
+        {
+          try
+          {
+            return innerTask.call();
+          }
+          finally
+          {
+            aDevice.close();
+          }
+        }
+      };
+
+      acquisition.future = this.taskExecutionService.execute( acquisition.task );
+    }
+    finally
+    {
+      if ( acquisition.future == null )
+      {
+        if ( aPrevious != null )
+        {
+          // Let the previous acquisition end the continuous acquisition...
+          this.acquisitions.replace( aDevice, acquisition, aPrevious );
+        }
+        else
+        {
+          this.acquisitions.remove( aDevice, acquisition );
+        }
+      }
+    }
+
+    return acquisition;
+  }
 }
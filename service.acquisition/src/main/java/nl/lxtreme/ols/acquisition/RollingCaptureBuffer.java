@@ -0,0 +1,508 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.acquisition;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+
+/**
+ * Provides a bounded buffer of transitions, to which successive captures are
+ * appended back-to-back.
+ * <p>
+ * The oldest transitions are evicted when either the retained data spans more
+ * than a given duration, or when the buffer is full. The transitions are kept
+ * in segments that are never changed once appended, so a snapshot of this
+ * buffer only needs to refer to the current segments, and can be taken
+ * regardless of the amount of retained data. This class is not thread-safe,
+ * its snapshots are.
+ * </p>
+ */
+final class RollingCaptureBuffer
+{
+  // INNER TYPES
+
+  /**
+   * Denotes the transitions of one or more consecutive captures. A segment is
+   * never changed once created.
+   */
+  static final class Segment
+  {
+    // VARIABLES
+
+    final int[] values;
+    final long[] timestamps;
+    final int length;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Segment instance.
+     */
+    Segment( final int[] aValues, final long[] aTimestamps, final int aLength )
+    {
+      this.values = aValues;
+      this.timestamps = aTimestamps;
+      this.length = aLength;
+    }
+  }
+
+  /**
+   * Provides a read-only view of the data retained at the moment the snapshot
+   * was taken. Its transitions are only copied into a single capture upon
+   * first use.
+   */
+  static final class Snapshot implements AcquisitionResult
+  {
+    // VARIABLES
+
+    private final Segment[] segments;
+    private final int first;
+    private final int size;
+    private final long startTime;
+    private final long absoluteLength;
+    private final long triggerPosition;
+    private final int rate;
+    private final int channels;
+    private final int enabledChannels;
+
+    private AcquisitionResult data; // guarded by this
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Snapshot instance.
+     */
+    Snapshot( final RollingCaptureBuffer aBuffer )
+    {
+      this.segments = aBuffer.segments.toArray( new Segment[aBuffer.segments.size()] );
+      this.first = aBuffer.first;
+      this.size = aBuffer.size;
+      this.startTime = aBuffer.getStartTime();
+      this.absoluteLength = aBuffer.endTime - this.startTime;
+      final long trigger = aBuffer.triggerPosition;
+      this.triggerPosition = ( trigger >= this.startTime ) ? ( trigger - this.startTime ) : Ols.NOT_AVAILABLE;
+      this.rate = aBuffer.rate;
+      this.channels = aBuffer.channels;
+      this.enabledChannels = aBuffer.enabledChannels;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getAbsoluteLength()
+    {
+      return getData().getAbsoluteLength();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannels()
+    {
+      return getData().getChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEnabledChannels()
+    {
+      return getData().getEnabledChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSampleIndex( final long aTimeValue )
+    {
+      return getData().getSampleIndex( aTimeValue );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getSampleRate()
+    {
+      return getData().getSampleRate();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long[] getTimestamps()
+    {
+      return getData().getTimestamps();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getTriggerPosition()
+    {
+      return getData().getTriggerPosition();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getValues()
+    {
+      return getData().getValues();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasTimingData()
+    {
+      return getData().hasTimingData();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasTriggerData()
+    {
+      return getData().hasTriggerData();
+    }
+
+    /**
+     * Returns the retained data as a single capture, in which the oldest
+     * retained transition starts at timestamp zero, creating it on first use.
+     */
+    synchronized AcquisitionResult getData()
+    {
+      if ( this.data == null )
+      {
+        final int[] resultValues = new int[this.size];
+        final long[] resultTimestamps = new long[this.size];
+
+        int pos = 0;
+        int from = this.first;
+        for ( Segment segment : this.segments )
+        {
+          for ( int i = from; i < segment.length; i++, pos++ )
+          {
+            resultValues[pos] = segment.values[i];
+            resultTimestamps[pos] = segment.timestamps[i] - this.startTime;
+          }
+          from = 0;
+        }
+
+        this.data = new CapturedData( resultValues, resultTimestamps, this.triggerPosition, this.rate, this.channels,
+            this.enabledChannels, this.absoluteLength );
+      }
+      return this.data;
+    }
+  }
+
+  // CONSTANTS
+
+  /**
+   * Segments shorter than this are merged with the next appended transitions,
+   * which bounds the number of segments when only few transitions are
+   * appended at a time.
+   */
+  static final int MIN_SEGMENT_LENGTH = 4096;
+
+  // VARIABLES
+
+  private final double maxDuration;
+  private final int maxTransitions;
+  private final LinkedList<Segment> segments;
+
+  private int first;
+  private int size;
+  private long endTime;
+  private long triggerPosition;
+  private int rate;
+  private int channels;
+  private int enabledChannels;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new RollingCaptureBuffer instance.
+   * 
+   * @param aMaxDuration
+   *          the maximum duration (in seconds) of data to retain, or a value
+   *          <= 0.0 for no maximum;
+   * @param aMaxTransitions
+   *          the maximum number of transitions to retain, > 0.
+   * @throws IllegalArgumentException
+   *           in case the given number of transitions was not positive.
+   */
+  public RollingCaptureBuffer( final double aMaxDuration, final int aMaxTransitions )
+  {
+    if ( aMaxTransitions <= 0 )
+    {
+      throw new IllegalArgumentException( "Maximum number of transitions must be positive!" );
+    }
+
+    this.maxDuration = aMaxDuration;
+    this.maxTransitions = aMaxTransitions;
+    this.segments = new LinkedList<Segment>();
+    this.triggerPosition = Ols.NOT_AVAILABLE;
+  }
+
+  // METHODS
+
+  /**
+   * Appends the given capture directly after the data already present in this
+   * buffer.
+   * <p>
+   * In case the given capture uses a different sample rate or channel layout
+   * than the captures already in this buffer, this buffer is cleared first.
+   * </p>
+   * 
+   * @param aCapture
+   *          the capture to append, cannot be <code>null</code>.
+   * @return the timestamp from which the given capture is appended, as it
+   *         would appear in the result of {@link #getSnapshot()}.
+   */
+  public long append( final AcquisitionResult aCapture )
+  {
+    if ( ( aCapture.getSampleRate() != this.rate ) || ( aCapture.getChannels() != this.channels )
+        || ( aCapture.getEnabledChannels() != this.enabledChannels ) )
+    {
+      clear();
+
+      this.rate = aCapture.getSampleRate();
+      this.channels = aCapture.getChannels();
+      this.enabledChannels = aCapture.getEnabledChannels();
+    }
+
+    final long offset = this.endTime;
+    final int[] captureValues = aCapture.getValues();
+    final long[] captureTimestamps = aCapture.getTimestamps();
+
+    final int[] segmentValues = new int[captureValues.length];
+    final long[] segmentTimestamps = new long[captureValues.length];
+    int count = 0;
+
+    boolean empty = ( this.size == 0 );
+    int previous = empty ? 0 : getLastValue();
+    for ( int i = 0; i < captureValues.length; i++ )
+    {
+      // Only keep the actual transitions...
+      if ( empty || ( captureValues[i] != previous ) )
+      {
+        segmentValues[count] = captureValues[i];
+        segmentTimestamps[count] = offset + captureTimestamps[i];
+        count++;
+
+        previous = captureValues[i];
+        empty = false;
+      }
+    }
+
+    if ( count > 0 )
+    {
+      add( segmentValues, segmentTimestamps, count );
+    }
+
+    this.endTime = offset + Math.max( 1L, aCapture.getAbsoluteLength() );
+    if ( aCapture.hasTriggerData() )
+    {
+      this.triggerPosition = offset + aCapture.getTriggerPosition();
+    }
+
+    evictByDuration();
+
+    return offset - getStartTime();
+  }
+
+  /**
+   * Clears this buffer.
+   */
+  public void clear()
+  {
+    this.segments.clear();
+    this.first = 0;
+    this.size = 0;
+    this.endTime = 0L;
+    this.triggerPosition = Ols.NOT_AVAILABLE;
+  }
+
+  /**
+   * Returns the number of segments the retained data is kept in.
+   */
+  int getSegmentCount()
+  {
+    return this.segments.size();
+  }
+
+  /**
+   * Returns a read-only view of all data retained in this buffer, in which the
+   * oldest retained transition starts at timestamp zero.
+   * <p>
+   * Taking a snapshot does not copy the retained transitions, this is only done
+   * once the data of the snapshot is used. Later changes to this buffer do not
+   * affect the snapshot.
+   * </p>
+   * 
+   * @return a snapshot of this buffer, never <code>null</code>.
+   */
+  public AcquisitionResult getSnapshot()
+  {
+    return new Snapshot( this );
+  }
+
+  /**
+   * Returns whether or not this buffer is empty.
+   * 
+   * @return <code>true</code> if this buffer is empty, <code>false</code>
+   *         otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.size == 0;
+  }
+
+  /**
+   * Adds the given transitions as new segment, merging them with the last
+   * segment in case both are short, and evicts the oldest transitions if this
+   * buffer is full.
+   */
+  private void add( final int[] aValues, final long[] aTimestamps, final int aCount )
+  {
+    final Segment last = this.segments.peekLast();
+    if ( ( last != null ) && ( last.length < MIN_SEGMENT_LENGTH ) && ( aCount < MIN_SEGMENT_LENGTH ) )
+    {
+      // Merge into a new segment, as snapshots can still refer to the last one...
+      final int length = last.length + aCount;
+      final int[] values = Arrays.copyOf( last.values, length );
+      final long[] timestamps = Arrays.copyOf( last.timestamps, length );
+      System.arraycopy( aValues, 0, values, last.length, aCount );
+      System.arraycopy( aTimestamps, 0, timestamps, last.length, aCount );
+
+      this.segments.removeLast();
+      this.segments.addLast( new Segment( values, timestamps, length ) );
+    }
+    else if ( aCount < aValues.length )
+    {
+      this.segments.addLast( new Segment( Arrays.copyOf( aValues, aCount ), Arrays.copyOf( aTimestamps, aCount ),
+          aCount ) );
+    }
+    else
+    {
+      this.segments.addLast( new Segment( aValues, aTimestamps, aCount ) );
+    }
+    this.size += aCount;
+
+    if ( this.size > this.maxTransitions )
+    {
+      evict( this.size - this.maxTransitions );
+    }
+  }
+
+  /**
+   * Evicts the given number of oldest transitions.
+   */
+  private void evict( final int aCount )
+  {
+    int remaining = aCount;
+    while ( remaining > 0 )
+    {
+      final Segment oldest = this.segments.getFirst();
+      final int available = oldest.length - this.first;
+      if ( available <= remaining )
+      {
+        this.segments.removeFirst();
+        this.first = 0;
+        this.size -= available;
+        remaining -= available;
+      }
+      else
+      {
+        this.first += remaining;
+        this.size -= remaining;
+        remaining = 0;
+      }
+    }
+  }
+
+  /**
+   * Evicts all transitions that lie entirely before the maximum duration.
+   */
+  private void evictByDuration()
+  {
+    if ( ( this.maxDuration <= 0.0 ) || ( this.rate <= 0 ) )
+    {
+      return;
+    }
+
+    final long windowStart = this.endTime - ( long )( this.maxDuration * this.rate );
+    // The oldest transition defines the value up to the next transition, so it
+    // can only be evicted when the next transition lies in the window...
+    while ( ( this.size > 1 ) && ( getSecondTimestamp() <= windowStart ) )
+    {
+      evict( 1 );
+    }
+  }
+
+  /**
+   * @return the value of the most recently retained transition.
+   */
+  private int getLastValue()
+  {
+    final Segment last = this.segments.getLast();
+    return last.values[last.length - 1];
+  }
+
+  /**
+   * @return the timestamp of the second oldest retained transition.
+   */
+  private long getSecondTimestamp()
+  {
+    final Segment oldest = this.segments.getFirst();
+    if ( ( this.first + 1 ) < oldest.length )
+    {
+      return oldest.timestamps[this.first + 1];
+    }
+    return this.segments.get( 1 ).timestamps[0];
+  }
+
+  /**
+   * @return the timestamp of the oldest retained transition.
+   */
+  private long getStartTime()
+  {
+    return ( this.size > 0 ) ? this.segments.getFirst().timestamps[this.first] : this.endTime;
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.acquisition;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.io.*;
+import java.util.*;
+import java.util.List;
+import java.util.concurrent.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.task.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link BackgroundDataAcquisitionService}.
+ */
+public class BackgroundDataAcquisitionServiceTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a task execution service that never runs its tasks, leaving them
+   * pending until they are cancelled.
+   */
+  static final class PendingTaskExecutionService implements TaskExecutionService
+  {
+    // VARIABLES
+
+    final List<Future<?>> futures = new ArrayList<Future<?>>();
+
+    // METHODS
+
+    @Override
+    public <RESULT_TYPE> Future<RESULT_TYPE> execute( final Task<RESULT_TYPE> aTask )
+    {
+      final FutureTask<RESULT_TYPE> future = new FutureTask<RESULT_TYPE>( aTask );
+      this.futures.add( future );
+      return future;
+    }
+  }
+
+  /**
+   * Provides a device whose acquisition task can be made to fail on creation.
+   */
+  static final class StubDevice implements Device
+  {
+    // VARIABLES
+
+    private final String name;
+    private final Exception failure;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new StubDevice instance.
+     */
+    StubDevice( final String aName, final Exception aFailure )
+    {
+      this.name = aName;
+      this.failure = aFailure;
+    }
+
+    // METHODS
+
+    @Override
+    public void close() throws IOException
+    {
+      // Nop
+    }
+
+    @Override
+    public AcquisitionTask createAcquisitionTask( final AcquisitionProgressListener aProgressListener )
+        throws IOException
+    {
+      if ( this.failure instanceof IOException )
+      {
+        throw ( IOException )this.failure;
+      }
+      else if ( this.failure instanceof RuntimeException )
+      {
+        throw ( RuntimeException )this.failure;
+      }
+
+      return new AcquisitionTask()
+      {
+        @Override
+        public AcquisitionResult call() throws Exception
+        {
+          return null;
+        }
+      };
+    }
+
+    @Override
+    public CancelTask createCancelTask() throws IOException
+    {
+      return null;
+    }
+
+    @Override
+    public String getName()
+    {
+      return this.name;
+    }
+
+    @Override
+    public boolean isSetup()
+    {
+      return true;
+    }
+
+    @Override
+    public boolean setupCapture( final Window aParent )
+    {
+      return true;
+    }
+  }
+
+  // VARIABLES
+
+  private PendingTaskExecutionService taskExecutionService;
+  private BackgroundDataAcquisitionService service;
+
+  // METHODS
+
+  /**
+   * Sets up the test cases.
+   */
+  @Before
+  public void setUp()
+  {
+    this.taskExecutionService = new PendingTaskExecutionService();
+    this.service = new BackgroundDataAcquisitionService( this.taskExecutionService );
+  }
+
+  /**
+   * Tests that a list with the same device twice aborts the device that was
+   * already started.
+   */
+  @Test
+  public void testAcquireDataDuplicateDeviceAbortsStartedDevices() throws IOException
+  {
+    final Device device = new StubDevice( "dev1", null );
+
+    try
+    {
+      this.service.acquireData( Arrays.asList( device, device ), false /* aAlignOnTrigger */);
+      fail( "IllegalStateException expected!" );
+    }
+    catch ( IllegalStateException exception )
+    {
+      // Ok; expected...
+    }
+
+    assertFalse( this.service.isAcquiring( device ) );
+    assertTrue( this.taskExecutionService.futures.get( 0 ).isCancelled() );
+  }
+
+  /**
+   * Tests that an I/O failure of one device aborts the devices that were
+   * already started.
+   */
+  @Test
+  public void testAcquireDataIOFailureAbortsStartedDevices()
+  {
+    final Device device1 = new StubDevice( "dev1", null );
+    final Device device2 = new StubDevice( "dev2", new IOException( "no port" ) );
+
+    try
+    {
+      this.service.acquireData( Arrays.asList( device1, device2 ), false /* aAlignOnTrigger */);
+      fail( "IOException expected!" );
+    }
+    catch ( IOException exception )
+    {
+      // Ok; expected...
+    }
+
+    assertFalse( this.service.isAcquiring() );
+    assertEquals( 1, this.taskExecutionService.futures.size() );
+    assertTrue( this.taskExecutionService.futures.get( 0 ).isCancelled() );
+  }
+
+  /**
+   * Tests that a runtime failure of one device aborts the devices that were
+   * already started, and does not leave the failed device registered.
+   */
+  @Test
+  public void testAcquireDataRuntimeFailureAbortsStartedDevices() throws IOException
+  {
+    final Device device1 = new StubDevice( "dev1", null );
+    final Device device2 = new StubDevice( "dev2", new IllegalArgumentException( "bad config" ) );
+
+    try
+    {
+      this.service.acquireData( Arrays.asList( device1, device2 ), false /* aAlignOnTrigger */);
+      fail( "IllegalArgumentException expected!" );
+    }
+    catch ( IllegalArgumentException exception )
+    {
+      // Ok; expected...
+    }
+
+    assertFalse( this.service.isAcquiring() );
+    assertTrue( this.taskExecutionService.futures.get( 0 ).isCancelled() );
+
+    // Both devices can be started again...
+    this.service.acquireData( Arrays.asList( device1, new StubDevice( "dev2", null ) ), false /* aAlignOnTrigger */);
+    assertTrue( this.service.isAcquiring( device1 ) );
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.acquisition;
+
+
+import static org.junit.Assert.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link RollingCaptureBuffer}.
+ * <p>
+ * Note that each snapshot repeats its last value at its absolute length.
+ * </p>
+ */
+public class RollingCaptureBufferTest
+{
+  // METHODS
+
+  /**
+   * Tests that repeated values are not stored, as only transitions are kept.
+   */
+  @Test
+  public void testAppendOnlyKeepsTransitions()
+  {
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, 10 );
+    buffer.append( createCapture( new int[] { 1, 1, 2 }, new long[] { 0L, 2L, 5L }, 10L, Ols.NOT_AVAILABLE ) );
+    buffer.append( createCapture( new int[] { 2, 3 }, new long[] { 0L, 4L }, 8L, Ols.NOT_AVAILABLE ) );
+
+    final AcquisitionResult snapshot = buffer.getSnapshot();
+    assertArrayEquals( new int[] { 1, 2, 3, 3 }, snapshot.getValues() );
+    assertArrayEquals( new long[] { 0L, 5L, 14L, 18L }, snapshot.getTimestamps() );
+  }
+
+  /**
+   * Tests that appending a capture with another channel layout clears the
+   * buffer.
+   */
+  @Test
+  public void testAppendOtherLayoutClearsBuffer()
+  {
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, 10 );
+    buffer.append( createCapture( new int[] { 1, 2 }, new long[] { 0L, 5L }, 10L, Ols.NOT_AVAILABLE ) );
+
+    final long offset = buffer.append( new CapturedData( new int[] { 3 }, new long[] { 0L }, Ols.NOT_AVAILABLE, 100,
+        4, 0x0F, 10L ) );
+
+    assertEquals( 0L, offset );
+
+    final AcquisitionResult snapshot = buffer.getSnapshot();
+    assertArrayEquals( new int[] { 3, 3 }, snapshot.getValues() );
+    assertEquals( 4, snapshot.getChannels() );
+  }
+
+  /**
+   * Tests that successive captures are appended back-to-back, and that
+   * append returns the offset of the capture in the snapshot.
+   */
+  @Test
+  public void testAppendReturnsTimestampOffset()
+  {
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, 10 );
+
+    assertEquals( 0L, buffer.append( createCapture( new int[] { 1, 2 }, new long[] { 0L, 5L }, 10L, 3L ) ) );
+    assertEquals( 10L, buffer.append( createCapture( new int[] { 3, 4 }, new long[] { 0L, 4L }, 8L,
+        Ols.NOT_AVAILABLE ) ) );
+
+    final AcquisitionResult snapshot = buffer.getSnapshot();
+    assertArrayEquals( new int[] { 1, 2, 3, 4, 4 }, snapshot.getValues() );
+    assertArrayEquals( new long[] { 0L, 5L, 10L, 14L, 18L }, snapshot.getTimestamps() );
+    assertEquals( 18L, snapshot.getAbsoluteLength() );
+    assertEquals( 3L, snapshot.getTriggerPosition() );
+  }
+
+  /**
+   * Tests that the oldest transitions are evicted across segments when the
+   * buffer is full.
+   */
+  @Test
+  public void testEvictionAcrossSegments()
+  {
+    final int count = 3 * RollingCaptureBuffer.MIN_SEGMENT_LENGTH;
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, count + 1 );
+    for ( int i = 0; i < 3; i++ )
+    {
+      buffer.append( createCapture( createValues( i * count, count ), createTimestamps( count ), count,
+          Ols.NOT_AVAILABLE ) );
+    }
+
+    // Only the last transitions of the second and all of the third capture are retained...
+    final AcquisitionResult snapshot = buffer.getSnapshot();
+    final int[] values = snapshot.getValues();
+    assertEquals( count + 2, values.length );
+    assertEquals( ( 2 * count ) - 1, values[0] );
+    assertEquals( ( 3 * count ) - 1, values[count] );
+    assertEquals( 0L, snapshot.getTimestamps()[0] );
+    assertEquals( count + 1L, snapshot.getAbsoluteLength() );
+  }
+
+  /**
+   * Tests that transitions before the maximum duration are evicted, while the
+   * transition defining the value at the start of the window is kept.
+   */
+  @Test
+  public void testEvictionByDuration()
+  {
+    // 100 Hz with 0.1 seconds yields a window of 10 samples...
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.1, 10 );
+    buffer.append( createCapture( new int[] { 1, 2, 3 }, new long[] { 0L, 4L, 8L }, 10L, 1L ) );
+
+    final long offset = buffer.append( createCapture( new int[] { 4, 5 }, new long[] { 1L, 5L }, 10L,
+        Ols.NOT_AVAILABLE ) );
+
+    // Window starts at 10; transition 3 @ 8 defines the value at that moment...
+    final AcquisitionResult snapshot = buffer.getSnapshot();
+    assertArrayEquals( new int[] { 3, 4, 5, 5 }, snapshot.getValues() );
+    assertArrayEquals( new long[] { 0L, 3L, 7L, 12L }, snapshot.getTimestamps() );
+    assertEquals( 12L, snapshot.getAbsoluteLength() );
+    assertEquals( 2L, offset );
+    // The trigger is evicted as well...
+    assertFalse( snapshot.hasTriggerData() );
+  }
+
+  /**
+   * Tests that appending only a few transitions at a time does not result in
+   * an equal number of segments.
+   */
+  @Test
+  public void testSmallAppendsAreMerged()
+  {
+    final int count = 4 * RollingCaptureBuffer.MIN_SEGMENT_LENGTH;
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, count );
+    for ( int i = 0; i < count; i++ )
+    {
+      buffer.append( createCapture( new int[] { i }, new long[] { 0L }, 1L, Ols.NOT_AVAILABLE ) );
+    }
+
+    assertTrue( buffer.getSegmentCount() <= 5 );
+
+    final int[] values = buffer.getSnapshot().getValues();
+    assertEquals( count + 1, values.length );
+    for ( int i = 0; i < count; i++ )
+    {
+      assertEquals( i, values[i] );
+    }
+  }
+
+  /**
+   * Tests that a snapshot keeps the data retained at the moment it was taken,
+   * even though its data is only copied upon first use.
+   */
+  @Test
+  public void testSnapshotIsUnaffectedByLaterChanges()
+  {
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, 3 );
+    buffer.append( createCapture( new int[] { 1, 2 }, new long[] { 0L, 5L }, 10L, 3L ) );
+
+    final AcquisitionResult first = buffer.getSnapshot();
+
+    buffer.append( createCapture( new int[] { 3, 4 }, new long[] { 0L, 4L }, 8L, Ols.NOT_AVAILABLE ) );
+    final AcquisitionResult second = buffer.getSnapshot();
+    buffer.clear();
+
+    assertArrayEquals( new int[] { 1, 2, 2 }, first.getValues() );
+    assertArrayEquals( new long[] { 0L, 5L, 10L }, first.getTimestamps() );
+    assertEquals( 3L, first.getTriggerPosition() );
+
+    assertArrayEquals( new int[] { 2, 3, 4, 4 }, second.getValues() );
+    assertArrayEquals( new long[] { 0L, 5L, 9L, 13L }, second.getTimestamps() );
+    assertFalse( second.hasTriggerData() );
+  }
+
+  /**
+   * Tests that the oldest transitions are overwritten when the buffer is full.
+   */
+  @Test
+  public void testWrapAroundEvictsOldest()
+  {
+    final RollingCaptureBuffer buffer = new RollingCaptureBuffer( 0.0, 3 );
+    buffer.append( createCapture( new int[] { 1, 2 }, new long[] { 0L, 5L }, 10L, Ols.NOT_AVAILABLE ) );
+
+    final long offset = buffer.append( createCapture( new int[] { 3, 4, 5 }, new long[] { 0L, 3L, 6L }, 10L,
+        Ols.NOT_AVAILABLE ) );
+
+    final AcquisitionResult snapshot = buffer.getSnapshot();
+    assertArrayEquals( new int[] { 3, 4, 5, 5 }, snapshot.getValues() );
+    assertArrayEquals( new long[] { 0L, 3L, 6L, 10L }, snapshot.getTimestamps() );
+    assertEquals( 10L, snapshot.getAbsoluteLength() );
+    assertEquals( 0L, offset );
+  }
+
+  /**
+   * Tests that a buffer cannot be created without room for transitions.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testZeroTransitionsFail()
+  {
+    new RollingCaptureBuffer( 0.0, 0 );
+  }
+
+  /**
+   * Creates a capture of eight channels sampled at 100 Hz.
+   */
+  private AcquisitionResult createCapture( final int[] aValues, final long[] aTimestamps, final long aAbsLen,
+      final long aTriggerPos )
+  {
+    return new CapturedData( aValues, aTimestamps, aTriggerPos, 100, 8, 0xFF, aAbsLen );
+  }
+
+  /**
+   * Creates the timestamps 0..N-1.
+   */
+  private long[] createTimestamps( final int aCount )
+  {
+    final long[] result = new long[aCount];
+    for ( int i = 0; i < aCount; i++ )
+    {
+      result[i] = i;
+    }
+    return result;
+  }
+
+  /**
+   * Creates the values N..N+M-1.
+   */
+  private int[] createValues( final int aFirst, final int aCount )
+  {
+    final int[] result = new int[aCount];
+    for ( int i = 0; i < aCount; i++ )
+    {
+      result[i] = aFirst + i;
+    }
+    return result;
+  }
+}
@@ -0,0 +1,170 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.batch;
+
+
+import java.io.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.util.osgi.*;
+
+import org.apache.felix.dm.*;
+import org.osgi.framework.*;
+
+
+/**
+ * Provides the bundle activator for the headless batch service. It only does
+ * something when the framework is started with a batch job.
+ */
+public class Activator extends DependencyActivatorBase
+{
+  // INNER TYPES
+
+  static class DeviceBundleAdapter extends GenericBundleAdapter<Device>
+  {
+    /**
+     * Creates a new {@link DeviceBundleAdapter} instance.
+     */
+    public DeviceBundleAdapter()
+    {
+      super( Device.class, BundleHeaders.OLS_DEVICE_CLASS_KEY );
+    }
+  }
+
+  static class ExporterBundleAdapter extends GenericBundleAdapter<Exporter>
+  {
+    /**
+     * Creates a new {@link ExporterBundleAdapter} instance.
+     */
+    public ExporterBundleAdapter()
+    {
+      super( Exporter.class, BundleHeaders.OLS_EXPORTER_CLASS_KEY );
+    }
+  }
+
+  @SuppressWarnings( "rawtypes" )
+  static class ToolBundleAdapter extends GenericBundleAdapter<Tool>
+  {
+    /**
+     * Creates a new {@link ToolBundleAdapter} instance.
+     */
+    public ToolBundleAdapter()
+    {
+      super( Tool.class, BundleHeaders.OLS_TOOL_CLASS_KEY );
+    }
+  }
+
+  // CONSTANTS
+
+  /** The framework property that denotes the job file to run. */
+  public static final String BATCH_JOB_PROPERTY = "nl.lxtreme.ols.batch.job";
+
+  private static final Logger LOG = Logger.getLogger( Activator.class.getName() );
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void destroy( final BundleContext aContext, final DependencyManager aManager ) throws Exception
+  {
+    // Nothing...
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void init( final BundleContext aContext, final DependencyManager aManager ) throws Exception
+  {
+    final String jobFile = aContext.getProperty( BATCH_JOB_PROPERTY );
+    if ( ( jobFile == null ) || "".equals( jobFile.trim() ) )
+    {
+      // Not running in batch mode; nothing to do...
+      return;
+    }
+
+    final BatchJob job;
+    try
+    {
+      job = BatchJob.read( new File( jobFile.trim() ) );
+    }
+    catch ( Exception exception )
+    {
+      LOG.log( Level.SEVERE, "Failed to read batch job: " + jobFile + "!", exception );
+
+      System.setProperty( BatchRunner.EXIT_CODE_PROPERTY, "1" );
+      // Stopping the system bundle shuts down the entire framework...
+      aContext.getBundle( 0 ).stop();
+      return;
+    }
+
+    // Tool and exporter bundles can be lazily activated...
+    final int lazyStateMask = Bundle.STARTING | Bundle.ACTIVE;
+
+    aManager.add( createBundleAdapterService( lazyStateMask, BundleHeaders.TOOL_BUNDLE_FILTER,
+        true /* propagate */) //
+        .setImplementation( ToolBundleAdapter.class ) );
+
+    aManager.add( createBundleAdapterService( Bundle.ACTIVE, BundleHeaders.DEVICE_BUNDLE_FILTER,
+        true /* propagate */) //
+        .setImplementation( DeviceBundleAdapter.class ) );
+
+    aManager.add( createBundleAdapterService( lazyStateMask, BundleHeaders.EXPORTER_BUNDLE_FILTER,
+        true /* propagate */) //
+        .setImplementation( ExporterBundleAdapter.class ) );
+
+    final String[] serviceNames = new String[] { AcquisitionDataListener.class.getName(),
+        AcquisitionStatusListener.class.getName() };
+
+    aManager.add( createComponent() //
+        .setInterface( serviceNames, null ) //
+        .setImplementation( new BatchRunner( aContext, job ) ) //
+        .add( createServiceDependency() //
+            .setService( ProjectManager.class ) //
+            .setRequired( true ) ) //
+        .add( createServiceDependency() //
+            .setService( DataAcquisitionService.class ) //
+            .setRequired( true ) ) //
+        .add( createServiceDependency() //
+            .setService( Device.class ) //
+            .setCallbacks( "addDevice", "removeDevice" ) //
+            .setRequired( false ) ) //
+        .add( createServiceDependency() //
+            .setService( Tool.class ) //
+            .setCallbacks( "addTool", "removeTool" ) //
+            .setRequired( false ) ) //
+        .add( createServiceDependency() //
+            .setService( Exporter.class ) //
+            .setCallbacks( "addExporter", "removeExporter" ) //
+            .setRequired( false ) ) //
+        );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,258 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.batch;
+
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Describes a single batch job, as read from a job file.
+ * <p>
+ * A job file is a plain properties file, like:
+ * </p>
+ * 
+ * <pre>
+ * # either read data from file...
+ * input = capture.ols
+ * # ...or acquire it with a (configurable) device
+ * device = OpenBench LogicSniffer
+ * device.uri = comm:/dev/ttyACM0;baudrate=115200
+ * device.sampleRate = 1000000
+ * 
+ * tools = uart
+ * tool.uart.name = UART analyser
+ * tool.uart.rxd = 1
+ * tool.uart.output = uart.csv
+ * 
+ * exporters = vcd
+ * export.vcd.name = Value Change Dump
+ * export.vcd.file = capture.vcd
+ * 
+ * save = capture.olp
+ * </pre>
+ * <p>
+ * All file names are relative to the directory of the job file.
+ * </p>
+ */
+final class BatchJob
+{
+  // INNER TYPES
+
+  /**
+   * Describes a single exporter of a batch job.
+   */
+  static final class ExportJob
+  {
+    // VARIABLES
+
+    final String id;
+    final String name;
+    final File file;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ExportJob instance.
+     */
+    ExportJob( final String aID, final String aName, final File aFile )
+    {
+      this.id = aID;
+      this.name = aName;
+      this.file = aFile;
+    }
+  }
+
+  /**
+   * Describes a single tool of a batch job.
+   */
+  static final class ToolJob
+  {
+    // VARIABLES
+
+    final String id;
+    final String name;
+    final BatchSettings settings;
+    final File output;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new ToolJob instance.
+     */
+    ToolJob( final String aID, final String aName, final BatchSettings aSettings, final File aOutput )
+    {
+      this.id = aID;
+      this.name = aName;
+      this.settings = aSettings;
+      this.output = aOutput;
+    }
+  }
+
+  // VARIABLES
+
+  final File input;
+  final String deviceName;
+  final BatchSettings deviceSettings;
+  final List<ToolJob> tools;
+  final List<ExportJob> exports;
+  final File saveFile;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BatchJob instance.
+   */
+  private BatchJob( final Properties aProperties, final File aBaseDir )
+  {
+    this.input = getFile( aProperties, "input", aBaseDir );
+    this.deviceName = getString( aProperties, "device" );
+    this.deviceSettings = BatchSettings.create( aProperties, "device." );
+    this.saveFile = getFile( aProperties, "save", aBaseDir );
+
+    if ( ( this.input == null ) == ( this.deviceName == null ) )
+    {
+      throw new IllegalArgumentException( "Job should define either an input file or a device!" );
+    }
+
+    this.tools = new ArrayList<ToolJob>();
+    for ( String id : getList( aProperties, "tools" ) )
+    {
+      final String prefix = "tool." + id + ".";
+
+      final String name = getString( aProperties, prefix + "name" );
+      if ( name == null )
+      {
+        throw new IllegalArgumentException( "No name given for tool: " + id + "!" );
+      }
+
+      this.tools.add( new ToolJob( id, name, BatchSettings.create( aProperties, prefix ), //
+          getFile( aProperties, prefix + "output", aBaseDir ) ) );
+    }
+
+    this.exports = new ArrayList<ExportJob>();
+    for ( String id : getList( aProperties, "exporters" ) )
+    {
+      final String prefix = "export." + id + ".";
+
+      final String name = getString( aProperties, prefix + "name" );
+      final File file = getFile( aProperties, prefix + "file", aBaseDir );
+      if ( ( name == null ) || ( file == null ) )
+      {
+        throw new IllegalArgumentException( "No name or file given for exporter: " + id + "!" );
+      }
+
+      this.exports.add( new ExportJob( id, name, file ) );
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Reads a batch job from the given file.
+   * 
+   * @param aFile
+   *          the job file to read, cannot be <code>null</code>.
+   * @return the batch job, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems reading the job file;
+   * @throws IllegalArgumentException
+   *           in case the job file is invalid.
+   */
+  public static BatchJob read( final File aFile ) throws IOException, IllegalArgumentException
+  {
+    final Properties props = new Properties();
+
+    final InputStream is = new FileInputStream( aFile );
+    try
+    {
+      props.load( is );
+    }
+    finally
+    {
+      HostUtils.closeResource( is );
+    }
+
+    return new BatchJob( props, aFile.getAbsoluteFile().getParentFile() );
+  }
+
+  /**
+   * Returns the file denoted by the given property, resolved against the given
+   * base directory.
+   */
+  private static File getFile( final Properties aProperties, final String aKey, final File aBaseDir )
+  {
+    final String value = getString( aProperties, aKey );
+    if ( value == null )
+    {
+      return null;
+    }
+
+    final File file = new File( value );
+    if ( file.isAbsolute() )
+    {
+      return file;
+    }
+    return new File( aBaseDir, value );
+  }
+
+  /**
+   * Returns the comma-separated values of the given property.
+   */
+  private static List<String> getList( final Properties aProperties, final String aKey )
+  {
+    final List<String> result = new ArrayList<String>();
+
+    final String value = getString( aProperties, aKey );
+    if ( value != null )
+    {
+      for ( String item : value.split( "," ) )
+      {
+        if ( !"".equals( item.trim() ) )
+        {
+          result.add( item.trim() );
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the trimmed value of the given property.
+   * 
+   * @return the value, or <code>null</code> if the property is not set or
+   *         empty.
+   */
+  private static String getString( final Properties aProperties, final String aKey )
+  {
+    final String value = aProperties.getProperty( aKey );
+    if ( ( value == null ) || "".equals( value.trim() ) )
+    {
+      return null;
+    }
+    return value.trim();
+  }
+}
+
+/* EOF */
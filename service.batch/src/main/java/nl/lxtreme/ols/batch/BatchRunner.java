@@ -0,0 +1,644 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.batch;
+
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.data.export.*;
+import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.devices.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.batch.BatchJob.ExportJob;
+import nl.lxtreme.ols.batch.BatchJob.ToolJob;
+import nl.lxtreme.ols.util.*;
+
+import org.osgi.framework.*;
+
+
+/**
+ * Runs a single batch job: it reads or acquires the data, runs all tools and
+ * exporters on it, and shuts down the framework when done.
+ */
+final class BatchRunner implements AcquisitionDataListener, AcquisitionStatusListener, Runnable
+{
+  // INNER TYPES
+
+  /**
+   * Collects all annotations produced by a tool.
+   */
+  static final class AnnotationCollector implements AnnotationListener
+  {
+    // VARIABLES
+
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      this.annotations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      final Iterator<Annotation<?>> iter = this.annotations.iterator();
+      while ( iter.hasNext() )
+      {
+        if ( iter.next().getChannel() == aChannelIdx )
+        {
+          iter.remove();
+        }
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      this.annotations.add( aAnnotation );
+    }
+  }
+
+  /**
+   * Provides a tool context that spans the entire data set.
+   */
+  static final class BatchToolContext implements ToolContext
+  {
+    // VARIABLES
+
+    private final DataSet dataSet;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new BatchToolContext instance.
+     */
+    BatchToolContext( final DataSet aDataSet )
+    {
+      this.dataSet = aDataSet;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannels()
+    {
+      return getData().getChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cursor getCursor( final int aIndex )
+    {
+      return this.dataSet.getCursor( aIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AcquisitionResult getData()
+    {
+      return this.dataSet.getCapturedData();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEnabledChannels()
+    {
+      return getData().getEnabledChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndSampleIndex()
+    {
+      return Math.max( 0, getData().getValues().length - 1 );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLength()
+    {
+      return getEndSampleIndex();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStartSampleIndex()
+    {
+      return 0;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The system property in which the exit code of the batch job is stored. */
+  public static final String EXIT_CODE_PROPERTY = "nl.lxtreme.ols.batch.exitCode";
+
+  private static final long SERVICE_TIMEOUT = 30000L;
+
+  private static final Logger LOG = Logger.getLogger( BatchRunner.class.getName() );
+
+  // VARIABLES
+
+  private final BundleContext context;
+  private final BatchJob job;
+  private final Map<String, Device> devices;
+  private final Map<String, Tool<?>> tools;
+  private final Map<String, Exporter> exporters;
+  private final CountDownLatch acquisitionDone;
+
+  private volatile ProjectManager projectManager; // injected
+  private volatile DataAcquisitionService acquisitionService; // injected
+  private volatile AcquisitionResult acquiredData;
+  private volatile AcquisitionResultStatus acquisitionStatus;
+  private volatile Thread runner;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BatchRunner instance.
+   * 
+   * @param aContext
+   *          the bundle context to use, cannot be <code>null</code>;
+   * @param aJob
+   *          the batch job to run, cannot be <code>null</code>.
+   */
+  public BatchRunner( final BundleContext aContext, final BatchJob aJob )
+  {
+    this.context = aContext;
+    this.job = aJob;
+
+    this.devices = new HashMap<String, Device>();
+    this.tools = new HashMap<String, Tool<?>>();
+    this.exporters = new HashMap<String, Exporter>();
+    this.acquisitionDone = new CountDownLatch( 1 );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquisitionComplete( final AcquisitionResult aData )
+  {
+    this.acquiredData = aData;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquisitionEnded( final AcquisitionResultStatus aStatus )
+  {
+    this.acquisitionStatus = aStatus;
+    this.acquisitionDone.countDown();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void acquisitionStarted()
+  {
+    // Nothing...
+  }
+
+  /**
+   * Adds the given device; called by the dependency manager.
+   */
+  public void addDevice( final Device aDevice )
+  {
+    synchronized ( this.devices )
+    {
+      this.devices.put( aDevice.getName(), aDevice );
+      this.devices.notifyAll();
+    }
+  }
+
+  /**
+   * Adds the given exporter; called by the dependency manager.
+   */
+  public void addExporter( final Exporter aExporter )
+  {
+    synchronized ( this.exporters )
+    {
+      this.exporters.put( aExporter.getName(), aExporter );
+      this.exporters.notifyAll();
+    }
+  }
+
+  /**
+   * Adds the given tool; called by the dependency manager.
+   */
+  public void addTool( final Tool<?> aTool )
+  {
+    synchronized ( this.tools )
+    {
+      this.tools.put( aTool.getName(), aTool );
+      this.tools.notifyAll();
+    }
+  }
+
+  /**
+   * Removes the given device; called by the dependency manager.
+   */
+  public void removeDevice( final Device aDevice )
+  {
+    synchronized ( this.devices )
+    {
+      this.devices.remove( aDevice.getName() );
+    }
+  }
+
+  /**
+   * Removes the given exporter; called by the dependency manager.
+   */
+  public void removeExporter( final Exporter aExporter )
+  {
+    synchronized ( this.exporters )
+    {
+      this.exporters.remove( aExporter.getName() );
+    }
+  }
+
+  /**
+   * Removes the given tool; called by the dependency manager.
+   */
+  public void removeTool( final Tool<?> aTool )
+  {
+    synchronized ( this.tools )
+    {
+      this.tools.remove( aTool.getName() );
+    }
+  }
+
+  /**
+   * Runs the batch job and shuts down the framework afterwards.
+   */
+  @Override
+  public void run()
+  {
+    int exitCode = 0;
+
+    try
+    {
+      execute();
+
+      LOG.info( "Batch job completed successfully..." );
+    }
+    catch ( InterruptedException exception )
+    {
+      LOG.warning( "Batch job interrupted!" );
+      exitCode = 2;
+    }
+    catch ( Exception exception )
+    {
+      LOG.log( Level.SEVERE, "Batch job failed!", exception );
+      exitCode = 1;
+    }
+    finally
+    {
+      System.setProperty( EXIT_CODE_PROPERTY, Integer.toString( exitCode ) );
+    }
+
+    try
+    {
+      // Stopping the system bundle shuts down the entire framework...
+      this.context.getBundle( 0 ).stop();
+    }
+    catch ( BundleException exception )
+    {
+      LOG.log( Level.WARNING, "Failed to stop framework!", exception );
+    }
+  }
+
+  /**
+   * Called by the dependency manager when this component is started.
+   */
+  public void start()
+  {
+    this.runner = new Thread( this, "OLS batch runner" );
+    this.runner.start();
+  }
+
+  /**
+   * Called by the dependency manager when this component is stopped.
+   */
+  public void stop()
+  {
+    final Thread thread = this.runner;
+    this.runner = null;
+
+    if ( ( thread != null ) && ( thread != Thread.currentThread() ) )
+    {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Acquires the data with the device of the batch job.
+   */
+  private void acquireData( final Project aProject ) throws IOException, InterruptedException
+  {
+    final Device device = waitForService( this.devices, this.job.deviceName, "device" );
+    if ( !( device instanceof ConfigurableDevice ) )
+    {
+      throw new IllegalArgumentException( "Device cannot be configured headless: " + this.job.deviceName + "!" );
+    }
+
+    ( ( ConfigurableDevice )device ).setupCapture( this.job.deviceSettings );
+
+    LOG.info( "Acquiring data from " + this.job.deviceName + "..." );
+
+    this.acquisitionService.acquireData( device );
+    this.acquisitionDone.await();
+
+    final AcquisitionResultStatus status = this.acquisitionStatus;
+    if ( ( status == null ) || !status.isCompletedNormally() || ( this.acquiredData == null ) )
+    {
+      throw new IOException( "Acquisition failed: " + ( ( status == null ) ? "unknown reason" : status.getMessage() ) );
+    }
+
+    aProject.setCapturedData( this.acquiredData );
+  }
+
+  /**
+   * Executes all steps of the batch job.
+   */
+  private void execute() throws IOException, InterruptedException
+  {
+    Project project = this.projectManager.getCurrentProject();
+    if ( this.job.input != null )
+    {
+      project = readInput( project );
+    }
+    else
+    {
+      acquireData( project );
+    }
+
+    final DataSet dataSet = project.getDataSet();
+    if ( dataSet.getCapturedData() == null )
+    {
+      throw new IOException( "No data available to process!" );
+    }
+
+    for ( ToolJob toolJob : this.job.tools )
+    {
+      runTool( toolJob, dataSet );
+    }
+
+    for ( ExportJob exportJob : this.job.exports )
+    {
+      runExporter( exportJob, dataSet );
+    }
+
+    if ( this.job.saveFile != null )
+    {
+      LOG.info( "Saving project to " + this.job.saveFile + "..." );
+
+      final OutputStream os = new FileOutputStream( this.job.saveFile );
+      try
+      {
+        project.setFilename( this.job.saveFile );
+        this.projectManager.saveProject( os );
+      }
+      finally
+      {
+        HostUtils.closeResource( os );
+      }
+    }
+  }
+
+  /**
+   * Reads the input file of the batch job, either as project or as data file.
+   * 
+   * @return the (new) current project, never <code>null</code>.
+   */
+  private Project readInput( final Project aProject ) throws IOException
+  {
+    LOG.info( "Reading data from " + this.job.input + "..." );
+
+    if ( "olp".equalsIgnoreCase( HostUtils.getFileExtension( this.job.input ) ) )
+    {
+      final InputStream is = new FileInputStream( this.job.input );
+      try
+      {
+        this.projectManager.loadProject( is );
+      }
+      finally
+      {
+        HostUtils.closeResource( is );
+      }
+      return this.projectManager.getCurrentProject();
+    }
+
+    final Reader reader = new FileReader( this.job.input );
+    try
+    {
+      aProject.readData( reader );
+    }
+    finally
+    {
+      HostUtils.closeResource( reader );
+    }
+    return aProject;
+  }
+
+  /**
+   * Runs a single exporter of the batch job.
+   */
+  private void runExporter( final ExportJob aJob, final DataSet aDataSet ) throws IOException, InterruptedException
+  {
+    final Exporter exporter = waitForService( this.exporters, aJob.name, "exporter" );
+
+    LOG.info( "Exporting data to " + aJob.file + "..." );
+
+    final OutputStream os = new FileOutputStream( aJob.file );
+    try
+    {
+      // There is no view component to export in headless mode...
+      exporter.export( aDataSet, null, os );
+    }
+    finally
+    {
+      HostUtils.closeResource( os );
+    }
+  }
+
+  /**
+   * Runs a single tool of the batch job, and writes its annotations to its
+   * output file (if given).
+   */
+  private void runTool( final ToolJob aJob, final DataSet aDataSet ) throws IOException, InterruptedException
+  {
+    final Tool<?> tool = waitForService( this.tools, aJob.name, "tool" );
+
+    final AnnotationCollector collector = new AnnotationCollector();
+    final ToolProgressListener progressListener = new ToolProgressListener()
+    {
+      @Override
+      public void setProgress( final int aPercentage )
+      {
+        // Nothing...
+      }
+    };
+
+    final ToolTask<?> task = tool.createToolTask( new BatchToolContext( aDataSet ), progressListener, collector );
+    if ( task instanceof Configurable )
+    {
+      ( ( Configurable )task ).readPreferences( aJob.settings );
+    }
+    else
+    {
+      LOG.warning( "Tool " + aJob.name + " cannot be configured headless; using its defaults..." );
+    }
+
+    LOG.info( "Running tool " + aJob.name + "..." );
+
+    try
+    {
+      task.call();
+    }
+    catch ( InterruptedException exception )
+    {
+      throw exception;
+    }
+    catch ( IOException exception )
+    {
+      throw exception;
+    }
+    catch ( Exception exception )
+    {
+      final IOException ioException = new IOException( "Tool " + aJob.name + " failed: " + exception.getMessage() );
+      ioException.initCause( exception );
+      throw ioException;
+    }
+
+    if ( aJob.output != null )
+    {
+      writeAnnotations( aJob.output, collector.annotations );
+    }
+  }
+
+  /**
+   * Waits until the service with the given name becomes available.
+   * 
+   * @throws IllegalArgumentException
+   *           in case no such service became available in time.
+   */
+  private <T> T waitForService( final Map<String, T> aServices, final String aName, final String aKind )
+      throws InterruptedException
+  {
+    final long deadline = System.currentTimeMillis() + SERVICE_TIMEOUT;
+
+    synchronized ( aServices )
+    {
+      T result;
+      while ( ( result = aServices.get( aName ) ) == null )
+      {
+        final long remaining = deadline - System.currentTimeMillis();
+        if ( remaining <= 0L )
+        {
+          throw new IllegalArgumentException( "No such " + aKind + ": " + aName + "!" );
+        }
+        aServices.wait( remaining );
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Writes the given annotations as CSV to the given file.
+   */
+  private void writeAnnotations( final File aFile, final List<Annotation<?>> aAnnotations ) throws IOException
+  {
+    final PrintWriter writer = new PrintWriter( new BufferedWriter( new FileWriter( aFile ) ) );
+    try
+    {
+      writer.println( "channel,start,end,annotation" );
+      for ( Annotation<?> annotation : aAnnotations )
+      {
+        writer.print( annotation.getChannel() );
+        writer.print( ',' );
+        if ( annotation instanceof DataAnnotation<?> )
+        {
+          final DataAnnotation<?> dataAnnotation = ( DataAnnotation<?> )annotation;
+          writer.print( dataAnnotation.getStartTimestamp() );
+          writer.print( ',' );
+          writer.print( dataAnnotation.getEndTimestamp() );
+        }
+        else
+        {
+          writer.print( ',' );
+        }
+        writer.print( ",\"" );
+        writer.print( String.valueOf( annotation.getAnnotation() ).replace( "\"", "\"\"" ) );
+        writer.println( '"' );
+      }
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    if ( writer.checkError() )
+    {
+      throw new IOException( "Failed to write annotations to " + aFile + "!" );
+    }
+  }
+}
+
+/* EOF */
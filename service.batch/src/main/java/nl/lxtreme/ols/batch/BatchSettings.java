@@ -0,0 +1,220 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.batch;
+
+
+import java.util.*;
+import java.util.Map.Entry;
+
+import nl.lxtreme.ols.api.*;
+
+
+/**
+ * Provides a {@link UserSettings} implementation for the settings of a single
+ * device, tool or exporter of a batch job.
+ */
+final class BatchSettings implements UserSettings
+{
+  // CONSTANTS
+
+  private static final long serialVersionUID = 1L;
+
+  // VARIABLES
+
+  private final String name;
+  private final Properties properties;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BatchSettings instance.
+   * 
+   * @param aName
+   *          the name of these settings, cannot be <code>null</code>.
+   */
+  public BatchSettings( final String aName )
+  {
+    this.name = aName;
+    this.properties = new Properties();
+  }
+
+  // METHODS
+
+  /**
+   * Creates a new settings object with all properties starting with the given
+   * prefix. The prefix is stripped from the names of these properties.
+   * 
+   * @param aProperties
+   *          the properties to take the settings from, cannot be
+   *          <code>null</code>;
+   * @param aPrefix
+   *          the prefix of the properties to take, cannot be <code>null</code>
+   *          .
+   * @return a new settings object, never <code>null</code>.
+   */
+  public static BatchSettings create( final Properties aProperties, final String aPrefix )
+  {
+    final BatchSettings result = new BatchSettings( aPrefix );
+    for ( String key : aProperties.stringPropertyNames() )
+    {
+      if ( key.startsWith( aPrefix ) && ( key.length() > aPrefix.length() ) )
+      {
+        result.put( key.substring( aPrefix.length() ), aProperties.getProperty( key ).trim() );
+      }
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String get( final String aName, final String aDefaultValue )
+  {
+    return this.properties.getProperty( aName, aDefaultValue );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean getBoolean( final String aName, final boolean aDefaultValue )
+  {
+    final String value = this.properties.getProperty( aName );
+    if ( value == null )
+    {
+      return aDefaultValue;
+    }
+    return Boolean.parseBoolean( value );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getInt( final String aName, final int aDefaultValue )
+  {
+    final String value = this.properties.getProperty( aName );
+    if ( value == null )
+    {
+      return aDefaultValue;
+    }
+    try
+    {
+      return Integer.parseInt( value );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IllegalArgumentException( "Invalid value for " + this.name + aName + ": " + value + "!" );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public long getLong( final String aName, final long aDefaultValue )
+  {
+    final String value = this.properties.getProperty( aName );
+    if ( value == null )
+    {
+      return aDefaultValue;
+    }
+    try
+    {
+      return Long.parseLong( value );
+    }
+    catch ( NumberFormatException exception )
+    {
+      throw new IllegalArgumentException( "Invalid value for " + this.name + aName + ": " + value + "!" );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return this.name;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<Entry<String, Object>> iterator()
+  {
+    final Map<String, Object> result = new TreeMap<String, Object>();
+    for ( String key : this.properties.stringPropertyNames() )
+    {
+      result.put( key, this.properties.getProperty( key ) );
+    }
+    return Collections.unmodifiableMap( result ).entrySet().iterator();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void put( final String aName, final String aValue )
+  {
+    this.properties.put( aName, aValue );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putAll( final Map<?, ?> aSettings )
+  {
+    this.properties.putAll( aSettings );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putBoolean( final String aName, final boolean aValue )
+  {
+    this.properties.put( aName, Boolean.toString( aValue ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putInt( final String aName, final int aValue )
+  {
+    this.properties.put( aName, Integer.toString( aValue ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void putLong( final String aName, final long aValue )
+  {
+    this.properties.put( aName, Long.toString( aValue ) );
+  }
+}
+
+/* EOF */
@@ -0,0 +1,198 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.batch;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.batch.BatchJob.ExportJob;
+import nl.lxtreme.ols.batch.BatchJob.ToolJob;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link BatchJob}.
+ */
+public class BatchJobTest
+{
+  // VARIABLES
+
+  private File jobFile;
+
+  // METHODS
+
+  /**
+   * Sets up the test cases.
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.jobFile = File.createTempFile( "ols", ".job" );
+    this.jobFile.deleteOnExit();
+  }
+
+  /**
+   * Tears down the test cases.
+   */
+  @After
+  public void tearDown()
+  {
+    this.jobFile.delete();
+  }
+
+  /**
+   * Tests that a job with a device is read, including its device settings.
+   */
+  @Test
+  public void testReadDeviceJob() throws IOException
+  {
+    final BatchJob job = readJob( "device = Test Device", "device.sampleRate = 1000000", "device.enabled = true" );
+
+    assertNull( job.input );
+    assertEquals( "Test Device", job.deviceName );
+    assertEquals( 1000000, job.deviceSettings.getInt( "sampleRate", -1 ) );
+    assertTrue( job.deviceSettings.getBoolean( "enabled", false ) );
+    assertTrue( job.tools.isEmpty() );
+    assertTrue( job.exports.isEmpty() );
+  }
+
+  /**
+   * Tests that an exporter without a file is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testReadExporterWithoutFileFails() throws IOException
+  {
+    readJob( "input = capture.ols", "exporters = vcd", "export.vcd.name = VCD" );
+  }
+
+  /**
+   * Tests that exporters are read in order, with their files resolved against
+   * the directory of the job file.
+   */
+  @Test
+  public void testReadExporters() throws IOException
+  {
+    final File absolute = new File( "out.csv" ).getAbsoluteFile();
+    final BatchJob job = readJob( "input = capture.ols", "exporters = vcd, csv", "export.vcd.name = VCD",
+        "export.vcd.file = capture.vcd", "export.csv.name = CSV", "export.csv.file = "
+            + absolute.getPath().replace( "\\", "\\\\" ) );
+
+    assertEquals( 2, job.exports.size() );
+
+    final ExportJob vcd = job.exports.get( 0 );
+    assertEquals( "vcd", vcd.id );
+    assertEquals( "VCD", vcd.name );
+    assertEquals( new File( this.jobFile.getAbsoluteFile().getParentFile(), "capture.vcd" ), vcd.file );
+
+    final ExportJob csv = job.exports.get( 1 );
+    assertEquals( "csv", csv.id );
+    assertEquals( absolute, csv.file );
+  }
+
+  /**
+   * Tests that a job with both an input file and a device is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testReadInputAndDeviceFails() throws IOException
+  {
+    readJob( "input = capture.ols", "device = Test Device" );
+  }
+
+  /**
+   * Tests that an input file is resolved against the directory of the job
+   * file.
+   */
+  @Test
+  public void testReadInputJob() throws IOException
+  {
+    final BatchJob job = readJob( "input = capture.ols", "save = result.olp" );
+
+    final File baseDir = this.jobFile.getAbsoluteFile().getParentFile();
+    assertEquals( new File( baseDir, "capture.ols" ), job.input );
+    assertEquals( new File( baseDir, "result.olp" ), job.saveFile );
+    assertNull( job.deviceName );
+  }
+
+  /**
+   * Tests that a job without an input file or device is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testReadNoInputOrDeviceFails() throws IOException
+  {
+    readJob( "save = result.olp" );
+  }
+
+  /**
+   * Tests that a tool without a name is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testReadToolWithoutNameFails() throws IOException
+  {
+    readJob( "input = capture.ols", "tools = uart", "tool.uart.rxd = 1" );
+  }
+
+  /**
+   * Tests that tools are read with their settings and optional output, while
+   * empty list items are skipped.
+   */
+  @Test
+  public void testReadTools() throws IOException
+  {
+    final BatchJob job = readJob( "input = capture.ols", "tools = uart, , spi", "tool.uart.name = UART analyser",
+        "tool.uart.rxd = 1", "tool.uart.output = uart.csv", "tool.spi.name = SPI analyser" );
+
+    assertEquals( 2, job.tools.size() );
+
+    final ToolJob uart = job.tools.get( 0 );
+    assertEquals( "uart", uart.id );
+    assertEquals( "UART analyser", uart.name );
+    assertEquals( 1, uart.settings.getInt( "rxd", -1 ) );
+    assertEquals( new File( this.jobFile.getAbsoluteFile().getParentFile(), "uart.csv" ), uart.output );
+
+    final ToolJob spi = job.tools.get( 1 );
+    assertEquals( "spi", spi.id );
+    assertNull( spi.output );
+  }
+
+  /**
+   * Writes the given lines to the job file and reads it as batch job.
+   */
+  private BatchJob readJob( final String... aLines ) throws IOException
+  {
+    final PrintWriter writer = new PrintWriter( new FileWriter( this.jobFile ) );
+    try
+    {
+      for ( String line : aLines )
+      {
+        writer.println( line );
+      }
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    return BatchJob.read( this.jobFile );
+  }
+}
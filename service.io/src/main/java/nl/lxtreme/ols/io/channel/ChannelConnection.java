@@ -0,0 +1,59 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.io.channel;
+
+
+import java.io.*;
+import java.nio.channels.*;
+
+import javax.microedition.io.*;
+
+
+/**
+ * Provides a {@link StreamConnection} whose incoming data can also be read
+ * through a NIO-channel.
+ * <p>
+ * Reading through the channel allows (large) amounts of data to be read
+ * directly into a (direct) {@link java.nio.ByteBuffer}, without the
+ * intermediary copies made by the various stream wrappers. The channel and
+ * the streams of a connection share the same underlying connection, and can
+ * be used interchangeably, as long as they are not used concurrently for
+ * reading.
+ * </p>
+ */
+public interface ChannelConnection extends StreamConnection
+{
+  // METHODS
+
+  /**
+   * Opens and returns a channel to read the incoming data of this connection.
+   * <p>
+   * The returned channel honours the timeout of this connection, if any. When
+   * no data is received within this timeout, a
+   * {@link java.net.SocketTimeoutException} is thrown.
+   * </p>
+   * 
+   * @return a readable channel, never <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems opening the channel.
+   */
+  ReadableByteChannel openReadableChannel() throws IOException;
+}
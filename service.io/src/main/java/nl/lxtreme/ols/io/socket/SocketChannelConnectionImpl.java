@@ -0,0 +1,473 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.io.socket;
+
+
+import java.io.*;
+import java.net.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+import javax.microedition.io.*;
+
+import nl.lxtreme.ols.io.channel.*;
+
+
+/**
+ * Provides a {@link SocketConnection} implementation for remote socket
+ * connections that are made through a {@link SocketChannel}.
+ * <p>
+ * The socket channel is used in non-blocking mode, and selectors are used to
+ * wait for incoming data or room for outgoing data. This allows reading to be
+ * done with a timeout (which is not supported by blocking socket channels),
+ * while still allowing other threads to write to this connection during a
+ * read.
+ * </p>
+ */
+final class SocketChannelConnectionImpl implements SocketConnection, ChannelConnection
+{
+  // INNER TYPES
+
+  /**
+   * Provides an input stream on top of the socket channel.
+   */
+  final class ChannelInputStream extends InputStream
+  {
+    // VARIABLES
+
+    private final ByteBuffer single = ByteBuffer.allocate( 1 );
+    private final byte[] oneByte = new byte[1];
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int available() throws IOException
+    {
+      if ( this.single.position() == 0 )
+      {
+        // Peek whether there's at least one byte pending...
+        if ( channel.read( this.single ) < 0 )
+        {
+          return 0;
+        }
+      }
+      return this.single.position();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      SocketChannelConnectionImpl.this.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read() throws IOException
+    {
+      if ( read( this.oneByte, 0, 1 ) < 0 )
+      {
+        return -1;
+      }
+      return this.oneByte[0] & 0xFF;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+    {
+      if ( aLength == 0 )
+      {
+        return 0;
+      }
+
+      int count = 0;
+      // Return the byte we've peeked at (if any)...
+      if ( this.single.position() > 0 )
+      {
+        this.single.flip();
+        aBuffer[aOffset] = this.single.get();
+        this.single.clear();
+        count++;
+
+        // Add whatever else is directly available, without waiting...
+        final int read = channel.read( ByteBuffer.wrap( aBuffer, aOffset + count, aLength - count ) );
+        if ( read > 0 )
+        {
+          count += read;
+        }
+        return count;
+      }
+
+      return SocketChannelConnectionImpl.this.read( ByteBuffer.wrap( aBuffer, aOffset, aLength ) );
+    }
+  }
+
+  /**
+   * Provides an output stream on top of the socket channel.
+   */
+  final class ChannelOutputStream extends OutputStream
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      SocketChannelConnectionImpl.this.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+    {
+      SocketChannelConnectionImpl.this.write( ByteBuffer.wrap( aBuffer, aOffset, aLength ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final int aByte ) throws IOException
+    {
+      write( new byte[] { ( byte )aByte }, 0, 1 );
+    }
+  }
+
+  /**
+   * Provides a readable channel that honours the timeout of this connection.
+   */
+  final class TimedReadableChannel implements ReadableByteChannel
+  {
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      SocketChannelConnectionImpl.this.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isOpen()
+    {
+      return channel.isOpen();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int read( final ByteBuffer aBuffer ) throws IOException
+    {
+      return SocketChannelConnectionImpl.this.read( aBuffer );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int YES = 1;
+  private static final int NO = 0;
+
+  // VARIABLES
+
+  private final SocketChannel channel;
+  private final Selector readSelector;
+  private final Selector writeSelector;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new SocketChannelConnectionImpl instance.
+   * 
+   * @param aChannel
+   *          the (connected) socket channel to wrap, cannot be
+   *          <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given channel was <code>null</code>;
+   * @throws IOException
+   *           in case of I/O problems setting up the given channel.
+   */
+  public SocketChannelConnectionImpl( final SocketChannel aChannel ) throws IllegalArgumentException, IOException
+  {
+    if ( aChannel == null )
+    {
+      throw new IllegalArgumentException( "Parameter channel cannot be null!" );
+    }
+    this.channel = aChannel;
+    this.channel.configureBlocking( false );
+
+    this.readSelector = Selector.open();
+    this.channel.register( this.readSelector, SelectionKey.OP_READ );
+
+    this.writeSelector = Selector.open();
+    this.channel.register( this.writeSelector, SelectionKey.OP_WRITE );
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      this.channel.close();
+    }
+    finally
+    {
+      this.readSelector.close();
+      this.writeSelector.close();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getAddress() throws IOException
+  {
+    return this.channel.socket().getInetAddress().getHostAddress();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getLocalAddress() throws IOException
+  {
+    return this.channel.socket().getLocalAddress().getHostAddress();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getLocalPort() throws IOException
+  {
+    return this.channel.socket().getLocalPort();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getPort() throws IOException
+  {
+    return this.channel.socket().getPort();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int getSocketOption( final byte aOption ) throws IllegalArgumentException, IOException
+  {
+    final Socket socket = this.channel.socket();
+    switch ( aOption )
+    {
+      case DELAY:
+        return socket.getTcpNoDelay() ? YES : NO;
+      case LINGER:
+        return socket.getSoLinger();
+      case KEEPALIVE:
+        return socket.getKeepAlive() ? YES : NO;
+      case RCVBUF:
+        return socket.getReceiveBufferSize();
+      case SNDBUF:
+        return socket.getSendBufferSize();
+      default:
+        throw new IllegalArgumentException( "Illegal option: " + aOption + "!" );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DataInputStream openDataInputStream() throws IOException
+  {
+    return new DataInputStream( openInputStream() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DataOutputStream openDataOutputStream() throws IOException
+  {
+    return new DataOutputStream( openOutputStream() );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public InputStream openInputStream() throws IOException
+  {
+    return new ChannelInputStream();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OutputStream openOutputStream() throws IOException
+  {
+    return new ChannelOutputStream();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ReadableByteChannel openReadableChannel() throws IOException
+  {
+    return new TimedReadableChannel();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setSocketOption( final byte aOption, final int aValue ) throws IllegalArgumentException, IOException
+  {
+    final Socket socket = this.channel.socket();
+    switch ( aOption )
+    {
+      case DELAY:
+        socket.setTcpNoDelay( aValue != NO );
+        break;
+      case LINGER:
+        socket.setSoLinger( aValue != NO, aValue );
+        break;
+      case KEEPALIVE:
+        socket.setKeepAlive( aValue != NO );
+        break;
+      case RCVBUF:
+        socket.setReceiveBufferSize( aValue );
+        break;
+      case SNDBUF:
+        socket.setSendBufferSize( aValue );
+        break;
+      default:
+        throw new IllegalArgumentException( "Illegal option: " + aOption + "!" );
+    }
+  }
+
+  /**
+   * Reads as many bytes as available into the given buffer, waiting for at
+   * least one byte to become available if needed.
+   * 
+   * @param aBuffer
+   *          the buffer to read into, cannot be <code>null</code>.
+   * @return the number of read bytes, or -1 in case the end of the stream is
+   *         reached.
+   * @throws SocketTimeoutException
+   *           in case no data was received within the socket timeout;
+   * @throws InterruptedIOException
+   *           in case the current thread was interrupted while waiting for
+   *           data;
+   * @throws IOException
+   *           in case of other I/O problems.
+   */
+  final int read( final ByteBuffer aBuffer ) throws IOException
+  {
+    if ( !aBuffer.hasRemaining() )
+    {
+      return 0;
+    }
+
+    final int timeout = this.channel.socket().getSoTimeout();
+
+    int read;
+    synchronized ( this.readSelector )
+    {
+      while ( ( read = this.channel.read( aBuffer ) ) == 0 )
+      {
+        final int selected = this.readSelector.select( timeout );
+        this.readSelector.selectedKeys().clear();
+
+        if ( Thread.currentThread().isInterrupted() )
+        {
+          throw new InterruptedIOException( "Interrupted while waiting for data!" );
+        }
+        if ( ( selected == 0 ) && ( timeout > 0 ) )
+        {
+          throw new SocketTimeoutException( "Read timed out!" );
+        }
+      }
+    }
+    return read;
+  }
+
+  /**
+   * Writes all bytes of the given buffer, waiting for room in the socket's
+   * send buffer if needed.
+   * 
+   * @param aBuffer
+   *          the buffer to write, cannot be <code>null</code>.
+   * @throws InterruptedIOException
+   *           in case the current thread was interrupted while waiting for
+   *           room in the send buffer;
+   * @throws IOException
+   *           in case of other I/O problems.
+   */
+  final void write( final ByteBuffer aBuffer ) throws IOException
+  {
+    synchronized ( this.writeSelector )
+    {
+      while ( aBuffer.hasRemaining() )
+      {
+        if ( this.channel.write( aBuffer ) == 0 )
+        {
+          this.writeSelector.select();
+          this.writeSelector.selectedKeys().clear();
+
+          if ( Thread.currentThread().isInterrupted() )
+          {
+            throw new InterruptedIOException( "Interrupted while writing data!" );
+          }
+        }
+      }
+    }
+  }
+}
@@ -23,6 +23,7 @@ package nl.lxtreme.ols.io.socket;
 
 import java.io.*;
 import java.net.*;
+import java.nio.channels.*;
 
 import javax.microedition.io.*;
 
@@ -40,6 +41,9 @@ public class SocketConnectionFactory implements ConnectionFactory
   /**
    * The scheme we're exposing through this factory. Serial URIs should be
    * written in the form of: <tt>socket://127.0.0.1:1234;timeout=100</tt>.
+   * Optionally, <tt>rcvbuf=65536</tt> can be used to set the receive buffer
+   * size (in bytes), and <tt>nio=true</tt> to connect to remote sockets
+   * through a NIO-channel.
    */
   public static final String SCHEME = "socket";
 
@@ -90,17 +94,67 @@ public class SocketConnectionFactory implements ConnectionFactory
       this.logService.log( LogService.LOG_DEBUG,
           "Opening socket to " + aOptions.getAddress() + ":" + aOptions.getPort() );
 
-      Socket socket = new Socket( aOptions.getAddress(), aOptions.getPort() );
-      socket.setSoTimeout( aOptions.getTimeout() );
+      final InetSocketAddress address = new InetSocketAddress( aOptions.getAddress(), aOptions.getPort() );
+
+      if ( aOptions.isChannelSocket() )
+      {
+        SocketChannel channel = SocketChannel.open();
+        try
+        {
+          configureSocket( channel.socket(), aOptions );
+          channel.connect( address );
+
+          return new SocketChannelConnectionImpl( channel );
+        }
+        catch ( IOException exception )
+        {
+          channel.close();
+          throw exception;
+        }
+      }
+
+      Socket socket = new Socket();
+      configureSocket( socket, aOptions );
+      socket.connect( address );
 
       return new SocketConnectionImpl( socket );
     }
 
     this.logService.log( LogService.LOG_DEBUG, "Opening server socket on " + aOptions.getPort() );
 
-    ServerSocket socket = new ServerSocket( aOptions.getPort() );
+    ServerSocket socket = new ServerSocket();
+    if ( aOptions.hasReceiveBufferSize() )
+    {
+      socket.setReceiveBufferSize( aOptions.getReceiveBufferSize() );
+    }
     socket.setSoTimeout( aOptions.getTimeout() );
+    socket.bind( new InetSocketAddress( aOptions.getPort() ) );
 
     return new ServerSocketConnectionImpl( socket );
   }
+
+  /**
+   * Configures the given (unconnected) socket with the given options.
+   * <p>
+   * The receive buffer size needs to be set <em>before</em> the socket is
+   * connected, as it can influence the TCP window size negotiated with the
+   * remote side.
+   * </p>
+   * 
+   * @param aSocket
+   *          the socket to configure, cannot be <code>null</code>;
+   * @param aOptions
+   *          the options to configure the socket with, cannot be
+   *          <code>null</code>.
+   * @throws SocketException
+   *           in case of errors in the underlying protocol.
+   */
+  private void configureSocket( final Socket aSocket, final SocketOptions aOptions ) throws SocketException
+  {
+    if ( aOptions.hasReceiveBufferSize() )
+    {
+      aSocket.setReceiveBufferSize( aOptions.getReceiveBufferSize() );
+    }
+    aSocket.setSoTimeout( aOptions.getTimeout() );
+  }
 }
@@ -33,13 +33,16 @@ final class SocketOptions
 
   private static final Pattern SCHEMA_REGEX = Pattern
       .compile( "^socket:(?://)?([^:;]*)(?::(\\d+))?(?:;([^\\r\\n]+))*$" );
-  private static final Pattern OPTION_REGEX = Pattern.compile( "(timeout)=([\\.\\d\\w_-]+)", Pattern.CASE_INSENSITIVE );
+  private static final Pattern OPTION_REGEX = Pattern.compile( "(timeout|rcvbuf|nio)=([\\.\\d\\w_-]+)",
+      Pattern.CASE_INSENSITIVE );
 
   // VARIABLES
 
   private String address;
   private int port;
   private int timeout;
+  private int receiveBufferSize;
+  private boolean useChannel;
 
   // CONSTRUCTORS
 
@@ -58,6 +61,10 @@ final class SocketOptions
 
     // Default to no timeout...
     this.timeout = 0;
+    // Default to the receive buffer size of the platform...
+    this.receiveBufferSize = 0;
+    // Default to plain blocking sockets...
+    this.useChannel = false;
 
     parseURI( aURI );
   }
@@ -84,6 +91,17 @@ final class SocketOptions
     return this.port;
   }
 
+  /**
+   * Returns the size of the receive buffer to use for the socket.
+   * 
+   * @return the receive buffer size, in bytes, or 0 to use the platform
+   *         default.
+   */
+  public int getReceiveBufferSize()
+  {
+    return this.receiveBufferSize;
+  }
+
   /**
    * Returns the timeout to use for opening the socket.
    * 
@@ -94,6 +112,15 @@ final class SocketOptions
     return this.timeout;
   }
 
+  /**
+   * @return <code>true</code> if a receive buffer size is specified,
+   *         <code>false</code> otherwise.
+   */
+  public boolean hasReceiveBufferSize()
+  {
+    return this.receiveBufferSize > 0;
+  }
+
   /**
    * @return <code>true</code> if a timeout is specified, <code>false</code>
    *         otherwise.
@@ -103,6 +130,16 @@ final class SocketOptions
     return this.timeout > 0;
   }
 
+  /**
+   * @return <code>true</code> if the (remote) socket is to be connected
+   *         through a NIO-channel, <code>false</code> if a plain socket is to
+   *         be used.
+   */
+  public boolean isChannelSocket()
+  {
+    return this.useChannel;
+  }
+
   /**
    * @return <code>true</code> if a remote socket is to be connected,
    *         <code>false</code> if a local socket is to be connected.
@@ -116,7 +153,7 @@ final class SocketOptions
    * @param aStr
    * @return
    */
-  private int parseTimeout( final String aStr )
+  private int parseInt( final String aStr )
   {
     int result = 0;
     try
@@ -178,12 +215,24 @@ final class SocketOptions
 
       if ( "timeout".equals( key ) )
       {
-        int parsedValue = parseTimeout( value );
+        int parsedValue = parseInt( value );
         if ( parsedValue >= 0 )
         {
           this.timeout = parsedValue;
         }
       }
+      else if ( "rcvbuf".equals( key ) )
+      {
+        int parsedValue = parseInt( value );
+        if ( parsedValue >= 0 )
+        {
+          this.receiveBufferSize = parsedValue;
+        }
+      }
+      else if ( "nio".equals( key ) )
+      {
+        this.useChannel = Boolean.parseBoolean( value );
+      }
     }
   }
 }
@@ -74,6 +74,35 @@ public class SocketOptionsTest
     assertEquals( 250, options.getTimeout() );
   }
 
+  /**
+   * @throws Exception
+   */
+  @Test
+  public void testParseChannelAndReceiveBufferOk() throws Exception
+  {
+    final SocketOptions options = new SocketOptions( "socket://localhost:1234;timeout=250;rcvbuf=262144;nio=true" );
+
+    assertEquals( "localhost", options.getAddress() );
+    assertEquals( 1234, options.getPort() );
+    assertEquals( 250, options.getTimeout() );
+    assertTrue( options.hasReceiveBufferSize() );
+    assertEquals( 262144, options.getReceiveBufferSize() );
+    assertTrue( options.isChannelSocket() );
+  }
+
+  /**
+   * @throws Exception
+   */
+  @Test
+  public void testParseDefaultChannelAndReceiveBufferOk() throws Exception
+  {
+    final SocketOptions options = new SocketOptions( "socket://localhost:1234;timeout=250" );
+
+    assertFalse( options.hasReceiveBufferSize() );
+    assertEquals( 0, options.getReceiveBufferSize() );
+    assertFalse( options.isChannelSocket() );
+  }
+
   /**
    * @throws Exception
    */
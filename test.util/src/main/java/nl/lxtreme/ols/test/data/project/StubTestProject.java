@@ -63,6 +63,15 @@ public class StubTestProject implements Project
 
   // METHODS
 
+  /**
+   * @see nl.lxtreme.ols.api.data.project.Project#appendCapturedData(AcquisitionResult)
+   */
+  @Override
+  public void appendCapturedData( final AcquisitionResult aCapturedData )
+  {
+    this.dataSet.setCapturedData( aCapturedData );
+  }
+
   /**
    * {@inheritDoc}
    */
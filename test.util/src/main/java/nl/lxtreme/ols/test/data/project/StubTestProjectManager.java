@@ -25,6 +25,7 @@ import java.beans.*;
 import java.io.*;
 
 import nl.lxtreme.ols.api.data.project.*;
+import nl.lxtreme.ols.api.task.*;
 
 
 /**
@@ -57,6 +58,15 @@ public class StubTestProjectManager implements ProjectManager
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ProjectSnapshot createProjectSnapshot()
+  {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -66,6 +76,15 @@ public class StubTestProjectManager implements ProjectManager
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteProjectJournal( final File aProjectFile )
+  {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -84,6 +103,15 @@ public class StubTestProjectManager implements ProjectManager
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void loadProjectJournal( final File aProjectFile ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -102,6 +130,44 @@ public class StubTestProjectManager implements ProjectManager
     throw new UnsupportedOperationException();
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void saveProject( final OutputStream aOutput, final CompressionLevel aLevel,
+      final TaskProgressListener aProgressListener ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void saveProject( final ProjectSnapshot aSnapshot, final OutputStream aOutput,
+      final CompressionLevel aLevel, final TaskProgressListener aProgressListener ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean saveProjectJournal( final File aProjectFile ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean saveProjectJournal( final ProjectSnapshot aSnapshot, final File aProjectFile ) throws IOException
+  {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * @param aProject
    */
@@ -295,7 +295,7 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
    */
   private JComponent createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final String modes[] = new String[] { "Standard", "Overdrive" };
 
@@ -420,6 +420,8 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
           {
             final OneWireData data = dataSet.get( i );
 
+            setExportProgress( i, dataSet.size() );
+
             if ( data.isEvent() )
             {
               // this is an event
@@ -471,8 +473,14 @@ public class OneWireAnalyserDialog extends BaseToolDialog<OneWireDataSet> implem
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
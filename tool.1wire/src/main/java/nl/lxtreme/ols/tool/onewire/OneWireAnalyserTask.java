@@ -82,7 +82,7 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
   public OneWireDataSet call() throws Exception
   {
     final AcquisitionResult data = this.context.getData();
-    final int[] values = data.getValues();
+    final int[] values = new ChannelAccessor( data, this.owLineIndex ).getValues();
 
     int sampleIdx;
 
@@ -145,7 +145,7 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
   public void setOneWireLineIndex( final int aIndex )
   {
     this.owLineIndex = aIndex;
-    this.owLineMask = ( 1 << aIndex );
+    this.owLineMask = ChannelAccessor.getMask( aIndex );
   }
 
   /**
@@ -349,11 +349,11 @@ public class OneWireAnalyserTask implements ToolTask<OneWireDataSet>
    * @param aTimeValue
    *          the time stamp to return the data value for.
    * @return the data value of the sample index right before the given time
-   *         value.
+   *         value, taken from the sample plane of the 1-wire line.
    */
   private int getDataValue( final AcquisitionResult aData, final long aTimeValue )
   {
-    final int[] values = aData.getValues();
+    final int[] values = ChannelAccessor.getValues( aData, ChannelAccessor.getPlane( this.owLineIndex ) );
     final long[] timestamps = aData.getTimestamps();
 
     int i;
@@ -28,7 +28,7 @@ import nl.lxtreme.ols.api.data.*;
 /**
  * Denotes a 1-Wire data set.
  */
-public class OneWireDataSet extends BaseDataSet<OneWireData>
+public class OneWireDataSet extends ColumnarDataSet<OneWireData>
 {
   // CONSTANTS
 
@@ -87,9 +87,8 @@ public class OneWireDataSet extends BaseDataSet<OneWireData>
    */
   public void reportBusError( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
     this.busErrors++;
-    addData( new OneWireData( idx, aChannelIdx, aSampleIdx, OW_BUS_ERROR, false /* aSlavePresent */) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0 /* aSlavePresent */, OW_BUS_ERROR );
   }
 
   /**
@@ -107,9 +106,8 @@ public class OneWireDataSet extends BaseDataSet<OneWireData>
   public void reportData( final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx,
       final int aByteValue )
   {
-    final int idx = size();
     this.decodedBytes++;
-    addData( new OneWireData( idx, aChannelIdx, aStartSampleIdx, aEndSampleIdx, aByteValue ) );
+    addRow( aChannelIdx, aStartSampleIdx, aEndSampleIdx, 0, aByteValue, null );
   }
 
   /**
@@ -128,7 +126,31 @@ public class OneWireDataSet extends BaseDataSet<OneWireData>
   public void reportReset( final int aChannelIdx, final int aSampleIdx, final int aEndSampleIdx,
       final boolean aSlaveIsPresent )
   {
-    final int idx = size();
-    addData( new OneWireData( idx, aChannelIdx, aSampleIdx, OW_RESET, aSlaveIsPresent ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, aSlaveIsPresent ? 1 : 0, OW_RESET );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected OneWireData createData( final int aRow )
+  {
+    final String event = getEventName( aRow );
+    if ( event != null )
+    {
+      return new OneWireData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ), event,
+          getValue( aRow ) != 0 );
+    }
+    return new OneWireData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ),
+        getEndSampleIndex( aRow ), getValue( aRow ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void storeData( final int aRow, final OneWireData aData )
+  {
+    setValue( aRow, aData.getValue() );
   }
 }
@@ -23,6 +23,7 @@ package nl.lxtreme.ols.tool.asm45;
 
 import static nl.lxtreme.ols.util.NumberUtils.*;
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 
@@ -254,7 +255,8 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
+    // the IDA bus is always on the first 32 channels...
+    final int[] values = ChannelAccessor.getValues( data, 0 );
 
     // process the captured data and write to output
 
@@ -413,7 +415,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   public void setLineBLIndex( final int aLineBLidx )
   {
-    this.lineBLmask = 1 << aLineBLidx;
+    this.lineBLmask = ChannelAccessor.getMask( aLineBLidx );
   }
 
   /**
@@ -421,7 +423,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   public void setLineBYTEIndex( final int aLineBYTEidx )
   {
-    this.lineBYTEmask = 1 << aLineBYTEidx;
+    this.lineBYTEmask = ChannelAccessor.getMask( aLineBYTEidx );
   }
 
   /**
@@ -429,7 +431,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   public void setLineEBGIndex( final int aLineEBGidx )
   {
-    this.lineEBGmask = 1 << aLineEBGidx;
+    this.lineEBGmask = ChannelAccessor.getMask( aLineEBGidx );
   }
 
   /**
@@ -438,7 +440,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
   public void setLineSMCIndex( final int aLineSMCidx )
   {
     this.lineSMCidx = aLineSMCidx;
-    this.lineSMCmask = 1 << aLineSMCidx;
+    this.lineSMCmask = ChannelAccessor.getMask( aLineSMCidx );
   }
 
   /**
@@ -446,7 +448,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   public void setLineSTMIndex( final int aLineSTMidx )
   {
-    this.lineSTMmask = 1 << aLineSTMidx;
+    this.lineSTMmask = ChannelAccessor.getMask( aLineSTMidx );
   }
 
   /**
@@ -454,7 +456,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   public void setLineSYNCIndex( final int aLineSYNCidx )
   {
-    this.lineSYNCmask = 1 << aLineSYNCidx;
+    this.lineSYNCmask = ChannelAccessor.getMask( aLineSYNCidx );
   }
 
   /**
@@ -462,7 +464,7 @@ public class Asm45AnalyserTask implements ToolTask<Asm45DataSet>
    */
   public void setLineWRTIndex( final int aLineWRTidx )
   {
-    this.lineWRTmask = 1 << aLineWRTidx;
+    this.lineWRTmask = ChannelAccessor.getMask( aLineWRTidx );
   }
 
   /**
@@ -30,7 +30,6 @@ import java.io.*;
 import java.text.*;
 import java.util.*;
 import java.util.List;
-import java.util.logging.*;
 
 import javax.swing.*;
 
@@ -62,8 +61,6 @@ ExportAware<Asm45DataSet>
 
   private static final long serialVersionUID = 1L;
 
-  private static final Logger LOG = Logger.getLogger( Asm45ProtocolAnalysisDialog.class.getName() );
-
   // VARIABLES
 
   private JLabel idaLinesLabel;
@@ -276,10 +273,10 @@ ExportAware<Asm45DataSet>
   {
     boolean result = super.validateToolSettings();
 
-    if ( result && ( getContext().getChannels() != Ols.MAX_CHANNELS ) )
+    if ( result && ( getContext().getChannels() < Ols.MAX_CHANNELS ) )
     {
       JErrorDialog.showDialog( getOwner(), "Cannot start analysis!", "Not enough channels!",
-          "For the Asm45 decoder, you need to have 32 channels enabled." );
+          "For the Asm45 decoder, you need to have at least 32 channels enabled." );
       result = false;
     }
 
@@ -392,7 +389,7 @@ ExportAware<Asm45DataSet>
    */
   private JPanel createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final JPanel panel = new JPanel( new SpringLayout() );
 
@@ -561,32 +558,27 @@ ExportAware<Asm45DataSet>
    * @param aSelectedFile
    * @param aAnalysisResult
    */
-  private void storeToCsvFile( final File aSelectedFile, final Asm45DataSet aAnalysisResult )
+  private void storeToCsvFile( final File aSelectedFile, final Asm45DataSet aAnalysisResult ) throws IOException
   {
+    final CsvExporter exporter = ExportUtils.createCsvExporter( aSelectedFile );
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aSelectedFile );
-
       exporter.setHeaders( "index", "clocks", "block", "address", "value", "bus grant", "type", "event" );
 
       final List<Asm45Data> dataSet = aAnalysisResult.getData();
       for ( int i = 0; i < dataSet.size(); i++ )
       {
         final Asm45Data ds = dataSet.get( i );
+
+        setExportProgress( i, dataSet.size() );
         exporter.addRow( Integer.valueOf( i ), Integer.valueOf( ds.getClocks() ),
             integerToHexString( ds.getBlock(), 2 ), StringUtils.integerToHexString( ds.getAddress(), 4 ),
             integerToHexString( ds.getValue(), 4 ), ds.getBusGrant() ? "X" : "-", ds.getType(), ds.getEvent() );
       }
-
-      exporter.close();
     }
-    catch ( final IOException exception )
+    finally
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "CSV export failed!", exception );
-      }
+      exporter.close();
     }
   }
 
@@ -596,20 +588,9 @@ ExportAware<Asm45DataSet>
    * @param aSelectedFile
    * @param aAnalysisResult
    */
-  private void storeToHtmlFile( final File aSelectedFile, final Asm45DataSet aAnalysisResult )
+  private void storeToHtmlFile( final File aSelectedFile, final Asm45DataSet aAnalysisResult ) throws IOException
   {
-    try
-    {
-      toHtmlPage( aSelectedFile, aAnalysisResult );
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "HTML export failed!", exception );
-      }
-    }
+    toHtmlPage( aSelectedFile, aAnalysisResult );
   }
 
   /**
@@ -676,6 +657,8 @@ ExportAware<Asm45DataSet>
           for ( int i = 0; i < dataSet.size(); i++ )
           {
             final Asm45Data data = dataSet.get( i );
+
+            setExportProgress( i, dataSet.size() );
             int index = i - aAnalysisResult.getTriggerEvent();
 
             String bgColor;
@@ -728,8 +711,14 @@ ExportAware<Asm45DataSet>
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
@@ -23,6 +23,7 @@ package nl.lxtreme.ols.tool.base;
 
 import java.awt.*;
 import java.awt.Dialog.ModalExclusionType;
+import java.io.*;
 import java.util.concurrent.*;
 
 import javax.swing.*;
@@ -32,6 +33,8 @@ import nl.lxtreme.ols.api.Configurable;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.task.*;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.ExportAware.ExportFormat;
+import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.swing.*;
 import nl.lxtreme.ols.util.swing.StandardActionFactory.CloseAction.Closeable;
 
@@ -67,6 +70,10 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   private volatile Future<RESULT_TYPE> toolFutureTask;
   private volatile ToolTask<RESULT_TYPE> toolTask;
   private volatile RESULT_TYPE lastResult;
+  private volatile Future<File> exportFutureTask;
+  private volatile ExportTask exportTask;
+  private volatile Runnable exportDoneCallback;
+  private volatile int exportProgress;
 
   // CONSTRUCTORS
 
@@ -171,6 +178,7 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
    * {@inheritDoc}
    */
   @Override
+  @SuppressWarnings( "unchecked" )
   public final boolean invokeTool() throws IllegalStateException
   {
     if ( this.toolFutureTask != null )
@@ -181,8 +189,21 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     boolean settingsValid = validateToolSettings();
     if ( settingsValid )
     {
-      this.toolTask = this.tool.createToolTask( this.context, this.toolProgressListener, this.annotationListener );
-      prepareToolTask( this.toolTask );
+      if ( this instanceof IncrementalDecoder<?> )
+      {
+        final IncrementalToolTask<RESULT_TYPE> task = new IncrementalToolTask<RESULT_TYPE>( this.tool,
+            ( IncrementalDecoder<RESULT_TYPE> )this, this.context, this.toolProgressListener, this.annotationListener );
+        for ( ToolTask<RESULT_TYPE> subTask : task.getToolTasks() )
+        {
+          prepareToolTask( subTask );
+        }
+        this.toolTask = task;
+      }
+      else
+      {
+        this.toolTask = this.tool.createToolTask( this.context, this.toolProgressListener, this.annotationListener );
+        prepareToolTask( this.toolTask );
+      }
 
       this.toolFutureTask = this.taskExecutionService.execute( this.toolTask );
     }
@@ -213,7 +234,11 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   @SuppressWarnings( "unchecked" )
   public final <RT> void taskEnded( final Task<RT> aTask, final RT aResult )
   {
-    if ( this.toolTask == aTask )
+    if ( this.exportTask == aTask )
+    {
+      exportDone();
+    }
+    else if ( this.toolTask == aTask )
     {
       this.lastResult = ( RESULT_TYPE )aResult;
 
@@ -241,7 +266,23 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   @Override
   public final <RT> void taskFailed( final Task<RT> aTask, final Exception aException )
   {
-    if ( this.toolTask == aTask )
+    if ( this.exportTask == aTask )
+    {
+      exportDone();
+
+      if ( !( aException instanceof InterruptedException ) )
+      {
+        SwingComponentUtils.invokeOnEDT( new Runnable()
+        {
+          @Override
+          public void run()
+          {
+            ToolUtils.showErrorMessage( BaseToolDialog.this, "Export failed!\nDetails: " + aException.getMessage() );
+          }
+        } );
+      }
+    }
+    else if ( this.toolTask == aTask )
     {
       SwingComponentUtils.invokeOnEDT( new Runnable()
       {
@@ -267,7 +308,11 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   @Override
   public final <RT> void taskStarted( final Task<RT> aTask )
   {
-    if ( this.toolTask == aTask )
+    if ( this.exportTask == aTask )
+    {
+      this.toolProgressListener.setProgress( 0 );
+    }
+    else if ( this.toolTask == aTask )
     {
       SwingComponentUtils.invokeOnEDT( new Runnable()
       {
@@ -304,6 +349,31 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     return this.context.getData();
   }
 
+  /**
+   * Reports the progress of a running export, for example, from the loops in
+   * {@link ExportAware#exportToFile(File, ExportFormat)}. Does nothing if no
+   * export is running in the background.
+   *
+   * @param aIndex
+   *          the index of the item that is currently exported;
+   * @param aCount
+   *          the total number of items to export.
+   */
+  protected final void setExportProgress( final int aIndex, final int aCount )
+  {
+    if ( this.exportTask == null )
+    {
+      return;
+    }
+
+    final int percentage = NumberUtils.getPercentage( aIndex, aCount );
+    if ( percentage != this.exportProgress )
+    {
+      this.exportProgress = percentage;
+      this.toolProgressListener.setProgress( percentage );
+    }
+  }
+
   /**
    * Called right before this dialog is made invisible.
    */
@@ -416,6 +486,64 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
     return "";
   }
 
+  /**
+   * Cancels the export that is currently running in the background.
+   *
+   * @throws IllegalStateException
+   *           in case no export is running.
+   */
+  final void cancelExport() throws IllegalStateException
+  {
+    final Future<File> future = this.exportFutureTask;
+    if ( future == null )
+    {
+      throw new IllegalStateException( "No export is running!" );
+    }
+
+    future.cancel( true /* mayInterruptIfRunning */);
+  }
+
+  /**
+   * Returns whether or not an export is running in the background.
+   *
+   * @return <code>true</code> if an export is running, <code>false</code>
+   *         otherwise.
+   */
+  final boolean isExportRunning()
+  {
+    return this.exportFutureTask != null;
+  }
+
+  /**
+   * Starts exporting the results of the given exporter (normally this dialog)
+   * to file in the background.
+   *
+   * @param aExporter
+   *          the exporter to use, cannot be <code>null</code>;
+   * @param aOutputFile
+   *          the file to export to, cannot be <code>null</code>;
+   * @param aFormat
+   *          the format to export in, cannot be <code>null</code>;
+   * @param aDoneCallback
+   *          the callback to run on the EDT when the export is finished, can be
+   *          <code>null</code>.
+   * @throws IllegalStateException
+   *           in case an export is already running.
+   */
+  final void startExport( final ExportAware<?> aExporter, final File aOutputFile, final ExportFormat aFormat,
+      final Runnable aDoneCallback ) throws IllegalStateException
+  {
+    if ( this.exportFutureTask != null )
+    {
+      throw new IllegalStateException( "Export is already running!" );
+    }
+
+    this.exportDoneCallback = aDoneCallback;
+    this.exportProgress = -1;
+    this.exportTask = new ExportTask( aExporter, aOutputFile, aFormat );
+    this.exportFutureTask = this.taskExecutionService.execute( this.exportTask );
+  }
+
   /**
    * Called right before the tool is invoked to allow additional validation on
    * the tool settings.
@@ -428,4 +556,23 @@ public abstract class BaseToolDialog<RESULT_TYPE> extends JFrame implements Tool
   {
     return true;
   }
+
+  /**
+   * Cleans up after the background export is ended, either normally or not.
+   */
+  private void exportDone()
+  {
+    final Runnable callback = this.exportDoneCallback;
+
+    this.toolProgressListener.setProgress( 100 );
+
+    this.exportFutureTask = null;
+    this.exportTask = null;
+    this.exportDoneCallback = null;
+
+    if ( callback != null )
+    {
+      SwingComponentUtils.invokeOnEDT( callback );
+    }
+  }
 }
@@ -0,0 +1,271 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.lang.ref.*;
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+
+
+/**
+ * Provides a cache of decoding results for a single tool, keyed by the
+ * configuration of the tool.
+ * <p>
+ * Each cached result keeps the sample range it was decoded for, the
+ * annotations that were reported while decoding, and a set of
+ * <em>checkpoints</em>: sample indices on which the decoder is known to be idle
+ * (for example, in between two frames). These checkpoints allow a new range to
+ * be decoded incrementally, see {@link IncrementalDecoder}.
+ * </p>
+ * <p>
+ * Only a small number of results is retained; the least recently used result
+ * is evicted first. As decoding results normally refer to the data of the
+ * decoded capture, only the results of a single capture are retained: all
+ * results are removed as soon as another capture is decoded, or when
+ * {@link #retain(AcquisitionResult)} is called for another capture.
+ * </p>
+ */
+public final class DecodeCache<RESULT_TYPE>
+{
+  // INNER TYPES
+
+  /**
+   * Denotes a single cached decoding result.
+   */
+  public static final class Entry<RESULT_TYPE>
+  {
+    // VARIABLES
+
+    private final int startSampleIdx;
+    private final int endSampleIdx;
+    private final RESULT_TYPE result;
+    private final List<Annotation<?>> annotations;
+    private final int[] checkpoints;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link Entry} instance.
+     */
+    Entry( final int aStartSampleIdx, final int aEndSampleIdx, final RESULT_TYPE aResult,
+        final List<Annotation<?>> aAnnotations, final int[] aCheckpoints )
+    {
+      this.startSampleIdx = aStartSampleIdx;
+      this.endSampleIdx = aEndSampleIdx;
+      this.result = aResult;
+      this.annotations = Collections.unmodifiableList( new ArrayList<Annotation<?>>( aAnnotations ) );
+      this.checkpoints = aCheckpoints.clone();
+      Arrays.sort( this.checkpoints );
+    }
+
+    // METHODS
+
+    /**
+     * @return the annotations reported while decoding, never
+     *         <code>null</code>.
+     */
+    public List<Annotation<?>> getAnnotations()
+    {
+      return this.annotations;
+    }
+
+    /**
+     * @return the last sample index (inclusive) of the decoded range.
+     */
+    public int getEndSampleIndex()
+    {
+      return this.endSampleIdx;
+    }
+
+    /**
+     * Returns the first checkpoint that lies in the given range.
+     * 
+     * @param aFromSampleIdx
+     *          the first sample index (inclusive);
+     * @param aToSampleIdx
+     *          the last sample index (inclusive).
+     * @return a checkpoint, or -1 if no checkpoint lies in the given range.
+     */
+    public int getFirstCheckpoint( final int aFromSampleIdx, final int aToSampleIdx )
+    {
+      int idx = Arrays.binarySearch( this.checkpoints, aFromSampleIdx );
+      if ( idx < 0 )
+      {
+        idx = -( idx + 1 );
+      }
+      if ( ( idx < this.checkpoints.length ) && ( this.checkpoints[idx] <= aToSampleIdx ) )
+      {
+        return this.checkpoints[idx];
+      }
+      return -1;
+    }
+
+    /**
+     * Returns the last checkpoint that lies in the given range.
+     * 
+     * @param aFromSampleIdx
+     *          the first sample index (inclusive);
+     * @param aToSampleIdx
+     *          the last sample index (inclusive).
+     * @return a checkpoint, or -1 if no checkpoint lies in the given range.
+     */
+    public int getLastCheckpoint( final int aFromSampleIdx, final int aToSampleIdx )
+    {
+      int idx = Arrays.binarySearch( this.checkpoints, aToSampleIdx );
+      if ( idx < 0 )
+      {
+        idx = -( idx + 1 ) - 1;
+      }
+      if ( ( idx >= 0 ) && ( this.checkpoints[idx] >= aFromSampleIdx ) )
+      {
+        return this.checkpoints[idx];
+      }
+      return -1;
+    }
+
+    /**
+     * @return the decoding result, never <code>null</code>.
+     */
+    public RESULT_TYPE getResult()
+    {
+      return this.result;
+    }
+
+    /**
+     * @return the first sample index of the decoded range.
+     */
+    public int getStartSampleIndex()
+    {
+      return this.startSampleIdx;
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int MAX_ENTRIES = 4;
+
+  // VARIABLES
+
+  private final Map<String, Entry<RESULT_TYPE>> entries;
+
+  private Reference<AcquisitionResult> capture;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link DecodeCache} instance.
+   */
+  public DecodeCache()
+  {
+    this.entries = new LinkedHashMap<String, Entry<RESULT_TYPE>>( MAX_ENTRIES, 0.75f, true /* accessOrder */);
+    this.capture = null;
+  }
+
+  // METHODS
+
+  /**
+   * Removes all cached results.
+   */
+  public synchronized void clear()
+  {
+    this.entries.clear();
+    this.capture = null;
+  }
+
+  /**
+   * Returns the cached result for the given capture and configuration.
+   * 
+   * @param aCapture
+   *          the decoded capture, cannot be <code>null</code>;
+   * @param aConfiguration
+   *          the configuration of the tool, cannot be <code>null</code>.
+   * @return the cached entry, or <code>null</code> if no result is cached.
+   */
+  public synchronized Entry<RESULT_TYPE> get( final AcquisitionResult aCapture, final String aConfiguration )
+  {
+    retain( aCapture );
+    return this.entries.get( aConfiguration );
+  }
+
+  /**
+   * Caches the given result for the given capture and configuration, replacing
+   * any earlier result.
+   * 
+   * @param aCapture
+   *          the decoded capture, cannot be <code>null</code>;
+   * @param aConfiguration
+   *          the configuration of the tool, cannot be <code>null</code>;
+   * @param aStartSampleIdx
+   *          the first sample index of the decoded range;
+   * @param aEndSampleIdx
+   *          the last sample index (inclusive) of the decoded range;
+   * @param aResult
+   *          the decoding result, cannot be <code>null</code>;
+   * @param aAnnotations
+   *          the annotations reported while decoding, cannot be
+   *          <code>null</code>;
+   * @param aCheckpoints
+   *          the sample indices on which the decoder is idle, cannot be
+   *          <code>null</code>.
+   * @return the cached entry, never <code>null</code>.
+   */
+  public synchronized Entry<RESULT_TYPE> put( final AcquisitionResult aCapture, final String aConfiguration,
+      final int aStartSampleIdx, final int aEndSampleIdx, final RESULT_TYPE aResult,
+      final List<Annotation<?>> aAnnotations, final int[] aCheckpoints )
+  {
+    final Entry<RESULT_TYPE> entry = new Entry<RESULT_TYPE>( aStartSampleIdx, aEndSampleIdx, aResult, aAnnotations,
+        aCheckpoints );
+
+    retain( aCapture );
+    this.entries.put( aConfiguration, entry );
+
+    if ( this.entries.size() > MAX_ENTRIES )
+    {
+      final Iterator<String> eldest = this.entries.keySet().iterator();
+      eldest.next();
+      eldest.remove();
+    }
+
+    return entry;
+  }
+
+  /**
+   * Removes all cached results, unless they belong to the given capture. This
+   * method should be called when the capture to decode changes, in order to
+   * release the results of an earlier capture.
+   * 
+   * @param aCapture
+   *          the capture whose results should be retained, cannot be
+   *          <code>null</code>.
+   */
+  public synchronized void retain( final AcquisitionResult aCapture )
+  {
+    final AcquisitionResult current = ( this.capture == null ) ? null : this.capture.get();
+    if ( current != aCapture )
+    {
+      this.entries.clear();
+      this.capture = new WeakReference<AcquisitionResult>( aCapture );
+    }
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.io.*;
+
+import nl.lxtreme.ols.api.task.*;
+import nl.lxtreme.ols.tool.base.ExportAware.ExportFormat;
+
+
+/**
+ * Provides a task that exports the results of a tool to file in the
+ * background. In case the task is cancelled or fails, the (partially written)
+ * output file is removed.
+ */
+final class ExportTask implements Task<File>
+{
+  // VARIABLES
+
+  private final ExportAware<?> exporter;
+  private final File outputFile;
+  private final ExportFormat format;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ExportTask} instance.
+   * 
+   * @param aExporter
+   *          the tool (dialog) to export the results of;
+   * @param aOutputFile
+   *          the file to export the results to;
+   * @param aFormat
+   *          the format to export the results in.
+   */
+  ExportTask( final ExportAware<?> aExporter, final File aOutputFile, final ExportFormat aFormat )
+  {
+    this.exporter = aExporter;
+    this.outputFile = aOutputFile;
+    this.format = aFormat;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public File call() throws Exception
+  {
+    try
+    {
+      this.exporter.exportToFile( this.outputFile, this.format );
+    }
+    catch ( InterruptedIOException exception )
+    {
+      Thread.currentThread().interrupt();
+    }
+    catch ( IOException exception )
+    {
+      // Do not leave a partially written file behind...
+      this.outputFile.delete();
+      throw exception;
+    }
+
+    // Writing the output can also be interrupted without an exception being
+    // thrown, in which case only the interrupted flag of this thread is set...
+    if ( Thread.interrupted() )
+    {
+      this.outputFile.delete();
+      throw new InterruptedException( "Export cancelled!" );
+    }
+
+    return this.outputFile;
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import nl.lxtreme.ols.api.tools.*;
+
+
+/**
+ * Allows a tool dialog to decode incrementally, that is, to reuse earlier
+ * results when only the range of decoded samples changes.
+ * <p>
+ * When a tool dialog that extends {@link BaseToolDialog} implements this
+ * interface, its tool is no longer invoked for the whole range, but only for
+ * the parts of the range that are not covered by a cached result. To this end,
+ * decoding is restarted at a <em>checkpoint</em> of the cached result, a sample
+ * index on which the decoder is idle. It is assumed that a decoder is idle
+ * again at each checkpoint, regardless of where its decoding started.
+ * </p>
+ */
+public interface IncrementalDecoder<RESULT_TYPE>
+{
+  // METHODS
+
+  /**
+   * Adds all results of the given source that start within the given range
+   * of sample indices to the given target.
+   * 
+   * @param aTarget
+   *          the result to add to, as created by
+   *          {@link #createResult(ToolContext)};
+   * @param aSource
+   *          the result to copy from;
+   * @param aFromSampleIdx
+   *          the first sample index of the range (inclusive);
+   * @param aToSampleIdx
+   *          the last sample index of the range (exclusive).
+   */
+  void copyResults( RESULT_TYPE aTarget, RESULT_TYPE aSource, int aFromSampleIdx, int aToSampleIdx );
+
+  /**
+   * Creates a new, empty, result for the given tool context.
+   * 
+   * @param aContext
+   *          the tool context to create the result for, cannot be
+   *          <code>null</code>.
+   * @return a new result, never <code>null</code>.
+   */
+  RESULT_TYPE createResult( ToolContext aContext );
+
+  /**
+   * Returns the sample indices on which the decoder was idle while producing
+   * the given result.
+   * <p>
+   * This method is called from the thread that decodes the data, hence it
+   * should not access any UI components, but only the given result.
+   * </p>
+   * 
+   * @param aResult
+   *          the result to return the checkpoints for, cannot be
+   *          <code>null</code>.
+   * @return the checkpoints, never <code>null</code>.
+   */
+  int[] getCheckpoints( RESULT_TYPE aResult );
+
+  /**
+   * Returns the cache to use; normally, this cache is kept by the tool itself
+   * so it survives the dialog.
+   * 
+   * @return a decode cache, never <code>null</code>.
+   */
+  DecodeCache<RESULT_TYPE> getDecodeCache();
+
+  /**
+   * Returns a textual representation of all settings that influence the
+   * decoding results.
+   * 
+   * @return the decoding configuration, or <code>null</code> if the current
+   *         settings do not allow incremental decoding (for example, when
+   *         settings are auto-detected).
+   */
+  String getDecodeConfiguration();
+}
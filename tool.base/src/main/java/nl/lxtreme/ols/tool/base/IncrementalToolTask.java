@@ -0,0 +1,490 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import java.util.*;
+import java.util.logging.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.DecodeCache.Entry;
+
+
+/**
+ * Provides a tool task that only decodes the parts of its range that are not
+ * covered by a cached result, see {@link IncrementalDecoder}.
+ * <p>
+ * The range is split in at most three segments: a head that is decoded up to
+ * the first checkpoint of the cached result, the part that is taken from the
+ * cached result, and a tail that is decoded from the last usable checkpoint.
+ * The actual decoding is delegated to the tool tasks of the tool itself, which
+ * are created and prepared upfront, as preparing them normally requires the
+ * settings of the dialog.
+ * </p>
+ */
+final class IncrementalToolTask<RESULT_TYPE> implements ToolTask<RESULT_TYPE>
+{
+  // INNER TYPES
+
+  /**
+   * Provides a tool context for a part of the range of another tool context.
+   */
+  private static final class RangeToolContext implements ToolContext
+  {
+    // VARIABLES
+
+    private final ToolContext context;
+    private final int startSampleIdx;
+    private final int endSampleIdx;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link RangeToolContext} instance.
+     */
+    RangeToolContext( final ToolContext aContext, final int aStartSampleIdx, final int aEndSampleIdx )
+    {
+      this.context = aContext;
+      this.startSampleIdx = aStartSampleIdx;
+      this.endSampleIdx = aEndSampleIdx;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getChannels()
+    {
+      return this.context.getChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Cursor getCursor( final int aSelectedIndex )
+    {
+      return this.context.getCursor( aSelectedIndex );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AcquisitionResult getData()
+    {
+      return this.context.getData();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEnabledChannels()
+    {
+      return this.context.getEnabledChannels();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getEndSampleIndex()
+    {
+      return this.endSampleIdx;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLength()
+    {
+      return Math.max( 0, this.endSampleIdx - this.startSampleIdx );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getStartSampleIndex()
+    {
+      return this.startSampleIdx;
+    }
+  }
+
+  /**
+   * Records all annotations of a single (partial) decoding run.
+   */
+  private static final class Recorder implements AnnotationListener
+  {
+    // VARIABLES
+
+    final Set<Integer> clearedChannels = new TreeSet<Integer>();
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+    boolean clearedAll = false;
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      this.annotations.clear();
+      this.clearedAll = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      this.clearedChannels.add( Integer.valueOf( aChannelIdx ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      this.annotations.add( aAnnotation );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( IncrementalToolTask.class.getName() );
+
+  // VARIABLES
+
+  private final IncrementalDecoder<RESULT_TYPE> decoder;
+  private final ToolContext context;
+  private final AnnotationListener annotationListener;
+  private final String configuration;
+  private final Entry<RESULT_TYPE> entry;
+
+  private final Recorder fullRecorder;
+  private final ToolTask<RESULT_TYPE> fullTask;
+
+  private int headEnd;
+  private int tailStart;
+  private Recorder headRecorder;
+  private ToolTask<RESULT_TYPE> headTask;
+  private Recorder tailRecorder;
+  private ToolTask<RESULT_TYPE> tailTask;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link IncrementalToolTask} instance. The created tool tasks,
+   * see {@link #getToolTasks()}, still need to be prepared before this task is
+   * run.
+   * 
+   * @param aTool
+   *          the tool to create the actual tool tasks with, cannot be
+   *          <code>null</code>;
+   * @param aDecoder
+   *          the incremental decoder, normally the tool dialog;
+   * @param aContext
+   *          the tool context to decode, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the progress listener to use, cannot be <code>null</code>;
+   * @param aAnnotationListener
+   *          the annotation listener to report the annotations to, cannot be
+   *          <code>null</code>.
+   */
+  IncrementalToolTask( final Tool<RESULT_TYPE> aTool, final IncrementalDecoder<RESULT_TYPE> aDecoder,
+      final ToolContext aContext, final ToolProgressListener aProgressListener,
+      final AnnotationListener aAnnotationListener )
+  {
+    this.decoder = aDecoder;
+    this.context = aContext;
+    this.annotationListener = aAnnotationListener;
+    this.configuration = aDecoder.getDecodeConfiguration();
+
+    this.fullRecorder = new Recorder();
+    this.fullTask = aTool.createToolTask( aContext, aProgressListener, this.fullRecorder );
+
+    final Entry<RESULT_TYPE> cached = ( this.configuration == null ) ? null : aDecoder.getDecodeCache().get(
+        aContext.getData(), this.configuration );
+    // Only use the cached result if it is actually usable for our range...
+    this.entry = ( ( cached != null ) && planSegments( cached ) ) ? cached : null;
+    if ( this.entry != null )
+    {
+      final int startIdx = aContext.getStartSampleIndex();
+      final int endIdx = aContext.getEndSampleIndex();
+
+      if ( this.headEnd > startIdx )
+      {
+        this.headRecorder = new Recorder();
+        this.headTask = aTool.createToolTask( new RangeToolContext( aContext, startIdx, this.headEnd ),
+            aProgressListener, this.headRecorder );
+      }
+      if ( this.tailStart <= endIdx )
+      {
+        this.tailRecorder = new Recorder();
+        this.tailTask = aTool.createToolTask( new RangeToolContext( aContext, this.tailStart, endIdx ),
+            aProgressListener, this.tailRecorder );
+      }
+    }
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RESULT_TYPE call() throws Exception
+  {
+    RESULT_TYPE result = null;
+    if ( this.entry != null )
+    {
+      try
+      {
+        result = decodeIncrementally();
+      }
+      catch ( InterruptedException exception )
+      {
+        throw exception;
+      }
+      catch ( Exception exception )
+      {
+        // Partial ranges can upset the decoder; simply start over...
+        LOG.log( Level.FINE, "Incremental decode failed; decoding entire range...", exception );
+        result = null;
+      }
+    }
+
+    if ( result == null )
+    {
+      result = this.fullTask.call();
+
+      final List<Annotation<?>> annotations = this.fullRecorder.annotations;
+      if ( this.fullRecorder.clearedAll )
+      {
+        this.annotationListener.clearAnnotations();
+      }
+      publish( this.fullRecorder.clearedChannels, annotations );
+      storeResult( result, annotations );
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns all tool tasks that might be run by this task. As preparing a tool
+   * task normally requires the settings of the tool dialog, these tasks should
+   * be prepared on the EDT, before this task is run.
+   * 
+   * @return the tool tasks, never <code>null</code>.
+   */
+  final List<ToolTask<RESULT_TYPE>> getToolTasks()
+  {
+    final List<ToolTask<RESULT_TYPE>> result = new ArrayList<ToolTask<RESULT_TYPE>>();
+    result.add( this.fullTask );
+    if ( this.headTask != null )
+    {
+      result.add( this.headTask );
+    }
+    if ( this.tailTask != null )
+    {
+      result.add( this.tailTask );
+    }
+    return result;
+  }
+
+  /**
+   * Adds all data annotations that start in the given range of sample indices
+   * to the given list.
+   * 
+   * @return all other (non-data) annotations, never <code>null</code>.
+   */
+  private static List<Annotation<?>> addAnnotations( final List<Annotation<?>> aTarget,
+      final List<Annotation<?>> aSource, final long[] aTimestamps, final int aFromSampleIdx, final int aToSampleIdx )
+  {
+    final long from = getTimestamp( aTimestamps, aFromSampleIdx );
+    final long to = getTimestamp( aTimestamps, aToSampleIdx );
+
+    final List<Annotation<?>> others = new ArrayList<Annotation<?>>();
+    for ( Annotation<?> annotation : aSource )
+    {
+      if ( annotation instanceof DataAnnotation<?> )
+      {
+        final long start = ( ( DataAnnotation<?> )annotation ).getStartTimestamp();
+        if ( ( start >= from ) && ( start < to ) )
+        {
+          aTarget.add( annotation );
+        }
+      }
+      else
+      {
+        others.add( annotation );
+      }
+    }
+    return others;
+  }
+
+  /**
+   * Decodes the head and tail segments, and combines them with the cached
+   * result.
+   * 
+   * @return the combined result, never <code>null</code>.
+   */
+  private RESULT_TYPE decodeIncrementally() throws Exception
+  {
+    final int startIdx = this.context.getStartSampleIndex();
+    final int endIdx = this.context.getEndSampleIndex();
+    final long[] timestamps = this.context.getData().getTimestamps();
+
+    final RESULT_TYPE result = this.decoder.createResult( this.context );
+
+    final Set<Integer> clearedChannels = new TreeSet<Integer>();
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+    List<Annotation<?>> labels = null;
+
+    if ( this.headTask != null )
+    {
+      final RESULT_TYPE headResult = this.headTask.call();
+      this.decoder.copyResults( result, headResult, startIdx, this.headEnd );
+
+      clearedChannels.addAll( this.headRecorder.clearedChannels );
+      labels = addAnnotations( annotations, this.headRecorder.annotations, timestamps, startIdx, this.headEnd );
+    }
+
+    final int cachedEnd = ( this.tailTask != null ) ? this.tailStart : ( endIdx + 1 );
+    this.decoder.copyResults( result, this.entry.getResult(), this.headEnd, cachedEnd );
+
+    final List<Annotation<?>> cachedLabels = addAnnotations( annotations, this.entry.getAnnotations(), timestamps,
+        this.headEnd, cachedEnd );
+    if ( labels == null )
+    {
+      labels = cachedLabels;
+    }
+
+    if ( this.tailTask != null )
+    {
+      final RESULT_TYPE tailResult = this.tailTask.call();
+      this.decoder.copyResults( result, tailResult, this.tailStart, endIdx + 1 );
+
+      clearedChannels.addAll( this.tailRecorder.clearedChannels );
+      addAnnotations( annotations, this.tailRecorder.annotations, timestamps, this.tailStart, endIdx + 1 );
+    }
+
+    annotations.addAll( 0, labels );
+    for ( Annotation<?> annotation : annotations )
+    {
+      clearedChannels.add( Integer.valueOf( annotation.getChannel() ) );
+    }
+
+    publish( clearedChannels, annotations );
+    storeResult( result, annotations );
+
+    return result;
+  }
+
+  /**
+   * @return the timestamp of the given sample index, or
+   *         {@link Long#MAX_VALUE} if the index lies beyond the last sample.
+   */
+  private static long getTimestamp( final long[] aTimestamps, final int aSampleIdx )
+  {
+    return ( aSampleIdx < aTimestamps.length ) ? aTimestamps[aSampleIdx] : Long.MAX_VALUE;
+  }
+
+  /**
+   * Determines the head and tail segments that need to be decoded.
+   * 
+   * @param aEntry
+   *          the cached result to use, cannot be <code>null</code>.
+   * @return <code>true</code> if the cached result can be used,
+   *         <code>false</code> if the entire range should be decoded.
+   */
+  private boolean planSegments( final Entry<RESULT_TYPE> aEntry )
+  {
+    final int startIdx = this.context.getStartSampleIndex();
+    final int endIdx = this.context.getEndSampleIndex();
+
+    final int cachedStart = aEntry.getStartSampleIndex();
+    final int cachedEnd = aEntry.getEndSampleIndex();
+
+    if ( ( endIdx < cachedStart ) || ( startIdx > cachedEnd ) )
+    {
+      return false;
+    }
+
+    this.headEnd = aEntry.getFirstCheckpoint( Math.max( startIdx, cachedStart ), Math.min( endIdx, cachedEnd ) );
+    if ( this.headEnd < 0 )
+    {
+      return false;
+    }
+
+    if ( endIdx > cachedEnd )
+    {
+      this.tailStart = aEntry.getLastCheckpoint( this.headEnd, cachedEnd );
+    }
+    else
+    {
+      this.tailStart = endIdx + 1;
+    }
+
+    return true;
+  }
+
+  /**
+   * Reports the given annotations to the actual annotation listener.
+   */
+  private void publish( final Set<Integer> aClearedChannels, final List<Annotation<?>> aAnnotations )
+  {
+    for ( Integer channelIdx : aClearedChannels )
+    {
+      this.annotationListener.clearAnnotations( channelIdx.intValue() );
+    }
+    for ( Annotation<?> annotation : aAnnotations )
+    {
+      this.annotationListener.onAnnotation( annotation );
+    }
+  }
+
+  /**
+   * Stores the given result in the decode cache, if possible.
+   */
+  private void storeResult( final RESULT_TYPE aResult, final List<Annotation<?>> aAnnotations )
+  {
+    if ( ( this.configuration == null ) || ( aResult == null ) )
+    {
+      return;
+    }
+
+    this.decoder.getDecodeCache().put( this.context.getData(), this.configuration,
+        this.context.getStartSampleIndex(), this.context.getEndSampleIndex(), aResult, aAnnotations,
+        this.decoder.getCheckpoints( aResult ) );
+  }
+}
@@ -24,6 +24,7 @@ package nl.lxtreme.ols.tool.base;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.util.logging.*;
 import javax.swing.*;
 
 import nl.lxtreme.ols.tool.base.ExportAware.*;
@@ -89,6 +90,13 @@ public class ToolUtils
     @Override
     public void actionPerformed( final ActionEvent aEvent )
     {
+      final BaseToolDialog<?> baseToolDialog = getBaseToolDialog();
+      if ( ( baseToolDialog != null ) && baseToolDialog.isExportRunning() )
+      {
+        baseToolDialog.cancelExport();
+        return;
+      }
+
       final Window owner = SwingComponentUtils.getOwningWindow( aEvent );
       final File selectedFile = SwingComponentUtils.showFileSaveDialog( owner, StdFileFilter.CSV, StdFileFilter.HTML );
 
@@ -102,13 +110,34 @@ public class ToolUtils
           format = ExportFormat.HTML;
         }
 
-        try
+        if ( baseToolDialog != null )
         {
-          this.toolDialog.exportToFile( selectedFile, format );
+          // Export in the background; while running, this action cancels the
+          // export...
+          putValue( NAME, "Cancel export" );
+          baseToolDialog.startExport( this.toolDialog, selectedFile, format, new Runnable()
+          {
+            @Override
+            public void run()
+            {
+              putValue( NAME, "Export" );
+            }
+          } );
         }
-        catch ( IOException exception )
+        else
         {
-          // TODO
+          try
+          {
+            this.toolDialog.exportToFile( selectedFile, format );
+          }
+          catch ( IOException exception )
+          {
+            // Make sure to handle IO-interrupted exceptions properly!
+            if ( !HostUtils.handleInterruptedException( exception ) )
+            {
+              showErrorMessage( owner, "Export failed!\nDetails: " + exception.getMessage() );
+            }
+          }
         }
       }
     }
@@ -121,6 +150,19 @@ public class ToolUtils
     {
       return super.isEnabled() && ( this.toolDialog.getLastResult() != null );
     }
+
+    /**
+     * @return the tool dialog as {@link BaseToolDialog}, or <code>null</code>
+     *         if the tool dialog does not support background exports.
+     */
+    private BaseToolDialog<?> getBaseToolDialog()
+    {
+      if ( this.toolDialog instanceof BaseToolDialog<?> )
+      {
+        return ( BaseToolDialog<?> )this.toolDialog;
+      }
+      return null;
+    }
   }
 
   /**
@@ -221,6 +263,12 @@ public class ToolUtils
     }
   }
 
+  // CONSTANTS
+
+  private static final Logger LOG = Logger.getLogger( ToolUtils.class.getName() );
+
+  // METHODS
+
   /**
    * Convenience method to create a close button that closes this dialog.
    * 
@@ -263,6 +311,35 @@ public class ToolUtils
     return runButton;
   }
 
+  /**
+   * Returns the item at the given index, as a combobox with the given items
+   * would have selected it. This allows the (index-based) settings of a tool
+   * dialog to be used without the dialog itself.
+   *
+   * @param aItems
+   *          the items to select from, cannot be <code>null</code>;
+   * @param aIndex
+   *          the index of the item to return;
+   * @param aDefault
+   *          the item to return in case the given index is negative or out of
+   *          range, for example when it is stored by an older version.
+   * @return the selected item, or the given default.
+   */
+  public static <T> T getItem( final T[] aItems, final int aIndex, final T aDefault )
+  {
+    if ( aIndex < 0 )
+    {
+      return aDefault;
+    }
+    if ( aIndex >= aItems.length )
+    {
+      LOG.log( Level.WARNING, "Ignoring invalid item index {0}, using {1} instead...", new Object[] {
+          Integer.valueOf( aIndex ), aDefault } );
+      return aDefault;
+    }
+    return aItems[aIndex];
+  }
+
   /**
    * @param aComboBox
    * @param aIndex
@@ -0,0 +1,158 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.pipeline;
+
+
+/**
+ * Provides a base implementation of a {@link DecoderStage} that can pass a
+ * (modified) transition stream on to a next stage.
+ * <p>
+ * By default, all transitions are passed on unmodified. Stages that produce a
+ * new signal should override the methods of {@link DecoderStage} and use the
+ * <tt>emit</tt>-methods to pass their transitions on. The emitted stream is
+ * kept valid, meaning that values that do not change are not passed on, and
+ * that timestamps never decrease.
+ * </p>
+ */
+public abstract class AbstractDecoderStage implements DecoderStage
+{
+  // VARIABLES
+
+  private DecoderStage nextStage;
+  private long lastTimestamp;
+  private int lastValue;
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final long aTimestamp, final int aValue ) throws Exception
+  {
+    emitBegin( aTimestamp, aValue );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void end( final long aTimestamp ) throws Exception
+  {
+    emitEnd( aTimestamp );
+  }
+
+  /**
+   * Sets the stage that receives the transitions emitted by this stage.
+   * 
+   * @param aNextStage
+   *          the next stage, can be <code>null</code> if this is the last
+   *          stage.
+   */
+  public final void setNextStage( final DecoderStage aNextStage )
+  {
+    this.nextStage = aNextStage;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transition( final long aTimestamp, final int aValue ) throws Exception
+  {
+    emitTransition( aTimestamp, aValue );
+  }
+
+  /**
+   * Passes the start of the signal on to the next stage, if any.
+   * 
+   * @param aTimestamp
+   *          the timestamp of the first sample;
+   * @param aValue
+   *          the initial sample value.
+   * @throws Exception
+   *           in case the next stage failed.
+   */
+  protected final void emitBegin( final long aTimestamp, final int aValue ) throws Exception
+  {
+    this.lastTimestamp = aTimestamp;
+    this.lastValue = aValue;
+
+    if ( this.nextStage != null )
+    {
+      this.nextStage.begin( aTimestamp, aValue );
+    }
+  }
+
+  /**
+   * Passes the end of the signal on to the next stage, if any.
+   * 
+   * @param aTimestamp
+   *          the timestamp at which the signal ends.
+   * @throws Exception
+   *           in case the next stage failed.
+   */
+  protected final void emitEnd( final long aTimestamp ) throws Exception
+  {
+    if ( this.nextStage != null )
+    {
+      this.nextStage.end( Math.max( this.lastTimestamp, aTimestamp ) );
+    }
+  }
+
+  /**
+   * Passes a transition on to the next stage, if any. Transitions that do not
+   * change the value are dropped; timestamps that lie before the last emitted
+   * timestamp are moved forward to that timestamp.
+   * 
+   * @param aTimestamp
+   *          the timestamp on which the value changes;
+   * @param aValue
+   *          the new value.
+   * @throws Exception
+   *           in case the next stage failed.
+   */
+  protected final void emitTransition( final long aTimestamp, final int aValue ) throws Exception
+  {
+    if ( aValue == this.lastValue )
+    {
+      return;
+    }
+
+    this.lastTimestamp = Math.max( this.lastTimestamp, aTimestamp );
+    this.lastValue = aValue;
+
+    if ( this.nextStage != null )
+    {
+      this.nextStage.transition( this.lastTimestamp, aValue );
+    }
+  }
+
+  /**
+   * Returns the last value emitted by this stage.
+   * 
+   * @return the last emitted value.
+   */
+  protected final int getLastEmittedValue()
+  {
+    return this.lastValue;
+  }
+}
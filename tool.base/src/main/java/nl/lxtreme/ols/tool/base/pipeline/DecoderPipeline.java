@@ -0,0 +1,292 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.pipeline;
+
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.util.*;
+
+
+/**
+ * Provides a chain of {@link DecoderStage}s that is fed in a single pass over
+ * the acquired data.
+ * <p>
+ * Only the sample values that differ from their predecessor are passed to the
+ * first stage; each stage passes its own transitions on to the next stage. This
+ * way, for example, a Manchester line decoder can feed a UART decoder directly,
+ * without an intermediate acquisition result.
+ * </p>
+ */
+public final class DecoderPipeline
+{
+  // CONSTANTS
+
+  /** The number of samples after which the interrupted flag is checked. */
+  private static final int CHECK_INTERVAL = 1 << 12;
+
+  // VARIABLES
+
+  private final List<DecoderStage> stages;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link DecoderPipeline} instance.
+   * 
+   * @param aStages
+   *          the stages of this pipeline, in order. All stages but the last
+   *          one should be an {@link AbstractDecoderStage}.
+   * @throws IllegalArgumentException
+   *           in case no stages were given, or a stage could not be chained.
+   */
+  public DecoderPipeline( final DecoderStage... aStages )
+  {
+    if ( ( aStages == null ) || ( aStages.length == 0 ) )
+    {
+      throw new IllegalArgumentException( "Stages cannot be null or empty!" );
+    }
+
+    this.stages = new ArrayList<DecoderStage>( aStages.length );
+    for ( int i = 0; i < aStages.length; i++ )
+    {
+      final DecoderStage stage = aStages[i];
+      if ( stage == null )
+      {
+        throw new IllegalArgumentException( "Stage cannot be null!" );
+      }
+
+      if ( i > 0 )
+      {
+        final DecoderStage previous = aStages[i - 1];
+        if ( !( previous instanceof AbstractDecoderStage ) )
+        {
+          throw new IllegalArgumentException( "Stage " + previous + " cannot be chained!" );
+        }
+        ( ( AbstractDecoderStage )previous ).setNextStage( stage );
+      }
+
+      this.stages.add( stage );
+    }
+  }
+
+  // METHODS
+
+  /**
+   * Decodes the given range of samples with all stages of this pipeline.
+   * <p>
+   * The stages receive the values returned by
+   * {@link AcquisitionResult#getValues()}, meaning that only the first
+   * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels can be
+   * decoded.
+   * </p>
+   * 
+   * @param aData
+   *          the acquired data to decode, cannot be <code>null</code>;
+   * @param aStartIdx
+   *          the index of the first sample to decode, >= 0;
+   * @param aEndIdx
+   *          the index of the last sample to decode (inclusive);
+   * @param aProgressListener
+   *          the progress listener to report the progress to, can be
+   *          <code>null</code>.
+   * @throws InterruptedException
+   *           in case the current thread is interrupted while decoding;
+   * @throws Exception
+   *           in case one of the stages failed.
+   */
+  public void decode( final AcquisitionResult aData, final int aStartIdx, final int aEndIdx,
+      final ToolProgressListener aProgressListener ) throws Exception
+  {
+    if ( aData == null )
+    {
+      throw new IllegalArgumentException( "Data cannot be null!" );
+    }
+
+    decode( aData, aData.getValues(), aStartIdx, aEndIdx, aProgressListener );
+  }
+
+  /**
+   * Decodes the given range of samples of a set of channels with all stages of
+   * this pipeline.
+   * <p>
+   * The stages receive the values of the given channel accessor, so they
+   * should use {@link MultiChannelAccessor#getMask(int)} of that same accessor
+   * to mask out their channel(s).
+   * </p>
+   * 
+   * @param aData
+   *          the acquired data to decode, cannot be <code>null</code>;
+   * @param aChannels
+   *          the channels to decode, cannot be <code>null</code>;
+   * @param aStartIdx
+   *          the index of the first sample to decode, >= 0;
+   * @param aEndIdx
+   *          the index of the last sample to decode (inclusive);
+   * @param aProgressListener
+   *          the progress listener to report the progress to, can be
+   *          <code>null</code>.
+   * @throws InterruptedException
+   *           in case the current thread is interrupted while decoding;
+   * @throws Exception
+   *           in case one of the stages failed.
+   */
+  public void decode( final AcquisitionResult aData, final MultiChannelAccessor aChannels, final int aStartIdx,
+      final int aEndIdx, final ToolProgressListener aProgressListener ) throws Exception
+  {
+    if ( aData == null )
+    {
+      throw new IllegalArgumentException( "Data cannot be null!" );
+    }
+    if ( aChannels == null )
+    {
+      throw new IllegalArgumentException( "Channels cannot be null!" );
+    }
+
+    decode( aData, aChannels.getValues(), aStartIdx, aEndIdx, aProgressListener );
+  }
+
+  /**
+   * Decodes the sample range of the given tool context with all stages of this
+   * pipeline.
+   * 
+   * @param aContext
+   *          the tool context providing the data and sample range, cannot be
+   *          <code>null</code>;
+   * @param aChannels
+   *          the channels to decode, cannot be <code>null</code>;
+   * @param aProgressListener
+   *          the progress listener to report the progress to, can be
+   *          <code>null</code>.
+   * @throws Exception
+   *           in case one of the stages failed, or decoding was interrupted.
+   * @see #decode(AcquisitionResult, MultiChannelAccessor, int, int,
+   *      ToolProgressListener)
+   */
+  public void decode( final ToolContext aContext, final MultiChannelAccessor aChannels,
+      final ToolProgressListener aProgressListener ) throws Exception
+  {
+    decode( aContext.getData(), aChannels, aContext.getStartSampleIndex(), aContext.getEndSampleIndex(),
+        aProgressListener );
+  }
+
+  /**
+   * Decodes the sample range of the given tool context with all stages of this
+   * pipeline.
+   * 
+   * @param aContext
+   *          the tool context providing the data and sample range, cannot be
+   *          <code>null</code>;
+   * @param aProgressListener
+   *          the progress listener to report the progress to, can be
+   *          <code>null</code>.
+   * @throws Exception
+   *           in case one of the stages failed, or decoding was interrupted.
+   * @see #decode(AcquisitionResult, int, int, ToolProgressListener)
+   */
+  public void decode( final ToolContext aContext, final ToolProgressListener aProgressListener ) throws Exception
+  {
+    decode( aContext.getData(), aContext.getStartSampleIndex(), aContext.getEndSampleIndex(), aProgressListener );
+  }
+
+  /**
+   * Returns the stages of this pipeline.
+   * 
+   * @return the stages, in order, never <code>null</code>.
+   */
+  public List<DecoderStage> getStages()
+  {
+    return Collections.unmodifiableList( this.stages );
+  }
+
+  /**
+   * Reports the given progress to the given listener, if any.
+   */
+  private static void setProgress( final ToolProgressListener aProgressListener, final int aPercentage )
+  {
+    if ( aProgressListener != null )
+    {
+      aProgressListener.setProgress( aPercentage );
+    }
+  }
+
+  /**
+   * Feeds the transitions of the given sample values to the first stage.
+   */
+  private void decode( final AcquisitionResult aData, final int[] aValues, final int aStartIdx, final int aEndIdx,
+      final ToolProgressListener aProgressListener ) throws Exception
+  {
+    final long[] timestamps = aData.getTimestamps();
+
+    final int startIdx = Math.max( 0, aStartIdx );
+    final int endIdx = Math.min( aEndIdx, aValues.length - 1 );
+    if ( endIdx < startIdx )
+    {
+      return;
+    }
+
+    final DecoderStage first = this.stages.get( 0 );
+
+    int lastValue = aValues[startIdx];
+    int lastProgress = 0;
+
+    setProgress( aProgressListener, 0 );
+
+    first.begin( timestamps[startIdx], lastValue );
+
+    for ( int i = startIdx + 1; i <= endIdx; i++ )
+    {
+      final int value = aValues[i];
+      if ( value != lastValue )
+      {
+        first.transition( timestamps[i], value );
+        lastValue = value;
+      }
+
+      if ( ( ( i - startIdx ) % CHECK_INTERVAL ) == 0 )
+      {
+        if ( Thread.currentThread().isInterrupted() )
+        {
+          throw new InterruptedException();
+        }
+
+        final int progress = NumberUtils.getPercentage( i, startIdx, endIdx );
+        if ( progress != lastProgress )
+        {
+          setProgress( aProgressListener, progress );
+          lastProgress = progress;
+        }
+      }
+    }
+
+    long endTimestamp = timestamps[endIdx];
+    if ( endIdx == ( aValues.length - 1 ) )
+    {
+      endTimestamp = Math.max( endTimestamp, aData.getAbsoluteLength() );
+    }
+    first.end( endTimestamp );
+
+    setProgress( aProgressListener, 100 );
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base.pipeline;
+
+
+/**
+ * Denotes a single stage in a {@link DecoderPipeline}.
+ * <p>
+ * A decoder stage consumes a stream of <em>transitions</em>, that is, the
+ * moments in time on which the sample value changes. All timestamps passed to a
+ * stage are in sample units and never decrease. A stage that produces a new
+ * signal (for example, a line decoder that recovers the data and clock of a
+ * Manchester encoded signal) passes its transitions on to the next stage,
+ * allowing decoders to be stacked without materializing intermediate results.
+ * </p>
+ * 
+ * @see AbstractDecoderStage
+ */
+public interface DecoderStage
+{
+  // METHODS
+
+  /**
+   * Called once before any transitions are passed to this stage.
+   * 
+   * @param aTimestamp
+   *          the timestamp of the first sample;
+   * @param aValue
+   *          the initial sample value.
+   * @throws Exception
+   *           in case of problems decoding.
+   */
+  void begin( long aTimestamp, int aValue ) throws Exception;
+
+  /**
+   * Called once after all transitions are passed to this stage.
+   * 
+   * @param aTimestamp
+   *          the timestamp at which the decoded signal ends, >= the last
+   *          timestamp seen.
+   * @throws Exception
+   *           in case of problems decoding.
+   */
+  void end( long aTimestamp ) throws Exception;
+
+  /**
+   * Called for each change in the sample value.
+   * 
+   * @param aTimestamp
+   *          the timestamp on which the sample value changed;
+   * @param aValue
+   *          the new sample value.
+   * @throws Exception
+   *           in case of problems decoding.
+   */
+  void transition( long aTimestamp, int aValue ) throws Exception;
+}
@@ -0,0 +1,207 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.tool.base.DecodeCache.Entry;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link DecodeCache}.
+ */
+public class DecodeCacheTest
+{
+  // VARIABLES
+
+  private DecodeCache<String> cache;
+  private AcquisitionResult capture;
+
+  // METHODS
+
+  /**
+   * Sets up the test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.cache = new DecodeCache<String>();
+    this.capture = createCapture();
+  }
+
+  /**
+   * Tests that the cache can be cleared explicitly.
+   */
+  @Test
+  public void testClearRemovesAllResultsOk()
+  {
+    put( this.capture, "a", "result" );
+    this.cache.clear();
+
+    assertNull( this.cache.get( this.capture, "a" ) );
+  }
+
+  /**
+   * Tests that the first and last checkpoints of a range are found, regardless
+   * of the order in which they are given.
+   */
+  @Test
+  public void testGetCheckpointsOk()
+  {
+    final Entry<String> entry = this.cache.put( this.capture, "a", 0, 100, "result",
+        Collections.<Annotation<?>> emptyList(), new int[] { 50, 10, 30 } );
+
+    assertEquals( 10, entry.getFirstCheckpoint( 0, 100 ) );
+    assertEquals( 30, entry.getFirstCheckpoint( 11, 100 ) );
+    assertEquals( 30, entry.getFirstCheckpoint( 30, 100 ) );
+    assertEquals( -1, entry.getFirstCheckpoint( 51, 100 ) );
+    assertEquals( -1, entry.getFirstCheckpoint( 11, 29 ) );
+
+    assertEquals( 50, entry.getLastCheckpoint( 0, 100 ) );
+    assertEquals( 30, entry.getLastCheckpoint( 0, 49 ) );
+    assertEquals( 10, entry.getLastCheckpoint( 10, 10 ) );
+    assertEquals( -1, entry.getLastCheckpoint( 0, 9 ) );
+    assertEquals( -1, entry.getLastCheckpoint( 31, 49 ) );
+  }
+
+  /**
+   * Tests that a cached result is returned for the same capture and
+   * configuration.
+   */
+  @Test
+  public void testGetHitOk()
+  {
+    put( this.capture, "a", "result" );
+
+    final Entry<String> entry = this.cache.get( this.capture, "a" );
+    assertNotNull( entry );
+    assertEquals( "result", entry.getResult() );
+    assertEquals( 0, entry.getStartSampleIndex() );
+    assertEquals( 100, entry.getEndSampleIndex() );
+  }
+
+  /**
+   * Tests that no result is returned for another configuration, or for a
+   * capture that is equal, but not the same.
+   */
+  @Test
+  public void testGetMissOk()
+  {
+    put( this.capture, "a", "result" );
+
+    assertNull( this.cache.get( this.capture, "b" ) );
+    assertNull( this.cache.get( createCapture(), "a" ) );
+  }
+
+  /**
+   * Tests that the least recently used result is evicted first.
+   */
+  @Test
+  public void testLeastRecentlyUsedResultIsEvictedOk()
+  {
+    put( this.capture, "a", "1" );
+    put( this.capture, "b", "2" );
+    put( this.capture, "c", "3" );
+    put( this.capture, "d", "4" );
+
+    // Touch "a", making "b" the least recently used result...
+    assertNotNull( this.cache.get( this.capture, "a" ) );
+
+    put( this.capture, "e", "5" );
+
+    assertNotNull( this.cache.get( this.capture, "a" ) );
+    assertNull( this.cache.get( this.capture, "b" ) );
+    assertNotNull( this.cache.get( this.capture, "c" ) );
+    assertNotNull( this.cache.get( this.capture, "d" ) );
+    assertNotNull( this.cache.get( this.capture, "e" ) );
+  }
+
+  /**
+   * Tests that the results of a capture are released as soon as another
+   * capture is decoded, as the results normally refer to its data.
+   */
+  @Test
+  public void testNewCaptureInvalidatesResultsOk()
+  {
+    final AcquisitionResult newCapture = createCapture();
+
+    put( this.capture, "a", "old" );
+    put( newCapture, "b", "new" );
+
+    assertNotNull( this.cache.get( newCapture, "b" ) );
+    assertNull( this.cache.get( this.capture, "a" ) );
+    // The new capture no longer is the current one...
+    assertNull( this.cache.get( newCapture, "b" ) );
+  }
+
+  /**
+   * Tests that putting a result for the same configuration replaces the
+   * earlier result.
+   */
+  @Test
+  public void testPutReplacesResultOk()
+  {
+    put( this.capture, "a", "old" );
+    put( this.capture, "a", "new" );
+
+    assertEquals( "new", this.cache.get( this.capture, "a" ).getResult() );
+  }
+
+  /**
+   * Tests that retaining a capture only keeps the results of that capture.
+   */
+  @Test
+  public void testRetainOk()
+  {
+    put( this.capture, "a", "result" );
+
+    this.cache.retain( this.capture );
+    assertNotNull( this.cache.get( this.capture, "a" ) );
+
+    this.cache.retain( createCapture() );
+    assertNull( this.cache.get( this.capture, "a" ) );
+  }
+
+  /**
+   * @return a new capture, never <code>null</code>.
+   */
+  private static AcquisitionResult createCapture()
+  {
+    return new CapturedData( new int[] { 0, 1, 0, 1 }, new long[] { 0L, 10L, 20L, 30L }, 0L, 100, 1, 1, 40L );
+  }
+
+  /**
+   * Caches the given result for the sample range 0..100.
+   */
+  private void put( final AcquisitionResult aCapture, final String aConfiguration, final String aResult )
+  {
+    this.cache.put( aCapture, aConfiguration, 0, 100, aResult, Collections.<Annotation<?>> emptyList(),
+        new int[] { 10, 20 } );
+  }
+}
@@ -0,0 +1,423 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import java.awt.*;
+import java.util.*;
+import java.util.List;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link IncrementalToolTask}.
+ */
+public class IncrementalToolTaskTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a trivial decoder that reports the start index of each frame, a
+   * run of samples in which the first channel is high, as result. Each sample
+   * index following a frame is a checkpoint.
+   */
+  static final class FrameDecoder implements Tool<List<Integer>>, IncrementalDecoder<List<Integer>>
+  {
+    // VARIABLES
+
+    final DecodeCache<List<Integer>> cache = new DecodeCache<List<Integer>>();
+    final List<int[]> decodedRanges = new ArrayList<int[]>();
+    String configuration = "frames";
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void copyResults( final List<Integer> aTarget, final List<Integer> aSource, final int aFromSampleIdx,
+        final int aToSampleIdx )
+    {
+      for ( Integer sampleIdx : aSource )
+      {
+        if ( ( sampleIdx.intValue() >= aFromSampleIdx ) && ( sampleIdx.intValue() < aToSampleIdx ) )
+        {
+          aTarget.add( sampleIdx );
+        }
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<Integer> createResult( final ToolContext aContext )
+    {
+      return new ArrayList<Integer>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ToolTask<List<Integer>> createToolTask( final ToolContext aContext,
+        final ToolProgressListener aProgressListener, final AnnotationListener aAnnotationListener )
+    {
+      return new ToolTask<List<Integer>>()
+      {
+        @Override
+        public List<Integer> call() throws Exception
+        {
+          return decode( aContext, aAnnotationListener );
+        }
+      };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ToolCategory getCategory()
+    {
+      return ToolCategory.DECODER;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int[] getCheckpoints( final List<Integer> aResult )
+    {
+      final int[] result = new int[aResult.size()];
+      for ( int i = 0; i < result.length; i++ )
+      {
+        result[i] = aResult.get( i ).intValue() + FRAME_LENGTH;
+      }
+      return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DecodeCache<List<Integer>> getDecodeCache()
+    {
+      return this.cache;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDecodeConfiguration()
+    {
+      return this.configuration;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getName()
+    {
+      return "Frame decoder";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invoke( final Window aParent, final ToolContext aContext )
+    {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Decodes the frames in the range of the given context.
+     */
+    List<Integer> decode( final ToolContext aContext, final AnnotationListener aAnnotationListener )
+    {
+      final int startIdx = aContext.getStartSampleIndex();
+      final int endIdx = aContext.getEndSampleIndex();
+      this.decodedRanges.add( new int[] { startIdx, endIdx } );
+
+      final AcquisitionResult data = aContext.getData();
+      final int[] values = data.getValues();
+      final long[] timestamps = data.getTimestamps();
+
+      aAnnotationListener.clearAnnotations( 0 );
+
+      final List<Integer> result = new ArrayList<Integer>();
+      boolean idle = false;
+      for ( int i = startIdx; i <= endIdx; i++ )
+      {
+        if ( ( values[i] & 1 ) == 0 )
+        {
+          idle = true;
+        }
+        else if ( idle )
+        {
+          idle = false;
+          result.add( Integer.valueOf( i ) );
+          aAnnotationListener.onAnnotation( new SampleDataAnnotation( 0, timestamps[i], "frame" ) );
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * Records all reported annotations.
+   */
+  static final class RecordingAnnotationListener implements AnnotationListener
+  {
+    // VARIABLES
+
+    final List<Annotation<?>> annotations = new ArrayList<Annotation<?>>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      this.annotations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      this.annotations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      this.annotations.add( aAnnotation );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int FRAME_LENGTH = 5;
+  private static final int FRAME_DISTANCE = 20;
+  private static final int FRAME_COUNT = 50;
+
+  // VARIABLES
+
+  private AcquisitionResult capture;
+  private FrameDecoder decoder;
+  private RecordingAnnotationListener annotationListener;
+
+  // METHODS
+
+  /**
+   * Sets up the test case.
+   */
+  @Before
+  public void setUp()
+  {
+    this.capture = createCapture();
+    this.decoder = new FrameDecoder();
+    this.annotationListener = new RecordingAnnotationListener();
+  }
+
+  /**
+   * Tests that decoding a range that is already decoded only decodes the
+   * samples up to the first checkpoint.
+   */
+  @Test
+  public void testCacheHitOnlyDecodesHeadOk() throws Exception
+  {
+    run( 100, 800 );
+    this.decoder.decodedRanges.clear();
+
+    final List<Integer> result = run( 100, 800 );
+
+    assertEquals( decodeFully( 100, 800 ), result );
+    assertEquals( 1, this.decoder.decodedRanges.size() );
+    assertRange( 100, 125, this.decoder.decodedRanges.get( 0 ) );
+  }
+
+  /**
+   * Tests that the first decode of a range decodes the entire range and caches
+   * the results.
+   */
+  @Test
+  public void testCacheMissDecodesEntireRangeOk() throws Exception
+  {
+    final List<Integer> result = run( 100, 800 );
+
+    assertEquals( decodeFully( 100, 800 ), result );
+    assertEquals( 1, this.decoder.decodedRanges.size() );
+    assertRange( 100, 800, this.decoder.decodedRanges.get( 0 ) );
+    assertEquals( result.size(), this.annotationListener.annotations.size() );
+
+    final DecodeCache.Entry<List<Integer>> entry = this.decoder.cache.get( this.capture, "frames" );
+    assertNotNull( entry );
+    assertEquals( result, entry.getResult() );
+  }
+
+  /**
+   * Tests that another capture invalidates the cached results.
+   */
+  @Test
+  public void testCaptureChangeInvalidatesCacheOk() throws Exception
+  {
+    run( 100, 800 );
+    this.decoder.decodedRanges.clear();
+
+    this.capture = createCapture();
+
+    final List<Integer> result = run( 100, 800 );
+
+    assertEquals( decodeFully( 100, 800 ), result );
+    assertEquals( 1, this.decoder.decodedRanges.size() );
+    assertRange( 100, 800, this.decoder.decodedRanges.get( 0 ) );
+  }
+
+  /**
+   * Tests that extending the range resumes decoding at the last checkpoint of
+   * the cached result, and yields the same results as a full decode.
+   */
+  @Test
+  public void testCheckpointResumeOk() throws Exception
+  {
+    run( 100, 500 );
+    this.decoder.decodedRanges.clear();
+
+    final List<Integer> result = run( 50, 900 );
+
+    assertEquals( decodeFully( 50, 900 ), result );
+    assertEquals( 2, this.decoder.decodedRanges.size() );
+    // head: up to the first checkpoint of the cached result...
+    assertRange( 50, 125, this.decoder.decodedRanges.get( 0 ) );
+    // tail: from the last checkpoint of the cached result...
+    assertRange( 485, 900, this.decoder.decodedRanges.get( 1 ) );
+
+    final List<Integer> annotated = new ArrayList<Integer>();
+    for ( Annotation<?> annotation : this.annotationListener.annotations )
+    {
+      annotated.add( Integer.valueOf( this.capture.getSampleIndex( ( ( DataAnnotation<?> )annotation )
+          .getStartTimestamp() ) ) );
+    }
+    assertEquals( result, annotated );
+  }
+
+  /**
+   * Tests that the cache is not used at all if the decoder has no decoding
+   * configuration.
+   */
+  @Test
+  public void testNoConfigurationDisablesCacheOk() throws Exception
+  {
+    this.decoder.configuration = null;
+
+    run( 100, 800 );
+    run( 100, 800 );
+
+    assertEquals( 2, this.decoder.decodedRanges.size() );
+    assertRange( 100, 800, this.decoder.decodedRanges.get( 1 ) );
+    assertNull( this.decoder.cache.get( this.capture, "frames" ) );
+  }
+
+  /**
+   * Tests that a range without overlap with the cached range is decoded
+   * entirely.
+   */
+  @Test
+  public void testRangeWithoutOverlapDecodesEntireRangeOk() throws Exception
+  {
+    run( 100, 300 );
+    this.decoder.decodedRanges.clear();
+
+    final List<Integer> result = run( 400, 800 );
+
+    assertEquals( decodeFully( 400, 800 ), result );
+    assertEquals( 1, this.decoder.decodedRanges.size() );
+    assertRange( 400, 800, this.decoder.decodedRanges.get( 0 ) );
+  }
+
+  /**
+   * Asserts that the given range equals the expected range.
+   */
+  private static void assertRange( final int aExpectedStartIdx, final int aExpectedEndIdx, final int[] aRange )
+  {
+    assertEquals( aExpectedStartIdx, aRange[0] );
+    assertEquals( aExpectedEndIdx, aRange[1] );
+  }
+
+  /**
+   * Creates a capture with {@link #FRAME_COUNT} frames of {@link #FRAME_LENGTH}
+   * samples, each {@link #FRAME_DISTANCE} samples apart. The other channels
+   * count the samples, to ensure each sample is a transition.
+   */
+  private static AcquisitionResult createCapture()
+  {
+    final int size = FRAME_COUNT * FRAME_DISTANCE;
+    final int[] values = new int[size];
+    final long[] timestamps = new long[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      values[i] = ( i << 1 ) | ( ( ( i % FRAME_DISTANCE ) < FRAME_LENGTH ) ? 1 : 0 );
+      timestamps[i] = 10L * i;
+    }
+    return new CapturedData( values, timestamps, 0L, 100, 16, 0xFFFF, 10L * size );
+  }
+
+  /**
+   * Decodes the given range without any cache.
+   */
+  private List<Integer> decodeFully( final int aStartIdx, final int aEndIdx )
+  {
+    final ToolContext context = DataTestUtils.createToolContext( this.capture, aStartIdx, aEndIdx );
+    return new FrameDecoder().decode( context, new RecordingAnnotationListener() );
+  }
+
+  /**
+   * Runs an incremental tool task for the given range.
+   */
+  private List<Integer> run( final int aStartIdx, final int aEndIdx ) throws Exception
+  {
+    final ToolContext context = DataTestUtils.createToolContext( this.capture, aStartIdx, aEndIdx );
+    final IncrementalToolTask<List<Integer>> task = new IncrementalToolTask<List<Integer>>( this.decoder,
+        this.decoder, context, null, this.annotationListener );
+    return task.call();
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.base;
+
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ToolUtils}.
+ */
+public class ToolUtilsTest
+{
+  // CONSTANTS
+
+  private static final String[] ITEMS = { "a", "b", "c" };
+
+  // METHODS
+
+  /**
+   * Tests that an item within range is returned as-is.
+   */
+  @Test
+  public void testGetItemOk()
+  {
+    assertEquals( "a", ToolUtils.getItem( ITEMS, 0, "x" ) );
+    assertEquals( "c", ToolUtils.getItem( ITEMS, 2, "x" ) );
+  }
+
+  /**
+   * Tests that a negative index yields the default item.
+   */
+  @Test
+  public void testGetItemNegativeIndexOk()
+  {
+    assertEquals( "x", ToolUtils.getItem( ITEMS, -1, "x" ) );
+  }
+
+  /**
+   * Tests that an index beyond the last item yields the default item, instead
+   * of wrapping around to an unrelated item.
+   */
+  @Test
+  public void testGetItemOutOfRangeIndexOk()
+  {
+    assertEquals( "x", ToolUtils.getItem( ITEMS, 3, "x" ) );
+    assertEquals( "x", ToolUtils.getItem( ITEMS, 4, "x" ) );
+    assertEquals( "x", ToolUtils.getItem( new String[0], 0, "x" ) );
+  }
+}
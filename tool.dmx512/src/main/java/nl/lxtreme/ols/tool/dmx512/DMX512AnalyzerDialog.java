@@ -30,7 +30,6 @@ import java.io.*;
 import java.text.*;
 import java.util.*;
 import java.util.List;
-import java.util.logging.*;
 
 import javax.swing.*;
 
@@ -59,8 +58,6 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
 
   private static final long serialVersionUID = 1L;
 
-  private static final Logger LOG = Logger.getLogger( DMX512AnalyzerDialog.class.getName() );
-
   // VARIABLES
 
   private JComboBox dataLine;
@@ -306,7 +303,7 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
    */
   private JPanel createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final JPanel settings = new JPanel( new SpringLayout() );
 
@@ -392,12 +389,11 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
    * @param aFile
    *          File object
    */
-  private void storeToCsvFile( final File aFile, final DMX512DataSet aDataSet )
+  private void storeToCsvFile( final File aFile, final DMX512DataSet aDataSet ) throws IOException
   {
+    final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
       exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "RxD event", "TxD event",
           "RxD data", "TxD data" );
 
@@ -406,6 +402,8 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
       {
         final DMX512Data ds = decodedData.get( i );
 
+        setExportProgress( i, decodedData.size() );
+
         final String startTime = Unit.Time.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
         final String endTime = Unit.Time.format( aDataSet.getTime( ds.getEndSampleIndex() ) );
 
@@ -414,16 +412,10 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
 
         exporter.addRow( Integer.valueOf( i ), startTime, endTime, eventType, dataValue );
       }
-
-      exporter.close();
     }
-    catch ( final IOException exception )
+    finally
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "CSV export failed!", exception );
-      }
+      exporter.close();
     }
   }
 
@@ -433,20 +425,9 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
    * @param aFile
    *          file object
    */
-  private void storeToHtmlFile( final File aFile, final DMX512DataSet aDataSet )
+  private void storeToHtmlFile( final File aFile, final DMX512DataSet aDataSet ) throws IOException
   {
-    try
-    {
-      toHtmlPage( aFile, aDataSet );
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "HTML export failed!", exception );
-      }
-    }
+    toHtmlPage( aFile, aDataSet );
   }
 
   /**
@@ -492,6 +473,8 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
           {
             final DMX512Data ds = decodedData.get( i );
 
+            setExportProgress( i, decodedData.size() );
+
             String eventName = ds.getEventName();
             String bgColor;
             if ( "FRAME".equals( eventName ) )
@@ -547,8 +530,14 @@ public final class DMX512AnalyzerDialog extends BaseToolDialog<DMX512DataSet> im
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
@@ -22,6 +22,7 @@ package nl.lxtreme.ols.tool.dmx512;
 
 
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
@@ -82,13 +83,14 @@ public class DMX512AnalyzerTask implements ToolTask<DMX512DataSet>
   public DMX512DataSet call() throws Exception
   {
     final AcquisitionResult data = this.context.getData();
-    final int[] values = data.getValues();
+    final ChannelAccessor channel = new ChannelAccessor( data, this.dataLine );
+    final int[] values = channel.getValues();
 
     int startOfDecode = this.context.getStartSampleIndex();
     final int endOfDecode = this.context.getEndSampleIndex();
 
     // find first state change on the selected lines
-    final int mask = ( 1 << this.dataLine );
+    final int mask = channel.getMask();
 
     final int value = values[startOfDecode] & mask;
     for ( int i = startOfDecode + 1; i < endOfDecode; i++ )
@@ -29,7 +29,7 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
 /**
  * 
  */
-public class DMX512DataSet extends BaseDataSet<DMX512Data>
+public class DMX512DataSet extends ColumnarDataSet<DMX512Data>
 {
   // CONSTANTS
 
@@ -102,13 +102,12 @@ public class DMX512DataSet extends BaseDataSet<DMX512Data>
    */
   public void reportData( final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx, final int aSymbol )
   {
-    final int idx = size();
     this.decodedSymbols++;
     if ( Boolean.TRUE.equals( this.inMaB ) )
     {
       this.symbolsBetweenMaB++;
     }
-    addData( new DMX512Data( idx, aChannelIdx, aStartSampleIdx, aEndSampleIdx, aSymbol ) );
+    addRow( aChannelIdx, aStartSampleIdx, aEndSampleIdx, 0, aSymbol, null );
   }
 
   /**
@@ -117,9 +116,8 @@ public class DMX512DataSet extends BaseDataSet<DMX512Data>
    */
   public void reportError( final int aChannelIdx, final ErrorType aType, final int aSampleIndex )
   {
-    final int idx = size();
     this.detectedErrors++;
-    addData( new DMX512Data( idx, aChannelIdx, aSampleIndex, aType ) );
+    addRow( aChannelIdx, aSampleIndex, aSampleIndex, 0, -1, aType.name() );
   }
 
   /**
@@ -131,7 +129,6 @@ public class DMX512DataSet extends BaseDataSet<DMX512Data>
   public void reportEvent( final int aChannelIdx, final String aEvent, final int aStartSampleIdx,
       final int aEndSampleIdx )
   {
-    final int idx = size();
     if ( EVENT_MAB.equals( aEvent ) )
     {
       if ( Boolean.FALSE.equals( this.inMaB ) )
@@ -143,6 +140,31 @@ public class DMX512DataSet extends BaseDataSet<DMX512Data>
         this.inMaB = null;
       }
     }
-    addData( new DMX512Data( idx, aChannelIdx, aStartSampleIdx, aEndSampleIdx, aEvent ) );
+    addRow( aChannelIdx, aStartSampleIdx, aEndSampleIdx, 0, -1, aEvent );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected DMX512Data createData( final int aRow )
+  {
+    final String event = getEventName( aRow );
+    if ( event != null )
+    {
+      return new DMX512Data( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ),
+          getEndSampleIndex( aRow ), event );
+    }
+    return new DMX512Data( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ),
+        getEndSampleIndex( aRow ), getValue( aRow ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void storeData( final int aRow, final DMX512Data aData )
+  {
+    setValue( aRow, aData.getData() );
   }
 }
@@ -26,7 +26,9 @@ import static nl.lxtreme.ols.util.NumberUtils.*;
 import java.beans.*;
 import java.util.logging.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
@@ -35,7 +37,7 @@ import nl.lxtreme.ols.tool.base.annotation.*;
 /**
  * Performs the actual I2C analysis.
  */
-public class I2CAnalyserTask implements ToolTask<I2CDataSet>
+public class I2CAnalyserTask implements ToolTask<I2CDataSet>, Configurable
 {
   // CONSTANTS
 
@@ -64,9 +66,7 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   private boolean reportNACK;
   private boolean reportStart;
   private boolean reportStop;
-  private int lineAmask;
   private int lineAidx;
-  private int lineBmask;
   private int lineBidx;
   private int sdaIdx;
   private int sclIdx;
@@ -117,7 +117,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, this.lineAidx, this.lineBidx );
+    final int[] values = channels.getValues();
     final long[] timestamps = data.getTimestamps();
 
     // process the captured data and write to output
@@ -126,8 +127,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 
     if ( LOG.isLoggable( Level.FINE ) )
     {
-      LOG.log( Level.FINE, "Line A mask = 0x{0}", Integer.toHexString( this.lineAmask ) );
-      LOG.log( Level.FINE, "Line B mask = 0x{0}", Integer.toHexString( this.lineBmask ) );
+      LOG.log( Level.FINE, "Line A mask = 0x{0}", Integer.toHexString( channels.getMask( this.lineAidx ) ) );
+      LOG.log( Level.FINE, "Line B mask = 0x{0}", Integer.toHexString( channels.getMask( this.lineBidx ) ) );
     }
 
     int startOfDecode = this.context.getStartSampleIndex();
@@ -135,7 +136,7 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 
     if ( this.detectSDA_SCL )
     {
-      startOfDecode = autodetectDataAndClock( data, startOfDecode, endOfDecode );
+      startOfDecode = autodetectDataAndClock( channels, startOfDecode, endOfDecode );
     }
     else
     {
@@ -144,8 +145,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
       this.sdaIdx = this.lineBidx;
     }
 
-    final int sdaMask = ( 1 << this.sdaIdx );
-    final int sclMask = ( 1 << this.sclIdx );
+    final int sdaMask = channels.getMask( this.sdaIdx );
+    final int sclMask = channels.getMask( this.sclIdx );
 
     final I2CDataSet i2cDataSet = new I2CDataSet( startOfDecode, endOfDecode, data );
 
@@ -347,6 +348,25 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     return i2cDataSet;
   }
 
+  /**
+   * Configures this task from the given settings, which are the same as those
+   * of the I2C analysis dialog.
+   * 
+   * @see nl.lxtreme.ols.api.Configurable#readPreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void readPreferences( final UserSettings aSettings )
+  {
+    setLineAIndex( aSettings.getInt( "lineA", 0 ) );
+    setLineBIndex( aSettings.getInt( "lineB", 1 ) );
+
+    this.detectSDA_SCL = aSettings.getBoolean( "detectSDA_SCL", true );
+    this.reportStart = aSettings.getBoolean( "detectStart", true );
+    this.reportStop = aSettings.getBoolean( "detectStop", true );
+    this.reportNACK = aSettings.getBoolean( "detectNack", true );
+    this.reportACK = aSettings.getBoolean( "detectAck", true );
+  }
+
   /**
    * Removes the given property change listener.
    * 
@@ -373,7 +393,6 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   public void setLineAIndex( final int aLineAidx )
   {
     this.lineAidx = aLineAidx;
-    this.lineAmask = 1 << aLineAidx;
   }
 
   /**
@@ -382,7 +401,6 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
   public void setLineBIndex( final int aLineBidx )
   {
     this.lineBidx = aLineBidx;
-    this.lineBmask = 1 << aLineBidx;
   }
 
   /**
@@ -417,6 +435,21 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
     this.reportStop = aReportStop;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#writePreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void writePreferences( final UserSettings aSettings )
+  {
+    aSettings.putInt( "lineA", this.lineAidx );
+    aSettings.putInt( "lineB", this.lineBidx );
+    aSettings.putBoolean( "detectSDA_SCL", this.detectSDA_SCL );
+    aSettings.putBoolean( "detectStart", this.reportStart );
+    aSettings.putBoolean( "detectStop", this.reportStop );
+    aSettings.putBoolean( "detectNack", this.reportNACK );
+    aSettings.putBoolean( "detectAck", this.reportACK );
+  }
+
   /**
    * @return the sclIdx
    */
@@ -437,6 +470,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
    * Tries to auto detect the SDA & SCL lines between the given boundries in the
    * data.
    * 
+   * @param aChannels
+   *          the accessor of both lines;
    * @param aStartOfDecode
    *          the starting sample index;
    * @param aEndOfDecode
@@ -444,11 +479,14 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
    * @return the (new) starting sample index at which the START condition
    *         occurred.
    */
-  private int autodetectDataAndClock( final AcquisitionResult aData, final int aStartOfDecode, final int aEndOfDecode )
+  private int autodetectDataAndClock( final MultiChannelAccessor aChannels, final int aStartOfDecode,
+      final int aEndOfDecode )
   {
-    final int dataMask = this.lineAmask | this.lineBmask;
+    final int lineAmask = aChannels.getMask( this.lineAidx );
+    final int lineBmask = aChannels.getMask( this.lineBidx );
+    final int dataMask = lineAmask | lineBmask;
 
-    final int[] values = aData.getValues();
+    final int[] values = aChannels.getValues();
 
     int sampleIdx;
     /*
@@ -483,8 +521,8 @@ public class I2CAnalyserTask implements ToolTask<I2CDataSet>
 
       if ( ( dataValue != dataMask ) && ( dataValue != 0 ) )
       {
-        final int lineAvalue = sample & this.lineAmask;
-        final int lineBvalue = sample & this.lineBmask;
+        final int lineAvalue = sample & lineAmask;
+        final int lineBvalue = sample & lineBmask;
 
         // is one line low?
         if ( ( lineAvalue == 0 ) && ( lineBvalue != 0 ) )
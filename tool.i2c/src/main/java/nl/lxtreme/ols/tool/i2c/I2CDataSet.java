@@ -28,7 +28,7 @@ import nl.lxtreme.ols.api.data.*;
 /**
  * 
  */
-public final class I2CDataSet extends BaseDataSet<I2CData>
+public final class I2CDataSet extends ColumnarDataSet<I2CData>
 {
   // CONSTANTS
 
@@ -83,8 +83,7 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
    */
   public void reportACK( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
-    addData( new I2CData( idx, aChannelIdx, aSampleIdx, I2C_ACK ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, I2C_ACK );
   }
 
   /**
@@ -92,9 +91,8 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
    */
   public void reportBusError( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
     this.busErrors++;
-    addData( new I2CData( idx, aChannelIdx, aSampleIdx, I2C_BUS_ERROR ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, I2C_BUS_ERROR );
   }
 
   /**
@@ -104,9 +102,8 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
   public void reportData( final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx,
       final int aByteValue )
   {
-    final int idx = size();
     this.decodedBytes++;
-    addData( new I2CData( idx, aChannelIdx, aStartSampleIdx, aEndSampleIdx, aByteValue ) );
+    addRow( aChannelIdx, aStartSampleIdx, aEndSampleIdx, 0, aByteValue, null );
   }
 
   /**
@@ -114,8 +111,7 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
    */
   public void reportNACK( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
-    addData( new I2CData( idx, aChannelIdx, aSampleIdx, I2C_NACK ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, I2C_NACK );
   }
 
   /**
@@ -123,8 +119,7 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
    */
   public void reportStartCondition( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
-    addData( new I2CData( idx, aChannelIdx, aSampleIdx, I2C_START ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, I2C_START );
   }
 
   /**
@@ -132,9 +127,30 @@ public final class I2CDataSet extends BaseDataSet<I2CData>
    */
   public void reportStopCondition( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
-    addData( new I2CData( idx, aChannelIdx, aSampleIdx, I2C_STOP ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, I2C_STOP );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected I2CData createData( final int aRow )
+  {
+    final String event = getEventName( aRow );
+    if ( event != null )
+    {
+      return new I2CData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ), event );
+    }
+    return new I2CData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ),
+        getEndSampleIndex( aRow ), getValue( aRow ) );
   }
-}
 
-/* EOF */
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void storeData( final int aRow, final I2CData aData )
+  {
+    setValue( aRow, aData.getValue() );
+  }
+}
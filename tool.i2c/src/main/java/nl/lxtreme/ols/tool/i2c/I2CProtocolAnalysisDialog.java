@@ -32,7 +32,6 @@ import java.io.*;
 import java.text.*;
 import java.util.*;
 import java.util.List;
-import java.util.logging.*;
 
 import javax.swing.*;
 
@@ -65,8 +64,6 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
 
   private static final long serialVersionUID = 1L;
 
-  private static final Logger LOG = Logger.getLogger( I2CProtocolAnalysisDialog.class.getName() );
-
   // VARIABLES
 
   private JLabel lineALabel;
@@ -401,7 +398,7 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
    */
   private JPanel createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     this.busSetSCL = new JLabel( "<autodetect>" );
     this.busSetSDA = new JLabel( "<autodetect>" );
@@ -541,12 +538,11 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
    * @param aSelectedFile
    * @param aAnalysisResult
    */
-  private void storeToCsvFile( final File aSelectedFile, final I2CDataSet aAnalysisResult )
+  private void storeToCsvFile( final File aSelectedFile, final I2CDataSet aAnalysisResult ) throws IOException
   {
+    final CsvExporter exporter = ExportUtils.createCsvExporter( aSelectedFile );
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aSelectedFile );
-
       exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "data" );
 
       final List<I2CData> dataSet = aAnalysisResult.getData();
@@ -554,6 +550,8 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
       {
         final I2CData ds = dataSet.get( i );
 
+        setExportProgress( i, dataSet.size() );
+
         final String startTime = Unit.Time.format( aAnalysisResult.getTime( ds.getStartSampleIndex() ) );
         final String endTime = Unit.Time.format( aAnalysisResult.getTime( ds.getEndSampleIndex() ) );
         final String data = ds.isEvent() ? "" : Character.toString( ( char )ds.getValue() );
@@ -561,16 +559,10 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
         exporter.addRow( Integer.valueOf( i ), startTime, endTime, Boolean.valueOf( ds.isEvent() ), ds.getEventName(),
             data );
       }
-
-      exporter.close();
     }
-    catch ( final IOException exception )
+    finally
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "CSV export failed!", exception );
-      }
+      exporter.close();
     }
   }
 
@@ -580,20 +572,9 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
    * @param aSelectedFile
    * @param aAnalysisResult
    */
-  private void storeToHtmlFile( final File aSelectedFile, final I2CDataSet aAnalysisResult )
+  private void storeToHtmlFile( final File aSelectedFile, final I2CDataSet aAnalysisResult ) throws IOException
   {
-    try
-    {
-      toHtmlPage( aSelectedFile, aAnalysisResult );
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "HTML export failed!", exception );
-      }
-    }
+    toHtmlPage( aSelectedFile, aAnalysisResult );
   }
 
   /**
@@ -640,6 +621,8 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
           {
             final I2CData data = dataSet.get( i );
 
+            setExportProgress( i, dataSet.size() );
+
             if ( data.isEvent() )
             {
               // this is an event
@@ -699,8 +682,14 @@ public final class I2CProtocolAnalysisDialog extends BaseToolDialog<I2CDataSet>
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
@@ -43,6 +43,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import nl.lxtreme.ols.api.acquisition.AcquisitionResult;
+import nl.lxtreme.ols.api.data.MultiChannelAccessor;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.ToolContext;
 import nl.lxtreme.ols.api.tools.ToolProgressListener;
@@ -107,14 +108,6 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
   @Override
   public JTAGDataSet call() throws Exception
   {
-    if ( LOG.isLoggable( Level.FINE ) )
-    {
-      LOG.fine( "tmsmask = 0x" + Integer.toHexString( 1 << this.tmsIdx ) );
-      LOG.fine( "tckmask = 0x" + Integer.toHexString( 1 << this.tckIdx ) );
-      LOG.fine( "tdomask = 0x" + Integer.toHexString( 1 << this.tdoIdx ) );
-      LOG.fine( "tdimask = 0x" + Integer.toHexString( 1 << this.tdiIdx ) );
-    }
-
     final int startOfDecode = this.context.getStartSampleIndex();
     final int endOfDecode = this.context.getEndSampleIndex();
 
@@ -189,16 +182,26 @@ public class JTAGAnalyserTask implements ToolTask<JTAGDataSet>
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, this.tmsIdx, this.tckIdx, this.tdoIdx,
+        this.tdiIdx );
+    final int[] values = channels.getValues();
     final long[] timestamps = data.getTimestamps();
 
     final int startOfDecode = Math.max( aSlaveSelectedIdx, aDataSet.getStartOfDecode() );
     final int endOfDecode = aDataSet.getEndOfDecode();
 
-    final int tdoMask = ( 1 << this.tdoIdx );
-    final int tdiMask = ( 1 << this.tdiIdx );
-    final int tckMask = ( 1 << this.tckIdx );
-    final int tmsMask = ( 1 << this.tmsIdx );
+    final int tdoMask = channels.getMask( this.tdoIdx );
+    final int tdiMask = channels.getMask( this.tdiIdx );
+    final int tckMask = channels.getMask( this.tckIdx );
+    final int tmsMask = channels.getMask( this.tmsIdx );
+
+    if ( LOG.isLoggable( Level.FINE ) )
+    {
+      LOG.fine( "tmsmask = 0x" + Integer.toHexString( tmsMask ) );
+      LOG.fine( "tckmask = 0x" + Integer.toHexString( tckMask ) );
+      LOG.fine( "tdomask = 0x" + Integer.toHexString( tdoMask ) );
+      LOG.fine( "tdimask = 0x" + Integer.toHexString( tdiMask ) );
+    }
 
     // scanning for falling/rising clk edges
     int oldTckValue = ( values[startOfDecode] & tckMask );
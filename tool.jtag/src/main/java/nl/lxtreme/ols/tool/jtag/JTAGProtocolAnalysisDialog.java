@@ -312,7 +312,7 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
    */
   private JPanel createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final JPanel settings = new JPanel( new SpringLayout() );
 
@@ -399,12 +399,11 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
    * @param aFile
    *          File object
    */
-  private void storeToCsvFile( final File aFile, final JTAGDataSet aDataSet )
+  private void storeToCsvFile( final File aFile, final JTAGDataSet aDataSet ) throws IOException
   {
+    final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
       exporter.setHeaders( "index", "time", "state", "TDI data", "TDO data" );
 
       final List<JTAGData> dataSet = aDataSet.getData();
@@ -412,6 +411,8 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
       {
         final JTAGData data = dataSet.get( i );
 
+        setExportProgress( i, dataSet.size() );
+
         final String time = Unit.Time.format( aDataSet.getTime( data.getStartSampleIndex() ) );
         final String event = data.isEvent() ? data.getEventName() : null;
 
@@ -447,16 +448,10 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
 
         exporter.addRow( Integer.valueOf( i ), time, event, tdiDataValue, tdoDataValue );
       }
-
-      exporter.close();
     }
-    catch ( final IOException exception )
+    finally
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "CSV export failed!", exception );
-      }
+      exporter.close();
     }
   }
 
@@ -466,20 +461,9 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
    * @param aFile
    *          file object
    */
-  private void storeToHtmlFile( final File aFile, final JTAGDataSet aDataSet )
+  private void storeToHtmlFile( final File aFile, final JTAGDataSet aDataSet ) throws IOException
   {
-    try
-    {
-      toHtmlPage( aFile, aDataSet );
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "HTML export failed!", exception );
-      }
-    }
+    toHtmlPage( aFile, aDataSet );
   }
 
   /**
@@ -517,6 +501,8 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
           {
             final JTAGData data = dataSet.get( i );
 
+            setExportProgress( i, dataSet.size() );
+
             if ( data.isEvent() )
             {
               tr = aParent.addChild( TR ).addAttribute( "style", "background-color: #fefeff;" );
@@ -593,8 +579,14 @@ public final class JTAGProtocolAnalysisDialog extends BaseToolDialog<JTAGDataSet
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
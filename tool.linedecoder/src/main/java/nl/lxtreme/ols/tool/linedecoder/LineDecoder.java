@@ -22,8 +22,10 @@ package nl.lxtreme.ols.tool.linedecoder;
 
 
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
 
 
 /**
@@ -46,6 +48,26 @@ public interface LineDecoder
    */
   boolean canRecoverClock();
 
+  /**
+   * Creates a decoder stage for this line decoder, allowing its output to be
+   * fed directly into another decoder, for example, a UART decoder.
+   * 
+   * @param aContext
+   *          the line decoder context to use, cannot be <code>null</code>;
+   * @param aChannels
+   *          the channels that are fed to the stage, should at least contain
+   *          the channels returned by
+   *          {@link #getStageChannels(LineDecoderToolContext)}, cannot be
+   *          <code>null</code>;
+   * @param aAnnotationListener
+   *          the annotation listener to report decoded symbols to, can be
+   *          <code>null</code>.
+   * @return a new decoder stage, never <code>null</code>.
+   * @see nl.lxtreme.ols.tool.base.pipeline.DecoderPipeline
+   */
+  AbstractDecoderStage createStage( LineDecoderToolContext aContext, MultiChannelAccessor aChannels,
+      AnnotationListener aAnnotationListener );
+
   /**
    * @param aContext
    * @param aAnnotationListener
@@ -63,6 +85,18 @@ public interface LineDecoder
    */
   String[] getLineNames();
 
+  /**
+   * Returns the indices of the channels that are read or written by the
+   * decoder stage of this line decoder.
+   * 
+   * @param aContext
+   *          the line decoder context to use, cannot be <code>null</code>.
+   * @return an array with channel indices, never <code>null</code>.
+   * @see #createStage(LineDecoderToolContext, MultiChannelAccessor,
+   *      AnnotationListener)
+   */
+  int[] getStageChannels( LineDecoderToolContext aContext );
+
   /**
    * Returns a name for this line decoder.
    * 
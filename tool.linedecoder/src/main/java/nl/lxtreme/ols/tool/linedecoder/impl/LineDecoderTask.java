@@ -24,13 +24,31 @@ package nl.lxtreme.ols.tool.linedecoder.impl;
 import java.util.*;
 
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
 import nl.lxtreme.ols.tool.linedecoder.*;
+import nl.lxtreme.ols.tool.uart.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
 
 
 /**
  * Represents the work-horse of the line decoding routine.
+ * <p>
+ * Normally, the line decoder produces a new acquisition result with the decoded
+ * data. Optionally, the decoded data can be fed directly into a serial (UART)
+ * decoder instead, in which case the decoded serial symbols are reported as
+ * annotations on the data channel, and no new acquisition result is produced.
+ * </p>
  */
 public class LineDecoderTask implements ToolTask<AcquisitionResult>
 {
@@ -41,6 +59,7 @@ public class LineDecoderTask implements ToolTask<AcquisitionResult>
   private volatile boolean inverted;
   private volatile boolean recoverClock;
   private volatile int clockSpeed;
+  private volatile int serialBaudRate;
 
   private final ToolContext context;
   private final AnnotationListener annotationListener;
@@ -79,6 +98,12 @@ public class LineDecoderTask implements ToolTask<AcquisitionResult>
     final LineDecoderToolContextImpl decoderContext = new LineDecoderToolContextImpl( this.context, this.lines,
         this.inverted, this.recoverClock, this.clockSpeed );
 
+    if ( this.serialBaudRate > 0 )
+    {
+      decodeSerialData( decoderContext );
+      return null;
+    }
+
     return this.decoder.decode( decoderContext, this.annotationListener, this.progressListener );
   }
 
@@ -121,6 +146,17 @@ public class LineDecoderTask implements ToolTask<AcquisitionResult>
     this.decoder = aDecoder;
   }
 
+  /**
+   * Sets the baudrate of the serial data to decode on top of the line decoder.
+   * 
+   * @param aBaudRate
+   *          the baudrate of the serial data, or 0 to not decode serial data.
+   */
+  public void setSerialBaudRate( final int aBaudRate )
+  {
+    this.serialBaudRate = aBaudRate;
+  }
+
   /**
    * Sets recoverClock to the given value.
    * 
@@ -131,4 +167,55 @@ public class LineDecoderTask implements ToolTask<AcquisitionResult>
   {
     this.recoverClock = aRecoverClock;
   }
+
+  /**
+   * Decodes the line decoded data as 8N1 serial data in a single pass, using a
+   * {@link DecoderPipeline}.
+   * 
+   * @param aContext
+   *          the line decoder context to use, cannot be <code>null</code>.
+   */
+  private void decodeSerialData( final LineDecoderToolContext aContext ) throws Exception
+  {
+    final AcquisitionResult data = aContext.getData();
+    final int dataIdx = aContext.getLineChannels()[0];
+
+    final SerialConfiguration config = new SerialConfiguration( this.serialBaudRate, 8, StopBits.ONE, Parity.NONE,
+        BitEncoding.HIGH_IS_MARK, BitOrder.LSB_FIRST, BitLevel.HIGH );
+
+    this.annotationListener.clearAnnotations( dataIdx );
+
+    // Do not let the line decoder annotate its symbols, as they are replaced by
+    // the serial symbols...
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, this.decoder.getStageChannels( aContext ) );
+    final AbstractDecoderStage lineStage = this.decoder.createStage( aContext, channels, null );
+    final AsyncSerialDecoderStage serialStage = new AsyncSerialDecoderStage( config, channels, dataIdx,
+        data.getSampleRate(), new SerialDecoderCallback()
+        {
+          @Override
+          public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
+          {
+            LineDecoderTask.this.annotationListener.onAnnotation( new SampleDataAnnotation( aChannelIdx, aTime,
+                aType.name() ) );
+          }
+
+          @Override
+          public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime,
+              final long aEndTime )
+          {
+            LineDecoderTask.this.annotationListener.onAnnotation( new SampleDataAnnotation( aChannelIdx,
+                aStartTime, aEndTime, aEvent ) );
+          }
+
+          @Override
+          public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime,
+              final long aEndTime )
+          {
+            LineDecoderTask.this.annotationListener.onAnnotation( new SampleDataAnnotation( aChannelIdx,
+                aStartTime, aEndTime, String.format( "%1$c (%1$x)", Integer.valueOf( aSymbol ) ) ) );
+          }
+        } );
+
+    new DecoderPipeline( lineStage, serialStage ).decode( aContext, channels, this.progressListener );
+  }
 }
@@ -34,6 +34,7 @@ import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.ToolUtils.RestorableAction;
 import nl.lxtreme.ols.tool.linedecoder.*;
+import nl.lxtreme.ols.tool.uart.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.osgi.*;
 import nl.lxtreme.ols.util.swing.*;
@@ -83,6 +84,7 @@ public class LineDecoderToolDialog extends BaseToolDialog<AcquisitionResult>
   private JCheckBox inverted;
   private JCheckBox recoverClock;
   private JTextField clockSpeed;
+  private JComboBox serialBaudRate;
 
   private Action closeAction;
   private RestorableAction runAnalysisAction;
@@ -123,6 +125,7 @@ public class LineDecoderToolDialog extends BaseToolDialog<AcquisitionResult>
     this.clockSpeed.setText( aSettings.get( "clockSpeed", this.clockSpeed.getText() ) );
     this.inverted.setSelected( aSettings.getBoolean( "inverted", this.inverted.isSelected() ) );
     this.recoverClock.setSelected( aSettings.getBoolean( "recoverClock", this.recoverClock.isSelected() ) );
+    setComboBoxIndex( this.serialBaudRate, aSettings, "serialBaudRate" );
 
     for ( int i = 0; i < this.lines.length; i++ )
     {
@@ -150,6 +153,7 @@ public class LineDecoderToolDialog extends BaseToolDialog<AcquisitionResult>
     aSettings.put( "clockSpeed", this.clockSpeed.getText() );
     aSettings.putBoolean( "inverted", this.inverted.isSelected() );
     aSettings.putBoolean( "recoverClock", this.recoverClock.isSelected() );
+    aSettings.putInt( "serialBaudRate", this.serialBaudRate.getSelectedIndex() );
 
     for ( int i = 0; i < this.lines.length; i++ )
     {
@@ -213,12 +217,16 @@ public class LineDecoderToolDialog extends BaseToolDialog<AcquisitionResult>
 
     int clockSpeed = NumberUtils.safeParseInt( this.clockSpeed.getText() );
 
+    final Object baudRate = this.serialBaudRate.getSelectedItem();
+    final int serialBaudRate = ( baudRate instanceof Integer ) ? ( ( Integer )baudRate ).intValue() : 0;
+
     final LineDecoderTask toolTask = ( LineDecoderTask )aToolTask;
     toolTask.setLineDecoder( ( LineDecoder )this.lineDecoders.getSelectedItem() );
     toolTask.setChannels( channels );
     toolTask.setInverted( this.inverted.isSelected() );
     toolTask.setRecoverClock( this.recoverClock.isSelected() );
     toolTask.setClockSpeed( clockSpeed );
+    toolTask.setSerialBaudRate( serialBaudRate );
   }
 
   /**
@@ -252,7 +260,7 @@ public class LineDecoderToolDialog extends BaseToolDialog<AcquisitionResult>
       aPanel.add( this.clockSpeed );
     }
 
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final String[] lines = aLineDecoder.getLineNames();
     this.lines = new JComboBox[lines.length];
@@ -309,6 +317,17 @@ public class LineDecoderToolDialog extends BaseToolDialog<AcquisitionResult>
     } );
     panel.add( this.lineDecoders );
 
+    final Object[] baudRates = new Object[AsyncSerialDataDecoder.COMMON_BAUDRATES.length + 1];
+    baudRates[0] = "None";
+    for ( int i = 1; i < baudRates.length; i++ )
+    {
+      baudRates[i] = Integer.valueOf( AsyncSerialDataDecoder.COMMON_BAUDRATES[i - 1] );
+    }
+
+    panel.add( createRightAlignedLabel( "Decode serial (8N1)" ) );
+    this.serialBaudRate = new JComboBox( baudRates );
+    panel.add( this.serialBaudRate );
+
     SpringLayoutUtils.makeEditorGrid( panel, 10, 4 );
 
     return panel;
@@ -0,0 +1,275 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.linedecoder.impl.decoders;
+
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
+
+
+/**
+ * Provides a decoder stage that recovers the data and clock from a Manchester
+ * encoded signal.
+ * <p>
+ * The decoded (NRZ) data replaces the encoded signal on the data channel, and
+ * the recovered clock is placed on the clock channel; all other channels are
+ * passed on as-is. The IEEE 802.3 convention is used, meaning that a rising
+ * edge in the middle of a bit denotes a one, unless the signal is inverted.
+ * </p>
+ */
+final class ManchesterDecoderStage extends AbstractDecoderStage
+{
+  // CONSTANTS
+
+  /** Denotes that the half bit time should be derived from the signal. */
+  static final long DERIVE_HALF_CYCLE = -1L;
+
+  private static final int SYMBOL_SIZE = 8;
+
+  // VARIABLES
+
+  private final int dataIdx;
+  private final int dataMask;
+  private final int clockMask;
+  private final boolean inverted;
+  private final AnnotationListener annotationListener;
+
+  private long halfCycle;
+  private long lastEdge;
+  private boolean lastEdgeMidBit;
+  private int lastInputValue;
+  private int otherBits;
+  private int dataBit;
+
+  private int symbol;
+  private int bitCount;
+  private long symbolStart;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link ManchesterDecoderStage} instance.
+   * 
+   * @param aChannels
+   *          the channels that are fed to this stage, should contain both the
+   *          data and clock channel, cannot be <code>null</code>;
+   * @param aDataIdx
+   *          the index of the channel with the encoded data, >= 0;
+   * @param aClockIdx
+   *          the index of the channel to put the recovered clock on, >= 0;
+   * @param aHalfCycle
+   *          the half bit time in samples, > 0, or {@link #DERIVE_HALF_CYCLE}
+   *          to derive it from the signal;
+   * @param aInverted
+   *          <code>true</code> if the signal is inverted, <code>false</code>
+   *          otherwise;
+   * @param aAnnotationListener
+   *          the annotation listener to report the decoded symbols to, can be
+   *          <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given half bit time is zero or negative.
+   */
+  public ManchesterDecoderStage( final MultiChannelAccessor aChannels, final int aDataIdx, final int aClockIdx,
+      final long aHalfCycle, final boolean aInverted, final AnnotationListener aAnnotationListener )
+  {
+    if ( ( aHalfCycle <= 0L ) && ( aHalfCycle != DERIVE_HALF_CYCLE ) )
+    {
+      throw new IllegalArgumentException( "Half cycle should be at least one sample, got: " + aHalfCycle + "!" );
+    }
+
+    this.dataIdx = aDataIdx;
+    this.dataMask = aChannels.getMask( aDataIdx );
+    this.clockMask = aChannels.getMask( aClockIdx );
+    this.halfCycle = aHalfCycle;
+    this.inverted = aInverted;
+    this.annotationListener = aAnnotationListener;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final long aTimestamp, final int aValue ) throws Exception
+  {
+    this.lastEdge = -1L;
+    this.lastEdgeMidBit = false;
+    this.lastInputValue = aValue;
+    this.otherBits = aValue & ~( this.dataMask | this.clockMask );
+    this.dataBit = 0;
+    this.bitCount = 0;
+    this.symbol = 0;
+
+    emitBegin( aTimestamp, compose( false ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void end( final long aTimestamp ) throws Exception
+  {
+    emitEnd( aTimestamp );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transition( final long aTimestamp, final int aValue ) throws Exception
+  {
+    final int otherBits = aValue & ~( this.dataMask | this.clockMask );
+    if ( otherBits != this.otherBits )
+    {
+      this.otherBits = otherBits;
+      emitTransition( aTimestamp, ( getLastEmittedValue() & ( this.dataMask | this.clockMask ) ) | otherBits );
+    }
+
+    if ( ( ( aValue ^ this.lastInputValue ) & this.dataMask ) != 0 )
+    {
+      edge( aTimestamp, ( aValue & this.dataMask ) != 0 );
+    }
+    this.lastInputValue = aValue;
+  }
+
+  /**
+   * Composes a sample value from the current data bit and the given clock
+   * level.
+   */
+  private int compose( final boolean aClockHigh )
+  {
+    return this.otherBits | this.dataBit | ( aClockHigh ? this.clockMask : 0 );
+  }
+
+  /**
+   * Handles a single edge on the encoded data channel.
+   * 
+   * @param aTimestamp
+   *          the timestamp of the edge;
+   * @param aRising
+   *          <code>true</code> for a rising edge, <code>false</code> for a
+   *          falling edge.
+   */
+  private void edge( final long aTimestamp, final boolean aRising ) throws Exception
+  {
+    if ( this.lastEdge < 0L )
+    {
+      // First edge; assume it is in the middle of the first bit...
+      this.lastEdge = aTimestamp;
+      midBit( aTimestamp, aRising );
+      return;
+    }
+
+    final long diff = aTimestamp - this.lastEdge;
+    if ( diff <= 0L )
+    {
+      // Would lead to a half cycle of zero samples, which makes it impossible
+      // to tell bit boundaries and bit middles apart...
+      throw new IllegalStateException( "Edges should be at least one sample apart; got an edge at " + aTimestamp
+          + " after an edge at " + this.lastEdge + "!" );
+    }
+    this.lastEdge = aTimestamp;
+
+    if ( this.halfCycle <= 0L )
+    {
+      // Second edge; take the first distance as indication for the half
+      // cycle, which is corrected if a shorter distance shows up...
+      this.halfCycle = diff;
+      this.lastEdgeMidBit = false;
+      return;
+    }
+
+    if ( ( diff << 2 ) < ( this.halfCycle * 3 ) )
+    {
+      // Much shorter than expected; our guess for the half cycle was too
+      // long, so start over with this distance...
+      this.halfCycle = diff;
+      this.lastEdgeMidBit = false;
+    }
+    else if ( ( diff << 1 ) < ( this.halfCycle * 3 ) )
+    {
+      // T: either a bit boundary or the middle of a bit...
+      this.halfCycle = ( ( this.halfCycle * 3 ) + diff ) >> 2;
+      if ( this.lastEdgeMidBit )
+      {
+        this.lastEdgeMidBit = false;
+      }
+      else
+      {
+        midBit( aTimestamp, aRising );
+      }
+    }
+    else if ( ( diff << 1 ) < ( this.halfCycle * 5 ) )
+    {
+      // 2T: only possible between two bit middles...
+      this.halfCycle = ( ( this.halfCycle * 3 ) + ( diff >> 1 ) ) >> 2;
+      midBit( aTimestamp, aRising );
+    }
+    else
+    {
+      // Too long; the signal was idle, so resynchronize on this edge...
+      this.bitCount = 0;
+      this.symbol = 0;
+      midBit( aTimestamp, aRising );
+    }
+  }
+
+  /**
+   * Handles an edge in the middle of a bit, which defines the bit value.
+   */
+  private void midBit( final long aTimestamp, final boolean aRising ) throws Exception
+  {
+    final boolean bit = ( aRising != this.inverted );
+    final long bitStart = aTimestamp - this.halfCycle;
+
+    this.lastEdgeMidBit = true;
+    this.dataBit = bit ? this.dataMask : 0;
+
+    emitTransition( bitStart, compose( true ) );
+    emitTransition( aTimestamp, compose( false ) );
+
+    if ( this.bitCount == 0 )
+    {
+      this.symbolStart = bitStart;
+    }
+
+    this.symbol <<= 1;
+    if ( bit )
+    {
+      this.symbol |= 1;
+    }
+
+    if ( ++this.bitCount == SYMBOL_SIZE )
+    {
+      if ( this.annotationListener != null )
+      {
+        this.annotationListener.onAnnotation( new SampleDataAnnotation( this.dataIdx, this.symbolStart, aTimestamp
+            + this.halfCycle, String.format( "%1$c (%1$x)", Integer.valueOf( this.symbol ) ) ) );
+      }
+
+      this.bitCount = 0;
+      this.symbol = 0;
+    }
+  }
+}
@@ -29,6 +29,7 @@ import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
 import nl.lxtreme.ols.tool.linedecoder.*;
 
 
@@ -57,6 +58,27 @@ public class ManchesterLineDecoder implements LineDecoder
     return true;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AbstractDecoderStage createStage( final LineDecoderToolContext aContext,
+      final MultiChannelAccessor aChannels, final AnnotationListener aAnnotationListener )
+  {
+    final int[] channels = getStageChannels( aContext );
+    final int dataIdx = channels[0];
+    final int clockIdx = channels[1];
+
+    long halfCycle = ManchesterDecoderStage.DERIVE_HALF_CYCLE;
+    if ( aContext.getClockSpeed() > 0 )
+    {
+      halfCycle = Math.max( 1L, aContext.getData().getSampleRate() / ( 2L * aContext.getClockSpeed() ) );
+    }
+
+    return new ManchesterDecoderStage( aChannels, dataIdx, clockIdx, halfCycle, aContext.isInverted(),
+        aAnnotationListener );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -67,21 +89,22 @@ public class ManchesterLineDecoder implements LineDecoder
   {
     final AcquisitionResult inputData = aContext.getData();
 
-    final int[] values = inputData.getValues();
+    final long[] values = ChannelAccessor.getWideValues( inputData );
     final long[] timestamps = inputData.getTimestamps();
 
-    final int dataIdx = aContext.getLineChannels()[0];
-    final int clockIdx = dataIdx >= 1 ? dataIdx - 1 : dataIdx + 1; // XXX
+    final int[] channels = getStageChannels( aContext );
+    final int dataIdx = channels[0];
+    final int clockIdx = channels[1];
 
-    final int dataMask = ( 1 << dataIdx );
-    final int clockMask = ( 1 << clockIdx );
+    final long dataMask = ChannelAccessor.getWideMask( dataIdx );
+    final long clockMask = ChannelAccessor.getWideMask( clockIdx );
 
     aAnnotationListener.clearAnnotations( dataIdx );
     aAnnotationListener.clearAnnotations( clockIdx );
 
     int startIdx = aContext.getStartSampleIndex();
     int endIdx = aContext.getEndSampleIndex();
-    int lastValue = values[startIdx] & dataMask;
+    int lastValue = ( ( values[startIdx] & dataMask ) != 0 ) ? 1 : 0;
 
     long symbolStartTime = -1L;
     long lastTimestamp = -1L;
@@ -96,7 +119,7 @@ public class ManchesterLineDecoder implements LineDecoder
 
     for ( int i = startIdx; i < endIdx; i++ )
     {
-      int value = values[i] & dataMask;
+      int value = ( ( values[i] & dataMask ) != 0 ) ? 1 : 0;
 
       long clockEdge = -1L;
 
@@ -162,7 +185,7 @@ public class ManchesterLineDecoder implements LineDecoder
 
       if ( clockEdge >= 0L )
       {
-        int sampleValue = getDataValue( aContext, clockEdge );
+        long sampleValue = getDataValue( values, timestamps, clockEdge );
 
         symbol <<= 1;
         bitCount++;
@@ -190,7 +213,7 @@ public class ManchesterLineDecoder implements LineDecoder
       lastTimestamp += halfCycle;
       // Since there's no more signal transitions; we simply determine the last
       // bit value and use that for the missing bits...
-      int sampleValue = getDataValue( aContext, lastTimestamp );
+      long sampleValue = getDataValue( values, timestamps, lastTimestamp );
       while ( bitCount++ < symbolSize )
       {
         // To determine where the symbol ends...
@@ -211,7 +234,7 @@ public class ManchesterLineDecoder implements LineDecoder
     String format = Unit.Frequency.format( inputData.getSampleRate() / ( 2.0 * halfCycle ) );
     System.out.println( "Clock signal = " + format );
 
-    SortedMap<Long, Integer> newSamples = new TreeMap<Long, Integer>();
+    SortedMap<Long, Long> newSamples = new TreeMap<Long, Long>();
     for ( int i = 0; i < values.length; i++ )
     {
       newSamples.put( timestamps[i], values[i] );
@@ -220,7 +243,7 @@ public class ManchesterLineDecoder implements LineDecoder
     boolean clockLow = false;
     for ( long time = firstSignalEdge + halfCycle; time < lastTimestamp; time += halfCycle )
     {
-      int sampleValue = getDataValue( aContext, time );
+      long sampleValue = getDataValue( values, timestamps, time );
       if ( clockLow )
       {
         sampleValue &= ~clockMask;
@@ -237,10 +260,10 @@ public class ManchesterLineDecoder implements LineDecoder
     // 2nd pass: XOR data with clock...
     for ( Long time : newSamples.keySet() )
     {
-      int sampleValue = newSamples.get( time );
+      long sampleValue = newSamples.get( time );
 
-      int clockValue = sampleValue & clockMask;
-      int dataValue = sampleValue & dataMask;
+      long clockValue = sampleValue & clockMask;
+      long dataValue = sampleValue & dataMask;
 
       if ( ( ( clockValue != 0 ) && ( dataValue == 0 ) ) || ( ( clockValue == 0 ) && ( dataValue != 0 ) ) )
       {
@@ -254,10 +277,10 @@ public class ManchesterLineDecoder implements LineDecoder
       newSamples.put( time, sampleValue );
     }
 
-    List<Integer> newValues = new ArrayList<Integer>();
+    List<Long> newValues = new ArrayList<Long>();
     List<Long> newTimestamps = new ArrayList<Long>();
 
-    for ( Map.Entry<Long, Integer> entry : newSamples.entrySet() )
+    for ( Map.Entry<Long, Long> entry : newSamples.entrySet() )
     {
       newValues.add( entry.getValue() );
       newTimestamps.add( entry.getKey() );
@@ -269,10 +292,17 @@ public class ManchesterLineDecoder implements LineDecoder
       newTimestamps.add( timestamps[i] );
     }
 
-    long absoluteLength = newTimestamps.get( newTimestamps.size() - 1 );
+    final long[] resultValues = new long[newValues.size()];
+    final long[] resultTimestamps = new long[newTimestamps.size()];
+    for ( int i = 0; i < resultValues.length; i++ )
+    {
+      resultValues[i] = newValues.get( i );
+      resultTimestamps[i] = newTimestamps.get( i );
+    }
+
+    long absoluteLength = resultTimestamps[resultTimestamps.length - 1];
 
-    return new CapturedData( newValues, newTimestamps, firstSignalEdge, inputData.getSampleRate(),
-        inputData.getChannels(), inputData.getEnabledChannels(), absoluteLength );
+    return ChannelAccessor.createResult( inputData, resultValues, resultTimestamps, firstSignalEdge, absoluteLength );
   }
 
   /**
@@ -293,27 +323,38 @@ public class ManchesterLineDecoder implements LineDecoder
     return "Manchester";
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getStageChannels( final LineDecoderToolContext aContext )
+  {
+    final int dataIdx = aContext.getLineChannels()[0];
+    final int clockIdx = dataIdx >= 1 ? dataIdx - 1 : dataIdx + 1; // XXX
+    return new int[] { dataIdx, clockIdx };
+  }
+
   /**
    * Returns the data value for the given time stamp.
    * 
+   * @param aValues
+   *          the 64-bit sample values to search in;
+   * @param aTimestamps
+   *          the timestamps of the given sample values;
    * @param aTimeValue
    *          the time stamp to return the data value for.
    * @return the data value of the sample index right before the given time
    *         value.
    */
-  protected final int getDataValue( final LineDecoderToolContext aContext, final long aTimeValue )
+  protected final long getDataValue( final long[] aValues, final long[] aTimestamps, final long aTimeValue )
   {
-    final AcquisitionResult inputData = aContext.getData();
-    final int[] values = inputData.getValues();
-    final long[] timestamps = inputData.getTimestamps();
-
-    int k = Arrays.binarySearch( timestamps, aTimeValue );
+    int k = Arrays.binarySearch( aTimestamps, aTimeValue );
     if ( k < 0 )
     {
       k = -( k + 1 );
     }
 
-    return ( ( k == 0 ) ? values[0] : values[k - 1] );
+    return ( ( k == 0 ) ? aValues[0] : aValues[k - 1] );
   }
 
   /**
@@ -22,9 +22,11 @@ package nl.lxtreme.ols.tool.linedecoder.impl.decoders;
 
 
 import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
 import nl.lxtreme.ols.tool.linedecoder.*;
 
 
@@ -54,6 +56,20 @@ public class NonReturnToZeroDecoder implements LineDecoder
     return false;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AbstractDecoderStage createStage( final LineDecoderToolContext aContext,
+      final MultiChannelAccessor aChannels, final AnnotationListener aAnnotationListener )
+  {
+    final int dataIdx = aContext.getLineChannels()[0];
+    final int clockIdx = aContext.getLineChannels()[1];
+
+    return new NonReturnToZeroDecoderStage( aChannels, dataIdx, clockIdx, aContext.isInverted(),
+        aAnnotationListener );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -63,14 +79,15 @@ public class NonReturnToZeroDecoder implements LineDecoder
   {
     final AcquisitionResult inputData = aContext.getData();
 
-    final int[] values = inputData.getValues();
-    final long[] timestamps = inputData.getTimestamps();
-
     final int dataIdx = aContext.getLineChannels()[0];
     final int clockIdx = aContext.getLineChannels()[1];
 
-    final int dataMask = ( 1 << dataIdx );
-    final int clockMask = ( 1 << clockIdx );
+    final MultiChannelAccessor channels = new MultiChannelAccessor( inputData, dataIdx, clockIdx );
+    final int[] values = channels.getValues();
+    final long[] timestamps = inputData.getTimestamps();
+
+    final int dataMask = channels.getMask( dataIdx );
+    final int clockMask = channels.getMask( clockIdx );
 
     aAnnotationListener.clearAnnotations( dataIdx );
 
@@ -135,6 +152,15 @@ public class NonReturnToZeroDecoder implements LineDecoder
     return "Non-return to zero";
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int[] getStageChannels( final LineDecoderToolContext aContext )
+  {
+    return aContext.getLineChannels().clone();
+  }
+
   /**
    * @param aIndex
    * @param aStartTime
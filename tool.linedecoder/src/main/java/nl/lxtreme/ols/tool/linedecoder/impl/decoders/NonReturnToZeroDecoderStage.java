@@ -0,0 +1,157 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.linedecoder.impl.decoders;
+
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
+
+
+/**
+ * Provides a decoder stage for a non-return to zero signal with a separate
+ * clock.
+ * <p>
+ * The data is sampled on each rising clock edge, and the sampled value replaces
+ * the signal on the data channel; all other channels are passed on as-is. This
+ * way, a subsequent stage only sees data transitions that are aligned with the
+ * clock.
+ * </p>
+ */
+final class NonReturnToZeroDecoderStage extends AbstractDecoderStage
+{
+  // CONSTANTS
+
+  private static final int SYMBOL_SIZE = 8;
+
+  // VARIABLES
+
+  private final int dataIdx;
+  private final int dataMask;
+  private final int clockMask;
+  private final boolean inverted;
+  private final AnnotationListener annotationListener;
+
+  private int lastInputValue;
+  private int dataBit;
+
+  private int symbol;
+  private int bitCount;
+  private long symbolStart;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link NonReturnToZeroDecoderStage} instance.
+   * 
+   * @param aChannels
+   *          the channels that are fed to this stage, should contain both the
+   *          data and clock channel, cannot be <code>null</code>;
+   * @param aDataIdx
+   *          the index of the data channel, >= 0;
+   * @param aClockIdx
+   *          the index of the clock channel, >= 0;
+   * @param aInverted
+   *          <code>true</code> if the data is inverted, <code>false</code>
+   *          otherwise;
+   * @param aAnnotationListener
+   *          the annotation listener to report the decoded symbols to, can be
+   *          <code>null</code>.
+   */
+  public NonReturnToZeroDecoderStage( final MultiChannelAccessor aChannels, final int aDataIdx,
+      final int aClockIdx, final boolean aInverted, final AnnotationListener aAnnotationListener )
+  {
+    this.dataIdx = aDataIdx;
+    this.dataMask = aChannels.getMask( aDataIdx );
+    this.clockMask = aChannels.getMask( aClockIdx );
+    this.inverted = aInverted;
+    this.annotationListener = aAnnotationListener;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final long aTimestamp, final int aValue ) throws Exception
+  {
+    this.lastInputValue = aValue;
+    this.dataBit = sample( aValue );
+    this.bitCount = 0;
+    this.symbol = 0;
+
+    emitBegin( aTimestamp, ( aValue & ~this.dataMask ) | this.dataBit );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transition( final long aTimestamp, final int aValue ) throws Exception
+  {
+    final boolean clockRising = ( ( this.lastInputValue & this.clockMask ) == 0 )
+        && ( ( aValue & this.clockMask ) != 0 );
+    this.lastInputValue = aValue;
+
+    if ( clockRising )
+    {
+      this.dataBit = sample( aValue );
+
+      if ( this.bitCount == 0 )
+      {
+        this.symbolStart = aTimestamp;
+      }
+
+      this.symbol <<= 1;
+      if ( this.dataBit != 0 )
+      {
+        this.symbol |= 1;
+      }
+
+      if ( ++this.bitCount == SYMBOL_SIZE )
+      {
+        if ( this.annotationListener != null )
+        {
+          this.annotationListener.onAnnotation( new SampleDataAnnotation( this.dataIdx, this.symbolStart, aTimestamp,
+              String.format( "%1$c (%1$x)", Integer.valueOf( this.symbol ) ) ) );
+        }
+
+        this.bitCount = 0;
+        this.symbol = 0;
+      }
+    }
+
+    emitTransition( aTimestamp, ( aValue & ~this.dataMask ) | this.dataBit );
+  }
+
+  /**
+   * Samples the data channel of the given value.
+   * 
+   * @return the data mask if the sampled bit is a one, zero otherwise.
+   */
+  private int sample( final int aValue )
+  {
+    final boolean high = ( aValue & this.dataMask ) != 0;
+    return ( high != this.inverted ) ? this.dataMask : 0;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.linedecoder.impl;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.linedecoder.impl.decoders.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link LineDecoderTask}.
+ */
+public class LineDecoderTaskTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all reported annotations.
+   */
+  static final class RecordingAnnotationListener implements AnnotationListener
+  {
+    // VARIABLES
+
+    final List<String> annotations = new ArrayList<String>();
+    final List<Integer> clearedChannels = new ArrayList<Integer>();
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations()
+    {
+      this.annotations.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearAnnotations( final int aChannelIdx )
+    {
+      this.clearedChannels.add( Integer.valueOf( aChannelIdx ) );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onAnnotation( final Annotation<?> aAnnotation )
+    {
+      assertEquals( DATA_CHANNEL, aAnnotation.getChannel() );
+      this.annotations.add( String.valueOf( aAnnotation.getAnnotation() ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int SAMPLE_RATE = 1000;
+  private static final int HALF_CYCLE = 5;
+  private static final int BAUD_RATE = SAMPLE_RATE / ( 2 * HALF_CYCLE );
+  private static final int DATA_CHANNEL = 3;
+
+  // METHODS
+
+  /**
+   * Tests that a Manchester encoded serial signal is decoded as serial data
+   * when a serial baudrate is set, without creating a new acquisition result.
+   */
+  @Test
+  public void testDecodeManchesterAsSerialDataOk() throws Exception
+  {
+    final AcquisitionResult data = createSignal( 'O', 'K' );
+    final RecordingAnnotationListener listener = new RecordingAnnotationListener();
+
+    final LineDecoderTask task = new LineDecoderTask( DataTestUtils.createToolContext( data, 0,
+        data.getValues().length - 1 ), null, listener );
+    task.setLineDecoder( new ManchesterLineDecoder() );
+    task.setChannels( new int[] { DATA_CHANNEL } );
+    task.setClockSpeed( BAUD_RATE );
+    task.setSerialBaudRate( BAUD_RATE );
+
+    assertNull( task.call() );
+
+    assertEquals( Arrays.asList( Integer.valueOf( DATA_CHANNEL ) ), listener.clearedChannels );
+    assertEquals( Arrays.asList( "O (4f)", "K (4b)" ), listener.annotations );
+  }
+
+  /**
+   * Creates a compacted, Manchester encoded, 8N1 serial signal on
+   * {@link #DATA_CHANNEL} for the given symbols.
+   */
+  private static AcquisitionResult createSignal( final int... aSymbols )
+  {
+    final List<Integer> bits = new ArrayList<Integer>();
+    bits.addAll( Collections.nCopies( 5, Integer.valueOf( 1 ) ) );
+    for ( int symbol : aSymbols )
+    {
+      bits.add( Integer.valueOf( 0 ) );
+      for ( int i = 0; i < 8; i++ )
+      {
+        bits.add( Integer.valueOf( ( symbol >> i ) & 1 ) );
+      }
+      bits.addAll( Collections.nCopies( 2, Integer.valueOf( 1 ) ) );
+    }
+    bits.addAll( Collections.nCopies( 3, Integer.valueOf( 1 ) ) );
+
+    final List<Integer> values = new ArrayList<Integer>();
+    final List<Long> timestamps = new ArrayList<Long>();
+
+    long time = 0L;
+    int lastValue = -1;
+    for ( Integer bit : bits )
+    {
+      // A one is encoded as a rising edge in the middle of a bit...
+      for ( int value : new int[] { ( 1 - bit.intValue() ) << DATA_CHANNEL, bit.intValue() << DATA_CHANNEL } )
+      {
+        if ( value != lastValue )
+        {
+          values.add( Integer.valueOf( value ) );
+          timestamps.add( Long.valueOf( time ) );
+          lastValue = value;
+        }
+        time += HALF_CYCLE;
+      }
+    }
+
+    return new CapturedData( values, timestamps, 0L, SAMPLE_RATE, 8, 0xFF, time );
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.linedecoder.impl.decoders;
+
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
+import nl.lxtreme.ols.tool.uart.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ManchesterDecoderStage}.
+ */
+public class ManchesterDecoderStageTest
+{
+  // INNER TYPES
+
+  /**
+   * Records all decoded symbols and errors.
+   */
+  static final class RecordingCallback implements SerialDecoderCallback
+  {
+    // VARIABLES
+
+    final int channelIdx;
+    final List<Integer> symbols = new ArrayList<Integer>();
+    final List<ErrorType> errors = new ArrayList<ErrorType>();
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new RecordingCallback instance.
+     */
+    RecordingCallback( final int aChannelIdx )
+    {
+      this.channelIdx = aChannelIdx;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError( final int aChannelIdx, final ErrorType aType, final long aTime )
+    {
+      this.errors.add( aType );
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onEvent( final int aChannelIdx, final String aEvent, final long aStartTime, final long aEndTime )
+    {
+      // Nop
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onSymbol( final int aChannelIdx, final int aSymbol, final long aStartTime, final long aEndTime )
+    {
+      assertEquals( this.channelIdx, aChannelIdx );
+      this.symbols.add( Integer.valueOf( aSymbol ) );
+    }
+  }
+
+  // CONSTANTS
+
+  private static final int SAMPLE_RATE = 1000;
+  private static final int HALF_CYCLE = 5;
+  private static final int BAUD_RATE = SAMPLE_RATE / ( 2 * HALF_CYCLE );
+  private static final int DATA_CHANNEL = 1;
+  private static final int CLOCK_CHANNEL = 0;
+  private static final int WIDE_DATA_CHANNEL = 40;
+
+  // METHODS
+
+  /**
+   * Tests that a Manchester encoded serial signal is decoded in a single pass
+   * by chaining a Manchester stage and a UART stage, with a given half cycle.
+   */
+  @Test
+  public void testChainedManchesterToUartDecodingOk() throws Exception
+  {
+    final RecordingCallback callback = decodeSerial( DATA_CHANNEL, HALF_CYCLE, 'H', 'i', 0x55, 0x00, 0xFF );
+
+    assertEquals( Arrays.asList( Integer.valueOf( 'H' ), Integer.valueOf( 'i' ), Integer.valueOf( 0x55 ),
+        Integer.valueOf( 0x00 ), Integer.valueOf( 0xFF ) ), callback.symbols );
+    assertTrue( callback.errors.isEmpty() );
+  }
+
+  /**
+   * Tests that a Manchester encoded serial signal is decoded in a single pass
+   * by chaining a Manchester stage and a UART stage, with a derived half
+   * cycle.
+   */
+  @Test
+  public void testChainedManchesterToUartDecodingWithDerivedHalfCycleOk() throws Exception
+  {
+    final RecordingCallback callback = decodeSerial( DATA_CHANNEL, ManchesterDecoderStage.DERIVE_HALF_CYCLE, 'O',
+        'L', 'S' );
+
+    assertEquals( Arrays.asList( Integer.valueOf( 'O' ), Integer.valueOf( 'L' ), Integer.valueOf( 'S' ) ),
+        callback.symbols );
+    assertTrue( callback.errors.isEmpty() );
+  }
+
+  /**
+   * Tests that a Manchester encoded serial signal on a channel beyond the first
+   * sample plane is decoded, even though its clock channel is in another plane.
+   */
+  @Test
+  public void testChainedManchesterToUartDecodingOfWideChannelOk() throws Exception
+  {
+    final RecordingCallback callback = decodeSerial( WIDE_DATA_CHANNEL, HALF_CYCLE, 'W', 0x3C );
+
+    assertEquals( Arrays.asList( Integer.valueOf( 'W' ), Integer.valueOf( 0x3C ) ), callback.symbols );
+    assertTrue( callback.errors.isEmpty() );
+  }
+
+  /**
+   * Tests that edges that are not at least one sample apart are rejected, as
+   * they would yield a half cycle of zero samples.
+   */
+  @Test( expected = IllegalStateException.class )
+  public void testEdgesWithoutDistanceFail() throws Exception
+  {
+    final MultiChannelAccessor channels = createChannels();
+    final ManchesterDecoderStage stage = new ManchesterDecoderStage( channels, DATA_CHANNEL, CLOCK_CHANNEL,
+        ManchesterDecoderStage.DERIVE_HALF_CYCLE, false /* aInverted */, null );
+
+    stage.begin( 0L, 0 );
+    stage.transition( 10L, channels.getMask( DATA_CHANNEL ) );
+    stage.transition( 10L, 0 );
+  }
+
+  /**
+   * Tests that a negative half cycle is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testNegativeHalfCycleFail() throws Exception
+  {
+    new ManchesterDecoderStage( createChannels(), DATA_CHANNEL, CLOCK_CHANNEL, -2L, false /* aInverted */, null );
+  }
+
+  /**
+   * Tests that a half cycle of zero samples is rejected.
+   */
+  @Test( expected = IllegalArgumentException.class )
+  public void testZeroHalfCycleFail() throws Exception
+  {
+    new ManchesterDecoderStage( createChannels(), DATA_CHANNEL, CLOCK_CHANNEL, 0L, false /* aInverted */, null );
+  }
+
+  /**
+   * Adds a number of bits of the same value.
+   */
+  private static void addBits( final List<Integer> aBits, final int aValue, final int aCount )
+  {
+    for ( int i = 0; i < aCount; i++ )
+    {
+      aBits.add( Integer.valueOf( aValue ) );
+    }
+  }
+
+  /**
+   * Creates an accessor for the data and clock channel of a single sample.
+   */
+  private static MultiChannelAccessor createChannels()
+  {
+    final AcquisitionResult data = new CapturedData( new int[] { 0 }, 0L, SAMPLE_RATE, 8, 0xFF );
+    return new MultiChannelAccessor( data, DATA_CHANNEL, CLOCK_CHANNEL );
+  }
+
+  /**
+   * Creates a compacted, Manchester encoded, signal on the given channel for
+   * the given bits. A one is encoded as a rising edge in the middle of a bit, a
+   * zero as a falling edge.
+   */
+  private static AcquisitionResult createSignal( final int aDataIdx, final List<Integer> aBits )
+  {
+    final List<Long> values = new ArrayList<Long>();
+    final List<Long> timestamps = new ArrayList<Long>();
+
+    long time = 0L;
+    long lastValue = -1L;
+    for ( Integer bit : aBits )
+    {
+      final long firstHalf = ( 1L - bit.intValue() ) << aDataIdx;
+      final long secondHalf = ( long )bit.intValue() << aDataIdx;
+      for ( long value : new long[] { firstHalf, secondHalf } )
+      {
+        if ( value != lastValue )
+        {
+          values.add( Long.valueOf( value ) );
+          timestamps.add( Long.valueOf( time ) );
+          lastValue = value;
+        }
+        time += HALF_CYCLE;
+      }
+    }
+
+    final long[] sampleValues = new long[values.size()];
+    final long[] sampleTimestamps = new long[timestamps.size()];
+    for ( int i = 0; i < sampleValues.length; i++ )
+    {
+      sampleValues[i] = values.get( i ).longValue();
+      sampleTimestamps[i] = timestamps.get( i ).longValue();
+    }
+
+    if ( aDataIdx >= Ols.CHANNELS_PER_PLANE )
+    {
+      return new WideCapturedData( sampleValues, sampleTimestamps, 0L, SAMPLE_RATE, Ols.MAX_WIDE_CHANNELS, -1L, time );
+    }
+
+    final int[] narrowValues = new int[sampleValues.length];
+    for ( int i = 0; i < narrowValues.length; i++ )
+    {
+      narrowValues[i] = ( int )sampleValues[i];
+    }
+    return new CapturedData( narrowValues, sampleTimestamps, 0L, SAMPLE_RATE, 8, 0xFF, time );
+  }
+
+  /**
+   * Creates a Manchester encoded 8N1 serial signal for the given symbols, and
+   * decodes it with a Manchester and UART stage.
+   */
+  private RecordingCallback decodeSerial( final int aDataIdx, final long aHalfCycle, final int... aSymbols )
+      throws Exception
+  {
+    final List<Integer> bits = new ArrayList<Integer>();
+    addBits( bits, 1, 5 );
+    for ( int symbol : aSymbols )
+    {
+      // start bit, data bits, stop bit, and one bit time idle...
+      bits.add( Integer.valueOf( 0 ) );
+      for ( int i = 0; i < 8; i++ )
+      {
+        bits.add( Integer.valueOf( ( symbol >> i ) & 1 ) );
+      }
+      addBits( bits, 1, 2 );
+    }
+    addBits( bits, 1, 3 );
+
+    final AcquisitionResult data = createSignal( aDataIdx, bits );
+
+    final SerialConfiguration config = new SerialConfiguration( BAUD_RATE, 8, StopBits.ONE, Parity.NONE,
+        BitEncoding.HIGH_IS_MARK, BitOrder.LSB_FIRST, BitLevel.HIGH );
+    final RecordingCallback callback = new RecordingCallback( aDataIdx );
+
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, aDataIdx, CLOCK_CHANNEL );
+    final DecoderPipeline pipeline = new DecoderPipeline( new ManchesterDecoderStage( channels, aDataIdx,
+        CLOCK_CHANNEL, aHalfCycle, false /* aInverted */, null ), new AsyncSerialDecoderStage( config, channels,
+        aDataIdx, SAMPLE_RATE, callback ) );
+    pipeline.decode( data, channels, 0, data.getTimestamps().length - 1, null );
+
+    return callback;
+  }
+}
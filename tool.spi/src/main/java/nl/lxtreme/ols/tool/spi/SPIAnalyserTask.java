@@ -24,12 +24,15 @@ package nl.lxtreme.ols.tool.spi;
 import static nl.lxtreme.ols.util.NumberUtils.*;
 
 import java.beans.*;
+import java.util.*;
 import java.util.logging.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
 import nl.lxtreme.ols.util.*;
 import nl.lxtreme.ols.util.NumberUtils.BitOrder;
@@ -39,7 +42,7 @@ import nl.lxtreme.ols.util.analysis.*;
 /**
  * Provides a task for analyzing SPI traces.
  */
-public class SPIAnalyserTask implements ToolTask<SPIDataSet>
+public class SPIAnalyserTask implements ToolTask<SPIDataSet>, Configurable
 {
   // CONSTANTS
 
@@ -47,6 +50,9 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
 
   public static final String PROPERTY_AUTO_DETECT_MODE = "AutoDetectSPIMode";
 
+  /** The bit counts as offered by the analysis dialog. */
+  private static final Integer[] BIT_COUNTS = { 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 24, 32 };
+
   // VARIABLES
 
   private final ToolContext context;
@@ -115,14 +121,6 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   @Override
   public SPIDataSet call() throws Exception
   {
-    if ( LOG.isLoggable( Level.FINE ) )
-    {
-      LOG.fine( "csmask   = 0x" + Integer.toHexString( 1 << this.csIdx ) );
-      LOG.fine( "sckmask  = 0x" + Integer.toHexString( 1 << this.sckIdx ) );
-      LOG.fine( "misomask = 0x" + Integer.toHexString( 1 << this.misoIdx ) );
-      LOG.fine( "mosimask = 0x" + Integer.toHexString( 1 << this.mosiIdx ) );
-    }
-
     final int startOfDecode = this.context.getStartSampleIndex();
     final int endOfDecode = this.context.getEndSampleIndex();
     final int slaveSelected = slaveSelected( startOfDecode, endOfDecode );
@@ -159,6 +157,36 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     return decodedData;
   }
 
+  /**
+   * Configures this task from the given settings, which are the same as those
+   * of the SPI analysis dialog.
+   * 
+   * @see nl.lxtreme.ols.api.Configurable#readPreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void readPreferences( final UserSettings aSettings )
+  {
+    this.protocol = ToolUtils.getItem( SPIFIMode.values(), aSettings.getInt( "protocol", -1 ), SPIFIMode.STANDARD );
+    this.reportCS = aSettings.getBoolean( "reportCS", true );
+    this.honourCS = aSettings.getBoolean( "honourCS", false );
+    this.invertCS = aSettings.getBoolean( "invertCS", false );
+
+    this.sckIdx = aSettings.getInt( "sck", 0 );
+    this.csIdx = aSettings.getInt( "cs", 3 );
+    // The data channel settings are combobox indexes, in which index zero
+    // denotes "unused"...
+    this.misoIdx = aSettings.getInt( "miso", 2 ) - 1;
+    this.mosiIdx = aSettings.getInt( "mosi", 3 ) - 1;
+    this.io2Idx = aSettings.getInt( "io2", 0 ) - 1;
+    this.io3Idx = aSettings.getInt( "io3", 0 ) - 1;
+
+    this.spiMode = ToolUtils.getItem( SPIMode.values(), aSettings.getInt( "mode", 2 ), SPIMode.values()[2] );
+    // The bit count is one less than the number of bits, like the dialog
+    // does...
+    this.bitCount = ToolUtils.getItem( BIT_COUNTS, aSettings.getInt( "bits", 4 ), BIT_COUNTS[4] ).intValue() - 1;
+    this.bitOrder = ToolUtils.getItem( BitOrder.values(), aSettings.getInt( "order", -1 ), BitOrder.values()[0] );
+  }
+
   /**
    * Removes the given property change listener.
    * 
@@ -317,6 +345,36 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
     this.spiMode = aMode;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#writePreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void writePreferences( final UserSettings aSettings )
+  {
+    if ( this.protocol != null )
+    {
+      aSettings.putInt( "protocol", this.protocol.ordinal() );
+    }
+    aSettings.putBoolean( "reportCS", this.reportCS );
+    aSettings.putBoolean( "honourCS", this.honourCS );
+    aSettings.putBoolean( "invertCS", this.invertCS );
+    aSettings.putInt( "sck", this.sckIdx );
+    aSettings.putInt( "cs", this.csIdx );
+    aSettings.putInt( "miso", this.misoIdx + 1 );
+    aSettings.putInt( "mosi", this.mosiIdx + 1 );
+    aSettings.putInt( "io2", this.io2Idx + 1 );
+    aSettings.putInt( "io3", this.io3Idx + 1 );
+    if ( this.spiMode != null )
+    {
+      aSettings.putInt( "mode", this.spiMode.ordinal() );
+    }
+    aSettings.putInt( "bits", Arrays.asList( BIT_COUNTS ).indexOf( Integer.valueOf( this.bitCount + 1 ) ) );
+    if ( this.bitOrder != null )
+    {
+      aSettings.putInt( "order", this.bitOrder.ordinal() );
+    }
+  }
+
   /**
    * Decodes the SPI-data on a given clock edge.
    * 
@@ -330,17 +388,27 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   {
     final AcquisitionResult data = this.context.getData();
 
-    final int[] values = data.getValues();
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, this.mosiIdx, this.misoIdx, this.io2Idx,
+        this.io3Idx, this.sckIdx, this.csIdx );
+    final int[] values = channels.getValues();
 
     final int startOfDecode = Math.max( aSlaveSelectedIdx, aDataSet.getStartOfDecode() );
     final int endOfDecode = aDataSet.getEndOfDecode();
 
-    final int mosiMask = ( 1 << this.mosiIdx ); // IO0
-    final int misoMask = ( 1 << this.misoIdx ); // IO1
-    final int io2Mask = ( 1 << this.io2Idx );
-    final int io3Mask = ( 1 << this.io3Idx );
-    final int sckMask = ( 1 << this.sckIdx );
-    final int csMask = ( 1 << this.csIdx );
+    final int mosiMask = channels.getMask( this.mosiIdx ); // IO0
+    final int misoMask = channels.getMask( this.misoIdx ); // IO1
+    final int io2Mask = channels.getMask( this.io2Idx );
+    final int io3Mask = channels.getMask( this.io3Idx );
+    final int sckMask = channels.getMask( this.sckIdx );
+    final int csMask = channels.getMask( this.csIdx );
+
+    if ( LOG.isLoggable( Level.FINE ) )
+    {
+      LOG.fine( "csmask   = 0x" + Integer.toHexString( csMask ) );
+      LOG.fine( "sckmask  = 0x" + Integer.toHexString( sckMask ) );
+      LOG.fine( "misomask = 0x" + Integer.toHexString( misoMask ) );
+      LOG.fine( "mosimask = 0x" + Integer.toHexString( mosiMask ) );
+    }
 
     // scanning for falling/rising clk edges
     int oldSckValue = ( values[startOfDecode] & sckMask );
@@ -524,17 +592,18 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private SPIMode detectSPIMode( final int aStartIndex, final int aEndIndex )
   {
     final AcquisitionResult data = this.context.getData();
-    final Frequency<Integer> valueStats = new Frequency<Integer>();
+    final IntFrequency valueStats = new IntFrequency();
 
-    final int[] values = data.getValues();
-    final int sckMask = 1 << this.sckIdx;
+    final ChannelAccessor sck = new ChannelAccessor( data, this.sckIdx );
+    final int[] values = sck.getValues();
+    final int sckMask = sck.getMask();
 
     // Determine the value of the clock line of each sample; the value that
     // occurs the most is probably the default polarity...
     for ( int i = aStartIndex; i < aEndIndex; i++ )
     {
-      final int newValue = ( values[i] & sckMask ) >> this.sckIdx;
-      valueStats.addValue( Integer.valueOf( newValue ) );
+      final int newValue = ( ( values[i] & sckMask ) != 0 ) ? 1 : 0;
+      valueStats.addValue( newValue );
     }
 
     SPIMode result;
@@ -710,9 +779,10 @@ public class SPIAnalyserTask implements ToolTask<SPIDataSet>
   private int searchSlaveSelected( final int aStartIndex, final int aEndIndex )
   {
     final AcquisitionResult data = this.context.getData();
-    final int[] values = data.getValues();
+    final ChannelAccessor cs = new ChannelAccessor( data, this.csIdx );
+    final int[] values = cs.getValues();
 
-    final int csMask = 1 << this.csIdx;
+    final int csMask = cs.getMask();
 
     /*
      * For analyze scan the CS line for a falling edge. If no edge could be
@@ -28,7 +28,7 @@ import nl.lxtreme.ols.api.data.*;
 /**
  * @author jajans
  */
-public final class SPIDataSet extends BaseDataSet<SPIData>
+public final class SPIDataSet extends ColumnarDataSet<SPIData>
 {
   // CONSTANTS
 
@@ -56,8 +56,7 @@ public final class SPIDataSet extends BaseDataSet<SPIData>
    */
   public void reportCSHigh( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
-    addData( new SPIData( idx, aChannelIdx, SPI_CS_HIGH, aSampleIdx ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, SPI_CS_HIGH );
   }
 
   /**
@@ -65,8 +64,7 @@ public final class SPIDataSet extends BaseDataSet<SPIData>
    */
   public void reportCSLow( final int aChannelIdx, final int aSampleIdx )
   {
-    final int idx = size();
-    addData( new SPIData( idx, aChannelIdx, SPI_CS_LOW, aSampleIdx ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, 0, 0, SPI_CS_LOW );
   }
 
   /**
@@ -74,8 +72,7 @@ public final class SPIDataSet extends BaseDataSet<SPIData>
    */
   public void reportMisoData( final int aChannelIdx, final int aStartIdx, final int aEndIdx, final int aDataValue )
   {
-    final int idx = size();
-    addData( new SPIData( idx, aChannelIdx, SPI_MISO, aDataValue, aStartIdx, aEndIdx ) );
+    addRow( aChannelIdx, aStartIdx, aEndIdx, 0, aDataValue, SPI_MISO, null );
   }
 
   /**
@@ -83,7 +80,31 @@ public final class SPIDataSet extends BaseDataSet<SPIData>
    */
   public void reportMosiData( final int aChannelIdx, final int aStartIdx, final int aEndIdx, final int aDataValue )
   {
-    final int idx = size();
-    addData( new SPIData( idx, aChannelIdx, SPI_MOSI, aDataValue, aStartIdx, aEndIdx ) );
+    addRow( aChannelIdx, aStartIdx, aEndIdx, 0, aDataValue, SPI_MOSI, null );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected SPIData createData( final int aRow )
+  {
+    final String event = getEventName( aRow );
+    if ( event != null )
+    {
+      return new SPIData( getIndex( aRow ), getChannelIdx( aRow ), event, getStartSampleIndex( aRow ) );
+    }
+    return new SPIData( getIndex( aRow ), getChannelIdx( aRow ), getDataName( aRow ), getValue( aRow ),
+        getStartSampleIndex( aRow ), getEndSampleIndex( aRow ) );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void storeData( final int aRow, final SPIData aData )
+  {
+    setValue( aRow, aData.getDataValue() );
+    setDataName( aRow, aData.getDataName() );
   }
 }
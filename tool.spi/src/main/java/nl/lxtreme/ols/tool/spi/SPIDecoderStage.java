@@ -0,0 +1,223 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.spi;
+
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.api.data.annotation.*;
+import nl.lxtreme.ols.tool.base.annotation.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
+import nl.lxtreme.ols.util.*;
+import nl.lxtreme.ols.util.NumberUtils.BitOrder;
+
+
+/**
+ * Provides a {@link DecoderStage} that decodes standard (single I/O) SPI,
+ * allowing it to be stacked upon, for example, a line decoder.
+ * <p>
+ * The MOSI and MISO lines are sampled on each sampling clock edge while the
+ * slave is selected; each completed word is reported as annotation on its
+ * channel. All transitions are passed on unmodified.
+ * </p>
+ */
+public class SPIDecoderStage extends AbstractDecoderStage
+{
+  // VARIABLES
+
+  private final SPIMode mode;
+  private final int sckMask;
+  private final int mosiIdx;
+  private final int mosiMask;
+  private final int misoIdx;
+  private final int misoMask;
+  private final int csMask;
+  private final int bitCount;
+  private final BitOrder bitOrder;
+  private final AnnotationListener annotationListener;
+
+  private int lastValue;
+  private int bits;
+  private int mosiValue;
+  private int misoValue;
+  private long wordStart;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link SPIDecoderStage} instance.
+   * 
+   * @param aMode
+   *          the SPI mode to use, cannot be <code>null</code> or
+   *          {@link SPIMode#AUTODETECT};
+   * @param aChannels
+   *          the channels that are fed to this stage, should contain all given
+   *          channels, cannot be <code>null</code>;
+   * @param aSckIdx
+   *          the index of the SCK channel, >= 0;
+   * @param aMosiIdx
+   *          the index of the MOSI channel, or -1 if not used;
+   * @param aMisoIdx
+   *          the index of the MISO channel, or -1 if not used;
+   * @param aCsIdx
+   *          the index of the (active low) CS channel, or -1 if the slave is
+   *          always selected;
+   * @param aBitCount
+   *          the number of bits per word, 1..32;
+   * @param aBitOrder
+   *          the bit order of the words, cannot be <code>null</code>;
+   * @param aAnnotationListener
+   *          the annotation listener to report the decoded words to, cannot be
+   *          <code>null</code>.
+   */
+  public SPIDecoderStage( final SPIMode aMode, final MultiChannelAccessor aChannels, final int aSckIdx,
+      final int aMosiIdx, final int aMisoIdx, final int aCsIdx, final int aBitCount, final BitOrder aBitOrder,
+      final AnnotationListener aAnnotationListener )
+  {
+    if ( ( aMode == null ) || ( aMode == SPIMode.AUTODETECT ) )
+    {
+      throw new IllegalArgumentException( "Mode cannot be null or auto-detect!" );
+    }
+    if ( ( aBitCount <= 0 ) || ( aBitCount > 32 ) )
+    {
+      throw new IllegalArgumentException( "Bit count should be between 1 and 32!" );
+    }
+    if ( aAnnotationListener == null )
+    {
+      throw new IllegalArgumentException( "Annotation listener cannot be null!" );
+    }
+
+    this.mode = aMode;
+    this.sckMask = aChannels.getMask( aSckIdx );
+    this.mosiIdx = aMosiIdx;
+    this.mosiMask = aChannels.getMask( aMosiIdx );
+    this.misoIdx = aMisoIdx;
+    this.misoMask = aChannels.getMask( aMisoIdx );
+    this.csMask = aChannels.getMask( aCsIdx );
+    this.bitCount = aBitCount;
+    this.bitOrder = aBitOrder;
+    this.annotationListener = aAnnotationListener;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final long aTimestamp, final int aValue ) throws Exception
+  {
+    this.lastValue = aValue;
+    resetWord();
+
+    super.begin( aTimestamp, aValue );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transition( final long aTimestamp, final int aValue ) throws Exception
+  {
+    if ( ( ( this.lastValue ^ aValue ) & this.csMask ) != 0 )
+    {
+      // Slave (de)selected; start over with a new word...
+      resetWord();
+    }
+    else if ( ( aValue & this.csMask ) == 0 )
+    {
+      final Edge edge = Edge.toEdge( this.lastValue & this.sckMask, aValue & this.sckMask );
+      if ( edge == this.mode.getSampleEdge() )
+      {
+        sample( aTimestamp, aValue );
+      }
+    }
+
+    this.lastValue = aValue;
+
+    super.transition( aTimestamp, aValue );
+  }
+
+  /**
+   * Reports a single decoded word as annotation.
+   */
+  private void reportWord( final int aChannelIdx, final int aValue, final long aEndTimestamp )
+  {
+    // Perform bit-order conversion on the full word...
+    final int value = NumberUtils.convertBitOrder( aValue, this.bitCount, this.bitOrder );
+
+    String formatSpec = "0x%1$X";
+    if ( Character.isLetterOrDigit( value ) )
+    {
+      formatSpec = formatSpec.concat( " (%1$c)" );
+    }
+
+    this.annotationListener.onAnnotation( new SampleDataAnnotation( aChannelIdx, this.wordStart, aEndTimestamp,
+        String.format( formatSpec, Integer.valueOf( value ) ) ) );
+  }
+
+  /**
+   * Clears the word that is currently being decoded.
+   */
+  private void resetWord()
+  {
+    this.bits = 0;
+    this.mosiValue = 0;
+    this.misoValue = 0;
+  }
+
+  /**
+   * Samples the data lines on a sampling clock edge.
+   */
+  private void sample( final long aTimestamp, final int aValue )
+  {
+    if ( this.bits == 0 )
+    {
+      this.wordStart = aTimestamp;
+    }
+
+    // Shift in the bits with the most significant bit first; the bit order is
+    // corrected once the word is complete...
+    this.mosiValue <<= 1;
+    this.misoValue <<= 1;
+    if ( ( this.mosiIdx >= 0 ) && ( ( aValue & this.mosiMask ) != 0 ) )
+    {
+      this.mosiValue |= 1;
+    }
+    if ( ( this.misoIdx >= 0 ) && ( ( aValue & this.misoMask ) != 0 ) )
+    {
+      this.misoValue |= 1;
+    }
+
+    if ( ++this.bits == this.bitCount )
+    {
+      if ( this.mosiIdx >= 0 )
+      {
+        reportWord( this.mosiIdx, this.mosiValue, aTimestamp );
+      }
+      if ( this.misoIdx >= 0 )
+      {
+        reportWord( this.misoIdx, this.misoValue, aTimestamp );
+      }
+
+      resetWord();
+    }
+  }
+}
@@ -629,7 +629,7 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
    */
   private JPanel createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final JPanel settings = new JPanel( new SpringLayout() );
 
@@ -791,12 +791,11 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
    * @param aFile
    *          File object
    */
-  private void storeToCsvFile( final File aFile, final SPIDataSet aDataSet )
+  private void storeToCsvFile( final File aFile, final SPIDataSet aDataSet ) throws IOException
   {
+    final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
       exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "MOSI data", "MISO data" );
 
       final List<SPIData> decodedData = aDataSet.getData();
@@ -804,6 +803,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
       {
         final SPIData ds = decodedData.get( i );
 
+        setExportProgress( i, decodedData.size() );
+
         final String startTime = Unit.Time.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
         final String endTime = Unit.Time.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
         final String mosiDataValue = ds.isMosiData() ? Integer.toString( ds.getDataValue() ) : null;
@@ -812,16 +813,10 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
         exporter.addRow( Integer.valueOf( i ), startTime, endTime, Boolean.valueOf( ds.isEvent() ), ds.getEventName(),
             mosiDataValue, misoDataValue );
       }
-
-      exporter.close();
     }
-    catch ( final IOException exception )
+    finally
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "CSV export failed!", exception );
-      }
+      exporter.close();
     }
   }
 
@@ -831,20 +826,9 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
    * @param aFile
    *          file object
    */
-  private void storeToHtmlFile( final File aFile, final SPIDataSet aDataSet )
+  private void storeToHtmlFile( final File aFile, final SPIDataSet aDataSet ) throws IOException
   {
-    try
-    {
-      toHtmlPage( aFile, aDataSet );
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "HTML export failed!", exception );
-      }
-    }
+    toHtmlPage( aFile, aDataSet );
   }
 
   /**
@@ -901,6 +885,8 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
           {
             final SPIData ds = decodedData.get( i );
 
+            setExportProgress( i, decodedData.size() );
+
             if ( ds.isEvent() )
             {
               String event;
@@ -995,8 +981,14 @@ public final class SPIProtocolAnalysisDialog extends BaseToolDialog<SPIDataSet>
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
@@ -227,7 +227,7 @@ public final class StateAnalysisDialog extends BaseToolDialog<AcquisitionResult>
    */
   private JPanel createContentPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     this.channelSelect = SwingComponentUtils.createChannelSelector( channelCount, 0 );
 
@@ -59,28 +59,31 @@ public class StateAnalysisTask implements ToolTask<AcquisitionResult>
 
   /**
    * Convert captured data from timing data to state data using the given
-   * channel as clock.
+   * channel as clock. Captures with more than
+   * {@value nl.lxtreme.ols.api.Ols#CHANNELS_PER_PLANE} channels are converted
+   * to wide state data.
    * 
    * @see javax.swing.SwingWorker#doInBackground()
    */
   @Override
-  public CapturedData call() throws Exception
+  public AcquisitionResult call() throws Exception
   {
     final AcquisitionResult data = this.context.getData();
 
     // obtain data from captured data
-    final int[] values = data.getValues();
+    final ChannelAccessor clock = new ChannelAccessor( data, this.number );
+    final int[] values = clock.getValues();
     final long triggerPosition = data.getTriggerPosition();
 
-    final int maskValue = 1 << this.number;
+    final int maskValue = clock.getMask();
 
     int size = 0;
-    int last = ( values[0] & maskValue ) >> this.number;
+    int last = ( ( values[0] & maskValue ) != 0 ) ? 1 : 0;
 
     // calculate new sample array size
     for ( final int value : values )
     {
-      final int current = ( value & maskValue ) >> this.number;
+      final int current = ( ( value & maskValue ) != 0 ) ? 1 : 0;
       if ( ( last == this.level ) && ( current != this.level ) )
       {
         size++;
@@ -95,17 +98,17 @@ public class StateAnalysisTask implements ToolTask<AcquisitionResult>
     }
 
     // convert captured data
-    last = values[0] & maskValue;
+    last = ( ( values[0] & maskValue ) != 0 ) ? 1 : 0;
     int pos = 0;
     int newTrigger = -1;
 
-    final int[] newValues = new int[size];
+    final int[] sampleIdxs = new int[size];
     for ( int i = 0; i < values.length; i++ )
     {
-      final int current = ( values[i] & maskValue ) >> this.number;
+      final int current = ( ( values[i] & maskValue ) != 0 ) ? 1 : 0;
       if ( ( last == this.level ) && ( current != this.level ) )
       {
-        newValues[pos++] = values[i - 1];
+        sampleIdxs[pos++] = i - 1;
       }
       if ( triggerPosition == i )
       {
@@ -114,6 +117,27 @@ public class StateAnalysisTask implements ToolTask<AcquisitionResult>
       last = current;
     }
 
+    if ( data.getChannels() > Ols.CHANNELS_PER_PLANE )
+    {
+      final long[] newValues = new long[size];
+      final long[] newTimestamps = new long[size];
+      for ( int i = 0; i < size; i++ )
+      {
+        newValues[i] = ChannelAccessor.getWideValue( data, sampleIdxs[i] );
+        newTimestamps[i] = i;
+      }
+
+      return new WideCapturedData( newValues, newTimestamps, newTrigger, Ols.NOT_AVAILABLE, data.getChannels(),
+          ChannelAccessor.getEnabledChannelMask( data ), size );
+    }
+
+    final int[] dataValues = data.getValues();
+    final int[] newValues = new int[size];
+    for ( int i = 0; i < size; i++ )
+    {
+      newValues[i] = dataValues[sampleIdxs[i]];
+    }
+
     final CapturedData newCapturedData = new CapturedData( newValues, newTrigger, Ols.NOT_AVAILABLE,
         data.getChannels(), data.getEnabledChannels() );
 
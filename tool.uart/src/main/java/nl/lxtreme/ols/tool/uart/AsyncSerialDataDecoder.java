@@ -357,7 +357,6 @@ public class AsyncSerialDataDecoder
     // VARIABLES
 
     private double time;
-    private int mask;
     private int channelIndex;
     private double bitLength;
     /** The number of samples that we've seen between two confirmed edges */
@@ -375,7 +374,6 @@ public class AsyncSerialDataDecoder
     {
       this.time = 0;
       this.channelIndex = aChannelIndex;
-      this.mask = ( 1 << aChannelIndex );
       this.bitLength = AsyncSerialDataDecoder.this.configuration.getBitLength( AsyncSerialDataDecoder.this.dataSet
           .getSampleRate() );
     }
@@ -389,7 +387,7 @@ public class AsyncSerialDataDecoder
     public BitLevel level()
     {
       final long halfTime = ( long )( this.time + ( this.bitLength / 2 ) );
-      final int level = AsyncSerialDataDecoder.this.getDataValue( halfTime, this.mask );
+      final int level = AsyncSerialDataDecoder.this.getDataValue( halfTime, this.channelIndex );
       return ( level == 0 ? BitLevel.LOW : BitLevel.HIGH );
     }
 
@@ -711,13 +709,12 @@ public class AsyncSerialDataDecoder
   protected final long findEdge( final int aChannelIndex, final Edge aSampleEdge, final long aStartOfDecode,
       final long aEndOfDecode )
   {
-    final int mask = ( 1 << aChannelIndex );
     long result = -1;
 
-    int oldBitValue = getDataValue( aStartOfDecode, mask );
+    int oldBitValue = getDataValue( aStartOfDecode, aChannelIndex );
     for ( long timeCursor = aStartOfDecode + 1; ( result < 0 ) && ( timeCursor < aEndOfDecode ); timeCursor++ )
     {
-      final int bitValue = getDataValue( timeCursor, mask );
+      final int bitValue = getDataValue( timeCursor, aChannelIndex );
 
       Edge edge = Edge.toEdge( oldBitValue, bitValue );
       if ( aSampleEdge.isNone() && !edge.isNone() )
@@ -767,22 +764,24 @@ public class AsyncSerialDataDecoder
   }
 
   /**
-   * Returns the data value for the given time stamp.
+   * Returns the data value of a channel for the given time stamp.
    * 
    * @param aTimeValue
-   *          the time stamp to return the data value for.
+   *          the time stamp to return the data value for;
+   * @param aChannelIndex
+   *          the index of the channel to return the data value for.
    * @return the data value of the sample index right before the given time
-   *         value.
+   *         value, masked with the mask of the given channel.
    */
-  protected final int getDataValue( final long aTimeValue, final int aMask )
+  protected final int getDataValue( final long aTimeValue, final int aChannelIndex )
   {
-    final int[] values = this.dataSet.getValues();
+    final int[] values = ChannelAccessor.getValues( this.dataSet, ChannelAccessor.getPlane( aChannelIndex ) );
     final long[] timestamps = this.dataSet.getTimestamps();
     int k = findSampleIndex( timestamps, aTimeValue );
 
     int value = ( ( k == 0 ) ? values[0] : values[k - 1] );
 
-    return value & aMask;
+    return value & ChannelAccessor.getMask( aChannelIndex );
   }
 
   /**
@@ -0,0 +1,271 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static nl.lxtreme.ols.util.NumberUtils.*;
+
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+
+
+/**
+ * Provides a {@link DecoderStage} that decodes a single asynchronous serial
+ * data line, allowing it to be stacked upon, for example, a line decoder.
+ * <p>
+ * In contrast to {@link AsyncSerialDataDecoder}, this stage does not search
+ * through the acquired data, but samples the data line while the transitions
+ * pass by. Each bit is sampled halfway; edges near an expected bit boundary
+ * are used to resynchronize. All transitions are passed on unmodified.
+ * </p>
+ */
+public class AsyncSerialDecoderStage extends AbstractDecoderStage
+{
+  // CONSTANTS
+
+  private static final int IDLE = -1;
+
+  // VARIABLES
+
+  private final SerialConfiguration configuration;
+  private final int channelIdx;
+  private final int mask;
+  private final double bitLength;
+  private final SerialDecoderCallback callback;
+
+  private boolean high;
+  private int bitIdx;
+  private double nextSample;
+  private long dataStart;
+  private int symbol;
+  private int marks;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link AsyncSerialDecoderStage} instance.
+   * 
+   * @param aConfiguration
+   *          the serial configuration to use, cannot be <code>null</code>;
+   * @param aChannels
+   *          the channels that are fed to the pipeline, used to mask out the
+   *          decoded channel, cannot be <code>null</code>;
+   * @param aChannelIdx
+   *          the index of the channel to decode, >= 0;
+   * @param aSampleRate
+   *          the sample rate of the decoded signal, in Hertz, > 0;
+   * @param aCallback
+   *          the callback to report decoded symbols and errors to, cannot be
+   *          <code>null</code>.
+   */
+  public AsyncSerialDecoderStage( final SerialConfiguration aConfiguration, final MultiChannelAccessor aChannels,
+      final int aChannelIdx, final int aSampleRate, final SerialDecoderCallback aCallback )
+  {
+    if ( aConfiguration == null )
+    {
+      throw new IllegalArgumentException( "Configuration cannot be null!" );
+    }
+    if ( aCallback == null )
+    {
+      throw new IllegalArgumentException( "Callback cannot be null!" );
+    }
+
+    this.configuration = aConfiguration;
+    this.channelIdx = aChannelIdx;
+    this.mask = aChannels.getMask( aChannelIdx );
+    this.bitLength = aConfiguration.getBitLength( aSampleRate );
+    this.callback = aCallback;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void begin( final long aTimestamp, final int aValue ) throws Exception
+  {
+    this.high = ( aValue & this.mask ) != 0;
+    this.bitIdx = IDLE;
+
+    super.begin( aTimestamp, aValue );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void end( final long aTimestamp ) throws Exception
+  {
+    // Incomplete frames at the end are not reported...
+    sampleUntil( aTimestamp );
+
+    super.end( aTimestamp );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void transition( final long aTimestamp, final int aValue ) throws Exception
+  {
+    sampleUntil( aTimestamp );
+
+    final boolean level = ( aValue & this.mask ) != 0;
+    if ( level != this.high )
+    {
+      this.high = level;
+
+      if ( this.bitIdx == IDLE )
+      {
+        if ( getLevel() != this.configuration.getIdleLevel() )
+        {
+          // Start of a new frame...
+          this.bitIdx = 0;
+          this.nextSample = aTimestamp + ( this.bitLength / 2.0 );
+          this.symbol = 0;
+          this.marks = 0;
+        }
+      }
+      else
+      {
+        // Resynchronize on edges that lie near an expected bit boundary...
+        final double boundary = this.nextSample - ( this.bitLength / 2.0 );
+        if ( Math.abs( aTimestamp - boundary ) < ( this.bitLength / 4.0 ) )
+        {
+          this.nextSample = aTimestamp + ( this.bitLength / 2.0 );
+        }
+      }
+    }
+
+    super.transition( aTimestamp, aValue );
+  }
+
+  /**
+   * @return the current level of the decoded data line.
+   */
+  private BitLevel getLevel()
+  {
+    return this.high ? BitLevel.HIGH : BitLevel.LOW;
+  }
+
+  /**
+   * @return <code>true</code> if the current level of the data line denotes a
+   *         mark, <code>false</code> if it denotes a space.
+   */
+  private boolean isMark()
+  {
+    if ( this.configuration.getBitEncoding() == BitEncoding.HIGH_IS_SPACE )
+    {
+      return !this.high;
+    }
+    return this.high;
+  }
+
+  /**
+   * Samples the current bit of the frame.
+   */
+  private void sampleBit()
+  {
+    final int dataBits = this.configuration.getDataBits();
+    final Parity parity = this.configuration.getParity();
+    final long bitStart = ( long )( this.nextSample - ( this.bitLength / 2.0 ) );
+    final long bitEnd = ( long )( this.nextSample + ( this.bitLength / 2.0 ) );
+
+    if ( this.bitIdx == 0 )
+    {
+      if ( getLevel() == this.configuration.getIdleLevel() )
+      {
+        // this is not a start bit !
+        this.callback.onError( this.channelIdx, ErrorType.START, bitStart );
+      }
+      this.dataStart = bitEnd;
+    }
+    else if ( this.bitIdx <= dataBits )
+    {
+      if ( isMark() )
+      {
+        this.symbol |= ( 1 << ( this.bitIdx - 1 ) );
+        this.marks++;
+      }
+
+      if ( this.bitIdx == dataBits )
+      {
+        // If the most significant bit is first, we need to swap bit-order, as
+        // we normally represent the bits with the least significant bit
+        // first...
+        if ( this.configuration.getBitOrder() == BitOrder.MSB_FIRST )
+        {
+          this.symbol = reverseBits( this.symbol, dataBits );
+        }
+
+        this.callback.onSymbol( this.channelIdx, this.symbol, this.dataStart, bitEnd - 1 );
+      }
+    }
+    else if ( ( this.bitIdx == ( dataBits + 1 ) ) && !parity.isNone() )
+    {
+      if ( isMark() )
+      {
+        this.marks++;
+      }
+
+      // Even parity means total number of marks (including the parity bit)
+      // should be even, odd means they should be odd.
+      if ( ( parity.isOdd() && ( ( this.marks % 2 ) == 0 ) ) || ( parity.isEven() && ( ( this.marks % 2 ) == 1 ) ) )
+      {
+        this.callback.onError( this.channelIdx, ErrorType.PARITY, bitStart );
+      }
+    }
+    else
+    {
+      // Stop bit...
+      if ( getLevel() != this.configuration.getIdleLevel() )
+      {
+        this.callback.onError( this.channelIdx, ErrorType.FRAME, bitStart );
+      }
+
+      this.bitIdx = IDLE;
+      return;
+    }
+
+    this.bitIdx++;
+    this.nextSample += this.bitLength;
+  }
+
+  /**
+   * Samples all pending bits of the current frame that lie before the given
+   * timestamp, as the data line does not change until then.
+   */
+  private void sampleUntil( final long aTimestamp )
+  {
+    while ( ( this.bitIdx != IDLE ) && ( this.nextSample < aTimestamp ) )
+    {
+      sampleBit();
+    }
+  }
+}
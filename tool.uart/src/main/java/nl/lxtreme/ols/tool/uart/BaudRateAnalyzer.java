@@ -21,6 +21,9 @@
 package nl.lxtreme.ols.tool.uart;
 
 
+import java.util.*;
+import java.util.concurrent.*;
+
 import nl.lxtreme.ols.util.analysis.*;
 
 
@@ -31,10 +34,15 @@ import nl.lxtreme.ols.util.analysis.*;
  */
 public final class BaudRateAnalyzer
 {
+  // CONSTANTS
+
+  /** The minimal number of samples a chunk should have when building in parallel. */
+  private static final int MIN_CHUNK_SIZE = 1 << 16;
+
   // VARIABLES
 
   private final double sampleRate;
-  private final Frequency<Integer> statData;
+  private final IntFrequency statData;
 
   // CONSTRUCTORS
 
@@ -49,12 +57,12 @@ public final class BaudRateAnalyzer
   public BaudRateAnalyzer( final int aSampleRate, final int aFixedBaudRate )
   {
     this.sampleRate = aSampleRate;
-    this.statData = new Frequency<Integer>();
+    this.statData = new IntFrequency();
 
     // We already know our baudrate, so lets put a single value for the
     // corresponding bitlength in our frequency mapping to let it be used...
     final int bitLength = ( int )Math.round( aSampleRate / ( double )aFixedBaudRate );
-    this.statData.addValue( Integer.valueOf( bitLength ) );
+    this.statData.addValue( bitLength );
   }
 
   /**
@@ -71,25 +79,41 @@ public final class BaudRateAnalyzer
    */
   public BaudRateAnalyzer( final int aSampleRate, final int[] aValues, final long[] aTimestamps, final int aMask )
   {
-    this.sampleRate = aSampleRate;
-    this.statData = new Frequency<Integer>();
+    this( aSampleRate, aValues, aTimestamps, aMask, 1 );
+  }
 
-    long lastTransition = 0;
-    int lastBitValue = aValues[0] & aMask;
+  /**
+   * Creates a new {@link BaudRateAnalyzer} instance, optionally building the
+   * bit length histogram in parallel.
+   * 
+   * @param aSampleRate
+   *          the sample rate at which the incoming data was sampled;
+   * @param aValues
+   *          the values to determine the baudrate for;
+   * @param aTimestamps
+   *          the timestamps to use when determining the bit lengths;
+   * @param aMask
+   *          the value mask to isolate the data;
+   * @param aParallelism
+   *          the (maximum) number of threads to use for building the
+   *          histogram, >= 1. Small data sets are always analyzed on the
+   *          calling thread.
+   */
+  public BaudRateAnalyzer( final int aSampleRate, final int[] aValues, final long[] aTimestamps, final int aMask,
+      final int aParallelism )
+  {
+    this.sampleRate = aSampleRate;
 
-    for ( int i = 0; i < aValues.length; i++ )
+    final int chunks = Math.max( 1, Math.min( aParallelism, aValues.length / MIN_CHUNK_SIZE ) );
+    if ( chunks == 1 )
     {
-      final int bitValue = aValues[i] & aMask;
-
-      if ( lastBitValue != bitValue )
-      {
-        final int bitLength = ( int )( aTimestamps[i] - lastTransition );
-        this.statData.addValue( Integer.valueOf( bitLength ) );
-
-        lastTransition = aTimestamps[i];
-      }
-
-      lastBitValue = aValues[i] & aMask;
+      final BitLengthCollector collector = new BitLengthCollector( aValues, aTimestamps, aMask, 0, aValues.length );
+      collector.call();
+      this.statData = collector.finish( 0L );
+    }
+    else
+    {
+      this.statData = collectParallel( aValues, aTimestamps, aMask, chunks );
     }
   }
 
@@ -159,9 +183,9 @@ public final class BaudRateAnalyzer
       double min = highestRanked.doubleValue() * 0.75;
       double max = highestRanked.doubleValue() * 1.25;
 
-      for ( final Integer length : this.statData.values() )
+      for ( final int length : this.statData.values() )
       {
-        double bitlength = length.doubleValue();
+        double bitlength = length;
         if ( min < bitlength && bitlength < max )
         {
           final long rank = this.statData.getCount( length );
@@ -174,4 +198,163 @@ public final class BaudRateAnalyzer
     // Return the average of all bit lengths near the most frequent one
     return ( highestRanked == null ) ? -1 : ( ( ( double )sum ) / count );
   }
+
+  /**
+   * Builds the bit length histogram by splitting the given data in chunks,
+   * analyzing each chunk on its own thread, and stitching the results together.
+   * 
+   * @return the combined histogram, never <code>null</code>.
+   */
+  private static IntFrequency collectParallel( final int[] aValues, final long[] aTimestamps, final int aMask,
+      final int aChunks )
+  {
+    final List<BitLengthCollector> collectors = new ArrayList<BitLengthCollector>( aChunks );
+
+    final int chunkSize = ( aValues.length + aChunks - 1 ) / aChunks;
+    for ( int start = 0; start < aValues.length; start += chunkSize )
+    {
+      final int end = Math.min( aValues.length, start + chunkSize );
+      collectors.add( new BitLengthCollector( aValues, aTimestamps, aMask, start, end ) );
+    }
+
+    final ExecutorService executor = Executors.newFixedThreadPool( collectors.size() );
+    try
+    {
+      executor.invokeAll( collectors );
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException( "Baudrate analysis interrupted!", exception );
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+
+    // Each chunk only knows the bit lengths *inside* itself; the bit length
+    // that spans two chunks is added while stitching them together...
+    final IntFrequency result = new IntFrequency();
+
+    long lastTransition = 0L;
+    for ( BitLengthCollector collector : collectors )
+    {
+      result.addAll( collector.finish( lastTransition ) );
+      if ( collector.hasTransitions() )
+      {
+        lastTransition = collector.lastTransition;
+      }
+    }
+
+    return result;
+  }
+
+  // INNER TYPES
+
+  /**
+   * Collects the bit lengths of a range of samples into a histogram.
+   */
+  static final class BitLengthCollector implements Callable<Void>
+  {
+    // VARIABLES
+
+    private final int[] values;
+    private final long[] timestamps;
+    private final int mask;
+    private final int start;
+    private final int end;
+    private final IntFrequency histogram;
+
+    private long firstTransition;
+    private long lastTransition;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link BitLengthCollector} instance.
+     */
+    BitLengthCollector( final int[] aValues, final long[] aTimestamps, final int aMask, final int aStart,
+        final int aEnd )
+    {
+      this.values = aValues;
+      this.timestamps = aTimestamps;
+      this.mask = aMask;
+      this.start = aStart;
+      this.end = aEnd;
+      this.histogram = new IntFrequency();
+
+      this.firstTransition = -1L;
+      this.lastTransition = -1L;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Void call()
+    {
+      if ( this.start >= this.end )
+      {
+        return null;
+      }
+
+      final int[] v = this.values;
+      final long[] t = this.timestamps;
+      final int m = this.mask;
+
+      // The first sample of the whole data set is compared to itself; any
+      // other chunk continues where its predecessor left off...
+      int lastBitValue = v[Math.max( 0, this.start - 1 )] & m;
+      long last = -1L;
+
+      for ( int i = this.start; i < this.end; i++ )
+      {
+        final int bitValue = v[i] & m;
+        if ( lastBitValue != bitValue )
+        {
+          if ( last < 0L )
+          {
+            this.firstTransition = t[i];
+          }
+          else
+          {
+            this.histogram.addValue( ( int )( t[i] - last ) );
+          }
+          last = t[i];
+        }
+        lastBitValue = bitValue;
+      }
+
+      this.lastTransition = last;
+      return null;
+    }
+
+    /**
+     * Completes the histogram of this chunk with the bit length that started
+     * in a preceding chunk.
+     * 
+     * @param aPreviousTransition
+     *          the timestamp of the last transition before this chunk.
+     * @return the histogram of this chunk, never <code>null</code>.
+     */
+    IntFrequency finish( final long aPreviousTransition )
+    {
+      if ( hasTransitions() )
+      {
+        this.histogram.addValue( ( int )( this.firstTransition - aPreviousTransition ) );
+      }
+      return this.histogram;
+    }
+
+    /**
+     * @return <code>true</code> if at least one transition was found in this
+     *         chunk, <code>false</code> otherwise.
+     */
+    boolean hasTransitions()
+    {
+      return this.firstTransition >= 0L;
+    }
+  }
 }
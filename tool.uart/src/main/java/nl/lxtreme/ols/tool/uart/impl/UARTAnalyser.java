@@ -25,6 +25,8 @@ import java.awt.*;
 
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
+
 import org.osgi.framework.*;
 
 
@@ -37,6 +39,8 @@ public class UARTAnalyser implements Tool<UARTDataSet>
 
   private volatile BundleContext context;
 
+  private final DecodeCache<UARTDataSet> decodeCache = new DecodeCache<UARTDataSet>();
+
   // METHODS
 
   /**
@@ -58,6 +62,16 @@ public class UARTAnalyser implements Tool<UARTDataSet>
     return ToolCategory.DECODER;
   }
 
+  /**
+   * Returns the cache with earlier decoding results of this tool.
+   * 
+   * @return the decode cache, never <code>null</code>.
+   */
+  public DecodeCache<UARTDataSet> getDecodeCache()
+  {
+    return this.decodeCache;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -73,6 +87,9 @@ public class UARTAnalyser implements Tool<UARTDataSet>
   @Override
   public void invoke( final Window aParent, final ToolContext aContext )
   {
+    // Release the results of any earlier capture...
+    this.decodeCache.retain( aContext.getData() );
+
     new UARTProtocolAnalysisDialog( aParent, aContext, this.context, this ).showDialog();
   }
 }
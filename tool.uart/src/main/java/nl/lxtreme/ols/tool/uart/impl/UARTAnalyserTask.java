@@ -25,10 +25,12 @@ import static nl.lxtreme.ols.util.NumberUtils.*;
 
 import java.util.logging.*;
 
+import nl.lxtreme.ols.api.*;
 import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.data.*;
 import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
 import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.tool.base.*;
 import nl.lxtreme.ols.tool.base.annotation.*;
 import nl.lxtreme.ols.tool.uart.*;
 import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
@@ -44,7 +46,7 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
 /**
  * @author jajans
  */
-public class UARTAnalyserTask implements ToolTask<UARTDataSet>
+public class UARTAnalyserTask implements ToolTask<UARTDataSet>, Configurable
 {
   // CONSTANTS
 
@@ -120,13 +122,15 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
      * is displayed it must be sortet by time.
      */
 
-    final int[] values = data.getValues();
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, this.rxdIndex, this.txdIndex,
+        this.ctsIndex, this.rtsIndex, this.dcdIndex, this.riIndex, this.dsrIndex, this.dtrIndex );
+    final int[] values = channels.getValues();
 
     int startOfDecode = this.context.getStartSampleIndex();
     final int endOfDecode = this.context.getEndSampleIndex();
 
     // find first state change on the selected lines
-    final int mask = getBitMask();
+    final int mask = getBitMask( channels );
 
     final int value = values[startOfDecode] & mask;
     for ( int i = startOfDecode + 1; i < endOfDecode; i++ )
@@ -138,7 +142,9 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       }
     }
 
-    startOfDecode = Math.max( 0, startOfDecode - 10 );
+    // Never look before the start of our range, otherwise we could end up in
+    // the middle of an earlier frame...
+    startOfDecode = Math.max( this.context.getStartSampleIndex(), startOfDecode - 10 );
 
     // Make sure we've got a valid range to decode..
     if ( startOfDecode >= endOfDecode )
@@ -148,6 +154,7 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     }
 
     final UARTDataSet decodedData = new UARTDataSet( startOfDecode, endOfDecode, data );
+    decodedData.setBitCount( this.bitCount );
 
     // decode RxD/TxD data lines...
     if ( this.rxdIndex >= 0 )
@@ -191,6 +198,45 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     return decodedData;
   }
 
+  /**
+   * Configures this task from the given settings, which are the same as those
+   * of the UART analysis dialog.
+   * 
+   * @see nl.lxtreme.ols.api.Configurable#readPreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void readPreferences( final UserSettings aSettings )
+  {
+    // The channel settings are combobox indexes, in which index zero denotes
+    // "unused"...
+    this.rxdIndex = aSettings.getInt( "rxd", this.rxdIndex + 1 ) - 1;
+    this.txdIndex = aSettings.getInt( "txd", this.txdIndex + 1 ) - 1;
+    this.ctsIndex = aSettings.getInt( "cts", this.ctsIndex + 1 ) - 1;
+    this.rtsIndex = aSettings.getInt( "rts", this.rtsIndex + 1 ) - 1;
+    this.dtrIndex = aSettings.getInt( "dtr", this.dtrIndex + 1 ) - 1;
+    this.dsrIndex = aSettings.getInt( "dsr", this.dsrIndex + 1 ) - 1;
+    this.dcdIndex = aSettings.getInt( "dcd", this.dcdIndex + 1 ) - 1;
+    this.riIndex = aSettings.getInt( "ri", this.riIndex + 1 ) - 1;
+
+    this.parity = ToolUtils.getItem( Parity.values(), aSettings.getInt( "parity", -1 ), Parity.NONE );
+    this.bitCount = aSettings.getInt( "bits", 3 ) + 5;
+    this.stopBits = ToolUtils.getItem( StopBits.values(), aSettings.getInt( "stop", -1 ), StopBits.values()[0] );
+    this.idleLevel = ToolUtils.getItem( BitLevel.values(), aSettings.getInt( "idle-state", -1 ),
+        BitLevel.values()[0] );
+    this.bitEncoding = ToolUtils.getItem( BitEncoding.values(), aSettings.getInt( "bit-encoding", -1 ),
+        BitEncoding.values()[0] );
+    this.bitOrder = ToolUtils.getItem( BitOrder.values(), aSettings.getInt( "bit-order", -1 ), BitOrder.values()[0] );
+
+    if ( aSettings.getBoolean( "auto-baudrate", false ) )
+    {
+      this.baudRate = AUTO_DETECT_BAUDRATE;
+    }
+    else
+    {
+      this.baudRate = aSettings.getInt( "baudrate", 9600 );
+    }
+  }
+
   /**
    * Sets baudRate to the given value.
    * 
@@ -322,6 +368,48 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     this.txdIndex = aTxdIndex;
   }
 
+  /**
+   * @see nl.lxtreme.ols.api.Configurable#writePreferences(nl.lxtreme.ols.api.UserSettings)
+   */
+  @Override
+  public void writePreferences( final UserSettings aSettings )
+  {
+    aSettings.putInt( "rxd", this.rxdIndex + 1 );
+    aSettings.putInt( "txd", this.txdIndex + 1 );
+    aSettings.putInt( "cts", this.ctsIndex + 1 );
+    aSettings.putInt( "rts", this.rtsIndex + 1 );
+    aSettings.putInt( "dtr", this.dtrIndex + 1 );
+    aSettings.putInt( "dsr", this.dsrIndex + 1 );
+    aSettings.putInt( "dcd", this.dcdIndex + 1 );
+    aSettings.putInt( "ri", this.riIndex + 1 );
+    if ( this.parity != null )
+    {
+      aSettings.putInt( "parity", this.parity.ordinal() );
+    }
+    aSettings.putInt( "bits", this.bitCount - 5 );
+    if ( this.stopBits != null )
+    {
+      aSettings.putInt( "stop", this.stopBits.ordinal() );
+    }
+    if ( this.idleLevel != null )
+    {
+      aSettings.putInt( "idle-state", this.idleLevel.ordinal() );
+    }
+    if ( this.bitEncoding != null )
+    {
+      aSettings.putInt( "bit-encoding", this.bitEncoding.ordinal() );
+    }
+    if ( this.bitOrder != null )
+    {
+      aSettings.putInt( "bit-order", this.bitOrder.ordinal() );
+    }
+    aSettings.putBoolean( "auto-baudrate", this.baudRate == AUTO_DETECT_BAUDRATE );
+    if ( this.baudRate != AUTO_DETECT_BAUDRATE )
+    {
+      aSettings.putInt( "baudrate", this.baudRate );
+    }
+  }
+
   /**
    * Emits a new symbol annotation to the interested listener(s).
    * 
@@ -360,12 +448,13 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
       LOG.log( Level.FINE, "Decoding control: {0} ...", aName );
     }
 
-    final int mask = ( 1 << aChannelIndex );
+    final ChannelAccessor channel = new ChannelAccessor( data, aChannelIndex );
+    final int mask = channel.getMask();
 
     final int startSampleIdx = aDataSet.getStartOfDecode();
     final int endSampleIdx = aDataSet.getEndOfDecode();
 
-    final int[] values = data.getValues();
+    final int[] values = channel.getValues();
     this.progressListener.setProgress( 0 );
 
     int oldValue = values[startSampleIdx] & mask;
@@ -406,8 +495,10 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
     if ( this.baudRate == AUTO_DETECT_BAUDRATE )
     {
       // Auto detect the baud rate...
-      final int mask = ( 1 << aChannelIndex );
-      final BaudRateAnalyzer baudRateAnalyzer = new BaudRateAnalyzer( data.getSampleRate(), data.getValues(), data.getTimestamps(), mask );
+      final ChannelAccessor channel = new ChannelAccessor( data, aChannelIndex );
+      final int parallelism = Runtime.getRuntime().availableProcessors();
+      final BaudRateAnalyzer baudRateAnalyzer = new BaudRateAnalyzer( data.getSampleRate(), channel.getValues(),
+          channel.getTimestamps(), channel.getMask(), parallelism );
       baudRate = baudRateAnalyzer.getBaudRateExact();
       // Set nominal (normalized) baud rate
       aDataSet.setBaudRate( baudRateAnalyzer.getBaudRate() );
@@ -473,56 +564,59 @@ public class UARTAnalyserTask implements ToolTask<UARTDataSet>
    * Builds a bit mask that can be applied to the data to filter out only the
    * interesting channels.
    * 
+   * @param aChannels
+   *          the accessor of the interesting channels, cannot be
+   *          <code>null</code>.
    * @return a bit mask, >= 0.
    */
-  private int getBitMask()
+  private int getBitMask( final MultiChannelAccessor aChannels )
   {
     int result = 0x00;
     if ( this.rxdIndex >= 0 )
     {
-      final int mask = ( 1 << this.rxdIndex );
+      final int mask = aChannels.getMask( this.rxdIndex );
       LOG.log( Level.FINE, "RxD mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.txdIndex >= 0 )
     {
-      final int mask = ( 1 << this.txdIndex );
+      final int mask = aChannels.getMask( this.txdIndex );
       LOG.log( Level.FINE, "TxD mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.ctsIndex >= 0 )
     {
-      final int mask = ( 1 << this.ctsIndex );
+      final int mask = aChannels.getMask( this.ctsIndex );
       LOG.log( Level.FINE, "CTS mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.rtsIndex >= 0 )
     {
-      final int mask = ( 1 << this.rtsIndex );
+      final int mask = aChannels.getMask( this.rtsIndex );
       LOG.log( Level.FINE, "RTS mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.dcdIndex >= 0 )
     {
-      final int mask = ( 1 << this.dcdIndex );
+      final int mask = aChannels.getMask( this.dcdIndex );
       LOG.log( Level.FINE, "DCD mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.riIndex >= 0 )
     {
-      final int mask = ( 1 << this.riIndex );
+      final int mask = aChannels.getMask( this.riIndex );
       LOG.log( Level.FINE, "RI mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.dsrIndex >= 0 )
     {
-      final int mask = ( 1 << this.dsrIndex );
+      final int mask = aChannels.getMask( this.dsrIndex );
       LOG.log( Level.FINE, "DSR mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
     if ( this.dtrIndex >= 0 )
     {
-      final int mask = ( 1 << this.dtrIndex );
+      final int mask = aChannels.getMask( this.dtrIndex );
       LOG.log( Level.FINE, "DTR mask = 0x{0}", Integer.toHexString( mask ) );
       result |= mask;
     }
@@ -31,7 +31,7 @@ import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
 /**
  * @author jajans
  */
-public final class UARTDataSet extends BaseDataSet<UARTData>
+public final class UARTDataSet extends ColumnarDataSet<UARTData>
 {
   // CONSTANTS
 
@@ -53,6 +53,7 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
   private int detectedErrors;
 
   private int baudRate;
+  private int bitCount;
 
   // CONSTRUCTORS
 
@@ -70,6 +71,49 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
 
   // METHODS
 
+  /**
+   * Adds all decoded data and events of the given data set that start within
+   * the given range of sample indices to this data set.
+   * 
+   * @param aSource
+   *          the data set to copy from, cannot be <code>null</code>;
+   * @param aFromSampleIdx
+   *          the first sample index of the range (inclusive);
+   * @param aToSampleIdx
+   *          the last sample index of the range (exclusive).
+   */
+  public void addAll( final UARTDataSet aSource, final int aFromSampleIdx, final int aToSampleIdx )
+  {
+    final int firstRow = size();
+    copyRows( aSource, aFromSampleIdx, aToSampleIdx );
+
+    for ( int row = firstRow; row < size(); row++ )
+    {
+      final String event = getEventName( row );
+      if ( event == null )
+      {
+        this.decodedSymbols++;
+      }
+      else if ( isError( event ) )
+      {
+        this.detectedErrors++;
+      }
+    }
+
+    if ( aSource.bitLength > 0 )
+    {
+      setSampledBitLength( aSource.bitLength );
+    }
+    if ( aSource.baudRate > 0 )
+    {
+      this.baudRate = aSource.baudRate;
+    }
+    if ( aSource.bitCount > 0 )
+    {
+      this.bitCount = aSource.bitCount;
+    }
+  }
+
   /**
    * Returns the "normalized" baudrate most people can recognize.
    * 
@@ -90,6 +134,16 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
     return ( int )( this.getSampleRate() / this.bitLength );
   }
 
+  /**
+   * Returns the number of data bits per symbol this data set is decoded with.
+   * 
+   * @return a number of data bits, or 0 if unknown.
+   */
+  public int getBitCount()
+  {
+    return this.bitCount;
+  }
+
   /**
    * Returns the "average" bit length found in the data.
    * 
@@ -138,8 +192,7 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
    */
   public void reportControlHigh( final int aChannelIdx, final int aSampleIdx, final String aName )
   {
-    final int idx = size();
-    addData( new UARTData( idx, aChannelIdx, aSampleIdx, aName.toUpperCase() + "_HIGH" ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, UARTData.UART_TYPE_EVENT, 0, aName.toUpperCase() + "_HIGH" );
   }
 
   /**
@@ -148,8 +201,7 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
    */
   public void reportControlLow( final int aChannelIdx, final int aSampleIdx, final String aName )
   {
-    final int idx = size();
-    addData( new UARTData( idx, aChannelIdx, aSampleIdx, aName.toUpperCase() + "_LOW" ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, UARTData.UART_TYPE_EVENT, 0, aName.toUpperCase() + "_LOW" );
   }
 
   /**
@@ -160,9 +212,8 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
   public void reportData( final int aChannelIdx, final int aStartSampleIdx, final int aEndSampleIdx, final int aValue,
       final int aEventType )
   {
-    final int idx = size();
     this.decodedSymbols++;
-    addData( new UARTData( idx, aChannelIdx, aStartSampleIdx, aEndSampleIdx, aValue, aEventType ) );
+    addRow( aChannelIdx, aStartSampleIdx, aEndSampleIdx, aEventType, aValue, null );
   }
 
   /**
@@ -171,9 +222,8 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
    */
   public void reportError( final ErrorType aType, final int aChannelIdx, final int aSampleIdx, final int aEventType )
   {
-    final int idx = size();
     this.detectedErrors++;
-    addData( new UARTData( idx, aChannelIdx, aSampleIdx, aType.name(), aEventType ) );
+    addRow( aChannelIdx, aSampleIdx, aSampleIdx, aEventType, 0, aType.name() );
   }
 
   /**
@@ -187,6 +237,17 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
     this.baudRate = aBaudRate;
   }
 
+  /**
+   * Sets the number of data bits per symbol this data set is decoded with.
+   * 
+   * @param aBitCount
+   *          the number of data bits, > 0.
+   */
+  public void setBitCount( final int aBitCount )
+  {
+    this.bitCount = aBitCount;
+  }
+
   /**
    * Sets the (average) bit length for this data set.
    * <p>
@@ -231,6 +292,8 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
   }
 
   /**
+   * Sorts the data on their start sample index.
+   * 
    * @see nl.lxtreme.ols.api.data.BaseDataSet#sort()
    */
   @Override
@@ -238,4 +301,55 @@ public final class UARTDataSet extends BaseDataSet<UARTData>
   {
     super.sort();
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected int compareRows( final int aRow1, final int aRow2 )
+  {
+    return getStartSampleIndex( aRow1 ) - getStartSampleIndex( aRow2 );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected UARTData createData( final int aRow )
+  {
+    final String event = getEventName( aRow );
+    if ( event != null )
+    {
+      return new UARTData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ), event,
+          getType( aRow ) );
+    }
+    return new UARTData( getIndex( aRow ), getChannelIdx( aRow ), getStartSampleIndex( aRow ),
+        getEndSampleIndex( aRow ), getValue( aRow ), getType( aRow ) );
+  }
+
+  /**
+   * @return <code>true</code> if the given event name denotes an error,
+   *         <code>false</code> otherwise.
+   */
+  private static boolean isError( final String aEventName )
+  {
+    for ( ErrorType type : ErrorType.values() )
+    {
+      if ( type.name().equals( aEventName ) )
+      {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  protected void storeData( final int aRow, final UARTData aData )
+  {
+    setType( aRow, aData.getType() );
+    setValue( aRow, aData.getData() );
+  }
 }
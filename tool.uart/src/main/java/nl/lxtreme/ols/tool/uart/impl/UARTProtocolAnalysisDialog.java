@@ -31,11 +31,11 @@ import java.io.*;
 import java.text.*;
 import java.util.*;
 import java.util.List;
-import java.util.logging.*;
 
 import javax.swing.*;
 
 import nl.lxtreme.ols.api.*;
+import nl.lxtreme.ols.api.acquisition.*;
 import nl.lxtreme.ols.api.tools.*;
 import nl.lxtreme.ols.api.util.*;
 import nl.lxtreme.ols.tool.base.*;
@@ -65,7 +65,8 @@ import org.osgi.framework.*;
  *         layout. The dialog consists of three main parts. A settings panel, a
  *         table panel and three buttons.
  */
-public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet> implements ExportAware<UARTDataSet>
+public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet> implements ExportAware<UARTDataSet>,
+    IncrementalDecoder<UARTDataSet>
 {
   // INNER TYPES
 
@@ -231,8 +232,6 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
 
   private static final long serialVersionUID = 1L;
 
-  private static final Logger LOG = Logger.getLogger( UARTProtocolAnalysisDialog.class.getName() );
-
   // VARIABLES
 
   private JComboBox rxd;
@@ -283,6 +282,25 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
 
   // METHODS
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void copyResults( final UARTDataSet aTarget, final UARTDataSet aSource, final int aFromSampleIdx,
+      final int aToSampleIdx )
+  {
+    aTarget.addAll( aSource, aFromSampleIdx, aToSampleIdx );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public UARTDataSet createResult( final ToolContext aContext )
+  {
+    return new UARTDataSet( aContext.getStartSampleIndex(), aContext.getEndSampleIndex(), aContext.getData() );
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -300,6 +318,98 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
     }
   }
 
+  /**
+   * Returns the sample indices in between frames on which the decoder is idle.
+   * To be sure the decoder is idle, regardless of where it started decoding,
+   * only gaps that are longer than a frame are considered.
+   * 
+   * @see IncrementalDecoder#getCheckpoints(Object)
+   */
+  @Override
+  public int[] getCheckpoints( final UARTDataSet aResult )
+  {
+    final AcquisitionResult data = getData();
+    final long[] timestamps = data.getTimestamps();
+
+    double bitLength = aResult.getBitLength();
+    if ( ( bitLength <= 0.0 ) && ( aResult.getBaudRate() > 0 ) )
+    {
+      bitLength = ( double )data.getSampleRate() / aResult.getBaudRate();
+    }
+    if ( bitLength <= 0.0 )
+    {
+      return new int[0];
+    }
+
+    // start bit + data bits + parity bit + two stop bits; the number of data
+    // bits is that of the decoded result, as the dialog might have changed...
+    final int bitCount = ( aResult.getBitCount() > 0 ) ? aResult.getBitCount() : 8;
+    final int frameBits = bitCount + 4;
+    final long frameLength = ( long )Math.ceil( frameBits * bitLength );
+
+    final List<UARTData> decodedData = aResult.getData();
+    final int[] checkpoints = new int[decodedData.size()];
+    int count = 0;
+
+    long busyUntil = -1L;
+    for ( UARTData ds : decodedData )
+    {
+      if ( ds.isEvent() )
+      {
+        continue;
+      }
+
+      final long frameStart = timestamps[ds.getStartSampleIndex()] - ( long )Math.ceil( 2.0 * bitLength );
+      if ( ( busyUntil >= 0L ) && ( ( busyUntil + frameLength ) < frameStart ) )
+      {
+        int idx = Arrays.binarySearch( timestamps, busyUntil + frameLength );
+        if ( idx < 0 )
+        {
+          idx = -( idx + 1 );
+        }
+        if ( ( idx < timestamps.length ) && ( timestamps[idx] < frameStart ) )
+        {
+          checkpoints[count++] = idx;
+        }
+      }
+
+      busyUntil = Math.max( busyUntil, timestamps[ds.getEndSampleIndex()] );
+    }
+
+    return Arrays.copyOf( checkpoints, count );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DecodeCache<UARTDataSet> getDecodeCache()
+  {
+    return ( ( UARTAnalyser )getTool() ).getDecodeCache();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getDecodeConfiguration()
+  {
+    if ( this.autoDetectBaudRate.isSelected() )
+    {
+      // The detected baudrate depends on the decoded range...
+      return null;
+    }
+
+    final StringBuilder sb = new StringBuilder();
+    for ( JComboBox comboBox : new JComboBox[] { this.rxd, this.txd, this.cts, this.rts, this.dcd, this.ri,
+        this.dsr, this.dtr, this.baudrate, this.idleLevel, this.bitEncoding, this.bitOrder, this.parity, this.stop,
+        this.bits } )
+    {
+      sb.append( comboBox.getSelectedItem() ).append( ';' );
+    }
+    return sb.toString();
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -567,7 +677,7 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
    */
   private JPanel createSettingsPane()
   {
-    final int channelCount = getData().getChannels();
+    final int channelCount = getContext().getChannels();
 
     final Integer[] baudrates = new Integer[AsyncSerialDataDecoder.COMMON_BAUDRATES.length];
     for ( int i = 0; i < baudrates.length; i++ )
@@ -749,12 +859,11 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
    * @param aFile
    *          File object
    */
-  private void storeToCsvFile( final File aFile, final UARTDataSet aDataSet )
+  private void storeToCsvFile( final File aFile, final UARTDataSet aDataSet ) throws IOException
   {
+    final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
     try
     {
-      final CsvExporter exporter = ExportUtils.createCsvExporter( aFile );
-
       exporter.setHeaders( "index", "start-time", "end-time", "event?", "event-type", "RxD event", "TxD event",
           "RxD data", "TxD data" );
 
@@ -763,6 +872,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
       {
         final UARTData ds = decodedData.get( i );
 
+        setExportProgress( i, decodedData.size() );
+
         final String startTime = Unit.Time.format( aDataSet.getTime( ds.getStartSampleIndex() ) );
         final String endTime = Unit.Time.format( aDataSet.getTime( ds.getEndSampleIndex() ) );
 
@@ -801,16 +912,10 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
         exporter.addRow( Integer.valueOf( i ), startTime, endTime, Boolean.valueOf( ds.isEvent() ), eventType,
             rxdEvent, txdEvent, rxdData, txdData );
       }
-
-      exporter.close();
     }
-    catch ( final IOException exception )
+    finally
     {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "CSV export failed!", exception );
-      }
+      exporter.close();
     }
   }
 
@@ -820,20 +925,9 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
    * @param aFile
    *          file object
    */
-  private void storeToHtmlFile( final File aFile, final UARTDataSet aDataSet )
+  private void storeToHtmlFile( final File aFile, final UARTDataSet aDataSet ) throws IOException
   {
-    try
-    {
-      toHtmlPage( aFile, aDataSet );
-    }
-    catch ( final IOException exception )
-    {
-      // Make sure to handle IO-interrupted exceptions properly!
-      if ( !HostUtils.handleInterruptedException( exception ) )
-      {
-        LOG.log( Level.WARNING, "HTML export failed!", exception );
-      }
-    }
+    toHtmlPage( aFile, aDataSet );
   }
 
   /**
@@ -895,6 +989,8 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
           {
             final UARTData ds = decodedData.get( i );
 
+            setExportProgress( i, decodedData.size() );
+
             if ( ds.isEvent() )
             {
               String rxEventData = "";
@@ -991,8 +1087,14 @@ public final class UARTProtocolAnalysisDialog extends BaseToolDialog<UARTDataSet
     else
     {
       final HtmlFileExporter exporter = ( HtmlFileExporter )createHtmlTemplate( ExportUtils.createHtmlExporter( aFile ) );
-      exporter.write( macroResolver );
-      exporter.close();
+      try
+      {
+        exporter.write( macroResolver );
+      }
+      finally
+      {
+        exporter.close();
+      }
     }
 
     return null;
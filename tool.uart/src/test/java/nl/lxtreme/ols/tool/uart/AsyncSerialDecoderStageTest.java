@@ -0,0 +1,164 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.*;
+import nl.lxtreme.ols.tool.base.pipeline.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.ErrorType;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialConfiguration;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.SerialDecoderCallback;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Test cases for {@link AsyncSerialDecoderStage}.
+ */
+public class AsyncSerialDecoderStageTest
+{
+  // CONSTANTS
+
+  private static final int SAMPLE_RATE = 1000;
+  private static final int BAUD_RATE = 10;
+  private static final int CHANNEL = 2;
+
+  // METHODS
+
+  /**
+   * Tests that even parity errors are reported.
+   */
+  @Test
+  public void testDecodeParityError() throws Exception
+  {
+    SerialDecoderCallback callback = decode( Parity.EVEN, 0x01, 0x02 );
+
+    InOrder inOrder = inOrder( callback );
+    inOrder.verify( callback ).onSymbol( eq( CHANNEL ), eq( 0x01 ), anyLong(), anyLong() );
+    inOrder.verify( callback ).onError( eq( CHANNEL ), eq( ErrorType.PARITY ), anyLong() );
+    inOrder.verify( callback ).onSymbol( eq( CHANNEL ), eq( 0x02 ), anyLong(), anyLong() );
+    verify( callback, times( 1 ) ).onError( anyInt(), eq( ErrorType.PARITY ), anyLong() );
+    verify( callback, never() ).onError( anyInt(), eq( ErrorType.FRAME ), anyLong() );
+    verify( callback, never() ).onError( anyInt(), eq( ErrorType.START ), anyLong() );
+  }
+
+  /**
+   * Tests that a sequence of symbols is decoded in a single pass.
+   */
+  @Test
+  public void testDecodeSymbols() throws Exception
+  {
+    SerialDecoderCallback callback = decode( Parity.NONE, 'H', 'i', 0x55, 0x00, 0xFF );
+
+    InOrder inOrder = inOrder( callback );
+    inOrder.verify( callback ).onSymbol( CHANNEL, 'H', 600L, 1399L );
+    inOrder.verify( callback ).onSymbol( eq( CHANNEL ), eq( ( int )'i' ), anyLong(), anyLong() );
+    inOrder.verify( callback ).onSymbol( eq( CHANNEL ), eq( 0x55 ), anyLong(), anyLong() );
+    inOrder.verify( callback ).onSymbol( eq( CHANNEL ), eq( 0x00 ), anyLong(), anyLong() );
+    inOrder.verify( callback ).onSymbol( eq( CHANNEL ), eq( 0xFF ), anyLong(), anyLong() );
+    verify( callback, never() ).onError( anyInt(), any( ErrorType.class ), anyLong() );
+  }
+
+  /**
+   * Creates a serial signal for the given symbols, and decodes it.
+   */
+  private SerialDecoderCallback decode( final Parity aParity, final int... aSymbols ) throws Exception
+  {
+    final List<Integer> bits = new ArrayList<Integer>();
+    addBits( bits, 1, 5 );
+    for ( int symbol : aSymbols )
+    {
+      // start bit, data bits, optional parity, two bit times idle...
+      bits.add( Integer.valueOf( 0 ) );
+      for ( int i = 0; i < 8; i++ )
+      {
+        bits.add( Integer.valueOf( ( symbol >> i ) & 1 ) );
+      }
+      if ( !aParity.isNone() )
+      {
+        // Deliberately use the wrong parity for odd values...
+        bits.add( Integer.valueOf( ( Integer.bitCount( symbol ) + ( symbol & 1 ) ) & 1 ) );
+      }
+      addBits( bits, 1, 2 );
+    }
+    addBits( bits, 1, 3 );
+
+    final AcquisitionResult data = createSignal( bits, SAMPLE_RATE / BAUD_RATE );
+
+    final SerialConfiguration config = new SerialConfiguration( BAUD_RATE, 8, StopBits.ONE, aParity,
+        BitEncoding.HIGH_IS_MARK, BitOrder.LSB_FIRST, BitLevel.HIGH );
+    final SerialDecoderCallback callback = mock( SerialDecoderCallback.class );
+
+    final MultiChannelAccessor channels = new MultiChannelAccessor( data, CHANNEL );
+    new DecoderPipeline( new AsyncSerialDecoderStage( config, channels, CHANNEL, SAMPLE_RATE, callback ) ).decode(
+        data, channels, 0, data.getValues().length - 1, null );
+
+    return callback;
+  }
+
+  /**
+   * Adds a number of bits of the same value.
+   */
+  private static void addBits( final List<Integer> aBits, final int aValue, final int aCount )
+  {
+    for ( int i = 0; i < aCount; i++ )
+    {
+      aBits.add( Integer.valueOf( aValue ) );
+    }
+  }
+
+  /**
+   * Creates a compacted signal on {@link #CHANNEL} for the given bits.
+   */
+  private static AcquisitionResult createSignal( final List<Integer> aBits, final int aBitLength )
+  {
+    final List<Integer> values = new ArrayList<Integer>();
+    final List<Long> timestamps = new ArrayList<Long>();
+
+    long time = 0L;
+    int lastValue = -1;
+    for ( Integer bit : aBits )
+    {
+      final int value = bit.intValue() << CHANNEL;
+      if ( value != lastValue )
+      {
+        values.add( Integer.valueOf( value ) );
+        timestamps.add( Long.valueOf( time ) );
+        lastValue = value;
+      }
+      time += aBitLength;
+    }
+
+    return new CapturedData( values, timestamps, 0L, SAMPLE_RATE, 8, 0xFF, time );
+  }
+}
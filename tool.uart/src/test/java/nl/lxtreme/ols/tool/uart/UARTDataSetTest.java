@@ -0,0 +1,102 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.tool.uart;
+
+
+import static org.junit.Assert.*;
+
+import java.net.*;
+
+import nl.lxtreme.ols.api.acquisition.*;
+import nl.lxtreme.ols.api.data.annotation.AnnotationListener;
+import nl.lxtreme.ols.api.tools.*;
+import nl.lxtreme.ols.test.*;
+import nl.lxtreme.ols.test.data.*;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitEncoding;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitLevel;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.BitOrder;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.Parity;
+import nl.lxtreme.ols.tool.uart.AsyncSerialDataDecoder.StopBits;
+import nl.lxtreme.ols.tool.uart.impl.*;
+
+import org.junit.*;
+import org.mockito.*;
+
+
+/**
+ * Test cases for {@link UARTDataSet}.
+ */
+public class UARTDataSetTest
+{
+  // METHODS
+
+  /**
+   * Tests that merging the results of a decode in two parts using
+   * {@link UARTDataSet#addAll(UARTDataSet, int, int)} yields the same results
+   * as the original decode.
+   */
+  @Test
+  public void testAddAllSplitsAndMergesResults() throws Exception
+  {
+    URL resource = ResourceUtils.getResource( getClass(), "uart_8bit_3.ols" );
+    AcquisitionResult container = DataTestUtils.getCapturedData( resource );
+    ToolContext toolContext = DataTestUtils.createToolContext( container );
+
+    UARTDataSet original = analyse( toolContext );
+
+    final int start = toolContext.getStartSampleIndex();
+    final int end = toolContext.getEndSampleIndex();
+    final int split = original.getData().get( original.getData().size() / 2 ).getStartSampleIndex();
+
+    UARTDataSet merged = new UARTDataSet( start, end, container );
+    merged.addAll( original, start, split );
+    merged.addAll( original, split, end + 1 );
+
+    assertEquals( original.getData().size(), merged.getData().size() );
+    assertEquals( original.getDecodedSymbols(), merged.getDecodedSymbols() );
+    assertEquals( original.getDetectedErrors(), merged.getDetectedErrors() );
+    assertEquals( original.getBaudRate(), merged.getBaudRate() );
+  }
+
+  /**
+   * Analyses the given tool context using fixed UART settings.
+   */
+  private UARTDataSet analyse( final ToolContext aToolContext ) throws Exception
+  {
+    ToolProgressListener tpl = Mockito.mock( ToolProgressListener.class );
+    AnnotationListener al = Mockito.mock( AnnotationListener.class );
+
+    UARTAnalyserTask worker = new UARTAnalyserTask( aToolContext, tpl, al );
+    worker.setStopBits( StopBits.ONE );
+    worker.setBitCount( 8 );
+    worker.setParity( Parity.NONE );
+    worker.setBaudRate( 9600 );
+    worker.setRxdIndex( 1 );
+    worker.setTxdIndex( 0 );
+    worker.setBitOrder( BitOrder.LSB_FIRST );
+    worker.setBitEncoding( BitEncoding.HIGH_IS_MARK );
+    worker.setIdleLevel( BitLevel.HIGH );
+
+    UARTDataSet result = worker.call();
+    assertNotNull( result );
+    return result;
+  }
+}
@@ -211,6 +211,25 @@ public final class ExportUtils
        *         <code>null</code>.
        */
       String toString( final MacroResolver aResolver );
+
+      /**
+       * Writes the HTML representation of this element directly to the given
+       * writer.
+       * <p>
+       * Children that are added by the macro resolver while writing are
+       * written as soon as the next child is added, and are not retained in
+       * this element. This allows macros to produce (very) large amounts of
+       * content without keeping it in memory.
+       * </p>
+       * 
+       * @param aWriter
+       *          the writer to write to, cannot be <code>null</code>;
+       * @param aResolver
+       *          the macro resolver to use for any found macros.
+       * @throws IOException
+       *           in case of I/O problems.
+       */
+      void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException;
     }
 
     /**
@@ -307,7 +326,8 @@ public final class ExportUtils
 
     /**
      * Writes the HTML export to file using the given macro resolver to resolve
-     * any macros.
+     * any macros. The document is streamed to the file while the macros are
+     * resolved.
      * 
      * @param aResolver
      *          the macro resolver to use, cannot be <code>null</code>.
@@ -0,0 +1,880 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util;
+
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+
+/**
+ * Provides a streaming ZIP-file writer that is able to compress large entries
+ * in parallel.
+ * <p>
+ * Entries are always written with a trailing data descriptor, so the output
+ * stream never needs to be repositioned. For parallel entries, the data is cut
+ * into blocks of {@value #BLOCK_SIZE} bytes, which are deflated independently
+ * on a number of threads. Each block is primed with the last 32KB of its
+ * predecessor as dictionary, and is ended with a sync-flush, so the
+ * concatenation of all blocks forms a single, valid deflate stream that can be
+ * read by any ZIP-implementation. Consecutive parallel entries are pipelined:
+ * a new parallel entry can be started while the blocks of the previous one are
+ * still being deflated.
+ * </p>
+ * <p>
+ * Sync-flushing requires Java 7 or later; on older runtimes, parallel entries
+ * are deflated sequentially on the calling thread.
+ * </p>
+ * <p>
+ * Entries and ZIP-files larger than 4GB are written in the ZIP64 format, in
+ * the same way as {@link ZipOutputStream} does: the data descriptor of such an
+ * entry contains 64-bit sizes, and the central directory contains ZIP64 extra
+ * fields and a ZIP64 end record.
+ * </p>
+ */
+public final class ZipWriter extends OutputStream
+{
+  // INNER TYPES
+
+  /**
+   * Administration of a single written entry.
+   */
+  private static final class Entry
+  {
+    // VARIABLES
+
+    final byte[] name;
+    final int dosTime;
+
+    long offset;
+    long crc;
+    long compressedSize;
+    long size;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Entry instance.
+     */
+    Entry( final byte[] aName, final int aDosTime )
+    {
+      this.name = aName;
+      this.dosTime = aDosTime;
+    }
+  }
+
+  /**
+   * Denotes a part of a parallel entry that is yet to be written: its local
+   * header, a deflated block, or its data descriptor.
+   */
+  private static final class Part
+  {
+    // VARIABLES
+
+    final Entry entry;
+    final Future<byte[]> block;
+    final boolean header;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new Part instance.
+     */
+    Part( final Entry aEntry, final Future<byte[]> aBlock, final boolean aHeader )
+    {
+      this.entry = aEntry;
+      this.block = aBlock;
+      this.header = aHeader;
+    }
+  }
+
+  // CONSTANTS
+
+  /** The size of the blocks that are compressed in parallel. */
+  public static final int BLOCK_SIZE = 1024 * 1024;
+
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int SYNC_FLUSH = 2;
+  private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+  private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+  /** The time, in seconds, after which idle compressor threads end. */
+  private static final long KEEP_ALIVE_TIME = 5L;
+
+  private static final int LOCAL_HEADER_SIG = 0x04034b50;
+  private static final int DATA_DESCRIPTOR_SIG = 0x08074b50;
+  private static final int CENTRAL_HEADER_SIG = 0x02014b50;
+  private static final int END_HEADER_SIG = 0x06054b50;
+  private static final int ZIP64_END_HEADER_SIG = 0x06064b50;
+  private static final int ZIP64_END_LOCATOR_SIG = 0x07064b50;
+  private static final int ZIP64_EXTRA_ID = 0x0001;
+  private static final int ZIP64_END_HEADER_SIZE = 44;
+  private static final int VERSION = 20;
+  private static final int VERSION_ZIP64 = 45;
+  private static final int FLAG_DATA_DESCRIPTOR = 0x0008;
+  private static final int FLAG_UTF8 = 0x0800;
+  private static final int METHOD_DEFLATED = 8;
+
+  /** Deflater#deflate(byte[], int, int, int), only available on Java 7+. */
+  private static final Method SYNC_DEFLATE = findSyncDeflateMethod();
+
+  // VARIABLES
+
+  private final OutputStream out;
+  private final int level;
+  private final int threadCount;
+  private final List<Entry> entries;
+  private final CRC32 crc;
+  private final byte[] single;
+
+  private byte[] comment;
+  private long written;
+
+  private Entry entry;
+  private Deflater deflater;
+  private byte[] deflateBuffer;
+
+  private ThreadPoolExecutor executor;
+  private final LinkedList<Part> pending;
+  private int pendingBlocks;
+  private byte[] block;
+  private int blockLength;
+  private byte[] previousBlock;
+  private int previousBlockLength;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new ZipWriter instance.
+   * 
+   * @param aOutput
+   *          the output stream to write the ZIP-file to, cannot be
+   *          <code>null</code>;
+   * @param aLevel
+   *          the deflate level to use, -1 for the default level or 0..9;
+   * @param aThreadCount
+   *          the number of threads to use for parallel entries, > 0.
+   */
+  public ZipWriter( final OutputStream aOutput, final int aLevel, final int aThreadCount )
+  {
+    if ( aOutput == null )
+    {
+      throw new IllegalArgumentException( "Output cannot be null!" );
+    }
+    if ( ( aLevel < -1 ) || ( aLevel > 9 ) )
+    {
+      throw new IllegalArgumentException( "Level must be -1 or 0..9!" );
+    }
+    if ( aThreadCount < 1 )
+    {
+      throw new IllegalArgumentException( "Thread count must be positive!" );
+    }
+
+    this.out = aOutput;
+    this.level = aLevel;
+    this.threadCount = aThreadCount;
+    this.entries = new ArrayList<Entry>();
+    this.pending = new LinkedList<Part>();
+    this.crc = new CRC32();
+    this.single = new byte[1];
+    this.comment = new byte[0];
+  }
+
+  // METHODS
+
+  /**
+   * Returns whether or not this runtime supports deflating blocks in parallel.
+   * 
+   * @return <code>true</code> if parallel entries are deflated on multiple
+   *         threads, <code>false</code> if they are deflated sequentially.
+   */
+  public static boolean isParallelSupported()
+  {
+    return SYNC_DEFLATE != null;
+  }
+
+  /**
+   * Deflates a single block of a parallel entry.
+   * 
+   * @param aLevel
+   *          the deflate level to use;
+   * @param aDictionary
+   *          the previous block, whose tail is used as dictionary, can be
+   *          <code>null</code>;
+   * @param aDictionaryLength
+   *          the length of the previous block;
+   * @param aData
+   *          the data to deflate;
+   * @param aLength
+   *          the number of bytes to deflate;
+   * @param aLast
+   *          <code>true</code> if this is the last block of the entry and the
+   *          deflate stream should be finished, <code>false</code> to end the
+   *          block with a sync-flush.
+   * @return the deflated data, never <code>null</code>.
+   */
+  static byte[] deflateBlock( final int aLevel, final byte[] aDictionary, final int aDictionaryLength,
+      final byte[] aData, final int aLength, final boolean aLast ) throws IOException
+  {
+    final Deflater deflater = new Deflater( aLevel, true /* nowrap */);
+    try
+    {
+      if ( ( aDictionary != null ) && ( aDictionaryLength > 0 ) )
+      {
+        final int dictLength = Math.min( DICTIONARY_SIZE, aDictionaryLength );
+        deflater.setDictionary( aDictionary, aDictionaryLength - dictLength, dictLength );
+      }
+      deflater.setInput( aData, 0, aLength );
+
+      final ByteArrayOutputStream result = new ByteArrayOutputStream( ( aLength / 2 ) + 64 );
+      final byte[] buffer = new byte[64 * 1024];
+      if ( aLast )
+      {
+        deflater.finish();
+        while ( !deflater.finished() )
+        {
+          result.write( buffer, 0, deflater.deflate( buffer ) );
+        }
+      }
+      else
+      {
+        int count;
+        do
+        {
+          count = syncDeflate( deflater, buffer );
+          result.write( buffer, 0, count );
+        }
+        while ( count == buffer.length );
+      }
+      return result.toByteArray();
+    }
+    finally
+    {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Returns whether the given size or offset does not fit in the 32-bit field
+   * of a ZIP-header, and should be written in the ZIP64 format instead.
+   * <p>
+   * As the maximum 32-bit value is used as marker for ZIP64 values, it does
+   * not fit itself either. This test is used for both the data descriptors and
+   * the central directory, so both always agree on the format of an entry.
+   * </p>
+   */
+  static boolean isZip64( final long aValue )
+  {
+    return aValue >= ZIP64_MAGIC_VALUE;
+  }
+
+  /**
+   * Converts a Java timestamp to a MS-DOS date and time.
+   */
+  static int toDosTime( final long aTime )
+  {
+    final Calendar cal = Calendar.getInstance();
+    cal.setTimeInMillis( aTime );
+
+    final int year = cal.get( Calendar.YEAR );
+    if ( year < 1980 )
+    {
+      return ( 1 << 21 ) | ( 1 << 16 );
+    }
+    return ( ( year - 1980 ) << 25 ) | ( ( cal.get( Calendar.MONTH ) + 1 ) << 21 )
+        | ( cal.get( Calendar.DAY_OF_MONTH ) << 16 ) | ( cal.get( Calendar.HOUR_OF_DAY ) << 11 )
+        | ( cal.get( Calendar.MINUTE ) << 5 ) | ( cal.get( Calendar.SECOND ) >> 1 );
+  }
+
+  /**
+   * Looks up the sync-flushing deflate method of Java 7 and later.
+   */
+  private static Method findSyncDeflateMethod()
+  {
+    try
+    {
+      return Deflater.class.getMethod( "deflate", byte[].class, int.class, int.class, int.class );
+    }
+    catch ( NoSuchMethodException exception )
+    {
+      return null;
+    }
+  }
+
+  /**
+   * Waits for the given deflated block.
+   */
+  private static byte[] get( final Future<byte[]> aFuture ) throws IOException
+  {
+    try
+    {
+      return aFuture.get();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException( "ZIP-file writing interrupted!" );
+    }
+    catch ( ExecutionException exception )
+    {
+      final IOException ioException = new IOException( "Failed to compress data!" );
+      ioException.initCause( exception.getCause() );
+      throw ioException;
+    }
+  }
+
+  /**
+   * Deflates all pending input of the given deflater with a sync-flush.
+   */
+  private static int syncDeflate( final Deflater aDeflater, final byte[] aBuffer ) throws IOException
+  {
+    try
+    {
+      return ( ( Integer )SYNC_DEFLATE.invoke( aDeflater, aBuffer, Integer.valueOf( 0 ),
+          Integer.valueOf( aBuffer.length ), Integer.valueOf( SYNC_FLUSH ) ) ).intValue();
+    }
+    catch ( Exception exception )
+    {
+      final IOException ioException = new IOException( "Failed to compress data!" );
+      ioException.initCause( exception );
+      throw ioException;
+    }
+  }
+
+  /**
+   * Closes this writer and its underlying output stream, without writing the
+   * ZIP-file's central directory. Use {@link #finish()} to complete a
+   * ZIP-file.
+   * 
+   * @see java.io.OutputStream#close()
+   */
+  @Override
+  public void close() throws IOException
+  {
+    try
+    {
+      if ( this.deflater != null )
+      {
+        this.deflater.end();
+        this.deflater = null;
+      }
+      shutdownExecutor();
+    }
+    finally
+    {
+      this.out.close();
+    }
+  }
+
+  /**
+   * Closes the current entry. For sequential entries, its data descriptor is
+   * written directly; for parallel entries, it is written as soon as all
+   * blocks of the entry are deflated.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void closeEntry() throws IOException
+  {
+    final Entry current = this.entry;
+    if ( current == null )
+    {
+      return;
+    }
+
+    if ( this.block != null )
+    {
+      submitBlock( true /* aLast */);
+      this.block = null;
+      this.previousBlock = null;
+    }
+    else
+    {
+      this.deflater.finish();
+      while ( !this.deflater.finished() )
+      {
+        writeDeflated( current, this.deflateBuffer, this.deflater.deflate( this.deflateBuffer ) );
+      }
+      this.deflater.end();
+      this.deflater = null;
+    }
+
+    current.crc = this.crc.getValue();
+    this.entry = null;
+
+    if ( this.pending.isEmpty() )
+    {
+      writeDataDescriptor( current );
+    }
+    else
+    {
+      this.pending.addLast( new Part( current, null, false /* aHeader */) );
+    }
+  }
+
+  /**
+   * Closes the current entry and writes the central directory of the ZIP-file.
+   * The underlying output stream is flushed, but not closed. The threads used
+   * for parallel entries are released, even in case of I/O problems.
+   * 
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void finish() throws IOException
+  {
+    try
+    {
+      closeEntry();
+      writePending( 0 );
+    }
+    finally
+    {
+      shutdownExecutor();
+    }
+
+    final long centralOffset = this.written;
+    for ( Entry e : this.entries )
+    {
+      final boolean zip64Size = isZip64( e.size );
+      final boolean zip64CompressedSize = isZip64( e.compressedSize );
+      final boolean zip64Offset = isZip64( e.offset );
+      final int extraLength = 8 * ( ( zip64Size ? 1 : 0 ) + ( zip64CompressedSize ? 1 : 0 ) + ( zip64Offset ? 1 : 0 ) );
+      final int version = ( extraLength > 0 ) ? VERSION_ZIP64 : VERSION;
+
+      writeInt( CENTRAL_HEADER_SIG );
+      writeShort( version ); // made by
+      writeShort( version ); // needed to extract
+      writeShort( FLAG_DATA_DESCRIPTOR | FLAG_UTF8 );
+      writeShort( METHOD_DEFLATED );
+      writeInt( e.dosTime );
+      writeInt( e.crc );
+      writeInt( zip64CompressedSize ? ZIP64_MAGIC_VALUE : e.compressedSize );
+      writeInt( zip64Size ? ZIP64_MAGIC_VALUE : e.size );
+      writeShort( e.name.length );
+      writeShort( ( extraLength > 0 ) ? ( extraLength + 4 ) : 0 ); // extra field length
+      writeShort( 0 ); // comment length
+      writeShort( 0 ); // disk number
+      writeShort( 0 ); // internal attributes
+      writeInt( 0 ); // external attributes
+      writeInt( zip64Offset ? ZIP64_MAGIC_VALUE : e.offset );
+      writeBytes( e.name, 0, e.name.length );
+
+      if ( extraLength > 0 )
+      {
+        // The ZIP64 extra field only contains the values that do not fit...
+        writeShort( ZIP64_EXTRA_ID );
+        writeShort( extraLength );
+        if ( zip64Size )
+        {
+          writeLong( e.size );
+        }
+        if ( zip64CompressedSize )
+        {
+          writeLong( e.compressedSize );
+        }
+        if ( zip64Offset )
+        {
+          writeLong( e.offset );
+        }
+      }
+    }
+    final long centralSize = this.written - centralOffset;
+    final int count = this.entries.size();
+
+    if ( isZip64( centralOffset ) || isZip64( centralSize ) || ( count >= ZIP64_MAGIC_COUNT ) )
+    {
+      final long zip64EndOffset = this.written;
+
+      writeInt( ZIP64_END_HEADER_SIG );
+      writeLong( ZIP64_END_HEADER_SIZE );
+      writeShort( VERSION_ZIP64 ); // made by
+      writeShort( VERSION_ZIP64 ); // needed to extract
+      writeInt( 0 ); // disk number
+      writeInt( 0 ); // disk with central directory
+      writeLong( count );
+      writeLong( count );
+      writeLong( centralSize );
+      writeLong( centralOffset );
+
+      writeInt( ZIP64_END_LOCATOR_SIG );
+      writeInt( 0 ); // disk with ZIP64 end record
+      writeLong( zip64EndOffset );
+      writeInt( 1 ); // total number of disks
+    }
+
+    writeInt( END_HEADER_SIG );
+    writeShort( 0 ); // disk number
+    writeShort( 0 ); // disk with central directory
+    writeShort( Math.min( count, ZIP64_MAGIC_COUNT ) );
+    writeShort( Math.min( count, ZIP64_MAGIC_COUNT ) );
+    writeInt( isZip64( centralSize ) ? ZIP64_MAGIC_VALUE : centralSize );
+    writeInt( isZip64( centralOffset ) ? ZIP64_MAGIC_VALUE : centralOffset );
+    writeShort( this.comment.length );
+    writeBytes( this.comment, 0, this.comment.length );
+
+    this.out.flush();
+  }
+
+  /**
+   * Starts a new, sequentially deflated, entry with the given name, closing
+   * the current entry (if any).
+   * 
+   * @param aName
+   *          the name of the entry, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void putNextEntry( final String aName ) throws IOException
+  {
+    putNextEntry( aName, false /* aParallel */);
+  }
+
+  /**
+   * Starts a new entry with the given name, closing the current entry (if
+   * any).
+   * 
+   * @param aName
+   *          the name of the entry, cannot be <code>null</code>;
+   * @param aParallel
+   *          <code>true</code> if the data of this entry should be deflated in
+   *          parallel, <code>false</code> to deflate it on the calling thread.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void putNextEntry( final String aName, final boolean aParallel ) throws IOException
+  {
+    if ( aName == null )
+    {
+      throw new IllegalArgumentException( "Name cannot be null!" );
+    }
+
+    closeEntry();
+    checkInterrupted();
+
+    final boolean parallel = aParallel && isParallelSupported();
+    if ( !parallel )
+    {
+      // Sequential entries are written directly, after all pending parts...
+      writePending( 0 );
+    }
+
+    this.entry = new Entry( aName.getBytes( "UTF-8" ), toDosTime( System.currentTimeMillis() ) );
+    this.crc.reset();
+
+    if ( this.pending.isEmpty() )
+    {
+      writeLocalHeader( this.entry );
+    }
+    else
+    {
+      this.pending.addLast( new Part( this.entry, null, true /* aHeader */) );
+    }
+
+    if ( parallel )
+    {
+      if ( this.executor == null )
+      {
+        this.executor = new ThreadPoolExecutor( this.threadCount, this.threadCount, KEEP_ALIVE_TIME,
+            TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+            {
+              @Override
+              public Thread newThread( final Runnable aRunnable )
+              {
+                Thread thread = new Thread( aRunnable, "ZIP block compressor" );
+                thread.setDaemon( true );
+                return thread;
+              }
+            } );
+        // Do not keep any threads around if this writer is never finished...
+        this.executor.allowCoreThreadTimeOut( true );
+      }
+      this.block = new byte[BLOCK_SIZE];
+      this.blockLength = 0;
+      this.previousBlock = null;
+      this.previousBlockLength = 0;
+    }
+    else
+    {
+      this.deflater = new Deflater( this.level, true /* nowrap */);
+      if ( this.deflateBuffer == null )
+      {
+        this.deflateBuffer = new byte[64 * 1024];
+      }
+    }
+  }
+
+  /**
+   * Sets the comment of the ZIP-file.
+   * 
+   * @param aComment
+   *          the comment to set, can be <code>null</code>.
+   */
+  public void setComment( final String aComment )
+  {
+    try
+    {
+      this.comment = ( aComment == null ) ? new byte[0] : aComment.getBytes( "UTF-8" );
+    }
+    catch ( UnsupportedEncodingException exception )
+    {
+      throw new RuntimeException( exception );
+    }
+    if ( this.comment.length > 0xFFFF )
+    {
+      throw new IllegalArgumentException( "Comment too long!" );
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    if ( this.entry == null )
+    {
+      throw new IOException( "No current entry!" );
+    }
+    if ( aLength <= 0 )
+    {
+      return;
+    }
+
+    this.crc.update( aBuffer, aOffset, aLength );
+    this.entry.size += aLength;
+
+    if ( this.block != null )
+    {
+      int offset = aOffset;
+      int remaining = aLength;
+      while ( remaining > 0 )
+      {
+        final int count = Math.min( remaining, BLOCK_SIZE - this.blockLength );
+        System.arraycopy( aBuffer, offset, this.block, this.blockLength, count );
+        this.blockLength += count;
+        offset += count;
+        remaining -= count;
+
+        if ( this.blockLength == BLOCK_SIZE )
+        {
+          submitBlock( false /* aLast */);
+        }
+      }
+    }
+    else
+    {
+      this.deflater.setInput( aBuffer, aOffset, aLength );
+      while ( !this.deflater.needsInput() )
+      {
+        writeDeflated( this.entry, this.deflateBuffer, this.deflater.deflate( this.deflateBuffer ) );
+      }
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final int aByte ) throws IOException
+  {
+    this.single[0] = ( byte )aByte;
+    write( this.single, 0, 1 );
+  }
+
+  /**
+   * Throws an {@link InterruptedIOException} if the current thread is
+   * interrupted.
+   */
+  private void checkInterrupted() throws InterruptedIOException
+  {
+    if ( Thread.currentThread().isInterrupted() )
+    {
+      throw new InterruptedIOException( "ZIP-file writing interrupted!" );
+    }
+  }
+
+  /**
+   * Stops the threads used for parallel entries, if any.
+   */
+  private void shutdownExecutor()
+  {
+    if ( this.executor != null )
+    {
+      this.executor.shutdownNow();
+      this.executor = null;
+    }
+  }
+
+  /**
+   * Hands the current block to the executor and writes the pending parts that
+   * are done, keeping at most twice the number of threads of blocks pending.
+   */
+  private void submitBlock( final boolean aLast ) throws IOException
+  {
+    checkInterrupted();
+
+    final byte[] dictionary = this.previousBlock;
+    final int dictionaryLength = this.previousBlockLength;
+    final byte[] data = this.block;
+    final int length = this.blockLength;
+    final int lvl = this.level;
+
+    final Future<byte[]> future = this.executor.submit( new Callable<byte[]>()
+    {
+      @Override
+      public byte[] call() throws Exception
+      {
+        return deflateBlock( lvl, dictionary, dictionaryLength, data, length, aLast );
+      }
+    } );
+    this.pending.addLast( new Part( this.entry, future, false /* aHeader */) );
+    this.pendingBlocks++;
+
+    this.previousBlock = data;
+    this.previousBlockLength = length;
+    this.block = aLast ? null : new byte[BLOCK_SIZE];
+    this.blockLength = 0;
+
+    writePending( 2 * this.threadCount - 1 );
+  }
+
+  /**
+   * Writes the given bytes to the underlying output stream.
+   */
+  private void writeBytes( final byte[] aBuffer, final int aOffset, final int aLength ) throws IOException
+  {
+    this.out.write( aBuffer, aOffset, aLength );
+    this.written += aLength;
+  }
+
+  /**
+   * Writes the data descriptor of the given entry, and registers it for the
+   * central directory.
+   */
+  private void writeDataDescriptor( final Entry aEntry ) throws IOException
+  {
+    writeInt( DATA_DESCRIPTOR_SIG );
+    writeInt( aEntry.crc );
+    if ( isZip64( aEntry.compressedSize ) || isZip64( aEntry.size ) )
+    {
+      // Like ZipOutputStream, which is what ZipInputStream expects...
+      writeLong( aEntry.compressedSize );
+      writeLong( aEntry.size );
+    }
+    else
+    {
+      writeInt( aEntry.compressedSize );
+      writeInt( aEntry.size );
+    }
+
+    this.entries.add( aEntry );
+  }
+
+  /**
+   * Writes deflated data of the given entry.
+   */
+  private void writeDeflated( final Entry aEntry, final byte[] aData, final int aLength ) throws IOException
+  {
+    writeBytes( aData, 0, aLength );
+    aEntry.compressedSize += aLength;
+  }
+
+  /**
+   * Writes a 32-bit value in little-endian order.
+   */
+  private void writeInt( final long aValue ) throws IOException
+  {
+    this.out.write( ( int )( aValue & 0xFF ) );
+    this.out.write( ( int )( ( aValue >>> 8 ) & 0xFF ) );
+    this.out.write( ( int )( ( aValue >>> 16 ) & 0xFF ) );
+    this.out.write( ( int )( ( aValue >>> 24 ) & 0xFF ) );
+    this.written += 4;
+  }
+
+  /**
+   * Writes the local header of the given entry, at the current offset.
+   */
+  private void writeLocalHeader( final Entry aEntry ) throws IOException
+  {
+    aEntry.offset = this.written;
+
+    writeInt( LOCAL_HEADER_SIG );
+    writeShort( VERSION );
+    writeShort( FLAG_DATA_DESCRIPTOR | FLAG_UTF8 );
+    writeShort( METHOD_DEFLATED );
+    writeInt( aEntry.dosTime );
+    writeInt( 0 ); // CRC, in data descriptor
+    writeInt( 0 ); // compressed size, in data descriptor
+    writeInt( 0 ); // size, in data descriptor
+    writeShort( aEntry.name.length );
+    writeShort( 0 ); // extra field length
+    writeBytes( aEntry.name, 0, aEntry.name.length );
+  }
+
+  /**
+   * Writes a 64-bit value in little-endian order.
+   */
+  private void writeLong( final long aValue ) throws IOException
+  {
+    writeInt( aValue & 0xFFFFFFFFL );
+    writeInt( aValue >>> 32 );
+  }
+
+  /**
+   * Writes the pending parts in order, waiting for their blocks to be deflated,
+   * until no more than the given number of blocks is pending.
+   */
+  private void writePending( final int aMaxBlocks ) throws IOException
+  {
+    while ( ( this.pendingBlocks > aMaxBlocks ) || ( ( aMaxBlocks == 0 ) && !this.pending.isEmpty() ) )
+    {
+      final Part part = this.pending.removeFirst();
+      if ( part.block != null )
+      {
+        final byte[] data = get( part.block );
+        this.pendingBlocks--;
+        writeDeflated( part.entry, data, data.length );
+      }
+      else if ( part.header )
+      {
+        writeLocalHeader( part.entry );
+      }
+      else
+      {
+        writeDataDescriptor( part.entry );
+      }
+    }
+  }
+
+  /**
+   * Writes a 16-bit value in little-endian order.
+   */
+  private void writeShort( final int aValue ) throws IOException
+  {
+    this.out.write( aValue & 0xFF );
+    this.out.write( ( aValue >>> 8 ) & 0xFF );
+    this.written += 2;
+  }
+}
+
+/* EOF */
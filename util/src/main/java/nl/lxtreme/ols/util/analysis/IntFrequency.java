@@ -0,0 +1,364 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.analysis;
+
+
+import java.util.*;
+
+
+/**
+ * Provides a frequency distribution for primitive integer values.
+ * <p>
+ * In contrast to {@link Frequency}, this implementation does not box its keys
+ * or counts, but keeps them in an open-addressing hash table of primitive
+ * arrays. It is <em>not</em> thread-safe; to build a distribution from
+ * multiple threads, let each thread fill its own instance and combine them
+ * afterwards with {@link #addAll(IntFrequency)}.
+ * </p>
+ */
+public final class IntFrequency
+{
+  // CONSTANTS
+
+  private static final int DEFAULT_CAPACITY = 64;
+
+  // VARIABLES
+
+  private int[] keys;
+  private long[] counts;
+  private int size;
+  private int threshold;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new IntFrequency instance.
+   */
+  public IntFrequency()
+  {
+    this( DEFAULT_CAPACITY );
+  }
+
+  /**
+   * Creates a new IntFrequency instance with room for the given number of
+   * unique values.
+   *
+   * @param aExpectedSize
+   *          the expected number of unique values, >= 0.
+   * @throws IllegalArgumentException
+   *           in case the given size was negative.
+   */
+  public IntFrequency( final int aExpectedSize )
+  {
+    if ( aExpectedSize < 0 )
+    {
+      throw new IllegalArgumentException( "Expected size cannot be negative!" );
+    }
+
+    int capacity = 16;
+    while ( capacity < ( aExpectedSize << 1 ) )
+    {
+      capacity <<= 1;
+    }
+    allocate( capacity );
+  }
+
+  // METHODS
+
+  /**
+   * Mixes the bits of a given key to obtain a better distributed hash value.
+   */
+  private static int hash( final int aKey )
+  {
+    final int h = aKey * 0x9E3779B9;
+    return h ^ ( h >>> 16 );
+  }
+
+  /**
+   * Adds all values of the given frequency distribution to this distribution.
+   *
+   * @param aFrequency
+   *          the frequency distribution to add, cannot be <code>null</code>.
+   * @throws IllegalArgumentException
+   *           in case the given frequency distribution was <code>null</code>.
+   */
+  public void addAll( final IntFrequency aFrequency )
+  {
+    if ( aFrequency == null )
+    {
+      throw new IllegalArgumentException( "Frequency cannot be null!" );
+    }
+
+    final int[] otherKeys = aFrequency.keys;
+    final long[] otherCounts = aFrequency.counts;
+    for ( int i = 0; i < otherKeys.length; i++ )
+    {
+      if ( otherCounts[i] != 0L )
+      {
+        addValue( otherKeys[i], otherCounts[i] );
+      }
+    }
+  }
+
+  /**
+   * Adds a given value to the distribution map.
+   *
+   * @param aValue
+   *          the value to add.
+   */
+  public void addValue( final int aValue )
+  {
+    addValue( aValue, 1L );
+  }
+
+  /**
+   * Adds a given value a number of times to the distribution map.
+   *
+   * @param aValue
+   *          the value to add;
+   * @param aCount
+   *          the number of occurrences to add, > 0.
+   * @throws IllegalArgumentException
+   *           in case the given count was zero or negative.
+   */
+  public void addValue( final int aValue, final long aCount )
+  {
+    if ( aCount <= 0L )
+    {
+      throw new IllegalArgumentException( "Count must be positive!" );
+    }
+
+    final int mask = this.keys.length - 1;
+    int idx = hash( aValue ) & mask;
+    // A count of zero marks an unused slot...
+    while ( this.counts[idx] != 0L )
+    {
+      if ( this.keys[idx] == aValue )
+      {
+        this.counts[idx] += aCount;
+        return;
+      }
+      idx = ( idx + 1 ) & mask;
+    }
+
+    this.keys[idx] = aValue;
+    this.counts[idx] = aCount;
+
+    if ( ++this.size > this.threshold )
+    {
+      rehash( this.keys.length << 1 );
+    }
+  }
+
+  /**
+   * Clears all values from this frequency distribution.
+   */
+  public void clear()
+  {
+    Arrays.fill( this.counts, 0L );
+    this.size = 0;
+  }
+
+  /**
+   * Counts the number of occurrences of the given value.
+   *
+   * @param aValue
+   *          the value to count.
+   * @return the number of occurrences, >= 0.
+   */
+  public long getCount( final int aValue )
+  {
+    final int mask = this.keys.length - 1;
+    int idx = hash( aValue ) & mask;
+    while ( this.counts[idx] != 0L )
+    {
+      if ( this.keys[idx] == aValue )
+      {
+        return this.counts[idx];
+      }
+      idx = ( idx + 1 ) & mask;
+    }
+    return 0L;
+  }
+
+  /**
+   * Returns the item with the highest count or rank. In case multiple items
+   * share the highest rank, the smallest of them is returned.
+   *
+   * @return the item with the highest rank, can be <code>null</code> if this
+   *         frequency distribution is empty.
+   */
+  public Integer getHighestRanked()
+  {
+    int result = 0;
+    long rank = -1L;
+
+    for ( int i = 0; i < this.keys.length; i++ )
+    {
+      final long count = this.counts[i];
+      if ( count == 0L )
+      {
+        continue;
+      }
+      if ( ( count > rank ) || ( ( count == rank ) && ( this.keys[i] < result ) ) )
+      {
+        rank = count;
+        result = this.keys[i];
+      }
+    }
+
+    return ( rank < 0L ) ? null : Integer.valueOf( result );
+  }
+
+  /**
+   * Returns the item with the lowest count or rank. In case multiple items
+   * share the lowest rank, the smallest of them is returned.
+   *
+   * @return the item with the lowest rank, can be <code>null</code> if this
+   *         frequency distribution is empty.
+   */
+  public Integer getLowestRanked()
+  {
+    int result = 0;
+    long rank = Long.MAX_VALUE;
+    boolean found = false;
+
+    for ( int i = 0; i < this.keys.length; i++ )
+    {
+      final long count = this.counts[i];
+      if ( count == 0L )
+      {
+        continue;
+      }
+      if ( !found || ( count < rank ) || ( ( count == rank ) && ( this.keys[i] < result ) ) )
+      {
+        rank = count;
+        result = this.keys[i];
+        found = true;
+      }
+    }
+
+    return found ? Integer.valueOf( result ) : null;
+  }
+
+  /**
+   * Returns the total number of occurrences in this frequency distribution.
+   *
+   * @return a size, >= 0.
+   */
+  public long getTotalCount()
+  {
+    long totalCount = 0L;
+    for ( final long count : this.counts )
+    {
+      totalCount += count;
+    }
+    return totalCount;
+  }
+
+  /**
+   * Returns the number of unique values in this frequency distribution map.
+   *
+   * @return a unique value count, >= 0.
+   */
+  public int getUniqueValueCount()
+  {
+    return this.size;
+  }
+
+  /**
+   * Returns whether or not this frequency distribution is empty.
+   *
+   * @return <code>true</code> if no values are added, <code>false</code>
+   *         otherwise.
+   */
+  public boolean isEmpty()
+  {
+    return this.size == 0;
+  }
+
+  /**
+   * Returns the unique values in this frequency distribution.
+   *
+   * @return a new array with all values, sorted in natural order, never
+   *         <code>null</code>.
+   */
+  public int[] values()
+  {
+    final int[] result = new int[this.size];
+
+    int idx = 0;
+    for ( int i = 0; i < this.keys.length; i++ )
+    {
+      if ( this.counts[i] != 0L )
+      {
+        result[idx++] = this.keys[i];
+      }
+    }
+
+    Arrays.sort( result );
+    return result;
+  }
+
+  /**
+   * Allocates new (empty) tables of the given capacity.
+   *
+   * @param aCapacity
+   *          the new capacity, should be a power of two.
+   */
+  private void allocate( final int aCapacity )
+  {
+    this.keys = new int[aCapacity];
+    this.counts = new long[aCapacity];
+    this.threshold = aCapacity >> 1;
+    this.size = 0;
+  }
+
+  /**
+   * Grows the tables to the given capacity and re-adds all existing entries.
+   *
+   * @param aCapacity
+   *          the new capacity, should be a power of two.
+   */
+  private void rehash( final int aCapacity )
+  {
+    final int[] oldKeys = this.keys;
+    final long[] oldCounts = this.counts;
+
+    allocate( aCapacity );
+
+    final int mask = aCapacity - 1;
+    for ( int i = 0; i < oldKeys.length; i++ )
+    {
+      if ( oldCounts[i] != 0L )
+      {
+        int idx = hash( oldKeys[i] ) & mask;
+        while ( this.counts[idx] != 0L )
+        {
+          idx = ( idx + 1 ) & mask;
+        }
+        this.keys[idx] = oldKeys[i];
+        this.counts[idx] = oldCounts[i];
+        this.size++;
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.export;
+
+
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+
+/**
+ * Provides a buffered writer that writes to a file through a NIO file channel,
+ * using a large buffer to minimize the number of write calls.
+ */
+final class BufferedChannelWriter extends BufferedWriter
+{
+  // CONSTANTS
+
+  /** The size of the character buffer, in characters. */
+  static final int BUFFER_SIZE = 256 * 1024;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link BufferedChannelWriter} instance.
+   * 
+   * @param aFile
+   *          the file to write to, cannot be <code>null</code>;
+   * @param aCharsetName
+   *          the name of the character set to write the file in, or
+   *          <code>null</code> to use the platform default.
+   * @throws IOException
+   *           in case the given file could not be opened for writing.
+   */
+  BufferedChannelWriter( final File aFile, final String aCharsetName ) throws IOException
+  {
+    super( createChannelWriter( aFile, aCharsetName ), BUFFER_SIZE );
+  }
+
+  // METHODS
+
+  /**
+   * Opens a writer on a file channel for the given file.
+   */
+  private static Writer createChannelWriter( final File aFile, final String aCharsetName ) throws IOException
+  {
+    final Charset charset = ( aCharsetName == null ) ? Charset.defaultCharset() : Charset.forName( aCharsetName );
+    final FileChannel channel = new FileOutputStream( aFile ).getChannel();
+    return Channels.newWriter( channel, charset.newEncoder(), BUFFER_SIZE );
+  }
+}
@@ -70,7 +70,7 @@ public class CsvExporterImpl implements CsvExporter
    */
   public CsvExporterImpl( final File aFile, final char aDelimiter ) throws IOException
   {
-    this.writer = new BufferedWriter( new FileWriter( aFile ) );
+    this.writer = new BufferedChannelWriter( aFile, null );
     this.delimiter = aDelimiter;
   }
 
@@ -88,6 +88,11 @@ public class CsvExporterImpl implements CsvExporter
           + aValues.length );
     }
 
+    if ( Thread.interrupted() )
+    {
+      throw new InterruptedIOException( "CSV export interrupted!" );
+    }
+
     // If set, use the header count as leading cell count...
     final int length = Math.max( Math.min( this.headerCount, aValues.length ), this.headerCount );
 
@@ -95,7 +100,7 @@ public class CsvExporterImpl implements CsvExporter
     {
       final Object value = i < aValues.length ? aValues[i] : null;
 
-      this.writer.append( quote( value ) );
+      writeQuoted( value );
 
       if ( i < length - 1 )
       {
@@ -131,7 +136,7 @@ public class CsvExporterImpl implements CsvExporter
     this.headerCount = aHeaders.length;
     for ( int i = 0; i < aHeaders.length; i++ )
     {
-      this.writer.append( quote( aHeaders[i] ) );
+      writeQuoted( aHeaders[i] );
       if ( i < aHeaders.length - 1 )
       {
         this.writer.append( this.delimiter );
@@ -141,34 +146,26 @@ public class CsvExporterImpl implements CsvExporter
   }
 
   /**
+   * Writes the given value as quoted cell to the output.
+   * 
    * @param aValue
-   * @return
+   *          the value to write, can be <code>null</code>.
    */
-  private String quote( final Object aValue )
+  private void writeQuoted( final Object aValue ) throws IOException
   {
-    final String value;
-    if ( aValue == null )
-    {
-      value = "";
-    }
-    else
+    this.writer.write( '"' );
+    if ( aValue instanceof Character )
     {
-      if ( aValue instanceof Character )
-      {
-        if ( Character.isLetterOrDigit( ( ( Character )aValue ).charValue() ) )
-        {
-          value = String.valueOf( aValue );
-        }
-        else
-        {
-          value = "";
-        }
-      }
-      else
+      final char ch = ( ( Character )aValue ).charValue();
+      if ( Character.isLetterOrDigit( ch ) )
       {
-        value = String.valueOf( aValue );
+        this.writer.write( ch );
       }
     }
-    return "\"" + value + "\"";
+    else if ( aValue != null )
+    {
+      this.writer.write( String.valueOf( aValue ) );
+    }
+    this.writer.write( '"' );
   }
 }
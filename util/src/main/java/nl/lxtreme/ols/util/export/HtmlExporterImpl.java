@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.util.export;
 
 
+import java.io.*;
 import java.util.logging.*;
 
 import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
@@ -115,6 +116,27 @@ public class HtmlExporterImpl implements HtmlExporter
     title.addContent( aTitle );
   }
 
+  /**
+   * Writes the HTML-structure directly to the given writer, with all macro's
+   * resolved.
+   * 
+   * @param aWriter
+   *          the writer to write to, cannot be <code>null</code>;
+   * @param aResolver
+   *          the macro resolver to use, cannot be <code>null</code>.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    if ( this.includeDTD )
+    {
+      aWriter.write( "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">" );
+      aWriter.write( '\n' );
+    }
+    this.root.write( aWriter, aResolver );
+  }
+
   /**
    * @see java.lang.Object#toString()
    */
@@ -49,7 +49,7 @@ public class HtmlFileExporterImpl extends HtmlExporterImpl implements HtmlFileEx
    */
   public HtmlFileExporterImpl( final File aFile ) throws IOException
   {
-    this( new OutputStreamWriter( new FileOutputStream( aFile ), "UTF8" ) );
+    this( new BufferedChannelWriter( aFile, "UTF-8" ) );
   }
 
   /**
@@ -93,6 +93,6 @@ public class HtmlFileExporterImpl extends HtmlExporterImpl implements HtmlFileEx
   @Override
   public void write( final MacroResolver aResolver ) throws IOException
   {
-    this.writer.write( toString( aResolver ) );
+    write( this.writer, aResolver );
   }
 }
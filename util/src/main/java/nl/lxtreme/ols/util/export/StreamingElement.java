@@ -0,0 +1,257 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.export;
+
+
+import java.io.*;
+import java.util.*;
+
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Attribute;
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
+
+
+/**
+ * Provides a stand-in for a tag element that is currently being written. All
+ * children added to it are written to the output as soon as the next child is
+ * added (or the macro is resolved), after which they are discarded.
+ */
+final class StreamingElement implements Element
+{
+  // INNER TYPES
+
+  /**
+   * Used to tunnel I/O exceptions through the {@link Element} methods, which
+   * cannot throw checked exceptions.
+   */
+  static final class WriteFailedException extends RuntimeException
+  {
+    // CONSTANTS
+
+    private static final long serialVersionUID = 1L;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new {@link WriteFailedException} instance.
+     */
+    WriteFailedException( final IOException aCause )
+    {
+      super( aCause );
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized IOException getCause()
+    {
+      return ( IOException )super.getCause();
+    }
+  }
+
+  // VARIABLES
+
+  private final Element element;
+  private final Writer writer;
+  private final MacroResolver resolver;
+
+  private Element pending;
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new {@link StreamingElement} instance.
+   * 
+   * @param aElement
+   *          the element that is being written;
+   * @param aWriter
+   *          the writer to write the children to;
+   * @param aResolver
+   *          the macro resolver to use for the children.
+   */
+  StreamingElement( final Element aElement, final Writer aWriter, final MacroResolver aResolver )
+  {
+    this.element = aElement;
+    this.writer = aWriter;
+    this.resolver = aResolver;
+  }
+
+  // METHODS
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addAttribute( final String aName, final String aValue )
+  {
+    throw new IllegalStateException( "Cannot add attributes to element that is already written!" );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addChild( final Element aChild )
+  {
+    flushPending();
+    this.pending = aChild.clone();
+    return this.pending;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addChild( final String aName )
+  {
+    flushPending();
+    this.pending = new TagElement( aName );
+    return this.pending;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element addContent( final String... aValues )
+  {
+    flushPending();
+    try
+    {
+      for ( String value : aValues )
+      {
+        final TextElement text = new TextElement( value );
+        text.setParent( this );
+        text.write( this.writer, this.resolver );
+      }
+    }
+    catch ( IOException exception )
+    {
+      throw new WriteFailedException( exception );
+    }
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element clone()
+  {
+    return this.element.clone();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Attribute> getAttributes()
+  {
+    return this.element.getAttributes();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Element getChildByName( final String aName )
+  {
+    return this.element.getChildByName( aName );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Element> getChildren()
+  {
+    return this.element.getChildren();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String getName()
+  {
+    return this.element.getName();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString( final MacroResolver aResolver )
+  {
+    return this.element.toString( aResolver );
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    this.element.write( aWriter, aResolver );
+  }
+
+  /**
+   * Writes the last added child (if any) to the output.
+   * 
+   * @throws IOException
+   *           in case of I/O problems, or when the current thread is
+   *           interrupted.
+   */
+  void flush() throws IOException
+  {
+    if ( this.pending != null )
+    {
+      final Element child = this.pending;
+      this.pending = null;
+
+      if ( Thread.interrupted() )
+      {
+        throw new InterruptedIOException( "HTML export interrupted!" );
+      }
+
+      child.write( this.writer, this.resolver );
+    }
+  }
+
+  /**
+   * Writes the last added child (if any) to the output, tunneling any I/O
+   * exception.
+   */
+  private void flushPending()
+  {
+    try
+    {
+      flush();
+    }
+    catch ( IOException exception )
+    {
+      throw new WriteFailedException( exception );
+    }
+  }
+}
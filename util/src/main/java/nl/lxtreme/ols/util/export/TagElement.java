@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.util.export;
 
 
+import java.io.*;
 import java.util.*;
 
 import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Attribute;
@@ -253,4 +254,43 @@ public final class TagElement implements Element
 
     return sb.toString();
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    aWriter.write( '<' );
+    aWriter.write( this.name );
+
+    for ( int i = 0; i < this.attributes.size(); i++ )
+    {
+      aWriter.write( ' ' );
+      aWriter.write( this.attributes.get( i ).toString( aResolver ) );
+    }
+
+    aWriter.write( '>' );
+
+    if ( this.needsCloseTag )
+    {
+      for ( int i = 0; i < this.children.size(); i++ )
+      {
+        final Element child = this.children.get( i );
+        if ( child instanceof TextElement )
+        {
+          // Let macros stream their content directly to the writer...
+          ( ( TextElement )child ).write( aWriter, aResolver, new StreamingElement( this, aWriter, aResolver ) );
+        }
+        else
+        {
+          child.write( aWriter, aResolver );
+        }
+      }
+
+      aWriter.write( "</" );
+      aWriter.write( this.name );
+      aWriter.write( '>' );
+    }
+  }
 }
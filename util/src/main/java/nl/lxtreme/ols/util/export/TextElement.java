@@ -21,6 +21,7 @@
 package nl.lxtreme.ols.util.export;
 
 
+import java.io.*;
 import java.util.*;
 import java.util.regex.*;
 
@@ -187,4 +188,55 @@ public final class TextElement implements Element
     }
     return this.value;
   }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void write( final Writer aWriter, final MacroResolver aResolver ) throws IOException
+  {
+    aWriter.write( toString( aResolver ) );
+  }
+
+  /**
+   * Writes this text element to the given writer, resolving any macro against
+   * the given (streaming) parent.
+   * 
+   * @param aWriter
+   *          the writer to write to;
+   * @param aResolver
+   *          the macro resolver to use;
+   * @param aParent
+   *          the streaming parent that writes any children added by the
+   *          resolver directly to the writer.
+   * @throws IOException
+   *           in case of I/O problems.
+   */
+  void write( final Writer aWriter, final MacroResolver aResolver, final StreamingElement aParent )
+      throws IOException
+  {
+    final Matcher matcher = MACRO_PATTERN.matcher( this.value );
+    if ( matcher.matches() )
+    {
+      final Object result;
+      try
+      {
+        result = aResolver.resolve( matcher.group( 1 ), aParent );
+      }
+      catch ( StreamingElement.WriteFailedException exception )
+      {
+        throw exception.getCause();
+      }
+      aParent.flush();
+
+      if ( result != null )
+      {
+        aWriter.write( String.valueOf( result ) );
+      }
+    }
+    else
+    {
+      aWriter.write( this.value );
+    }
+  }
 }
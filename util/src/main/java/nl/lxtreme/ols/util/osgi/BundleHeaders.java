@@ -0,0 +1,60 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
+ * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.osgi;
+
+
+/**
+ * Provides the manifest headers by which bundles announce the tools, devices
+ * and exporters they provide, together with the filters used to adapt those
+ * bundles with a {@link GenericBundleAdapter}.
+ */
+public final class BundleHeaders
+{
+  // CONSTANTS
+
+  public static final String OLS_TOOL_MAGIC_KEY = "OLS-Tool";
+  public static final String OLS_TOOL_MAGIC_VALUE = "1.0";
+  public static final String OLS_TOOL_CLASS_KEY = "OLS-ToolClass";
+  public static final String TOOL_BUNDLE_FILTER = String.format( "(&(%s=%s)(%s=*))", OLS_TOOL_MAGIC_KEY,
+      OLS_TOOL_MAGIC_VALUE, OLS_TOOL_CLASS_KEY );
+
+  public static final String OLS_DEVICE_MAGIC_KEY = "OLS-Device";
+  public static final String OLS_DEVICE_MAGIC_VALUE = "1.0";
+  public static final String OLS_DEVICE_CLASS_KEY = "OLS-DeviceClass";
+  public static final String DEVICE_BUNDLE_FILTER = String.format( "(&(%s=%s)(%s=*))", OLS_DEVICE_MAGIC_KEY,
+      OLS_DEVICE_MAGIC_VALUE, OLS_DEVICE_CLASS_KEY );
+
+  public static final String OLS_EXPORTER_MAGIC_KEY = "OLS-Exporter";
+  public static final String OLS_EXPORTER_MAGIC_VALUE = "1.0";
+  public static final String OLS_EXPORTER_CLASS_KEY = "OLS-ExporterClass";
+  public static final String EXPORTER_BUNDLE_FILTER = String.format( "(&(%s=%s)(%s=*))", OLS_EXPORTER_MAGIC_KEY,
+      OLS_EXPORTER_MAGIC_VALUE, OLS_EXPORTER_CLASS_KEY );
+
+  // CONSTRUCTORS
+
+  /**
+   * Creates a new BundleHeaders instance, never used.
+   */
+  private BundleHeaders()
+  {
+    // NO-op
+  }
+}
@@ -18,7 +18,7 @@
  * Copyright (C) 2006-2010 Michael Poppitz, www.sump.org
  * Copyright (C) 2010-2012 J.W. Janssen, www.lxtreme.nl
  */
-package nl.lxtreme.ols.client.osgi;
+package nl.lxtreme.ols.util.osgi;
 
 
 import java.util.*;
@@ -31,6 +31,12 @@ import org.osgi.service.log.*;
 /**
  * Provides a bundle adapter that instantiates a service from a bundle with a
  * particular magic key-value header.
+ * <p>
+ * In case the bundle describes its service in its manifest (see
+ * {@link #createStub(Dictionary)}), a lightweight stub is registered instead
+ * of the real service. The real service is only instantiated, and its bundle
+ * activated, upon first use of this stub.
+ * </p>
  */
 public class GenericBundleAdapter<TYPE>
 {
@@ -42,6 +48,7 @@ public class GenericBundleAdapter<TYPE>
   private volatile Bundle bundle; // = adapted bundle
   private volatile DependencyManager manager; // injected
   private volatile Component serviceComponent; // = added service
+  private volatile Component implComponent; // = lazily added implementation
 
   // CONSTRUCTORS
 
@@ -65,35 +72,83 @@ public class GenericBundleAdapter<TYPE>
     {
       this.manager.remove( this.serviceComponent );
     }
+    synchronized ( this )
+    {
+      if ( this.implComponent != null )
+      {
+        this.manager.remove( this.implComponent );
+        this.implComponent = null;
+      }
+    }
   }
 
   /**
-   * Called by Dependency Manager upon initialization of this component.
+   * Returns the real service implementation, instantiating it (and activating
+   * its bundle) if this was not already done.
+   * 
+   * @return the service implementation, never <code>null</code>.
+   * @throws IllegalStateException
+   *           in case the service could not be instantiated.
    */
-  public void init( final Component aComponent ) throws Exception
+  @SuppressWarnings( "unchecked" )
+  public synchronized TYPE getService() throws IllegalStateException
   {
-    Dictionary<?, ?> bundleProps = this.bundle.getHeaders();
-
-    String entry = ( String )bundleProps.get( this.headerKey );
-    if ( ( entry == null ) || "".equals( entry ) )
+    if ( this.implComponent == null )
     {
-      throw new IllegalArgumentException( "No such header given: " + this.headerKey );
+      try
+      {
+        this.implComponent = createComponent();
+        this.manager.add( this.implComponent );
+      }
+      catch ( Exception exception )
+      {
+        throw new IllegalStateException( "Failed to activate " + this.bundle.getSymbolicName() + "!", exception );
+      }
     }
+    return ( TYPE )this.implComponent.getService();
+  }
 
-    Class<?> implClass = this.bundle.loadClass( entry );
+  /**
+   * Called by Dependency Manager upon initialization of this component.
+   */
+  public void init( final Component aComponent ) throws Exception
+  {
+    Dictionary<?, ?> bundleProps = this.bundle.getHeaders();
 
     Properties serviceProps = copyOlsProperties( bundleProps );
 
-    this.serviceComponent = this.manager.createComponent() //
-        .setInterface( this.serviceClass.getName(), serviceProps ) //
-        .setImplementation( implClass ) //
-        .add( this.manager.createServiceDependency() //
-            .setService( LogService.class ) //
-            .setRequired( false ) //
-        );
+    TYPE stub = createStub( bundleProps );
+    if ( stub != null )
+    {
+      // Only register the stub; the real service is created on first use...
+      this.serviceComponent = this.manager.createComponent() //
+          .setInterface( this.serviceClass.getName(), serviceProps ) //
+          .setImplementation( stub );
+    }
+    else
+    {
+      this.serviceComponent = createComponent() //
+          .setInterface( this.serviceClass.getName(), serviceProps );
+    }
     this.manager.add( this.serviceComponent );
   }
 
+  /**
+   * Creates a stub for the service of the given bundle, based on the
+   * information in its manifest.
+   * 
+   * @param aHeaders
+   *          the manifest headers of the adapted bundle, cannot be
+   *          <code>null</code>.
+   * @return a stub for the service, or <code>null</code> (the default) if the
+   *         bundle does not describe its service, in which case the real
+   *         service is registered directly.
+   */
+  protected TYPE createStub( final Dictionary<?, ?> aHeaders )
+  {
+    return null;
+  }
+
   /**
    * Copies all OLS-specific properties from the original bundle header to a new
    * {@link Properties} instance.
@@ -119,4 +174,34 @@ public class GenericBundleAdapter<TYPE>
 
     return result;
   }
+
+  /**
+   * Creates a new component for the service implementation of the adapted
+   * bundle, activating this bundle if it uses lazy activation.
+   * 
+   * @return a new component (without interfaces), never <code>null</code>.
+   */
+  private Component createComponent() throws Exception
+  {
+    String entry = ( String )this.bundle.getHeaders().get( this.headerKey );
+    if ( ( entry == null ) || "".equals( entry ) )
+    {
+      throw new IllegalArgumentException( "No such header given: " + this.headerKey );
+    }
+
+    if ( this.bundle.getState() == Bundle.STARTING )
+    {
+      // Lazily activated bundle; activate it now...
+      this.bundle.start( Bundle.START_TRANSIENT );
+    }
+
+    Class<?> implClass = this.bundle.loadClass( entry );
+
+    return this.manager.createComponent() //
+        .setImplementation( implClass ) //
+        .add( this.manager.createServiceDependency() //
+            .setService( LogService.class ) //
+            .setRequired( false ) //
+        );
+  }
 }
@@ -0,0 +1,325 @@
+/*
+ * OpenBench LogicSniffer / SUMP project
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+import java.util.zip.*;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link ZipWriter}.
+ */
+public class ZipWriterTest
+{
+  // CONSTANTS
+
+  private static final long ZIP64_SIZE = 0x100000000L + 12345L;
+
+  // METHODS
+
+  /**
+   * Test method for {@link ZipWriter#finish()}.
+   */
+  @Test
+  public void testWriteEntriesOk() throws IOException
+  {
+    final File file = File.createTempFile( "ols", ".zip" );
+    file.deleteOnExit();
+
+    final ZipWriter writer = new ZipWriter( new FileOutputStream( file ), Deflater.BEST_SPEED, 2 );
+    try
+    {
+      writer.setComment( "comment" );
+      writer.putNextEntry( "first" );
+      writer.write( "hello".getBytes( "UTF-8" ) );
+      writer.closeEntry();
+      writer.putNextEntry( "second", true /* aParallel */);
+      writeZeros( writer, 3 * 1024 * 1024 );
+      writer.closeEntry();
+      writer.finish();
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    final ZipFile zipFile = new ZipFile( file );
+    try
+    {
+      assertEquals( "comment", zipFile.getComment() );
+      assertEquals( 5L, zipFile.getEntry( "first" ).getSize() );
+      assertEquals( 3L * 1024 * 1024, zipFile.getEntry( "second" ).getSize() );
+    }
+    finally
+    {
+      zipFile.close();
+    }
+
+    assertEquals( 3L * 1024 * 1024, readEntry( file, "second" ) );
+
+    file.delete();
+  }
+
+  /**
+   * Tests that consecutive parallel entries, whose blocks are deflated while
+   * the next entry is already started, are written in order and intact.
+   */
+  @Test
+  public void testWritePipelinedEntriesOk() throws IOException
+  {
+    final File file = File.createTempFile( "ols", ".zip" );
+    file.deleteOnExit();
+
+    final Random random = new Random( 1234L );
+    final byte[][] data = new byte[5][];
+    for ( int i = 0; i < data.length; i++ )
+    {
+      // Repeat a random pattern, so blocks refer to their predecessors...
+      final byte[] pattern = new byte[4096 + i];
+      random.nextBytes( pattern );
+      data[i] = new byte[( i * ZipWriter.BLOCK_SIZE ) + 777];
+      for ( int j = 0; j < data[i].length; j++ )
+      {
+        data[i][j] = pattern[j % pattern.length];
+      }
+    }
+
+    final ZipWriter writer = new ZipWriter( new FileOutputStream( file ), Deflater.DEFAULT_COMPRESSION, 3 );
+    try
+    {
+      for ( int i = 0; i < data.length; i++ )
+      {
+        writer.putNextEntry( "entry" + i, true /* aParallel */);
+        writer.write( data[i] );
+      }
+      writer.putNextEntry( "last" );
+      writer.write( "last".getBytes( "UTF-8" ) );
+      writer.finish();
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    final ZipInputStream zis = new ZipInputStream( new BufferedInputStream( new FileInputStream( file ) ) );
+    try
+    {
+      for ( int i = 0; i < data.length; i++ )
+      {
+        final ZipEntry entry = zis.getNextEntry();
+        assertEquals( "entry" + i, entry.getName() );
+        assertArrayEquals( data[i], readFully( zis ) );
+      }
+      assertEquals( "last", zis.getNextEntry().getName() );
+      assertArrayEquals( "last".getBytes( "UTF-8" ), readFully( zis ) );
+      assertNull( zis.getNextEntry() );
+    }
+    finally
+    {
+      zis.close();
+    }
+
+    final ZipFile zipFile = new ZipFile( file );
+    try
+    {
+      assertEquals( data.length + 1, zipFile.size() );
+      assertEquals( data[4].length, zipFile.getEntry( "entry4" ).getSize() );
+    }
+    finally
+    {
+      zipFile.close();
+    }
+
+    file.delete();
+  }
+
+  /**
+   * Tests that the maximum 32-bit value is already written in the ZIP64
+   * format, as it is used as marker for ZIP64 values.
+   */
+  @Test
+  public void testZip64ThresholdOk()
+  {
+    assertFalse( ZipWriter.isZip64( 0xFFFFFFFEL ) );
+    assertTrue( ZipWriter.isZip64( 0xFFFFFFFFL ) );
+    assertTrue( ZipWriter.isZip64( 0x100000000L ) );
+  }
+
+  /**
+   * Test method for {@link ZipWriter#finish()}.
+   */
+  @Test
+  public void testWriteZip64EntriesOk() throws IOException
+  {
+    final File file = File.createTempFile( "ols", ".zip" );
+    file.deleteOnExit();
+
+    final ZipWriter writer = new ZipWriter( new FileOutputStream( file ), Deflater.BEST_SPEED,
+        Runtime.getRuntime().availableProcessors() );
+    try
+    {
+      // Zeros compress well, so the file itself remains small...
+      writer.putNextEntry( "large", true /* aParallel */);
+      writeZeros( writer, ZIP64_SIZE );
+      writer.closeEntry();
+      // The data descriptor of this entry should be found after the large one...
+      writer.putNextEntry( "last" );
+      writer.closeEntry();
+      writer.finish();
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    final ZipFile zipFile = new ZipFile( file );
+    try
+    {
+      assertEquals( ZIP64_SIZE, zipFile.getEntry( "large" ).getSize() );
+      assertEquals( 0L, zipFile.getEntry( "last" ).getSize() );
+    }
+    finally
+    {
+      zipFile.close();
+    }
+
+    // The data descriptor should contain 64-bit sizes...
+    assertEquals( 0L, readEntry( file, "last" ) );
+
+    file.delete();
+  }
+
+  /**
+   * Test method for {@link ZipWriter#finish()}.
+   */
+  @Test
+  public void testWriteZip64EntryCountOk() throws IOException
+  {
+    final File file = File.createTempFile( "ols", ".zip" );
+    file.deleteOnExit();
+
+    final int count = 0x10000 + 123;
+
+    final ZipWriter writer = new ZipWriter( new FileOutputStream( file ), Deflater.BEST_SPEED, 1 );
+    try
+    {
+      for ( int i = 0; i < count; i++ )
+      {
+        writer.putNextEntry( "entry" + i );
+        writer.closeEntry();
+      }
+      writer.finish();
+    }
+    finally
+    {
+      writer.close();
+    }
+
+    // Needs the ZIP64 end record to find all entries...
+    final ZipFile zipFile = new ZipFile( file );
+    try
+    {
+      assertEquals( count, zipFile.size() );
+      assertNotNull( zipFile.getEntry( "entry" + ( count - 1 ) ) );
+    }
+    finally
+    {
+      zipFile.close();
+    }
+
+    file.delete();
+  }
+
+  /**
+   * Reads the entries of the given file in a streaming manner, which relies on
+   * the data descriptors written after each entry.
+   * 
+   * @return the size of the entry with the given name.
+   */
+  private long readEntry( final File aFile, final String aName ) throws IOException
+  {
+    final byte[] buffer = new byte[65536];
+
+    final ZipInputStream zis = new ZipInputStream( new BufferedInputStream( new FileInputStream( aFile ) ) );
+    try
+    {
+      long result = -1L;
+
+      ZipEntry entry;
+      while ( ( entry = zis.getNextEntry() ) != null )
+      {
+        long size = 0L;
+        int read;
+        while ( ( read = zis.read( buffer ) ) > 0 )
+        {
+          size += read;
+        }
+        if ( aName.equals( entry.getName() ) )
+        {
+          result = size;
+        }
+      }
+
+      return result;
+    }
+    finally
+    {
+      zis.close();
+    }
+  }
+
+  /**
+   * Reads the remainder of the current entry of the given stream.
+   */
+  private byte[] readFully( final ZipInputStream aStream ) throws IOException
+  {
+    final ByteArrayOutputStream result = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[65536];
+    int read;
+    while ( ( read = aStream.read( buffer ) ) > 0 )
+    {
+      result.write( buffer, 0, read );
+    }
+    return result.toByteArray();
+  }
+
+  /**
+   * Writes the given number of zero-bytes to the given writer.
+   */
+  private void writeZeros( final ZipWriter aWriter, final long aCount ) throws IOException
+  {
+    final byte[] buffer = new byte[1024 * 1024];
+
+    long remaining = aCount;
+    while ( remaining > 0L )
+    {
+      final int length = ( int )Math.min( remaining, buffer.length );
+      aWriter.write( buffer, 0, length );
+      remaining -= length;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 - J.W. Janssen, http://www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.analysis;
+
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+
+/**
+ *
+ */
+public class IntFrequencyTest
+{
+  // METHODS
+
+  /**
+   * Test method for
+   * {@link nl.lxtreme.ols.util.analysis.IntFrequency#addAll(IntFrequency)}.
+   */
+  @Test
+  public void testAddAll()
+  {
+    final IntFrequency f1 = createDistribution( 0, 5 );
+    final IntFrequency f2 = createDistribution( 3, 10 );
+
+    f1.addAll( f2 );
+
+    assertEquals( 1, f1.getCount( 1 ) );
+    assertEquals( 6, f1.getCount( 3 ) );
+    assertEquals( 8, f1.getCount( 4 ) );
+    assertEquals( 10, f1.getCount( 10 ) );
+    assertEquals( 10, f1.getUniqueValueCount() );
+  }
+
+  /**
+   * Test method for
+   * {@link nl.lxtreme.ols.util.analysis.IntFrequency#getCount(int)}.
+   */
+  @Test
+  public void testGetCount()
+  {
+    final IntFrequency f = createDistribution( 0, 10 );
+
+    for ( int i = 0; i <= 10; i++ )
+    {
+      assertEquals( i, f.getCount( i ) );
+    }
+    assertEquals( 0, f.getCount( 11 ) );
+    assertEquals( 0, f.getCount( -1 ) );
+  }
+
+  /**
+   * Test method for
+   * {@link nl.lxtreme.ols.util.analysis.IntFrequency#getHighestRanked()}.
+   */
+  @Test
+  public void testGetHighestRanked()
+  {
+    final IntFrequency f = createDistribution( 0, 10 );
+
+    assertEquals( Integer.valueOf( 10 ), f.getHighestRanked() );
+    assertNull( new IntFrequency().getHighestRanked() );
+  }
+
+  /**
+   * Test method for
+   * {@link nl.lxtreme.ols.util.analysis.IntFrequency#getLowestRanked()}.
+   */
+  @Test
+  public void testGetLowestRanked()
+  {
+    final IntFrequency f = createDistribution( 0, 10 );
+
+    assertEquals( Integer.valueOf( 1 ), f.getLowestRanked() );
+    assertNull( new IntFrequency().getLowestRanked() );
+  }
+
+  /**
+   * Tests that growing the distribution beyond its initial capacity retains
+   * all values.
+   */
+  @Test
+  public void testGrowRetainsAllValues()
+  {
+    final IntFrequency f = new IntFrequency( 1 );
+
+    for ( int i = -5000; i < 5000; i++ )
+    {
+      f.addValue( i * 31 );
+      f.addValue( i * 31 );
+    }
+
+    assertEquals( 10000, f.getUniqueValueCount() );
+    assertEquals( 20000L, f.getTotalCount() );
+
+    final int[] values = f.values();
+    assertEquals( 10000, values.length );
+    for ( int i = 0; i < values.length; i++ )
+    {
+      assertEquals( ( i - 5000 ) * 31, values[i] );
+      assertEquals( 2L, f.getCount( values[i] ) );
+    }
+  }
+
+  /**
+   * Creates a distribution in which each value in [aFrom, aTo] occurs as many
+   * times as its value.
+   */
+  private IntFrequency createDistribution( final int aFrom, final int aTo )
+  {
+    final IntFrequency f = new IntFrequency();
+    for ( int i = aFrom; i <= aTo; i++ )
+    {
+      for ( int j = 0; j < i; j++ )
+      {
+        f.addValue( i );
+      }
+    }
+    return f;
+  }
+}
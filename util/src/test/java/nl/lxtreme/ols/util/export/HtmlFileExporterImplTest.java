@@ -0,0 +1,340 @@
+/*
+ * OpenBench LogicSniffer / SUMP project 
+ *
+ * This program is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 2 of the License, or (at
+ * your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, write to the Free Software Foundation, Inc.,
+ * 51 Franklin St, Fifth Floor, Boston, MA 02110, USA
+ *
+ * 
+ * Copyright (C) 2010-2011 J.W. Janssen, www.lxtreme.nl
+ */
+package nl.lxtreme.ols.util.export;
+
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter;
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.Element;
+import nl.lxtreme.ols.util.ExportUtils.HtmlExporter.MacroResolver;
+
+import org.junit.*;
+
+
+/**
+ * Test cases for {@link HtmlFileExporterImpl}.
+ */
+public class HtmlFileExporterImplTest
+{
+  // INNER TYPES
+
+  /**
+   * Provides a macro resolver that adds a given number of table rows to the
+   * element it is resolved against.
+   */
+  static final class RowMacroResolver implements MacroResolver
+  {
+    // VARIABLES
+
+    private final int rowCount;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new RowMacroResolver instance.
+     */
+    RowMacroResolver( final int aRowCount )
+    {
+      this.rowCount = aRowCount;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object resolve( final String aMacro, final Element aParent )
+    {
+      if ( "rows".equals( aMacro ) )
+      {
+        for ( int i = 0; i < this.rowCount; i++ )
+        {
+          final Element tr = aParent.addChild( "tr" );
+          tr.addChild( "td" ).addContent( String.valueOf( i ) );
+          tr.addChild( "td" ).addContent( "&lt;row&gt;" );
+        }
+        return null;
+      }
+      else if ( "title".equals( aMacro ) )
+      {
+        return "Results";
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Provides a writer that fails after a given number of characters is written.
+   */
+  static final class FailingWriter extends Writer
+  {
+    // VARIABLES
+
+    private final int limit;
+    private int written;
+    private boolean closed;
+
+    // CONSTRUCTORS
+
+    /**
+     * Creates a new FailingWriter instance.
+     */
+    FailingWriter( final int aLimit )
+    {
+      this.limit = aLimit;
+    }
+
+    // METHODS
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException
+    {
+      this.closed = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException
+    {
+      // Nothing to flush...
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void write( final char[] aBuf, final int aOffset, final int aLength ) throws IOException
+    {
+      this.written += aLength;
+      if ( this.written > this.limit )
+      {
+        throw new IOException( "Disk full" );
+      }
+    }
+
+    /**
+     * Returns whether this writer is closed.
+     */
+    boolean isClosed()
+    {
+      return this.closed;
+    }
+  }
+
+  // VARIABLES
+
+  private File file;
+
+  // METHODS
+
+  /**
+   * Creates a temporary file to export to.
+   */
+  @Before
+  public void setUp() throws IOException
+  {
+    this.file = File.createTempFile( "ols", ".html" );
+  }
+
+  /**
+   * Removes the temporary file.
+   */
+  @After
+  public void tearDown()
+  {
+    this.file.delete();
+  }
+
+  /**
+   * Tests that closing the exporter flushes all buffered output to the file.
+   */
+  @Test
+  public void testCloseFlushesOutputToFile() throws IOException
+  {
+    final HtmlFileExporterImpl exporter = new HtmlFileExporterImpl( this.file );
+    exporter.getBody().addChild( HtmlExporter.H1 ).addContent( "{title}" );
+    exporter.write( new RowMacroResolver( 0 ) );
+
+    // Everything is still buffered...
+    assertEquals( 0L, this.file.length() );
+
+    exporter.close();
+
+    assertEquals( expectedPage( "<h1>Results</h1>" ), readFile() );
+  }
+
+  /**
+   * Tests that a failing write is reported to the caller and that the
+   * exporter can still be closed afterwards.
+   */
+  @Test
+  public void testFailingWriteIsReported() throws IOException
+  {
+    final FailingWriter target = new FailingWriter( 500 );
+    final HtmlFileExporterImpl exporter = new HtmlFileExporterImpl( target );
+    exporter.getBody().addChild( "table" ).addContent( "{rows}" );
+
+    try
+    {
+      exporter.write( new RowMacroResolver( 1000 ) );
+      fail( "Expected IOException!" );
+    }
+    catch ( IOException exception )
+    {
+      assertEquals( "Disk full", exception.getMessage() );
+    }
+    finally
+    {
+      exporter.close();
+    }
+
+    assertTrue( target.isClosed() );
+  }
+
+  /**
+   * Tests that interrupting the exporting thread aborts the export.
+   */
+  @Test
+  public void testInterruptAbortsWrite() throws IOException
+  {
+    final HtmlFileExporterImpl exporter = new HtmlFileExporterImpl( this.file );
+    exporter.getBody().addChild( "table" ).addContent( "{rows}" );
+
+    try
+    {
+      exporter.write( new MacroResolver()
+      {
+        @Override
+        public Object resolve( final String aMacro, final Element aParent )
+        {
+          aParent.addChild( "tr" );
+          Thread.currentThread().interrupt();
+          aParent.addChild( "tr" );
+          return null;
+        }
+      } );
+      fail( "Expected InterruptedIOException!" );
+    }
+    catch ( InterruptedIOException exception )
+    {
+      // Ok; expected...
+    }
+    finally
+    {
+      exporter.close();
+    }
+
+    assertFalse( Thread.interrupted() );
+  }
+
+  /**
+   * Tests that rows added by a macro are streamed in the same form as they
+   * would have been rendered in memory.
+   */
+  @Test
+  public void testStreamedRowsMatchInMemoryRendering() throws IOException
+  {
+    final HtmlFileExporterImpl exporter = new HtmlFileExporterImpl( this.file );
+    exporter.getBody().addChild( HtmlExporter.H1 ).addContent( "{title}" );
+    exporter.getBody().addChild( "table" ).addContent( "{rows}" );
+    try
+    {
+      exporter.write( new RowMacroResolver( 3 ) );
+    }
+    finally
+    {
+      exporter.close();
+    }
+
+    assertEquals( expectedPage( "<h1>Results</h1><table>" //
+        + "<tr><td>0</td><td>&lt;row&gt;</td></tr>" //
+        + "<tr><td>1</td><td>&lt;row&gt;</td></tr>" //
+        + "<tr><td>2</td><td>&lt;row&gt;</td></tr>" //
+        + "</table>" ), readFile() );
+  }
+
+  /**
+   * Tests that large numbers of rows are written completely.
+   */
+  @Test
+  public void testWriteManyRows() throws IOException
+  {
+    final int rows = 20000;
+
+    final HtmlFileExporterImpl exporter = new HtmlFileExporterImpl( this.file );
+    exporter.getBody().addChild( "table" ).addContent( "{rows}" );
+    try
+    {
+      exporter.write( new RowMacroResolver( rows ) );
+    }
+    finally
+    {
+      exporter.close();
+    }
+
+    final String content = readFile();
+    final String lastRow = "<tr><td>" + ( rows - 1 ) + "</td><td>&lt;row&gt;</td></tr>";
+    assertTrue( content.endsWith( lastRow + "</table></body></html>" ) );
+    assertEquals( rows, content.split( "<tr>", -1 ).length - 1 );
+  }
+
+  /**
+   * @return the expected HTML page with the given body content.
+   */
+  private String expectedPage( final String aBody )
+  {
+    return "<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">\n"
+        + "<html><head><title></title><meta http-equiv='Content-type' content='text/html;charset=UTF-8'></head>"
+        + "<body>" + aBody + "</body></html>";
+  }
+
+  /**
+   * @return the contents of the exported file, never <code>null</code>.
+   */
+  private String readFile() throws IOException
+  {
+    final Reader reader = new InputStreamReader( new FileInputStream( this.file ), "UTF-8" );
+    try
+    {
+      final StringBuilder sb = new StringBuilder();
+      final char[] buf = new char[4096];
+      int read;
+      while ( ( read = reader.read( buf ) ) >= 0 )
+      {
+        sb.append( buf, 0, read );
+      }
+      return sb.toString();
+    }
+    finally
+    {
+      reader.close();
+    }
+  }
+}